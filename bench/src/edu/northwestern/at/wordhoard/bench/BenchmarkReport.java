@@ -0,0 +1,245 @@
+package edu.northwestern.at.wordhoard.bench;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.*;
+import java.util.*;
+
+/**	Compares two sets of benchmark results.
+ *
+ *	<p>Usage:
+ *
+ *	<p><code>BenchmarkReport baseline current [threshold]</code>
+ *
+ *	<p>baseline = Path to baseline results, a JMH CSV results file.
+ *
+ *	<p>current = Path to current results, a JMH CSV results file.
+ *
+ *	<p>threshold = Regression threshold, in percent. The default is 10.
+ *
+ *	<p>For each benchmark and parameter combination in both files, prints
+ *	the baseline score, the current score, and the change. A change for
+ *	the worse larger than the threshold is marked as a regression: a
+ *	lower score for throughput benchmarks, or a higher score for time
+ *	benchmarks. The program exits with status 1 if there are regressions.
+ */
+
+public class BenchmarkReport {
+
+	/**	A benchmark result. */
+
+	private static class Result {
+		private String mode;		// JMH benchmark mode
+		private double score;		// Score
+		private double error;		// Score error, or NaN if none
+		private String unit;		// Score unit
+	}
+
+	/**	Splits a CSV line into fields.
+	 *
+	 *	@param	line		Line.
+	 *
+	 *	@return				List of fields, unquoted.
+	 */
+
+	private static List split (String line) {
+		ArrayList result = new ArrayList();
+		StringBuffer buf = new StringBuffer();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char ch = line.charAt(i);
+			if (quoted) {
+				if (ch != '"') {
+					buf.append(ch);
+				} else if (i + 1 < line.length() && line.charAt(i+1) == '"') {
+					buf.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (ch == '"') {
+				quoted = true;
+			} else if (ch == ',') {
+				result.add(buf.toString());
+				buf.setLength(0);
+			} else {
+				buf.append(ch);
+			}
+		}
+		result.add(buf.toString());
+		return result;
+	}
+
+	/**	Parses a number.
+	 *
+	 *	@param	str			String.
+	 *
+	 *	@return				The number, or NaN if none.
+	 */
+
+	private static double parse (String str) {
+		try {
+			return Double.parseDouble(str.trim());
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**	Reads a results file.
+	 *
+	 *	@param	path		Path to JMH CSV results file.
+	 *
+	 *	@return				Map from benchmark names with parameters
+	 *						to results, in file order.
+	 *
+	 *	@throws	IOException	I/O error.
+	 */
+
+	private static Map read (String path)
+		throws IOException
+	{
+		LinkedHashMap result = new LinkedHashMap();
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+			new FileInputStream(path), "utf-8"));
+		try {
+			String line = in.readLine();
+			if (line == null) return result;
+			List header = split(line);
+			int benchmarkCol = header.indexOf("Benchmark");
+			int modeCol = header.indexOf("Mode");
+			int scoreCol = header.indexOf("Score");
+			int errorCol = header.indexOf("Score Error (99.9%)");
+			int unitCol = header.indexOf("Unit");
+			if (benchmarkCol < 0 || modeCol < 0 || scoreCol < 0 ||
+				unitCol < 0)
+					throw new IOException("Not a JMH CSV results file: " +
+						path);
+			while ((line = in.readLine()) != null) {
+				if (line.trim().length() == 0) continue;
+				List fields = split(line);
+				StringBuffer params = new StringBuffer();
+				for (int i = unitCol + 1; i < fields.size(); i++) {
+					String val = (String)fields.get(i);
+					if (val.length() == 0) continue;
+					String name = (String)header.get(i);
+					if (name.startsWith("Param: "))
+						name = name.substring(7);
+					if (params.length() > 0) params.append(", ");
+					params.append(name + "=" + val);
+				}
+				String key = (String)fields.get(benchmarkCol);
+				if (params.length() > 0) key += " (" + params + ")";
+				Result r = new Result();
+				r.mode = (String)fields.get(modeCol);
+				r.score = parse((String)fields.get(scoreCol));
+				r.error = errorCol < 0 ? Double.NaN :
+					parse((String)fields.get(errorCol));
+				r.unit = (String)fields.get(unitCol);
+				result.put(key, r);
+			}
+		} finally {
+			in.close();
+		}
+		return result;
+	}
+
+	/**	Formats a score.
+	 *
+	 *	@param	r			Result.
+	 *
+	 *	@return				Formatted score with error and unit.
+	 */
+
+	private static String format (Result r) {
+		String str = String.format("%.3f", new Object[] {Double.valueOf(r.score)});
+		if (!Double.isNaN(r.error))
+			str += String.format(" \u00b1 %.3f",
+				new Object[] {Double.valueOf(r.error)});
+		return str + " " + r.unit;
+	}
+
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+
+	public static void main (String[] args) {
+		try {
+			if (args.length != 2 && args.length != 3) {
+				System.out.println(
+					"Usage: BenchmarkReport baseline current [threshold]");
+				System.exit(1);
+			}
+			double threshold = args.length == 3 ?
+				Double.parseDouble(args[2]) : 10;
+			Map baseline = read(args[0]);
+			Map current = read(args[1]);
+			int numRegressions = 0;
+			for (Iterator it = current.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry entry = (Map.Entry)it.next();
+				String name = (String)entry.getKey();
+				Result cur = (Result)entry.getValue();
+				Result base = (Result)baseline.get(name);
+				System.out.println(name);
+				if (base == null) {
+					System.out.println("   current:  " + format(cur) +
+						"  (not in baseline)");
+					continue;
+				}
+				System.out.println("   baseline: " + format(base));
+				System.out.println("   current:  " + format(cur));
+				if (!base.unit.equals(cur.unit) || base.score == 0) continue;
+				double change = 100 * (cur.score - base.score) / base.score;
+				boolean higherIsBetter = cur.mode.equals("thrpt");
+				double worse = higherIsBetter ? -change : change;
+				boolean regression = worse > threshold;
+				if (regression) numRegressions++;
+				System.out.println("   change:   " +
+					String.format("%+.1f%%",
+						new Object[] {Double.valueOf(change)}) +
+					(regression ? "  ##### REGRESSION" : ""));
+			}
+			for (Iterator it = baseline.keySet().iterator(); it.hasNext(); ) {
+				String name = (String)it.next();
+				if (!current.containsKey(name))
+					System.out.println(name + "\n   (not in current results)");
+			}
+			System.out.println();
+			System.out.println(numRegressions +
+				(numRegressions == 1 ? " regression" : " regressions") +
+				" larger than " + threshold + "%");
+			System.exit(numRegressions == 0 ? 0 : 1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,96 @@
+package edu.northwestern.at.wordhoard.bench;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.northwestern.at.wordhoard.swing.calculator.modelutils.*;
+
+/**	Word counting benchmarks.
+ *
+ *	<p>Measures merging the word counts of the parts of a text, as the
+ *	calculator does when it counts a work set or a corpus.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountBenchmark {
+
+	/**	Number of distinct spellings. */
+
+	@Param({"1000", "20000"})
+	public int vocabularySize;
+
+	/**	Number of parts. */
+
+	private static final int NUM_PARTS = 16;
+
+	/**	Number of words in each part. */
+
+	private static final int WORDS_PER_PART = 10000;
+
+	/**	Count maps for the parts. */
+
+	private Map[] parts;
+
+	/**	Creates the fixture.
+	 */
+
+	@Setup
+	public void setup () {
+		Fixture fixture = new Fixture(vocabularySize,
+			NUM_PARTS * WORDS_PER_PART);
+		parts = new Map[NUM_PARTS];
+		for (int i = 0; i < NUM_PARTS; i++)
+			parts[i] = fixture.getCounts(i * WORDS_PER_PART,
+				(i + 1) * WORDS_PER_PART);
+	}
+
+	/**	Adds the count maps of all the parts.
+	 *
+	 *	@return		The total counts.
+	 */
+
+	@Benchmark
+	public Map addCountMap () {
+		HashMap result = new HashMap();
+		for (int i = 0; i < parts.length; i++)
+			CountMapUtils.addCountMap(result, parts[i]);
+		return result;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,169 @@
+package edu.northwestern.at.wordhoard.bench;
+
+/*	Please see the license information at the end of this file. */
+
+import java.text.Collator;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.northwestern.at.wordhoard.model.*;
+import edu.northwestern.at.wordhoard.model.search.*;
+import edu.northwestern.at.wordhoard.model.text.*;
+import edu.northwestern.at.wordhoard.model.wrappers.*;
+import edu.northwestern.at.wordhoard.swing.calculator.analysis.*;
+import edu.northwestern.at.wordhoard.swing.calculator.modelutils.*;
+import edu.northwestern.at.wordhoard.tools.*;
+
+/**	Database benchmarks.
+ *
+ *	<p>Measures searches and collocate analyses against a fixture
+ *	database. The database is specified by system properties:
+ *
+ *	<ul>
+ *	<li>bench.db = Database name, in form "dbname", "host/dbname" or
+ *		"host:port/dbname".
+ *	<li>bench.username = MySQL username.
+ *	<li>bench.password = MySQL password.
+ *	<li>bench.corpus = Tag of the corpus to search. Default "ege".
+ *	<li>bench.spelling = Spelling to search for. Default "love".
+ *	</ul>
+ *
+ *	<p>If bench.db is not set, the benchmarks fail in setup and the other
+ *	benchmarks are run as usual.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+
+	/**	Persistence manager. */
+
+	private PersistenceManager pm;
+
+	/**	Search criteria. */
+
+	private SearchCriteria criteria;
+
+	/**	Corpus. */
+
+	private Corpus corpus;
+
+	/**	Spelling. */
+
+	private Spelling spelling;
+
+	/**	Collocate analysis with fixed settings. */
+
+	private static class CollocateRunner extends FindCollocates {
+		private CollocateRunner (Corpus corpus, Spelling spelling) {
+			analysisText = new WordCounter(corpus);
+			wordToAnalyze = spelling;
+			wordForm = WordForms.SPELLING;
+			leftSpan = 5;
+			rightSpan = 5;
+			cutoff = 2;
+			displayProgress = false;
+		}
+	}
+
+	/**	Opens the fixture database.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	@Setup
+	public void setup ()
+		throws Exception
+	{
+		String dbname = System.getProperty("bench.db");
+		if (dbname == null)
+			throw new IllegalStateException(
+				"No fixture database: set the bench.db property");
+		BuildUtils.initHibernate(dbname,
+			System.getProperty("bench.username", ""),
+			System.getProperty("bench.password", ""));
+		pm = PersistenceManager.getPM();
+		String corpusTag = System.getProperty("bench.corpus", "ege");
+		corpus = pm.getCorpusByTag(corpusTag);
+		if (corpus == null)
+			throw new IllegalStateException("No such corpus: " + corpusTag);
+		spelling = new Spelling(System.getProperty("bench.spelling", "love"),
+			TextParams.ROMAN);
+		criteria = new SearchCriteria(corpus, null, null, spelling,
+			Collator.PRIMARY);
+	}
+
+	/**	Closes the fixture database.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	@TearDown
+	public void tearDown ()
+		throws Exception
+	{
+		if (pm != null) PersistenceManager.closePM();
+	}
+
+	/**	Searches for the spelling.
+	 *
+	 *	@return		The search results.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	@Benchmark
+	public List search ()
+		throws Exception
+	{
+		pm.clear();
+		return criteria.search(pm.getSession());
+	}
+
+	/**	Finds the collocates of the spelling.
+	 *
+	 *	@return		The collocate analysis.
+	 */
+
+	@Benchmark
+	public FindCollocates findCollocates () {
+		pm.clear();
+		FindCollocates runner = new CollocateRunner(corpus, spelling);
+		runner.runAnalysis(null, null);
+		return runner;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,205 @@
+package edu.northwestern.at.wordhoard.bench;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.*;
+import java.util.*;
+
+import edu.northwestern.at.wordhoard.model.text.*;
+
+/**	A generated fixture corpus.
+ *
+ *	<p>The fixture is a vocabulary of made-up Latin-alphabet and Greek
+ *	spellings, with accented and capitalized forms, and a stream of word
+ *	occurrences drawn from it with a Zipf distribution, as in natural
+ *	text. A fixed random seed is used, so every run of every release
+ *	benchmarks the same data.
+ */
+
+public class Fixture {
+
+	/**	Random number seed. */
+
+	private static final long SEED = 20041101L;
+
+	/**	Latin-alphabet syllables. */
+
+	private static final String[] ROMAN_SYLLABLES = {
+		"ba", "be", "bi", "bo", "ca", "ce", "da", "de", "di", "fa", "ga",
+		"la", "le", "li", "lo", "ma", "me", "mi", "mo", "na", "ne", "no",
+		"pa", "pe", "ra", "re", "ri", "ro", "sa", "se", "si", "ta", "te",
+		"ti", "to", "va", "ve", "vi", "th", "qu", "\u00e6", "\u00e9",
+		"\u00f4", "\u00fc", "\u017f",
+	};
+
+	/**	Greek syllables, with polytonic accents and breathings. */
+
+	private static final String[] GREEK_SYLLABLES = {
+		"\u03bb\u03bf", "\u03b3\u03bf", "\u03bc\u03b7", "\u03bd\u03b9",
+		"\u03c4\u03bf", "\u03ba\u03b1", "\u03c0\u03b1", "\u03c3\u03b9",
+		"\u1f00\u03bd", "\u1f10\u03c0", "\u1f40\u03c1", "\u1f70\u03c2",
+		"\u1fc6\u03c2", "\u1fe6\u03bd", "\u1f51\u03c0", "\u03b8\u03b5",
+	};
+
+	/**	Vocabulary. */
+
+	private String[] vocabulary;
+
+	/**	Word occurrences, as indices into the vocabulary. */
+
+	private int[] occurrences;
+
+	/**	Creates a new fixture.
+	 *
+	 *	@param	vocabularySize		Number of distinct spellings.
+	 *
+	 *	@param	numWords			Number of word occurrences.
+	 */
+
+	public Fixture (int vocabularySize, int numWords) {
+		Random random = new Random(SEED);
+		HashSet seen = new HashSet();
+		vocabulary = new String[vocabularySize];
+		int n = 0;
+		while (n < vocabularySize) {
+			String[] syllables = random.nextInt(4) == 0 ?
+				GREEK_SYLLABLES : ROMAN_SYLLABLES;
+			int len = 1 + random.nextInt(4);
+			StringBuffer buf = new StringBuffer();
+			for (int i = 0; i < len; i++)
+				buf.append(syllables[random.nextInt(syllables.length)]);
+			String word = buf.toString();
+			if (random.nextInt(10) == 0)
+				word = Character.toUpperCase(word.charAt(0)) +
+					word.substring(1);
+			if (seen.add(word)) vocabulary[n++] = word;
+		}
+		double[] cumulative = new double[vocabularySize];
+		double total = 0;
+		for (int i = 0; i < vocabularySize; i++) {
+			total += 1.0 / (i + 1);
+			cumulative[i] = total;
+		}
+		occurrences = new int[numWords];
+		for (int i = 0; i < numWords; i++) {
+			int k = Arrays.binarySearch(cumulative,
+				random.nextDouble() * total);
+			if (k < 0) k = -k - 1;
+			occurrences[i] = Math.min(k, vocabularySize - 1);
+		}
+	}
+
+	/**	Gets the vocabulary.
+	 *
+	 *	@return		The distinct spellings, most frequent first.
+	 */
+
+	public String[] getVocabulary () {
+		return vocabulary;
+	}
+
+	/**	Gets the word occurrences.
+	 *
+	 *	@return		The spellings of the word occurrences, in text order.
+	 */
+
+	public String[] getWords () {
+		String[] result = new String[occurrences.length];
+		for (int i = 0; i < occurrences.length; i++)
+			result[i] = vocabulary[occurrences[i]];
+		return result;
+	}
+
+	/**	Gets word counts for a slice of the word occurrences.
+	 *
+	 *	@param	start		Index of first word occurrence.
+	 *
+	 *	@param	end			Index following last word occurrence.
+	 *
+	 *	@return				Map from spellings to Integer counts.
+	 */
+
+	public Map getCounts (int start, int end) {
+		HashMap result = new HashMap();
+		for (int i = start; i < end; i++) {
+			String word = vocabulary[occurrences[i]];
+			Integer count = (Integer)result.get(word);
+			result.put(word,
+				Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+		}
+		return result;
+	}
+
+	/**	Gets the fixture as a text.
+	 *
+	 *	@param	wordsPerLine	Number of words per line.
+	 *
+	 *	@return					Finalized text with one numbered line for
+	 *							each group of words.
+	 */
+
+	public Text getText (int wordsPerLine) {
+		Text text = new Text(true, false);
+		int lineNumber = 1;
+		for (int i = 0; i < occurrences.length; i += wordsPerLine) {
+			StringBuffer buf = new StringBuffer();
+			int end = Math.min(i + wordsPerLine, occurrences.length);
+			for (int j = i; j < end; j++) {
+				if (j > i) buf.append(' ');
+				buf.append(vocabulary[occurrences[j]]);
+			}
+			text.appendLine(buf.toString(), TextParams.ROMAN, lineNumber,
+				Integer.toString(lineNumber));
+			lineNumber++;
+		}
+		text.finalize();
+		return text;
+	}
+
+	/**	Serializes a text.
+	 *
+	 *	@param	text		Finalized text.
+	 *
+	 *	@return				The serialized text.
+	 *
+	 *	@throws	IOException	I/O error.
+	 */
+
+	public static byte[] serialize (Text text)
+		throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bos);
+		text.writeExternal(out);
+		out.close();
+		return bos.toByteArray();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,76 @@
+package edu.northwestern.at.wordhoard.bench;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import edu.northwestern.at.wordhoard.swing.calculator.cql.*;
+
+/**	Query translation benchmarks.
+ *
+ *	<p>Measures parsing Corpus Query Language queries and translating
+ *	them to HQL.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+	/**	CQL query. */
+
+	@Param({
+		"spe(love)",
+		"lem(love):pos(v)",
+		"spe(my);lem(\"love (n)\")",
+		"lem(love):!spe(loves);pos(n)|lem(heart)",
+	})
+	public String query;
+
+	/**	Parses the query and translates it to HQL.
+	 *
+	 *	@return		The HQL queries.
+	 *
+	 *	@throws	InvalidCQLQueryException	bad query.
+	 */
+
+	@Benchmark
+	public String[] getHQL ()
+		throws InvalidCQLQueryException
+	{
+		return new CQLQuery(query).getHQL();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,140 @@
+package edu.northwestern.at.wordhoard.bench;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.northwestern.at.wordhoard.model.text.*;
+
+/**	Text benchmarks.
+ *
+ *	<p>Measures insensitive spelling translation and text deserialization
+ *	over the generated fixture.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+
+	/**	Number of words in fixture text. */
+
+	@Param({"20000"})
+	public int numWords;
+
+	/**	Fixture vocabulary. */
+
+	private String[] vocabulary;
+
+	/**	Serialized fixture text. */
+
+	private byte[] serializedText;
+
+	/**	Creates the fixture.
+	 *
+	 *	@throws	IOException	I/O error.
+	 */
+
+	@Setup
+	public void setup ()
+		throws IOException
+	{
+		Fixture fixture = new Fixture(5000, numWords);
+		vocabulary = fixture.getVocabulary();
+		serializedText = Fixture.serialize(fixture.getText(10));
+	}
+
+	/**	Translates the vocabulary to insensitive form.
+	 *
+	 *	@param	bh		Blackhole.
+	 */
+
+	@Benchmark
+	public void translateToInsensitive (Blackhole bh) {
+		for (int i = 0; i < vocabulary.length; i++)
+			bh.consume(CharsetUtils.translateToInsensitive(vocabulary[i]));
+	}
+
+	/**	Deserializes the text.
+	 *
+	 *	@return		The text.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	@Benchmark
+	public Text readExternal ()
+		throws Exception
+	{
+		return readText();
+	}
+
+	/**	Deserializes the text and decodes all its lines.
+	 *
+	 *	@param	bh		Blackhole.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	@Benchmark
+	public void readExternalAllLines (Blackhole bh)
+		throws Exception
+	{
+		Text text = readText();
+		int numLines = text.getNumLines();
+		for (int i = 0; i < numLines; i++) bh.consume(text.getLine(i));
+	}
+
+	/**	Deserializes the text.
+	 *
+	 *	@return		The text.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	private Text readText ()
+		throws Exception
+	{
+		ObjectInputStream in = new ObjectInputStream(
+			new ByteArrayInputStream(serializedText));
+		Text text = new Text();
+		text.readExternal(in);
+		in.close();
+		return text;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
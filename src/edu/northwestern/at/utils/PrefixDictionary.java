@@ -0,0 +1,241 @@
+package edu.northwestern.at.utils;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+
+/**	A compact prefix dictionary.
+ *
+ *	<p>A prefix dictionary maps string keys to int values, and finds the
+ *	values of all the keys which start with a prefix, in increasing key
+ *	order. Each entry may also belong to a set of int groups, and searches
+ *	may be limited to the entries in one group.
+ *
+ *	<p>The keys are stored in sorted order, packed end to end in a single
+ *	character array, with no String object per key. The groups of each
+ *	entry are stored in compressed row form. A prefix search is a binary
+ *	search for the first key not less than the prefix followed by a scan
+ *	of the following keys, so no more than the requested number of
+ *	matches are ever examined, except for entries skipped because they
+ *	are not in the group.
+ *
+ *	<p>Prefix dictionaries are immutable, and thus thread-safe.
+ */
+
+public class PrefixDictionary {
+
+	/**	Key characters, for all keys in order. */
+
+	private char[] chars;
+
+	/**	Key offsets. Key i is chars[keyStart[i]] through
+	 *	chars[keyStart[i+1]-1].
+	 */
+
+	private int[] keyStart;
+
+	/**	Entry values. */
+
+	private int[] values;
+
+	/**	Group offsets. The groups of entry i are groups[groupStart[i]]
+	 *	through groups[groupStart[i+1]-1], in increasing order.
+	 */
+
+	private int[] groupStart;
+
+	/**	Groups. */
+
+	private int[] groups;
+
+	/**	Creates a new prefix dictionary.
+	 *
+	 *	<p>The arguments are parallel arrays. Pairs with the same key and
+	 *	value are merged into a single entry, belonging to all of their
+	 *	groups. Entries with the same key are ordered by value.
+	 *
+	 *	@param	keys		Keys.
+	 *
+	 *	@param	vals		Values.
+	 *
+	 *	@param	grps		Groups, or null if none. A negative group
+	 *						means none.
+	 */
+
+	public PrefixDictionary (final String[] keys, final int[] vals,
+		int[] grps)
+	{
+		int n = keys.length;
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) order[i] = Integer.valueOf(i);
+		Arrays.sort(order,
+			new Comparator() {
+				public int compare (Object o1, Object o2) {
+					int i1 = ((Integer)o1).intValue();
+					int i2 = ((Integer)o2).intValue();
+					int k = keys[i1].compareTo(keys[i2]);
+					if (k != 0) return k;
+					return vals[i1] < vals[i2] ? -1 :
+						(vals[i1] == vals[i2] ? 0 : 1);
+				}
+			}
+		);
+		int numEntries = 0;
+		int numChars = 0;
+		for (int i = 0; i < n; i++) {
+			int j = order[i].intValue();
+			if (i > 0) {
+				int p = order[i-1].intValue();
+				if (vals[p] == vals[j] && keys[p].equals(keys[j])) continue;
+			}
+			numEntries++;
+			numChars += keys[j].length();
+		}
+		chars = new char[numChars];
+		keyStart = new int[numEntries + 1];
+		values = new int[numEntries];
+		groupStart = new int[numEntries + 1];
+		int[] groupBuf = new int[n];
+		int numGroups = 0;
+		int entry = -1;
+		int charPos = 0;
+		for (int i = 0; i < n; i++) {
+			int j = order[i].intValue();
+			boolean same = false;
+			if (i > 0) {
+				int p = order[i-1].intValue();
+				same = vals[p] == vals[j] && keys[p].equals(keys[j]);
+			}
+			if (!same) {
+				entry++;
+				String key = keys[j];
+				key.getChars(0, key.length(), chars, charPos);
+				keyStart[entry] = charPos;
+				charPos += key.length();
+				values[entry] = vals[j];
+				groupStart[entry] = numGroups;
+			}
+			int group = grps == null ? -1 : grps[j];
+			if (group >= 0) groupBuf[numGroups++] = group;
+		}
+		keyStart[numEntries] = charPos;
+		groupStart[numEntries] = numGroups;
+		groups = new int[numGroups];
+		System.arraycopy(groupBuf, 0, groups, 0, numGroups);
+		for (int i = 0; i < numEntries; i++) {
+			Arrays.sort(groups, groupStart[i], groupStart[i+1]);
+		}
+	}
+
+	/**	Gets the number of entries.
+	 *
+	 *	@return		The number of entries.
+	 */
+
+	public int size () {
+		return values.length;
+	}
+
+	/**	Compares the start of an entry's key with a prefix.
+	 *
+	 *	@param	entry		Entry index.
+	 *
+	 *	@param	prefix		Prefix.
+	 *
+	 *	@return				Negative, zero, or positive as the key is less
+	 *						than, starts with, or is greater than the
+	 *						prefix.
+	 */
+
+	private int comparePrefix (int entry, String prefix) {
+		int start = keyStart[entry];
+		int len = keyStart[entry+1] - start;
+		int n = Math.min(len, prefix.length());
+		for (int i = 0; i < n; i++) {
+			int k = chars[start + i] - prefix.charAt(i);
+			if (k != 0) return k;
+		}
+		return len < prefix.length() ? -1 : 0;
+	}
+
+	/**	Returns true if an entry belongs to a group.
+	 *
+	 *	@param	entry		Entry index.
+	 *
+	 *	@param	group		Group.
+	 *
+	 *	@return				True if the entry belongs to the group.
+	 */
+
+	private boolean inGroup (int entry, int group) {
+		return Arrays.binarySearch(groups, groupStart[entry],
+			groupStart[entry+1], group) >= 0;
+	}
+
+	/**	Finds the values of keys which start with a prefix.
+	 *
+	 *	@param	prefix		Prefix.
+	 *
+	 *	@param	group		Group, or a negative number to search all
+	 *						entries.
+	 *
+	 *	@param	max			Maximum number of values to return, or 0 for
+	 *						no limit.
+	 *
+	 *	@return				The values of the first matching entries, in
+	 *						increasing order by key.
+	 */
+
+	public int[] find (String prefix, int group, int max) {
+		int lo = 0;
+		int hi = values.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (comparePrefix(mid, prefix) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		if (max <= 0) max = Integer.MAX_VALUE;
+		int[] result = new int[Math.min(max, 16)];
+		int n = 0;
+		for (int i = lo; i < values.length && n < max; i++) {
+			if (comparePrefix(i, prefix) != 0) break;
+			if (group >= 0 && !inGroup(i, group)) continue;
+			if (n == result.length)
+				result = Arrays.copyOf(result,
+					(int)Math.min((long)max, 2L * n));
+			result[n++] = values[i];
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,528 @@
+package edu.northwestern.at.utils.corpuslinguistics;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**	Document similarity measures.
+ *
+ *	<p>
+ *	Computes five similarity measures between documents represented
+ *	as {@link TermVector}s.
+ *	</p>
+ *
+ *	<ul>
+ *		<li>Cosine similarity of the term weights.</li>
+ *		<li>Cosine similarity of the binary term occurrences.</li>
+ *		<li>Dice coefficient of the binary term occurrences.</li>
+ *		<li>Jaccard coefficient of the binary term occurrences.</li>
+ *		<li>Overlap coefficient of the binary term occurrences.</li>
+ *	</ul>
+ *
+ *	<p>
+ *	All five measures depend only on the sum of cross products of the
+ *	weights, the number of terms in common, and the sums of squares and
+ *	sizes of the two vectors.  One merge pass over the sorted terms of
+ *	the two vectors finds the first two, so all five measures are
+ *	computed together without building scaled or binary copies of
+ *	the vectors.  Scaling either vector does not change the cosine,
+ *	so there is no need to convert counts to relative frequencies.
+ *	</p>
+ *
+ *	<p>
+ *	The matrix methods compare many documents at once using a pool
+ *	of threads.  The pairs method compares only selected pairs of
+ *	documents and reports its progress as it goes.
+ *	</p>
+ */
+
+public class DocumentSimilarity
+{
+	/**	Index of the cosine similarity in a result array. */
+
+	public static final int COSINE			= 0;
+
+	/**	Index of the binary cosine similarity in a result array. */
+
+	public static final int BINARYCOSINE	= 1;
+
+	/**	Index of the binary Dice coefficient in a result array. */
+
+	public static final int BINARYDICE		= 2;
+
+	/**	Index of the binary Jaccard coefficient in a result array. */
+
+	public static final int BINARYJACCARD	= 3;
+
+	/**	Index of the binary overlap coefficient in a result array. */
+
+	public static final int BINARYOVERLAP	= 4;
+
+	/**	Number of similarity measures. */
+
+	public static final int MEASURES		= 5;
+
+	/**	Don't allow instantiation, do allow overrides. */
+
+	protected DocumentSimilarity()
+	{
+	}
+
+	/**	Compute the similarity measures for two documents.
+	 *
+	 *	@param	vector1		First document.
+	 *	@param	vector2		Second document.
+	 *
+	 *	@return				Array of {@link #MEASURES} doubles indexed
+	 *						by {@link #COSINE} through
+	 *						{@link #BINARYOVERLAP}.
+	 *
+	 *	<p>
+	 *	Measures are NaN when a document has no terms.
+	 *	</p>
+	 */
+
+	public static double[] computeSimilarities
+	(
+		TermVector vector1 ,
+		TermVector vector2
+	)
+	{
+		int[] terms1		= vector1.terms;
+		int[] terms2		= vector2.terms;
+		double[] weights1	= vector1.weights;
+		double[] weights2	= vector2.weights;
+
+		int n1				= terms1.length;
+		int n2				= terms2.length;
+
+								//	Merge the sorted terms.
+
+		double sumOfCrossProducts	= 0.0D;
+		int common					= 0;
+
+		int i	= 0;
+		int j	= 0;
+
+		while ( ( i < n1 ) && ( j < n2 ) )
+		{
+			int term1	= terms1[ i ];
+			int term2	= terms2[ j ];
+
+			if ( term1 < term2 )
+			{
+				i++;
+			}
+			else if ( term1 > term2 )
+			{
+				j++;
+			}
+			else
+			{
+				sumOfCrossProducts	+= weights1[ i ] * weights2[ j ];
+				common++;
+
+				i++;
+				j++;
+			}
+		}
+								//	For binary occurrences the sum of
+								//	squares is the number of terms and
+								//	the sum of cross products is the
+								//	number of terms in common.
+
+		double size1		= n1;
+		double size2		= n2;
+		double inCommon		= common;
+
+		double[] results	= new double[ MEASURES ];
+
+		results[ COSINE ]			=
+			sumOfCrossProducts /
+				Math.sqrt( vector1.sumOfSquares * vector2.sumOfSquares );
+
+		results[ BINARYCOSINE ]		= inCommon / Math.sqrt( size1 * size2 );
+
+		results[ BINARYDICE ]		= ( 2.0D * inCommon ) / ( size1 + size2 );
+
+		results[ BINARYJACCARD ]	=
+			inCommon / ( size1 + size2 - inCommon );
+
+		results[ BINARYOVERLAP ]	= inCommon / Math.min( size1 , size2 );
+
+		return results;
+	}
+
+	/**	Compute the similarity measures for each pair of documents
+	 *	from two lists.
+	 *
+	 *	@param	rows		First list of documents.
+	 *	@param	columns		Second list of documents.
+	 *	@param	numThreads	Number of threads to use.  With one thread
+	 *						the measures are computed in the calling
+	 *						thread.
+	 *
+	 *	@return				Array indexed by row document and column
+	 *						document of similarity measure arrays as
+	 *						returned by {@link #computeSimilarities(
+	 *						TermVector , TermVector )}.
+	 *
+	 *	@throws	RuntimeException
+	 *						if the computation is interrupted.
+	 */
+
+	public static double[][][] computeSimilarities
+	(
+		final TermVector[] rows ,
+		final TermVector[] columns ,
+		int numThreads
+	)
+	{
+		final double[][][] results	= new double[ rows.length ][][];
+
+		runRows
+		(
+			rows.length ,
+			numThreads ,
+			new RowTask()
+			{
+				public void run( int row )
+				{
+					double[][] rowResults	= new double[ columns.length ][];
+
+					for ( int column = 0 ; column < columns.length ; column++ )
+					{
+						rowResults[ column ]	=
+							computeSimilarities
+							(
+								rows[ row ] ,
+								columns[ column ]
+							);
+					}
+
+					results[ row ]	= rowResults;
+				}
+			}
+		);
+
+		return results;
+	}
+
+	/**	Compute the similarity measures for selected pairs of documents
+	 *	from two lists.
+	 *
+	 *	@param	rows		First list of documents.
+	 *	@param	columns		Second list of documents.
+	 *	@param	pairs		The pairs to compare.  Each entry is a two
+	 *						element array holding the index of a
+	 *						document in rows and the index of a
+	 *						document in columns.
+	 *	@param	numThreads	Number of threads to use.  With one thread
+	 *						the measures are computed in the calling
+	 *						thread.
+	 *	@param	listener	Progress listener.  May be null.
+	 *
+	 *	@return				Array indexed by pair of similarity measure
+	 *						arrays as returned by {@link
+	 *						#computeSimilarities( TermVector ,
+	 *						TermVector )}.  If the listener stops the
+	 *						computation, the entries for pairs not
+	 *						computed are null.
+	 *
+	 *	@throws	RuntimeException
+	 *						if the computation is interrupted.
+	 *
+	 *	<p>
+	 *	The listener is called from the computing threads about a
+	 *	hundred times in all, and once more when the last pair is done.
+	 *	</p>
+	 */
+
+	public static double[][] computeSimilarities
+	(
+		final TermVector[] rows ,
+		final TermVector[] columns ,
+		final int[][] pairs ,
+		int numThreads ,
+		final ProgressListener listener
+	)
+	{
+		final double[][] results	= new double[ pairs.length ][];
+
+		final int reportingInterval	= Math.max( 1 , pairs.length / 100 );
+		final AtomicInteger pairsDone	= new AtomicInteger();
+		final AtomicBoolean stopped		= new AtomicBoolean();
+
+		runRows
+		(
+			pairs.length ,
+			numThreads ,
+			new RowTask()
+			{
+				public void run( int pair )
+				{
+					if ( stopped.get() ) return;
+
+					results[ pair ]	=
+						computeSimilarities
+						(
+							rows[ pairs[ pair ][ 0 ] ] ,
+							columns[ pairs[ pair ][ 1 ] ]
+						);
+
+					int done	= pairsDone.incrementAndGet();
+
+					if	(	( listener != null ) &&
+							(	( ( done % reportingInterval ) == 0 ) ||
+								( done == pairs.length )
+							) &&
+							listener.progress( done )
+						)
+					{
+						stopped.set( true );
+					}
+				}
+			}
+		);
+
+		return results;
+	}
+
+	/**	Compute the similarity measures for all pairs of documents.
+	 *
+	 *	@param	documents	The documents.
+	 *	@param	numThreads	Number of threads to use.  With one thread
+	 *						the measures are computed in the calling
+	 *						thread.
+	 *
+	 *	@return				Square array indexed by two documents of
+	 *						similarity measure arrays as returned by
+	 *						{@link #computeSimilarities( TermVector ,
+	 *						TermVector )}.
+	 *
+	 *	@throws	RuntimeException
+	 *						if the computation is interrupted.
+	 *
+	 *	<p>
+	 *	The measures are symmetric, so each pair is computed once.
+	 *	</p>
+	 */
+
+	public static double[][][] computeSimilarities
+	(
+		final TermVector[] documents ,
+		int numThreads
+	)
+	{
+		final int n					= documents.length;
+		final double[][][] results	= new double[ n ][ n ][];
+
+		runRows
+		(
+			n ,
+			numThreads ,
+			new RowTask()
+			{
+				public void run( int row )
+				{
+					for ( int column = row ; column < n ; column++ )
+					{
+						results[ row ][ column ]	=
+							computeSimilarities
+							(
+								documents[ row ] ,
+								documents[ column ]
+							);
+					}
+				}
+			}
+		);
+								//	Fill in the lower triangle.
+
+		for ( int row = 1 ; row < n ; row++ )
+		{
+			for ( int column = 0 ; column < row ; column++ )
+			{
+				results[ row ][ column ]	=
+					(double[])results[ column ][ row ].clone();
+			}
+		}
+
+		return results;
+	}
+
+	/**	Extract the matrix of one similarity measure.
+	 *
+	 *	@param	similarities	Array of similarity measure arrays as
+	 *							returned by one of the matrix
+	 *							computeSimilarities methods.
+	 *	@param	measure			The measure, {@link #COSINE} through
+	 *							{@link #BINARYOVERLAP}.
+	 *
+	 *	@return					Matrix of the measure's values,
+	 *							suitable for clustering.
+	 */
+
+	public static double[][] getMeasure
+	(
+		double[][][] similarities ,
+		int measure
+	)
+	{
+		double[][] result	= new double[ similarities.length ][];
+
+		for ( int row = 0 ; row < similarities.length ; row++ )
+		{
+			result[ row ]	= new double[ similarities[ row ].length ];
+
+			for ( int column = 0 ; column < result[ row ].length ; column++ )
+			{
+				result[ row ][ column ]	=
+					similarities[ row ][ column ][ measure ];
+			}
+		}
+
+		return result;
+	}
+
+	/**	Receives progress reports from a similarity computation. */
+
+	public interface ProgressListener
+	{
+		/**	Report progress.
+		 *
+		 *	@param	pairsDone	Number of pairs compared so far.
+		 *
+		 *	@return				true to stop the computation.
+		 *
+		 *	<p>
+		 *	May be called from several threads at once.
+		 *	</p>
+		 */
+
+		public boolean progress( int pairsDone );
+	}
+
+	/**	Work done for one row of a similarity matrix. */
+
+	protected interface RowTask
+	{
+		/**	Compute one row.
+		 *
+		 *	@param	row		The row.
+		 */
+
+		public void run( int row );
+	}
+
+	/**	Run a task for each row.
+	 *
+	 *	@param	rows		Number of rows.
+	 *	@param	numThreads	Number of threads.
+	 *	@param	task		The task.
+	 *
+	 *	@throws	RuntimeException
+	 *						if the task fails or is interrupted.
+	 *
+	 *	<p>
+	 *	Each thread takes the next row not yet started, so rows which
+	 *	take different times are balanced across the threads.
+	 *	</p>
+	 */
+
+	protected static void runRows
+	(
+		final int rows ,
+		int numThreads ,
+		final RowTask task
+	)
+	{
+		numThreads	= Math.min( numThreads , rows );
+
+		if ( numThreads <= 1 )
+		{
+			for ( int row = 0 ; row < rows ; row++ )
+			{
+				task.run( row );
+			}
+
+			return;
+		}
+
+		final AtomicInteger nextRow	= new AtomicInteger();
+
+		ExecutorService pool	= Executors.newFixedThreadPool( numThreads );
+		List futures			= new ArrayList();
+
+		try
+		{
+			for ( int i = 0 ; i < numThreads ; i++ )
+			{
+				futures.add
+				(
+					pool.submit
+					(
+						new Runnable()
+						{
+							public void run()
+							{
+								int row;
+
+								while ( ( row = nextRow.getAndIncrement() ) < rows )
+								{
+									task.run( row );
+								}
+							}
+						}
+					)
+				);
+			}
+
+			for ( int i = 0 ; i < futures.size() ; i++ )
+			{
+				((Future)futures.get( i )).get();
+			}
+		}
+		catch ( ExecutionException e )
+		{
+			throw new RuntimeException( e.getCause() );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,227 @@
+package edu.northwestern.at.utils.corpuslinguistics;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**	Counts ngrams in many texts in parallel.
+ *
+ *	<p>
+ *	Each text passed to {@link #addText} is counted by a pool thread.
+ *	Each pool thread counts into its own {@link NGramTable}, so no
+ *	locking is needed while counting.  The tables share one
+ *	{@link TokenDictionary} and are merged by {@link #finish}.
+ *	</p>
+ *
+ *	<p>
+ *	Texts should be added from a single thread.
+ *	</p>
+ */
+
+public class NGramCounter
+{
+	/**	Dictionary shared by all the tables. */
+
+	protected TokenDictionary dictionary	= new TokenDictionary();
+
+	/**	Maximum ngram length. */
+
+	protected int maxLength;
+
+	/**	Thread pool, or null to count in the calling thread. */
+
+	protected ExecutorService pool;
+
+	/**	Table for each pool thread. */
+
+	protected ThreadLocal threadTables;
+
+	/**	All the tables created so far. */
+
+	protected List tables	= Collections.synchronizedList( new ArrayList() );
+
+	/**	Futures for the texts submitted to the pool. */
+
+	protected List futures	= new ArrayList();
+
+	/**	Create an ngram counter.
+	 *
+	 *	@param	maxLength	Maximum ngram length to count.
+	 *	@param	numThreads	Number of counting threads.  With one thread
+	 *						texts are counted in the calling thread.
+	 */
+
+	public NGramCounter( int maxLength , int numThreads )
+	{
+		this.maxLength	= maxLength;
+
+		threadTables	=
+			new ThreadLocal()
+			{
+				protected Object initialValue()
+				{
+					NGramTable table	=
+						new NGramTable(
+							dictionary , NGramCounter.this.maxLength );
+
+					tables.add( table );
+
+					return table;
+				}
+			};
+
+		if ( numThreads > 1 )
+		{
+			pool	= Executors.newFixedThreadPool( numThreads );
+		}
+	}
+
+	/**	Create an ngram counter using one thread per processor.
+	 *
+	 *	@param	maxLength	Maximum ngram length to count.
+	 */
+
+	public NGramCounter( int maxLength )
+	{
+		this( maxLength , Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**	Count the ngrams in a text.
+	 *
+	 *	@param	words	Words of the text.  The array must not be
+	 *					modified afterwards.
+	 *
+	 *	<p>
+	 *	With a thread pool the text is counted later.
+	 *	</p>
+	 */
+
+	public void addText( final String[] words )
+	{
+		Runnable task	=
+			new Runnable()
+			{
+				public void run()
+				{
+					((NGramTable)threadTables.get()).addText(
+						dictionary.intern( words ) );
+				}
+			};
+
+		if ( pool == null )
+		{
+			task.run();
+		}
+		else
+		{
+			futures.add( pool.submit( task ) );
+		}
+	}
+
+	/**	Wait for counting to finish and merge the counts.
+	 *
+	 *	@return		Table with the counts for all the texts,
+	 *				indexed for extension lookups.
+	 *
+	 *	@throws	RuntimeException
+	 *				if counting a text failed or was interrupted.
+	 */
+
+	public NGramTable finish()
+	{
+		if ( pool != null )
+		{
+			try
+			{
+				for ( int i = 0 ; i < futures.size() ; i++ )
+				{
+					((Future)futures.get( i )).get();
+				}
+			}
+			catch ( ExecutionException e )
+			{
+				throw new RuntimeException( e.getCause() );
+			}
+			catch ( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+				throw new RuntimeException( e );
+			}
+			finally
+			{
+				pool.shutdownNow();
+				futures.clear();
+			}
+		}
+
+		NGramTable result;
+
+		synchronized ( tables )
+		{
+			if ( tables.size() == 0 )
+			{
+				result	= new NGramTable( dictionary , maxLength );
+			}
+			else
+			{
+				result	= (NGramTable)tables.get( 0 );
+
+				for ( int i = 1 ; i < tables.size() ; i++ )
+				{
+					result.merge( (NGramTable)tables.get( i ) );
+				}
+			}
+
+			tables.clear();
+		}
+
+		result.buildIndex();
+
+		return result;
+	}
+
+	/**	Abandon counting.
+	 *
+	 *	<p>
+	 *	Stops the counting threads and discards the counts.
+	 *	</p>
+	 */
+
+	public void cancel()
+	{
+		if ( pool != null )
+		{
+			pool.shutdownNow();
+		}
+
+		futures.clear();
+		tables.clear();
+	}
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -227,40 +227,36 @@ public class NGramExtractor
 	/**	Merge ngrams from another NGramExtractor.
 	 *
 	 *	@param	extractor	Merge ngrams from another extractor.
+	 *
+	 *	<p>
+	 *	The counts from the other extractor are added to the counts
+	 *	in this one.  For many texts, {@link NGramCounter} is faster.
+	 *	</p>
 	 */
 
 	public void mergeNGramExtractor( NGramExtractor extractor )
 	{
 		SortedMap otherMap	= extractor.getNGramMap();
 
-		for	(	Iterator iterator = otherMap.keySet().iterator() ;
+		for	(	Iterator iterator = otherMap.entrySet().iterator() ;
 				iterator.hasNext() ; )
 		{
-			String nGramString	= (String)iterator.next();
+			Map.Entry entry		= (Map.Entry)iterator.next();
+			String nGramString	= (String)entry.getKey();
+			int otherFreq		= ((Integer)entry.getValue()).intValue();
 
-			if ( nGramCounts.containsKey( nGramString ) )
-			{
-				int freq	=
-					((Integer)nGramCounts.get( nGramString )).intValue();
-
-				freq++;
+			Integer freq		= (Integer)nGramCounts.get( nGramString );
 
-				nGramCounts.put( nGramString , Integer.valueOf( freq ) );
-			}
-			else
+			if ( freq != null )
 			{
-				nGramCounts.put( nGramString , Integer.valueOf( 1 ) );
+				otherFreq	+= freq.intValue();
 			}
-		}
-								//	Compute total ngram count.
-		numberOfNGrams	= 0;
 
-		for	(	Iterator iterator = nGramCounts.keySet().iterator() ;
-				iterator.hasNext() ; )
-		{
-			Integer count	= (Integer)nGramCounts.get( iterator.next() );
-			numberOfNGrams	+= count.intValue();
+			nGramCounts.put( nGramString , Integer.valueOf( otherFreq ) );
 		}
+								//	Update total ngram count.
+
+		numberOfNGrams	+= extractor.getNumberOfNGrams();
 	}
 
 	/**	Return count for a specific ngram.
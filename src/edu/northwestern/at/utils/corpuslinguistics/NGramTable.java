@@ -0,0 +1,658 @@
+package edu.northwestern.at.utils.corpuslinguistics;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+
+import edu.northwestern.at.utils.intcollections.*;
+
+/**	Counts ngrams of several lengths as packed integers.
+ *
+ *	<p>
+ *	Texts are given as arrays of token ids from a
+ *	{@link TokenDictionary}.  Every ngram of length one through the
+ *	maximum length is counted at each position in a text.
+ *	</p>
+ *
+ *	<p>
+ *	The distinct ngrams of each length are numbered consecutively
+ *	from zero.  A unigram is keyed by its token id.  A longer ngram is
+ *	keyed by a long holding the number of its prefix (the ngram
+ *	without its last token) in the high 32 bits and its last token
+ *	id in the low 32 bits.  Keys are mapped to numbers with open
+ *	addressing primitive hash tables, one per length, so counting
+ *	allocates no objects per ngram and any ngram length fits in a key.
+ *	String forms are made only on request.
+ *	</p>
+ *
+ *	<p>
+ *	Tables filled by different threads from the same dictionary may
+ *	be combined with {@link #merge}.  Once counting is done,
+ *	{@link #buildIndex} links each ngram to the longer ngrams which
+ *	extend it on the left and on the right.
+ *	</p>
+ *
+ *	<p>
+ *	This class is not thread-safe.
+ *	</p>
+ */
+
+public class NGramTable
+{
+	/**	Dictionary of the token ids. */
+
+	protected TokenDictionary dictionary;
+
+	/**	Maximum ngram length. */
+
+	protected int maxLength;
+
+	/**	Map from key to ( number + 1 ), indexed by length. */
+
+	protected LongIntHashMap[] numbers;
+
+	/**	Keys indexed by length and number. */
+
+	protected long[][] keys;
+
+	/**	Counts indexed by length and number. */
+
+	protected int[][] counts;
+
+	/**	Number of distinct ngrams of each length. */
+
+	protected int[] sizes;
+
+	/**	Total count of ngrams of each length. */
+
+	protected long[] totals;
+
+	/**	Suffix numbers indexed by length and number.
+	 *	Null until the index is built.
+	 */
+
+	protected int[][] suffixes;
+
+	/**	Right extensions grouped by prefix number, indexed by
+	 *	length of the prefix.  Offsets into rightExtensions.
+	 */
+
+	protected int[][] rightStarts;
+
+	/**	Numbers of right extensions, grouped by prefix. */
+
+	protected int[][] rightExtensions;
+
+	/**	Left extensions grouped by suffix number, indexed by
+	 *	length of the suffix.  Offsets into leftExtensions.
+	 */
+
+	protected int[][] leftStarts;
+
+	/**	Numbers of left extensions, grouped by suffix. */
+
+	protected int[][] leftExtensions;
+
+	/**	Create an empty ngram table.
+	 *
+	 *	@param	dictionary	Dictionary of the token ids.
+	 *	@param	maxLength	Maximum ngram length to count.
+	 */
+
+	public NGramTable( TokenDictionary dictionary , int maxLength )
+	{
+		if ( maxLength < 1 )
+		{
+			throw new IllegalArgumentException(
+				"Maximum ngram length must be positive" );
+		}
+
+		this.dictionary	= dictionary;
+		this.maxLength	= maxLength;
+
+		numbers			= new LongIntHashMap[ maxLength + 1 ];
+		keys			= new long[ maxLength + 1 ][];
+		counts			= new int[ maxLength + 1 ][];
+		sizes			= new int[ maxLength + 1 ];
+		totals			= new long[ maxLength + 1 ];
+
+		for ( int length = 1 ; length <= maxLength ; length++ )
+		{
+			numbers[ length ]	= new LongIntHashMap( 1024 );
+			keys[ length ]		= new long[ 1024 ];
+			counts[ length ]	= new int[ 1024 ];
+		}
+	}
+
+	/**	Pack a prefix number and a token id into a key.
+	 *
+	 *	@param	prefix	Number of the prefix ngram.
+	 *	@param	token	Id of the last token.
+	 *
+	 *	@return			The key.
+	 */
+
+	protected static long pack( int prefix , int token )
+	{
+		return ( (long)prefix << 32 ) | ( token & 0xffffffffL );
+	}
+
+	/**	Get the number for a key, adding the key if necessary.
+	 *
+	 *	@param	length	Ngram length.
+	 *	@param	key		Ngram key.
+	 *
+	 *	@return			The ngram number.
+	 */
+
+	protected int add( int length , long key )
+	{
+		LongIntHashMap map	= numbers[ length ];
+
+		int number	= map.get( key ) - 1;
+
+		if ( number < 0 )
+		{
+			number	= sizes[ length ]++;
+
+			map.put( key , number + 1 );
+
+			if ( number == keys[ length ].length )
+			{
+				keys[ length ]		=
+					Arrays.copyOf( keys[ length ] , 2 * number );
+
+				counts[ length ]	=
+					Arrays.copyOf( counts[ length ] , 2 * number );
+			}
+
+			keys[ length ][ number ]	= key;
+		}
+
+		return number;
+	}
+
+	/**	Count the ngrams in a text.
+	 *
+	 *	@param	text	Token ids of the text.
+	 */
+
+	public void addText( int[] text )
+	{
+		for ( int i = 0 ; i < text.length ; i++ )
+		{
+			int prefix	= -1;
+
+			for	(	int length = 1 ;
+					( length <= maxLength ) && ( i + length <= text.length ) ;
+					length++
+				)
+			{
+				int token	= text[ i + length - 1 ];
+
+				long key	=
+					( length == 1 ) ? token : pack( prefix , token );
+
+				int number	= add( length , key );
+
+				counts[ length ][ number ]++;
+				totals[ length ]++;
+
+				prefix		= number;
+			}
+		}
+
+		suffixes	= null;
+	}
+
+	/**	Add the counts from another table.
+	 *
+	 *	@param	other	Table to merge.  It must use the same
+	 *					dictionary and maximum length.
+	 *
+	 *	<p>
+	 *	The other table's ngram numbers are mapped to this
+	 *	table's numbers one length at a time, so each prefix
+	 *	is mapped before the ngrams which extend it.
+	 *	</p>
+	 */
+
+	public void merge( NGramTable other )
+	{
+		if	(	( other.dictionary != dictionary ) ||
+				( other.maxLength != maxLength ) )
+		{
+			throw new IllegalArgumentException(
+				"Ngram tables do not match" );
+		}
+
+		int[] prefixMap	= null;
+
+		for ( int length = 1 ; length <= maxLength ; length++ )
+		{
+			int[] map	= new int[ other.sizes[ length ] ];
+
+			for ( int i = 0 ; i < map.length ; i++ )
+			{
+				long key	= other.keys[ length ][ i ];
+
+				if ( length > 1 )
+				{
+					key	=
+						pack(
+							prefixMap[ (int)( key >>> 32 ) ] ,
+							(int)key );
+				}
+
+				int number	= add( length , key );
+
+				counts[ length ][ number ]	+= other.counts[ length ][ i ];
+				map[ i ]					= number;
+			}
+
+			totals[ length ]	+= other.totals[ length ];
+			prefixMap			= map;
+		}
+
+		suffixes	= null;
+	}
+
+	/**	Get the dictionary of the token ids.
+	 *
+	 *	@return		The dictionary.
+	 */
+
+	public TokenDictionary getDictionary()
+	{
+		return dictionary;
+	}
+
+	/**	Get the maximum ngram length.
+	 *
+	 *	@return		The maximum ngram length.
+	 */
+
+	public int getMaxLength()
+	{
+		return maxLength;
+	}
+
+	/**	Get the number of distinct ngrams of a given length.
+	 *
+	 *	@param	length	Ngram length.
+	 *
+	 *	@return			Number of distinct ngrams.  The ngrams are
+	 *					numbered from 0 through this number - 1.
+	 */
+
+	public int size( int length )
+	{
+		return sizes[ length ];
+	}
+
+	/**	Get the total count of ngrams of a given length.
+	 *
+	 *	@param	length	Ngram length.
+	 *
+	 *	@return			Sum of the counts of all ngrams of the length.
+	 */
+
+	public long getTotal( int length )
+	{
+		return totals[ length ];
+	}
+
+	/**	Get the count of an ngram.
+	 *
+	 *	@param	length	Ngram length.
+	 *	@param	number	Ngram number, or -1 .
+	 *
+	 *	@return			The count, or 0 for number -1 .
+	 */
+
+	public int getCount( int length , int number )
+	{
+		return ( number < 0 ) ? 0 : counts[ length ][ number ];
+	}
+
+	/**	Find an ngram.
+	 *
+	 *	@param	text	Token ids.
+	 *	@param	start	Index in text of the first token.
+	 *	@param	length	Ngram length.
+	 *
+	 *	@return			The ngram number, or -1 if the ngram
+	 *					was not counted.
+	 */
+
+	public int find( int[] text , int start , int length )
+	{
+		int number	= numbers[ 1 ].get( text[ start ] ) - 1;
+
+		for ( int i = 1 ; ( i < length ) && ( number >= 0 ) ; i++ )
+		{
+			number	=
+				numbers[ i + 1 ].get(
+					pack( number , text[ start + i ] ) ) - 1;
+		}
+
+		return number;
+	}
+
+	/**	Find an ngram.
+	 *
+	 *	@param	words	Token strings.
+	 *
+	 *	@return			The ngram number, or -1 if the ngram
+	 *					was not counted.
+	 */
+
+	public int find( String[] words )
+	{
+		if ( ( words.length < 1 ) || ( words.length > maxLength ) ) return -1;
+
+		int[] text	= new int[ words.length ];
+
+		for ( int i = 0 ; i < words.length ; i++ )
+		{
+			text[ i ]	= dictionary.getId( words[ i ] );
+
+			if ( text[ i ] < 0 ) return -1;
+		}
+
+		return find( text , 0 , text.length );
+	}
+
+	/**	Get the last token of an ngram.
+	 *
+	 *	@param	length	Ngram length.
+	 *	@param	number	Ngram number.
+	 *
+	 *	@return			Id of the last token.
+	 */
+
+	public int getLastToken( int length , int number )
+	{
+		return (int)keys[ length ][ number ];
+	}
+
+	/**	Get the prefix of an ngram.
+	 *
+	 *	@param	length	Ngram length, at least 2 .
+	 *	@param	number	Ngram number.
+	 *
+	 *	@return			Number of the ngram of length - 1
+	 *					made of all but the last token.
+	 */
+
+	public int getPrefix( int length , int number )
+	{
+		return (int)( keys[ length ][ number ] >>> 32 );
+	}
+
+	/**	Get the suffix of an ngram.
+	 *
+	 *	@param	length	Ngram length, at least 2 .
+	 *	@param	number	Ngram number.
+	 *
+	 *	@return			Number of the ngram of length - 1
+	 *					made of all but the first token.
+	 */
+
+	public int getSuffix( int length , int number )
+	{
+		buildIndex();
+
+		return suffixes[ length ][ number ];
+	}
+
+	/**	Get the tokens of an ngram.
+	 *
+	 *	@param	length	Ngram length.
+	 *	@param	number	Ngram number.
+	 *
+	 *	@return			Token ids of the ngram.
+	 */
+
+	public int[] getTokens( int length , int number )
+	{
+		int[] result	= new int[ length ];
+
+		for ( int i = length ; i > 1 ; i-- )
+		{
+			long key		= keys[ i ][ number ];
+
+			result[ i - 1 ]	= (int)key;
+			number			= (int)( key >>> 32 );
+		}
+
+		result[ 0 ]	= (int)keys[ 1 ][ number ];
+
+		return result;
+	}
+
+	/**	Get the words of an ngram.
+	 *
+	 *	@param	length	Ngram length.
+	 *	@param	number	Ngram number.
+	 *
+	 *	@return			Token strings of the ngram.
+	 */
+
+	public String[] getWords( int length , int number )
+	{
+		int[] tokens		= getTokens( length , number );
+		String[] result		= new String[ length ];
+
+		for ( int i = 0 ; i < length ; i++ )
+		{
+			result[ i ]	= dictionary.getToken( tokens[ i ] );
+		}
+
+		return result;
+	}
+
+	/**	Get the string form of an ngram.
+	 *
+	 *	@param	length	Ngram length.
+	 *	@param	number	Ngram number.
+	 *
+	 *	@return			The ngram's words separated by tab characters,
+	 *					as in {@link NGramExtractor}.
+	 */
+
+	public String getString( int length , int number )
+	{
+		String[] words		= getWords( length , number );
+		StringBuffer sb		= new StringBuffer( length * 10 );
+
+		for ( int i = 0 ; i < words.length ; i++ )
+		{
+			if ( i > 0 ) sb.append( "\t" );
+			sb.append( words[ i ] );
+		}
+
+		return sb.toString();
+	}
+
+	/**	Get the ngrams which extend an ngram by one token on the right.
+	 *
+	 *	@param	length	Ngram length, less than the maximum length.
+	 *	@param	number	Ngram number.
+	 *
+	 *	@return			Numbers of the ngrams of length + 1
+	 *					whose prefix is the given ngram.
+	 */
+
+	public int[] getRightExtensions( int length , int number )
+	{
+		buildIndex();
+
+		return
+			Arrays.copyOfRange
+			(
+				rightExtensions[ length ] ,
+				rightStarts[ length ][ number ] ,
+				rightStarts[ length ][ number + 1 ]
+			);
+	}
+
+	/**	Get the ngrams which extend an ngram by one token on the left.
+	 *
+	 *	@param	length	Ngram length, less than the maximum length.
+	 *	@param	number	Ngram number.
+	 *
+	 *	@return			Numbers of the ngrams of length + 1
+	 *					whose suffix is the given ngram.
+	 */
+
+	public int[] getLeftExtensions( int length , int number )
+	{
+		buildIndex();
+
+		return
+			Arrays.copyOfRange
+			(
+				leftExtensions[ length ] ,
+				leftStarts[ length ][ number ] ,
+				leftStarts[ length ][ number + 1 ]
+			);
+	}
+
+	/**	Build the suffix numbers and extension indices.
+	 *
+	 *	<p>
+	 *	Called automatically as needed.  The index is discarded when
+	 *	more text is counted.
+	 *	</p>
+	 */
+
+	public void buildIndex()
+	{
+		if ( suffixes != null ) return;
+
+		int[][] newSuffixes	= new int[ maxLength + 1 ][];
+
+		rightStarts			= new int[ maxLength + 1 ][];
+		rightExtensions		= new int[ maxLength + 1 ][];
+		leftStarts			= new int[ maxLength + 1 ][];
+		leftExtensions		= new int[ maxLength + 1 ][];
+
+		for ( int length = 2 ; length <= maxLength ; length++ )
+		{
+			int[] suffix	= new int[ sizes[ length ] ];
+			int[] prefix	= new int[ sizes[ length ] ];
+
+								//	The suffix of ( prefix , token )
+								//	is ( suffix of prefix , token ).
+								//	Every suffix occurs in the text
+								//	wherever the ngram does, so it
+								//	has been counted.
+
+			for ( int i = 0 ; i < suffix.length ; i++ )
+			{
+				long key	= keys[ length ][ i ];
+				int token	= (int)key;
+
+				prefix[ i ]	= (int)( key >>> 32 );
+
+				if ( length == 2 )
+				{
+					suffix[ i ]	= numbers[ 1 ].get( token ) - 1;
+				}
+				else
+				{
+					suffix[ i ]	=
+						numbers[ length - 1 ].get(
+							pack(
+								newSuffixes[ length - 1 ][ prefix[ i ] ] ,
+								token ) ) - 1;
+				}
+			}
+
+			newSuffixes[ length ]	= suffix;
+
+			int[][] group	= groupBy( prefix , sizes[ length - 1 ] );
+
+			rightStarts[ length - 1 ]		= group[ 0 ];
+			rightExtensions[ length - 1 ]	= group[ 1 ];
+
+			group	= groupBy( suffix , sizes[ length - 1 ] );
+
+			leftStarts[ length - 1 ]		= group[ 0 ];
+			leftExtensions[ length - 1 ]	= group[ 1 ];
+		}
+
+		rightStarts[ maxLength ]		= new int[ sizes[ maxLength ] + 1 ];
+		rightExtensions[ maxLength ]	= new int[ 0 ];
+		leftStarts[ maxLength ]			= new int[ sizes[ maxLength ] + 1 ];
+		leftExtensions[ maxLength ]		= new int[ 0 ];
+
+		suffixes	= newSuffixes;
+	}
+
+	/**	Group numbers by a key with a counting sort.
+	 *
+	 *	@param	groupKeys	Key of each number, or -1 for none.
+	 *	@param	range		Keys lie in 0 to range - 1 .
+	 *
+	 *	@return				Two-element array.  The first element holds
+	 *						the offset of each key's group in the second
+	 *						element, followed by the total.  The second
+	 *						element holds the numbers in key order.
+	 */
+
+	protected static int[][] groupBy( int[] groupKeys , int range )
+	{
+		int[] starts	= new int[ range + 1 ];
+
+		for ( int i = 0 ; i < groupKeys.length ; i++ )
+		{
+			if ( groupKeys[ i ] >= 0 ) starts[ groupKeys[ i ] + 1 ]++;
+		}
+
+		for ( int i = 0 ; i < range ; i++ )
+		{
+			starts[ i + 1 ]	+= starts[ i ];
+		}
+
+		int[] next		= Arrays.copyOf( starts , range );
+		int[] members	= new int[ starts[ range ] ];
+
+		for ( int i = 0 ; i < groupKeys.length ; i++ )
+		{
+			if ( groupKeys[ i ] >= 0 )
+			{
+				members[ next[ groupKeys[ i ] ]++ ]	= i;
+			}
+		}
+
+		return new int[][]{ starts , members };
+	}
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
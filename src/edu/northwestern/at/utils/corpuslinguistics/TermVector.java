@@ -0,0 +1,187 @@
+package edu.northwestern.at.utils.corpuslinguistics;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.Arrays;
+
+/**	Sparse term vector.
+ *
+ *	<p>
+ *	Holds a weight, typically a count, for each term of a document.
+ *	Terms are non-negative integer ids.  The terms are stored in
+ *	increasing order in one array and their weights in a parallel
+ *	array, so two vectors can be compared in a single merge pass.
+ *	See {@link DocumentSimilarity}.
+ *	</p>
+ *
+ *	<p>
+ *	Terms with zero weight are not stored.  A term vector is not
+ *	modified after it is created, so it may be shared by threads.
+ *	</p>
+ */
+
+public class TermVector
+{
+	/**	Term ids in increasing order. */
+
+	protected int[] terms;
+
+	/**	Weight of each term. */
+
+	protected double[] weights;
+
+	/**	Sum of squared weights. */
+
+	protected double sumOfSquares;
+
+	/**	Create a term vector.
+	 *
+	 *	@param	terms		Term ids, in any order.
+	 *	@param	weights		Weight of each term.
+	 *	@param	length		Number of terms to use from the arrays.
+	 *
+	 *	@throws	IllegalArgumentException
+	 *					if a term id is negative or appears twice.
+	 *
+	 *	<p>
+	 *	The arrays are copied.
+	 *	</p>
+	 */
+
+	public TermVector( int[] terms , double[] weights , int length )
+	{
+								//	Sort terms with their positions
+								//	packed into longs.
+		long[] keys	= new long[ length ];
+
+		for ( int i = 0 ; i < length ; i++ )
+		{
+			if ( terms[ i ] < 0 )
+			{
+				throw new IllegalArgumentException(
+					"Negative term id " + terms[ i ] );
+			}
+
+			keys[ i ]	= ( (long)terms[ i ] << 32 ) | i;
+		}
+
+		Arrays.sort( keys );
+
+		this.terms		= new int[ length ];
+		this.weights	= new double[ length ];
+
+		int used		= 0;
+
+		for ( int i = 0 ; i < length ; i++ )
+		{
+			int term		= (int)( keys[ i ] >>> 32 );
+			double weight	= weights[ (int)keys[ i ] ];
+
+			if ( ( used > 0 ) && ( this.terms[ used - 1 ] == term ) )
+			{
+				throw new IllegalArgumentException(
+					"Duplicate term id " + term );
+			}
+
+			if ( weight != 0.0D )
+			{
+				this.terms[ used ]		= term;
+				this.weights[ used ]	= weight;
+
+				sumOfSquares	+= weight * weight;
+
+				used++;
+			}
+		}
+
+		if ( used < length )
+		{
+			this.terms		= Arrays.copyOf( this.terms , used );
+			this.weights	= Arrays.copyOf( this.weights , used );
+		}
+	}
+
+	/**	Create a term vector.
+	 *
+	 *	@param	terms		Term ids, in any order.
+	 *	@param	weights		Weight of each term.
+	 *
+	 *	@throws	IllegalArgumentException
+	 *					if a term id is negative or appears twice.
+	 */
+
+	public TermVector( int[] terms , double[] weights )
+	{
+		this( terms , weights , terms.length );
+	}
+
+	/**	Get number of terms.
+	 *
+	 *	@return		Number of terms with non-zero weight.
+	 */
+
+	public int size()
+	{
+		return terms.length;
+	}
+
+	/**	Get a term id.
+	 *
+	 *	@param	i	Term index, from 0 through size() - 1 .
+	 *
+	 *	@return		The i'th smallest term id.
+	 */
+
+	public int getTerm( int i )
+	{
+		return terms[ i ];
+	}
+
+	/**	Get a term weight.
+	 *
+	 *	@param	i	Term index, from 0 through size() - 1 .
+	 *
+	 *	@return		Weight of the i'th smallest term id.
+	 */
+
+	public double getWeight( int i )
+	{
+		return weights[ i ];
+	}
+
+	/**	Get the sum of squared weights.
+	 *
+	 *	@return		The sum of squared weights.
+	 */
+
+	public double getSumOfSquares()
+	{
+		return sumOfSquares;
+	}
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,173 @@
+package edu.northwestern.at.utils.corpuslinguistics;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+
+/**	Maps token strings to consecutive integer ids.
+ *
+ *	<p>
+ *	Ids are assigned in order of first appearance starting at zero.
+ *	A dictionary may be shared by several threads.  Each thread
+ *	should intern a whole text at a time with {@link #intern(String[])},
+ *	which takes the dictionary lock once per text rather than
+ *	once per token.
+ *	</p>
+ */
+
+public class TokenDictionary
+{
+	/**	Map from token string to Integer id. */
+
+	protected HashMap ids			= new HashMap();
+
+	/**	Token strings indexed by id. */
+
+	protected ArrayList tokens		= new ArrayList();
+
+	/**	Create an empty token dictionary.
+	 */
+
+	public TokenDictionary()
+	{
+	}
+
+	/**	Get the id for a token, adding the token if necessary.
+	 *
+	 *	@param	token	The token.
+	 *
+	 *	@return			The token's id.
+	 */
+
+	public synchronized int intern( String token )
+	{
+		Integer id	= (Integer)ids.get( token );
+
+		if ( id == null )
+		{
+			id	= Integer.valueOf( tokens.size() );
+
+			ids.put( token , id );
+			tokens.add( token );
+		}
+
+		return id.intValue();
+	}
+
+	/**	Get the ids for an array of tokens, adding tokens as necessary.
+	 *
+	 *	@param	text	The tokens.
+	 *
+	 *	@return			The id of each token.
+	 *
+	 *	<p>
+	 *	The distinct tokens are found without holding the lock,
+	 *	so other threads may intern their own texts meanwhile.
+	 *	</p>
+	 */
+
+	public int[] intern( String[] text )
+	{
+								//	Number the distinct tokens locally.
+
+		HashMap localIds	= new HashMap();
+		ArrayList distinct	= new ArrayList();
+		int[] localText		= new int[ text.length ];
+
+		for ( int i = 0 ; i < text.length ; i++ )
+		{
+			Integer localId	= (Integer)localIds.get( text[ i ] );
+
+			if ( localId == null )
+			{
+				localId	= Integer.valueOf( distinct.size() );
+
+				localIds.put( text[ i ] , localId );
+				distinct.add( text[ i ] );
+			}
+
+			localText[ i ]	= localId.intValue();
+		}
+								//	Map local numbers to ids.
+
+		int[] globalIds	= new int[ distinct.size() ];
+
+		synchronized ( this )
+		{
+			for ( int i = 0 ; i < globalIds.length ; i++ )
+			{
+				globalIds[ i ]	= intern( (String)distinct.get( i ) );
+			}
+		}
+
+		for ( int i = 0 ; i < localText.length ; i++ )
+		{
+			localText[ i ]	= globalIds[ localText[ i ] ];
+		}
+
+		return localText;
+	}
+
+	/**	Get the id of a token.
+	 *
+	 *	@param	token	The token.
+	 *
+	 *	@return			The token's id, or -1 if the token is not
+	 *					in the dictionary.
+	 */
+
+	public synchronized int getId( String token )
+	{
+		Integer id	= (Integer)ids.get( token );
+
+		return ( id == null ) ? -1 : id.intValue();
+	}
+
+	/**	Get the token with a given id.
+	 *
+	 *	@param	id		The id.
+	 *
+	 *	@return			The token string.
+	 */
+
+	public synchronized String getToken( int id )
+	{
+		return (String)tokens.get( id );
+	}
+
+	/**	Get number of tokens in the dictionary.
+	 *
+	 *	@return		Number of distinct tokens.
+	 */
+
+	public synchronized int size()
+	{
+		return tokens.size();
+	}
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,188 @@
+package edu.northwestern.at.utils.db.hibernate;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.Serializable;
+
+/**	Second-level cache region statistics.
+ *
+ *	<p>A snapshot of the size and hit/miss counts of one cache region
+ *	managed by {@link LruCacheRegionFactory}.
+ */
+
+public class CacheRegionStatistics implements Serializable {
+
+	/**	Region name. */
+
+	private String regionName;
+
+	/**	Number of entries. */
+
+	private int size;
+
+	/**	Maximum number of entries, or 0 if unbounded. */
+
+	private int maxEntries;
+
+	/**	Number of lookups which found an entry. */
+
+	private long hits;
+
+	/**	Number of lookups which did not find an entry. */
+
+	private long misses;
+
+	/**	Number of entries stored. */
+
+	private long puts;
+
+	/**	Number of least recently used entries dropped to keep the region
+	 *	under its maximum size.
+	 */
+
+	private long evictions;
+
+	/**	Creates a new cache region statistics snapshot.
+	 *
+	 *	@param	regionName		Region name.
+	 *
+	 *	@param	size			Number of entries.
+	 *
+	 *	@param	maxEntries		Maximum number of entries, or 0 if
+	 *							unbounded.
+	 *
+	 *	@param	hits			Number of hits.
+	 *
+	 *	@param	misses			Number of misses.
+	 *
+	 *	@param	puts			Number of puts.
+	 *
+	 *	@param	evictions		Number of evictions.
+	 */
+
+	public CacheRegionStatistics (String regionName, int size, int maxEntries,
+		long hits, long misses, long puts, long evictions)
+	{
+		this.regionName = regionName;
+		this.size = size;
+		this.maxEntries = maxEntries;
+		this.hits = hits;
+		this.misses = misses;
+		this.puts = puts;
+		this.evictions = evictions;
+	}
+
+	/**	Gets the region name.
+	 *
+	 *	@return		The region name.
+	 */
+
+	public String getRegionName () {
+		return regionName;
+	}
+
+	/**	Gets the number of entries.
+	 *
+	 *	@return		The number of entries.
+	 */
+
+	public int getSize () {
+		return size;
+	}
+
+	/**	Gets the maximum number of entries.
+	 *
+	 *	@return		The maximum number of entries, or 0 if unbounded.
+	 */
+
+	public int getMaxEntries () {
+		return maxEntries;
+	}
+
+	/**	Gets the number of hits.
+	 *
+	 *	@return		The number of lookups which found an entry.
+	 */
+
+	public long getHits () {
+		return hits;
+	}
+
+	/**	Gets the number of misses.
+	 *
+	 *	@return		The number of lookups which did not find an entry.
+	 */
+
+	public long getMisses () {
+		return misses;
+	}
+
+	/**	Gets the number of puts.
+	 *
+	 *	@return		The number of entries stored.
+	 */
+
+	public long getPuts () {
+		return puts;
+	}
+
+	/**	Gets the number of evictions.
+	 *
+	 *	@return		The number of least recently used entries dropped.
+	 */
+
+	public long getEvictions () {
+		return evictions;
+	}
+
+	/**	Gets the hit ratio.
+	 *
+	 *	@return		Hits divided by lookups, or 0 if there have been no
+	 *				lookups.
+	 */
+
+	public double getHitRatio () {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double)hits / lookups;
+	}
+
+	/**	Returns a string representation of the statistics.
+	 *
+	 *	@return		The region name, size, and counts.
+	 */
+
+	public String toString () {
+		return regionName + ": size=" + size +
+			(maxEntries > 0 ? "/" + maxEntries : "") +
+			" hits=" + hits + " misses=" + misses +
+			" puts=" + puts + " evictions=" + evictions;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
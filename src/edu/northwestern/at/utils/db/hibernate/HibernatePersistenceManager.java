@@ -18,9 +18,12 @@ import org.hibernate.Transaction;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jdbc.ReturningWork;
 import org.hibernate.query.Query;
 
 import edu.northwestern.at.utils.db.PersistenceException;
+import edu.northwestern.at.utils.db.jdbc.RowBatch;
+import edu.northwestern.at.utils.metrics.Metrics;
 
 /**	A Hibernate persistence manager.
  *
@@ -152,6 +155,10 @@ public class HibernatePersistenceManager
 
 	public static final int JDBC_BATCH_SIZE = 50;
 
+	/**	Query cache region for lookups of read-only objects. */
+
+	public static final String READ_ONLY_QUERY_REGION = "readOnlyQueries";
+
 	/**	Initializes Hibernate.
 	 *
 	 *	@param	url					URL for MySQL database, or null to use the
@@ -173,6 +180,11 @@ public class HibernatePersistenceManager
 	 *								null.
 	 *
 	 *	@param	cache2				true to use second level cache.
+	 *								Entities annotated as cacheable are
+	 *								cached in {@link LruCacheRegionFactory}
+	 *								regions, as are the results of
+	 *								{@link #queryReadOnly queryReadOnly}
+	 *								queries.
 	 *
 	 *	@throws	PersistenceException	error in persistence call
 	 */
@@ -218,6 +230,16 @@ public class HibernatePersistenceManager
 
 				cfg.setProperty(
 					"hibernate.connection.password" , password );
+
+								//	Use server side cursors for queries
+								//	with a fetch size.  Without this
+								//	MySQL Connector/J reads the whole
+								//	result set into memory and the fetch
+								//	size has no effect.  Queries without
+								//	a fetch size are not affected.
+
+				cfg.setProperty(
+					"hibernate.connection.useCursorFetch" , "true" );
 			}
 								//	Set JDBC batch size.
 			cfg.setProperty(
@@ -230,6 +252,20 @@ public class HibernatePersistenceManager
 				"hibernate.cache.use_second_level_cache" ,
 				cache2 ? "true" : "false" );
 
+								//	Use the LRU cache regions for the
+								//	second level cache and for cached
+								//	queries.  Only queryReadOnly
+								//	queries are cached.
+			if ( cache2 )
+			{
+				cfg.setProperty(
+					"hibernate.cache.region.factory_class" ,
+					LruCacheRegionFactory.class.getName() );
+
+				cfg.setProperty(
+					"hibernate.cache.use_query_cache" , "true" );
+			}
+
 								//	Add the persistent classes to the
 								//	configuration.
 
@@ -265,6 +301,33 @@ public class HibernatePersistenceManager
 		}
 	}
 
+	/**	Evicts all cached query results.
+	 *
+	 *	<p>
+	 *	Call this after changing tables behind Hibernate's back, for
+	 *	example through another session factory or on the server.
+	 *	</p>
+	 */
+
+	public static void evictQueryCache()
+	{
+		if ( sessionFactory != null )
+		{
+			sessionFactory.getCache().evictQueryRegions();
+		}
+	}
+
+	/**	Gets the second-level cache statistics.
+	 *
+	 *	@return		Array of cache region statistics.  Empty if the
+	 *				second-level cache is not in use.
+	 */
+
+	public static CacheRegionStatistics[] getCacheStatistics()
+	{
+		return LruCacheRegionFactory.getStatistics();
+	}
+
 	/**	Initializes Hibernate using the "hibernate.properties" file.
 	 *
 	 *	@param	configFilePath		The full path to the configuration file.
@@ -1445,10 +1508,18 @@ public class HibernatePersistenceManager
 	 *	@param	query			The query for which to set parameters and values.
 	 *	@param	paramNames		The query parameter names.
 	 *	@param	paramValues		The parameter values.
-	 *	@param	cacheQuery		True to cache the query.
+	 *	@param	cacheQuery		Ignored.  See below.
 	 *	@param	singleResult	true if query will return single result.
 	 *	@param	maxResults		Maximum number of results to return.
 	 *							0 = no limit.
+	 *
+	 *	<p>
+	 *	The query is not cached.  Many queries read user data tables
+	 *	which are written by the server without going through this
+	 *	session factory, so cached results could be stale.  Only lookups
+	 *	of read-only objects are cached, using
+	 *	{@link #queryReadOnly queryReadOnly}.
+	 *	</p>
 	 */
 
 	public void setQueryParams
@@ -1500,9 +1571,75 @@ public class HibernatePersistenceManager
 		{
 			query.setMaxResults( maxResults );
 		}
-								//	Enable cache if requested.
+	}
+
+	/**	Perform a query for read-only objects, caching the results.
+	 *
+	 *	@param	queryString		The query string.
+	 *	@param	paramNames		Parameter names used in the query.
+	 *	@param	paramValues		Parameter values for each paramName.
+	 *
+	 *	@return					List of objects resulting from query.
+	 *
+	 *	@throws	PersistenceException	error in persistence call
+	 *
+	 *	<p>
+	 *	When the second level cache is in use, the results are cached in
+	 *	the {@link #READ_ONLY_QUERY_REGION} query cache region.  Use this
+	 *	only for queries over tables which do not change while the
+	 *	program runs.
+	 *	</p>
+	 */
+
+	public List queryReadOnly
+	(
+		String queryString ,
+		String[] paramNames ,
+		Object[] paramValues
+	)
+		throws PersistenceException
+	{
+		List result	= null;
+
+		Metrics.Probe probe	= Metrics.start();
+
+		try
+		{
+								//	Create query.
+
+			Query query	= session.createQuery( queryString );
 
-		query.setCacheable( cacheQuery );
+								//	Set query parameters.
+			setQueryParams
+			(
+				query ,
+				paramNames ,
+				paramValues ,
+				true ,
+				false ,
+				0
+			);
+								//	Cache the results in the
+								//	read-only query region.
+
+			query.setCacheable( true );
+			query.setCacheRegion( READ_ONLY_QUERY_REGION );
+
+								//	Get the list of query results.
+
+			result	= query.list();
+		}
+		catch ( HibernateException e )
+		{
+			throw new PersistenceException( e );
+		}
+		finally
+		{
+			Metrics.stop( probe , Metrics.QUERY , queryString ,
+				( result == null ) ? -1 : result.size() );
+		}
+
+		return result;
 	}
 
 	/**	Perform query.
@@ -1537,6 +1674,8 @@ public class HibernatePersistenceManager
 	{
 		List result	= null;
 
+		Metrics.Probe probe	= Metrics.start();
+
 		try
 		{
 								//	Create query.
@@ -1561,6 +1700,11 @@ public class HibernatePersistenceManager
 		{
 			throw new PersistenceException( e );
 		}
+		finally
+		{
+			Metrics.stop( probe , Metrics.QUERY , queryString ,
+				( result == null ) ? -1 : result.size() );
+		}
 
 		return result;
 	}
@@ -1725,7 +1869,8 @@ public class HibernatePersistenceManager
 	/**	Perform query.
 	 *
 	 *	@param	queryString		The query string.
-	 *	@param	cacheQuery		True to cache query.
+	 *	@param	cacheQuery		Ignored.  The query is not cached.  See
+	 *							{@link #setQueryParams setQueryParams}.
 	 *
 	 *	@return					List of objects resulting from query, or
 	 *							null if query failed.
@@ -1738,15 +1883,13 @@ public class HibernatePersistenceManager
 	{
 		List result	= null;
 
+		Metrics.Probe probe	= Metrics.start();
+
 		try
 		{
 								//	Create query.
 			Query query	= session.createQuery( queryString );
 
-								//	Enable cache if requested.
-
-			query.setCacheable( cacheQuery );
-
 								//	Get the list of query results.
 
 			result	= query.list();
@@ -1755,6 +1898,11 @@ public class HibernatePersistenceManager
 		{
 			throw new PersistenceException( e );
 		}
+		finally
+		{
+			Metrics.stop( probe , Metrics.QUERY , queryString ,
+				( result == null ) ? -1 : result.size() );
+		}
 
 		return result;
 	}
@@ -1867,6 +2015,9 @@ public class HibernatePersistenceManager
 	{
 		int result	= 0;
 
+		Metrics.Probe probe	= Metrics.start();
+		boolean succeeded	= false;
+
 		try
 		{
 								//	Create query.
@@ -1892,11 +2043,18 @@ public class HibernatePersistenceManager
 			{
 				result	= (int)queryResult.longValue();
 			}
+
+			succeeded	= true;
 		}
 		catch ( HibernateException e )
 		{
 			throw new PersistenceException( e );
 		}
+		finally
+		{
+			Metrics.stop( probe , Metrics.COUNT_QUERY , queryString ,
+				succeeded ? 1 : -1 );
+		}
 
 		return result;
 	}
@@ -2237,7 +2395,7 @@ public class HibernatePersistenceManager
 	/**	Perform scrollable query.
 	 *
 	 *	@param	queryString		The query string.
-	 *	@param	cacheQuery		True to cache query.
+	 *	@param	cacheQuery		Ignored.  The query is not cached.
 	 *
 	 *	@return					List of objects resulting from query, or
 	 *							null if query failed.
@@ -2259,10 +2417,6 @@ public class HibernatePersistenceManager
 
 			Query query	= session.createQuery( queryString );
 
-								//	Enable cache if requested.
-
-			query.setCacheable( cacheQuery );
-
 								//	Get the list of query results.
 
 			result	= query.scroll();
@@ -2417,6 +2571,74 @@ public class HibernatePersistenceManager
 
 		return result;
 	}
+
+	/**	Performs batch inserts of typed row batches.
+	 *
+	 *	@param	batches		Row batches.
+	 *
+	 *	@return				Count of rows inserted.
+	 *
+	 *	@throws	PersistenceException	error in persistence call
+	 *
+	 *	<p>
+	 *	All the batches are inserted in one transaction, using one
+	 *	prepared insert statement per batch executed as JDBC batches of
+	 *	{@link #JDBC_BATCH_SIZE} rows.
+	 *	</p>
+	 */
+
+	public int performBatchInserts( final RowBatch[] batches )
+		throws PersistenceException
+	{
+		int result	= 0;
+
+		try
+		{
+			begin();
+								//	Insert the rows using the session's
+								//	connection, so the inserts are part
+								//	of the transaction.
+
+			Integer count	=
+				session.doReturningWork
+				(
+					new ReturningWork<Integer>()
+					{
+						public Integer execute( Connection connection )
+							throws SQLException
+						{
+							int n	= 0;
+
+							for ( int i = 0 ; i < batches.length ; i++ )
+							{
+								n	+= batches[ i ].insert(
+									connection , JDBC_BATCH_SIZE );
+							}
+
+							return Integer.valueOf( n );
+						}
+					}
+				);
+
+			result	= count.intValue();
+
+			commit();
+		}
+		catch ( HibernateException e )
+		{
+			try
+			{
+				rollback();
+			}
+			catch ( Exception ignored )
+			{
+			}
+
+			throw new PersistenceException( e );
+		}
+
+		return result;
+	}
 }
 
 /*
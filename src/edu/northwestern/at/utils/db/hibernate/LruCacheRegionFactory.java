@@ -0,0 +1,207 @@
+package edu.northwestern.at.utils.db.hibernate;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**	An in-memory LRU second-level cache region factory.
+ *
+ *	<p>Each region keeps its entries in memory, bounded in size by least
+ *	recently used eviction. It is intended for read-only entities, such as
+ *	the corpus model classes, which never change once built.
+ *
+ *	<p>The maximum number of entries in a region is set by the
+ *	"hibernate.cache.lru.max_entries" configuration property, and may be
+ *	set for an individual region by the property
+ *	"hibernate.cache.lru.max_entries.<i>regionName</i>". The default is
+ *	{@link #DEFAULT_MAX_ENTRIES}. A maximum of 0 means unbounded. The
+ *	timestamps region, which records when tables were last updated, is
+ *	never bounded.
+ *
+ *	<p>{@link #getStatistics getStatistics} returns hit/miss statistics
+ *	for all the regions.
+ */
+
+public class LruCacheRegionFactory extends RegionFactoryTemplate {
+
+	/**	Maximum entries configuration property. */
+
+	public static final String MAX_ENTRIES = "hibernate.cache.lru.max_entries";
+
+	/**	Default maximum number of entries in a region. */
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	/**	Storages for all regions of the started factory. */
+
+	private static final List storages = new ArrayList();
+
+	/**	Configuration values. */
+
+	private Map configValues;
+
+	/**	Prepares the factory for use.
+	 *
+	 *	@param	options			Session factory options.
+	 *
+	 *	@param	configValues	Configuration values.
+	 */
+
+	protected void prepareForUse (SessionFactoryOptions options,
+		Map configValues)
+	{
+		this.configValues = configValues;
+		synchronized (storages) {
+			storages.clear();
+		}
+	}
+
+	/**	Releases the factory.
+	 */
+
+	protected void releaseFromUse () {
+		synchronized (storages) {
+			for (int i = 0; i < storages.size(); i++)
+				((LruCacheStorage)storages.get(i)).release();
+			storages.clear();
+		}
+	}
+
+	/**	Gets the maximum number of entries for a region.
+	 *
+	 *	@param	regionName		Region name.
+	 *
+	 *	@return					Maximum number of entries, or 0 if
+	 *							unbounded.
+	 */
+
+	private int getMaxEntries (String regionName) {
+		Object val = configValues.get(MAX_ENTRIES + "." + regionName);
+		if (val == null) val = configValues.get(MAX_ENTRIES);
+		if (val == null) return DEFAULT_MAX_ENTRIES;
+		return Integer.parseInt(val.toString().trim());
+	}
+
+	/**	Creates a storage.
+	 *
+	 *	@param	regionName		Region name.
+	 *
+	 *	@param	maxEntries		Maximum number of entries, or 0 if
+	 *							unbounded.
+	 *
+	 *	@return					The storage.
+	 */
+
+	private LruCacheStorage createStorage (String regionName,
+		int maxEntries)
+	{
+		LruCacheStorage storage = new LruCacheStorage(regionName, maxEntries);
+		synchronized (storages) {
+			storages.add(storage);
+		}
+		return storage;
+	}
+
+	/**	Creates the storage for an entity, collection, or natural id
+	 *	region.
+	 *
+	 *	@param	regionConfig	Region configuration.
+	 *
+	 *	@param	buildingContext	Region building context.
+	 *
+	 *	@return					The storage.
+	 */
+
+	protected DomainDataStorageAccess createDomainDataStorageAccess (
+		DomainDataRegionConfig regionConfig,
+		DomainDataRegionBuildingContext buildingContext)
+	{
+		String regionName = regionConfig.getRegionName();
+		return createStorage(regionName, getMaxEntries(regionName));
+	}
+
+	/**	Creates the storage for a query results region.
+	 *
+	 *	@param	regionName		Region name.
+	 *
+	 *	@param	sessionFactory	Session factory.
+	 *
+	 *	@return					The storage.
+	 */
+
+	protected StorageAccess createQueryResultsRegionStorageAccess (
+		String regionName, SessionFactoryImplementor sessionFactory)
+	{
+		return createStorage(regionName, getMaxEntries(regionName));
+	}
+
+	/**	Creates the storage for a timestamps region.
+	 *
+	 *	@param	regionName		Region name.
+	 *
+	 *	@param	sessionFactory	Session factory.
+	 *
+	 *	@return					The storage.
+	 */
+
+	protected StorageAccess createTimestampsRegionStorageAccess (
+		String regionName, SessionFactoryImplementor sessionFactory)
+	{
+		return createStorage(regionName, 0);
+	}
+
+	/**	Gets the statistics for all regions.
+	 *
+	 *	@return		Array of region statistics, in the order the regions
+	 *				were created. Empty if the second-level cache is not
+	 *				in use.
+	 */
+
+	public static CacheRegionStatistics[] getStatistics () {
+		synchronized (storages) {
+			CacheRegionStatistics[] result =
+				new CacheRegionStatistics[storages.size()];
+			for (int i = 0; i < result.length; i++)
+				result[i] = ((LruCacheStorage)storages.get(i)).getStatistics();
+			return result;
+		}
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
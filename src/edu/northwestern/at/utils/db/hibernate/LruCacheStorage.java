@@ -0,0 +1,183 @@
+package edu.northwestern.at.utils.db.hibernate;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import edu.northwestern.at.utils.metrics.Metrics;
+
+/**	Storage for one second-level cache region.
+ *
+ *	<p>Entries are held in memory in a map in access order. When the
+ *	region is bounded and a put takes it over its maximum size, the least
+ *	recently used entry is dropped. Hits, misses, puts, and evictions are
+ *	counted.
+ *
+ *	<p>This class is thread-safe.
+ */
+
+class LruCacheStorage implements DomainDataStorageAccess {
+
+	/**	Region name. */
+
+	private String regionName;
+
+	/**	Maximum number of entries, or 0 if unbounded. */
+
+	private int maxEntries;
+
+	/**	Map from cache keys to cached values, least recently used first. */
+
+	private LinkedHashMap map;
+
+	/**	Number of hits. */
+
+	private long hits;
+
+	/**	Number of misses. */
+
+	private long misses;
+
+	/**	Number of puts. */
+
+	private long puts;
+
+	/**	Number of evictions. */
+
+	private long evictions;
+
+	/**	Creates a new storage.
+	 *
+	 *	@param	regionName		Region name.
+	 *
+	 *	@param	maxEntries		Maximum number of entries, or 0 if
+	 *							unbounded.
+	 */
+
+	LruCacheStorage (String regionName, int maxEntries) {
+		this.regionName = regionName;
+		this.maxEntries = maxEntries;
+		map = new LinkedHashMap(16, 0.75f, true) {
+			protected boolean removeEldestEntry (Map.Entry eldest) {
+				if (LruCacheStorage.this.maxEntries <= 0 ||
+					size() <= LruCacheStorage.this.maxEntries) return false;
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/**	Gets a cached value.
+	 *
+	 *	@param	key			Cache key.
+	 *
+	 *	@param	session		Session.
+	 *
+	 *	@return				Cached value, or null if none.
+	 */
+
+	public synchronized Object getFromCache (Object key,
+		SharedSessionContractImplementor session)
+	{
+		Object value = map.get(key);
+		if (value == null) {
+			misses++;
+		} else {
+			hits++;
+			Metrics.cacheHit();
+		}
+		return value;
+	}
+
+	/**	Caches a value.
+	 *
+	 *	@param	key			Cache key.
+	 *
+	 *	@param	value		Value.
+	 *
+	 *	@param	session		Session.
+	 */
+
+	public synchronized void putIntoCache (Object key, Object value,
+		SharedSessionContractImplementor session)
+	{
+		map.put(key, value);
+		puts++;
+	}
+
+	/**	Returns true if a key is cached.
+	 *
+	 *	@param	key			Cache key.
+	 *
+	 *	@return				True if cached.
+	 */
+
+	public synchronized boolean contains (Object key) {
+		return map.containsKey(key);
+	}
+
+	/**	Evicts all cached values.
+	 */
+
+	public synchronized void evictData () {
+		map.clear();
+	}
+
+	/**	Evicts a cached value.
+	 *
+	 *	@param	key			Cache key.
+	 */
+
+	public synchronized void evictData (Object key) {
+		map.remove(key);
+	}
+
+	/**	Releases the storage.
+	 */
+
+	public synchronized void release () {
+		map.clear();
+	}
+
+	/**	Gets the region statistics.
+	 *
+	 *	@return				Statistics snapshot.
+	 */
+
+	synchronized CacheRegionStatistics getStatistics () {
+		return new CacheRegionStatistics(regionName, map.size(), maxEntries,
+			hits, misses, puts, evictions);
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
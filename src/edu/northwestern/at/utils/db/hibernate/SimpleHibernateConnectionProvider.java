@@ -11,6 +11,7 @@ import org.hibernate.cfg.Environment;
 import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
 import org.hibernate.service.spi.Configurable;
 
+import edu.northwestern.at.utils.db.jdbc.ConnectionPoolStatistics;
 import edu.northwestern.at.utils.db.jdbc.SimpleConnectionPool;
 
 /** A simple Hibernate connection provider.
@@ -29,6 +30,9 @@ import edu.northwestern.at.utils.db.jdbc.SimpleConnectionPool;
  *	<li>hibernate.connection.password -&gt; password
  *	<li>hibernate.connection.pool_size -&gt; maxPoolSize
  *	<li>hibernate.connection.autocommit -&gt; autocommit
+ *	<li>hibernate.connection.checkout_timeout -&gt; checkoutTimeout
+ *	<li>hibernate.connection.validation_interval -&gt; validationInterval
+ *	<li>hibernate.connection.validation_timeout -&gt; validationTimeout
  *	</ul>
  *
  *	<p>The remaining SimpleConnectionPool properties use their
@@ -80,6 +84,12 @@ public class SimpleHibernateConnectionProvider implements ConnectionProvider, Co
 			if	(poolSize != null && poolSize.trim().length() > 0 &&
 				Integer.parseInt(poolSize) > 0)
 					poolProperties.put("maxPoolSize", poolSize);
+			copyProperty(configurationValues, "checkout_timeout",
+				poolProperties, "checkoutTimeout");
+			copyProperty(configurationValues, "validation_interval",
+				poolProperties, "validationInterval");
+			copyProperty(configurationValues, "validation_timeout",
+				poolProperties, "validationTimeout");
 			connectionPool = new SimpleConnectionPool(poolProperties);
 		} catch (Exception e) {
 			if (connectionPool != null) connectionPool.close();
@@ -89,6 +99,26 @@ public class SimpleHibernateConnectionProvider implements ConnectionProvider, Co
 		}
 	}
 
+	/**	Copies an optional connection property to the pool properties.
+	 *
+	 *	@param	configurationValues	The Hibernate configuration map.
+	 *
+	 *	@param	name				Property name, without the
+	 *								"hibernate.connection." prefix.
+	 *
+	 *	@param	poolProperties		Pool properties.
+	 *
+	 *	@param	poolName			Pool property name.
+	 */
+
+	private static void copyProperty (Map configurationValues, String name,
+		Properties poolProperties, String poolName)
+	{
+		Object value = configurationValues.get("hibernate.connection." + name);
+		if (value != null && value.toString().trim().length() > 0)
+			poolProperties.put(poolName, value.toString().trim());
+	}
+
 	/**	Gets a connection from the pool.
 	 *
 	 *	@return		A connection.
@@ -132,7 +162,18 @@ public class SimpleHibernateConnectionProvider implements ConnectionProvider, Co
 		return false;
 	}
 
-	/**	Adds an observer.
+	/**	Gets the connection pool statistics.
+	 *
+	 *	@return		A snapshot of the pool's usage and wait time counters,
+	 *				or null if the provider is closed.
+	 */
+
+	public ConnectionPoolStatistics getStatistics () {
+		SimpleConnectionPool pool = connectionPool;
+		return pool == null ? null : pool.getStatistics();
+	}
+
+		/**	Adds an observer.
 	 *
 	 *	<p>The observer is notified whenever a bad JDBC connection is
 	 *	detected and whenever it takes more than one attempt to obtain
@@ -0,0 +1,235 @@
+package edu.northwestern.at.utils.db.jdbc;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.Serializable;
+
+/**	Connection pool statistics.
+ *
+ *	<p>A snapshot of the usage and wait time counters of a
+ *	{@link SimpleConnectionPool}. The counters run from the time the
+ *	pool was created.
+ */
+
+public class ConnectionPoolStatistics implements Serializable {
+
+	/**	Maximum pool size. */
+
+	private int maxPoolSize;
+
+	/**	Number of checked out connections. */
+
+	private int checkedOut;
+
+	/**	Number of idle pooled connections. */
+
+	private int idle;
+
+	/**	Maximum number of connections checked out at once. */
+
+	private int peakCheckedOut;
+
+	/**	Number of checkouts. */
+
+	private long checkouts;
+
+	/**	Number of checkouts which failed because no connection was
+	 *	released in time.
+	 */
+
+	private long timeouts;
+
+	/**	Number of connections created. */
+
+	private long created;
+
+	/**	Number of connections which failed the test. */
+
+	private long bad;
+
+	/**	Total time spent waiting for connections, in nanoseconds. */
+
+	private long totalWait;
+
+	/**	Longest time spent waiting for a connection, in nanoseconds. */
+
+	private long maxWait;
+
+	/**	Creates a new connection pool statistics snapshot.
+	 *
+	 *	@param	maxPoolSize		Maximum pool size.
+	 *
+	 *	@param	checkedOut		Number of checked out connections.
+	 *
+	 *	@param	idle			Number of idle pooled connections.
+	 *
+	 *	@param	peakCheckedOut	Maximum number of connections checked out
+	 *							at once.
+	 *
+	 *	@param	checkouts		Number of checkouts.
+	 *
+	 *	@param	timeouts		Number of failed checkouts.
+	 *
+	 *	@param	created			Number of connections created.
+	 *
+	 *	@param	bad				Number of connections which failed the
+	 *							test.
+	 *
+	 *	@param	totalWait		Total wait time in nanoseconds.
+	 *
+	 *	@param	maxWait			Longest wait time in nanoseconds.
+	 */
+
+	public ConnectionPoolStatistics (int maxPoolSize, int checkedOut,
+		int idle, int peakCheckedOut, long checkouts, long timeouts,
+		long created, long bad, long totalWait, long maxWait)
+	{
+		this.maxPoolSize = maxPoolSize;
+		this.checkedOut = checkedOut;
+		this.idle = idle;
+		this.peakCheckedOut = peakCheckedOut;
+		this.checkouts = checkouts;
+		this.timeouts = timeouts;
+		this.created = created;
+		this.bad = bad;
+		this.totalWait = totalWait;
+		this.maxWait = maxWait;
+	}
+
+	/**	Gets the maximum pool size.
+	 *
+	 *	@return		The maximum number of connections which can be
+	 *				checked out at once.
+	 */
+
+	public int getMaxPoolSize () {
+		return maxPoolSize;
+	}
+
+	/**	Gets the number of checked out connections.
+	 *
+	 *	@return		The number of checked out connections.
+	 */
+
+	public int getCheckedOut () {
+		return checkedOut;
+	}
+
+	/**	Gets the number of idle connections.
+	 *
+	 *	@return		The number of idle pooled connections.
+	 */
+
+	public int getIdle () {
+		return idle;
+	}
+
+	/**	Gets the peak number of checked out connections.
+	 *
+	 *	@return		The maximum number of connections checked out at once.
+	 */
+
+	public int getPeakCheckedOut () {
+		return peakCheckedOut;
+	}
+
+	/**	Gets the number of checkouts.
+	 *
+	 *	@return		The number of successful checkouts.
+	 */
+
+	public long getCheckouts () {
+		return checkouts;
+	}
+
+	/**	Gets the number of failed checkouts.
+	 *
+	 *	@return		The number of checkouts which failed because no
+	 *				connection was released in time.
+	 */
+
+	public long getTimeouts () {
+		return timeouts;
+	}
+
+	/**	Gets the number of connections created.
+	 *
+	 *	@return		The number of connections created.
+	 */
+
+	public long getCreated () {
+		return created;
+	}
+
+	/**	Gets the number of bad connections.
+	 *
+	 *	@return		The number of connections which failed the test.
+	 */
+
+	public long getBad () {
+		return bad;
+	}
+
+	/**	Gets the average wait time.
+	 *
+	 *	@return		The average time spent waiting for a connection, in
+	 *				milliseconds.
+	 */
+
+	public double getAverageWaitMillis () {
+		long n = checkouts + timeouts;
+		return n == 0 ? 0 : totalWait / 1e6 / n;
+	}
+
+	/**	Gets the longest wait time.
+	 *
+	 *	@return		The longest time spent waiting for a connection, in
+	 *				milliseconds.
+	 */
+
+	public double getMaxWaitMillis () {
+		return maxWait / 1e6;
+	}
+
+	/**	Returns a string representation of the statistics.
+	 *
+	 *	@return		String representation.
+	 */
+
+	public String toString () {
+		return "checkedOut=" + checkedOut + "/" + maxPoolSize +
+			" idle=" + idle + " peak=" + peakCheckedOut +
+			" checkouts=" + checkouts + " timeouts=" + timeouts +
+			" created=" + created + " bad=" + bad +
+			" avgWaitMs=" + getAverageWaitMillis() +
+			" maxWaitMs=" + getMaxWaitMillis();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,724 @@
+package edu.northwestern.at.utils.db.jdbc;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.*;
+import java.sql.*;
+import java.util.*;
+
+/**	A batch of rows to insert into a table.
+ *
+ *	<p>A row batch holds its values in one typed array per column, so a
+ *	batch of many rows is compact to hold and to serialize, and no SQL
+ *	text is built for the values. The rows are inserted with a single
+ *	prepared insert statement, executed as JDBC batches. With the MySQL
+ *	"rewriteBatchedStatements" connection property the driver sends each
+ *	JDBC batch as a few multi-row inserts.
+ *
+ *	<p>A batch whose last column holds counts may instead be
+ *	{@link #addCounts added} to the counts already in a table.
+ *
+ *	<p>Column types are {@link #INT}, {@link #LONG}, {@link #BYTE}, and
+ *	{@link #STRING}. Any value may be null.
+ *
+ *	<p>Row batches are not thread-safe.
+ */
+
+public class RowBatch implements Serializable {
+
+	/**	Integer column type. */
+
+	public static final int INT = 0;
+
+	/**	Long column type. */
+
+	public static final int LONG = 1;
+
+	/**	Byte column type. */
+
+	public static final int BYTE = 2;
+
+	/**	String column type. */
+
+	public static final int STRING = 3;
+
+	/**	Table name. */
+
+	private String tableName;
+
+	/**	Column names. */
+
+	private String[] columnNames;
+
+	/**	Column types. */
+
+	private int[] columnTypes;
+
+	/**	Column values. Each element is an int[], long[], byte[], or
+	 *	String[] array, according to the column type.
+	 */
+
+	private Object[] columns;
+
+	/**	Null flags by column, or null for columns with no null values. */
+
+	private BitSet[] nulls;
+
+	/**	Number of rows. */
+
+	private int size;
+
+	/**	Creates a new empty row batch.
+	 *
+	 *	@param	tableName		Table name.
+	 *
+	 *	@param	columnNames		Column names.
+	 *
+	 *	@param	columnTypes		Column types.
+	 */
+
+	public RowBatch (String tableName, String[] columnNames,
+		int[] columnTypes)
+	{
+		this(tableName, columnNames, columnTypes, 16);
+	}
+
+	/**	Creates a new empty row batch with an initial capacity.
+	 *
+	 *	@param	tableName		Table name.
+	 *
+	 *	@param	columnNames		Column names.
+	 *
+	 *	@param	columnTypes		Column types.
+	 *
+	 *	@param	capacity		Initial capacity in rows.
+	 */
+
+	private RowBatch (String tableName, String[] columnNames,
+		int[] columnTypes, int capacity)
+	{
+		if (columnNames.length != columnTypes.length)
+			throw new IllegalArgumentException(
+				"Column names and types do not match");
+		this.tableName = tableName;
+		this.columnNames = columnNames;
+		this.columnTypes = columnTypes;
+		columns = new Object[columnTypes.length];
+		nulls = new BitSet[columnTypes.length];
+		for (int i = 0; i < columnTypes.length; i++)
+			columns[i] = newColumn(columnTypes[i], Math.max(capacity, 1));
+	}
+
+	/**	Creates a column array.
+	 *
+	 *	@param	type		Column type.
+	 *
+	 *	@param	capacity	Capacity.
+	 *
+	 *	@return				New column array.
+	 */
+
+	private static Object newColumn (int type, int capacity) {
+		switch (type) {
+			case INT:
+				return new int[capacity];
+			case LONG:
+				return new long[capacity];
+			case BYTE:
+				return new byte[capacity];
+			case STRING:
+				return new String[capacity];
+			default:
+				throw new IllegalArgumentException(
+					"Unknown column type: " + type);
+		}
+	}
+
+	/**	Copies a range of a column array.
+	 *
+	 *	@param	column		Column array.
+	 *
+	 *	@param	from		Index of first element to copy.
+	 *
+	 *	@param	to			Index past last element to copy.
+	 *
+	 *	@param	capacity	Capacity of the new array.
+	 *
+	 *	@return				New column array.
+	 */
+
+	private static Object copyColumn (Object column, int from, int to,
+		int capacity)
+	{
+		Object result = java.lang.reflect.Array.newInstance(
+			column.getClass().getComponentType(), capacity);
+		System.arraycopy(column, from, result, 0, to - from);
+		return result;
+	}
+
+	/**	Gets the table name.
+	 *
+	 *	@return		The table name.
+	 */
+
+	public String getTableName () {
+		return tableName;
+	}
+
+	/**	Gets the column names.
+	 *
+	 *	@return		The column names.
+	 */
+
+	public String[] getColumnNames () {
+		return (String[])columnNames.clone();
+	}
+
+	/**	Gets the number of rows.
+	 *
+	 *	@return		The number of rows.
+	 */
+
+	public int size () {
+		return size;
+	}
+
+	/**	Adds a row.
+	 *
+	 *	@param	row		Row values, one per column. Numeric columns take
+	 *					Numbers and string columns take any object,
+	 *					converted with toString. Values may be null.
+	 */
+
+	public void addRow (Object[] row) {
+		if (row.length != columnTypes.length)
+			throw new IllegalArgumentException(
+				"Row has " + row.length + " values, expected " +
+				columnTypes.length);
+		int capacity = java.lang.reflect.Array.getLength(columns[0]);
+		if (size == capacity) {
+			int newCapacity = capacity + (capacity >> 1) + 1;
+			for (int i = 0; i < columns.length; i++)
+				columns[i] = copyColumn(columns[i], 0, size, newCapacity);
+		}
+		for (int i = 0; i < row.length; i++) {
+			Object value = row[i];
+			if (value == null) {
+				if (nulls[i] == null) nulls[i] = new BitSet();
+				nulls[i].set(size);
+				continue;
+			}
+			switch (columnTypes[i]) {
+				case INT:
+					((int[])columns[i])[size] = ((Number)value).intValue();
+					break;
+				case LONG:
+					((long[])columns[i])[size] = ((Number)value).longValue();
+					break;
+				case BYTE:
+					((byte[])columns[i])[size] = ((Number)value).byteValue();
+					break;
+				case STRING:
+					((String[])columns[i])[size] = value.toString();
+					break;
+			}
+		}
+		size++;
+	}
+
+	/**	Splits the batch into chunks.
+	 *
+	 *	@param	maxRows		Maximum number of rows per chunk.
+	 *
+	 *	@return				Array of row batches with at most maxRows rows
+	 *						each, holding the rows of this batch in order.
+	 *						Empty if this batch is empty.
+	 */
+
+	public RowBatch[] split (int maxRows) {
+		maxRows = Math.max(maxRows, 1);
+		int n = (size + maxRows - 1) / maxRows;
+		RowBatch[] result = new RowBatch[n];
+		for (int k = 0; k < n; k++) {
+			int from = k * maxRows;
+			int to = Math.min(from + maxRows, size);
+			RowBatch chunk = new RowBatch(tableName, columnNames,
+				columnTypes, 1);
+			for (int i = 0; i < columns.length; i++) {
+				chunk.columns[i] =
+					copyColumn(columns[i], from, to, to - from);
+				if (nulls[i] != null) {
+					BitSet bits = nulls[i].get(from, to);
+					if (!bits.isEmpty()) chunk.nulls[i] = bits;
+				}
+			}
+			chunk.size = to - from;
+			result[k] = chunk;
+		}
+		return result;
+	}
+
+	/**	Gets the insert statement.
+	 *
+	 *	@return		The parameterized insert statement for the table.
+	 */
+
+	public String getInsertStatement () {
+		StringBuffer buf = new StringBuffer();
+		buf.append("insert into ");
+		buf.append(tableName);
+		buf.append(" (");
+		for (int i = 0; i < columnNames.length; i++) {
+			if (i > 0) buf.append(", ");
+			buf.append(columnNames[i]);
+		}
+		buf.append(") values (");
+		for (int i = 0; i < columnNames.length; i++) {
+			if (i > 0) buf.append(", ");
+			buf.append('?');
+		}
+		buf.append(')');
+		return buf.toString();
+	}
+
+	/**	Inserts the rows.
+	 *
+	 *	<p>The rows are added to a prepared statement and executed in JDBC
+	 *	batches of at most batchSize rows. The caller is responsible for
+	 *	transactions.
+	 *
+	 *	@param	connection	Database connection.
+	 *
+	 *	@param	batchSize	Maximum number of rows per JDBC batch.
+	 *
+	 *	@return				Number of rows inserted.
+	 *
+	 *	@throws	SQLException	error inserting the rows.
+	 */
+
+	public int insert (Connection connection, int batchSize)
+		throws SQLException
+	{
+		if (size == 0) return 0;
+		batchSize = Math.max(batchSize, 1);
+		int result = 0;
+		PreparedStatement statement =
+			connection.prepareStatement(getInsertStatement());
+		try {
+			int pending = 0;
+			for (int row = 0; row < size; row++) {
+				bind(statement, row);
+				statement.addBatch();
+				if (++pending == batchSize) {
+					result += count(statement.executeBatch());
+					pending = 0;
+				}
+			}
+			if (pending > 0) result += count(statement.executeBatch());
+		} finally {
+			statement.close();
+		}
+		return result;
+	}
+
+	/**	Adds the rows to the counts in a table.
+	 *
+	 *	<p>The last column of the batch holds counts, which may be
+	 *	negative, and the other columns form the key of a count. Each
+	 *	count in the batch is added to the table row with the same key
+	 *	and the given value in the scope column. A table row whose count
+	 *	drops to zero or below is deleted, and a positive count with no
+	 *	table row is inserted as a new row. Counts in the batch with the
+	 *	same key are summed first. So if the table held the counts for
+	 *	some set of items, it ends up holding exactly the counts a full
+	 *	recount would give, and only the rows whose counts change are
+	 *	written.
+	 *
+	 *	<p>Only the table rows with the scope value and one of the values
+	 *	of the first batch column are read. Keys are compared exactly in
+	 *	Java, not with the collation of the database. The caller is
+	 *	responsible for transactions.
+	 *
+	 *	@param	connection	Database connection.
+	 *
+	 *	@param	idColumn	Name of the primary key column of the table.
+	 *
+	 *	@param	scopeColumn	Name of the scope column of the table.
+	 *
+	 *	@param	scopeValue	Scope value.
+	 *
+	 *	@param	batchSize	Maximum number of rows per JDBC batch.
+	 *
+	 *	@return				Number of table rows updated, inserted, or
+	 *						deleted.
+	 *
+	 *	@throws	SQLException	error reading or writing the rows.
+	 */
+
+	public int addCounts (Connection connection, String idColumn,
+		String scopeColumn, long scopeValue, int batchSize)
+			throws SQLException
+	{
+		if (size == 0) return 0;
+		int countIndex = columns.length - 1;
+		if (countIndex < 1 || columnTypes[countIndex] == STRING ||
+			columnTypes[countIndex] == BYTE)
+				throw new IllegalArgumentException(
+					"Last column must be an int or long count");
+		batchSize = Math.max(batchSize, 1);
+		Map deltas = new LinkedHashMap();
+		Set firstValues = new LinkedHashSet();
+		for (int row = 0; row < size; row++) {
+			if (nulls[countIndex] != null && nulls[countIndex].get(row))
+				continue;
+			List key = getKey(row);
+			long[] delta = (long[])deltas.get(key);
+			if (delta == null) {
+				delta = new long[1];
+				deltas.put(key, delta);
+				firstValues.add(key.get(0));
+			}
+			delta[0] += getCount(row);
+		}
+		List updateIds = new ArrayList();
+		List updateCounts = new ArrayList();
+		List deleteIds = new ArrayList();
+		List firstList = new ArrayList(firstValues);
+		for (int from = 0; from < firstList.size(); from += batchSize) {
+			List chunk = firstList.subList(from,
+				Math.min(from + batchSize, firstList.size()));
+			readCounts(connection, idColumn, scopeColumn, scopeValue, chunk,
+				deltas, updateIds, updateCounts, deleteIds);
+		}
+		String[] insertNames = new String[columnNames.length + 1];
+		int[] insertTypes = new int[columnTypes.length + 1];
+		System.arraycopy(columnNames, 0, insertNames, 0, columnNames.length);
+		System.arraycopy(columnTypes, 0, insertTypes, 0, columnTypes.length);
+		insertNames[columnNames.length] = scopeColumn;
+		insertTypes[columnTypes.length] = LONG;
+		RowBatch inserts = new RowBatch(tableName, insertNames, insertTypes);
+		for (Iterator it = deltas.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry entry = (Map.Entry)it.next();
+			long delta = ((long[])entry.getValue())[0];
+			if (delta <= 0) continue;
+			List key = (List)entry.getKey();
+			Object[] row = new Object[insertNames.length];
+			key.toArray(row);
+			row[countIndex] = Long.valueOf(delta);
+			row[countIndex + 1] = Long.valueOf(scopeValue);
+			inserts.addRow(row);
+		}
+		int result = 0;
+		result += executeById(connection, "update " + tableName + " set " +
+			columnNames[countIndex] + " = ? where " + idColumn + " = ?",
+			updateIds, updateCounts, batchSize);
+		result += executeById(connection, "delete from " + tableName +
+			" where " + idColumn + " = ?", deleteIds, null, batchSize);
+		result += inserts.insert(connection, batchSize);
+		return result;
+	}
+
+	/**	Reads the table rows for some values of the first column and
+	 *	works out how they change.
+	 *
+	 *	<p>The delta of each key found in the table is removed from the
+	 *	deltas map, so only the keys with no table row are left there.
+	 *
+	 *	@param	connection		Database connection.
+	 *
+	 *	@param	idColumn		Name of the primary key column.
+	 *
+	 *	@param	scopeColumn		Name of the scope column.
+	 *
+	 *	@param	scopeValue		Scope value.
+	 *
+	 *	@param	firstValues		Values of the first column to read. May
+	 *							include null.
+	 *
+	 *	@param	deltas			Maps keys to summed deltas.
+	 *
+	 *	@param	updateIds		Ids of rows to update are added here.
+	 *
+	 *	@param	updateCounts	New counts of rows to update are added here.
+	 *
+	 *	@param	deleteIds		Ids of rows to delete are added here.
+	 *
+	 *	@throws	SQLException	error reading the rows.
+	 */
+
+	private void readCounts (Connection connection, String idColumn,
+		String scopeColumn, long scopeValue, List firstValues, Map deltas,
+		List updateIds, List updateCounts, List deleteIds)
+			throws SQLException
+	{
+		int countIndex = columns.length - 1;
+		StringBuffer buf = new StringBuffer();
+		buf.append("select ");
+		buf.append(idColumn);
+		for (int i = 0; i < columnNames.length; i++) {
+			buf.append(", ");
+			buf.append(columnNames[i]);
+		}
+		buf.append(" from ");
+		buf.append(tableName);
+		buf.append(" where ");
+		buf.append(scopeColumn);
+		buf.append(" = ? and (");
+		buf.append(columnNames[0]);
+		buf.append(" in (");
+		int n = 0;
+		boolean hasNull = false;
+		for (Iterator it = firstValues.iterator(); it.hasNext(); ) {
+			if (it.next() == null) {
+				hasNull = true;
+				continue;
+			}
+			if (n++ > 0) buf.append(", ");
+			buf.append('?');
+		}
+		if (n == 0) buf.append("null");
+		buf.append(')');
+		if (hasNull) {
+			buf.append(" or ");
+			buf.append(columnNames[0]);
+			buf.append(" is null");
+		}
+		buf.append(')');
+		PreparedStatement statement =
+			connection.prepareStatement(buf.toString());
+		try {
+			statement.setLong(1, scopeValue);
+			int param = 2;
+			for (Iterator it = firstValues.iterator(); it.hasNext(); ) {
+				Object value = it.next();
+				if (value != null) statement.setObject(param++, value);
+			}
+			ResultSet rs = statement.executeQuery();
+			try {
+				while (rs.next()) {
+					Object[] key = new Object[countIndex];
+					for (int i = 0; i < countIndex; i++) {
+						switch (columnTypes[i]) {
+							case INT:
+								key[i] = Integer.valueOf(rs.getInt(i + 2));
+								break;
+							case LONG:
+								key[i] = Long.valueOf(rs.getLong(i + 2));
+								break;
+							case BYTE:
+								key[i] = Byte.valueOf(rs.getByte(i + 2));
+								break;
+							case STRING:
+								key[i] = rs.getString(i + 2);
+								break;
+						}
+						if (rs.wasNull()) key[i] = null;
+					}
+					long[] delta = (long[])deltas.remove(Arrays.asList(key));
+					if (delta == null) continue;
+					long id = rs.getLong(1);
+					long count = rs.getLong(countIndex + 2) + delta[0];
+					if (count <= 0) {
+						deleteIds.add(Long.valueOf(id));
+					} else if (delta[0] != 0) {
+						updateIds.add(Long.valueOf(id));
+						updateCounts.add(Long.valueOf(count));
+					}
+				}
+			} finally {
+				rs.close();
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**	Executes a statement for a list of row ids.
+	 *
+	 *	@param	connection	Database connection.
+	 *
+	 *	@param	sql			Statement. Its last parameter is the row id.
+	 *
+	 *	@param	ids			Row ids.
+	 *
+	 *	@param	counts		Counts to bind as the first parameter, one per
+	 *						id, or null if the statement has no count.
+	 *
+	 *	@param	batchSize	Maximum number of rows per JDBC batch.
+	 *
+	 *	@return				Number of rows changed.
+	 *
+	 *	@throws	SQLException	error executing the statement.
+	 */
+
+	private static int executeById (Connection connection, String sql,
+		List ids, List counts, int batchSize)
+			throws SQLException
+	{
+		if (ids.isEmpty()) return 0;
+		int result = 0;
+		PreparedStatement statement = connection.prepareStatement(sql);
+		try {
+			int pending = 0;
+			for (int i = 0; i < ids.size(); i++) {
+				int param = 1;
+				if (counts != null)
+					statement.setLong(param++,
+						((Long)counts.get(i)).longValue());
+				statement.setLong(param, ((Long)ids.get(i)).longValue());
+				statement.addBatch();
+				if (++pending == batchSize) {
+					result += count(statement.executeBatch());
+					pending = 0;
+				}
+			}
+			if (pending > 0) result += count(statement.executeBatch());
+		} finally {
+			statement.close();
+		}
+		return result;
+	}
+
+	/**	Gets the key of a row.
+	 *
+	 *	@param	row		Row index.
+	 *
+	 *	@return			List of the boxed values of all the columns but
+	 *					the last.
+	 */
+
+	private List getKey (int row) {
+		Object[] key = new Object[columns.length - 1];
+		for (int i = 0; i < key.length; i++) {
+			if (nulls[i] != null && nulls[i].get(row)) continue;
+			switch (columnTypes[i]) {
+				case INT:
+					key[i] = Integer.valueOf(((int[])columns[i])[row]);
+					break;
+				case LONG:
+					key[i] = Long.valueOf(((long[])columns[i])[row]);
+					break;
+				case BYTE:
+					key[i] = Byte.valueOf(((byte[])columns[i])[row]);
+					break;
+				case STRING:
+					key[i] = ((String[])columns[i])[row];
+					break;
+			}
+		}
+		return Arrays.asList(key);
+	}
+
+	/**	Gets the count of a row.
+	 *
+	 *	@param	row		Row index.
+	 *
+	 *	@return			Value of the last column.
+	 */
+
+	private long getCount (int row) {
+		int i = columns.length - 1;
+		return columnTypes[i] == INT ? ((int[])columns[i])[row] :
+			((long[])columns[i])[row];
+	}
+
+	/**	Binds the values of a row to the parameters of a statement.
+	 *
+	 *	@param	statement	Prepared insert statement.
+	 *
+	 *	@param	row			Row index.
+	 *
+	 *	@throws	SQLException	error binding a value.
+	 */
+
+	private void bind (PreparedStatement statement, int row)
+		throws SQLException
+	{
+		for (int i = 0; i < columns.length; i++) {
+			int type = columnTypes[i];
+			if (nulls[i] != null && nulls[i].get(row)) {
+				statement.setNull(i + 1, type == INT ? Types.INTEGER :
+					type == LONG ? Types.BIGINT :
+					type == BYTE ? Types.TINYINT : Types.VARCHAR);
+				continue;
+			}
+			switch (type) {
+				case INT:
+					statement.setInt(i + 1, ((int[])columns[i])[row]);
+					break;
+				case LONG:
+					statement.setLong(i + 1, ((long[])columns[i])[row]);
+					break;
+				case BYTE:
+					statement.setByte(i + 1, ((byte[])columns[i])[row]);
+					break;
+				case STRING:
+					statement.setString(i + 1, ((String[])columns[i])[row]);
+					break;
+			}
+		}
+	}
+
+	/**	Counts the rows inserted by a JDBC batch.
+	 *
+	 *	@param	counts		Update counts returned by executeBatch.
+	 *
+	 *	@return				Number of rows inserted. Statements which
+	 *						succeeded with an unknown count are counted
+	 *						as one row each.
+	 */
+
+	private static int count (int[] counts) {
+		int result = 0;
+		for (int i = 0; i < counts.length; i++)
+			result += counts[i] == Statement.SUCCESS_NO_INFO ? 1 : counts[i];
+		return result;
+	}
+
+	/**	Serializes the batch.
+	 *
+	 *	<p>The column arrays are trimmed to the number of rows first.
+	 *
+	 *	@param	out		Object output stream.
+	 *
+	 *	@throws	IOException		I/O error.
+	 */
+
+	private void writeObject (ObjectOutputStream out)
+		throws IOException
+	{
+		for (int i = 0; i < columns.length; i++) {
+			if (java.lang.reflect.Array.getLength(columns[i]) != size)
+				columns[i] = copyColumn(columns[i], 0, size, size);
+		}
+		out.defaultWriteObject();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
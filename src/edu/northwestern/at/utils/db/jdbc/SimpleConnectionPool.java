@@ -4,6 +4,8 @@ package edu.northwestern.at.utils.db.jdbc;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.hibernate.internal.util.config.ConfigurationHelper;
 
@@ -18,7 +20,7 @@ import org.hibernate.internal.util.config.ConfigurationHelper;
  *	<li>username = Username. Required.
  *	<li>password = Password. Required.
  *	<li>maxPoolSize = maximum pool size (the maximum number of connections
- *		that can be checked out of the pool concurrently). Default = 5.
+ *		that can be checked out of the pool concurrently). Default = 10.
  *	<li>idleTimeout = Idle connection timeout in seconds. Default = 600
  *		(10 minutes).
  *	<li>autocommit = true if connections should be initialized to autocommit,
@@ -28,18 +30,34 @@ import org.hibernate.internal.util.config.ConfigurationHelper;
  *	<li>connectrionRetryInterval = amount of time to wait in between attempts
  *		to obtain a connection after failures, in milliseconds. Default =
  *		500 (0.5 seconds).
+ *	<li>checkoutTimeout = maximum time to wait for a connection when
+ *		maxPoolSize connections are already checked out, in milliseconds.
+ *		Default = 0 (do not wait).
+ *	<li>validationInterval = connections checked in less than this many
+ *		milliseconds ago are not tested when they are checked out again.
+ *		Default = 0 (always test).
+ *	<li>validationTimeout = timeout for the connection test query in
+ *		seconds. Default = 5.
  *	</ul>
  *
  *	<p>The pool starts out empty (no connections). When a connection is
  *	requested from the pool, if maxPoolSize connections have already been
- *	checked out, an exception is thrown. Otherwise, if the pool is not
- *	empty, the most recently used connection is checked out from the pool,
- *	tested, and returned. If the pool is empty, a new connection is created
- *	and returned.
+ *	checked out, the request waits up to checkoutTimeout milliseconds for
+ *	one to be released, then an exception is thrown. Otherwise, if the
+ *	pool is not empty, the most recently used connection is checked out
+ *	from the pool, tested, and returned. If the pool is empty, a new
+ *	connection is created and returned.
  *
- *	<p>Connections are tested when they are checked out. If a connection
- *	is bad, it is closed and a new one is created. The test query statement
- *	is "select 1".
+ *	<p>Connections are tested when they are checked out, unless they were
+ *	checked in less than validationInterval milliseconds ago. If a
+ *	connection is bad, it is closed and the next pooled connection is
+ *	tried. The test query statement is "select 1".
+ *
+ *	<p>Checkouts and checkins do not lock the pool. The limit on checked
+ *	out connections is kept by a semaphore and the idle connections are
+ *	kept in a concurrent deque, so creating and testing connections,
+ *	which require round trips to the database, never hold up other
+ *	threads.
  *
  *	<p>Simple connection pools are observable. Observers are notified
  *	whenever a bad connection is detected in the test and whenever it takes
@@ -53,6 +71,9 @@ import org.hibernate.internal.util.config.ConfigurationHelper;
  *	have not been used for idleTimout seconds are closed and removed from the
  *	pool.
  *
+ *	<p>The pool keeps usage and wait time counters. See
+ *	{@link #getStatistics getStatistics}.
+ *
  *	<p>Simple connection pools are thread-safe.
  */
 
@@ -74,6 +95,10 @@ public class SimpleConnectionPool extends Observable {
 
 	private static final int DEFAULT_CONNECTION_RETRY_INTERVAL = 500;
 
+	/**	Default validation timeout in seconds. */
+
+	private static final int DEFAULT_VALIDATION_TIMEOUT = 5;
+
 	/**	Properties for the pool. */
 
 	private Properties poolProperties;
@@ -94,13 +119,63 @@ public class SimpleConnectionPool extends Observable {
 
 	private int connectionRetryInterval;
 
-	/**	Treeset of pooled connections, ordered by last checkin time. */
+	/**	Checkout timeout in milliseconds. */
+
+	private int checkoutTimeout;
+
+	/**	Validation interval in milliseconds. */
+
+	private int validationInterval;
+
+	/**	Validation timeout in seconds. */
 
-	private TreeSet connections = null;
+	private int validationTimeout;
+
+	/**	Pooled connections, most recently checked in first. */
+
+	private ConcurrentLinkedDeque connections = new ConcurrentLinkedDeque();
+
+	/**	Permits to check out connections. */
+
+	private Semaphore permits;
 
 	/**	Number of checked out connections. */
 
-	private int numCheckedOut;
+	private AtomicInteger numCheckedOut = new AtomicInteger();
+
+	/**	Maximum number of connections checked out at once. */
+
+	private AtomicInteger peakCheckedOut = new AtomicInteger();
+
+	/**	Number of checkouts. */
+
+	private AtomicLong numCheckouts = new AtomicLong();
+
+	/**	Number of checkouts which failed because no connection was
+	 *	released in time.
+	 */
+
+	private AtomicLong numTimeouts = new AtomicLong();
+
+	/**	Number of connections created. */
+
+	private AtomicLong numCreated = new AtomicLong();
+
+	/**	Number of connections which failed the test. */
+
+	private AtomicLong numBad = new AtomicLong();
+
+	/**	Total time spent waiting for permits, in nanoseconds. */
+
+	private AtomicLong totalWait = new AtomicLong();
+
+	/**	Longest time spent waiting for a permit, in nanoseconds. */
+
+	private AtomicLong maxWait = new AtomicLong();
+
+	/**	True if the pool is closed. */
+
+	private volatile boolean closed;
 
 	/**	Idle connection timeout thread. */
 
@@ -112,7 +187,7 @@ public class SimpleConnectionPool extends Observable {
 
 	/**	Pooled connection info class. */
 
-	private static class ConnectionInfo implements Comparable {
+	private static class ConnectionInfo {
 
 		/**	The connection. */
 
@@ -131,27 +206,6 @@ public class SimpleConnectionPool extends Observable {
 			this.connection = connection;
 			this.lastCheckin = System.currentTimeMillis();
 		}
-
-		/**	Compares this object with another object.
-		 *
-		 *	@param	o		The object to be compared.
-		 *
-		 *	@return		A negative integer, zero, or a positive integer
-		 *				as this object is less than, equal to, or greater
-		 *				than the specified object. ConnectionInfo objects
-		 *				are ordered by last checkin time.
-		 */
-
-		public int compareTo (Object o) {
-			ConnectionInfo other = (ConnectionInfo)o;
-			if (lastCheckin < other.lastCheckin) {
-				return -1;
-			} else if (lastCheckin > other.lastCheckin) {
-				return +1;
-			} else {
-				return 0;
-			}
-		}
 	}
 
 	/**	Creates a connection pool.
@@ -165,8 +219,6 @@ public class SimpleConnectionPool extends Observable {
 		throws SQLException
 	{
 		this.poolProperties	= poolProperties;
-		connections	= new TreeSet();
-		numCheckedOut = 0;
 		maxPoolSize	= ConfigurationHelper.getInt("maxPoolSize",
 				poolProperties, DEFAULT_MAX_POOL_SIZE);
 		if (maxPoolSize <= 0) maxPoolSize = DEFAULT_MAX_POOL_SIZE;
@@ -182,6 +234,17 @@ public class SimpleConnectionPool extends Observable {
 			poolProperties, DEFAULT_CONNECTION_RETRY_INTERVAL);
 		if (connectionRetryInterval <= 0)
 			connectionRetryInterval = DEFAULT_CONNECTION_RETRY_INTERVAL;
+		checkoutTimeout = ConfigurationHelper.getInt("checkoutTimeout",
+			poolProperties, 0);
+		if (checkoutTimeout < 0) checkoutTimeout = 0;
+		validationInterval = ConfigurationHelper.getInt("validationInterval",
+			poolProperties, 0);
+		if (validationInterval < 0) validationInterval = 0;
+		validationTimeout = ConfigurationHelper.getInt("validationTimeout",
+			poolProperties, DEFAULT_VALIDATION_TIMEOUT);
+		if (validationTimeout < 0)
+			validationTimeout = DEFAULT_VALIDATION_TIMEOUT;
+		permits = new Semaphore(maxPoolSize);
 		String driverClassName = poolProperties.getProperty("driverClassName");
 		try {
 			Class.forName(driverClassName);
@@ -227,6 +290,7 @@ public class SimpleConnectionPool extends Observable {
 				Connection connection= DriverManager.getConnection(url, username,
 					password);
 				connection.setAutoCommit(autocommit);
+				numCreated.incrementAndGet();
 				if (numTries > 0) {
 					setChanged();
 					notifyObservers(
@@ -265,6 +329,7 @@ public class SimpleConnectionPool extends Observable {
 		Exception exception = null;
 		try {
 			statement = connection.createStatement();
+			statement.setQueryTimeout(validationTimeout);
 			resultSet = statement.executeQuery("select 1");
 			result = resultSet.next();
 		} catch (Exception e) {
@@ -277,6 +342,7 @@ public class SimpleConnectionPool extends Observable {
 			}
 		}
 		if (!result) {
+			numBad.incrementAndGet();
 			setChanged();
 			notifyObservers(
 				new Object[] {
@@ -301,16 +367,47 @@ public class SimpleConnectionPool extends Observable {
 	}
 
 	/**	Times out idle connections.
+	 *
+	 *	<p>A connection is closed only if this thread manages to remove it
+	 *	from the pool, so connections checked out concurrently are left
+	 *	alone.
 	 */
 
-	private synchronized void timeoutIdleConnections () {
-		long timeThreshold = System.currentTimeMillis() - 1000 * idleTimeout;
-		for (Iterator it = connections.iterator(); it.hasNext(); ) {
+	private void timeoutIdleConnections () {
+		long timeThreshold = System.currentTimeMillis() - 1000L * idleTimeout;
+		for (Iterator it = connections.descendingIterator(); it.hasNext(); ) {
 			ConnectionInfo info = (ConnectionInfo)it.next();
-			if (info.lastCheckin < timeThreshold) {
+			if (info.lastCheckin < timeThreshold && connections.remove(info))
 				closeConnection(info.connection);
-				it.remove();
-			}
+		}
+	}
+
+	/**	Waits for a permit to check out a connection.
+	 *
+	 *	@throws	SQLException	Maximum SQL connections exceeded.
+	 */
+
+	private void acquirePermit ()
+		throws SQLException
+	{
+		long start = System.nanoTime();
+		boolean acquired;
+		try {
+			acquired = checkoutTimeout == 0 ? permits.tryAcquire() :
+				permits.tryAcquire(checkoutTimeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted waiting for a connection.");
+		}
+		long wait = System.nanoTime() - start;
+		totalWait.addAndGet(wait);
+		long max = maxWait.get();
+		while (wait > max && !maxWait.compareAndSet(max, wait))
+			max = maxWait.get();
+		if (!acquired) {
+			numTimeouts.incrementAndGet();
+			throw new SQLException("Max connections already checked out." +
+				" (max = " + maxPoolSize + ")");
 		}
 	}
 
@@ -321,30 +418,42 @@ public class SimpleConnectionPool extends Observable {
 	 *	@throws	SQLException	Maximum SQL connections exceeded.
 	 */
 
-	public synchronized Connection getConnection ()
+	public Connection getConnection ()
 		throws SQLException
 	{
-		if (numCheckedOut >= maxPoolSize)
-			throw new SQLException("Max connections already checked out." +
-				" (max = " + maxPoolSize + ")");
+		if (closed) throw new SQLException("Connection pool is closed.");
+		acquirePermit();
 		Connection connection = null;
-		if (connections.size() == 0) {
-			connection = createConnection();
-		} else {
-			ConnectionInfo info = (ConnectionInfo)connections.last();
-			connections.remove(info);
-			connection = info.connection;
-			if (!alive(connection)) {
-				closeConnection(connection);
-				connection = createConnection();
+		try {
+			long validThreshold =
+				System.currentTimeMillis() - validationInterval;
+			ConnectionInfo info;
+			while ((info = (ConnectionInfo)connections.pollFirst()) != null) {
+				if (info.lastCheckin > validThreshold ||
+					alive(info.connection))
+				{
+					connection = info.connection;
+					break;
+				}
+				closeConnection(info.connection);
 			}
+			if (connection == null) connection = createConnection();
+		} catch (SQLException e) {
+			permits.release();
+			throw e;
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
 		}
-		numCheckedOut++;
+		numCheckouts.incrementAndGet();
+		int n = numCheckedOut.incrementAndGet();
+		int peak = peakCheckedOut.get();
+		while (n > peak && !peakCheckedOut.compareAndSet(peak, n))
+			peak = peakCheckedOut.get();
 
 		if (debug) {
 			System.out.println(
-				"SimpleConnectionPool: getConnection: numCheckedOut=" +
-					numCheckedOut);
+				"SimpleConnectionPool: getConnection: numCheckedOut=" + n);
 		}
 
 		return connection;
@@ -355,29 +464,43 @@ public class SimpleConnectionPool extends Observable {
 	 *	@param	connection	The connection to return to the pool.
 	 */
 
-	public synchronized void releaseConnection (Connection connection) {
-		connections.add(new ConnectionInfo(connection));
-		numCheckedOut--;
+	public void releaseConnection (Connection connection) {
+		ConnectionInfo info = new ConnectionInfo(connection);
+		connections.offerFirst(info);
+		if (closed && connections.remove(info)) closeConnection(connection);
+		int n = numCheckedOut.decrementAndGet();
+		permits.release();
 
 		if (debug) {
 			System.out.println(
-				"SimpleConnectionPool: releaseConnection: numCheckedOut=" +
-					numCheckedOut);
+				"SimpleConnectionPool: releaseConnection: numCheckedOut=" + n);
 		}
 	}
 
+	/**	Gets the pool statistics.
+	 *
+	 *	@return		A snapshot of the pool's usage and wait time counters.
+	 */
+
+	public ConnectionPoolStatistics getStatistics () {
+		return new ConnectionPoolStatistics(maxPoolSize, numCheckedOut.get(),
+			connections.size(), peakCheckedOut.get(), numCheckouts.get(),
+			numTimeouts.get(), numCreated.get(), numBad.get(),
+			totalWait.get(), maxWait.get());
+	}
+
 	/**	Closes the pool.
 	 *
-	 *	<p>The pool may not be reused after it is closed. All connections
-	 *	are closed.
+	 *	<p>The pool may not be reused after it is closed. All pooled
+	 *	connections are closed, and connections checked out at the time
+	 *	are closed when they are released.
 	 */
 
-	public synchronized void close() {
-		for (Iterator it = connections.iterator(); it.hasNext(); ) {
-			ConnectionInfo info = (ConnectionInfo)it.next();
+	public void close() {
+		closed = true;
+		ConnectionInfo info;
+		while ((info = (ConnectionInfo)connections.pollFirst()) != null)
 			closeConnection(info.connection);
-		}
-		connections = null;
 		idleTimeoutThread.interrupt();
 	}
 }
@@ -0,0 +1,260 @@
+package edu.northwestern.at.utils.db.mysql;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**	MySQL parallel table importer.
+ *
+ *	<p>Imports the data files written by a set of
+ *	{@link TableExporterImporter}s, loading several tables at the same time,
+ *	one table per database connection. Several data files may be added for
+ *	the same table; they are loaded one after the other on the same
+ *	connection. The largest tables are loaded first, so the import time is
+ *	not dominated by a big table started last.
+ *
+ *	<p>While a connection is loading, foreign key checks and unique checks
+ *	are turned off for its session, and each table's non-unique indexes are
+ *	disabled and rebuilt in one pass when its data files have been loaded.
+ *	(Disabling keys only affects MyISAM tables, and is ignored by InnoDB.)
+ *	The data files must therefore hold valid data; no checks are made.
+ *
+ *	<p>Each connection is used by at most one thread at a time. The caller
+ *	retains ownership of the connections, and must close them.
+ */
+
+public class TableImporter {
+
+	/**	Database connections. */
+
+	private Connection[] connections;
+
+	/**	True to use "load data local infile". */
+
+	private boolean local;
+
+	/**	Map from table name to list of exporter/importers, in order
+	 *	added.
+	 */
+
+	private Map<String, List<TableExporterImporter>> tables =
+		new LinkedHashMap<String, List<TableExporterImporter>>();
+
+	/**	Map from table name to number of rows imported. */
+
+	private Map<String, Integer> counts =
+		new ConcurrentHashMap<String, Integer>();
+
+	/**	Map from table name to elapsed import time in milliseconds. */
+
+	private Map<String, Long> times = new ConcurrentHashMap<String, Long>();
+
+	/**	Creates a new table importer.
+	 *
+	 *	@param	connections		JDBC connections to the MySQL database. One
+	 *							table is loaded on each connection at a
+	 *							time.
+	 *
+	 *	@param	local			True to send the data files to the server
+	 *							with "load data local infile", false if the
+	 *							server reads the data files itself.
+	 */
+
+	public TableImporter (Connection[] connections, boolean local) {
+		if (connections.length == 0)
+			throw new IllegalArgumentException("No connections");
+		this.connections = connections;
+		this.local = local;
+	}
+
+	/**	Adds a data file.
+	 *
+	 *	@param	ei		Table exporter/importer. It is closed if it is still
+	 *					open when its data is imported.
+	 */
+
+	public void add (TableExporterImporter ei) {
+		List<TableExporterImporter> list = tables.get(ei.getTableName());
+		if (list == null) {
+			list = new ArrayList<TableExporterImporter>();
+			tables.put(ei.getTableName(), list);
+		}
+		list.add(ei);
+	}
+
+	/**	Imports all the tables.
+	 *
+	 *	@throws	SQLException	Error executing update.
+	 */
+
+	public void importTables ()
+		throws SQLException
+	{
+		for (List<TableExporterImporter> list : tables.values()) {
+			for (TableExporterImporter ei : list) ei.close();
+		}
+		final List<String> names = new ArrayList<String>(tables.keySet());
+		final Map<String, Long> sizes = new HashMap<String, Long>();
+		for (String name : names) {
+			long size = 0;
+			for (TableExporterImporter ei : tables.get(name))
+				size += new File(ei.getPath()).length();
+			sizes.put(name, size);
+		}
+		Collections.sort(names,
+			new Comparator<String>() {
+				public int compare (String a, String b) {
+					return sizes.get(b).compareTo(sizes.get(a));
+				}
+			}
+		);
+		int numWorkers = Math.min(connections.length, names.size());
+		if (numWorkers <= 1) {
+			importTables(connections[0], new LinkedList<String>(names));
+			return;
+		}
+		final ConcurrentLinkedQueue<String> queue =
+			new ConcurrentLinkedQueue<String>(names);
+		ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for (int i = 0; i < numWorkers; i++) {
+			final Connection c = connections[i];
+			futures.add(pool.submit(
+				new Callable<Object>() {
+					public Object call () throws SQLException {
+						importTables(c, queue);
+						return null;
+					}
+				}
+			));
+		}
+		pool.shutdown();
+		try {
+			for (Future<Object> future : futures) future.get();
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted", e);
+		} catch (ExecutionException e) {
+			pool.shutdownNow();
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) throw (SQLException)cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new SQLException(cause);
+		}
+	}
+
+	/**	Imports tables on one connection.
+	 *
+	 *	@param	c		JDBC connection.
+	 *
+	 *	@param	names	Names of tables to import. Tables are removed
+	 *					from the front of the queue until it is empty.
+	 *
+	 *	@throws	SQLException	Error executing update.
+	 */
+
+	private void importTables (Connection c, Queue<String> names)
+		throws SQLException
+	{
+		Statement s = c.createStatement();
+		try {
+			s.executeUpdate("set foreign_key_checks = 0");
+			s.executeUpdate("set unique_checks = 0");
+			String name;
+			while ((name = names.poll()) != null) importTable(c, s, name);
+		} finally {
+			try {
+				s.executeUpdate("set unique_checks = 1");
+				s.executeUpdate("set foreign_key_checks = 1");
+			} finally {
+				s.close();
+			}
+		}
+	}
+
+	/**	Imports one table.
+	 *
+	 *	@param	c		JDBC connection.
+	 *
+	 *	@param	s		Statement.
+	 *
+	 *	@param	name	Table name.
+	 *
+	 *	@throws	SQLException	Error executing update.
+	 */
+
+	private void importTable (Connection c, Statement s, String name)
+		throws SQLException
+	{
+		long startTime = System.currentTimeMillis();
+		s.executeUpdate("alter table " + name + " disable keys");
+		int ct = 0;
+		try {
+			for (TableExporterImporter ei : tables.get(name))
+				ct += ei.importData(c, local);
+		} finally {
+			s.executeUpdate("alter table " + name + " enable keys");
+		}
+		counts.put(name, ct);
+		times.put(name, System.currentTimeMillis() - startTime);
+	}
+
+	/**	Gets the number of rows imported into a table.
+	 *
+	 *	@param	name	Table name.
+	 *
+	 *	@return			Number of rows imported, or 0 if none.
+	 */
+
+	public int getCount (String name) {
+		Integer ct = counts.get(name);
+		return ct == null ? 0 : ct.intValue();
+	}
+
+	/**	Gets the elapsed time to import a table.
+	 *
+	 *	@param	name	Table name.
+	 *
+	 *	@return			Elapsed time in milliseconds, or 0 if the table
+	 *					was not imported.
+	 */
+
+	public long getElapsedTime (String name) {
+		Long time = times.get(name);
+		return time == null ? 0 : time.longValue();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
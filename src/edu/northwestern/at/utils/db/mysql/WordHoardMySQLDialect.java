@@ -7,7 +7,12 @@ import org.hibernate.type.StandardBasicTypes;
 
 public class WordHoardMySQLDialect extends MySQL5Dialect {
     /**
-     * Register a custom function to provide regular expression matching in HQL.
+     * Register custom functions to provide regular expression matching
+     * and row checksums in HQL.
+     *
+     * <p>COUNTS_CHECKSUM(a, b, c) is an aggregate which combines the
+     * CRC-32 of each row's three values. Unlike a sum it changes when
+     * counts move from one row to another.
      */
     public WordHoardMySQLDialect() {
         super();
@@ -15,6 +20,11 @@ public class WordHoardMySQLDialect extends MySQL5Dialect {
                             "REGEXP_LIKE",
                             (SQLFunction) new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN, "?1 RLIKE ?2")
                         );
+        registerFunction(
+                            "COUNTS_CHECKSUM",
+                            (SQLFunction) new SQLFunctionTemplate(StandardBasicTypes.LONG,
+                                "bit_xor(crc32(concat_ws(':', ?1, ?2, ?3)))")
+                        );
     }
 }
 
@@ -0,0 +1,240 @@
+package edu.northwestern.at.utils.intcollections;
+
+/*	Please see the license information at the end of this file. */
+
+/**	A hash map from long keys to int values.
+ *
+ *	<p>The map uses open addressing with linear probing over parallel
+ *	primitive arrays, so no objects are allocated per entry. It is
+ *	intended for counting, where the usual HashMap of boxed Longs to
+ *	counter objects is both slow and memory-hungry.
+ *
+ *	<p>The value of a key which is not in the map is 0. Entries cannot be
+ *	removed.
+ *
+ *	<p>This class is not thread-safe.
+ */
+
+public class LongIntHashMap {
+
+	/**	Keys. */
+
+	private long[] keys;
+
+	/**	Values. */
+
+	private int[] values;
+
+	/**	True if slot is used. */
+
+	private boolean[] used;
+
+	/**	Number of entries. */
+
+	private int size;
+
+	/**	Size at which the table is grown. */
+
+	private int threshold;
+
+	/**	Constructs a new empty map.
+	 */
+
+	public LongIntHashMap () {
+		this(16);
+	}
+
+	/**	Constructs a new empty map with an initial capacity.
+	 *
+	 *	@param	capacity	Expected number of entries.
+	 */
+
+	public LongIntHashMap (int capacity) {
+		int n = 16;
+		while (n < capacity * 2) n <<= 1;
+		allocate(n);
+	}
+
+	/**	Allocates the tables.
+	 *
+	 *	@param	n		Table length, a power of 2.
+	 */
+
+	private void allocate (int n) {
+		keys = new long[n];
+		values = new int[n];
+		used = new boolean[n];
+		threshold = n / 2;
+	}
+
+	/**	Finds the slot for a key.
+	 *
+	 *	@param	key		Key.
+	 *
+	 *	@return			Slot index, either holding the key or unused.
+	 */
+
+	private int slot (long key) {
+		int mask = keys.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int i = (int)(h ^ (h >>> 32)) & mask;
+		while (used[i] && keys[i] != key) i = (i + 1) & mask;
+		return i;
+	}
+
+	/**	Doubles the table size.
+	 */
+
+	private void grow () {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(keys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (!oldUsed[i]) continue;
+			int j = slot(oldKeys[i]);
+			used[j] = true;
+			keys[j] = oldKeys[i];
+			values[j] = oldValues[i];
+		}
+	}
+
+	/**	Gets the value for a key.
+	 *
+	 *	@param	key		Key.
+	 *
+	 *	@return			Value, or 0 if none.
+	 */
+
+	public int get (long key) {
+		int i = slot(key);
+		return used[i] ? values[i] : 0;
+	}
+
+	/**	Returns true if the map contains a key.
+	 *
+	 *	@param	key		Key.
+	 *
+	 *	@return			True if the key is in the map.
+	 */
+
+	public boolean containsKey (long key) {
+		return used[slot(key)];
+	}
+
+	/**	Sets the value for a key.
+	 *
+	 *	@param	key		Key.
+	 *
+	 *	@param	value	Value.
+	 */
+
+	public void put (long key, int value) {
+		int i = slot(key);
+		if (!used[i]) {
+			if (size >= threshold) {
+				grow();
+				i = slot(key);
+			}
+			used[i] = true;
+			keys[i] = key;
+			size++;
+		}
+		values[i] = value;
+	}
+
+	/**	Adds to the value for a key.
+	 *
+	 *	@param	key		Key.
+	 *
+	 *	@param	delta	Amount to add.
+	 *
+	 *	@return			The new value.
+	 */
+
+	public int increment (long key, int delta) {
+		int i = slot(key);
+		if (!used[i]) {
+			if (size >= threshold) {
+				grow();
+				i = slot(key);
+			}
+			used[i] = true;
+			keys[i] = key;
+			values[i] = 0;
+			size++;
+		}
+		return values[i] += delta;
+	}
+
+	/**	Adds all the entries of another map to this one.
+	 *
+	 *	<p>Values for keys in both maps are summed.
+	 *
+	 *	@param	other	The other map.
+	 */
+
+	public void addAll (LongIntHashMap other) {
+		for (int i = 0; i < other.keys.length; i++) {
+			if (other.used[i]) increment(other.keys[i], other.values[i]);
+		}
+	}
+
+	/**	Returns the number of entries.
+	 *
+	 *	@return			Number of entries.
+	 */
+
+	public int size () {
+		return size;
+	}
+
+	/**	Returns the keys.
+	 *
+	 *	@return			Array of keys, in no particular order.
+	 */
+
+	public long[] keys () {
+		long[] result = new long[size];
+		int k = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) result[k++] = keys[i];
+		}
+		return result;
+	}
+
+	/**	Removes all entries.
+	 */
+
+	public void clear () {
+		java.util.Arrays.fill(used, false);
+		size = 0;
+	}
+
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,176 @@
+package edu.northwestern.at.utils.math.matrix;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.Arrays;
+
+/**	Implements a sparse matrix in compressed column form.
+ *
+ *	<p>
+ *	The non-zero elements are stored column by column.  See
+ *	{@link CompressedMatrix} for the storage layout.
+ *	Compressed column form suits matrices whose columns are traversed,
+ *	such as the right-hand matrix of a dense by sparse product.
+ *	</p>
+ */
+
+public class CompressedColumnMatrix extends CompressedMatrix
+{
+	/** Don't allow instantiation without size specification.
+	 */
+
+	protected CompressedColumnMatrix()
+	{
+	}
+
+	/** Create a matrix of the specified size.
+	 *
+	 *	@param	rows		Number of rows.
+	 *	@param	columns		Number of columns.
+	 *
+	 *	<p>
+	 *	Each element of the result matrix will be set to zero.
+	 *	</p>
+	 */
+
+	public CompressedColumnMatrix( int rows , int columns )
+	{
+		super( rows , columns );
+	}
+
+	/** Create a matrix from compressed column storage arrays.
+	 *
+	 *	@param	rows			Number of rows.
+	 *	@param	columns			Number of columns.
+	 *	@param	columnPointers	Offset of the first element of each
+	 *							column, followed by the number of
+	 *							elements.
+	 *	@param	rowIndices		Zero-based row index of each element,
+	 *							increasing within each column.
+	 *	@param	values			Value of each element.
+	 *
+	 *	@throws	IllegalArgumentException
+	 *				if the arrays are inconsistent with each other
+	 *				or with the matrix size.
+	 *
+	 *	<p>
+	 *	The arrays are used as is, not copied.
+	 *	</p>
+	 */
+
+	public CompressedColumnMatrix
+	(
+		int rows ,
+		int columns ,
+		int[] columnPointers ,
+		int[] rowIndices ,
+		double[] values
+	)
+	{
+		super( rows , columns , columnPointers , rowIndices , values );
+	}
+
+	/**	Is this matrix stored by rows?
+	 *
+	 *	@return		false.
+	 */
+
+	public boolean isRowMajor()
+	{
+		return false;
+	}
+
+	/**	Get all elements as a new matrix.
+	 *
+	 *	@return		Copy of all elements as another compressed
+	 *				column matrix.
+	 */
+
+	public Matrix getCopy()
+	{
+		int used	= getUsed();
+
+		return new CompressedColumnMatrix
+		(
+			rows ,
+			columns ,
+			(int[])pointers.clone() ,
+			Arrays.copyOf( indices , used ) ,
+			Arrays.copyOf( values , used )
+		);
+	}
+
+	/**	Get this matrix in compressed row form.
+	 *
+	 *	@return		Copy of this matrix stored by rows.
+	 */
+
+	public CompressedRowMatrix toCompressedRowMatrix()
+	{
+		Object[] storage	= exchangeMajorAndMinor();
+
+		return new CompressedRowMatrix
+		(
+			rows ,
+			columns ,
+			(int[])storage[ 0 ] ,
+			(int[])storage[ 1 ] ,
+			(double[])storage[ 2 ]
+		);
+	}
+
+	/**	Get this matrix in compressed column form.
+	 *
+	 *	@return		This matrix.
+	 */
+
+	public CompressedColumnMatrix toCompressedColumnMatrix()
+	{
+		return this;
+	}
+
+	/**	Get transpose of this matrix.
+	 *
+	 *	@return		The transpose as a compressed row matrix.
+	 */
+
+	public CompressedMatrix transpose()
+	{
+		int used	= getUsed();
+
+		return new CompressedRowMatrix
+		(
+			columns ,
+			rows ,
+			(int[])pointers.clone() ,
+			Arrays.copyOf( indices , used ) ,
+			Arrays.copyOf( values , used )
+		);
+	}
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
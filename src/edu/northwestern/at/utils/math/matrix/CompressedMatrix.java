@@ -0,0 +1,698 @@
+package edu.northwestern.at.utils.math.matrix;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.Arrays;
+
+/**	Base class for sparse matrices stored in compressed form.
+ *
+ *	<p>
+ *	A compressed matrix stores only its non-zero elements, grouped
+ *	by row ( {@link CompressedRowMatrix} ) or by column
+ *	( {@link CompressedColumnMatrix} ).  We call the grouping dimension
+ *	the major dimension and the other the minor dimension.
+ *	The storage consists of three primitive arrays.
+ *	</p>
+ *
+ *	<ul>
+ *	<li>pointers -- for each major index, the offset of its first
+ *		element in the indices and values arrays, followed by
+ *		the total number of elements.</li>
+ *	<li>indices -- the minor index of each element, in increasing
+ *		order within each major index.</li>
+ *	<li>values -- the value of each element.</li>
+ *	</ul>
+ *
+ *	<p>
+ *	All indices in the arrays are zero-based.  The Matrix methods
+ *	use one-based indices, as elsewhere in this package.
+ *	</p>
+ *
+ *	<p>
+ *	Getting an element takes a binary search in its major index.
+ *	Setting an existing non-zero element is done in place, but adding
+ *	or removing a non-zero element shifts all the elements which
+ *	follow it.  Use a {@link SparseMatrixBuilder} to create a
+ *	compressed matrix from scattered elements.
+ *	</p>
+ */
+
+public abstract class CompressedMatrix extends AbstractMatrix
+{
+	/** Offsets of the first element of each major index. */
+
+	protected int[] pointers;
+
+	/** Minor index of each element. */
+
+	protected int[] indices;
+
+	/** Value of each element. */
+
+	protected double[] values;
+
+	/** Don't allow instantiation without size specification.
+	 */
+
+	protected CompressedMatrix()
+	{
+	}
+
+	/** Create an empty compressed matrix of the specified size.
+	 *
+	 *	@param	rows		Number of rows.
+	 *	@param	columns		Number of columns.
+	 */
+
+	protected CompressedMatrix( int rows , int columns )
+	{
+		super( rows , columns );
+
+		pointers	= new int[ majors() + 1 ];
+		indices		= new int[ 0 ];
+		values		= new double[ 0 ];
+	}
+
+	/** Create a compressed matrix from compressed storage arrays.
+	 *
+	 *	@param	rows		Number of rows.
+	 *	@param	columns		Number of columns.
+	 *	@param	pointers	Offsets of the first element of each
+	 *						major index, followed by the number
+	 *						of elements.
+	 *	@param	indices		Minor index of each element.
+	 *	@param	values		Value of each element.
+	 *
+	 *	@throws	IllegalArgumentException
+	 *				if the arrays are inconsistent with each other
+	 *				or with the matrix size.
+	 *
+	 *	<p>
+	 *	The arrays are used as is, not copied.
+	 *	</p>
+	 */
+
+	protected CompressedMatrix
+	(
+		int rows ,
+		int columns ,
+		int[] pointers ,
+		int[] indices ,
+		double[] values
+	)
+	{
+		super( rows , columns );
+
+		if	(	( pointers.length != ( majors() + 1 ) ) ||
+				( pointers[ 0 ] != 0 ) ||
+				( indices.length < pointers[ majors() ] ) ||
+				( values.length < pointers[ majors() ] ) )
+		{
+			throw new IllegalArgumentException(
+				"Compressed storage arrays do not match matrix size" );
+		}
+
+		this.pointers	= pointers;
+		this.indices	= indices;
+		this.values		= values;
+	}
+
+	/**	Is this matrix stored by rows?
+	 *
+	 *	@return		true if the major dimension is rows,
+	 *				false if it is columns.
+	 */
+
+	public abstract boolean isRowMajor();
+
+	/**	Get the size of the major dimension.
+	 *
+	 *	@return		Number of rows for row-major storage,
+	 *				number of columns for column-major storage.
+	 */
+
+	protected int majors()
+	{
+		return isRowMajor() ? rows : columns;
+	}
+
+	/**	Get the size of the minor dimension.
+	 *
+	 *	@return		Number of columns for row-major storage,
+	 *				number of rows for column-major storage.
+	 */
+
+	protected int minors()
+	{
+		return isRowMajor() ? columns : rows;
+	}
+
+	/**	Get number of stored (non-zero) elements.
+	 *
+	 *	@return		Number of stored elements.
+	 */
+
+	public int getUsed()
+	{
+		return pointers[ majors() ];
+	}
+
+	/**	Find an element in the storage arrays.
+	 *
+	 *	@param	major	Zero-based major index.
+	 *	@param	minor	Zero-based minor index.
+	 *
+	 *	@return			Offset of the element in the indices and
+	 *					values arrays if it is stored, else
+	 *					( -( insertion offset ) - 1 ).
+	 */
+
+	protected int find( int major , int minor )
+	{
+		return Arrays.binarySearch
+		(
+			indices , pointers[ major ] , pointers[ major + 1 ] , minor
+		);
+	}
+
+	/**	Check that a position lies within the matrix.
+	 *
+	 *	@param	row		Row (one-based).
+	 *	@param	column	Column (one-based).
+	 *
+	 *	@return			true if the position lies within the matrix.
+	 */
+
+	protected boolean inBounds( int row , int column )
+	{
+		return	( row > 0 ) && ( row <= rows ) &&
+				( column > 0 ) && ( column <= columns );
+	}
+
+	/**	Gets value of element at given row and column.
+	 *
+	 *	@param row		Row in which the element occurs.
+	 *	@param column	Column in which the element occurs.
+	 *	@return			The value at the given position.
+	 */
+
+	public double get( int row , int column )
+	{
+		double result	= 0.0D;
+
+		if ( inBounds( row , column ) )
+		{
+			int offset	=
+				isRowMajor() ?
+					find( row - 1 , column - 1 ) :
+					find( column - 1 , row - 1 );
+
+			if ( offset >= 0 )
+			{
+				result	= values[ offset ];
+			}
+		}
+
+		return result;
+	}
+
+	/**	Set an element at the given position to a new value.
+	 *
+	 *	@param row		Row in which the element occurs.
+	 *	@param column	Column in which the element occurs.
+	 *	@param value	The new value to be set.
+	 *
+	 *	@throws	ArrayIndexOutOfBoundsException
+	 *				if the position lies outside the matrix.
+	 *
+	 *	<p>
+	 *	Only non-zero values are stored.  Adding or removing
+	 *	a non-zero element takes time proportional to the
+	 *	number of stored elements.
+	 *	</p>
+	 */
+
+	public void set( int row , int column , double value )
+	{
+		if ( !inBounds( row , column ) )
+		{
+			throw new ArrayIndexOutOfBoundsException(
+				"Element (" + row + "," + column + ") outside matrix" );
+		}
+
+		int major	= isRowMajor() ? row - 1 : column - 1;
+		int minor	= isRowMajor() ? column - 1 : row - 1;
+		int offset	= find( major , minor );
+
+		if ( offset >= 0 )
+		{
+			if ( value != 0.0D )
+			{
+				values[ offset ]	= value;
+			}
+			else
+			{
+				remove( major , offset );
+			}
+		}
+		else if ( value != 0.0D )
+		{
+			insert( major , -offset - 1 , minor , value );
+		}
+	}
+
+	/**	Insert an element into the storage arrays.
+	 *
+	 *	@param	major	Zero-based major index.
+	 *	@param	offset	Offset at which to insert the element.
+	 *	@param	minor	Zero-based minor index.
+	 *	@param	value	Value of the element.
+	 */
+
+	protected void insert( int major , int offset , int minor , double value )
+	{
+		int used	= getUsed();
+
+		if ( ( used == indices.length ) || ( used == values.length ) )
+		{
+			int capacity	= Math.max( 16 , 2 * used );
+
+			indices			= Arrays.copyOf( indices , capacity );
+			values			= Arrays.copyOf( values , capacity );
+		}
+
+		System.arraycopy(
+			indices , offset , indices , offset + 1 , used - offset );
+		System.arraycopy(
+			values , offset , values , offset + 1 , used - offset );
+
+		indices[ offset ]	= minor;
+		values[ offset ]	= value;
+
+		for ( int i = major + 1 ; i < pointers.length ; i++ )
+		{
+			pointers[ i ]++;
+		}
+	}
+
+	/**	Remove an element from the storage arrays.
+	 *
+	 *	@param	major	Zero-based major index.
+	 *	@param	offset	Offset of the element.
+	 */
+
+	protected void remove( int major , int offset )
+	{
+		int used	= getUsed();
+
+		System.arraycopy(
+			indices , offset + 1 , indices , offset , used - offset - 1 );
+		System.arraycopy(
+			values , offset + 1 , values , offset , used - offset - 1 );
+
+		for ( int i = major + 1 ; i < pointers.length ; i++ )
+		{
+			pointers[ i ]--;
+		}
+	}
+
+	/**	Get all elements as a two-dimensional double array.
+	 *
+	 *	@return		Copy of all elements as a two-dimensional double array.
+	 */
+
+	public double[][] get()
+	{
+		double[][] result	= new double[ rows ][ columns ];
+
+		boolean rowMajor	= isRowMajor();
+		int majors			= majors();
+
+		for ( int major = 0 ; major < majors ; major++ )
+		{
+			for ( int k = pointers[ major ] ; k < pointers[ major + 1 ] ; k++ )
+			{
+				if ( rowMajor )
+				{
+					result[ major ][ indices[ k ] ]	= values[ k ];
+				}
+				else
+				{
+					result[ indices[ k ] ][ major ]	= values[ k ];
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**	Get the elements of one major index as a dense array.
+	 *
+	 *	@param	major	Zero-based major index.
+	 *
+	 *	@return			Array of doubles with the elements.
+	 */
+
+	protected double[] getMajorData( int major )
+	{
+		double[] result	= new double[ minors() ];
+
+		for ( int k = pointers[ major ] ; k < pointers[ major + 1 ] ; k++ )
+		{
+			result[ indices[ k ] ]	= values[ k ];
+		}
+
+		return result;
+	}
+
+	/**	Get the elements of one minor index as a dense array.
+	 *
+	 *	@param	minor	Zero-based minor index.
+	 *
+	 *	@return			Array of doubles with the elements.
+	 */
+
+	protected double[] getMinorData( int minor )
+	{
+		double[] result	= new double[ majors() ];
+
+		for ( int major = 0 ; major < result.length ; major++ )
+		{
+			int offset	= find( major , minor );
+
+			if ( offset >= 0 )
+			{
+				result[ major ]	= values[ offset ];
+			}
+		}
+
+		return result;
+	}
+
+	/**	Get entire row as an array of doubles .
+	 *
+	 *	@param	row		Row to retrieve.
+	 *
+	 *	@return 		Array of doubles containing row data.
+	 */
+
+	public double[] getRowData( int row )
+	{
+		return isRowMajor() ? getMajorData( row - 1 ) : getMinorData( row - 1 );
+	}
+
+	/**	Get entire column as an array of doubles.
+	 *
+	 *	@param	column	Column to retrieve.
+	 *
+	 *	@return 		Array of doubles containing column data.
+	 */
+
+	public double[] getColumnData( int column )
+	{
+		return
+			isRowMajor() ?
+				getMinorData( column - 1 ) : getMajorData( column - 1 );
+	}
+
+	/**	Get column sums.
+	 *
+	 *	@return		Array of doubles containing the sum of each column.
+	 */
+
+	public double[] getColumnSums()
+	{
+		double[] result	= new double[ columns ];
+
+		boolean rowMajor	= isRowMajor();
+		int majors			= majors();
+
+		for ( int major = 0 ; major < majors ; major++ )
+		{
+			for ( int k = pointers[ major ] ; k < pointers[ major + 1 ] ; k++ )
+			{
+				result[ rowMajor ? indices[ k ] : major ]	+= values[ k ];
+			}
+		}
+
+		return result;
+	}
+
+	/**	Copy the storage arrays with the major and minor dimensions
+	 *	exchanged.
+	 *
+	 *	@return		Three-element array holding the new pointers ( int[] ),
+	 *				indices ( int[] ) and values ( double[] ).
+	 *
+	 *	<p>
+	 *	This converts row-major storage to column-major storage of
+	 *	the same matrix, and vice versa, with one counting pass over
+	 *	the elements.
+	 *	</p>
+	 */
+
+	protected Object[] exchangeMajorAndMinor()
+	{
+		int majors	= majors();
+		int minors	= minors();
+		int used	= getUsed();
+
+		int[] newPointers	= new int[ minors + 1 ];
+		int[] newIndices	= new int[ used ];
+		double[] newValues	= new double[ used ];
+
+		for ( int k = 0 ; k < used ; k++ )
+		{
+			newPointers[ indices[ k ] + 1 ]++;
+		}
+
+		for ( int i = 0 ; i < minors ; i++ )
+		{
+			newPointers[ i + 1 ]	+= newPointers[ i ];
+		}
+
+		int[] next	= Arrays.copyOf( newPointers , minors );
+
+								//	Major indices are visited in
+								//	increasing order, so they come out
+								//	sorted within each new major index.
+
+		for ( int major = 0 ; major < majors ; major++ )
+		{
+			for ( int k = pointers[ major ] ; k < pointers[ major + 1 ] ; k++ )
+			{
+				int offset				= next[ indices[ k ] ]++;
+
+				newIndices[ offset ]	= major;
+				newValues[ offset ]		= values[ k ];
+			}
+		}
+
+		return new Object[]{ newPointers , newIndices , newValues };
+	}
+
+	/**	Get this matrix in compressed row form.
+	 *
+	 *	@return		This matrix if it is already a
+	 *				CompressedRowMatrix, else a copy stored by rows.
+	 */
+
+	public abstract CompressedRowMatrix toCompressedRowMatrix();
+
+	/**	Get this matrix in compressed column form.
+	 *
+	 *	@return		This matrix if it is already a
+	 *				CompressedColumnMatrix, else a copy stored by columns.
+	 */
+
+	public abstract CompressedColumnMatrix toCompressedColumnMatrix();
+
+	/**	Get transpose of this matrix.
+	 *
+	 *	@return		The transpose.
+	 *
+	 *	<p>
+	 *	The transpose of a row-major matrix is the column-major
+	 *	matrix with the same storage, and vice versa, so the
+	 *	transpose is made from a plain copy of this matrix's
+	 *	storage arrays without reordering any elements.
+	 *	</p>
+	 */
+
+	public abstract CompressedMatrix transpose();
+
+	/**	Multiply this matrix by another matrix.
+	 *
+	 *	@param	b	Matrix by which to multiply this matrix on the right.
+	 *
+	 *	@return		Dense matrix containing this * b .
+	 *
+	 *	@throws		MatrixMismatchedSizeException
+	 *					when this and b do not conform for multiplication.
+	 *
+	 *	<p>
+	 *	Each stored element a(i,k) adds a(i,k) times row k of b to
+	 *	row i of the result, so the work is proportional to the
+	 *	number of stored elements times the number of columns of b.
+	 *	</p>
+	 */
+
+	public Matrix multiply( Matrix b )
+	{
+		if ( columns != b.rows() )
+		{
+			throw new MatrixMismatchedSizeException(
+				"Dimensions of matrices do not conform for multiplication" );
+		}
+
+		double[][] bData	= b.get();
+		double[][] result	= new double[ rows ][ b.columns() ];
+
+		boolean rowMajor	= isRowMajor();
+		int majors			= majors();
+
+		for ( int major = 0 ; major < majors ; major++ )
+		{
+			for ( int k = pointers[ major ] ; k < pointers[ major + 1 ] ; k++ )
+			{
+				double value		= values[ k ];
+
+				double[] resultRow	=
+					result[ rowMajor ? major : indices[ k ] ];
+
+				double[] bRow		=
+					bData[ rowMajor ? indices[ k ] : major ];
+
+				for ( int j = 0 ; j < bRow.length ; j++ )
+				{
+					resultRow[ j ]	+= value * bRow[ j ];
+				}
+			}
+		}
+
+		return new DenseMatrix( result );
+	}
+
+	/**	Multiply another matrix by this matrix.
+	 *
+	 *	@param	a	Matrix to multiply by this matrix on the right.
+	 *
+	 *	@return		Dense matrix containing a * this .
+	 *
+	 *	@throws		MatrixMismatchedSizeException
+	 *					when a and this do not conform for multiplication.
+	 *
+	 *	<p>
+	 *	Each stored element b(k,j) adds b(k,j) times column k of a to
+	 *	column j of the result, so the work is proportional to the
+	 *	number of stored elements times the number of rows of a.
+	 *	</p>
+	 */
+
+	public Matrix premultiply( Matrix a )
+	{
+		if ( a.columns() != rows )
+		{
+			throw new MatrixMismatchedSizeException(
+				"Dimensions of matrices do not conform for multiplication" );
+		}
+
+		double[][] aData	= a.get();
+		double[][] result	= new double[ aData.length ][ columns ];
+
+		boolean rowMajor	= isRowMajor();
+		int majors			= majors();
+
+								//	Work a row of a at a time
+								//	to stay within one row of a
+								//	and of the result.
+
+		for ( int i = 0 ; i < aData.length ; i++ )
+		{
+			double[] aRow		= aData[ i ];
+			double[] resultRow	= result[ i ];
+
+			for ( int major = 0 ; major < majors ; major++ )
+			{
+				for	(	int k = pointers[ major ] ;
+						k < pointers[ major + 1 ] ;
+						k++
+					)
+				{
+					int row		= rowMajor ? major : indices[ k ];
+					int column	= rowMajor ? indices[ k ] : major;
+
+					resultRow[ column ]	+= aRow[ row ] * values[ k ];
+				}
+			}
+		}
+
+		return new DenseMatrix( result );
+	}
+
+	/**	Get cross product of this matrix with itself.
+	 *
+	 *	@return		Dense matrix containing transpose( this ) * this .
+	 *
+	 *	<p>
+	 *	The work is proportional to the sum over the rows of the
+	 *	square of the number of stored elements in each row.
+	 *	</p>
+	 */
+
+	public Matrix crossProduct()
+	{
+		CompressedRowMatrix byRows	= toCompressedRowMatrix();
+
+		int[] rowPointers			= byRows.pointers;
+		int[] columnIndices			= byRows.indices;
+		double[] rowValues			= byRows.values;
+
+		double[][] result			= new double[ columns ][ columns ];
+
+		for ( int row = 0 ; row < rows ; row++ )
+		{
+			int first	= rowPointers[ row ];
+			int last	= rowPointers[ row + 1 ];
+
+			for ( int k = first ; k < last ; k++ )
+			{
+				double[] resultRow	= result[ columnIndices[ k ] ];
+				double value		= rowValues[ k ];
+
+				for ( int l = first ; l < last ; l++ )
+				{
+					resultRow[ columnIndices[ l ] ]	+= value * rowValues[ l ];
+				}
+			}
+		}
+
+		return new DenseMatrix( result );
+	}
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
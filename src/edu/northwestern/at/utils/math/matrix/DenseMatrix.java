@@ -35,6 +35,28 @@ public class DenseMatrix extends AbstractMatrix
 		matrixData		= new double[ rows ][ columns ];
 	}
 
+	/** Create a matrix which holds an existing array.
+	 *
+	 *	@param	matrixData	Array of rows, each of the same length.
+	 *
+	 *	<p>
+	 *	The array is used as is, not copied.  This allows
+	 *	operations which compute their results as arrays
+	 *	to return them as matrices without another copy.
+	 *	</p>
+	 */
+
+	protected DenseMatrix( double[][] matrixData )
+	{
+		super
+		(
+			matrixData.length ,
+			( matrixData.length > 0 ) ? matrixData[ 0 ].length : 0
+		);
+
+		this.matrixData	= matrixData;
+	}
+
 	/**	Set an element at the given position to a new value.
 	 *
 	 *	@param row		Row in which the element occurs.
@@ -66,6 +88,23 @@ public class DenseMatrix extends AbstractMatrix
 
 		return result;
 	}
+
+	/**	Get all elements as a two-dimensional double array.
+	 *
+	 *	@return		Copy of all elements as a two-dimensional double array.
+	 */
+
+	public double[][] get()
+	{
+		double[][] result	= new double[ rows ][];
+
+		for ( int i = 0 ; i < rows ; i++ )
+		{
+			result[ i ]	= (double[])matrixData[ i ].clone();
+		}
+
+		return result;
+	}
 }
 
 /*
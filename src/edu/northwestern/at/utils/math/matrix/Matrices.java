@@ -73,6 +73,91 @@ public class Matrices
 				MatrixFactory.createMatrix( rows, cols - rows ) );
 	}
 
+	/**	Get a matrix in compressed row form.
+	 *
+	 *	@param	m	The matrix.
+	 *
+	 *	@return		A new compressed row matrix with the same elements.
+	 */
+
+	public static CompressedRowMatrix sparse( Matrix m )
+	{
+		if ( m instanceof CompressedRowMatrix )
+		{
+			return (CompressedRowMatrix)m.getCopy();
+		}
+
+		if ( m instanceof CompressedMatrix )
+		{
+			return ((CompressedMatrix)m).toCompressedRowMatrix();
+		}
+
+		if ( m instanceof SparseMatrix )
+		{
+			return ((SparseMatrix)m).toCompressedRowMatrix();
+		}
+
+		double[][] values	= m.get();
+
+		SparseMatrixBuilder builder	=
+			new SparseMatrixBuilder( m.rows() , m.columns() );
+
+		for ( int i = 0 ; i < values.length ; i++ )
+		{
+			for ( int j = 0 ; j < values[ i ].length ; j++ )
+			{
+				builder.add( i + 1 , j + 1 , values[ i ][ j ] );
+			}
+		}
+
+		return builder.buildCompressedRowMatrix();
+	}
+
+	/**	Get a matrix in dense form.
+	 *
+	 *	@param	m	The matrix.
+	 *
+	 *	@return		A new dense matrix with the same elements.
+	 */
+
+	public static Matrix full( Matrix m )
+	{
+		return new DenseMatrix( m.get() );
+	}
+
+	/**	Get number of non-zero elements in a matrix.
+	 *
+	 *	@param	m	The matrix.
+	 *
+	 *	@return		Number of non-zero elements.  For a sparse
+	 *				matrix this is the number of stored elements.
+	 */
+
+	public static int nnz( Matrix m )
+	{
+		if ( m instanceof CompressedMatrix )
+		{
+			return ((CompressedMatrix)m).getUsed();
+		}
+
+		if ( m instanceof SparseMatrix )
+		{
+			return ((SparseMatrix)m).getUsed();
+		}
+
+		int result	= 0;
+
+		for ( int i = 1 ; i <= m.rows() ; i++ )
+		{
+			for ( int j = 1 ; j <= m.columns() ; j++ )
+			{
+				if ( m.get( i , j ) != 0.0D ) result++;
+			}
+		}
+
+		return result;
+	}
+
 	/**
 	 * Operators
 	 * @param	a	Input matrix
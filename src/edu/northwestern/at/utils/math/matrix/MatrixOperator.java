@@ -148,6 +148,11 @@ public class MatrixOperator
 	 *
 	 *	@throws		MatrixMismatchedSizeException
 	 *					when a and b do not conform for multiplication.
+	 *
+	 *	<p>
+	 *	When either matrix is a {@link CompressedMatrix} or a
+	 *	{@link SparseMatrix}, only its stored elements are visited.
+	 *	</p>
 	 */
 
 	public static Matrix multiply( Matrix a , Matrix b )
@@ -158,49 +163,63 @@ public class MatrixOperator
 		int rows_b		= b.rows();
 		int columns_b	= b.columns();
 
-		Matrix result;
-
 		if ( columns_a != rows_b )
 		{
 			throw new MatrixMismatchedSizeException(
 				"Dimensions of matrices do not conform for multiplication" );
 		}
-		else
+								//	Use sparse storage when available.
+
+		if ( a instanceof SparseMatrix )
+		{
+			a	= ((SparseMatrix)a).toCompressedRowMatrix();
+		}
+
+		if ( b instanceof SparseMatrix )
+		{
+			b	= ((SparseMatrix)b).toCompressedColumnMatrix();
+		}
+
+		if ( a instanceof CompressedMatrix )
+		{
+			return ((CompressedMatrix)a).multiply( b );
+		}
+
+		if ( b instanceof CompressedMatrix )
 		{
-			result	= MatrixFactory.createMatrix( rows_a , columns_b );
+			return ((CompressedMatrix)b).premultiply( a );
+		}
+								//	Both matrices are dense.
+
+		double[][] aData	= a.get();
+		double[][] bData	= b.get();
+		double[][] result	= new double[ rows_a ][ columns_b ];
 
 								// Pick row in a.
 
-			for ( int row_a = 1 ; row_a <= rows_a ; row_a++ )
-			{
-								// Pick a column in b.
+		for ( int row_a = 0 ; row_a < rows_a ; row_a++ )
+		{
+			double[] resultRow	= result[ row_a ];
 
-				for ( int column_b = 1 ; column_b <= columns_b ; column_b++ )
-				{
-								// Iterate over all cols in the selected
-								// row for a .
+								// Add each element in the row of a
+								// times the matching row of b.
 
-					for ( int column_a = 1 ; column_a <= columns_a ; column_a++ )
-					{
-						double sum	= 0.0D;
+			for ( int column_a = 0 ; column_a < columns_a ; column_a++ )
+			{
+				double element	= aData[ row_a ][ column_a ];
 
-								// Iterate over all rows in the selected
-								// column for b.
+				if ( element == 0.0D ) continue;
 
-						for ( int row_b = 1 ; row_b <= rows_b ; row_b++ )
-						{
-							sum	+=
-								a.get( row_a , row_b ) *
-								b.get( row_b , column_b );
-						}
+				double[] bRow	= bData[ column_a ];
 
-						result.set( row_a , column_b , sum );
-					}
+				for ( int column_b = 0 ; column_b < columns_b ; column_b++ )
+				{
+					resultRow[ column_b ]	+= element * bRow[ column_b ];
 				}
 			}
 		}
 
-		return result;
+		return MatrixFactory.createMatrix( result );
 	}
 
 	/**	Element by element matrix multiplication.
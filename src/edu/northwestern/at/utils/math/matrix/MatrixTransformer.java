@@ -394,6 +394,19 @@ public class MatrixTransformer
 
 	public static Matrix transpose( Matrix matrix )
 	{
+								//	Sparse matrices transpose
+								//	their own storage.
+
+		if ( matrix instanceof CompressedMatrix )
+		{
+			return ((CompressedMatrix)matrix).transpose();
+		}
+
+		if ( matrix instanceof SparseMatrix )
+		{
+			return ((SparseMatrix)matrix).transpose();
+		}
+
 		int rows		= matrix.rows();
 		int columns		= matrix.columns();
 
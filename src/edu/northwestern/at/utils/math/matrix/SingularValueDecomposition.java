@@ -52,6 +52,12 @@ public class SingularValueDecomposition
 	/**	Construct the singular value decomposition.
 	 *
 	 *	@param	matrix	Rectangular matrix to decompose.
+	 *
+	 *	<p>
+	 *	The matrix is copied into working storage with its get()
+	 *	method, so a sparse matrix is expanded by visiting only
+	 *	its stored elements.
+	 *	</p>
 	 */
 
 	public SingularValueDecomposition( Matrix matrix )
@@ -2,16 +2,41 @@ package edu.northwestern.at.utils.math.matrix;
 
 /*	Please see the license information at the end of this file. */
 
-import java.util.*;
+import java.util.Arrays;
 
-/**	Implements a sparse matrix using a hash map.
+/**	Implements a sparse matrix using a hash table of primitive values.
+ *
+ *	<p>
+ *	Only the non-zero elements are stored, in an open addressing
+ *	hash table keyed by the long value ( row - 1 ) * columns + ( column - 1 ).
+ *	Keys and values are held in parallel primitive arrays, so getting
+ *	and setting elements allocates no objects.
+ *	</p>
+ *
+ *	<p>
+ *	A sparse matrix suits elements which are set in no particular
+ *	order.  Convert it with {@link #toCompressedRowMatrix} or
+ *	{@link #toCompressedColumnMatrix} for arithmetic.
+ *	</p>
  */
 
 public class SparseMatrix extends AbstractMatrix implements Matrix
 {
-	/** The matrix contents as a two-dimensional array of doubles. */
+	/** Key of an empty slot. */
 
-	protected HashMap matrixData;
+	protected static final long EMPTY	= -1L;
+
+	/** Keys of the elements.  Length is a power of two. */
+
+	protected long[] keys;
+
+	/** Values of the elements. */
+
+	protected double[] values;
+
+	/** Number of stored elements. */
+
+	protected int used;
 
 	/** Don't allow instantiation without size specification.
 	 */
@@ -31,10 +56,153 @@ public class SparseMatrix extends AbstractMatrix implements Matrix
 	 */
 
 	public SparseMatrix( int rows , int columns )
+	{
+		this( rows , columns , 16 );
+	}
+
+	/** Create a matrix of the specified size.
+	 *
+	 *	@param	rows		Number of rows.
+	 *	@param	columns		Number of columns.
+	 *	@param	capacity	Expected number of non-zero elements.
+	 *
+	 *	<p>
+	 *	Each element of the result matrix will be set to zero.
+	 *	</p>
+	 */
+
+	public SparseMatrix( int rows , int columns , int capacity )
 	{
 		super( rows , columns );
 
-		matrixData		= new HashMap( rows * columns );
+		allocate( capacity );
+	}
+
+	/**	Allocate an empty hash table.
+	 *
+	 *	@param	capacity	Number of elements the table should
+	 *						hold without growing.
+	 */
+
+	protected void allocate( int capacity )
+	{
+		int length	= 16;
+
+		while ( length * 3 < capacity * 4 )
+		{
+			length	<<= 1;
+		}
+
+		keys	= new long[ length ];
+		values	= new double[ length ];
+		used	= 0;
+
+		Arrays.fill( keys , EMPTY );
+	}
+
+	/**	Get the hash table slot at which to start looking for a key.
+	 *
+	 *	@param	key		The key.
+	 *
+	 *	@return			Starting slot.
+	 */
+
+	protected int slot( long key )
+	{
+		long hash	= key * 0x9E3779B97F4A7C15L;
+
+		return (int)( hash ^ ( hash >>> 32 ) ) & ( keys.length - 1 );
+	}
+
+	/**	Find the slot holding a key.
+	 *
+	 *	@param	key		The key.
+	 *
+	 *	@return			The slot holding the key, or the empty slot
+	 *					at which the key would be stored.
+	 */
+
+	protected int find( long key )
+	{
+		int mask	= keys.length - 1;
+		int i		= slot( key );
+
+		while ( ( keys[ i ] != EMPTY ) && ( keys[ i ] != key ) )
+		{
+			i	= ( i + 1 ) & mask;
+		}
+
+		return i;
+	}
+
+	/**	Double the size of the hash table.
+	 */
+
+	protected void grow()
+	{
+		long[] oldKeys		= keys;
+		double[] oldValues	= values;
+
+		keys				= new long[ 2 * oldKeys.length ];
+		values				= new double[ 2 * oldKeys.length ];
+
+		Arrays.fill( keys , EMPTY );
+
+		for ( int i = 0 ; i < oldKeys.length ; i++ )
+		{
+			if ( oldKeys[ i ] != EMPTY )
+			{
+				int j		= find( oldKeys[ i ] );
+
+				keys[ j ]	= oldKeys[ i ];
+				values[ j ]	= oldValues[ i ];
+			}
+		}
+	}
+
+	/**	Remove the element in a slot.
+	 *
+	 *	@param	i	The slot.
+	 *
+	 *	<p>
+	 *	Later elements in the same probe sequence are moved back
+	 *	so that no deleted markers are needed.
+	 *	</p>
+	 */
+
+	protected void removeSlot( int i )
+	{
+		int mask	= keys.length - 1;
+		int j		= i;
+
+		while ( true )
+		{
+			j	= ( j + 1 ) & mask;
+
+			if ( keys[ j ] == EMPTY ) break;
+
+								//	Move the element in slot j
+								//	back to slot i unless its
+								//	starting slot lies cyclically
+								//	in (i, j].
+
+			int k	= slot( keys[ j ] );
+
+			if ( ( i <= j ) ? ( ( i < k ) && ( k <= j ) ) :
+				( ( i < k ) || ( k <= j ) ) )
+			{
+				continue;
+			}
+
+			keys[ i ]	= keys[ j ];
+			values[ i ]	= values[ j ];
+			i			= j;
+		}
+
+		keys[ i ]	= EMPTY;
+		values[ i ]	= 0.0D;
+
+		used--;
 	}
 
 	/**	Set an element at the given position to a new value.
@@ -43,6 +211,9 @@ public class SparseMatrix extends AbstractMatrix implements Matrix
 	 *	@param column	Column in which the element occurs.
 	 *	@param value	The new value to be set.
 	 *
+	 *	@throws	ArrayIndexOutOfBoundsException
+	 *				if the position lies outside the matrix.
+	 *
 	 *	<p>
 	 *	Note:  	only non-zero values are stored.
 	 *	</p>
@@ -50,20 +221,40 @@ public class SparseMatrix extends AbstractMatrix implements Matrix
 
 	public void set( int row, int column, double value )
 	{
-		String key		= row + ":" + column;
-		Object oValue	= matrixData.get( key );
+		if	(	( row < 1 ) || ( row > rows ) ||
+				( column < 1 ) || ( column > columns ) )
+		{
+			throw new ArrayIndexOutOfBoundsException(
+				"Element (" + row + "," + column + ") outside matrix" );
+		}
 
-								//	Remove existing value, if any.
+		long key	= (long)( row - 1 ) * columns + ( column - 1 );
+		int i		= find( key );
 
-		if ( oValue != null )
+		if ( keys[ i ] != EMPTY )
 		{
-			matrixData.remove( key ) ;
+			if ( value != 0.0D )
+			{
+				values[ i ]	= value;
+			}
+			else
+			{
+				removeSlot( i );
+			}
 		}
-								//	Add new value if non-zero.
-
-		if ( value != 0.0D )
+		else if ( value != 0.0D )
 		{
-			matrixData.put( key , Double.valueOf( value ) ) ;
+			keys[ i ]	= key;
+			values[ i ]	= value;
+
+			used++;
+								//	Keep the table at most three
+								//	quarters full.
+
+			if ( used * 4 > keys.length * 3 )
+			{
+				grow();
+			}
 		}
 	}
 
@@ -80,24 +271,132 @@ public class SparseMatrix extends AbstractMatrix implements Matrix
 
 		double	result	= 0.0D;
 
-		if	(	( row > 0 ) && ( row <= rows() ) &&
-		        ( columns > 0 ) && ( columns <= columns() ) )
+		if	(	( row > 0 ) && ( row <= rows ) &&
+		        ( column > 0 ) && ( column <= columns ) )
 		{
-			Object oValue	=
-				matrixData.get( row + ":" + column );
+			int i	= find( (long)( row - 1 ) * columns + ( column - 1 ) );
 
-			if ( oValue != null )
+			if ( keys[ i ] != EMPTY )
 			{
-				result	= ((Double)oValue).doubleValue();
+				result	= values[ i ];
 			}
 		}
 
 		return result;
 	}
 
+	/**	Get number of stored (non-zero) elements.
+	 *
+	 *	@return		Number of stored elements.
+	 */
+
 	public int getUsed()
 	{
-		return matrixData.size();
+		return used;
+	}
+
+	/**	Get all elements as a two-dimensional double array.
+	 *
+	 *	@return		Copy of all elements as a two-dimensional double array.
+	 */
+
+	public double[][] get()
+	{
+		double[][] result	= new double[ rows ][ columns ];
+
+		for ( int i = 0 ; i < keys.length ; i++ )
+		{
+			if ( keys[ i ] != EMPTY )
+			{
+				result[ (int)( keys[ i ] / columns ) ]
+					[ (int)( keys[ i ] % columns ) ]	= values[ i ];
+			}
+		}
+
+		return result;
+	}
+
+	/**	Get all elements as a new matrix.
+	 *
+	 *	@return		Copy of all elements as another sparse matrix.
+	 */
+
+	public Matrix getCopy()
+	{
+		SparseMatrix result	= new SparseMatrix( rows , columns );
+
+		result.keys			= (long[])keys.clone();
+		result.values		= (double[])values.clone();
+		result.used			= used;
+
+		return result;
+	}
+
+	/**	Get transpose of this matrix.
+	 *
+	 *	@return		The transpose as a sparse matrix.
+	 */
+
+	public SparseMatrix transpose()
+	{
+		SparseMatrix result	= new SparseMatrix( columns , rows , used );
+
+		for ( int i = 0 ; i < keys.length ; i++ )
+		{
+			if ( keys[ i ] != EMPTY )
+			{
+				result.set(
+					(int)( keys[ i ] % columns ) + 1 ,
+					(int)( keys[ i ] / columns ) + 1 ,
+					values[ i ] );
+			}
+		}
+
+		return result;
+	}
+
+	/**	Load the stored elements into a builder.
+	 *
+	 *	@return		Builder holding the stored elements.
+	 */
+
+	protected SparseMatrixBuilder toBuilder()
+	{
+		SparseMatrixBuilder result	=
+			new SparseMatrixBuilder( rows , columns , used );
+
+		for ( int i = 0 ; i < keys.length ; i++ )
+		{
+			if ( keys[ i ] != EMPTY )
+			{
+				result.add(
+					(int)( keys[ i ] / columns ) + 1 ,
+					(int)( keys[ i ] % columns ) + 1 ,
+					values[ i ] );
+			}
+		}
+
+		return result;
+	}
+
+	/**	Get this matrix in compressed row form.
+	 *
+	 *	@return		Copy of this matrix as a compressed row matrix.
+	 */
+
+	public CompressedRowMatrix toCompressedRowMatrix()
+	{
+		return toBuilder().buildCompressedRowMatrix();
+	}
+
+	/**	Get this matrix in compressed column form.
+	 *
+	 *	@return		Copy of this matrix as a compressed column matrix.
+	 */
+
+	public CompressedColumnMatrix toCompressedColumnMatrix()
+	{
+		return toBuilder().buildCompressedColumnMatrix();
 	}
 }
 
@@ -0,0 +1,330 @@
+package edu.northwestern.at.utils.math.matrix;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.Arrays;
+
+/**	Builds compressed sparse matrices from scattered elements.
+ *
+ *	<p>
+ *	Elements may be added in any order.  Elements added more than
+ *	once at the same position are summed, so a builder can accumulate
+ *	counts directly.  Building sorts the elements with two counting
+ *	passes, so it takes time proportional to the number of elements
+ *	plus the number of rows and columns.
+ *	</p>
+ *
+ *	<p>
+ *	A builder may be used to build any number of matrices,
+ *	in either compressed form, and may continue to accept
+ *	elements afterwards.
+ *	</p>
+ */
+
+public class SparseMatrixBuilder
+{
+	/** Number of rows. */
+
+	protected int rows;
+
+	/** Number of columns. */
+
+	protected int columns;
+
+	/** Zero-based row index of each element. */
+
+	protected int[] rowIndices;
+
+	/** Zero-based column index of each element. */
+
+	protected int[] columnIndices;
+
+	/** Value of each element. */
+
+	protected double[] values;
+
+	/** Number of elements added. */
+
+	protected int size;
+
+	/** Create a builder for a matrix of the specified size.
+	 *
+	 *	@param	rows		Number of rows.
+	 *	@param	columns		Number of columns.
+	 */
+
+	public SparseMatrixBuilder( int rows , int columns )
+	{
+		this( rows , columns , 16 );
+	}
+
+	/** Create a builder for a matrix of the specified size.
+	 *
+	 *	@param	rows		Number of rows.
+	 *	@param	columns		Number of columns.
+	 *	@param	capacity	Expected number of elements.
+	 */
+
+	public SparseMatrixBuilder( int rows , int columns , int capacity )
+	{
+		this.rows		= rows;
+		this.columns	= columns;
+
+		capacity		= Math.max( capacity , 1 );
+
+		rowIndices		= new int[ capacity ];
+		columnIndices	= new int[ capacity ];
+		values			= new double[ capacity ];
+	}
+
+	/**	Add a value to an element.
+	 *
+	 *	@param	row		Row of the element (one-based).
+	 *	@param	column	Column of the element (one-based).
+	 *	@param	value	Value to add.
+	 *
+	 *	@throws	ArrayIndexOutOfBoundsException
+	 *				if the position lies outside the matrix.
+	 */
+
+	public void add( int row , int column , double value )
+	{
+		if	(	( row < 1 ) || ( row > rows ) ||
+				( column < 1 ) || ( column > columns ) )
+		{
+			throw new ArrayIndexOutOfBoundsException(
+				"Element (" + row + "," + column + ") outside matrix" );
+		}
+
+		if ( value == 0.0D ) return;
+
+		if ( size == values.length )
+		{
+			int capacity	= 2 * size;
+
+			rowIndices		= Arrays.copyOf( rowIndices , capacity );
+			columnIndices	= Arrays.copyOf( columnIndices , capacity );
+			values			= Arrays.copyOf( values , capacity );
+		}
+
+		rowIndices[ size ]		= row - 1;
+		columnIndices[ size ]	= column - 1;
+		values[ size ]			= value;
+
+		size++;
+	}
+
+	/**	Get number of elements added.
+	 *
+	 *	@return		Number of elements added, counting repeated
+	 *				positions separately.
+	 */
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**	Remove all elements.
+	 */
+
+	public void clear()
+	{
+		size	= 0;
+	}
+
+	/**	Build a compressed row matrix.
+	 *
+	 *	@return		Compressed row matrix holding the sum of the
+	 *				elements added at each position.
+	 */
+
+	public CompressedRowMatrix buildCompressedRowMatrix()
+	{
+		Object[] storage	=
+			compress( rowIndices , rows , columnIndices , columns );
+
+		return new CompressedRowMatrix
+		(
+			rows ,
+			columns ,
+			(int[])storage[ 0 ] ,
+			(int[])storage[ 1 ] ,
+			(double[])storage[ 2 ]
+		);
+	}
+
+	/**	Build a compressed column matrix.
+	 *
+	 *	@return		Compressed column matrix holding the sum of the
+	 *				elements added at each position.
+	 */
+
+	public CompressedColumnMatrix buildCompressedColumnMatrix()
+	{
+		Object[] storage	=
+			compress( columnIndices , columns , rowIndices , rows );
+
+		return new CompressedColumnMatrix
+		(
+			rows ,
+			columns ,
+			(int[])storage[ 0 ] ,
+			(int[])storage[ 1 ] ,
+			(double[])storage[ 2 ]
+		);
+	}
+
+	/**	Compress the elements.
+	 *
+	 *	@param	majorIndices	Major index of each element.
+	 *	@param	majors			Size of major dimension.
+	 *	@param	minorIndices	Minor index of each element.
+	 *	@param	minors			Size of minor dimension.
+	 *
+	 *	@return					Three-element array holding the
+	 *							compressed pointers ( int[] ),
+	 *							indices ( int[] ) and values ( double[] ).
+	 *
+	 *	<p>
+	 *	Sorts the elements stably by minor index and then by major
+	 *	index, sums elements at the same position, and drops
+	 *	elements which sum to zero.
+	 *	</p>
+	 */
+
+	protected Object[] compress
+	(
+		int[] majorIndices ,
+		int majors ,
+		int[] minorIndices ,
+		int minors
+	)
+	{
+		int[] byMinor	= countingSort( minorIndices , minors , null );
+		int[] order		= countingSort( majorIndices , majors , byMinor );
+
+								//	Sum elements at the same position.
+
+		int[] entryMajors		= new int[ size ];
+		int[] entryMinors		= new int[ size ];
+		double[] entryValues	= new double[ size ];
+
+		int entries	= 0;
+
+		for ( int k = 0 ; k < size ; k++ )
+		{
+			int element	= order[ k ];
+			int major	= majorIndices[ element ];
+			int minor	= minorIndices[ element ];
+
+			if	(	( entries > 0 ) &&
+					( entryMajors[ entries - 1 ] == major ) &&
+					( entryMinors[ entries - 1 ] == minor ) )
+			{
+				entryValues[ entries - 1 ]	+= values[ element ];
+			}
+			else
+			{
+				entryMajors[ entries ]	= major;
+				entryMinors[ entries ]	= minor;
+				entryValues[ entries ]	= values[ element ];
+
+				entries++;
+			}
+		}
+								//	Drop zero sums and count the
+								//	elements in each major index.
+
+		int[] pointers		= new int[ majors + 1 ];
+		int used			= 0;
+
+		for ( int k = 0 ; k < entries ; k++ )
+		{
+			if ( entryValues[ k ] != 0.0D )
+			{
+				pointers[ entryMajors[ k ] + 1 ]++;
+
+				entryMinors[ used ]	= entryMinors[ k ];
+				entryValues[ used ]	= entryValues[ k ];
+
+				used++;
+			}
+		}
+
+		for ( int i = 0 ; i < majors ; i++ )
+		{
+			pointers[ i + 1 ]	+= pointers[ i ];
+		}
+
+		return new Object[]
+		{
+			pointers ,
+			Arrays.copyOf( entryMinors , used ) ,
+			Arrays.copyOf( entryValues , used )
+		};
+	}
+
+	/**	Stable counting sort of element numbers by a key.
+	 *
+	 *	@param	keys		Key of each element.
+	 *	@param	range		Keys lie in 0 to range - 1 .
+	 *	@param	input		Element numbers in input order,
+	 *						or null for 0 to size - 1 .
+	 *
+	 *	@return				Element numbers sorted by key,
+	 *						ties in input order.
+	 */
+
+	protected int[] countingSort( int[] keys , int range , int[] input )
+	{
+		int[] starts	= new int[ range + 1 ];
+
+		for ( int k = 0 ; k < size ; k++ )
+		{
+			starts[ keys[ k ] + 1 ]++;
+		}
+
+		for ( int i = 0 ; i < range ; i++ )
+		{
+			starts[ i + 1 ]	+= starts[ i ];
+		}
+
+		int[] result	= new int[ size ];
+
+		for ( int k = 0 ; k < size ; k++ )
+		{
+			int element	= ( input == null ) ? k : input[ k ];
+
+			result[ starts[ keys[ element ] ]++ ]	= element;
+		}
+
+		return result;
+	}
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -23,6 +23,20 @@ public class Covar
 
 	public static Matrix covariance( Matrix dataMatrix )
 	{
+								// Sparse data matrices use their
+								// cross product.
+
+		if ( dataMatrix instanceof SparseMatrix )
+		{
+			dataMatrix	=
+				((SparseMatrix)dataMatrix).toCompressedRowMatrix();
+		}
+
+		if ( dataMatrix instanceof CompressedMatrix )
+		{
+			return sparseCovariance( (CompressedMatrix)dataMatrix );
+		}
+
 								// Get number of rows and columns
 								// in data matrix.
 
@@ -82,6 +96,45 @@ public class Covar
 		return covarianceMatrix;
 	}
 
+	/** Generate a covariance matrix for a sparse data matrix.
+	 *
+	 *	@param		dataMatrix	The n x m sparse data matrix for which
+	 *							to compute a covariance matrix.
+	 *
+	 *	@return					The m-by-m covariance matrix.
+	 *
+	 *	<p>
+	 *	The sums of cross products about the means are computed
+	 *	from the raw cross products, X'X - n * mean * mean',
+	 *	so only the stored elements of the data matrix are visited.
+	 *	</p>
+	 */
+
+	protected static Matrix sparseCovariance( CompressedMatrix dataMatrix )
+	{
+		int	nCols	= dataMatrix.columns();
+		int	nRows	= dataMatrix.rows();
+
+		int df		= ( nRows  - 1 );
+
+		double[] sums			= dataMatrix.getColumnSums();
+		Matrix covarianceMatrix	= dataMatrix.crossProduct();
+
+		for ( int i = 1 ; i <= nCols ; i++ )
+		{
+			for ( int j = 1 ; j <= nCols ; j++ )
+			{
+				double crossProduct	=
+					covarianceMatrix.get( i , j ) -
+					sums[ i - 1 ] * sums[ j - 1 ] / nRows;
+
+				covarianceMatrix.set( i , j , crossProduct / df );
+			}
+		}
+
+		return covarianceMatrix;
+	}
+
 	/** Generate a correlation matrix.
 	 *
 	 *	@param		dataMatrix	The n x m data matrix for which to compute
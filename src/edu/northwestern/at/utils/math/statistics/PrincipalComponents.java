@@ -48,6 +48,12 @@ public class PrincipalComponents
 	/** Compute principal components of an (n x m) data matrix.
 	 *
 	 *	@param	dataMatrix	The data matrix.
+	 *
+	 *	<p>
+	 *	The data matrix may be sparse.  The correlations are then
+	 *	computed from its stored elements, but the standardized
+	 *	data matrix is dense, since standardizing fills in the zeros.
+	 *	</p>
 	 */
 
 	public PrincipalComponents( Matrix dataMatrix )
@@ -56,7 +62,7 @@ public class PrincipalComponents
 
 								// Get standardized data matrix.
 
-		standardizedDataMatrix	= this.dataMatrix.getCopy();
+		standardizedDataMatrix	= Matrices.full( this.dataMatrix );
 
 		meansAndSDs	=
 			Matrices.standardize( standardizedDataMatrix );
@@ -0,0 +1,361 @@
+package edu.northwestern.at.utils.metrics;
+
+/*	Please see the license information at the end of this file. */
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.management.*;
+
+/**	Metrics.
+ *
+ *	<p>Records the latency, number of rows, and number of second-level
+ *	cache hits of timed operations. Operations are grouped by category
+ *	(for example "query" or "search") and key. For queries the key is the
+ *	{@link #getShape shape} of the query string, so queries which differ
+ *	only in their literal values are counted together.
+ *
+ *	<p>To time an operation:
+ *
+ *	<pre>
+ *	Metrics.Probe probe = Metrics.start();
+ *	... perform the operation ...
+ *	Metrics.stop(probe, category, key, rows);
+ *	</pre>
+ *
+ *	<p>When metrics are disabled, {@link #start start} returns null and
+ *	{@link #stop stop} returns at once, so the cost of an instrumented
+ *	call is one volatile read. Metrics are disabled by default. They are
+ *	enabled by setting the "wordhoard.metrics" system property to
+ *	"true", or by calling {@link #setEnabled setEnabled}.
+ *
+ *	<p>This class is thread-safe.
+ */
+
+public class Metrics {
+
+	/**	Query category. */
+
+	public static final String QUERY = "query";
+
+	/**	Count query category. */
+
+	public static final String COUNT_QUERY = "count";
+
+	/**	Search category. */
+
+	public static final String SEARCH = "search";
+
+	/**	Analysis category. */
+
+	public static final String ANALYSIS = "analysis";
+
+	/**	Maximum number of distinct operations recorded. Operations beyond
+	 *	this are counted under a single "other" key for their category.
+	 */
+
+	private static final int MAX_OPERATIONS = 1000;
+
+	/**	Maximum length of a shape. */
+
+	private static final int MAX_SHAPE_LENGTH = 300;
+
+	/**	True if metrics are enabled. */
+
+	private static volatile boolean enabled =
+		Boolean.getBoolean("wordhoard.metrics");
+
+	/**	Maps category + "\t" + key to operation metrics. */
+
+	private static ConcurrentHashMap operations = new ConcurrentHashMap();
+
+	/**	Maps query strings to shapes. */
+
+	private static ConcurrentHashMap shapes = new ConcurrentHashMap();
+
+	/**	Number of cache hits by the current thread. */
+
+	private static ThreadLocal cacheHits =
+		new ThreadLocal() {
+			protected Object initialValue () {
+				return new long[1];
+			}
+		};
+
+	/**	A timed operation in progress. */
+
+	public static class Probe {
+
+		/**	Start time in nanoseconds. */
+
+		private long startTime;
+
+		/**	Cache hits by the thread when the operation started. */
+
+		private long startHits;
+
+		/**	Creates a new probe. */
+
+		private Probe () {
+			startHits = ((long[])cacheHits.get())[0];
+			startTime = System.nanoTime();
+		}
+
+	}
+
+	/**	Returns true if metrics are enabled.
+	 *
+	 *	@return		True if metrics are enabled.
+	 */
+
+	public static boolean isEnabled () {
+		return enabled;
+	}
+
+	/**	Enables or disables metrics.
+	 *
+	 *	<p>Recorded metrics are kept when metrics are disabled.
+	 *
+	 *	@param	enabled		True to enable metrics.
+	 */
+
+	public static void setEnabled (boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	/**	Starts timing an operation.
+	 *
+	 *	@return		A probe to pass to {@link #stop stop}, or null if
+	 *				metrics are disabled.
+	 */
+
+	public static Probe start () {
+		return enabled ? new Probe() : null;
+	}
+
+	/**	Stops timing an operation and records it.
+	 *
+	 *	@param	probe		Probe returned by {@link #start start}, or null.
+	 *
+	 *	@param	category	Category.
+	 *
+	 *	@param	key			Key. Query strings are converted to their
+	 *						shapes.
+	 *
+	 *	@param	rows		Number of rows, or -1 if the operation failed.
+	 */
+
+	public static void stop (Probe probe, String category, String key,
+		int rows)
+	{
+		if (probe == null) return;
+		long elapsed = System.nanoTime() - probe.startTime;
+		long hits = ((long[])cacheHits.get())[0] - probe.startHits;
+		if (QUERY.equals(category) || COUNT_QUERY.equals(category))
+			key = getShape(key);
+		getOperation(category, key).record(elapsed, rows, hits);
+	}
+
+	/**	Counts a second-level cache hit by the current thread.
+	 *
+	 *	<p>Called by the cache. The hits are charged to the operations
+	 *	being timed by the thread.
+	 */
+
+	public static void cacheHit () {
+		if (enabled) ((long[])cacheHits.get())[0]++;
+	}
+
+	/**	Gets the metrics for an operation.
+	 *
+	 *	@param	category	Category.
+	 *
+	 *	@param	key			Key.
+	 *
+	 *	@return				The operation metrics.
+	 */
+
+	private static OperationMetrics getOperation (String category,
+		String key)
+	{
+		String name = category + "\t" + key;
+		OperationMetrics result = (OperationMetrics)operations.get(name);
+		if (result != null) return result;
+		if (operations.size() >= MAX_OPERATIONS) {
+			key = "other";
+			name = category + "\t" + key;
+		}
+		result = new OperationMetrics(category, key);
+		OperationMetrics old =
+			(OperationMetrics)operations.putIfAbsent(name, result);
+		return old == null ? result : old;
+	}
+
+	/**	Gets the shape of a query string.
+	 *
+	 *	<p>The shape is the query string with string and numeric literals
+	 *	replaced by "?", lists of "?" in parentheses collapsed to one "?",
+	 *	and runs of white space collapsed to one space. The shape is
+	 *	truncated if it is longer than 300 characters.
+	 *
+	 *	@param	query		Query string.
+	 *
+	 *	@return				The shape of the query string.
+	 */
+
+	public static String getShape (String query) {
+		if (query == null) return "";
+		String shape = (String)shapes.get(query);
+		if (shape != null) return shape;
+		shape = computeShape(query);
+		if (shapes.size() >= MAX_OPERATIONS) shapes.clear();
+		shapes.put(query, shape);
+		return shape;
+	}
+
+	/**	Computes the shape of a query string.
+	 *
+	 *	@param	query		Query string.
+	 *
+	 *	@return				The shape of the query string.
+	 */
+
+	private static String computeShape (String query) {
+		StringBuffer buf = new StringBuffer();
+		int n = query.length();
+		int i = 0;
+		while (i < n && buf.length() < MAX_SHAPE_LENGTH) {
+			char c = query.charAt(i);
+			if (c == '\'') {
+				i++;
+				while (i < n) {
+					if (query.charAt(i) == '\'') {
+						if (i + 1 < n && query.charAt(i+1) == '\'') {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				i++;
+				appendParam(buf);
+			} else if (Character.isDigit(c) &&
+				(buf.length() == 0 ||
+				!Character.isJavaIdentifierPart(buf.charAt(buf.length()-1))))
+			{
+				while (i < n && (Character.isDigit(query.charAt(i)) ||
+					query.charAt(i) == '.'))
+						i++;
+				appendParam(buf);
+			} else if (Character.isWhitespace(c)) {
+				while (i < n && Character.isWhitespace(query.charAt(i))) i++;
+				if (buf.length() > 0) buf.append(' ');
+			} else {
+				buf.append(c);
+				i++;
+			}
+		}
+		int len = buf.length();
+		if (len > 0 && buf.charAt(len-1) == ' ') buf.setLength(len-1);
+		return buf.toString();
+	}
+
+	/**	Appends a parameter marker to a shape.
+	 *
+	 *	<p>A marker which follows "?," or "?, " in a list is dropped.
+	 *
+	 *	@param	buf		Shape.
+	 */
+
+	private static void appendParam (StringBuffer buf) {
+		int len = buf.length();
+		int k = len;
+		if (k > 0 && buf.charAt(k-1) == ' ') k--;
+		if (k > 1 && buf.charAt(k-1) == ',' && buf.charAt(k-2) == '?') {
+			buf.setLength(k-1);
+			return;
+		}
+		buf.append('?');
+	}
+
+	/**	Gets the statistics for all recorded operations.
+	 *
+	 *	@return		Array of operation statistics, in decreasing order
+	 *				of total time.
+	 */
+
+	public static OperationStatistics[] getStatistics () {
+		ArrayList list = new ArrayList();
+		for (Iterator it = operations.values().iterator(); it.hasNext(); )
+			list.add(((OperationMetrics)it.next()).getStatistics());
+		Collections.sort(list,
+			new Comparator() {
+				public int compare (Object o1, Object o2) {
+					long t1 = ((OperationStatistics)o1).getTotalNanos();
+					long t2 = ((OperationStatistics)o2).getTotalNanos();
+					return t1 > t2 ? -1 : t1 < t2 ? 1 : 0;
+				}
+			}
+		);
+		return (OperationStatistics[])list.toArray(
+			new OperationStatistics[list.size()]);
+	}
+
+	/**	Discards all recorded metrics.
+	 */
+
+	public static void reset () {
+		operations.clear();
+	}
+
+	/**	Registers the metrics MBean with the platform MBean server.
+	 *
+	 *	@param	name	Object name, e.g.,
+	 *					"edu.northwestern.at.wordhoard:type=Metrics".
+	 *
+	 *	@throws	JMException		error registering the MBean.
+	 */
+
+	public static void registerMBean (String name)
+		throws JMException
+	{
+		ManagementFactory.getPlatformMBeanServer().registerMBean(
+			new MetricsBean(), new ObjectName(name));
+	}
+
+	/** Hides the default no-arg constructor. */
+
+	private Metrics () {
+		throw new UnsupportedOperationException();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,85 @@
+package edu.northwestern.at.utils.metrics;
+
+/*	Please see the license information at the end of this file. */
+
+/**	JMX MBean for {@link Metrics}.
+ */
+
+class MetricsBean implements MetricsMXBean {
+
+	/**	Returns true if metrics are enabled.
+	 *
+	 *	@return		True if metrics are enabled.
+	 */
+
+	public boolean isEnabled () {
+		return Metrics.isEnabled();
+	}
+
+	/**	Enables or disables metrics.
+	 *
+	 *	@param	enabled		True to enable metrics.
+	 */
+
+	public void setEnabled (boolean enabled) {
+		Metrics.setEnabled(enabled);
+	}
+
+	/**	Gets the statistics for all recorded operations.
+	 *
+	 *	@return		Array of operation statistics, in decreasing order
+	 *				of total time.
+	 */
+
+	public OperationStatistics[] getOperations () {
+		return Metrics.getStatistics();
+	}
+
+	/**	Gets a one line summary of each recorded operation.
+	 *
+	 *	@return		Array of summaries, in decreasing order of total time.
+	 */
+
+	public String[] getSummary () {
+		OperationStatistics[] stats = Metrics.getStatistics();
+		String[] result = new String[stats.length];
+		for (int i = 0; i < stats.length; i++)
+			result[i] = stats[i].toString();
+		return result;
+	}
+
+	/**	Discards all recorded metrics.
+	 */
+
+	public void reset () {
+		Metrics.reset();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,171 @@
+package edu.northwestern.at.utils.metrics;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.concurrent.atomic.*;
+
+/**	Operation metrics.
+ *
+ *	<p>Accumulates the metrics for one operation. Latencies are counted in
+ *	a histogram with power-of-two buckets in microseconds: bucket 0 counts
+ *	latencies under 1 microsecond, and bucket i &gt; 0 counts latencies
+ *	from 2<sup>i-1</sup> up to 2<sup>i</sup> microseconds. Percentiles are
+ *	estimated from the bucket bounds, so they are accurate to within a
+ *	factor of two.
+ *
+ *	<p>This class is thread-safe. Recording does not lock.
+ */
+
+class OperationMetrics {
+
+	/**	Number of histogram buckets. */
+
+	static final int NUM_BUCKETS = 40;
+
+	/**	Category. */
+
+	private String category;
+
+	/**	Key. */
+
+	private String key;
+
+	/**	Number of calls. */
+
+	private LongAdder calls = new LongAdder();
+
+	/**	Number of failed calls. */
+
+	private LongAdder errors = new LongAdder();
+
+	/**	Total number of rows. */
+
+	private LongAdder rows = new LongAdder();
+
+	/**	Total number of cache hits. */
+
+	private LongAdder cacheHits = new LongAdder();
+
+	/**	Total elapsed time in nanoseconds. */
+
+	private LongAdder totalNanos = new LongAdder();
+
+	/**	Maximum elapsed time in nanoseconds. */
+
+	private AtomicLong maxNanos = new AtomicLong();
+
+	/**	Latency histogram. */
+
+	private AtomicLongArray histogram = new AtomicLongArray(NUM_BUCKETS);
+
+	/**	Creates new operation metrics.
+	 *
+	 *	@param	category	Category.
+	 *
+	 *	@param	key			Key.
+	 */
+
+	OperationMetrics (String category, String key) {
+		this.category = category;
+		this.key = key;
+	}
+
+	/**	Records a call.
+	 *
+	 *	@param	nanos		Elapsed time in nanoseconds.
+	 *
+	 *	@param	numRows		Number of rows, or -1 if the call failed.
+	 *
+	 *	@param	hits		Number of cache hits.
+	 */
+
+	void record (long nanos, int numRows, long hits) {
+		calls.increment();
+		if (numRows < 0) {
+			errors.increment();
+		} else {
+			rows.add(numRows);
+		}
+		if (hits > 0) cacheHits.add(hits);
+		totalNanos.add(nanos);
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos))
+			max = maxNanos.get();
+		long micros = nanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		if (bucket >= NUM_BUCKETS) bucket = NUM_BUCKETS - 1;
+		histogram.incrementAndGet(bucket);
+	}
+
+	/**	Gets the statistics.
+	 *
+	 *	@return		A snapshot of the metrics.
+	 */
+
+	OperationStatistics getStatistics () {
+		long[] counts = new long[NUM_BUCKETS];
+		long n = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			counts[i] = histogram.get(i);
+			n += counts[i];
+		}
+		long max = maxNanos.get();
+		return new OperationStatistics(category, key, calls.sum(),
+			errors.sum(), rows.sum(), cacheHits.sum(), totalNanos.sum(),
+			max, Math.min(percentile(counts, n, 0.50), max),
+			Math.min(percentile(counts, n, 0.95), max),
+			Math.min(percentile(counts, n, 0.99), max));
+	}
+
+	/**	Estimates a percentile from a histogram.
+	 *
+	 *	@param	counts		Bucket counts.
+	 *
+	 *	@param	n			Sum of the bucket counts.
+	 *
+	 *	@param	p			Percentile, between 0 and 1.
+	 *
+	 *	@return				Upper bound of the bucket containing the
+	 *						percentile, in nanoseconds, or 0 if the
+	 *						histogram is empty.
+	 */
+
+	private static long percentile (long[] counts, long n, double p) {
+		if (n == 0) return 0;
+		long rank = (long)Math.ceil(p * n);
+		long sum = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			sum += counts[i];
+			if (sum >= rank) return (1L << i) * 1000;
+		}
+		return (1L << (NUM_BUCKETS - 1)) * 1000;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
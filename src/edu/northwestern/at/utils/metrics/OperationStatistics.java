@@ -0,0 +1,261 @@
+package edu.northwestern.at.utils.metrics;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.Serializable;
+
+/**	Operation statistics.
+ *
+ *	<p>A snapshot of the metrics recorded by {@link Metrics} for one
+ *	operation.
+ */
+
+public class OperationStatistics implements Serializable {
+
+	/**	Category. */
+
+	private String category;
+
+	/**	Key. */
+
+	private String key;
+
+	/**	Number of calls. */
+
+	private long calls;
+
+	/**	Number of failed calls. */
+
+	private long errors;
+
+	/**	Total number of rows. */
+
+	private long rows;
+
+	/**	Total number of cache hits. */
+
+	private long cacheHits;
+
+	/**	Total elapsed time in nanoseconds. */
+
+	private long totalNanos;
+
+	/**	Maximum elapsed time in nanoseconds. */
+
+	private long maxNanos;
+
+	/**	Estimated median elapsed time in nanoseconds. */
+
+	private long p50Nanos;
+
+	/**	Estimated 95th percentile elapsed time in nanoseconds. */
+
+	private long p95Nanos;
+
+	/**	Estimated 99th percentile elapsed time in nanoseconds. */
+
+	private long p99Nanos;
+
+	/**	Creates a new operation statistics snapshot.
+	 *
+	 *	@param	category	Category.
+	 *
+	 *	@param	key			Key.
+	 *
+	 *	@param	calls		Number of calls.
+	 *
+	 *	@param	errors		Number of failed calls.
+	 *
+	 *	@param	rows		Total number of rows.
+	 *
+	 *	@param	cacheHits	Total number of cache hits.
+	 *
+	 *	@param	totalNanos	Total elapsed time in nanoseconds.
+	 *
+	 *	@param	maxNanos	Maximum elapsed time in nanoseconds.
+	 *
+	 *	@param	p50Nanos	Estimated median elapsed time in nanoseconds.
+	 *
+	 *	@param	p95Nanos	Estimated 95th percentile elapsed time in
+	 *						nanoseconds.
+	 *
+	 *	@param	p99Nanos	Estimated 99th percentile elapsed time in
+	 *						nanoseconds.
+	 */
+
+	public OperationStatistics (String category, String key, long calls,
+		long errors, long rows, long cacheHits, long totalNanos,
+		long maxNanos, long p50Nanos, long p95Nanos, long p99Nanos)
+	{
+		this.category = category;
+		this.key = key;
+		this.calls = calls;
+		this.errors = errors;
+		this.rows = rows;
+		this.cacheHits = cacheHits;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+		this.p50Nanos = p50Nanos;
+		this.p95Nanos = p95Nanos;
+		this.p99Nanos = p99Nanos;
+	}
+
+	/**	Gets the category.
+	 *
+	 *	@return		The category.
+	 */
+
+	public String getCategory () {
+		return category;
+	}
+
+	/**	Gets the key.
+	 *
+	 *	@return		The key. For queries, the query shape.
+	 */
+
+	public String getKey () {
+		return key;
+	}
+
+	/**	Gets the number of calls.
+	 *
+	 *	@return		The number of calls.
+	 */
+
+	public long getCalls () {
+		return calls;
+	}
+
+	/**	Gets the number of failed calls.
+	 *
+	 *	@return		The number of failed calls.
+	 */
+
+	public long getErrors () {
+		return errors;
+	}
+
+	/**	Gets the total number of rows.
+	 *
+	 *	@return		The total number of rows returned by successful calls.
+	 */
+
+	public long getRows () {
+		return rows;
+	}
+
+	/**	Gets the total number of cache hits.
+	 *
+	 *	@return		The total number of second-level cache hits.
+	 */
+
+	public long getCacheHits () {
+		return cacheHits;
+	}
+
+	/**	Gets the total elapsed time.
+	 *
+	 *	@return		The total elapsed time in nanoseconds.
+	 */
+
+	public long getTotalNanos () {
+		return totalNanos;
+	}
+
+	/**	Gets the total elapsed time in milliseconds.
+	 *
+	 *	@return		The total elapsed time in milliseconds.
+	 */
+
+	public double getTotalMillis () {
+		return totalNanos / 1e6;
+	}
+
+	/**	Gets the mean elapsed time in milliseconds.
+	 *
+	 *	@return		The mean elapsed time in milliseconds.
+	 */
+
+	public double getMeanMillis () {
+		return calls == 0 ? 0 : totalNanos / 1e6 / calls;
+	}
+
+	/**	Gets the maximum elapsed time in milliseconds.
+	 *
+	 *	@return		The maximum elapsed time in milliseconds.
+	 */
+
+	public double getMaxMillis () {
+		return maxNanos / 1e6;
+	}
+
+	/**	Gets the estimated median elapsed time in milliseconds.
+	 *
+	 *	@return		The estimated median elapsed time in milliseconds.
+	 */
+
+	public double getP50Millis () {
+		return p50Nanos / 1e6;
+	}
+
+	/**	Gets the estimated 95th percentile elapsed time in milliseconds.
+	 *
+	 *	@return		The estimated 95th percentile elapsed time in
+	 *				milliseconds.
+	 */
+
+	public double getP95Millis () {
+		return p95Nanos / 1e6;
+	}
+
+	/**	Gets the estimated 99th percentile elapsed time in milliseconds.
+	 *
+	 *	@return		The estimated 99th percentile elapsed time in
+	 *				milliseconds.
+	 */
+
+	public double getP99Millis () {
+		return p99Nanos / 1e6;
+	}
+
+	/**	Returns a string representation of the statistics.
+	 *
+	 *	@return		String representation.
+	 */
+
+	public String toString () {
+		return category + " calls=" + calls + " errors=" + errors +
+			" rows=" + rows + " cacheHits=" + cacheHits +
+			" meanMs=" + getMeanMillis() + " p95Ms=" + getP95Millis() +
+			" maxMs=" + getMaxMillis() + " " + key;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
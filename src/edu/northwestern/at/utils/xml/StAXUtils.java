@@ -0,0 +1,297 @@
+package edu.northwestern.at.utils.xml;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.*;
+import javax.xml.stream.*;
+import org.w3c.dom.*;
+
+/**	XML StAX utilities.
+ *
+ *	<p>These utilities support reading large XML files with a streaming
+ *	StAX parser while still handing small pieces of them to code written
+ *	for DOM trees. {@link #readElement readElement} turns the element at
+ *	the current position of a stream into a DOM subtree, so a caller can
+ *	stream over the big parts of a file and build DOM trees only for the
+ *	parts it is working on.
+ */
+
+public class StAXUtils {
+
+	/**	Property which asks the JDK parser to report CDATA sections as
+	 *	CDATA events rather than character data.
+	 */
+
+	private static final String REPORT_CDATA =
+		"http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+	/**	Creates a stream reader for an XML file.
+	 *
+	 *	@param	file		File.
+	 *
+	 *	@return				Stream reader. The caller must close both the
+	 *						reader and the file, which is done by
+	 *						{@link #close close}.
+	 *
+	 *	@throws	IOException	I/O error.
+	 *	@throws	XMLStreamException	XML parsing error.
+	 */
+
+	public static XMLStreamReader createReader (File file)
+		throws IOException, XMLStreamException
+	{
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		if (factory.isPropertySupported(REPORT_CDATA))
+			factory.setProperty(REPORT_CDATA, Boolean.TRUE);
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return new FileStreamReader(factory.createXMLStreamReader(
+				file.toURI().toString(), in), in);
+		} catch (XMLStreamException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**	Closes a stream reader created by {@link #createReader createReader}
+	 *	along with its file.
+	 *
+	 *	@param	reader		Stream reader.
+	 *
+	 *	@throws	IOException	I/O error.
+	 *	@throws	XMLStreamException	XML parsing error.
+	 */
+
+	public static void close (XMLStreamReader reader)
+		throws IOException, XMLStreamException
+	{
+		reader.close();
+		if (reader instanceof FileStreamReader)
+			((FileStreamReader)reader).in.close();
+	}
+
+	/**	Advances to the next start or end element.
+	 *
+	 *	<p>Character data, comments, processing instructions and DTD
+	 *	events are skipped.
+	 *
+	 *	@param	reader		Stream reader.
+	 *
+	 *	@return				XMLStreamConstants.START_ELEMENT,
+	 *						XMLStreamConstants.END_ELEMENT, or
+	 *						XMLStreamConstants.END_DOCUMENT.
+	 *
+	 *	@throws	XMLStreamException	XML parsing error.
+	 */
+
+	public static int nextElement (XMLStreamReader reader)
+		throws XMLStreamException
+	{
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT ||
+				event == XMLStreamConstants.END_ELEMENT) return event;
+		}
+		return XMLStreamConstants.END_DOCUMENT;
+	}
+
+	/**	Skips the current element.
+	 *
+	 *	@param	reader		Stream reader, positioned at a start element.
+	 *						On return the reader is positioned at the
+	 *						matching end element.
+	 *
+	 *	@throws	XMLStreamException	XML parsing error.
+	 */
+
+	public static void skipElement (XMLStreamReader reader)
+		throws XMLStreamException
+	{
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**	Gets the name of the current element.
+	 *
+	 *	@param	reader		Stream reader, positioned at a start or end
+	 *						element.
+	 *
+	 *	@return				The qualified name of the element, as it
+	 *						would be returned by Node.getNodeName for a
+	 *						DOM tree.
+	 */
+
+	public static String getName (XMLStreamReader reader) {
+		String prefix = reader.getPrefix();
+		String localName = reader.getLocalName();
+		return prefix == null || prefix.length() == 0 ?
+			localName : prefix + ":" + localName;
+	}
+
+	/**	Gets an attribute of the current element.
+	 *
+	 *	@param	reader		Stream reader, positioned at a start element.
+	 *
+	 *	@param	name		Attribute name.
+	 *
+	 *	@return				Attribute value, or the empty string if none,
+	 *						as for Element.getAttribute.
+	 */
+
+	public static String getAttribute (XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
+
+	/**	Creates a DOM element for the current element, without children.
+	 *
+	 *	@param	document	DOM document which owns the new element.
+	 *
+	 *	@param	reader		Stream reader, positioned at a start element.
+	 *
+	 *	@return				DOM element with the same name and attributes
+	 *						as the current element.
+	 */
+
+	public static Element createElement (Document document,
+		XMLStreamReader reader)
+	{
+		Element el = document.createElement(getName(reader));
+		int numAttributes = reader.getAttributeCount();
+		for (int i = 0; i < numAttributes; i++) {
+			String prefix = reader.getAttributePrefix(i);
+			String localName = reader.getAttributeLocalName(i);
+			String name = prefix == null || prefix.length() == 0 ?
+				localName : prefix + ":" + localName;
+			el.setAttribute(name, reader.getAttributeValue(i));
+		}
+		return el;
+	}
+
+	/**	Reads the current element into a DOM tree.
+	 *
+	 *	<p>The tree has the same text, CDATA section and comment nodes as a
+	 *	tree built by a DOM parser. Character data split over several
+	 *	events is joined into a single text node.
+	 *
+	 *	@param	document	DOM document which owns the new element. The
+	 *						element is not added to the document.
+	 *
+	 *	@param	reader		Stream reader, positioned at a start element.
+	 *						On return the reader is positioned at the
+	 *						matching end element.
+	 *
+	 *	@return				DOM element with all its descendant elements
+	 *						and text.
+	 *
+	 *	@throws	XMLStreamException	XML parsing error.
+	 */
+
+	public static Element readElement (Document document,
+		XMLStreamReader reader)
+			throws XMLStreamException
+	{
+		Element result = createElement(document, reader);
+		Node parent = result;
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					Element el = createElement(document, reader);
+					parent.appendChild(el);
+					parent = el;
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					parent = parent.getParentNode();
+					depth--;
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					String text = reader.getText();
+					Node last = parent.getLastChild();
+					if (last != null && last.getNodeType() == Node.TEXT_NODE) {
+						((Text)last).appendData(text);
+					} else {
+						parent.appendChild(document.createTextNode(text));
+					}
+					break;
+				case XMLStreamConstants.CDATA:
+					parent.appendChild(
+						document.createCDATASection(reader.getText()));
+					break;
+				case XMLStreamConstants.COMMENT:
+					parent.appendChild(
+						document.createComment(reader.getText()));
+					break;
+			}
+		}
+		return result;
+	}
+
+	/**	A stream reader which remembers its input stream, so that
+	 *	{@link #close close} can close both.
+	 */
+
+	private static class FileStreamReader
+		extends javax.xml.stream.util.StreamReaderDelegate
+	{
+		/**	The input stream. */
+
+		private InputStream in;
+
+		/**	Creates a new file stream reader.
+		 *
+		 *	@param	reader		Stream reader.
+		 *
+		 *	@param	in			Input stream.
+		 */
+
+		private FileStreamReader (XMLStreamReader reader, InputStream in) {
+			super(reader);
+			this.in = in;
+		}
+	}
+
+	/**	Hides the default no-arg constructor.
+	 */
+
+	private StAXUtils () {
+		throw new UnsupportedOperationException();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
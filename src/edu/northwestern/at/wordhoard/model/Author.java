@@ -12,6 +12,8 @@ import java.util.Set;
 
 import org.hibernate.Session;
 import org.hibernate.query.Query;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import edu.northwestern.at.utils.Compare;
 import edu.northwestern.at.wordhoard.model.grouping.GroupingObject;
@@ -25,6 +27,7 @@ import jakarta.persistence.Access;
 import jakarta.persistence.AccessType;
 import jakarta.persistence.AttributeOverride;
 import jakarta.persistence.AttributeOverrides;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
@@ -60,6 +63,8 @@ import jakarta.persistence.Transient;
  */
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @Table(name = "author",
        indexes = {
 		@Index(name = "birthYear_index", columnList = "birthYear"),
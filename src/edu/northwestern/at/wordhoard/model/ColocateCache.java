@@ -0,0 +1,300 @@
+package edu.northwestern.at.wordhoard.model;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+
+import edu.northwestern.at.utils.db.*;
+
+/**	A colocate cache.
+ *
+ *	<p>A colocate cache fetches the colocates of words by colocation
+ *	ordinal range and remembers which ranges have been loaded, so that
+ *	overlapping windows, as in a scrolling concordance or a collocate
+ *	analysis, are not queried again.
+ *
+ *	<p>Each batch of words is turned into a list of sorted, merged ordinal
+ *	ranges. The parts of those ranges which are not already in the cache
+ *	are fetched with range queries on the indexed colocationOrdinal
+ *	column, several ranges per query.
+ *
+ *	<p>The cache is bounded. When it holds more than the maximum number of
+ *	words, the least recently used ranges are dropped. The words in
+ *	dropped ranges remain in the Hibernate session; only the record of
+ *	which ranges have been loaded is lost.
+ *
+ *	<p>A colocate cache belongs to a single persistence manager, and must
+ *	be cleared whenever the persistence manager's session is cleared.
+ *
+ *	<p>This class is not thread-safe.
+ */
+
+public class ColocateCache {
+
+	/**	Default maximum number of cached words. */
+
+	public static final int DEFAULT_MAX_WORDS = 100000;
+
+	/**	Maximum number of ranges fetched by a single query. */
+
+	private static final int RANGES_PER_QUERY = 100;
+
+	/**	The persistence manager. */
+
+	private PersistenceManager pm;
+
+	/**	Maximum number of cached words. */
+
+	private int maxWords;
+
+	/**	Map from colocation ordinals to cached words. */
+
+	private TreeMap words = new TreeMap();
+
+	/**	Map from start ordinals to loaded ranges. The ranges are
+	 *	disjoint.
+	 */
+
+	private TreeMap ranges = new TreeMap();
+
+	/**	Loaded ranges, least recently used first. Keys are start
+	 *	ordinals, values are ranges.
+	 */
+
+	private LinkedHashMap lru = new LinkedHashMap(16, 0.75f, true);
+
+	/**	An ordinal range. */
+
+	private static class Range {
+		private long start;			// First ordinal
+		private long end;			// Last ordinal
+		private Range (long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**	Creates a new colocate cache.
+	 *
+	 *	@param	pm			Persistence manager.
+	 */
+
+	public ColocateCache (PersistenceManager pm) {
+		this(pm, DEFAULT_MAX_WORDS);
+	}
+
+	/**	Creates a new colocate cache with a maximum size.
+	 *
+	 *	@param	pm			Persistence manager.
+	 *
+	 *	@param	maxWords	Maximum number of cached words.
+	 */
+
+	public ColocateCache (PersistenceManager pm, int maxWords) {
+		this.pm = pm;
+		this.maxWords = maxWords;
+	}
+
+	/**	Gets colocates for a collection of words.
+	 *
+	 *	@param	words		Collection of words.
+	 *
+	 *	@param	leftSpan	Max distance to the left.
+	 *
+	 *	@param	rightSpan	Max distance to the right.
+	 *
+	 *	@return		A collection of all the words which are within
+	 *				"leftSpan" to "rightSpan" distance of one of the
+	 *				specified words, in colocation ordinal order.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public Collection getColocates (Collection words, int leftSpan,
+		int rightSpan)
+			throws PersistenceException
+	{
+		List wanted = mergeRanges(words, leftSpan, rightSpan);
+		ArrayList missing = new ArrayList();
+		for (Iterator it = wanted.iterator(); it.hasNext(); ) {
+			Range range = (Range)it.next();
+			addMissingRanges(range, missing);
+		}
+		fetch(missing);
+		ArrayList result = new ArrayList();
+		for (Iterator it = wanted.iterator(); it.hasNext(); ) {
+			Range range = (Range)it.next();
+			result.addAll(this.words.subMap(Long.valueOf(range.start), true,
+				Long.valueOf(range.end), true).values());
+		}
+		evict();
+		return result;
+	}
+
+	/**	Converts a collection of words to sorted merged ordinal ranges.
+	 *
+	 *	@param	words		Collection of words.
+	 *
+	 *	@param	leftSpan	Max distance to the left.
+	 *
+	 *	@param	rightSpan	Max distance to the right.
+	 *
+	 *	@return				List of disjoint ranges in increasing order.
+	 */
+
+	private static List mergeRanges (Collection words, int leftSpan,
+		int rightSpan)
+	{
+		long[] ordinals = new long[words.size()];
+		int n = 0;
+		for (Iterator it = words.iterator(); it.hasNext(); ) {
+			Word word = (Word)it.next();
+			if (word != null) ordinals[n++] = word.getColocationOrdinal();
+		}
+		Arrays.sort(ordinals, 0, n);
+		ArrayList result = new ArrayList();
+		Range current = null;
+		for (int i = 0; i < n; i++) {
+			long start = ordinals[i] - leftSpan;
+			long end = ordinals[i] + rightSpan;
+			if (current != null && start <= current.end + 1) {
+				if (end > current.end) current.end = end;
+			} else {
+				current = new Range(start, end);
+				result.add(current);
+			}
+		}
+		return result;
+	}
+
+	/**	Finds the parts of a range which are not yet loaded.
+	 *
+	 *	<p>Loaded ranges which overlap the range are marked as recently
+	 *	used.
+	 *
+	 *	@param	range		The range.
+	 *
+	 *	@param	missing		List to which missing ranges are added.
+	 */
+
+	private void addMissingRanges (Range range, List missing) {
+		long next = range.start;
+		Map.Entry floor = ranges.floorEntry(Long.valueOf(range.start));
+		Long from = floor == null ? Long.valueOf(range.start) :
+			(Long)floor.getKey();
+		Iterator it = ranges.tailMap(from, true).values().iterator();
+		while (it.hasNext() && next <= range.end) {
+			Range loaded = (Range)it.next();
+			if (loaded.end < next) continue;
+			if (loaded.start > range.end) break;
+			lru.get(Long.valueOf(loaded.start));
+			if (loaded.start > next) missing.add(new Range(next, loaded.start - 1));
+			next = loaded.end + 1;
+		}
+		if (next <= range.end) missing.add(new Range(next, range.end));
+	}
+
+	/**	Fetches ranges and adds them to the cache.
+	 *
+	 *	@param	missing		List of ranges to fetch.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private void fetch (List missing)
+		throws PersistenceException
+	{
+		int numMissing = missing.size();
+		for (int first = 0; first < numMissing; first += RANGES_PER_QUERY) {
+			int last = Math.min(numMissing, first + RANGES_PER_QUERY);
+			int numRanges = last - first;
+			StringBuffer buf = new StringBuffer(
+				"from Word word where ");
+			String[] paramNames = new String[numRanges * 2];
+			Object[] paramValues = new Object[numRanges * 2];
+			for (int i = 0; i < numRanges; i++) {
+				Range range = (Range)missing.get(first + i);
+				if (i > 0) buf.append(" or ");
+				buf.append("word.colocationOrdinal between :lo" + i +
+					" and :hi" + i);
+				paramNames[2*i] = "lo" + i;
+				paramNames[2*i+1] = "hi" + i;
+				paramValues[2*i] = Long.valueOf(range.start);
+				paramValues[2*i+1] = Long.valueOf(range.end);
+			}
+			Collection fetched = pm.query(buf.toString(), paramNames,
+				paramValues);
+			for (Iterator it = fetched.iterator(); it.hasNext(); ) {
+				Word word = (Word)it.next();
+				words.put(Long.valueOf(word.getColocationOrdinal()), word);
+			}
+			for (int i = first; i < last; i++) {
+				Range range = (Range)missing.get(i);
+				Long key = Long.valueOf(range.start);
+				ranges.put(key, range);
+				lru.put(key, range);
+			}
+		}
+	}
+
+	/**	Drops least recently used ranges until the cache is within
+	 *	its maximum size.
+	 */
+
+	private void evict () {
+		Iterator it = lru.values().iterator();
+		while (words.size() > maxWords && it.hasNext()) {
+			Range range = (Range)it.next();
+			it.remove();
+			ranges.remove(Long.valueOf(range.start));
+			words.subMap(Long.valueOf(range.start), true,
+				Long.valueOf(range.end), true).clear();
+		}
+	}
+
+	/**	Returns the number of cached words.
+	 *
+	 *	@return		Number of cached words.
+	 */
+
+	public int size () {
+		return words.size();
+	}
+
+	/**	Clears the cache.
+	 */
+
+	public void clear () {
+		words.clear();
+		ranges.clear();
+		lru.clear();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -16,6 +16,8 @@ import java.util.StringTokenizer;
 
 import org.hibernate.Session;
 import org.hibernate.query.Query;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import edu.northwestern.at.utils.Compare;
 import edu.northwestern.at.wordhoard.model.grouping.GroupingObject;
@@ -32,6 +34,7 @@ import jakarta.persistence.Access;
 import jakarta.persistence.AccessType;
 import jakarta.persistence.AttributeOverride;
 import jakarta.persistence.AttributeOverrides;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Embedded;
@@ -75,6 +78,8 @@ import jakarta.persistence.Transient;
  */
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @Table(name = "corpus", indexes =  @Index(name = "tag_index", columnList = "tag"))
 public class Corpus implements PersistentObject, CanCountWords,
 	GroupingObject, SearchDefaults, SearchCriterion,
@@ -3,6 +3,7 @@ package edu.northwestern.at.wordhoard.model;
 /*	Please see the license information at the end of this file. */
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -14,11 +15,14 @@ import edu.northwestern.at.utils.db.hibernate.HibernatePersistenceManager;
 import edu.northwestern.at.wordhoard.model.annotations.AnnotationCategory;
 import edu.northwestern.at.wordhoard.model.annotations.TextAnnotation;
 import edu.northwestern.at.wordhoard.model.bibtool.SearchWorkCriteria;
+import edu.northwestern.at.wordhoard.model.counts.CompactLexicon;
 import edu.northwestern.at.wordhoard.model.counts.LemmaCorpusCounts;
 import edu.northwestern.at.wordhoard.model.counts.LemmaWorkCounts;
 import edu.northwestern.at.wordhoard.model.morphology.Lemma;
+import edu.northwestern.at.wordhoard.model.search.CompletionIndex;
 import edu.northwestern.at.wordhoard.model.search.SearchCriteria;
 import edu.northwestern.at.wordhoard.model.search.SearchCriteriaLemmaSearch;
+import edu.northwestern.at.wordhoard.model.search.SearchResultStream;
 import edu.northwestern.at.wordhoard.model.text.CharsetUtils;
 
 /**	WordHoard persistence manager.
@@ -26,10 +30,21 @@ import edu.northwestern.at.wordhoard.model.text.CharsetUtils;
  *	<p>The "getxxx" and "findxxx" methods fetch objects and collections of
  *	objects by various criteria. They are implemented using Hibernate queries,
  *	which in turn become SQL select statements.</p>
+ *
+ *	<p>When the second-level cache is enabled, the read-only corpus objects
+ *	(corpora, work parts, authors, lemmas, parts of speech and word
+ *	classes) are cached across sessions, and lookups of them by tag or
+ *	name are cached queries in the read-only query region. Lemma/corpus
+ *	counts are not cached, because CalculateCounts updates them in place.
+ *	See {@link #warmCache warmCache}.</p>
  */
 
 public class PersistenceManager extends HibernatePersistenceManager {
 
+	/**	Colocate cache, or null if none created yet. */
+
+	private ColocateCache colocateCache;
+
 	/**	Creates a new persistence manager.
 	 *
 	 *	@throws	PersistenceException	error in persistence layer.
@@ -79,6 +94,35 @@ public class PersistenceManager extends HibernatePersistenceManager {
 			cache2);
 	}
 
+	/**	Warms the second-level cache.
+	 *
+	 *	<p>Fetches all the corpora, works, authors, word classes, and parts
+	 *	of speech with a new persistence manager, which puts them in the
+	 *	second-level cache. Sessions opened later find them there rather
+	 *	than in the database. Lemmas and lemma counts are cached as they
+	 *	are used.
+	 *
+	 *	<p>Does nothing if the second-level cache is not in use.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public static void warmCache ()
+		throws PersistenceException
+	{
+		if (getCacheStatistics().length == 0) return;
+		PersistenceManager pm = new PersistenceManager();
+		try {
+			pm.getAllCorpora();
+			pm.getAllWorks();
+			pm.getAllAuthors();
+			pm.getAllWordClasses();
+			pm.getAllPos();
+		} finally {
+			pm.close();
+		}
+	}
+
 	/**	Gets a persistence manager for the current thread.
 	 *
 	 *	@return		The current persistence manager.
@@ -359,7 +403,7 @@ public class PersistenceManager extends HibernatePersistenceManager {
 	public Corpus getCorpusByTag (String tag)
 		throws PersistenceException
 	{
-		Collection qList = query(
+		Collection qList = queryReadOnly(
 			"from Corpus corpus where corpus.tag = :tag",
 			new String[]{"tag"},
 			new Object[]{tag});
@@ -403,7 +447,7 @@ public class PersistenceManager extends HibernatePersistenceManager {
 	public WorkPart getWorkPartByTag (String tag)
 		throws PersistenceException
 	{
-		Collection qList = query(
+		Collection qList = queryReadOnly(
 			"select workpart " +
 			"from WorkPart workpart " +
 			"where workpart.tag = :tag",
@@ -454,7 +498,7 @@ public class PersistenceManager extends HibernatePersistenceManager {
 	{
 		String tagInsensitive = CharsetUtils.translateToInsensitive(tag);
 
-		Collection qList = query(
+		Collection qList = queryReadOnly(
 			"from Lemma lemma " +
 			"where lemma.tagInsensitive.string = :tagInsensitive",
 			new String[]{"tagInsensitive"},
@@ -498,7 +542,7 @@ public class PersistenceManager extends HibernatePersistenceManager {
 	public Author getAuthorByName (String name)
 		throws PersistenceException
 	{
-		Collection qList = query(
+		Collection qList = queryReadOnly(
 				"from Author author " +
 				"where author.name.string = :name",
 			new String[]{"name"},
@@ -781,6 +825,61 @@ public class PersistenceManager extends HibernatePersistenceManager {
 			new Object[]{corpus});
 	}
 
+	/**	Gets the lexicon for a corpus in compact form.
+	 *
+	 *	<p>Only the columns needed to display and sort the lexicon are
+	 *	fetched, so no lemma/corpus counts objects are created.
+	 *
+	 *	@param	corpus		Corpus.
+	 *
+	 *	@return				The compact lexicon.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public CompactLexicon getCompactLexicon (Corpus corpus)
+		throws PersistenceException
+	{
+		String version = getLexiconVersion(corpus);
+		List rows = query(
+			"select counts.lemma.id, counts.tag.string, " +
+			"counts.tag.charset, counts.majorClass, counts.colFreq, " +
+			"counts.docFreq from LemmaCorpusCounts counts where " +
+			"counts.corpus = :corpus",
+			new String[]{"corpus"},
+			new Object[]{corpus});
+		return new CompactLexicon(rows, corpus.getCharset(), version);
+	}
+
+	/**	Gets the version stamp of the lexicon for a corpus.
+	 *
+	 *	<p>The stamp is built from the number of lemma/corpus counts
+	 *	objects for the corpus and a checksum over each object's lemma
+	 *	and frequencies. Unlike summed frequencies, the checksum changes
+	 *	when counts move from one lemma to another, as they do when
+	 *	CalculateCounts updates the counts of a rebuilt work in place.
+	 *	It costs a single aggregate query.
+	 *
+	 *	@param	corpus		Corpus.
+	 *
+	 *	@return				The version stamp.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public String getLexiconVersion (Corpus corpus)
+		throws PersistenceException
+	{
+		List rows = query(
+			"select count(*), counts_checksum(counts.lemma.id, " +
+			"counts.colFreq, counts.docFreq) from LemmaCorpusCounts counts " +
+			"where counts.corpus = :corpus",
+			new String[]{"corpus"},
+			new Object[]{corpus});
+		Object[] row = (Object[])rows.get(0);
+		return row[0] + ":" + row[1];
+	}
+
 	/**	Gets lemma/pos/spelling counts.
 	 *
 	 *	@param	lemma		Lemma.
@@ -857,6 +956,12 @@ public class PersistenceManager extends HibernatePersistenceManager {
 	public Collection findLemmasByTagPrefix (String prefix, Corpus corpus)
 			throws PersistenceException
 	{
+		CompletionIndex completionIndex = CompletionIndex.getIndex();
+		if (completionIndex != null) {
+			Collection result =
+				completionIndex.findLemmas(prefix, corpus, this, 100);
+			if (result != null) return result;
+		}
 		String prefixInsensitive =
 			CharsetUtils.translateToInsensitive(prefix) + "%";
 		if (corpus == null) {
@@ -901,6 +1006,12 @@ public class PersistenceManager extends HibernatePersistenceManager {
 	public Collection findSpeakerNamesbyPrefix (String prefix, Corpus corpus)
 			throws PersistenceException
 	{
+		CompletionIndex completionIndex = CompletionIndex.getIndex();
+		if (completionIndex != null) {
+			Collection result =
+				completionIndex.findSpeakerNames(prefix, corpus, 100);
+			if (result != null) return result;
+		}
 		String prefixPat = prefix + "%";
 		if (corpus == null) {
 			return query(
@@ -942,6 +1053,9 @@ public class PersistenceManager extends HibernatePersistenceManager {
 	public Collection findAuthorsByNamePrefix (String prefix)
 			throws PersistenceException
 	{
+		CompletionIndex completionIndex = CompletionIndex.getIndex();
+		if (completionIndex != null)
+			return completionIndex.findAuthors(prefix, this, 100);
 		String prefixPat = prefix + "%";
 		return query(
 			"from Author author where author.name.string like :prefix " +
@@ -969,16 +1083,76 @@ public class PersistenceManager extends HibernatePersistenceManager {
 	public Collection getColocates (Collection words, int distance)
 		throws PersistenceException
 	{
-		return query(
-			"select colocate from Word colocate, Word word where " +
-			"word in (:words) and " +
-			"colocate.colocationOrdinal between " +
-			"word.colocationOrdinal - :distance and " +
-			"word.colocationOrdinal + :distance",
-			new String[]{"words", "distance"},
-			new Object[]{words, Long.valueOf(distance)});
+		return getColocates(words, distance, distance);
+	}
+
+	/**	Gets colocates for a collection of words.
+	 *
+	 *	<p>Colocates are fetched by colocation ordinal range and kept in
+	 *	this persistence manager's {@link ColocateCache colocate cache},
+	 *	so ranges which have already been loaded are not queried again.
+	 *
+	 *	@param	words		Collection of words.
+	 *
+	 *	@param	leftSpan	Max distance to the left.
+	 *
+	 *	@param	rightSpan	Max distance to the right.
+	 *
+	 *	@return		A collection of all the
+	 *				{@link edu.northwestern.at.wordhoard.model.Word
+	 *				words} which are within "leftSpan" to "rightSpan"
+	 *				distance of one of the specified words.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public Collection getColocates (Collection words, int leftSpan,
+		int rightSpan)
+			throws PersistenceException
+	{
+		if (colocateCache == null) colocateCache = new ColocateCache(this);
+		return colocateCache.getColocates(words, leftSpan, rightSpan);
+	}
+
+	/**	Clears the first-level cache and the colocate cache.
+	 */
+
+	public void clear ()
+	{
+		super.clear();
+		if (colocateCache != null) colocateCache.clear();
+	}
+
+	/**	Closes the persistence manager.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public void close ()
+		throws PersistenceException
+	{
+		colocateCache = null;
+		super.close();
 	}
 
+	/**	Query which loads words with the related objects needed in a
+	 *	concordance display. A "where" clause must be appended.
+	 */
+
+	private static final String CONCORDANCE_INFO_QUERY =
+		"from Word word " +
+		"left join fetch word.wordParts as wordPart " +
+		"left join fetch wordPart.lemPos as lemPos " +
+		"left join fetch lemPos.lemma as lemma " +
+		"left join fetch lemPos.pos " +
+		"left join fetch lemma.wordClass " +
+		"left join fetch word.speech as speech " +
+		"left join fetch speech.speakers " +
+		"left join fetch word.work as work " +
+		"left join fetch work.corpus " +
+		"left join fetch work.authors " +
+		"left join fetch word.workPart ";
+
 	/**	Preloads concordance information.
 	 *
 	 *	<p>This method is a performance optimization for concordance displays.
@@ -1000,24 +1174,54 @@ public class PersistenceManager extends HibernatePersistenceManager {
 			while (it.hasNext() && ct++ < /* 100 */ 10000)
 				batch.add(it.next());
 			query(
-				"from Word word " +
-				"left join fetch word.wordParts as wordPart " +
-				"left join fetch wordPart.lemPos as lemPos " +
-				"left join fetch lemPos.lemma as lemma " +
-				"left join fetch lemPos.pos " +
-				"left join fetch lemma.wordClass " +
-				"left join fetch word.speech as speech " +
-				"left join fetch speech.speakers " +
-				"left join fetch word.work as work " +
-				"left join fetch work.corpus " +
-				"left join fetch work.authors " +
-				"left join fetch word.workPart " +
+				CONCORDANCE_INFO_QUERY +
 				"where word in (:batch)",
 				new String[]{"batch"},
 				new Object[]{batch});
 		}
 	}
 
+	/**	Gets words and their concordance information by id.
+	 *
+	 *	<p>Used to load a page of search results which were found in
+	 *	another persistence manager and passed to this one by id. The
+	 *	words are loaded with the same related objects as
+	 *	{@link #preloadConcordanceInfo preloadConcordanceInfo}.
+	 *
+	 *	@param	wordIds		Word ids.
+	 *
+	 *	@return				List of the words, in the same order as the
+	 *						ids. An element is null if there is no word
+	 *						with the id.
+	 *
+	 *	@throws PersistenceException	error in persistence layer.
+	 */
+
+	public List getConcordanceWords (long[] wordIds)
+		throws PersistenceException
+	{
+		HashMap wordMap = new HashMap();
+		int i = 0;
+		while (i < wordIds.length) {
+			ArrayList batch = new ArrayList();
+			while (i < wordIds.length && batch.size() < 10000)
+				batch.add(Long.valueOf(wordIds[i++]));
+			List words = query(
+				CONCORDANCE_INFO_QUERY +
+				"where word.id in (:batch)",
+				new String[]{"batch"},
+				new Object[]{batch});
+			for (Iterator it = words.iterator(); it.hasNext(); ) {
+				Word word = (Word)it.next();
+				wordMap.put(word.getId(), word);
+			}
+		}
+		ArrayList result = new ArrayList(wordIds.length);
+		for (i = 0; i < wordIds.length; i++)
+			result.add(wordMap.get(Long.valueOf(wordIds[i])));
+		return result;
+	}
+
 	/**	Preloads adjacent words information.
 	 *
 	 *	<p>This method is a performance optimization for the concordance
@@ -1100,6 +1304,54 @@ public class PersistenceManager extends HibernatePersistenceManager {
 		}
 	}
 
+	/**	Searches for words, returning the results a page at a time.
+	 *
+	 *	@param	sq			Search criteria.
+	 *
+	 *	@param	pageSize	Maximum number of results per page.
+	 *
+	 *	@return		A stream of the
+	 *				{@link edu.northwestern.at.wordhoard.model.search.SearchResult
+	 *				search results} which match the search criteria,
+	 *				ordered by location (by work tag, then by ordinal
+	 *				within work).
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public SearchResultStream searchWordsStream (SearchCriteria sq,
+		int pageSize)
+			throws PersistenceException
+	{
+		try {
+			return sq.stream(session, pageSize);
+		} catch (org.hibernate.HibernateException e) {
+			throw new PersistenceException(e);
+		}
+	}
+
+	/**	Counts the results of a word search.
+	 *
+	 *	<p>The caller must first check that the results can be counted by
+	 *	a query using {@link SearchCriteria#canCount SearchCriteria.canCount}.
+	 *
+	 *	@param	sq			Search criteria.
+	 *
+	 *	@return		The number of search results.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public int countWords (SearchCriteria sq)
+		throws PersistenceException
+	{
+		try {
+			return sq.count(session);
+		} catch (org.hibernate.HibernateException e) {
+			throw new PersistenceException(e);
+		}
+	}
+
 	/**	Searches for works.
 	 *
 	 *	@param	sq		Work search criteria.
@@ -12,6 +12,8 @@ import java.util.Map;
 
 import org.hibernate.Session;
 import org.hibernate.query.Query;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import edu.northwestern.at.utils.Compare;
 import edu.northwestern.at.wordhoard.model.grouping.GroupingObject;
@@ -28,6 +30,7 @@ import jakarta.persistence.Access;
 import jakarta.persistence.AccessType;
 import jakarta.persistence.AttributeOverride;
 import jakarta.persistence.AttributeOverrides;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorColumn;
 import jakarta.persistence.DiscriminatorValue;
@@ -112,6 +115,8 @@ import jakarta.persistence.DiscriminatorType;
  */
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @Table(name="workpart", indexes =  @Index(name = "tag_index", columnList = "tag"))
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorValue("0")
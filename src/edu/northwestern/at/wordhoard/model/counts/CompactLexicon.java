@@ -0,0 +1,399 @@
+package edu.northwestern.at.wordhoard.model.counts;
+
+/*	Please see the license information at the end of this file. */
+
+import java.text.*;
+import java.util.*;
+
+import edu.northwestern.at.wordhoard.model.text.*;
+
+/**	A compact lexicon.
+ *
+ *	<p>A compact lexicon holds the lemma/corpus counts needed to display a
+ *	corpus lexicon in parallel primitive arrays, one entry per lemma,
+ *	instead of as persistent objects. Lemma tags are packed into a single
+ *	character array. Major word classes are stored as indices into a small
+ *	table.
+ *
+ *	<p>The entries are sorted once, when the lexicon is created, in each
+ *	of the orderings offered by the lexicon window. Each ordering is kept
+ *	as a permutation of the entry indices, so showing the lexicon in
+ *	another order or for a single major word class needs no sorting or
+ *	collation.
+ *
+ *	<p>Each compact lexicon carries the version stamp of the counts it
+ *	was built from (see
+ *	{@link edu.northwestern.at.wordhoard.model.PersistenceManager#getLexiconVersion
+ *	getLexiconVersion}), so a cached copy can be discarded when the
+ *	counts are rebuilt or updated.
+ *
+ *	<p>Compact lexicons are immutable and thread-safe.
+ */
+
+public class CompactLexicon {
+
+	/**	Order by lemma. */
+
+	public static final int ORDER_BY_LEMMA = 0;
+
+	/**	Order by decreasing frequency, then lemma. */
+
+	public static final int ORDER_BY_FREQUENCY_LEMMA = 1;
+
+	/**	Order by major word class, then lemma. */
+
+	public static final int ORDER_BY_CLASS_LEMMA = 2;
+
+	/**	Order by major word class, then decreasing frequency, then
+	 *	lemma.
+	 */
+
+	public static final int ORDER_BY_CLASS_FREQUENCY_LEMMA = 3;
+
+	/**	Order by decreasing number of works, then lemma. */
+
+	public static final int ORDER_BY_NUMWORKS_LEMMA = 4;
+
+	/**	Order by major word class, then decreasing number of works, then
+	 *	lemma.
+	 */
+
+	public static final int ORDER_BY_CLASS_NUMWORKS_LEMMA = 5;
+
+	/**	Number of orderings. */
+
+	private static final int NUM_ORDERINGS = 6;
+
+	/**	Number of bits in a sort key for the lemma rank. */
+
+	private static final int RANK_BITS = 24;
+
+	/**	Version stamp. */
+
+	private String version;
+
+	/**	Number of entries. */
+
+	private int size;
+
+	/**	Lemma ids. */
+
+	private long[] lemmaIds;
+
+	/**	Lemma tag characters, all tags run together. */
+
+	private char[] tagChars;
+
+	/**	Start offsets of the lemma tags in tagChars, plus the end offset
+	 *	of the last tag.
+	 */
+
+	private int[] tagOffsets;
+
+	/**	Lemma tag character sets. */
+
+	private byte[] tagCharsets;
+
+	/**	Major word classes, in increasing order. */
+
+	private String[] majorClasses;
+
+	/**	Major word class indices. */
+
+	private byte[] majorClassIndices;
+
+	/**	Collection frequencies. */
+
+	private int[] colFreqs;
+
+	/**	Document frequencies. */
+
+	private int[] docFreqs;
+
+	/**	Orderings, indexed by order by option. Each ordering is a
+	 *	permutation of the entry indices.
+	 */
+
+	private int[][] orderings = new int[NUM_ORDERINGS][];
+
+	/**	Creates a new compact lexicon.
+	 *
+	 *	@param	rows		List of rows. Each row is an Object[] array of
+	 *						lemma id (Long), tag string (String), tag
+	 *						character set (Byte), major word class (String),
+	 *						collection frequency (Integer), and document
+	 *						frequency (Integer).
+	 *
+	 *	@param	charset		Character set of the corpus, which selects the
+	 *						collator used to order the lemma tags.
+	 *
+	 *	@param	version		Version stamp of the counts.
+	 */
+
+	public CompactLexicon (List rows, byte charset, String version) {
+		this.version = version;
+		size = rows.size();
+		if (size >= (1 << RANK_BITS))
+			throw new IllegalArgumentException("Lexicon too large: " + size);
+		lemmaIds = new long[size];
+		tagOffsets = new int[size+1];
+		tagCharsets = new byte[size];
+		majorClassIndices = new byte[size];
+		colFreqs = new int[size];
+		docFreqs = new int[size];
+		String[] tags = new String[size];
+		String[] classes = new String[size];
+		TreeSet classSet = new TreeSet();
+		int numChars = 0;
+		for (int i = 0; i < size; i++) {
+			Object[] row = (Object[])rows.get(i);
+			lemmaIds[i] = ((Number)row[0]).longValue();
+			tags[i] = row[1] == null ? "" : (String)row[1];
+			tagCharsets[i] = ((Number)row[2]).byteValue();
+			classes[i] = row[3] == null ? "" : (String)row[3];
+			colFreqs[i] = ((Number)row[4]).intValue();
+			docFreqs[i] = ((Number)row[5]).intValue();
+			classSet.add(classes[i]);
+			numChars += tags[i].length();
+		}
+		tagChars = new char[numChars];
+		int offset = 0;
+		for (int i = 0; i < size; i++) {
+			tagOffsets[i] = offset;
+			tags[i].getChars(0, tags[i].length(), tagChars, offset);
+			offset += tags[i].length();
+		}
+		tagOffsets[size] = offset;
+		majorClasses = (String[])classSet.toArray(new String[classSet.size()]);
+		if (majorClasses.length > 256)
+			throw new IllegalArgumentException("Too many major word classes");
+		for (int i = 0; i < size; i++)
+			majorClassIndices[i] =
+				(byte)Arrays.binarySearch(majorClasses, classes[i]);
+		classes = null;
+		int[] ranks = rankTags(tags,
+			CharsetUtils.getCollator(charset, Collator.TERTIARY));
+		tags = null;
+		int[] byRank = new int[size];
+		for (int i = 0; i < size; i++) byRank[ranks[i]] = i;
+		for (int orderBy = 0; orderBy < NUM_ORDERINGS; orderBy++)
+			orderings[orderBy] = sort(orderBy, ranks, byRank);
+	}
+
+	/**	Ranks the lemma tags in collation order.
+	 *
+	 *	@param	tags		Lemma tags.
+	 *
+	 *	@param	collator	Collator.
+	 *
+	 *	@return				Rank of each tag, from 0 to size-1. Tags which
+	 *						collate equally are ranked in entry order.
+	 */
+
+	private static int[] rankTags (String[] tags, Collator collator) {
+		final CollationKey[] keys = new CollationKey[tags.length];
+		Integer[] indices = new Integer[tags.length];
+		for (int i = 0; i < tags.length; i++) {
+			keys[i] = collator.getCollationKey(tags[i]);
+			indices[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(indices,
+			new Comparator() {
+				public int compare (Object o1, Object o2) {
+					return keys[((Integer)o1).intValue()].compareTo(
+						keys[((Integer)o2).intValue()]);
+				}
+			}
+		);
+		int[] ranks = new int[tags.length];
+		for (int i = 0; i < indices.length; i++)
+			ranks[indices[i].intValue()] = i;
+		return ranks;
+	}
+
+	/**	Sorts the entries for an ordering.
+	 *
+	 *	<p>Each entry gets a long sort key made of its major word class
+	 *	index, its inverted frequency, and its lemma rank, as the ordering
+	 *	requires, so the entries are sorted as primitive longs. The lemma
+	 *	rank in the low bits makes the keys unique and maps them back to
+	 *	entries.
+	 *
+	 *	@param	orderBy		Order by option.
+	 *
+	 *	@param	ranks		Lemma ranks by entry.
+	 *
+	 *	@param	byRank		Entries by lemma rank.
+	 *
+	 *	@return				Permutation of the entry indices.
+	 */
+
+	private int[] sort (int orderBy, int[] ranks, int[] byRank) {
+		boolean byClass = orderBy == ORDER_BY_CLASS_LEMMA ||
+			orderBy == ORDER_BY_CLASS_FREQUENCY_LEMMA ||
+			orderBy == ORDER_BY_CLASS_NUMWORKS_LEMMA;
+		int[] freqs = null;
+		if (orderBy == ORDER_BY_FREQUENCY_LEMMA ||
+			orderBy == ORDER_BY_CLASS_FREQUENCY_LEMMA) freqs = colFreqs;
+		if (orderBy == ORDER_BY_NUMWORKS_LEMMA ||
+			orderBy == ORDER_BY_CLASS_NUMWORKS_LEMMA) freqs = docFreqs;
+		long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			long key = ranks[i];
+			if (freqs != null)
+				key |= (long)(Integer.MAX_VALUE - Math.max(freqs[i], 0))
+					<< RANK_BITS;
+			if (byClass)
+				key |= (long)(majorClassIndices[i] & 0xff) << (RANK_BITS + 31);
+			keys[i] = key;
+		}
+		Arrays.sort(keys);
+		int[] result = new int[size];
+		int rankMask = (1 << RANK_BITS) - 1;
+		for (int i = 0; i < size; i++)
+			result[i] = byRank[(int)keys[i] & rankMask];
+		return result;
+	}
+
+	/**	Gets the version stamp.
+	 *
+	 *	@return		The version stamp of the counts the lexicon was built
+	 *				from.
+	 */
+
+	public String getVersion () {
+		return version;
+	}
+
+	/**	Gets the number of entries.
+	 *
+	 *	@return		The number of entries.
+	 */
+
+	public int size () {
+		return size;
+	}
+
+	/**	Gets the lemma id of an entry.
+	 *
+	 *	@param	i		Entry index.
+	 *
+	 *	@return			The lemma id.
+	 */
+
+	public Long getLemmaId (int i) {
+		return Long.valueOf(lemmaIds[i]);
+	}
+
+	/**	Gets the lemma tag of an entry.
+	 *
+	 *	@param	i		Entry index.
+	 *
+	 *	@return			The lemma tag.
+	 */
+
+	public String getTag (int i) {
+		return new String(tagChars, tagOffsets[i],
+			tagOffsets[i+1] - tagOffsets[i]);
+	}
+
+	/**	Gets the lemma tag character set of an entry.
+	 *
+	 *	@param	i		Entry index.
+	 *
+	 *	@return			The character set of the lemma tag.
+	 */
+
+	public byte getTagCharset (int i) {
+		return tagCharsets[i];
+	}
+
+	/**	Gets the major word class of an entry.
+	 *
+	 *	@param	i		Entry index.
+	 *
+	 *	@return			The major word class.
+	 */
+
+	public String getMajorClass (int i) {
+		return majorClasses[majorClassIndices[i] & 0xff];
+	}
+
+	/**	Gets the collection frequency of an entry.
+	 *
+	 *	@param	i		Entry index.
+	 *
+	 *	@return			The number of times the lemma occurs in the corpus.
+	 */
+
+	public int getColFreq (int i) {
+		return colFreqs[i];
+	}
+
+	/**	Gets the document frequency of an entry.
+	 *
+	 *	@param	i		Entry index.
+	 *
+	 *	@return			The number of works in the corpus in which the
+	 *					lemma occurs.
+	 */
+
+	public int getDocFreq (int i) {
+		return docFreqs[i];
+	}
+
+	/**	Gets an ordering of the entries.
+	 *
+	 *	@param	orderBy		Order by option.
+	 *
+	 *	@param	majorClass	Major word class, or null for all the entries.
+	 *
+	 *	@return				The entry indices in order. The caller may
+	 *						modify the array.
+	 */
+
+	public int[] getOrdering (int orderBy, String majorClass) {
+		int[] ordering = orderings[orderBy];
+		if (majorClass == null) return (int[])ordering.clone();
+		int k = Arrays.binarySearch(majorClasses, majorClass);
+		if (k < 0) return new int[0];
+		int n = 0;
+		for (int i = 0; i < size; i++)
+			if ((majorClassIndices[i] & 0xff) == k) n++;
+		int[] result = new int[n];
+		n = 0;
+		for (int i = 0; i < size; i++) {
+			int entry = ordering[i];
+			if ((majorClassIndices[entry] & 0xff) == k) result[n++] = entry;
+		}
+		return result;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
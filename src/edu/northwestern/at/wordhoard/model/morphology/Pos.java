@@ -6,6 +6,8 @@ import java.io.Serializable;
 
 import org.hibernate.Session;
 import org.hibernate.query.Query;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import edu.northwestern.at.utils.Compare;
 import edu.northwestern.at.wordhoard.model.PersistentObject;
@@ -19,6 +21,7 @@ import edu.northwestern.at.wordhoard.model.wrappers.Spelling;
 
 import jakarta.persistence.Access;
 import jakarta.persistence.AccessType;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ForeignKey;
@@ -57,6 +60,8 @@ import jakarta.persistence.Transient;
  */
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @Table(name="pos")
 public class Pos implements GroupingObject, PersistentObject,
 	SearchDefaults, SearchCriterion, Serializable
@@ -0,0 +1,209 @@
+package edu.northwestern.at.wordhoard.model.search;
+
+/*	Please see the license information at the end of this file. */
+
+import java.text.CollationElementIterator;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.text.RuleBasedCollator;
+
+import java.util.HashMap;
+
+import edu.northwestern.at.wordhoard.model.text.CharsetUtils;
+
+/**	A collation key table.
+ *
+ *	<p>A collation key table maps each character to a code which
+ *	identifies its equivalence class under a collator at a strength, so
+ *	that two characters have the same code if and only if the collator
+ *	considers them equal. The key of a string is the string of the codes
+ *	of its characters. Two strings of the same length whose characters
+ *	all have codes are equal under the collator exactly when their keys
+ *	are equal, which turns collator comparisons of substrings into
+ *	character comparisons of keys.
+ *
+ *	<p>Only characters whose collation is one to one are given codes:
+ *	characters with a single primary weight, followed by any number of
+ *	secondary or tertiary weights. Combining marks, ignorable characters,
+ *	and characters which expand to more than one primary weight have no
+ *	code, and strings containing them have no key. Such strings must be
+ *	compared with the collator.
+ *
+ *	<p>Codes are computed as characters are first seen. Tables are
+ *	thread-safe.
+ */
+
+class CollationKeyTable {
+
+	/**	Code for characters which have no code. */
+
+	private static final char NO_CODE = '\uffff';
+
+	/**	Tables indexed by character set and strength. */
+
+	private static CollationKeyTable[][] tables =
+		new CollationKeyTable[2][3];
+
+	/**	Collator. This is a private clone, used only while holding its
+	 *	lock.
+	 */
+
+	private Collator collator;
+
+	/**	Codes indexed by character, 0 if not yet computed. */
+
+	private char[] codes = new char[0x10000];
+
+	/**	Map from single character collation keys to codes. */
+
+	private HashMap keyCodes = new HashMap();
+
+	/**	Next unused code. */
+
+	private char nextCode = 1;
+
+	/**	Gets the table for a character set and strength.
+	 *
+	 *	@param	charset		Character set.
+	 *
+	 *	@param	strength	Collation strength.
+	 *
+	 *	@return				The table.
+	 */
+
+	static synchronized CollationKeyTable getTable (byte charset,
+		int strength)
+	{
+		CollationKeyTable table = tables[charset][strength];
+		if (table == null) {
+			table = new CollationKeyTable((Collator)
+				CharsetUtils.getCollator(charset, strength).clone());
+			tables[charset][strength] = table;
+		}
+		return table;
+	}
+
+	/**	Creates a new collation key table.
+	 *
+	 *	@param	collator	Collator.
+	 */
+
+	private CollationKeyTable (Collator collator) {
+		this.collator = collator;
+	}
+
+	/**	Gets the key of a string.
+	 *
+	 *	@param	str		String.
+	 *
+	 *	@return			Key, or null if the string contains a character
+	 *					which has no code.
+	 */
+
+	String getKey (String str) {
+		int len = str.length();
+		char[] key = new char[len];
+		for (int i = 0; i < len; i++) {
+			char c = str.charAt(i);
+			char code = codes[c];
+			if (code == 0) code = computeCode(c);
+			if (code == NO_CODE) return null;
+			key[i] = code;
+		}
+		return new String(key);
+	}
+
+	/**	Computes the code for a character.
+	 *
+	 *	@param	c		Character.
+	 *
+	 *	@return			Code, or NO_CODE if none.
+	 */
+
+	private char computeCode (char c) {
+		synchronized (collator) {
+			if (codes[c] != 0) return codes[c];
+			char code = NO_CODE;
+			String str = String.valueOf(c);
+			if (isOneToOne(str) && nextCode < NO_CODE) {
+				CollationKey collationKey = collator.getCollationKey(str);
+				String keyString =
+					new String(toChars(collationKey.toByteArray()));
+				Character keyCode = (Character)keyCodes.get(keyString);
+				if (keyCode == null) {
+					keyCode = Character.valueOf(nextCode++);
+					keyCodes.put(keyString, keyCode);
+				}
+				code = keyCode.charValue();
+			}
+			codes[c] = code;
+			return code;
+		}
+	}
+
+	/**	Returns true if a character has a one to one collation.
+	 *
+	 *	@param	str		The character, as a string.
+	 *
+	 *	@return			True if the first collation element of the
+	 *					character has a primary weight and no other
+	 *					element does.
+	 */
+
+	private boolean isOneToOne (String str) {
+		if (!(collator instanceof RuleBasedCollator)) return false;
+		CollationElementIterator it =
+			((RuleBasedCollator)collator).getCollationElementIterator(str);
+		int element = it.next();
+		if (element == CollationElementIterator.NULLORDER ||
+			CollationElementIterator.primaryOrder(element) == 0)
+				return false;
+		while ((element = it.next()) != CollationElementIterator.NULLORDER) {
+			if (CollationElementIterator.primaryOrder(element) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**	Converts bytes to chars.
+	 *
+	 *	@param	bytes	Bytes.
+	 *
+	 *	@return			Chars, one per byte.
+	 */
+
+	private static char[] toChars (byte[] bytes) {
+		char[] result = new char[bytes.length];
+		for (int i = 0; i < bytes.length; i++)
+			result[i] = (char)(bytes[i] & 0xff);
+		return result;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
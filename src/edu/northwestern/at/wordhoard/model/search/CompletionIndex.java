@@ -0,0 +1,501 @@
+package edu.northwestern.at.wordhoard.model.search;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import edu.northwestern.at.utils.PrefixDictionary;
+import edu.northwestern.at.utils.db.PersistenceException;
+import edu.northwestern.at.wordhoard.model.Corpus;
+import edu.northwestern.at.wordhoard.model.PersistenceManager;
+import edu.northwestern.at.wordhoard.model.WordForms;
+import edu.northwestern.at.wordhoard.model.text.CharsetUtils;
+import edu.northwestern.at.wordhoard.model.wrappers.Spelling;
+
+/**	An in-memory completion index.
+ *
+ *	<p>The index answers the prefix queries used for autocompletion of
+ *	lemma tags, spellings, speaker names and author names without going
+ *	to the database. Each kind of string is held in a
+ *	{@link edu.northwestern.at.utils.PrefixDictionary prefix dictionary}
+ *	built once for all corpora. Lemmas and speaker names are grouped by
+ *	the corpora in which they occur, so per-corpus completion is a
+ *	filtered scan of the same dictionary.
+ *
+ *	<p>Lemma tags, speaker names and author names are matched
+ *	case-insensitively. Spellings are matched against the insensitive
+ *	spelling strings stored in the word counts table.
+ *
+ *	<p>The index is optional. When no index has been installed with
+ *	{@link #setIndex setIndex}, or when the index cannot answer a query
+ *	(for example, for a corpus added after the index was built),
+ *	completions go to the database.
+ */
+
+public class CompletionIndex {
+
+	/**	The installed index, or null if none. */
+
+	private static volatile CompletionIndex index;
+
+	/**	Map from corpus id to group number. */
+
+	private HashMap corpusMap = new HashMap();
+
+	/**	Lemma dictionary. Values index lemmaIds. */
+
+	private PrefixDictionary lemmas;
+
+	/**	Lemma ids. */
+
+	private long[] lemmaIds;
+
+	/**	Speaker name dictionary. Values index speakerNames. */
+
+	private PrefixDictionary speakers;
+
+	/**	Distinct speaker names. */
+
+	private String[] speakerNames;
+
+	/**	Author dictionary. Values index authorIds. */
+
+	private PrefixDictionary authors;
+
+	/**	Author ids. */
+
+	private long[] authorIds;
+
+	/**	Spelling dictionary. Values index spellingStrings and
+	 *	spellingCharsets.
+	 */
+
+	private PrefixDictionary spellings;
+
+	/**	Spelling strings. */
+
+	private String[] spellingStrings;
+
+	/**	Spelling character sets. */
+
+	private byte[] spellingCharsets;
+
+	/**	Gets the installed index.
+	 *
+	 *	@return		The installed index, or null if none.
+	 */
+
+	public static CompletionIndex getIndex () {
+		return index;
+	}
+
+	/**	Installs an index.
+	 *
+	 *	@param	completionIndex		The index, or null to remove the
+	 *								installed index.
+	 */
+
+	public static void setIndex (CompletionIndex completionIndex) {
+		index = completionIndex;
+	}
+
+	/**	Hides the no-arg constructor. Use {@link #build build}. */
+
+	private CompletionIndex () {
+	}
+
+	/**	Builds an index.
+	 *
+	 *	<p>Each table is read once with a scalar query, so no persistent
+	 *	objects are loaded into the session.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@return			The index.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public static CompletionIndex build (PersistenceManager pm)
+		throws PersistenceException
+	{
+		CompletionIndex result = new CompletionIndex();
+		result.buildCorpora(pm);
+		result.buildLemmas(pm);
+		result.buildSpeakers(pm);
+		result.buildAuthors(pm);
+		result.buildSpellings(pm);
+		return result;
+	}
+
+	/**	Builds the corpus map.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private void buildCorpora (PersistenceManager pm)
+		throws PersistenceException
+	{
+		List rows = pm.query("select corpus.id from Corpus corpus");
+		int i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++)
+			corpusMap.put(it.next(), Integer.valueOf(i));
+	}
+
+	/**	Builds the lemma dictionary.
+	 *
+	 *	<p>Lemmas which have no counts in any corpus are in the dictionary
+	 *	but in no group, so they are found only when no corpus is
+	 *	specified.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private void buildLemmas (PersistenceManager pm)
+		throws PersistenceException
+	{
+		List rows = pm.query(
+			"select lemma.id, lemma.tagInsensitive.string from Lemma lemma");
+		int numLemmas = rows.size();
+		lemmaIds = new long[numLemmas];
+		String[] tags = new String[numLemmas];
+		HashMap lemmaMap = new HashMap();
+		int i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			lemmaIds[i] = ((Number)row[0]).longValue();
+			tags[i] = row[1] == null ? "" : (String)row[1];
+			lemmaMap.put(row[0], Integer.valueOf(i));
+		}
+		rows = pm.query(
+			"select lcc.lemma.id, lcc.corpus.id from LemmaCorpusCounts lcc");
+		int n = numLemmas + rows.size();
+		String[] keys = new String[n];
+		int[] vals = new int[n];
+		int[] grps = new int[n];
+		for (i = 0; i < numLemmas; i++) {
+			keys[i] = tags[i];
+			vals[i] = i;
+			grps[i] = -1;
+		}
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			int lemma = lookup(lemmaMap, row[0]);
+			if (lemma < 0) {
+				n--;
+				i--;
+				continue;
+			}
+			keys[i] = tags[lemma];
+			vals[i] = lemma;
+			grps[i] = lookup(corpusMap, row[1]);
+		}
+		lemmas = new PrefixDictionary(Arrays.copyOf(keys, n),
+			Arrays.copyOf(vals, n), Arrays.copyOf(grps, n));
+	}
+
+	/**	Builds the speaker name dictionary.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private void buildSpeakers (PersistenceManager pm)
+		throws PersistenceException
+	{
+		List rows = pm.query(
+			"select distinct speaker.name, corpus.id " +
+			"from Speaker speaker join speaker.work work " +
+			"left join work.corpus corpus " +
+			"where speaker.name is not null");
+		int n = rows.size();
+		String[] keys = new String[n];
+		int[] vals = new int[n];
+		int[] grps = new int[n];
+		HashMap nameMap = new HashMap();
+		ArrayList nameList = new ArrayList();
+		int i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			String name = (String)row[0];
+			Integer nameIndex = (Integer)nameMap.get(name);
+			if (nameIndex == null) {
+				nameIndex = Integer.valueOf(nameList.size());
+				nameMap.put(name, nameIndex);
+				nameList.add(name);
+			}
+			keys[i] = CharsetUtils.translateToInsensitive(name);
+			vals[i] = nameIndex.intValue();
+			grps[i] = lookup(corpusMap, row[1]);
+		}
+		speakerNames = (String[])nameList.toArray(new String[0]);
+		speakers = new PrefixDictionary(keys, vals, grps);
+	}
+
+	/**	Builds the author dictionary.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private void buildAuthors (PersistenceManager pm)
+		throws PersistenceException
+	{
+		List rows = pm.query(
+			"select author.id, author.name.string from Author author " +
+			"where author.name.string is not null");
+		int n = rows.size();
+		authorIds = new long[n];
+		String[] keys = new String[n];
+		int[] vals = new int[n];
+		int i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			authorIds[i] = ((Number)row[0]).longValue();
+			keys[i] = CharsetUtils.translateToInsensitive((String)row[1]);
+			vals[i] = i;
+		}
+		authors = new PrefixDictionary(keys, vals, null);
+	}
+
+	/**	Builds the spelling dictionary.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private void buildSpellings (PersistenceManager pm)
+		throws PersistenceException
+	{
+		List rows = pm.query(
+			"select distinct wc.word.string, wc.word.charset " +
+			"from WordCount wc where wc.wordForm = " + WordForms.SPELLING +
+			" and wc.word.string is not null");
+		int n = rows.size();
+		spellingStrings = new String[n];
+		spellingCharsets = new byte[n];
+		int[] vals = new int[n];
+		int i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			spellingStrings[i] = (String)row[0];
+			spellingCharsets[i] =
+				row[1] == null ? 0 : ((Number)row[1]).byteValue();
+			vals[i] = i;
+		}
+		spellings = new PrefixDictionary(spellingStrings, vals, null);
+	}
+
+	/**	Looks up an id in a map.
+	 *
+	 *	@param	map		Map from id to index.
+	 *
+	 *	@param	id		Id.
+	 *
+	 *	@return			Index, or -1 if id is null or not found.
+	 */
+
+	private static int lookup (HashMap map, Object id) {
+		if (id == null) return -1;
+		Integer result = (Integer)map.get(id);
+		return result == null ? -1 : result.intValue();
+	}
+
+	/**	Gets the group number for a corpus.
+	 *
+	 *	@param	corpus		Corpus, or null.
+	 *
+	 *	@return				Group number, -1 if corpus is null, or -2 if
+	 *						the corpus is not in the index.
+	 */
+
+	private int getGroup (Corpus corpus) {
+		if (corpus == null) return -1;
+		int result = lookup(corpusMap, corpus.getId());
+		return result < 0 ? -2 : result;
+	}
+
+	/**	Loads persistent objects by id, preserving order.
+	 *
+	 *	@param	pm			Persistence manager.
+	 *
+	 *	@param	className	Class name.
+	 *
+	 *	@param	ids			Ids.
+	 *
+	 *	@param	vals		Indexes into ids of the objects to load.
+	 *
+	 *	@return				List of objects, in the order of vals.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private static List loadById (PersistenceManager pm, String className,
+		long[] ids, int[] vals)
+			throws PersistenceException
+	{
+		ArrayList result = new ArrayList(vals.length);
+		if (vals.length == 0) return result;
+		ArrayList batch = new ArrayList(vals.length);
+		for (int i = 0; i < vals.length; i++)
+			batch.add(Long.valueOf(ids[vals[i]]));
+		List objects = pm.query(
+			"select obj.id, obj from " + className + " obj " +
+			"where obj.id in (:ids)",
+			new String[]{"ids"},
+			new Object[]{batch});
+		HashMap objectMap = new HashMap();
+		for (Iterator it = objects.iterator(); it.hasNext(); ) {
+			Object[] row = (Object[])it.next();
+			objectMap.put(row[0], row[1]);
+		}
+		for (Iterator it = batch.iterator(); it.hasNext(); ) {
+			Object obj = objectMap.get(it.next());
+			if (obj != null) result.add(obj);
+		}
+		return result;
+	}
+
+	/**	Finds lemmas by tag prefix.
+	 *
+	 *	@param	prefix		Tag prefix.
+	 *
+	 *	@param	corpus		Corpus, or null.
+	 *
+	 *	@param	pm			Persistence manager.
+	 *
+	 *	@param	max			Maximum number of lemmas, or 0 for no limit.
+	 *
+	 *	@return				List of
+	 *						{@link edu.northwestern.at.wordhoard.model.morphology.Lemma
+	 *						lemmas} whose tags start with the prefix, in
+	 *						case-insensitive increasing order by tag, or
+	 *						null if the index cannot answer the query.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public List findLemmas (String prefix, Corpus corpus,
+		PersistenceManager pm, int max)
+			throws PersistenceException
+	{
+		int group = getGroup(corpus);
+		if (group == -2) return null;
+		int[] vals = lemmas.find(CharsetUtils.translateToInsensitive(prefix),
+			group, max);
+		return loadById(pm, "Lemma", lemmaIds, vals);
+	}
+
+	/**	Finds speaker names by prefix.
+	 *
+	 *	@param	prefix		Speaker name prefix.
+	 *
+	 *	@param	corpus		Corpus, or null.
+	 *
+	 *	@param	max			Maximum number of names, or 0 for no limit.
+	 *
+	 *	@return				List of distinct speaker names which start with
+	 *						the prefix, ignoring case, in order by name, or
+	 *						null if the index cannot answer the query.
+	 */
+
+	public List findSpeakerNames (String prefix, Corpus corpus, int max) {
+		int group = getGroup(corpus);
+		if (group == -2) return null;
+		int[] vals = speakers.find(CharsetUtils.translateToInsensitive(prefix),
+			group, 0);
+		ArrayList result = new ArrayList();
+		boolean[] seen = new boolean[speakerNames.length];
+		for (int i = 0; i < vals.length; i++) {
+			if (max > 0 && result.size() == max) break;
+			if (seen[vals[i]]) continue;
+			seen[vals[i]] = true;
+			result.add(speakerNames[vals[i]]);
+		}
+		return result;
+	}
+
+	/**	Finds authors by name prefix.
+	 *
+	 *	@param	prefix		Name prefix.
+	 *
+	 *	@param	pm			Persistence manager.
+	 *
+	 *	@param	max			Maximum number of authors, or 0 for no limit.
+	 *
+	 *	@return				List of
+	 *						{@link edu.northwestern.at.wordhoard.model.Author
+	 *						authors} whose names start with the prefix,
+	 *						ignoring case, in order by name.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public List findAuthors (String prefix, PersistenceManager pm, int max)
+		throws PersistenceException
+	{
+		int[] vals = authors.find(CharsetUtils.translateToInsensitive(prefix),
+			-1, max);
+		return loadById(pm, "Author", authorIds, vals);
+	}
+
+	/**	Finds spellings by prefix.
+	 *
+	 *	@param	prefix		Spelling prefix.
+	 *
+	 *	@param	max			Maximum number of spellings, or 0 for no limit.
+	 *
+	 *	@return				Array of distinct spellings in the word counts
+	 *						table which start with the insensitive version
+	 *						of the prefix, in increasing order by string.
+	 */
+
+	public Spelling[] findSpellings (String prefix, int max) {
+		int[] vals = spellings.find(
+			CharsetUtils.translateToInsensitive(prefix), -1, max);
+		Spelling[] result = new Spelling[vals.length];
+		for (int i = 0; i < vals.length; i++)
+			result[i] = new Spelling(spellingStrings[vals[i]],
+				spellingCharsets[vals[i]]);
+		return result;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -6,15 +6,20 @@ import java.text.Collator;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
 import edu.northwestern.at.utils.db.PersistenceException;
+import edu.northwestern.at.utils.db.hibernate.HibernateScrollIterator;
+import edu.northwestern.at.utils.metrics.Metrics;
 import edu.northwestern.at.wordhoard.model.Author;
 import edu.northwestern.at.wordhoard.model.Corpus;
 import edu.northwestern.at.wordhoard.model.Word;
@@ -23,7 +28,6 @@ import edu.northwestern.at.wordhoard.model.morphology.Lemma;
 import edu.northwestern.at.wordhoard.model.morphology.Pos;
 import edu.northwestern.at.wordhoard.model.morphology.WordPart;
 import edu.northwestern.at.wordhoard.model.speakers.Speaker;
-import edu.northwestern.at.wordhoard.model.text.CharsetUtils;
 import edu.northwestern.at.wordhoard.model.text.FontInfo;
 import edu.northwestern.at.wordhoard.model.text.TextLine;
 import edu.northwestern.at.wordhoard.model.text.TextParams;
@@ -138,21 +142,38 @@ public class SearchCriteria {
 		}
 	}
 
-	/**	Executes the query.
+	/**	Returns true if the query joins word parts.
+	 *
+	 *	<p>If it does, each row returned by the query is a pair of a word and
+	 *	a word part index, otherwise each row is a word.
+	 *
+	 *	@return		True if the query joins word parts.
+	 */
+
+	private boolean haveWordParts () {
+		for (Iterator it = criteriaList.iterator(); it.hasNext(); ) {
+			SearchCriterion criterion = (SearchCriterion)it.next();
+			Class joinClass = criterion.getJoinClass();
+			if (WordPart.class.equals(joinClass)) return true;
+		}
+		return false;
+	}
+
+	/**	Creates the Hibernate query.
 	 *
 	 *	@param	session		Hibernate session.
 	 *
-	 *	@return		A list of all the
-	 *				{@link edu.northwestern.at.wordhoard.model.search.SearchResult
-	 *				search results} which match the search criteria,
-	 *				ordered by location (by work tag, then by ordinal
-	 *				within work).
+	 *	@param	ordered		True to order the query results by location
+	 *						(by work tag, then by ordinal within work).
 	 *
-	 *	@throws	PersistenceException	error in persistence layer.
+	 *	@param	count		True to select the number of distinct results
+	 *						instead of the results.
+	 *
+	 *	@return				The query, with its arguments set.
 	 */
 
-	public List search (Session session)
-		throws PersistenceException
+	private Query createQuery (Session session, boolean ordered,
+		boolean count)
 	{
 		int numCriteria = criteriaList.size();
 		SearchCriterion[] criteria = (SearchCriterion[])criteriaList.toArray(
@@ -176,8 +197,13 @@ public class SearchCriteria {
 
 		MyStringBuffer buf = new MyStringBuffer();
 
-		buf.append("select distinct word");
-		if (haveWordParts) buf.append(", wordPart.partIndex");
+		if (count) {
+			buf.append(haveWordParts ? "select count(distinct wordPart)" :
+				"select count(distinct word)");
+		} else {
+			buf.append("select distinct word");
+			if (haveWordParts) buf.append(", wordPart.partIndex");
+		}
 		buf.append(" from Word word");
 		if (haveDocCounts) buf.append(", LemmaCorpusCounts lemmacorpuscounts");
 		if ( haveWordSet ) buf.append( ", WordSet wordSet" );
@@ -200,6 +226,7 @@ public class SearchCriteria {
 			String whereClause = criterion.getWhereClause();
 			buf.appendWhereClause(whereClause);
 		}
+		if (ordered) buf.append(" order by word.workTag, word.workOrdinal");
 
 		//	Create the query and set the arguments.
 
@@ -221,46 +248,118 @@ public class SearchCriteria {
 			}
 			criterion.setArg(q,session);
 		}
+		return q;
+	}
+
+	/**	Gets the criteria.
+	 *
+	 *	@return		Unmodifiable list of the
+	 *				{@link SearchCriterion search criteria}, in the order
+	 *				in which they were added.
+	 */
+
+	public List getCriteria () {
+		return Collections.unmodifiableList(criteriaList);
+	}
+
+	/**	Gets the spelling with collation strength criterion.
+	 *
+	 *	@return		The first spelling with collation strength criterion,
+	 *				or null if none.
+	 */
+
+	SpellingWithCollationStrength getSpellingWithCollationStrength () {
+		for (Iterator it = criteriaList.iterator(); it.hasNext(); ) {
+			Object criterion = it.next();
+			if (criterion instanceof SpellingWithCollationStrength)
+				return (SpellingWithCollationStrength)criterion;
+		}
+		return null;
+	}
+
+	/**	Executes the query.
+	 *
+	 *	@param	session		Hibernate session.
+	 *
+	 *	@return		A list of all the
+	 *				{@link edu.northwestern.at.wordhoard.model.search.SearchResult
+	 *				search results} which match the search criteria,
+	 *				ordered by location (by work tag, then by ordinal
+	 *				within work).
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public List search (Session session)
+		throws PersistenceException
+	{
+		Metrics.Probe probe = Metrics.start();
+		List result = null;
+		try {
+			result = doSearch(session);
+			return result;
+		} finally {
+			if (probe != null)
+				Metrics.stop(probe, Metrics.SEARCH, getMetricsKey(),
+					result == null ? -1 : result.size());
+		}
+	}
+
+	/**	Gets the metrics key for the criteria.
+	 *
+	 *	<p>The key lists the classes of the criteria, so searches with the
+	 *	same kinds of criteria are counted together. It starts with "index"
+	 *	if the in-memory word index can run the search, else "query".
+	 *
+	 *	@return		The metrics key.
+	 */
+
+	private String getMetricsKey () {
+		WordIndex index = WordIndex.getIndex();
+		StringBuffer buf = new StringBuffer(
+			index != null && index.canSearch(this) ? "index:" : "query:");
+		for (Iterator it = criteriaList.iterator(); it.hasNext(); ) {
+			Object criterion = it.next();
+			String name = criterion instanceof SearchCriteriaTypedSet ?
+				((SearchCriteriaTypedSet)criterion).getSearchCriterionClassname() :
+				criterion.getClass().getName();
+			buf.append(' ');
+			buf.append(name.substring(name.lastIndexOf('.') + 1));
+		}
+		return buf.toString();
+	}
+
+	/**	Searches for words.
+	 *
+	 *	@param	session		Hibernate session.
+	 *
+	 *	@return		A list of the search results, ordered by location.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private List doSearch (Session session)
+		throws PersistenceException
+	{
+		//	Use the in-memory word index if one is installed and it can
+		//	evaluate all the criteria.
+
+		WordIndex index = WordIndex.getIndex();
+		if (index != null && index.canSearch(this))
+			return index.search(this, session);
 
 		//	Execute the query.
-		List queryList = q.list();
+
+		boolean haveWordParts = haveWordParts();
+		List queryList = createQuery(session, false, false).list();
 
 		//	Build the search result objects. Filter the results for spelling
 		//	collation strength if necessary.
 
-		String spellingString = null;
-		Collator collator = null;
-		for (int i = 0; i < numCriteria; i++) {
-			SearchCriterion criterion = criteria[i];
-			if (criterion instanceof SpellingWithCollationStrength) {
-				SpellingWithCollationStrength sp =
-					(SpellingWithCollationStrength)criterion;
-				Spelling spelling = sp.getSpelling();
-				int strength = sp.getStrength();
-				spellingString = spelling.getString();
-				byte charset = spelling.getCharset();
-				collator = CharsetUtils.getCollator(charset, strength);
-				break;
-			}
-		}
-		ArrayList resultList = new ArrayList();
-		int i = 0;
-		for (Iterator it = queryList.iterator(); it.hasNext(); ) {
-			Word word;
-			int partIndex;
-			if (haveWordParts) {
-				Object[] pair = (Object[])it.next();
-				word = (Word)pair[0];
-				partIndex = ((Integer)pair[1]).intValue();
-			} else {
-				word = (Word)it.next();
-				partIndex = -1;
-			}
-			if (collator == null ||
-				match(word.getSpelling().getString(), spellingString,
-					true, collator))
-						resultList.add(new SearchResult(word, partIndex));
-		}
+		SearchResultStream stream = new SearchResultStream(
+			queryList.iterator(), haveWordParts,
+			getSpellingWithCollationStrength(), queryList.size());
+		List resultList = stream.nextPage();
 
 		//	Sort the results. We sort ourselves because this appears to be
 		//	faster than using an "order by" clause in the query.
@@ -291,6 +390,83 @@ public class SearchCriteria {
 
 	}
 
+	/**	Executes the query as a stream of pages.
+	 *
+	 *	<p>Unlike {@link #search search}, this method does not wait for
+	 *	all the results. The query is ordered by location in the database
+	 *	and its rows are read through a scrollable result set as the pages
+	 *	are requested, so the first page is available as soon as the
+	 *	database starts returning rows. The query's fetch size is the page
+	 *	size, and the connection uses cursor fetch
+	 *	(see {@link edu.northwestern.at.utils.db.hibernate.HibernatePersistenceManager#init
+	 *	HibernatePersistenceManager.init}), so at most about one page of
+	 *	rows is held by the JDBC driver at a time.
+	 *
+	 *	@param	session		Hibernate session.
+	 *
+	 *	@param	pageSize	Maximum number of results per page.
+	 *
+	 *	@return		A stream of the
+	 *				{@link edu.northwestern.at.wordhoard.model.search.SearchResult
+	 *				search results} which match the search criteria,
+	 *				ordered by location (by work tag, then by ordinal
+	 *				within work). The caller must close the stream
+	 *				if it is not read to the end.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public SearchResultStream stream (Session session, int pageSize)
+		throws PersistenceException
+	{
+		WordIndex index = WordIndex.getIndex();
+		if (index != null && index.canSearch(this))
+			return new SearchResultStream(
+				index.search(this, session).iterator(), pageSize);
+
+		boolean haveWordParts = haveWordParts();
+		Query q = createQuery(session, true, false);
+		q.setFetchSize(pageSize);
+		ScrollableResults scrollableResults = q.scroll(ScrollMode.FORWARD_ONLY);
+		return new SearchResultStream(
+			new HibernateScrollIterator(scrollableResults), haveWordParts,
+			getSpellingWithCollationStrength(), pageSize);
+	}
+
+	/**	Returns true if the results can be counted by a query.
+	 *
+	 *	<p>Results which must match a spelling with collation strength are
+	 *	filtered after the query is run, so they can only be counted by
+	 *	reading them.
+	 *
+	 *	@return		True if {@link #count count} may be used.
+	 */
+
+	public boolean canCount () {
+		return getSpellingWithCollationStrength() == null;
+	}
+
+	/**	Counts the results.
+	 *
+	 *	<p>Runs a single "select count" query built from the same criteria
+	 *	as {@link #search search}. No words are loaded. The caller must
+	 *	first check that the results can be counted this way using
+	 *	{@link #canCount canCount}.
+	 *
+	 *	@param	session		Hibernate session.
+	 *
+	 *	@return		The number of search results.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public int count (Session session)
+		throws PersistenceException
+	{
+		Number count = (Number)createQuery(session, false, true).uniqueResult();
+		return count == null ? 0 : count.intValue();
+	}
+
 	/**	Matches a string against a pattern.
 	 *
 	 *	@param	str			String.
@@ -303,12 +479,13 @@ public class SearchCriteria {
 	 *						may match the pattern.
 	 *
 	 *	@param	collator	Collator for comparing strings without wild card
-	 *						characters.
+	 *						characters, or null to compare them for
+	 *						equality.
 	 *
 	 *	@return				True if the string matches the pattern.
 	 */
 
-	private boolean match (String str, String pat, boolean anchored,
+	static boolean match (String str, String pat, boolean anchored,
 		Collator collator)
 	{
 		int strLen = str.length();
@@ -322,7 +499,11 @@ public class SearchCriteria {
 			String patPrefix = pat.substring(0, k);
 			int j = 0;
 			while (j + k <= strLen) {
-				if (collator.equals(str.substring(j, j+k), patPrefix) &&
+				String strPrefix = str.substring(j, j+k);
+				boolean prefixMatch = collator == null ?
+					strPrefix.equals(patPrefix) :
+					collator.equals(strPrefix, patPrefix);
+				if (prefixMatch &&
 					match(str.substring(j+k), pat.substring(k),
 						true, collator))
 							return true;
@@ -2,6 +2,8 @@ package edu.northwestern.at.wordhoard.model.search;
 
 /*	Please see the license information at the end of this file. */
 
+import java.io.Serializable;
+
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
@@ -13,7 +15,7 @@ import jakarta.persistence.Transient;
 /**	A word search criterion.
  */
 
-public interface SearchCriterion {
+public interface SearchCriterion extends Serializable {
 
 	/**	Gets the join class.
 	 *
@@ -0,0 +1,195 @@
+package edu.northwestern.at.wordhoard.model.search;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import edu.northwestern.at.utils.db.hibernate.HibernateScrollIterator;
+import edu.northwestern.at.wordhoard.model.Word;
+import edu.northwestern.at.wordhoard.model.wrappers.Spelling;
+
+/**	A stream of search results.
+ *
+ *	<p>A search result stream delivers the
+ *	{@link edu.northwestern.at.wordhoard.model.search.SearchResult
+ *	search results} of a query a page at a time, in the order in which the
+ *	query returns them. Each query row is turned into a search result only
+ *	when the page containing it is requested.
+ *
+ *	<p>Streams are created by
+ *	{@link edu.northwestern.at.wordhoard.model.search.SearchCriteria#stream
+ *	SearchCriteria.stream}. A stream which is backed by a scrollable
+ *	result set holds the result set open until the last page has been read
+ *	or the stream is closed.
+ */
+
+public class SearchResultStream {
+
+	/**	Query rows. */
+
+	private Iterator rows;
+
+	/**	True if each row is a pair of a word and a word part index,
+	 *	false if each row is a word or a search result.
+	 */
+
+	private boolean haveWordParts;
+
+	/**	True if each row is already a search result. */
+
+	private boolean haveSearchResults;
+
+	/**	Compiled spelling pattern for collation strength filtering, or
+	 *	null if none.
+	 */
+
+	private SpellingMatcher matcher;
+
+	/**	Maximum number of results per page. */
+
+	private int pageSize;
+
+	/**	Number of results delivered so far. */
+
+	private int count;
+
+	/**	Creates a new search result stream over query rows.
+	 *
+	 *	@param	rows			Query rows.
+	 *
+	 *	@param	haveWordParts	True if each row is a pair of a word and a
+	 *							word part index, false if each row is a word.
+	 *
+	 *	@param	sp				Spelling with collation strength criterion
+	 *							used to filter the rows, or null if none.
+	 *
+	 *	@param	pageSize		Maximum number of results per page.
+	 */
+
+	SearchResultStream (Iterator rows, boolean haveWordParts,
+		SpellingWithCollationStrength sp, int pageSize)
+	{
+		this.rows = rows;
+		this.haveWordParts = haveWordParts;
+		this.pageSize = Math.max(1, pageSize);
+		if (sp != null) {
+			Spelling spelling = sp.getSpelling();
+			matcher = new SpellingMatcher(spelling.getString(),
+				spelling.getCharset(), sp.getStrength());
+		}
+	}
+
+	/**	Creates a new search result stream over search results.
+	 *
+	 *	@param	results			Search results.
+	 *
+	 *	@param	pageSize		Maximum number of results per page.
+	 */
+
+	SearchResultStream (Iterator results, int pageSize) {
+		this.rows = results;
+		this.haveSearchResults = true;
+		this.pageSize = Math.max(1, pageSize);
+	}
+
+	/**	Returns true if there may be more results.
+	 *
+	 *	@return		True if there are more query rows.
+	 */
+
+	public boolean hasNext () {
+		return rows.hasNext();
+	}
+
+	/**	Gets the next page of results.
+	 *
+	 *	@return		List of up to page size search results. The list is
+	 *				empty when there are no more results.
+	 */
+
+	public List nextPage () {
+		ArrayList page = new ArrayList();
+		while (page.size() < pageSize && rows.hasNext()) {
+			SearchResult result = toSearchResult(rows.next());
+			if (result != null) page.add(result);
+		}
+		count += page.size();
+		return page;
+	}
+
+	/**	Converts a query row to a search result.
+	 *
+	 *	@param	row		Query row.
+	 *
+	 *	@return			Search result, or null if the row does not match
+	 *					the collation strength filter.
+	 */
+
+	private SearchResult toSearchResult (Object row) {
+		if (haveSearchResults) return (SearchResult)row;
+		Word word;
+		int partIndex;
+		if (haveWordParts) {
+			Object[] pair = (Object[])row;
+			word = (Word)pair[0];
+			partIndex = ((Integer)pair[1]).intValue();
+		} else {
+			word = (Word)row;
+			partIndex = -1;
+		}
+		if (matcher != null &&
+			!matcher.matches(word.getSpelling().getString()))
+				return null;
+		return new SearchResult(word, partIndex);
+	}
+
+	/**	Gets the number of results delivered so far.
+	 *
+	 *	@return		Number of results in the pages read so far.
+	 */
+
+	public int getCount () {
+		return count;
+	}
+
+	/**	Closes the stream.
+	 *
+	 *	<p>Releases the scrollable result set, if any. It is safe to close
+	 *	a stream more than once.
+	 */
+
+	public void close () {
+		if (rows instanceof HibernateScrollIterator)
+			((HibernateScrollIterator)rows).close();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,202 @@
+package edu.northwestern.at.wordhoard.model.search;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.ArrayList;
+
+import edu.northwestern.at.wordhoard.model.text.CharsetUtils;
+
+/**	A compiled spelling pattern.
+ *
+ *	<p>A spelling matcher tests strings against a pattern with optional
+ *	'*' match-any wild card characters, with the same results as
+ *	{@link SearchCriteria#match SearchCriteria.match} with anchoring.
+ *	The pattern is split once into its literal segments, and each segment
+ *	is converted to its key in a
+ *	{@link CollationKeyTable collation key table}. A string is matched by
+ *	converting it to its key and finding the segments in the key in
+ *	order, so no collator comparisons are needed. Strings and patterns
+ *	which have no key are matched with the collator instead.
+ *
+ *	<p>Spelling matchers are thread-safe.
+ */
+
+class SpellingMatcher {
+
+	/**	Pattern. */
+
+	private String pat;
+
+	/**	Character set of the collator. */
+
+	private byte charset;
+
+	/**	Collation strength. */
+
+	private int strength;
+
+	/**	Collation key table, or null to compare characters for
+	 *	equality.
+	 */
+
+	private CollationKeyTable table;
+
+	/**	Keys of the literal segments of the pattern, or null if the
+	 *	pattern has no key.
+	 */
+
+	private String[] segments;
+
+	/**	Creates a new spelling matcher which compares characters for
+	 *	equality.
+	 *
+	 *	@param	pat			Pattern.
+	 */
+
+	SpellingMatcher (String pat) {
+		this(pat, (byte)0, 0, null);
+	}
+
+	/**	Creates a new spelling matcher which compares characters with a
+	 *	collator.
+	 *
+	 *	@param	pat			Pattern.
+	 *
+	 *	@param	charset		Character set of the collator.
+	 *
+	 *	@param	strength	Collation strength.
+	 */
+
+	SpellingMatcher (String pat, byte charset, int strength) {
+		this(pat, charset, strength,
+			CollationKeyTable.getTable(charset, strength));
+	}
+
+	/**	Creates a new spelling matcher.
+	 *
+	 *	@param	pat			Pattern.
+	 *
+	 *	@param	charset		Character set of the collator.
+	 *
+	 *	@param	strength	Collation strength.
+	 *
+	 *	@param	table		Collation key table, or null.
+	 */
+
+	private SpellingMatcher (String pat, byte charset, int strength,
+		CollationKeyTable table)
+	{
+		this.pat = pat;
+		this.charset = charset;
+		this.strength = strength;
+		this.table = table;
+		ArrayList list = new ArrayList();
+		int start = 0;
+		while (true) {
+			int k = pat.indexOf('*', start);
+			String segment = pat.substring(start, k < 0 ? pat.length() : k);
+			if (table != null) {
+				segment = table.getKey(segment);
+				if (segment == null) return;
+			}
+			list.add(segment);
+			if (k < 0) break;
+			start = k + 1;
+		}
+		segments = (String[])list.toArray(new String[list.size()]);
+	}
+
+	/**	Gets the collation key table.
+	 *
+	 *	@return		The collation key table, or null if characters are
+	 *				compared for equality.
+	 */
+
+	CollationKeyTable getTable () {
+		return table;
+	}
+
+	/**	Matches a string.
+	 *
+	 *	@param	str		String.
+	 *
+	 *	@return			True if the whole string matches the pattern.
+	 */
+
+	boolean matches (String str) {
+		String key = table == null ? str : table.getKey(str);
+		if (key == null || segments == null)
+			return SearchCriteria.match(str, pat, true,
+				CharsetUtils.getCollator(charset, strength));
+		return matchesKey(key);
+	}
+
+	/**	Matches a string by key.
+	 *
+	 *	@param	str		String.
+	 *
+	 *	@param	key		Key of the string in the collation key table,
+	 *					or null if the string has no key.
+	 *
+	 *	@return			True if the whole string matches the pattern.
+	 */
+
+	boolean matches (String str, String key) {
+		if (key == null || segments == null) return matches(str);
+		return matchesKey(key);
+	}
+
+	/**	Matches a key against the segments.
+	 *
+	 *	@param	key		Key.
+	 *
+	 *	@return			True if the key matches the segments.
+	 */
+
+	private boolean matchesKey (String key) {
+		int n = segments.length;
+		if (n == 1) return key.equals(segments[0]);
+		String first = segments[0];
+		String last = segments[n-1];
+		int end = key.length() - last.length();
+		if (end < first.length()) return false;
+		if (!key.startsWith(first) || !key.endsWith(last)) return false;
+		int pos = first.length();
+		for (int i = 1; i < n - 1; i++) {
+			String segment = segments[i];
+			if (segment.length() == 0) continue;
+			int k = key.indexOf(segment, pos);
+			if (k < 0 || k + segment.length() > end) return false;
+			pos = k + segment.length();
+		}
+		return true;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
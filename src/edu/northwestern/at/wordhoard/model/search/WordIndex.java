@@ -0,0 +1,1018 @@
+package edu.northwestern.at.wordhoard.model.search;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import edu.northwestern.at.utils.db.PersistenceException;
+import edu.northwestern.at.utils.db.hibernate.HibernateScrollIterator;
+import edu.northwestern.at.wordhoard.model.Corpus;
+import edu.northwestern.at.wordhoard.model.PersistenceManager;
+import edu.northwestern.at.wordhoard.model.Word;
+import edu.northwestern.at.wordhoard.model.Work;
+import edu.northwestern.at.wordhoard.model.WorkPart;
+import edu.northwestern.at.wordhoard.model.morphology.Lemma;
+import edu.northwestern.at.wordhoard.model.morphology.Pos;
+import edu.northwestern.at.wordhoard.model.text.CharsetUtils;
+import edu.northwestern.at.wordhoard.model.wrappers.Prosodic;
+import edu.northwestern.at.wordhoard.model.wrappers.Spelling;
+
+/**	An in-memory columnar word index.
+ *
+ *	<p>The index holds one row for each word occurrence, in increasing
+ *	order by colocation ordinal. Each attribute of a word is stored
+ *	as a primitive array column of small integer ids: spelling, work,
+ *	work part, ordinal within work, and prosodic. The ids index
+ *	dictionaries of the distinct spellings, works, work parts, and so on.
+ *
+ *	<p>Word parts are stored in compressed row form. The parts of the word
+ *	at row i are at positions partStart[i] through partStart[i+1]-1 of
+ *	the part lemma, part of speech, and part index columns.
+ *
+ *	<p>Because the rows are ordered by colocation ordinal, the word n words
+ *	to the right of the word at row i in the same work part, if there is
+ *	one, is at row i+n. Phrase searches are thus offset intersections over
+ *	row numbers rather than chains of "word.next" joins.
+ *
+ *	<p>Searches against the index return row numbers. Only the words which
+ *	are returned are materialized as Hibernate
+ *	{@link edu.northwestern.at.wordhoard.model.Word word} objects, by
+ *	primary key.
+ *
+ *	<p>The index is optional. When no index has been installed with
+ *	{@link #setIndex setIndex}, all searches go to the database.
+ */
+
+public class WordIndex {
+
+	/**	The installed index, or null if none. */
+
+	private static volatile WordIndex index;
+
+	/**	Maximum number of words to materialize per query. */
+
+	private static final int MATERIALIZE_BATCH_SIZE = 1000;
+
+	/**	Number of rows. */
+
+	private int numRows;
+
+	/**	Word ids, by row. */
+
+	private long[] wordIds;
+
+	/**	Colocation ordinals, by row. */
+
+	private long[] colocationOrdinals;
+
+	/**	Spelling ids, by row. */
+
+	private int[] spellings;
+
+	/**	Work ids, by row. */
+
+	private int[] works;
+
+	/**	Work part ids, by row. */
+
+	private int[] workParts;
+
+	/**	Ordinals within works, by row. */
+
+	private int[] workOrdinals;
+
+	/**	Prosodic values, by row. */
+
+	private byte[] prosodics;
+
+	/**	Start of word parts, by row. Length is numRows+1. */
+
+	private int[] partStart;
+
+	/**	Lemma ids, by word part. */
+
+	private int[] partLemmas;
+
+	/**	Part of speech ids, by word part, or -1 if none. */
+
+	private int[] partPos;
+
+	/**	Part indexes, by word part. */
+
+	private int[] partIndexes;
+
+	/**	Spelling dictionary: spelling strings. */
+
+	private String[] spellingStrings;
+
+	/**	Spelling dictionary: insensitive spelling strings. */
+
+	private String[] spellingInsensitiveStrings;
+
+	/**	Spelling dictionary: collation keys of spelling strings, indexed
+	 *	by character set and strength, or null if not yet computed.
+	 */
+
+	private String[][][] spellingKeys = new String[2][3][];
+
+	/**	Spelling dictionary: character sets. */
+
+	private byte[] spellingCharsets;
+
+	/**	Lemma dictionary: insensitive lemma tags. */
+
+	private String[] lemmaTags;
+
+	/**	Lemma dictionary: map from lemma id to lemma index. */
+
+	private HashMap lemmaMap;
+
+	/**	Part of speech dictionary: tags. */
+
+	private String[] posTags;
+
+	/**	Part of speech dictionary: map from pos id to pos index. */
+
+	private HashMap posMap;
+
+	/**	Corpus dictionary: tags. */
+
+	private String[] corpusTags;
+
+	/**	Corpus dictionary: map from corpus id to corpus index. */
+
+	private HashMap corpusMap;
+
+	/**	Work dictionary: tags. */
+
+	private String[] workTags;
+
+	/**	Work dictionary: ranks of tags in increasing order. */
+
+	private int[] workTagRanks;
+
+	/**	Work dictionary: corpus indexes, or -1 if none. */
+
+	private int[] workCorpora;
+
+	/**	Work dictionary: map from work id to work index. */
+
+	private HashMap workMap;
+
+	/**	Work part dictionary: parent work part indexes, or -1 if none. */
+
+	private int[] workPartParents;
+
+	/**	Work part dictionary: map from work part id to work part index. */
+
+	private HashMap workPartMap;
+
+	/**	Gets the installed index.
+	 *
+	 *	@return		The installed index, or null if none.
+	 */
+
+	public static WordIndex getIndex () {
+		return index;
+	}
+
+	/**	Installs an index.
+	 *
+	 *	@param	wordIndex	The index, or null to remove the installed
+	 *						index.
+	 */
+
+	public static void setIndex (WordIndex wordIndex) {
+		index = wordIndex;
+	}
+
+	/**	Hides the no-arg constructor. Use {@link #build build}. */
+
+	private WordIndex () {
+	}
+
+	/**	Builds an index.
+	 *
+	 *	<p>Each table is read once with a scrolling scalar query, so no
+	 *	persistent objects are loaded into the session.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@return			The index.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public static WordIndex build (PersistenceManager pm)
+		throws PersistenceException
+	{
+		WordIndex result = new WordIndex();
+		result.buildDictionaries(pm);
+		result.buildWords(pm);
+		result.buildWordParts(pm);
+		return result;
+	}
+
+	/**	Builds the corpus, work, work part, lemma and pos dictionaries.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private void buildDictionaries (PersistenceManager pm)
+		throws PersistenceException
+	{
+		List rows = pm.query("select corpus.id, corpus.tag from Corpus corpus");
+		corpusTags = new String[rows.size()];
+		corpusMap = new HashMap();
+		int i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			corpusMap.put(row[0], Integer.valueOf(i));
+			corpusTags[i] = (String)row[1];
+		}
+		rows = pm.query("select work.id, work.tag, corpus.id from Work work " +
+			"left join work.corpus corpus");
+		int numWorks = rows.size();
+		workTags = new String[numWorks];
+		workCorpora = new int[numWorks];
+		workMap = new HashMap();
+		i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			workMap.put(row[0], Integer.valueOf(i));
+			workTags[i] = (String)row[1];
+			workCorpora[i] = lookup(corpusMap, row[2]);
+		}
+		String[] sortedTags = (String[])workTags.clone();
+		Arrays.sort(sortedTags);
+		workTagRanks = new int[numWorks];
+		for (i = 0; i < numWorks; i++)
+			workTagRanks[i] = Arrays.binarySearch(sortedTags, workTags[i]);
+		rows = pm.query("select workPart.id, parent.id from WorkPart workPart " +
+			"left join workPart.parent parent");
+		int numWorkParts = rows.size();
+		workPartParents = new int[numWorkParts];
+		workPartMap = new HashMap();
+		i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			workPartMap.put(row[0], Integer.valueOf(i));
+		}
+		i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			workPartParents[i] = lookup(workPartMap, row[1]);
+		}
+		rows = pm.query("select lemma.id, lemma.tagInsensitive.string " +
+			"from Lemma lemma");
+		lemmaTags = new String[rows.size()];
+		lemmaMap = new HashMap();
+		i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			lemmaMap.put(row[0], Integer.valueOf(i));
+			lemmaTags[i] = (String)row[1];
+		}
+		rows = pm.query("select pos.id, pos.tag from Pos pos");
+		posTags = new String[rows.size()];
+		posMap = new HashMap();
+		i = 0;
+		for (Iterator it = rows.iterator(); it.hasNext(); i++) {
+			Object[] row = (Object[])it.next();
+			posMap.put(row[0], Integer.valueOf(i));
+			posTags[i] = (String)row[1];
+		}
+	}
+
+	/**	Builds the word columns and the spelling dictionary.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private void buildWords (PersistenceManager pm)
+		throws PersistenceException
+	{
+		int capacity = 1 << 16;
+		wordIds = new long[capacity];
+		colocationOrdinals = new long[capacity];
+		spellings = new int[capacity];
+		works = new int[capacity];
+		workParts = new int[capacity];
+		workOrdinals = new int[capacity];
+		prosodics = new byte[capacity];
+		HashMap spellingMap = new HashMap();
+		ArrayList spellingList = new ArrayList();
+		HibernateScrollIterator it = new HibernateScrollIterator(
+			pm.scrollableQuery(
+				"select word.id, word.colocationOrdinal, " +
+				"word.spelling.string, word.spelling.charset, " +
+				"word.work.id, word.workPart.id, word.workOrdinal, " +
+				"word.prosodic.prosodic " +
+				"from Word word order by word.colocationOrdinal"));
+		try {
+			while (it.hasNext()) {
+				Object[] row = (Object[])it.next();
+				if (numRows == capacity) {
+					capacity = capacity << 1;
+					wordIds = Arrays.copyOf(wordIds, capacity);
+					colocationOrdinals =
+						Arrays.copyOf(colocationOrdinals, capacity);
+					spellings = Arrays.copyOf(spellings, capacity);
+					works = Arrays.copyOf(works, capacity);
+					workParts = Arrays.copyOf(workParts, capacity);
+					workOrdinals = Arrays.copyOf(workOrdinals, capacity);
+					prosodics = Arrays.copyOf(prosodics, capacity);
+				}
+				Spelling spelling = new Spelling((String)row[2],
+					row[3] == null ? 0 : ((Number)row[3]).byteValue());
+				Integer spellingId = (Integer)spellingMap.get(spelling);
+				if (spellingId == null) {
+					spellingId = Integer.valueOf(spellingList.size());
+					spellingMap.put(spelling, spellingId);
+					spellingList.add(spelling);
+				}
+				wordIds[numRows] = ((Number)row[0]).longValue();
+				colocationOrdinals[numRows] = ((Number)row[1]).longValue();
+				spellings[numRows] = spellingId.intValue();
+				works[numRows] = lookup(workMap, row[4]);
+				workParts[numRows] = lookup(workPartMap, row[5]);
+				workOrdinals[numRows] = ((Number)row[6]).intValue();
+				prosodics[numRows] = row[7] == null ? Prosodic.UNKNOWN :
+					((Number)row[7]).byteValue();
+				numRows++;
+			}
+		} finally {
+			it.close();
+		}
+		int numSpellings = spellingList.size();
+		spellingStrings = new String[numSpellings];
+		spellingInsensitiveStrings = new String[numSpellings];
+		spellingCharsets = new byte[numSpellings];
+		for (int i = 0; i < numSpellings; i++) {
+			Spelling spelling = (Spelling)spellingList.get(i);
+			String str = spelling.getString();
+			if (str == null) str = "";
+			spellingStrings[i] = str;
+			spellingInsensitiveStrings[i] =
+				CharsetUtils.translateToInsensitive(str);
+			spellingCharsets[i] = spelling.getCharset();
+		}
+	}
+
+	/**	Builds the word part columns.
+	 *
+	 *	@param	pm		Persistence manager.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private void buildWordParts (PersistenceManager pm)
+		throws PersistenceException
+	{
+		int[] rowsById = sortIndex(wordIds, numRows);
+		long[] sortedIds = new long[numRows];
+		for (int i = 0; i < numRows; i++) sortedIds[i] = wordIds[rowsById[i]];
+		int capacity = 1 << 16;
+		int numParts = 0;
+		int[] rowCol = new int[capacity];
+		int[] lemmaCol = new int[capacity];
+		int[] posCol = new int[capacity];
+		int[] indexCol = new int[capacity];
+		HibernateScrollIterator it = new HibernateScrollIterator(
+			pm.scrollableQuery(
+				"select wordPart.word.id, wordPart.partIndex, " +
+				"lemPos.lemma.id, pos.id " +
+				"from WordPart wordPart " +
+				"inner join wordPart.lemPos lemPos " +
+				"left join lemPos.pos pos"));
+		try {
+			while (it.hasNext()) {
+				Object[] row = (Object[])it.next();
+				int k = Arrays.binarySearch(sortedIds,
+					((Number)row[0]).longValue());
+				if (k < 0) continue;
+				int lemma = lookup(lemmaMap, row[2]);
+				if (lemma < 0) continue;
+				if (numParts == capacity) {
+					capacity = capacity << 1;
+					rowCol = Arrays.copyOf(rowCol, capacity);
+					lemmaCol = Arrays.copyOf(lemmaCol, capacity);
+					posCol = Arrays.copyOf(posCol, capacity);
+					indexCol = Arrays.copyOf(indexCol, capacity);
+				}
+				rowCol[numParts] = rowsById[k];
+				indexCol[numParts] = ((Number)row[1]).intValue();
+				lemmaCol[numParts] = lemma;
+				posCol[numParts] = lookup(posMap, row[3]);
+				numParts++;
+			}
+		} finally {
+			it.close();
+		}
+
+		//	Counting sort the parts by row, then by part index within row.
+
+		partStart = new int[numRows + 1];
+		for (int i = 0; i < numParts; i++) partStart[rowCol[i] + 1]++;
+		for (int i = 0; i < numRows; i++) partStart[i + 1] += partStart[i];
+		int[] fill = Arrays.copyOf(partStart, numRows);
+		partLemmas = new int[numParts];
+		partPos = new int[numParts];
+		partIndexes = new int[numParts];
+		for (int i = 0; i < numParts; i++) {
+			int p = fill[rowCol[i]]++;
+			partLemmas[p] = lemmaCol[i];
+			partPos[p] = posCol[i];
+			partIndexes[p] = indexCol[i];
+		}
+		for (int row = 0; row < numRows; row++) {
+			int end = partStart[row + 1];
+			for (int p = partStart[row] + 1; p < end; p++) {
+				for (int q = p; q > partStart[row] &&
+					partIndexes[q - 1] > partIndexes[q]; q--)
+				{
+					swap(partLemmas, q, q - 1);
+					swap(partPos, q, q - 1);
+					swap(partIndexes, q, q - 1);
+				}
+			}
+		}
+	}
+
+	/**	Looks up an id in a dictionary map.
+	 *
+	 *	@param	map		Map from ids to Integer indexes.
+	 *
+	 *	@param	id		Id, or null.
+	 *
+	 *	@return			Index, or -1 if id is null or not found.
+	 */
+
+	private static int lookup (HashMap map, Object id) {
+		if (id == null) return -1;
+		Integer result = (Integer)map.get(id);
+		return result == null ? -1 : result.intValue();
+	}
+
+	/**	Swaps two array elements.
+	 *
+	 *	@param	a		Array.
+	 *
+	 *	@param	i		First index.
+	 *
+	 *	@param	j		Second index.
+	 */
+
+	private static void swap (int[] a, int i, int j) {
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	/**	Returns a stable sort permutation for an array of keys.
+	 *
+	 *	@param	keys	Keys.
+	 *
+	 *	@param	n		Number of keys to sort.
+	 *
+	 *	@return			Array p of length n such that keys[p[0]],
+	 *					keys[p[1]], ... are in increasing order.
+	 */
+
+	static int[] sortIndex (long[] keys, int n) {
+		int[] a = new int[n];
+		for (int i = 0; i < n; i++) a[i] = i;
+		int[] b = new int[n];
+		for (int width = 1; width < n; width <<= 1) {
+			for (int lo = 0; lo < n; lo += width << 1) {
+				int mid = Math.min(lo + width, n);
+				int hi = Math.min(lo + (width << 1), n);
+				int i = lo;
+				int j = mid;
+				int k = lo;
+				while (i < mid && j < hi)
+					b[k++] = keys[a[j]] < keys[a[i]] ? a[j++] : a[i++];
+				while (i < mid) b[k++] = a[i++];
+				while (j < hi) b[k++] = a[j++];
+			}
+			int[] t = a;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	/**	Gets the number of rows.
+	 *
+	 *	@return		The number of rows (word occurrences).
+	 */
+
+	public int getNumRows () {
+		return numRows;
+	}
+
+	/**	Gets the number of work parts.
+	 *
+	 *	@return		The number of work parts in the work part dictionary.
+	 */
+
+	public int getNumWorkParts () {
+		return workPartParents.length;
+	}
+
+	/**	Gets the word id at a row.
+	 *
+	 *	@param	row		Row.
+	 *
+	 *	@return			Word id.
+	 */
+
+	public long getWordId (int row) {
+		return wordIds[row];
+	}
+
+	/**	Gets the spelling id at a row.
+	 *
+	 *	@param	row		Row.
+	 *
+	 *	@return			Spelling id.
+	 */
+
+	public int getSpelling (int row) {
+		return spellings[row];
+	}
+
+	/**	Gets the work id at a row.
+	 *
+	 *	@param	row		Row.
+	 *
+	 *	@return			Work id, or -1 if none.
+	 */
+
+	public int getWork (int row) {
+		return works[row];
+	}
+
+	/**	Gets the corpus id at a row.
+	 *
+	 *	@param	row		Row.
+	 *
+	 *	@return			Corpus id, or -1 if none.
+	 */
+
+	public int getCorpus (int row) {
+		int work = works[row];
+		return work < 0 ? -1 : workCorpora[work];
+	}
+
+	/**	Gets the work part id at a row.
+	 *
+	 *	@param	row		Row.
+	 *
+	 *	@return			Work part id, or -1 if none.
+	 */
+
+	public int getWorkPart (int row) {
+		return workParts[row];
+	}
+
+	/**	Gets the first word part at a row.
+	 *
+	 *	@param	row		Row.
+	 *
+	 *	@return			Position of the first word part.
+	 */
+
+	public int getPartStart (int row) {
+		return partStart[row];
+	}
+
+	/**	Gets the end of the word parts at a row.
+	 *
+	 *	@param	row		Row.
+	 *
+	 *	@return			Position of the last word part + 1.
+	 */
+
+	public int getPartEnd (int row) {
+		return partStart[row + 1];
+	}
+
+	/**	Gets the lemma id of a word part.
+	 *
+	 *	@param	part	Word part position.
+	 *
+	 *	@return			Lemma id.
+	 */
+
+	public int getPartLemma (int part) {
+		return partLemmas[part];
+	}
+
+	/**	Gets the part of speech id of a word part.
+	 *
+	 *	@param	part	Word part position.
+	 *
+	 *	@return			Part of speech id, or -1 if none.
+	 */
+
+	public int getPartPos (int part) {
+		return partPos[part];
+	}
+
+	/**	Gets the spelling dictionary as insensitive strings.
+	 *
+	 *	@return		Insensitive spellings, indexed by spelling id.
+	 */
+
+	public String[] getSpellingsInsensitive () {
+		return spellingInsensitiveStrings;
+	}
+
+	/**	Gets the lemma dictionary.
+	 *
+	 *	@return		Insensitive lemma tags, indexed by lemma id.
+	 */
+
+	public String[] getLemmaTags () {
+		return lemmaTags;
+	}
+
+	/**	Gets the part of speech dictionary.
+	 *
+	 *	@return		Part of speech tags, indexed by part of speech id.
+	 */
+
+	public String[] getPosTags () {
+		return posTags;
+	}
+
+	/**	Gets the work dictionary.
+	 *
+	 *	@return		Work tags, indexed by work id.
+	 */
+
+	public String[] getWorkTags () {
+		return workTags;
+	}
+
+	/**	Gets the corpus dictionary.
+	 *
+	 *	@return		Corpus tags, indexed by corpus id.
+	 */
+
+	public String[] getCorpusTags () {
+		return corpusTags;
+	}
+
+	/**	Gets the work part id for a work part.
+	 *
+	 *	@param	workPart	Work part.
+	 *
+	 *	@return				Work part id, or -1 if not in the index.
+	 */
+
+	public int getWorkPartId (WorkPart workPart) {
+		return lookup(workPartMap, workPart.getId());
+	}
+
+	/**	Finds phrases.
+	 *
+	 *	<p>This is an offset intersection. A row r is in the result if
+	 *	row r+k is in the k'th set for every k, and the words at those
+	 *	rows are consecutive words in the same work part.
+	 *
+	 *	@param	words		Array of row sets, one for each word in the
+	 *						phrase.
+	 *
+	 *	@return				Set of rows at which the phrase starts.
+	 */
+
+	public BitSet findPhrase (BitSet[] words) {
+		BitSet result = (BitSet)words[0].clone();
+		for (int k = 1; k < words.length; k++) {
+			BitSet next = words[k];
+			for (int row = result.nextSetBit(0); row >= 0;
+				row = result.nextSetBit(row + 1))
+			{
+				int r = row + k;
+				if (r >= numRows || !next.get(r) ||
+					colocationOrdinals[r] != colocationOrdinals[row] + k)
+						result.clear(row);
+			}
+		}
+		return result;
+	}
+
+	/**	Returns true if a set of search criteria can be evaluated
+	 *	against the index.
+	 *
+	 *	@param	criteria	Search criteria.
+	 *
+	 *	@return				True if every criterion is a corpus, work,
+	 *						work part, lemma, part of speech, prosodic,
+	 *						or spelling criterion.
+	 */
+
+	public boolean canSearch (SearchCriteria criteria) {
+		for (Iterator it = criteria.criteriaList.iterator(); it.hasNext(); ) {
+			Object criterion = it.next();
+			if (!(criterion instanceof Corpus ||
+				criterion instanceof Work ||
+				criterion instanceof WorkPart ||
+				criterion instanceof Lemma ||
+				criterion instanceof Pos ||
+				criterion instanceof Prosodic ||
+				criterion instanceof SpellingWithCollationStrength))
+					return false;
+		}
+		return true;
+	}
+
+	/**	Executes a search.
+	 *
+	 *	<p>The caller must first check that the index can evaluate the
+	 *	criteria using {@link #canSearch canSearch}.
+	 *
+	 *	@param	criteria	Search criteria.
+	 *
+	 *	@param	session		Hibernate session used to materialize the
+	 *						words in the results.
+	 *
+	 *	@return		A list of all the
+	 *				{@link edu.northwestern.at.wordhoard.model.search.SearchResult
+	 *				search results} which match the search criteria,
+	 *				ordered by location (by work tag, then by ordinal
+	 *				within work).
+	 */
+
+	public List search (SearchCriteria criteria, Session session) {
+
+		//	Compile the criteria to dictionary masks.
+
+		boolean[] workMask = null;
+		boolean[] workPartMask = null;
+		boolean[] spellingMask = null;
+		boolean[] lemmaMask = null;
+		boolean[] posMask = null;
+		int prosodic = -1;
+		boolean haveWordParts = false;
+		for (Iterator it = criteria.criteriaList.iterator(); it.hasNext(); ) {
+			Object criterion = it.next();
+			if (criterion instanceof Corpus) {
+				int corpus = lookup(corpusMap, ((Corpus)criterion).getId());
+				boolean[] mask = new boolean[workTags.length];
+				for (int i = 0; i < mask.length; i++)
+					mask[i] = corpus >= 0 && workCorpora[i] == corpus;
+				workMask = and(workMask, mask);
+			} else if (criterion instanceof Work) {
+				boolean[] mask = new boolean[workTags.length];
+				int work = lookup(workMap, ((Work)criterion).getId());
+				if (work >= 0) mask[work] = true;
+				workMask = and(workMask, mask);
+			} else if (criterion instanceof WorkPart) {
+				boolean[] mask = new boolean[workPartParents.length];
+				int workPart = lookup(workPartMap, ((WorkPart)criterion).getId());
+				for (int i = 0; i < mask.length; i++) {
+					int parent = workPartParents[i];
+					int grandparent = parent < 0 ? -1 : workPartParents[parent];
+					mask[i] = workPart >= 0 && (i == workPart ||
+						parent == workPart || grandparent == workPart);
+				}
+				workPartMask = and(workPartMask, mask);
+			} else if (criterion instanceof Lemma) {
+				boolean[] mask = new boolean[lemmaTags.length];
+				int lemma = lookup(lemmaMap, ((Lemma)criterion).getId());
+				if (lemma >= 0) mask[lemma] = true;
+				lemmaMask = and(lemmaMask, mask);
+				haveWordParts = true;
+			} else if (criterion instanceof Pos) {
+				boolean[] mask = new boolean[posTags.length];
+				int pos = lookup(posMap, ((Pos)criterion).getId());
+				if (pos >= 0) mask[pos] = true;
+				posMask = and(posMask, mask);
+				haveWordParts = true;
+			} else if (criterion instanceof Prosodic) {
+				byte value = ((Prosodic)criterion).getProsodic();
+				if (prosodic >= 0 && prosodic != value) return new ArrayList();
+				prosodic = value;
+			} else if (criterion instanceof SpellingWithCollationStrength) {
+				spellingMask = and(spellingMask, getSpellingMask(
+					(SpellingWithCollationStrength)criterion));
+			}
+		}
+
+		//	Scan the columns.
+
+		int numResults = 0;
+		int[] resultRows = new int[1024];
+		int[] resultParts = new int[1024];
+		for (int row = 0; row < numRows; row++) {
+			if (workMask != null) {
+				int work = works[row];
+				if (work < 0 || !workMask[work]) continue;
+			}
+			if (workPartMask != null) {
+				int workPart = workParts[row];
+				if (workPart < 0 || !workPartMask[workPart]) continue;
+			}
+			if (prosodic >= 0 && prosodics[row] != prosodic) continue;
+			if (spellingMask != null && !spellingMask[spellings[row]])
+				continue;
+			int first = haveWordParts ? partStart[row] : -1;
+			int last = haveWordParts ? partStart[row + 1] : 0;
+			for (int p = first; p < last; p++) {
+				if (p >= 0) {
+					if (lemmaMask != null && !lemmaMask[partLemmas[p]])
+						continue;
+					if (posMask != null &&
+						(partPos[p] < 0 || !posMask[partPos[p]]))
+							continue;
+				}
+				if (numResults == resultRows.length) {
+					resultRows = Arrays.copyOf(resultRows, numResults << 1);
+					resultParts = Arrays.copyOf(resultParts, numResults << 1);
+				}
+				resultRows[numResults] = row;
+				resultParts[numResults] = p < 0 ? -1 : partIndexes[p];
+				numResults++;
+			}
+		}
+
+		//	Sort by work tag, then by ordinal within work.
+
+		long[] keys = new long[numResults];
+		for (int i = 0; i < numResults; i++) {
+			int row = resultRows[i];
+			int work = works[row];
+			keys[i] = ((long)(work < 0 ? 0 : workTagRanks[work]) << 32) |
+				(workOrdinals[row] & 0xffffffffL);
+		}
+		int[] order = sortIndex(keys, numResults);
+
+		//	Materialize the words.
+
+		int[] rows = new int[numResults];
+		for (int i = 0; i < numResults; i++) rows[i] = resultRows[order[i]];
+		Word[] words = getWords(rows, session);
+		ArrayList result = new ArrayList(numResults);
+		for (int i = 0; i < numResults; i++) {
+			Word word = words[i];
+			if (word != null)
+				result.add(new SearchResult(word, resultParts[order[i]]));
+		}
+		return result;
+	}
+
+	/**	Gets the collation keys of the spelling strings.
+	 *
+	 *	<p>The keys for each character set and strength are computed the
+	 *	first time they are needed and kept for later searches.
+	 *
+	 *	@param	table		Collation key table.
+	 *
+	 *	@param	charset		Character set of the table.
+	 *
+	 *	@param	strength	Strength of the table.
+	 *
+	 *	@return				Keys indexed by spelling id. An element is
+	 *						null if the spelling has no key.
+	 */
+
+	private synchronized String[] getSpellingKeys (CollationKeyTable table,
+		byte charset, int strength)
+	{
+		String[] keys = spellingKeys[charset][strength];
+		if (keys == null) {
+			keys = new String[spellingStrings.length];
+			for (int i = 0; i < keys.length; i++)
+				keys[i] = table.getKey(spellingStrings[i]);
+			spellingKeys[charset][strength] = keys;
+		}
+		return keys;
+	}
+
+	/**	Computes the spelling dictionary mask for a spelling criterion.
+	 *
+	 *	<p>The insensitive and collator tests are applied once per
+	 *	distinct spelling rather than once per word occurrence. The
+	 *	collator test compares precomputed collation keys, and only uses
+	 *	the collator for spellings which have no key.
+	 *
+	 *	@param	sp		Spelling criterion.
+	 *
+	 *	@return			Mask indexed by spelling id.
+	 */
+
+	private boolean[] getSpellingMask (SpellingWithCollationStrength sp) {
+		Spelling spelling = sp.getSpelling();
+		String pat = spelling.getString();
+		byte charset = spelling.getCharset();
+		int strength = sp.getStrength();
+		SpellingMatcher insensitiveMatcher =
+			new SpellingMatcher(CharsetUtils.translateToInsensitive(pat));
+		SpellingMatcher matcher = new SpellingMatcher(pat, charset, strength);
+		String[] keys = getSpellingKeys(matcher.getTable(), charset, strength);
+		boolean[] mask = new boolean[spellingStrings.length];
+		for (int i = 0; i < mask.length; i++) {
+			mask[i] =
+				insensitiveMatcher.matches(spellingInsensitiveStrings[i]) &&
+				matcher.matches(spellingStrings[i], keys[i]);
+		}
+		return mask;
+	}
+
+	/**	Ands two masks.
+	 *
+	 *	@param	mask1	First mask, or null.
+	 *
+	 *	@param	mask2	Second mask.
+	 *
+	 *	@return			mask2 if mask1 is null, else mask1 with each
+	 *					element anded with mask2.
+	 */
+
+	private static boolean[] and (boolean[] mask1, boolean[] mask2) {
+		if (mask1 == null) return mask2;
+		for (int i = 0; i < mask1.length; i++) mask1[i] &= mask2[i];
+		return mask1;
+	}
+
+	/**	Materializes the words at a list of rows.
+	 *
+	 *	<p>Words are fetched by primary key in batches.
+	 *
+	 *	@param	rows		Rows.
+	 *
+	 *	@param	session		Hibernate session.
+	 *
+	 *	@return				Array of words parallel to the rows array.
+	 */
+
+	public Word[] getWords (int[] rows, Session session) {
+		HashMap wordMap = new HashMap();
+		ArrayList batch = new ArrayList();
+		for (int i = 0; i <= rows.length; i++) {
+			if (i < rows.length) {
+				Long id = Long.valueOf(wordIds[rows[i]]);
+				if (wordMap.containsKey(id)) continue;
+				wordMap.put(id, null);
+				batch.add(id);
+			}
+			if (batch.size() == MATERIALIZE_BATCH_SIZE ||
+				(i == rows.length && batch.size() > 0))
+			{
+				Query q = session.createQuery(
+					"from Word word where word.id in (:ids)");
+				q.setParameterList("ids", batch);
+				for (Iterator it = q.list().iterator(); it.hasNext(); ) {
+					Word word = (Word)it.next();
+					wordMap.put(word.getId(), word);
+				}
+				batch.clear();
+			}
+		}
+		Word[] result = new Word[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			result[i] = (Word)wordMap.get(Long.valueOf(wordIds[rows[i]]));
+		return result;
+	}
+
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
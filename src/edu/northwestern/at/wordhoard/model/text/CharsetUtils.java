@@ -5,7 +5,19 @@ package edu.northwestern.at.wordhoard.model.text;
 import java.util.*;
 import java.text.*;
 
+import edu.northwestern.at.utils.intcollections.LongIntHashMap;
+
 /**	Character set utilities.
+ *
+ *	<p>The translation methods which take and return strings allocate
+ *	only the result string, and return the argument itself when no
+ *	characters change. Each also has a companion which writes into a
+ *	caller-supplied character array, for callers such as the build tools
+ *	which translate very large numbers of strings and can reuse one
+ *	buffer.
+ *
+ *	<p>All methods are thread-safe. Collators are not, so each thread
+ *	gets its own copies of them.
  */
  
 public class CharsetUtils {
@@ -19,10 +31,10 @@ public class CharsetUtils {
 	private static final char TERM_SIGMA = (char)0x03c2;
 	
 	/**	Bad (unknown) beta code sequence from most recent call to
-	 *	translateBetaToUni, or null if none.
+	 *	translateBetaToUni in each thread, or null if none.
 	 */
 	 
-	private static String badBetaSeq;
+	private static ThreadLocal badBetaSeq = new ThreadLocal();
 	
 	/**	Array of beta code character types.
 	 *
@@ -63,21 +75,17 @@ public class CharsetUtils {
 		charTypes['!'] = 2;		// obscure letter
 	}
 	
-	/**	A unicode character wrapped in an object. */
+	/**	Maximum length of a beta code sequence which can be mapped. */
 	
-	private static class Uni {
-		private char c;
-		private Uni (char c) {
-			this.c = c;
-		}
-		private Uni (int c) {
-			this.c = (char)c;
-		}
-	}
+	private static final int MAX_BETA_SEQ_LENGTH = 8;
 	
-	/**	Map from beta code sequences to unicode characters. */
+	/**	Map from packed beta code sequences to unicode characters. 
+	 *
+	 *	<p>Sequences are packed with {@link #packBetaSeq packBetaSeq}, so
+	 *	looking up a sequence does not create a string.
+	 */
 	
-	private static HashMap betaToUniMap = new HashMap();
+	private static LongIntHashMap betaToUniMap = new LongIntHashMap(1024);
 	
 	/**	Array mapping Unicode basic Latin and Latin-1 supplement characters
 	 *	to their beta code sequences.
@@ -457,8 +465,9 @@ public class CharsetUtils {
 	 */
 	 
 	private static void initBetaCode (String betaSeq, int uni) {
-		if (betaToUniMap.get(betaSeq) == null) {
-			betaToUniMap.put(betaSeq, new Uni(uni));
+		long key = packBetaSeq(betaSeq, 0, betaSeq.length());
+		if (!betaToUniMap.containsKey(key)) {
+			betaToUniMap.put(key, uni);
 		} else {
 			System.out.println("Duplicate beta code mapping for " + betaSeq);
 		}
@@ -487,6 +496,34 @@ public class CharsetUtils {
 		}
 	}
 	
+	/**	Packs a beta code sequence into a long.
+	 *
+	 *	<p>Each ASCII character takes 7 bits, and the top byte holds the
+	 *	length, so distinct sequences of up to 8 characters have distinct
+	 *	packed values.
+	 *
+	 *	@param	str		String containing the sequence.
+	 *
+	 *	@param	start	Start index of the sequence.
+	 *
+	 *	@param	end		End index of the sequence.
+	 *
+	 *	@return			Packed sequence, or -1 if the sequence is too long
+	 *					or contains a non-ASCII character.
+	 */
+	 
+	private static long packBetaSeq (CharSequence str, int start, int end) {
+		int len = end - start;
+		if (len > MAX_BETA_SEQ_LENGTH) return -1;
+		long result = 0;
+		for (int i = start; i < end; i++) {
+			char c = str.charAt(i);
+			if (c >= 0x80) return -1;
+			result = (result << 7) | c;
+		}
+		return result | ((long)len << 56);
+	}
+	
 	/**	Translates a beta code string to unicode.
 	 *
 	 *	@param	str		Beta code string.
@@ -495,18 +532,37 @@ public class CharsetUtils {
 	 */
 	 
 	public static String translateBetaToUni (String str) {
-		badBetaSeq = null;
-		char[] in = str.toCharArray();
-		char[] out = new char[in.length];
-		int inLen = in.length;
+		char[] out = new char[str.length()];
+		int len = translateBetaToUni(str, out, 0);
+		return new String(out, 0, len);
+	}
+	
+	/**	Translates a beta code string to unicode into a buffer.
+	 *
+	 *	@param	str			Beta code string.
+	 *
+	 *	@param	out			Output buffer. The unicode string is never
+	 *						longer than the beta code string.
+	 *
+	 *	@param	outStart	Index in the output buffer at which to start
+	 *						writing.
+	 *
+	 *	@return				Length of the unicode string.
+	 */
+	 
+	public static int translateBetaToUni (CharSequence str, char[] out,
+		int outStart)
+	{
+		String bad = null;
+		int inLen = str.length();
 		int inPos = 0;
-		int outPos = 0;
+		int outPos = outStart;
 		while (inPos < inLen) {
 			int inSeqStart = inPos;
-			char c = in[inPos++];
+			char c = str.charAt(inPos++);
 			if (c < 0 || c >= 0x80) {
-				if (badBetaSeq == null)
-					badBetaSeq = "0x" + Integer.toString(c, 16);
+				if (bad == null)
+					bad = "0x" + Integer.toString(c, 16);
 				inPos++;
 				continue;
 			}
@@ -514,10 +570,10 @@ public class CharsetUtils {
 			boolean haveLetter = type == 1;
 			if (type == 1 || type == 2) {
 				while (inPos < inLen) {
-					c = in[inPos];
+					c = str.charAt(inPos);
 					if (c < 0 || c >= 0x080) {
-						if (badBetaSeq == null)
-							badBetaSeq = "0x" + Integer.toString(c, 16);
+						if (bad == null)
+							bad = "0x" + Integer.toString(c, 16);
 						inPos++;
 						continue;
 					}
@@ -530,17 +586,17 @@ public class CharsetUtils {
 					inPos++;
 				}
 			}
-			String seq = new String(in, inSeqStart, inPos-inSeqStart);
-			Uni uni = (Uni)betaToUniMap.get(seq);
-			if (uni == null) {
-				if (badBetaSeq == null) badBetaSeq = seq;
+			int uni = betaToUniMap.get(packBetaSeq(str, inSeqStart, inPos));
+			if (uni == 0) {
+				if (bad == null)
+					bad = str.subSequence(inSeqStart, inPos).toString();
 			} else {
-				c = uni.c;
+				c = (char)uni;
 				if (c == SIGMA) {
 					if (inPos == inLen) {
 						c = TERM_SIGMA;
 					} else {
-						char d = in[inPos];
+						char d = str.charAt(inPos);
 						if ((d < 'a' || d > 'z') && d != '\'')
 							c = TERM_SIGMA;
 					}
@@ -548,17 +604,19 @@ public class CharsetUtils {
 				out[outPos++] = c;
 			}
 		}
-		return new String(out, 0, outPos);
+		badBetaSeq.set(bad);
+		return outPos - outStart;
 	}
 	
 	/**	Gets the bad beta code sequence.
 	 *
 	 *	@return		Bad (unknown) beta code sequence from most recent call
-	 *				to translateBetaToUni, or null if none.
+	 *				to translateBetaToUni in the current thread, or null if
+	 *				none.
 	 */
 	
 	public static String getBadBetaSeq () {
-		return badBetaSeq;
+		return (String)badBetaSeq.get();
 	}
 	
 	/**	Translates a unicode string to beta code. 
@@ -586,10 +644,24 @@ public class CharsetUtils {
 		return buf.toString();
 	}
 	
-	/**	Array of collators indexed by character set and strength. */
+	/**	Array of prototype collators indexed by character set and 
+	 *	strength. Collators are not thread-safe, so these are never used
+	 *	directly. Each thread gets its own clones.
+	 */
 	
 	private static Collator[][] collators = new Collator[2][3];
 	
+	/**	Each thread's clones of the collators, indexed by character set
+	 *	and strength.
+	 */
+	
+	private static ThreadLocal threadCollators =
+		new ThreadLocal() {
+			protected Object initialValue () {
+				return new Collator[2][3];
+			}
+		};
+	
 	static {
 		initCollator(TextParams.ROMAN, Collator.PRIMARY);			
 		initCollator(TextParams.ROMAN, Collator.SECONDARY);			
@@ -635,11 +707,21 @@ public class CharsetUtils {
 	 *
 	 *	@param	strength	Strength.
 	 *
-	 *	@return		Collator.
+	 *	@return		Collator. The collator belongs to the current thread,
+	 *				and must not be used by other threads.
 	 */
 	 
 	public static Collator getCollator (byte charset, int strength) {
-		return collators[charset][strength];
+		Collator[][] clones = (Collator[][])threadCollators.get();
+		Collator collator = clones[charset][strength];
+		if (collator == null) {
+			Collator prototype = collators[charset][strength];
+			synchronized (prototype) {
+				collator = (Collator)prototype.clone();
+			}
+			clones[charset][strength] = collator;
+		}
+		return collator;
 	}
 	
 	/**	Array mapping Unicode basic Latin and Latin-1 supplement characters
@@ -834,6 +916,30 @@ public class CharsetUtils {
 			greekExtendedInsensitiveTranslationTable[i-0x1f00] = 0x03c9;		
 	}
 	
+	/**	Translates a character to a case and diacritical insensitive
+	 *	version.
+	 *
+	 *	@param	c			Character.
+	 *
+	 *	@return				Insensitive character.
+	 */
+	 
+	public static char toInsensitive (char c) {
+		if (c < 0x0180) {
+			// Basic Latin, Latin-1 supplement, ad Latin Extended-A ranges.
+			return (char)basicInsensitiveTranslationTable[c];
+		} else if (c >= 0x0370 && c < 0x0400) {
+			// Greek and Coptic range.
+			return (char)greekAndCopticInsensitiveTranslationTable[c-0x0370];
+		} else if (c >= 0x1f00 && c < 0x2000) {
+			// Greek extended range.
+			return (char)greekExtendedInsensitiveTranslationTable[c-0x1f00];
+		} else {
+			// Punt.
+			return c;
+		}
+	}
+	
 	/**	Translates a string to a case and diacritical insensitive version.
 	 *
 	 *	<p>All diacritical marks are removed and all letters are mapped to
@@ -841,31 +947,89 @@ public class CharsetUtils {
 	 *
 	 *	@param	str			String.
 	 *
-	 *	@return				Insensitive string.
+	 *	@return				Insensitive string. This is str itself if it
+	 *						is already insensitive.
 	 */
 	 
 	public static String translateToInsensitive (String str) {
-		char[] in = str.toCharArray();
-		char[] out = new char[in.length];
-		for (int i = 0; i < in.length; i++) {
-			char c = in[i];
-			if (c < 0x0180) {
-				// Basic Latin, Latin-1 supplement, ad Latin Extended-A ranges.
-				out[i] = (char)basicInsensitiveTranslationTable[c];
-			} else if (c >= 0x0370 && c < 0x0400) {
-				// Greek and Coptic range.
-				out[i] = (char)greekAndCopticInsensitiveTranslationTable[c-0x0370];
-			} else if (c >= 0x1f00 && c < 0x2000) {
-				// Greek extended range.
-				out[i] = (char)greekExtendedInsensitiveTranslationTable[c-0x1f00];
-			} else {
-				// Punt.
-				out[i] = c;
-			}
-		}
+		int len = str.length();
+		int i = 0;
+		while (i < len && toInsensitive(str.charAt(i)) == str.charAt(i)) i++;
+		if (i == len) return str;
+		char[] out = new char[len];
+		str.getChars(0, i, out, 0);
+		for (; i < len; i++) out[i] = toInsensitive(str.charAt(i));
 		return new String(out);
 	}
 	
+	/**	Translates a string to a case and diacritical insensitive version
+	 *	into a buffer.
+	 *
+	 *	@param	str			String.
+	 *
+	 *	@param	out			Output buffer.
+	 *
+	 *	@param	outStart	Index in the output buffer at which to start
+	 *						writing.
+	 *
+	 *	@return				Length of the insensitive string, which is
+	 *						always the length of str.
+	 */
+	 
+	public static int translateToInsensitive (CharSequence str, char[] out,
+		int outStart)
+	{
+		int len = str.length();
+		for (int i = 0; i < len; i++)
+			out[outStart + i] = toInsensitive(str.charAt(i));
+		return len;
+	}
+	
+	/**	Translates characters to case and diacritical insensitive versions
+	 *	in place.
+	 *
+	 *	@param	buf			Buffer.
+	 *
+	 *	@param	start		Index of first character.
+	 *
+	 *	@param	len			Number of characters.
+	 */
+	 
+	public static void translateToInsensitive (char[] buf, int start,
+		int len)
+	{
+		for (int i = start; i < start + len; i++)
+			buf[i] = toInsensitive(buf[i]);
+	}
+	
+	/**	Compares two strings ignoring case and diacritical marks.
+	 *
+	 *	<p>This is the same as comparing the results of 
+	 *	{@link #translateToInsensitive(String) translateToInsensitive} for 
+	 *	the two strings, without creating them.
+	 *
+	 *	@param	str1		First string.
+	 *
+	 *	@param	str2		Second string.
+	 *
+	 *	@return				True if the insensitive versions of the strings
+	 *						are equal.
+	 */
+	 
+	public static boolean equalsInsensitive (CharSequence str1, 
+		CharSequence str2)
+	{
+		int len = str1.length();
+		if (str2.length() != len) return false;
+		for (int i = 0; i < len; i++) {
+			char c1 = str1.charAt(i);
+			char c2 = str2.charAt(i);
+			if (c1 != c2 && toInsensitive(c1) != toInsensitive(c2))
+				return false;
+		}
+		return true;
+	}
+	
 	/**	Array mapping Unicode Greek tonos accented vowels (in the Greek and
 	 *	Coptic range) to oxia accented vowels (in the Greek extended range).
 	 */
@@ -900,21 +1064,54 @@ public class CharsetUtils {
 	 *	@param	str		String with tonos accents.
 	 *
 	 *	@return			String with tonos accents translated to oxia accents.
+	 *					This is str itself if it has no tonos accents.
 	 */
 	 
 	public static String translateTonosToOxia (String str) {
-		char[] in = str.toCharArray();
-		char[] out = new char[in.length];
-		for (int i = 0; i < in.length; i++) {
-			char c = in[i];
-			if (c >= 0x03ac && c < 0x03cf) {
-				out[i] = (char)tonosToOxiaTranslationTable[c-0x03ac];
-			} else {
-				out[i] = c;
-			}
-		}
+		int len = str.length();
+		int i = 0;
+		while (i < len && toOxia(str.charAt(i)) == str.charAt(i)) i++;
+		if (i == len) return str;
+		char[] out = new char[len];
+		str.getChars(0, i, out, 0);
+		for (; i < len; i++) out[i] = toOxia(str.charAt(i));
 		return new String(out);
 	}
+	
+	/**	Translates tonos accents to oxia accents into a buffer.
+	 *
+	 *	@param	str			String with tonos accents.
+	 *
+	 *	@param	out			Output buffer.
+	 *
+	 *	@param	outStart	Index in the output buffer at which to start
+	 *						writing.
+	 *
+	 *	@return				Length of the translated string, which is
+	 *						always the length of str.
+	 */
+	 
+	public static int translateTonosToOxia (CharSequence str, char[] out,
+		int outStart)
+	{
+		int len = str.length();
+		for (int i = 0; i < len; i++)
+			out[outStart + i] = toOxia(str.charAt(i));
+		return len;
+	}
+	
+	/**	Translates a tonos accented vowel to an oxia accented vowel.
+	 *
+	 *	@param	c		Character.
+	 *
+	 *	@return			Translated character.
+	 */
+	 
+	private static char toOxia (char c) {
+		if (c >= 0x03ac && c < 0x03cf)
+			return (char)tonosToOxiaTranslationTable[c-0x03ac];
+		return c;
+	}
 
 	/**	Hides the default no-arg constructor.
 	 */
@@ -36,9 +36,23 @@ public class Text implements Externalizable, Cloneable {
 
 	static final long serialVersionUID = 4722056890310561290L;
 	
-	/**	Array of lines, or null if not yet finalized. */
+	/**	Array of lines, or null if not yet finalized. Elements are null
+	 *	for lines which have not yet been decoded.
+	 */
 	
 	private TextLine[] lines;
+
+	/**	Codec for lines not yet decoded, or null if all lines are decoded.
+	 *	(Not serialized.)
+	 */
+
+	private TextCodec codec;
+
+	/**	Number of lines decoded by the codec.
+	 *	(Not serialized.)
+	 */
+
+	private int numDecoded;
 	
 	/**	Number of lines, or 0 if not yet finalized. */
 	
@@ -315,8 +329,50 @@ public class Text implements Externalizable, Cloneable {
 	 */
 	 
 	public TextLine[] getLines () {
+		if (codec != null) {
+			for (int i = 0; i < numLines; i++) line(i);
+		}
 		return lines;
 	}
+
+	/**	Gets a line, decoding it if necessary.
+	 *
+	 *	<p>The text must be finalized, or a null pointer exception is 
+	 *	thrown.
+	 *
+	 *	@param	lineIndex	Line index.
+	 *
+	 *	@return				The line.
+	 */
+
+	private synchronized TextLine line (int lineIndex) {
+		TextLine line = lines[lineIndex];
+		if (line == null) {
+			line = codec.decodeLine(lineIndex);
+			lines[lineIndex] = line;
+			numDecoded++;
+			if (numDecoded == numLines) codec = null;
+		}
+		return line;
+	}
+
+	/**	Sets the codec from which lines are decoded.
+	 *
+	 *	<p>The text is finalized, and its lines are decoded from the codec
+	 *	as they are used.
+	 *
+	 *	@param	codec		Codec.
+	 */
+
+	void setCodec (TextCodec codec) {
+		lineNumbers = codec.hasLineNumbers();
+		marginalia = codec.hasMarginalia();
+		numLines = codec.getNumLines();
+		lines = new TextLine[numLines];
+		numDecoded = 0;
+		this.codec = numLines == 0 ? null : codec;
+		lineList = null;
+	}
 	
 	/**	Gets a specific line.
 	 *
@@ -325,7 +381,7 @@ public class Text implements Externalizable, Cloneable {
 	 */
 	 
 	public TextLine getLine (int lineIndex) {
-		if(lineIndex>0 && lineIndex<lines.length) return (TextLine)lines[lineIndex];
+		if(lineIndex>0 && lineIndex<lines.length) return line(lineIndex);
 		else return null;
 	}
 	
@@ -365,12 +421,12 @@ public class Text implements Externalizable, Cloneable {
 			return new TextLocation(0, 0);
 		} else if (lineIndex == Integer.MAX_VALUE) {
 			if (numLines == 0) return new TextLocation(0, 0);
-			TextLine line = lines[numLines-1];
+			TextLine line = line(numLines-1);
 			return new TextLocation(numLines-1, line.getLength());
 		} else if (charOffsetInLine == -1) {
 			return new TextLocation(lineIndex, 0);
 		} else if (charOffsetInLine == Integer.MAX_VALUE) {
-			TextLine line = lines[lineIndex];
+			TextLine line = line(lineIndex);
 			return new TextLocation(lineIndex, 
 				line.getLength());
 		} else {
@@ -394,7 +450,7 @@ public class Text implements Externalizable, Cloneable {
 	public TextRange getWordLocation (TextLocation loc, byte charset) {
 		int lineIndex = loc.getIndex();
 		int charOffsetInLine = loc.getOffset();
-		TextLine line = lines[lineIndex];
+		TextLine line = line(lineIndex);
 		String str = line.getText();
 		int len = str.length();
 		BreakIterator breakIterator = BreakIterator.getWordInstance();
@@ -441,7 +497,7 @@ public class Text implements Externalizable, Cloneable {
 	 
 	public TextRange getLineLocation (TextLocation loc) {
 		int lineIndex = loc.getIndex();
-		TextLine line = lines[lineIndex];
+		TextLine line = line(lineIndex);
 		return new TextRange(
 			new TextLocation(lineIndex, 0),
 			new TextLocation(lineIndex, line.getLength()));
@@ -468,13 +524,13 @@ public class Text implements Externalizable, Cloneable {
 		if (startIndex < 0) startIndex = 0;
 		if (endIndex >= startIndex) {
 			if (startOffset < 0) startOffset = 0;
-			TextLine line = lines[endIndex];
+			TextLine line = line(endIndex);
 			String text = line.getText();
 			int len = text.length();
 			if (endOffset > len) endOffset = len;
 		}
 		for (int i = startIndex; i <= endIndex; i++) {
-			TextLine line = lines[i];
+			TextLine line = line(i);
 			String text = line.getText();
 			if (i == startIndex) {
 				if (i == endIndex) {
@@ -501,7 +557,7 @@ public class Text implements Externalizable, Cloneable {
 	 */
 	 
 	public void computeLineWidths () {
-		for (int i = 0; i < lines.length; i++) lines[i].computeWidth();
+		for (int i = 0; i < lines.length; i++) line(i).computeWidth();
 	}
 	
 	/**	Computes vertical positioning information.
@@ -514,7 +570,7 @@ public class Text implements Externalizable, Cloneable {
 	 
 	public void computeVerticalPositioningInformation () {
 		for (int i = 0; i < lines.length; i++)
-			lines[i].computeVerticalPositioningInformation();
+			line(i).computeVerticalPositioningInformation();
 	}
 	
 	/**	Converts a location from derived to base coordinates.
@@ -603,8 +659,10 @@ public class Text implements Externalizable, Cloneable {
 		try {
 			Text copy = (Text)super.clone();
 			copy.lines = new TextLine[numLines];
-			for (int i = 0; i < numLines; i++) 
-				copy.lines[i] = (TextLine)lines[i].clone();
+			for (int i = 0; i < numLines; i++) {
+				if (lines[i] != null)
+					copy.lines[i] = (TextLine)lines[i].clone();
+			}
 			return copy;
 		} catch (CloneNotSupportedException e) {
 			// can't happen.
@@ -617,6 +675,9 @@ public class Text implements Externalizable, Cloneable {
 	 *	<p>The text must be finalized, or a null pointer exception is 
 	 *	thrown.
 	 *
+	 *	<p>The text is written in the compact format described in
+	 *	{@link TextCodec}.
+	 *
 	 *	@param	out		Object output stream.
 	 *
 	 *	@throws	IOException	I/O error.
@@ -625,17 +686,19 @@ public class Text implements Externalizable, Cloneable {
 	public void writeExternal (ObjectOutput out)
 		throws IOException
 	{
-		out.writeBoolean(lineNumbers);
-		out.writeBoolean(marginalia);
-		out.writeInt(numLines);
-		for (int i = 0; i < numLines; i++) 
-			lines[i].writeExternal(out);
+		out.writeByte(TextCodec.FORMAT_MARKER);
+		TextCodec.write(this, out);
 	}
 
 	/**	Reads the text from an object input stream (deserializes the object).
 	 *
 	 *	<p>The deserialized text is finalized.</p>
 	 *
+	 *	<p>Texts in the compact format are decoded a line at a time as
+	 *	the lines are used. Texts in the original format, which begins
+	 *	with the line numbers flag instead of the format marker, are
+	 *	decoded in full.
+	 *
 	 *	@param	in		Object input stream.
 	 *
 	 *	@throws	IOException	I/O error.
@@ -646,7 +709,12 @@ public class Text implements Externalizable, Cloneable {
 	public void readExternal (ObjectInput in)
 		throws IOException, ClassNotFoundException
 	{
-		lineNumbers = in.readBoolean();
+		byte first = in.readByte();
+		if (first == TextCodec.FORMAT_MARKER) {
+			setCodec(TextCodec.read(in));
+			return;
+		}
+		lineNumbers = first != 0;
 		marginalia = in.readBoolean();
 		numLines = in.readInt();
 		lines = new TextLine[numLines];
@@ -680,7 +748,7 @@ public class Text implements Externalizable, Cloneable {
 		linePixelOffsets = new int[numLines+1];
 		int y = 0;
 		for (int i = 0; i < numLines; i++) {
-			TextLine line = lines[i];
+			TextLine line = line(i);
 			linePixelOffsets[i] = y;
 			y += line.getHeight();
 			if (hasMarginalia) {
@@ -767,7 +835,7 @@ public class Text implements Externalizable, Cloneable {
 					selEndLineIndex > lineIndex ? Integer.MAX_VALUE :
 						selEndCharOffset;
 			}
-			TextLine line = lines[lineIndex];
+			TextLine line = line(lineIndex);
 			line.draw(context, x, y + linePixelOffsets[lineIndex], 
 				selStartOffsetInLine, selEndOffsetInLine);
 		}
@@ -809,7 +877,7 @@ public class Text implements Externalizable, Cloneable {
 		if (y >= linePixelOffsets[numLines])
 			return new LocationAndCharset(Integer.MAX_VALUE, 0);
 		int lineIndex = getLineIndexGivenPixelOffset(y);
-		TextLine line = lines[lineIndex];
+		TextLine line = line(lineIndex);
 		return line.viewToModel(context, lineIndex, x);
 	}
 	
@@ -831,7 +899,7 @@ public class Text implements Externalizable, Cloneable {
 	 */
 	 
 	public void setMarkers (TextLocation[] locations) {
-		for (int i = 0; i < lines.length; i++) lines[i].setMarked(false);
+		for (int i = 0; i < lines.length; i++) line(i).setMarked(false);
 		if (locations != null) {
 			for (int i = 0; i < locations.length; i++) {
 				TextLocation loc = locations[i];
@@ -839,7 +907,7 @@ public class Text implements Externalizable, Cloneable {
 				loc = baseToDerived(loc);
 				int lineIndex = loc.getIndex();
 				if (lineIndex >= 0 && lineIndex < numLines) 
-					lines[lineIndex].setMarked(true);
+					line(lineIndex).setMarked(true);
 			}
 		}
 	}
@@ -853,7 +921,7 @@ public class Text implements Externalizable, Cloneable {
 	 
 	public boolean isMarked (int lineIndex) {
 		if (lineIndex < 0 || lineIndex >= numLines) return false;
-		return lines[lineIndex].isMarked();
+		return line(lineIndex).isMarked();
 	}
 
 }
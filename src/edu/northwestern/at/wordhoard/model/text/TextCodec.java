@@ -0,0 +1,559 @@
+package edu.northwestern.at.wordhoard.model.text;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**	Compact binary text codec.
+ *
+ *	<p>This class encodes and decodes the persistent form of
+ *	{@link edu.northwestern.at.wordhoard.model.text.Text Text} objects.
+ *	The format is versioned and consists of a header, a style dictionary,
+ *	a line length table, and the encoded lines:
+ *
+ *	<ul>
+ *	<li>The header holds the line number and marginalia flags and the
+ *		number of lines.
+ *	<li>The style dictionary lists each distinct combination of character
+ *		set, font size, and style attributes used by the runs in the text.
+ *		Each run refers to its entry in the dictionary by index.
+ *	<li>The line length table gives the number of bytes in each encoded
+ *		line, so any line can be located and decoded without decoding
+ *		the lines which precede it.
+ *	</ul>
+ *
+ *	<p>Integers are written as variable length quantities, and strings are
+ *	written as UTF-8. Marginalia are encoded recursively. When the encoded
+ *	text is large it is compressed with the deflate algorithm if that makes
+ *	it smaller.
+ *
+ *	<p>A codec object holds the encoded lines of one text and decodes them
+ *	on request. Decoding is lazy: the text decodes each line only when it
+ *	is first used.
+ */
+
+class TextCodec {
+
+	/**	Format marker.
+	 *
+	 *	<p>Written as the first byte of a serialized text in the compact
+	 *	format. Texts serialized in the original format begin with a
+	 *	boolean, which is always 0 or 1.
+	 */
+
+	static final byte FORMAT_MARKER = (byte)0xC7;
+
+	/**	Current format version. */
+
+	static final byte VERSION = 1;
+
+	/**	Flag for compressed data. */
+
+	private static final int COMPRESSED = 0x01;
+
+	/**	Minimum encoded size in bytes for compression. */
+
+	private static final int MIN_COMPRESS_SIZE = 1024;
+
+	/**	Line numbers header flag. */
+
+	private static final int LINE_NUMBERS = 0x01;
+
+	/**	Marginalia header flag. */
+
+	private static final int MARGINALIA = 0x02;
+
+	/**	Encoded data. */
+
+	private byte[] data;
+
+	/**	True if the text has line numbers. */
+
+	private boolean lineNumbers;
+
+	/**	True if the text has marginalia. */
+
+	private boolean marginalia;
+
+	/**	Number of lines. */
+
+	private int numLines;
+
+	/**	Style dictionary. Each entry packs a character set, font size,
+	 *	and style attributes as returned by {@link #packStyle packStyle}.
+	 */
+
+	private int[] styles;
+
+	/**	Offsets in the encoded data of the start of each line, with an
+	 *	extra element at the end containing the offset of the end of the
+	 *	last line.
+	 */
+
+	private int[] lineOffsets;
+
+	/**	Creates a codec for encoded text data.
+	 *
+	 *	@param	data		Uncompressed encoded data.
+	 *
+	 *	@throws	IOException		Bad encoded data.
+	 */
+
+	TextCodec (byte[] data)
+		throws IOException
+	{
+		this.data = data;
+		DataInputStream in = new DataInputStream(
+			new ByteArrayInputStream(data));
+		int flags = in.readUnsignedByte();
+		lineNumbers = (flags & LINE_NUMBERS) != 0;
+		marginalia = (flags & MARGINALIA) != 0;
+		numLines = readInt(in);
+		int numStyles = readInt(in);
+		styles = new int[numStyles];
+		for (int i = 0; i < numStyles; i++) styles[i] = readInt(in);
+		lineOffsets = new int[numLines+1];
+		int[] lengths = new int[numLines];
+		for (int i = 0; i < numLines; i++) lengths[i] = readInt(in);
+		int offset = data.length - in.available();
+		for (int i = 0; i < numLines; i++) {
+			lineOffsets[i] = offset;
+			offset += lengths[i];
+		}
+		lineOffsets[numLines] = offset;
+		if (offset != data.length)
+			throw new IOException("Bad encoded text: line table mismatch");
+	}
+
+	/**	Returns true if the text has line numbers.
+	 *
+	 *	@return		True if the text has line numbers.
+	 */
+
+	boolean hasLineNumbers () {
+		return lineNumbers;
+	}
+
+	/**	Returns true if the text has marginalia.
+	 *
+	 *	@return		True if the text has marginalia.
+	 */
+
+	boolean hasMarginalia () {
+		return marginalia;
+	}
+
+	/**	Gets the number of lines.
+	 *
+	 *	@return		The number of lines.
+	 */
+
+	int getNumLines () {
+		return numLines;
+	}
+
+	/**	Decodes a line.
+	 *
+	 *	@param	lineIndex	Line index.
+	 *
+	 *	@return				The decoded line.
+	 */
+
+	TextLine decodeLine (int lineIndex) {
+		int offset = lineOffsets[lineIndex];
+		int length = lineOffsets[lineIndex+1] - offset;
+		DataInputStream in = new DataInputStream(
+			new ByteArrayInputStream(data, offset, length));
+		TextLine line = new TextLine();
+		try {
+			line.readCompact(in, this);
+		} catch (IOException e) {
+			//	The line table was checked when the codec was created,
+			//	so this can only happen if the data is corrupt.
+			throw new IllegalStateException(
+				"Bad encoded text line " + lineIndex + ": " + e);
+		}
+		return line;
+	}
+
+	/**	Gets a style dictionary entry.
+	 *
+	 *	@param	index		Index of style in dictionary.
+	 *
+	 *	@return				Packed style.
+	 */
+
+	int getStyle (int index) {
+		return styles[index];
+	}
+
+	/**	Writes a text in the compact format.
+	 *
+	 *	@param	text		The text, which must be finalized.
+	 *
+	 *	@param	out			Output.
+	 *
+	 *	@throws	IOException		I/O error.
+	 */
+
+	static void write (Text text, DataOutput out)
+		throws IOException
+	{
+		byte[] bytes = encode(text);
+		int flags = 0;
+		byte[] stored = bytes;
+		if (bytes.length >= MIN_COMPRESS_SIZE) {
+			byte[] compressed = compress(bytes);
+			if (compressed.length < bytes.length) {
+				stored = compressed;
+				flags |= COMPRESSED;
+			}
+		}
+		out.writeByte(VERSION);
+		out.writeByte(flags);
+		out.writeInt(bytes.length);
+		out.writeInt(stored.length);
+		out.write(stored);
+	}
+
+	/**	Reads a text in the compact format.
+	 *
+	 *	<p>The format marker must already have been read.
+	 *
+	 *	@param	in			Input.
+	 *
+	 *	@return				Codec for the encoded text.
+	 *
+	 *	@throws	IOException		I/O error or unsupported format version.
+	 */
+
+	static TextCodec read (DataInput in)
+		throws IOException
+	{
+		int version = in.readUnsignedByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported text format version " +
+				version);
+		int flags = in.readUnsignedByte();
+		int length = in.readInt();
+		int storedLength = in.readInt();
+		byte[] stored = new byte[storedLength];
+		in.readFully(stored);
+		byte[] bytes = (flags & COMPRESSED) != 0 ?
+			decompress(stored, length) : stored;
+		return new TextCodec(bytes);
+	}
+
+	/**	Encodes a text.
+	 *
+	 *	@param	text		The text, which must be finalized.
+	 *
+	 *	@return				Uncompressed encoded data.
+	 *
+	 *	@throws	IOException		I/O error.
+	 */
+
+	static byte[] encode (Text text)
+		throws IOException
+	{
+		TextLine[] lines = text.getLines();
+		int numLines = lines.length;
+		StyleTable styleTable = new StyleTable();
+		ByteArrayOutputStream lineBytes = new ByteArrayOutputStream();
+		DataOutputStream lineOut = new DataOutputStream(lineBytes);
+		int[] lengths = new int[numLines];
+		for (int i = 0; i < numLines; i++) {
+			int start = lineOut.size();
+			lines[i].writeCompact(lineOut, styleTable);
+			lengths[i] = lineOut.size() - start;
+		}
+		lineOut.flush();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+			lineBytes.size() + 16 + numLines * 2);
+		DataOutputStream out = new DataOutputStream(bytes);
+		int flags = 0;
+		if (text.hasLineNumbers()) flags |= LINE_NUMBERS;
+		if (text.hasMarginalia()) flags |= MARGINALIA;
+		out.writeByte(flags);
+		writeInt(out, numLines);
+		int[] styles = styleTable.getStyles();
+		writeInt(out, styles.length);
+		for (int i = 0; i < styles.length; i++) writeInt(out, styles[i]);
+		for (int i = 0; i < numLines; i++) writeInt(out, lengths[i]);
+		lineBytes.writeTo(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**	Compresses data.
+	 *
+	 *	@param	bytes		Data.
+	 *
+	 *	@return				Compressed data.
+	 */
+
+	private static byte[] compress (byte[] bytes) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		deflater.setInput(bytes);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(
+			bytes.length / 2);
+		byte[] buf = new byte[8192];
+		while (!deflater.finished()) {
+			int n = deflater.deflate(buf);
+			out.write(buf, 0, n);
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	/**	Decompresses data.
+	 *
+	 *	@param	stored		Compressed data.
+	 *
+	 *	@param	length		Length of uncompressed data.
+	 *
+	 *	@return				Uncompressed data.
+	 *
+	 *	@throws	IOException		Bad compressed data.
+	 */
+
+	private static byte[] decompress (byte[] stored, int length)
+		throws IOException
+	{
+		Inflater inflater = new Inflater();
+		inflater.setInput(stored);
+		byte[] bytes = new byte[length];
+		try {
+			int n = 0;
+			while (n < length && !inflater.finished()) {
+				int k = inflater.inflate(bytes, n, length - n);
+				if (k == 0 && (inflater.needsInput() ||
+					inflater.needsDictionary())) break;
+				n += k;
+			}
+			if (n != length)
+				throw new IOException("Bad compressed text: truncated");
+		} catch (DataFormatException e) {
+			throw new IOException("Bad compressed text: " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+		return bytes;
+	}
+
+	/**	Packs a character set, font size, and style attributes into an
+	 *	int.
+	 *
+	 *	@param	charset		Character set.
+	 *
+	 *	@param	size		Font size.
+	 *
+	 *	@param	style		Style attributes.
+	 *
+	 *	@return				Packed style.
+	 */
+
+	static int packStyle (byte charset, byte size, int style) {
+		return ((charset & 0xff) << 24) | ((size & 0xff) << 16) |
+			(style & 0xffff);
+	}
+
+	/**	A style dictionary under construction. */
+
+	static class StyleTable {
+		private HashMap indexes = new HashMap();
+		private ArrayList styles = new ArrayList();
+
+		/**	Gets the index of a style, adding it if necessary.
+		 *
+		 *	@param	packedStyle		Packed style.
+		 *
+		 *	@return					Index of style in dictionary.
+		 */
+
+		int getIndex (int packedStyle) {
+			Integer key = Integer.valueOf(packedStyle);
+			Integer index = (Integer)indexes.get(key);
+			if (index == null) {
+				index = Integer.valueOf(styles.size());
+				indexes.put(key, index);
+				styles.add(key);
+			}
+			return index.intValue();
+		}
+
+		/**	Gets the styles.
+		 *
+		 *	@return		Array of packed styles in index order.
+		 */
+
+		int[] getStyles () {
+			int[] result = new int[styles.size()];
+			for (int i = 0; i < result.length; i++)
+				result[i] = ((Integer)styles.get(i)).intValue();
+			return result;
+		}
+	}
+
+	/**	Writes an int as a variable length quantity.
+	 *
+	 *	<p>Signed values are zigzag encoded, so small negative values are
+	 *	also short.
+	 *
+	 *	@param	out		Output.
+	 *
+	 *	@param	val		Value.
+	 *
+	 *	@throws	IOException		I/O error.
+	 */
+
+	static void writeInt (DataOutput out, int val)
+		throws IOException
+	{
+		int v = (val << 1) ^ (val >> 31);
+		while ((v & ~0x7f) != 0) {
+			out.writeByte((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	/**	Reads an int written by {@link #writeInt writeInt}.
+	 *
+	 *	@param	in		Input.
+	 *
+	 *	@return			Value.
+	 *
+	 *	@throws	IOException		I/O error.
+	 */
+
+	static int readInt (DataInput in)
+		throws IOException
+	{
+		int v = 0;
+		int shift = 0;
+		while (true) {
+			int b = in.readUnsignedByte();
+			v |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) break;
+			shift += 7;
+			if (shift > 28)
+				throw new IOException("Bad encoded text: integer too long");
+		}
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/**	Writes a string.
+	 *
+	 *	@param	out		Output.
+	 *
+	 *	@param	str		String, or null.
+	 *
+	 *	@throws	IOException		I/O error.
+	 */
+
+	static void writeString (DataOutput out, String str)
+		throws IOException
+	{
+		if (str == null) {
+			writeInt(out, -1);
+			return;
+		}
+		byte[] bytes = str.getBytes("UTF-8");
+		writeInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**	Reads a string written by {@link #writeString writeString}.
+	 *
+	 *	@param	in		Input.
+	 *
+	 *	@return			String, or null.
+	 *
+	 *	@throws	IOException		I/O error.
+	 */
+
+	static String readString (DataInput in)
+		throws IOException
+	{
+		int length = readInt(in);
+		if (length < 0) return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	/**	Writes encoded marginalia.
+	 *
+	 *	@param	out			Output.
+	 *
+	 *	@param	marginalia	Marginalia, or null if none.
+	 *
+	 *	@throws	IOException		I/O error.
+	 */
+
+	static void writeMarginalia (DataOutput out, Text marginalia)
+		throws IOException
+	{
+		if (marginalia == null) {
+			writeInt(out, -1);
+			return;
+		}
+		byte[] bytes = encode(marginalia);
+		writeInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**	Reads marginalia written by {@link #writeMarginalia
+	 *	writeMarginalia}.
+	 *
+	 *	@param	in		Input.
+	 *
+	 *	@return			Marginalia, or null if none.
+	 *
+	 *	@throws	IOException		I/O error.
+	 */
+
+	static Text readMarginalia (DataInput in)
+		throws IOException
+	{
+		int length = readInt(in);
+		if (length < 0) return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		Text marginalia = new Text();
+		marginalia.setCodec(new TextCodec(bytes));
+		return marginalia;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
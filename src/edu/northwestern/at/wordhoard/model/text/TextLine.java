@@ -724,6 +724,65 @@ public class TextLine implements Cloneable {
 		}
 		runList = null;
 	}
+
+	/**	Writes the line in the compact text format.
+	 *
+	 *	<p>The line must be finalized, or a null pointer exception is 
+	 *	thrown.
+	 *
+	 *	@param	out			Output.
+	 *
+	 *	@param	styleTable	Style dictionary for the text.
+	 *
+	 *	@throws	IOException	I/O error.
+	 */
+
+	void writeCompact (DataOutput out, TextCodec.StyleTable styleTable)
+		throws IOException
+	{
+		out.writeByte(justification);
+		TextCodec.writeInt(out, indentation);
+		TextCodec.writeInt(out, number);
+		TextCodec.writeString(out, 
+			label == null || label.length() == 0 ? null : label);
+		TextCodec.writeString(out, 
+			stanzaLabel == null || stanzaLabel.length() == 0 ? 
+				null : stanzaLabel);
+		TextCodec.writeMarginalia(out, marginalia);
+		TextCodec.writeInt(out, runs.length);
+		for (int i = 0; i < runs.length; i++)
+			runs[i].writeCompact(out, styleTable);
+	}
+
+	/**	Reads the line in the compact text format.
+	 *
+	 *	<p>The decoded line is finalized.
+	 *
+	 *	@param	in			Input.
+	 *
+	 *	@param	codec		Codec for the text.
+	 *
+	 *	@throws	IOException	I/O error.
+	 */
+
+	void readCompact (DataInput in, TextCodec codec)
+		throws IOException
+	{
+		justification = in.readByte();
+		indentation = TextCodec.readInt(in);
+		number = TextCodec.readInt(in);
+		label = TextCodec.readString(in);
+		stanzaLabel = TextCodec.readString(in);
+		marginalia = TextCodec.readMarginalia(in);
+		int numRuns = TextCodec.readInt(in);
+		runs = new TextRun[numRuns];
+		for (int i = 0; i < numRuns; i++) {
+			TextRun run = new TextRun();
+			run.readCompact(in, codec);
+			runs[i] = run;
+		}
+		runList = null;
+	}
 	
 	/**	Draws the line.
 	 *
@@ -576,6 +576,45 @@ public class TextRun implements Cloneable {
 		size = in.readByte();
 		style = in.readInt();
 	}
+
+	/**	Writes the run in the compact text format.
+	 *
+	 *	<p>The character set, size, and style of the run are written as an 
+	 *	index in the style dictionary for the text.
+	 *
+	 *	@param	out			Output.
+	 *
+	 *	@param	styleTable	Style dictionary for the text.
+	 *
+	 *	@throws	IOException	I/O error.
+	 */
+
+	void writeCompact (DataOutput out, TextCodec.StyleTable styleTable)
+		throws IOException
+	{
+		TextCodec.writeInt(out, 
+			styleTable.getIndex(TextCodec.packStyle(charset, size, style)));
+		TextCodec.writeString(out, text);
+	}
+
+	/**	Reads the run in the compact text format.
+	 *
+	 *	@param	in			Input.
+	 *
+	 *	@param	codec		Codec for the text.
+	 *
+	 *	@throws	IOException	I/O error.
+	 */
+
+	void readCompact (DataInput in, TextCodec codec)
+		throws IOException
+	{
+		int packedStyle = codec.getStyle(TextCodec.readInt(in));
+		charset = (byte)(packedStyle >>> 24);
+		size = (byte)(packedStyle >>> 16);
+		style = packedStyle & 0xffff;
+		text = TextCodec.readString(in);
+	}
 	
 	/**	Gets and caches the glyph vector for the run.
 	 *
@@ -193,9 +193,8 @@ public class Spelling implements GroupingObject, Serializable, Comparable {
 	public boolean equalsInsensitive (Object obj) {
 		if (obj == null || !(obj instanceof Spelling)) return false;
 		Spelling other = (Spelling)obj;
-		return CharsetUtils.translateToInsensitive( string ).equals(
-			CharsetUtils.translateToInsensitive( other.string ) ) &&
-				charset == other.charset;
+		return charset == other.charset &&
+			CharsetUtils.equalsInsensitive(string, other.string);
 	}
 
 	/**	Returns a hash code for the object.
@@ -40,6 +40,18 @@ class Config {
 
 	private static String userDataDatabasePassword;
 
+	/**	Corpus database URL, for server-side searches. */
+
+	private static String corpusDatabaseURL;
+
+	/**	Corpus database username. */
+
+	private static String corpusDatabaseUsername;
+
+	/**	Corpus database password. */
+
+	private static String corpusDatabasePassword;
+
 	/**	RMI registry port. */
 
 	private static int rmiRegistryPort;
@@ -69,6 +81,12 @@ class Config {
 		userDataDatabaseURL = properties.getProperty("userdata-database-url");
 		userDataDatabaseUsername = properties.getProperty("userdata-database-username");
 		userDataDatabasePassword = properties.getProperty("userdata-database-password");
+		corpusDatabaseURL = properties.getProperty("corpus-database-url",
+			userDataDatabaseURL);
+		corpusDatabaseUsername = properties.getProperty(
+			"corpus-database-username", userDataDatabaseUsername);
+		corpusDatabasePassword = properties.getProperty(
+			"corpus-database-password", userDataDatabasePassword);
 		String srmiRegistryPort = properties.getProperty("rmiregistry-port");
 		rmiRegistryPort = (srmiRegistryPort == null) ? 1099 :
 			Integer.parseInt( srmiRegistryPort );
@@ -139,6 +157,37 @@ class Config {
 		return userDataDatabasePassword;
 	}
 
+	/**	Gets the corpus database URL.
+	 *
+	 *	<p>Defaults to the user data database URL, since the corpus
+	 *	tables and the user data tables are normally in the same
+	 *	database.
+	 *
+	 *	@return		The corpus database URL.
+	 */
+
+	static String getCorpusDatabaseURL () {
+		return corpusDatabaseURL;
+	}
+
+	/**	Gets the corpus database username.
+	 *
+	 *	@return		The corpus database username.
+	 */
+
+	static String getCorpusDatabaseUsername () {
+		return corpusDatabaseUsername;
+	}
+
+	/**	Gets the corpus database password.
+	 *
+	 *	@return		The corpus database password.
+	 */
+
+	static String getCorpusDatabasePassword () {
+		return corpusDatabasePassword;
+	}
+
 	/**	Gets the log configuration file path.
 	 *
 	 *	@return		The log configuration file path.
@@ -0,0 +1,456 @@
+package edu.northwestern.at.wordhoard.server;
+
+/*	Please see the license information at the end of this file. */
+
+import java.security.SecureRandom;
+import java.util.*;
+
+import edu.northwestern.at.utils.db.PersistenceException;
+import edu.northwestern.at.wordhoard.model.PersistenceManager;
+import edu.northwestern.at.wordhoard.model.search.SearchCriteria;
+import edu.northwestern.at.wordhoard.model.search.SearchResult;
+import edu.northwestern.at.wordhoard.model.search.SearchResultStream;
+import edu.northwestern.at.wordhoard.swing.WordHoardSettings;
+
+/**	Server-side query service.
+ *
+ *	<p>Runs word searches on the server on behalf of client sessions. All
+ *	searches share one Hibernate session factory and second-level cache,
+ *	which are warmed when the server starts, so clients need no database
+ *	connection of their own.
+ *
+ *	<p>Results are returned a page at a time as
+ *	{@link SearchResultRow search result rows}. A search which has more
+ *	results than fit on its first page keeps its persistence manager and
+ *	result stream open in a cursor, identified by an unguessable token.
+ *	Cursors belong to the session which opened them. They are closed when
+ *	they are read to the end, when the client closes them, when their
+ *	session ends, or after they have been idle for 2 minutes.
+ *
+ *	<p>Each open cursor holds a database connection, so their number is
+ *	limited both per session and for the whole server. When a limit is
+ *	reached, the least recently used cursor is closed to make room.
+ */
+
+class QueryService {
+
+	/**	Maximum number of results per page. */
+
+	private static final int MAX_PAGE_SIZE = 1000;
+
+	/**	Maximum number of open cursors per session. */
+
+	private static final int MAX_CURSORS_PER_SESSION = 2;
+
+	/**	Maximum number of open cursors for all sessions. */
+
+	private static final int MAX_CURSORS = 16;
+
+	/**	Idle time after which a cursor is closed, in milliseconds. */
+
+	private static final long CURSOR_TIMEOUT = 2*60*1000L;
+
+	/**	True if the service is available. */
+
+	private static boolean available;
+
+	/**	Maps cursor tokens to open cursors. */
+
+	private static Map cursors = new HashMap();
+
+	/**	Random number generator for cursor tokens. */
+
+	private static SecureRandom random = new SecureRandom();
+
+	/**	An open search. */
+
+	private static class Cursor {
+
+		/**	Cursor token, or null if not registered. */
+
+		private String token;
+
+		/**	Id of the session which owns the cursor. */
+
+		private Long sessionId;
+
+		/**	Persistence manager. */
+
+		private PersistenceManager pm;
+
+		/**	Result stream. */
+
+		private SearchResultStream stream;
+
+		/**	Time the cursor was last used. */
+
+		private long lastUsed = System.currentTimeMillis();
+
+		/**	True if closed. */
+
+		private boolean closed;
+
+	}
+
+	/**	Initializes the service.
+	 *
+	 *	<p>Initializes Hibernate for the corpus database with the
+	 *	second-level cache enabled, and warms the cache. If this fails,
+	 *	the error is logged and the service is unavailable, but the rest
+	 *	of the server runs as usual.
+	 */
+
+	static void initialize () {
+		try {
+			PersistenceManager.init(Config.getCorpusDatabaseURL(),
+				Config.getCorpusDatabaseUsername(),
+				Config.getCorpusDatabasePassword(), true);
+			PersistenceManager.warmCache();
+			available = true;
+		} catch (Exception e) {
+			Logger.log(Logger.ERROR,
+				WordHoardSettings.getString("Serversidesearchesunavailable"),
+				e);
+		}
+	}
+
+	/**	Checks that the service is available.
+	 *
+	 *	@throws	WordHoardError	service is not available.
+	 */
+
+	private static void checkAvailable ()
+		throws WordHoardError
+	{
+		if (!available)
+			throw new WordHoardError(
+				WordHoardSettings.getString(
+					"Serversidesearchesarenotavailable"));
+	}
+
+	/**	Starts a search.
+	 *
+	 *	@param	sessionId	Id of the session starting the search.
+	 *
+	 *	@param	criteria	Search criteria.
+	 *
+	 *	@param	pageSize	Maximum number of results per page. Limited to
+	 *						1000.
+	 *
+	 *	@return				First page of results.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 *
+	 *	@throws	WordHoardError			service is not available, or
+	 *									criteria are invalid.
+	 */
+
+	static ResultPage search (Long sessionId, RemoteSearchCriteria criteria,
+		int pageSize)
+			throws PersistenceException, WordHoardError
+	{
+		checkAvailable();
+		pageSize = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+		Cursor cursor = new Cursor();
+		cursor.sessionId = sessionId;
+		cursor.pm = new PersistenceManager();
+		try {
+			SearchCriteria sq = criteria.toSearchCriteria(cursor.pm);
+			cursor.stream = cursor.pm.searchWordsStream(sq, pageSize);
+			return nextPage(cursor);
+		} catch (PersistenceException e) {
+			close(cursor);
+			throw e;
+		} catch (WordHoardError e) {
+			close(cursor);
+			throw e;
+		} catch (RuntimeException e) {
+			close(cursor);
+			throw new PersistenceException(e);
+		}
+	}
+
+	/**	Gets the next page of results.
+	 *
+	 *	@param	sessionId	Id of the session asking for the page.
+	 *
+	 *	@param	token		Cursor token from the previous page.
+	 *
+	 *	@return				Next page of results.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 *
+	 *	@throws	WordHoardError			service is not available, or
+	 *									the cursor is unknown, expired,
+	 *									or owned by another session.
+	 */
+
+	static ResultPage nextPage (Long sessionId, String token)
+		throws PersistenceException, WordHoardError
+	{
+		checkAvailable();
+		Cursor cursor = getCursor(sessionId, token);
+		try {
+			return nextPage(cursor);
+		} catch (RuntimeException e) {
+			close(cursor);
+			throw new PersistenceException(e);
+		}
+	}
+
+	/**	Reads the next page from a cursor.
+	 *
+	 *	<p>The cursor is registered if there are more pages and it is not
+	 *	already registered, and closed if there are no more pages.
+	 *
+	 *	@param	cursor		Cursor.
+	 *
+	 *	@return				Next page of results.
+	 *
+	 *	@throws	WordHoardError	the cursor was closed.
+	 */
+
+	private static ResultPage nextPage (Cursor cursor)
+		throws WordHoardError
+	{
+		synchronized (cursor) {
+			if (cursor.closed)
+				throw new WordHoardError(
+					WordHoardSettings.getString("Unknownorexpiredcursor"));
+			cursor.lastUsed = System.currentTimeMillis();
+			List page = cursor.stream.nextPage();
+			SearchResultRow[] rows = new SearchResultRow[page.size()];
+			int i = 0;
+			for (Iterator it = page.iterator(); it.hasNext(); i++)
+				rows[i] = new SearchResultRow((SearchResult)it.next());
+			cursor.pm.clear();
+			int count = cursor.stream.getCount();
+			if (cursor.stream.hasNext()) {
+				if (cursor.token == null) register(cursor);
+				return new ResultPage(rows, cursor.token, count);
+			} else {
+				close(cursor);
+				return new ResultPage(rows, null, count);
+			}
+		}
+	}
+
+	/**	Counts the results of a search.
+	 *
+	 *	<p>The results are counted with a single count query. Only if
+	 *	the criteria include a spelling with collation strength, whose
+	 *	matches are filtered after the query, are the results read and
+	 *	counted a page at a time.
+	 *
+	 *	@param	criteria	Search criteria.
+	 *
+	 *	@return				Number of results.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 *
+	 *	@throws	WordHoardError			service is not available, or
+	 *									criteria are invalid.
+	 */
+
+	static int count (RemoteSearchCriteria criteria)
+		throws PersistenceException, WordHoardError
+	{
+		checkAvailable();
+		PersistenceManager pm = new PersistenceManager();
+		SearchResultStream stream = null;
+		try {
+			SearchCriteria sq = criteria.toSearchCriteria(pm);
+			if (sq.canCount()) return pm.countWords(sq);
+			stream = pm.searchWordsStream(sq, MAX_PAGE_SIZE);
+			while (stream.hasNext()) {
+				stream.nextPage();
+				pm.clear();
+			}
+			return stream.getCount();
+		} catch (RuntimeException e) {
+			throw new PersistenceException(e);
+		} finally {
+			if (stream != null) stream.close();
+			pm.close();
+		}
+	}
+
+	/**	Registers a cursor.
+	 *
+	 *	<p>If the cursor's session already has the maximum number of open
+	 *	cursors, its least recently used cursor is closed. Otherwise, if
+	 *	the server already has the maximum number of open cursors, the
+	 *	least recently used cursor of any session is closed.
+	 *
+	 *	@param	cursor		Cursor.
+	 */
+
+	private static void register (Cursor cursor) {
+		Cursor oldest = null;
+		synchronized (cursors) {
+			int n = 0;
+			Cursor oldestInSession = null;
+			for (Iterator it = cursors.values().iterator(); it.hasNext(); ) {
+				Cursor c = (Cursor)it.next();
+				if (oldest == null || c.lastUsed < oldest.lastUsed) oldest = c;
+				if (!c.sessionId.equals(cursor.sessionId)) continue;
+				n++;
+				if (oldestInSession == null ||
+					c.lastUsed < oldestInSession.lastUsed)
+						oldestInSession = c;
+			}
+			if (n >= MAX_CURSORS_PER_SESSION) {
+				oldest = oldestInSession;
+			} else if (cursors.size() < MAX_CURSORS) {
+				oldest = null;
+			}
+			byte[] bytes = new byte[16];
+			random.nextBytes(bytes);
+			StringBuffer buf = new StringBuffer();
+			for (int i = 0; i < bytes.length; i++)
+				buf.append(Integer.toHexString((bytes[i] & 0xff) | 0x100)
+					.substring(1));
+			cursor.token = buf.toString();
+			cursors.put(cursor.token, cursor);
+		}
+		if (oldest != null) close(oldest);
+	}
+
+	/**	Gets a registered cursor.
+	 *
+	 *	@param	sessionId	Session id.
+	 *
+	 *	@param	token		Cursor token.
+	 *
+	 *	@return				The cursor.
+	 *
+	 *	@throws	WordHoardError	the cursor is unknown, expired, or
+	 *							owned by another session.
+	 */
+
+	private static Cursor getCursor (Long sessionId, String token)
+		throws WordHoardError
+	{
+		Cursor cursor;
+		synchronized (cursors) {
+			cursor = token == null ? null : (Cursor)cursors.get(token);
+		}
+		if (cursor == null || !cursor.sessionId.equals(sessionId))
+			throw new WordHoardError(
+				WordHoardSettings.getString("Unknownorexpiredcursor"));
+		return cursor;
+	}
+
+	/**	Closes a cursor on behalf of a session.
+	 *
+	 *	<p>Unknown or expired cursors are ignored.
+	 *
+	 *	@param	sessionId	Session id.
+	 *
+	 *	@param	token		Cursor token.
+	 */
+
+	static void close (Long sessionId, String token) {
+		try {
+			close(getCursor(sessionId, token));
+		} catch (WordHoardError e) {
+		}
+	}
+
+	/**	Closes a cursor.
+	 *
+	 *	@param	cursor		Cursor.
+	 */
+
+	private static void close (Cursor cursor) {
+		if (cursor.token != null) {
+			synchronized (cursors) {
+				cursors.remove(cursor.token);
+			}
+		}
+		synchronized (cursor) {
+			if (cursor.closed) return;
+			cursor.closed = true;
+			try {
+				if (cursor.stream != null) cursor.stream.close();
+				cursor.pm.close();
+			} catch (Exception e) {
+				Logger.log(Logger.ERROR, "Cursor close", e);
+			}
+		}
+	}
+
+	/**	Closes all the cursors of a session.
+	 *
+	 *	@param	sessionId	Session id.
+	 */
+
+	static void closeAll (Long sessionId) {
+		close(sessionId, 0);
+	}
+
+	/**	Closes cursors which have been idle too long.
+	 */
+
+	static void closeIdle () {
+		close(null, System.currentTimeMillis() - CURSOR_TIMEOUT);
+	}
+
+	/**	Closes cursors.
+	 *
+	 *	@param	sessionId	Session id of cursors to close, or null to close
+	 *						cursors for all sessions.
+	 *
+	 *	@param	lastUsed	Close only cursors last used before this time,
+	 *						or 0 to close them regardless of use.
+	 */
+
+	private static void close (Long sessionId, long lastUsed) {
+		List toClose = new ArrayList();
+		synchronized (cursors) {
+			for (Iterator it = cursors.values().iterator(); it.hasNext(); ) {
+				Cursor c = (Cursor)it.next();
+				if (sessionId != null && !c.sessionId.equals(sessionId))
+					continue;
+				if (lastUsed != 0 && c.lastUsed >= lastUsed) continue;
+				toClose.add(c);
+			}
+		}
+		for (Iterator it = toClose.iterator(); it.hasNext(); )
+			close((Cursor)it.next());
+	}
+
+	/** Hides the default no-arg constructor. */
+
+	private QueryService () {
+		throw new UnsupportedOperationException();
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,219 @@
+package edu.northwestern.at.wordhoard.server;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import edu.northwestern.at.utils.db.PersistenceException;
+import edu.northwestern.at.wordhoard.model.PersistenceManager;
+import edu.northwestern.at.wordhoard.model.PersistentObject;
+import edu.northwestern.at.wordhoard.model.search.SearchCriteria;
+import edu.northwestern.at.wordhoard.model.search.SearchCriteriaClassMismatchException;
+import edu.northwestern.at.wordhoard.model.search.SearchCriteriaTypedSet;
+import edu.northwestern.at.wordhoard.model.search.SearchCriterion;
+
+/**	Search criteria in a form which can be sent to the server.
+ *
+ *	<p>Persistent criteria such as corpora, works and lemmas are sent as
+ *	references by class and id, so their object graphs are not
+ *	serialized. The server loads them from its own session. Value
+ *	criteria such as spellings, genders and prosodics are sent as they
+ *	are.
+ */
+
+public class RemoteSearchCriteria implements Serializable {
+
+	/**	A reference to a persistent criterion. */
+
+	private static class Ref implements Serializable {
+
+		/**	Class of the criterion. */
+
+		private Class cls;
+
+		/**	Id of the criterion. */
+
+		private Long id;
+
+		/**	Creates a new reference.
+		 *
+		 *	@param	cls		Class of the criterion.
+		 *
+		 *	@param	id		Id of the criterion.
+		 */
+
+		private Ref (Class cls, Long id) {
+			this.cls = cls;
+			this.id = id;
+		}
+
+	}
+
+	/**	A typed set of criteria. */
+
+	private static class TypedSet implements Serializable {
+
+		/**	The class name of the criteria in the set. */
+
+		private String typeClass;
+
+		/**	Boolean relationship among the criteria. */
+
+		private String booleanRelation;
+
+		/**	Converted criteria. */
+
+		private ArrayList criteria = new ArrayList();
+
+	}
+
+	/**	Converted criteria. */
+
+	private ArrayList criteria = new ArrayList();
+
+	/**	Creates new remote search criteria.
+	 *
+	 *	@param	searchCriteria		Search criteria.
+	 */
+
+	public RemoteSearchCriteria (SearchCriteria searchCriteria) {
+		for (Iterator it = searchCriteria.getCriteria().iterator();
+			it.hasNext(); )
+				criteria.add(toRemote(it.next()));
+	}
+
+	/**	Converts a criterion to its remote form.
+	 *
+	 *	@param	criterion		Criterion.
+	 *
+	 *	@return					Remote form of the criterion.
+	 */
+
+	private static Object toRemote (Object criterion) {
+		if (criterion instanceof PersistentObject) {
+			PersistentObject obj = (PersistentObject)criterion;
+			return new Ref(getEntityClass(obj), obj.getId());
+		} else if (criterion instanceof SearchCriteriaTypedSet) {
+			SearchCriteriaTypedSet set = (SearchCriteriaTypedSet)criterion;
+			TypedSet result = new TypedSet();
+			result.typeClass = set.getSearchCriterionClassname();
+			result.booleanRelation = set.getBoolRelationship();
+			for (Iterator it = set.getCriteria().iterator(); it.hasNext(); )
+				result.criteria.add(toRemote(it.next()));
+			return result;
+		} else {
+			return criterion;
+		}
+	}
+
+	/**	Gets the entity class of a persistent object.
+	 *
+	 *	<p>Hibernate proxies are subclasses of their entity classes.
+	 *
+	 *	@param	obj		Persistent object.
+	 *
+	 *	@return			The entity class.
+	 */
+
+	private static Class getEntityClass (Object obj) {
+		Class cls = obj.getClass();
+		while (cls.getName().indexOf("$") >= 0 &&
+			PersistentObject.class.isAssignableFrom(cls.getSuperclass()))
+				cls = cls.getSuperclass();
+		return cls;
+	}
+
+	/**	Converts a criterion from its remote form.
+	 *
+	 *	@param	criterion		Remote form of the criterion.
+	 *
+	 *	@param	pm				Persistence manager.
+	 *
+	 *	@return					The criterion.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 *
+	 *	@throws	WordHoardError			a criterion no longer exists,
+	 *									or a typed set is invalid.
+	 */
+
+	private static SearchCriterion fromRemote (Object criterion,
+		PersistenceManager pm)
+			throws PersistenceException, WordHoardError
+	{
+		if (criterion instanceof Ref) {
+			Ref ref = (Ref)criterion;
+			Object obj = pm.get(ref.cls, ref.id);
+			if (!(obj instanceof SearchCriterion))
+				throw new WordHoardError("Unknown search criterion: " +
+					ref.cls.getName() + " " + ref.id);
+			return (SearchCriterion)obj;
+		} else if (criterion instanceof TypedSet) {
+			TypedSet set = (TypedSet)criterion;
+			SearchCriteriaTypedSet result =
+				new SearchCriteriaTypedSet(set.typeClass);
+			result.setBoolRelationship(set.booleanRelation);
+			try {
+				for (Iterator it = set.criteria.iterator(); it.hasNext(); )
+					result.add(fromRemote(it.next(), pm));
+			} catch (SearchCriteriaClassMismatchException e) {
+				throw new WordHoardError(e.getMessage());
+			}
+			return result;
+		} else {
+			return (SearchCriterion)criterion;
+		}
+	}
+
+	/**	Converts the criteria back to search criteria.
+	 *
+	 *	@param	pm		Persistence manager used to load the persistent
+	 *					criteria.
+	 *
+	 *	@return			The search criteria.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 *
+	 *	@throws	WordHoardError			a criterion no longer exists,
+	 *									or a typed set is invalid.
+	 */
+
+	SearchCriteria toSearchCriteria (PersistenceManager pm)
+		throws PersistenceException, WordHoardError
+	{
+		SearchCriteria result = new SearchCriteria();
+		for (Iterator it = criteria.iterator(); it.hasNext(); )
+			result.add(fromRemote(it.next(), pm));
+		return result;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
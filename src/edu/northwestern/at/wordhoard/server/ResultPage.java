@@ -0,0 +1,111 @@
+package edu.northwestern.at.wordhoard.server;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.Serializable;
+
+/**	A page of search results.
+ *
+ *	<p>Pages are returned by the server-side search methods of
+ *	{@link WordHoardSession}. A page which is not the last one carries a
+ *	cursor token. Pass the token to
+ *	{@link WordHoardSession#nextPage nextPage} to get the next page, or
+ *	to {@link WordHoardSession#closeCursor closeCursor} to abandon the
+ *	search.
+ */
+
+public class ResultPage implements Serializable {
+
+	/**	Rows. */
+
+	private SearchResultRow[] rows;
+
+	/**	Cursor token, or null if this is the last page. */
+
+	private String cursor;
+
+	/**	Number of results delivered so far, including this page. */
+
+	private int count;
+
+	/**	Creates a new result page.
+	 *
+	 *	@param	rows		Rows.
+	 *
+	 *	@param	cursor		Cursor token, or null if this is the last page.
+	 *
+	 *	@param	count		Number of results delivered so far, including
+	 *						this page.
+	 */
+
+	ResultPage (SearchResultRow[] rows, String cursor, int count) {
+		this.rows = rows;
+		this.cursor = cursor;
+		this.count = count;
+	}
+
+	/**	Gets the rows.
+	 *
+	 *	@return		The rows, in order by location.
+	 */
+
+	public SearchResultRow[] getRows () {
+		return rows;
+	}
+
+	/**	Gets the cursor token.
+	 *
+	 *	@return		The cursor token, or null if this is the last page.
+	 */
+
+	public String getCursor () {
+		return cursor;
+	}
+
+	/**	Returns true if there are more pages.
+	 *
+	 *	@return		True if there are more pages.
+	 */
+
+	public boolean hasMore () {
+		return cursor != null;
+	}
+
+	/**	Gets the number of results delivered so far.
+	 *
+	 *	@return		Number of results delivered so far, including this
+	 *				page.
+	 */
+
+	public int getCount () {
+		return count;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -0,0 +1,205 @@
+package edu.northwestern.at.wordhoard.server;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.Serializable;
+
+import edu.northwestern.at.wordhoard.model.Line;
+import edu.northwestern.at.wordhoard.model.Word;
+import edu.northwestern.at.wordhoard.model.WorkPart;
+import edu.northwestern.at.wordhoard.model.search.SearchResult;
+import edu.northwestern.at.wordhoard.model.wrappers.Spelling;
+
+/**	A search result row.
+ *
+ *	<p>A search result row is a compact, detached copy of the parts of a
+ *	{@link edu.northwestern.at.wordhoard.model.search.SearchResult search
+ *	result} needed to display it as a concordance line. It holds no
+ *	references to persistent objects, so it can be sent from the server
+ *	without pulling an object graph along with it. The word id may be
+ *	used to fetch the full word later.
+ */
+
+public class SearchResultRow implements Serializable {
+
+	/**	Word id. */
+
+	private Long wordId;
+
+	/**	Word tag. */
+
+	private String wordTag;
+
+	/**	Part index in the word, or -1 if none. */
+
+	private int partIndex;
+
+	/**	Work tag. */
+
+	private String workTag;
+
+	/**	Ordinal of the word within its work. */
+
+	private int workOrdinal;
+
+	/**	Work part tag. */
+
+	private String workPartTag;
+
+	/**	Work part short title. */
+
+	private String workPartTitle;
+
+	/**	Line label, or null if none. */
+
+	private String lineLabel;
+
+	/**	Spelling. */
+
+	private Spelling spelling;
+
+	/**	Brief description, or null if none. */
+
+	private Spelling description;
+
+	/**	Creates a new search result row.
+	 *
+	 *	@param	result		Search result.
+	 */
+
+	SearchResultRow (SearchResult result) {
+		Word word = result.getWord();
+		wordId = word.getId();
+		wordTag = word.getTag();
+		partIndex = result.getPartIndex();
+		workTag = word.getWorkTag();
+		workOrdinal = word.getWorkOrdinal();
+		WorkPart workPart = word.getWorkPart();
+		if (workPart != null) {
+			workPartTag = workPart.getTag();
+			workPartTitle = workPart.getShortTitle();
+		}
+		Line line = word.getLine();
+		if (line != null) lineLabel = line.getLabel();
+		spelling = word.getSpelling();
+		description = word.getBriefDescription();
+	}
+
+	/**	Gets the word id.
+	 *
+	 *	@return		The word id.
+	 */
+
+	public Long getWordId () {
+		return wordId;
+	}
+
+	/**	Gets the word tag.
+	 *
+	 *	@return		The word tag.
+	 */
+
+	public String getWordTag () {
+		return wordTag;
+	}
+
+	/**	Gets the part index in the word.
+	 *
+	 *	@return		The part index in the word, or -1 if none.
+	 */
+
+	public int getPartIndex () {
+		return partIndex;
+	}
+
+	/**	Gets the work tag.
+	 *
+	 *	@return		The work tag.
+	 */
+
+	public String getWorkTag () {
+		return workTag;
+	}
+
+	/**	Gets the ordinal of the word within its work.
+	 *
+	 *	@return		The ordinal of the word within its work.
+	 */
+
+	public int getWorkOrdinal () {
+		return workOrdinal;
+	}
+
+	/**	Gets the work part tag.
+	 *
+	 *	@return		The work part tag, or null if none.
+	 */
+
+	public String getWorkPartTag () {
+		return workPartTag;
+	}
+
+	/**	Gets the work part short title.
+	 *
+	 *	@return		The work part short title, or null if none.
+	 */
+
+	public String getWorkPartTitle () {
+		return workPartTitle;
+	}
+
+	/**	Gets the line label.
+	 *
+	 *	@return		The line label, or null if none.
+	 */
+
+	public String getLineLabel () {
+		return lineLabel;
+	}
+
+	/**	Gets the spelling.
+	 *
+	 *	@return		The spelling.
+	 */
+
+	public Spelling getSpelling () {
+		return spelling;
+	}
+
+	/**	Gets the brief description.
+	 *
+	 *	@return		The brief description of the word, or null if none.
+	 */
+
+	public Spelling getDescription () {
+		return description;
+	}
+
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
@@ -5,6 +5,7 @@ package edu.northwestern.at.wordhoard.server;
 import java.rmi.*;
 import java.rmi.registry.*;
 
+import edu.northwestern.at.utils.metrics.Metrics;
 import edu.northwestern.at.wordhoard.swing.WordHoardSettings;
 
 /**	The server main program.
@@ -43,6 +44,8 @@ public class Server {
 			Config.read(path);
 			Logger.initialize();
 			WordHoardSessionImpl.initialize();
+			QueryService.initialize();
+			Metrics.registerMBean("edu.northwestern.at.wordhoard:type=Metrics");
 			Bootstrap bootstrap = new BootstrapImpl();
 			Registry registry = LocateRegistry.createRegistry(
 				Config.getRmiRegistryPort());
@@ -7,10 +7,12 @@ import java.util.*;
 
 
 import edu.northwestern.at.utils.db.PersistenceException;
+import edu.northwestern.at.utils.db.jdbc.RowBatch;
 import edu.northwestern.at.wordhoard.model.userdata.UserDataObject;
 import edu.northwestern.at.wordhoard.model.userdata.WordSet;
 import edu.northwestern.at.wordhoard.swing.calculator.modelutils.BadOwnerException;
 import edu.northwestern.at.wordhoard.swing.calculator.modelutils.UserDataObjectUpdater;
+import edu.northwestern.at.wordhoard.swing.calculator.modelutils.WordSetDelta;
 import edu.northwestern.at.wordhoard.server.model.*;
 
 /**	Session remote object.
@@ -201,6 +203,123 @@ public interface WordHoardSession extends Remote {
 
 	public int performBatchInserts (String[] insertStatements )
 		throws RemoteException, WordHoardError, PersistenceException;
+
+	/**	Performs batch inserts of typed row batches.
+	 *
+	 *	<p>The rows travel as typed column arrays rather than SQL text, and
+	 *	are inserted with prepared statements. Batches may only insert into
+	 *	the word set and phrase set count and tag tables.
+	 *
+	 *	@param	batches		Row batches.
+	 *
+	 *	@return				Count of rows inserted.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	WordHoard-specific error.
+	 */
+
+	public int performBatchInserts (RowBatch[] batches)
+		throws RemoteException, WordHoardError, PersistenceException;
+
+	/**	Adds and removes words in a word set.
+	 *
+	 *	<p>The delta's tag changes and count adjustments are applied in
+	 *	one transaction. Only the count rows which change are written.
+	 *
+	 *	@param	wordSet		The word set.
+	 *
+	 *	@param	delta		Changes to the word set.
+	 *
+	 *	@param	userDataObjectUpdater	Method which updates the title
+	 *									and other settings of the word
+	 *									set in the same transaction, or
+	 *									null if the settings don't change.
+	 *
+	 *	@return				Count of rows changed.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	WordHoard-specific error.
+	 */
+
+	public int updateWordSetWords (WordSet wordSet, WordSetDelta delta,
+			UserDataObjectUpdater userDataObjectUpdater)
+		throws RemoteException, WordHoardError, PersistenceException;
+
+	/**	Searches for words on the server.
+	 *
+	 *	@param	criteria	Search criteria.
+	 *
+	 *	@param	pageSize	Maximum number of results per page. The server
+	 *						limits this to 1000.
+	 *
+	 *	@return				The first page of results. If the page has a
+	 *						cursor, pass it to {@link #nextPage nextPage}
+	 *						to get the next page, or to
+	 *						{@link #closeCursor closeCursor} when done.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	server-side searches are not available,
+	 *							or the criteria are invalid.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public ResultPage searchWords (RemoteSearchCriteria criteria,
+		int pageSize)
+			throws RemoteException, WordHoardError, PersistenceException;
+
+	/**	Gets the next page of a server-side search.
+	 *
+	 *	@param	cursor		Cursor from the previous page.
+	 *
+	 *	@return				The next page of results.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	server-side searches are not available,
+	 *							or the cursor is unknown or expired.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public ResultPage nextPage (String cursor)
+		throws RemoteException, WordHoardError, PersistenceException;
+
+	/**	Closes a server-side search cursor.
+	 *
+	 *	<p>Unknown or expired cursors are ignored.
+	 *
+	 *	@param	cursor		Cursor.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 */
+
+	public void closeCursor (String cursor)
+		throws RemoteException;
+
+	/**	Counts the words which match search criteria on the server.
+	 *
+	 *	@param	criteria	Search criteria.
+	 *
+	 *	@return				Number of matching words.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	server-side searches are not available,
+	 *							or the criteria are invalid.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public int countWords (RemoteSearchCriteria criteria)
+		throws RemoteException, WordHoardError, PersistenceException;
 }
 
 /*
@@ -3,6 +3,8 @@ package edu.northwestern.at.wordhoard.server;
 /*	Please see the license information at the end of this file. */
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.rmi.*;
 import java.rmi.server.*;
 import java.net.*;
@@ -18,6 +20,7 @@ import org.hibernate.jdbc.ReturningWork;
 
 import edu.northwestern.at.utils.ClassUtils;
 import edu.northwestern.at.utils.db.PersistenceException;
+import edu.northwestern.at.utils.db.jdbc.RowBatch;
 import edu.northwestern.at.utils.net.ldap.*;
 import edu.northwestern.at.utils.PrintfFormat;
 import edu.northwestern.at.wordhoard.model.userdata.*;
@@ -26,6 +29,7 @@ import edu.northwestern.at.wordhoard.model.wrappers.*;
 import edu.northwestern.at.wordhoard.server.model.*;
 import edu.northwestern.at.wordhoard.swing.calculator.modelutils.BadOwnerException;
 import edu.northwestern.at.wordhoard.swing.calculator.modelutils.UserDataObjectUpdater;
+import edu.northwestern.at.wordhoard.swing.calculator.modelutils.WordSetDelta;
 import edu.northwestern.at.wordhoard.swing.WordHoardSettings;
 
 /**	Session remote object implementation.
@@ -35,17 +39,38 @@ public class WordHoardSessionImpl extends UnicastRemoteObject
 	implements WordHoardSession
 {
 
-	/**	Global synchronization lock. */
+	/**	Idle time after which sessions are timed out, in milliseconds. */
 
-	private static Object lock = new Object();
+	private static final long SESSION_TIMEOUT = 2*60*60*1000L;
+
+	/**	Number of rows per JDBC batch for row batch inserts. */
+
+	private static final int JDBC_BATCH_SIZE = 1000;
+
+	/**	Tables into which clients may insert row batches. */
+
+	private static final Set batchInsertTables = new HashSet(Arrays.asList(
+		new String[] {
+			"wordhoard.wordsetwordcount",
+			"wordhoard.wordsettotalwordformcount",
+			"wordhoard.phrasesetphrasecount",
+			"wordhoard.phrasesettotalwordformcount",
+			"wordhoard.wordset_wordtags",
+			"wordhoard.wordset_worktags",
+			"wordhoard.wordset_workparttags",
+		}));
 
 	/**	Next available session id. */
 
-	private static long nextSessionId;
+	private static AtomicLong nextSessionId = new AtomicLong();
 
 	/**	Maps session ids to active sessions. */
 
-	private static Map sessions = new HashMap();
+	private static Map sessions = new ConcurrentHashMap();
+
+	/**	Timer for session timeouts and other periodic tasks. */
+
+	private static ScheduledThreadPoolExecutor timer;
 
 	/**	Hibernate session factory for accounts. */
 
@@ -77,11 +102,15 @@ public class WordHoardSessionImpl extends UnicastRemoteObject
 
 	/**	True if session active. */
 
-	private boolean active = true;
+	private volatile boolean active = true;
 
 	/**	The time the session was last tickled by the client. */
 
-	private long lastTickleTime = loginDate.getTime();
+	private volatile long lastTickleTime = loginDate.getTime();
+
+	/**	Scheduled timeout check. */
+
+	private volatile ScheduledFuture timeout;
 
 	/**	Creates a new session.
 	 *
@@ -92,20 +121,19 @@ public class WordHoardSessionImpl extends UnicastRemoteObject
 		throws RemoteException
 	{
 		super(Config.getRmiPort());
-		synchronized(lock) {
-			id = Long.valueOf(nextSessionId++);
-			try {
-				host = UnicastRemoteObject.getClientHost();
-				domain = InetAddress.getByName(host).getCanonicalHostName();
-			} catch (ServerNotActiveException e) {
-				Logger.log(Logger.ERROR,
-					WordHoardSettings.getString("Getclienthost"), e);
-			} catch (java.net.UnknownHostException e) {
-			}
-			sessions.put(id, this);
-			Logger.log(this, Logger.INFO,
-				WordHoardSettings.getString("Sessionbegin") + host + " (" + domain + ")");
+		id = Long.valueOf(nextSessionId.getAndIncrement());
+		try {
+			host = UnicastRemoteObject.getClientHost();
+			domain = InetAddress.getByName(host).getCanonicalHostName();
+		} catch (ServerNotActiveException e) {
+			Logger.log(Logger.ERROR,
+				WordHoardSettings.getString("Getclienthost"), e);
+		} catch (java.net.UnknownHostException e) {
 		}
+		sessions.put(id, this);
+		scheduleTimeout(SESSION_TIMEOUT);
+		Logger.log(this, Logger.INFO,
+			WordHoardSettings.getString("Sessionbegin") + host + " (" + domain + ")");
 	}
 
 	/**	Ends the session.
@@ -116,12 +144,26 @@ public class WordHoardSessionImpl extends UnicastRemoteObject
 	public void endSession ()
 		throws RemoteException
 	{
-		synchronized(lock) {
-			active = false;
-			sessions.remove(id);
-			Logger.log(this, Logger.INFO,
-				WordHoardSettings.getString("Sessionend") + host + " (" + domain + ")");
-		}
+		if (!end()) return;
+		Logger.log(this, Logger.INFO,
+			WordHoardSettings.getString("Sessionend") + host + " (" + domain + ")");
+	}
+
+	/**	Ends the session, if it is still active.
+	 *
+	 *	<p>Removes the session from the registry, cancels its timeout
+	 *	check, and closes its server-side search cursors.
+	 *
+	 *	@return		True if the session was active.
+	 */
+
+	private boolean end () {
+		if (!sessions.remove(id, this)) return false;
+		active = false;
+		ScheduledFuture future = timeout;
+		if (future != null) future.cancel(false);
+		QueryService.closeAll(id);
+		return true;
 	}
 
 	/**	Tickles the session.
@@ -347,35 +389,39 @@ public class WordHoardSessionImpl extends UnicastRemoteObject
 			(loginAccount == null ? "<null>" : loginAccount.getUsername());
 	}
 
-	/**	Times out idle sessions.
-	 *
-	 *	<p>This method wakes up once per minute and checks all active sessions.
-	 *	Sessions which have not been tickled by their client for the last
-	 *	two hours are terminated.
+	/**	Schedules a timeout check for the session.
 	 *
-	 *	@throws	InterruptedException	thread was interrupted.
+	 *	@param	delay		Delay in milliseconds.
 	 */
 
-	private static void timeOutIdleSessions ()
-		throws InterruptedException
-	{
-		while (true) {
-			Thread.sleep(60*1000);
-			synchronized (lock) {
-				List sessionsCopy = new ArrayList(sessions.values());
-				long curTime = System.currentTimeMillis();
-				for (Iterator it = sessionsCopy.iterator(); it.hasNext(); ) {
-					WordHoardSessionImpl session =
-						(WordHoardSessionImpl)it.next();
-					long idleTime = curTime - session.lastTickleTime;
-					if (idleTime > 2*60*60*1000L) {
-						session.active = false;
-						sessions.remove(session.id);
-						Logger.log(session, Logger.INFO,
-							WordHoardSettings.getString("Sessiontimedout"));
-					}
+	private void scheduleTimeout (long delay) {
+		timeout = timer.schedule(
+			new Runnable () {
+				public void run () {
+					checkTimeout();
 				}
-			}
+			},
+			delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**	Checks whether the session has timed out.
+	 *
+	 *	<p>Each session has one pending timeout check, due two hours after
+	 *	the client last tickled it as of when the check was scheduled.
+	 *	Tickling the session only records the time, so when the check comes
+	 *	due it reschedules itself for the rest of the two hours if the
+	 *	session has been tickled since. Sessions which have not been
+	 *	tickled by their client for the last two hours are terminated.
+	 */
+
+	private void checkTimeout () {
+		if (!active) return;
+		long idleTime = System.currentTimeMillis() - lastTickleTime;
+		if (idleTime < SESSION_TIMEOUT) {
+			scheduleTimeout(SESSION_TIMEOUT - idleTime);
+		} else if (end()) {
+			Logger.log(this, Logger.INFO,
+				WordHoardSettings.getString("Sessiontimedout"));
 		}
 	}
 
@@ -423,7 +469,7 @@ public class WordHoardSessionImpl extends UnicastRemoteObject
 			"hibernate.c3p0.idle_test_period", "14400");
 		udCfg.setProperty(
 			"hibernate.connection.url",
-			Config.getUserDataDatabaseURL());
+			addRewriteBatchedStatements(Config.getUserDataDatabaseURL()));
 		udCfg.setProperty(
 			"hibernate.connection.username",
 			Config.getUserDataDatabaseUsername());
@@ -446,21 +492,24 @@ public class WordHoardSessionImpl extends UnicastRemoteObject
 		udCfg.addAnnotatedClass(PhraseSetTotalWordFormPhraseCount.class);
 		userDataSessionFactory = udCfg.buildSessionFactory();
 
-		//	Start the idle session timeout thread.
+		//	Start the timer for session timeouts, and close idle
+		//	server-side search cursors once per minute.
 
-		new Thread (
+		timer = new ScheduledThreadPoolExecutor(1);
+		timer.setRemoveOnCancelPolicy(true);
+		timer.scheduleWithFixedDelay(
 			new Runnable () {
 				public void run () {
 					try {
-						timeOutIdleSessions();
-					} catch (InterruptedException e) {
+						QueryService.closeIdle();
+					} catch (RuntimeException e) {
 						Logger.log(Logger.ERROR,
 							WordHoardSettings.getString(
 								"Idlesessiontimeoutthread"), e);
 					}
 				}
-			}
-		).start();
+			},
+			1, 1, TimeUnit.MINUTES);
 
 		//	Create the initial admin account, if necessary.
 
@@ -471,6 +520,25 @@ public class WordHoardSessionImpl extends UnicastRemoteObject
 		createSystemAccount();
 	}
 
+	/**	Adds the MySQL rewriteBatchedStatements property to a database URL.
+	 *
+	 *	<p>With this property the driver sends JDBC batches of inserts as
+	 *	multi-row inserts, which is what makes
+	 *	{@link #performBatchInserts(RowBatch[]) row batch inserts} fast.
+	 *
+	 *	@param	url		Database URL.
+	 *
+	 *	@return			The URL, with "rewriteBatchedStatements=true"
+	 *					added unless the URL already sets the property.
+	 */
+
+	private static String addRewriteBatchedStatements (String url) {
+		if (url == null || url.indexOf("rewriteBatchedStatements") >= 0)
+			return url;
+		return url + (url.indexOf('?') < 0 ? "?" : "&") +
+			"rewriteBatchedStatements=true";
+	}
+
 	/**	Creates the initial administrator account, if necessary.
 	 *
 	 *	<p>If no accounts exist, an initial temporary account is created
@@ -825,6 +893,219 @@ public class WordHoardSessionImpl extends UnicastRemoteObject
 		}
 		return result;
 	}
+
+	/**	Performs batch inserts of typed row batches.
+	 *
+	 *	<p>All the batches are inserted in one transaction, using one
+	 *	prepared insert statement per batch executed as JDBC batches.
+	 *	Batches may only insert into the word set and phrase set count and
+	 *	tag tables.
+	 *
+	 *	@param	batches		Row batches.
+	 *
+	 *	@return				Count of rows inserted.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	not logged in, or a batch names a table or
+	 *							column which is not permitted.
+	 */
+
+	public int performBatchInserts (final RowBatch[] batches)
+		throws RemoteException, WordHoardError, PersistenceException
+	{
+		if (loginAccount == null)
+			throw new WordHoardError(
+				WordHoardSettings.getString(
+					"Youarenotpermittedtoadddata"));
+		for (int i = 0; i < batches.length; i++) {
+			boolean ok = batchInsertTables.contains(batches[i].getTableName());
+			String[] columnNames = batches[i].getColumnNames();
+			for (int j = 0; ok && j < columnNames.length; j++)
+				ok = columnNames[j].matches("[A-Za-z_][A-Za-z0-9_]*");
+			if (!ok)
+				throw new WordHoardError(
+					WordHoardSettings.getString(
+						"Youarenotpermittedtoadddata"));
+		}
+		Session session = userDataSessionFactory.openSession();
+		Transaction t	= null;
+		try {
+			t = session.beginTransaction();
+			Integer result = session.doReturningWork(
+				new ReturningWork<Integer>() {
+					@Override
+					public Integer execute (Connection conn)
+						throws SQLException
+					{
+						int count = 0;
+						for (int i = 0; i < batches.length; i++)
+							count += batches[i].insert(conn, JDBC_BATCH_SIZE);
+						return Integer.valueOf(count);
+					}
+				});
+			t.commit();
+			return result.intValue();
+		} catch (HibernateException e) {
+			try {
+				if (t != null) t.rollback();
+			} catch (Exception ignored) {}
+			throw new PersistenceException( e );
+		} finally {
+			session.close();
+		}
+	}
+
+	/**	Adds and removes words in a word set.
+	 *
+	 *	<p>The delta's tag changes and count adjustments, and any change
+	 *	to the word set's settings, are applied in one transaction. Only
+	 *	the owner may change a word set, and phrase sets may not be
+	 *	changed this way.
+	 *
+	 *	@param	wordSet		The word set.
+	 *
+	 *	@param	delta		Changes to the word set.
+	 *
+	 *	@param	userDataObjectUpdater	Method which updates the settings
+	 *									of the word set, or null.
+	 *
+	 *	@return				Count of rows changed.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	not logged in, not the owner of the
+	 *							word set, or the delta is invalid.
+	 */
+
+	public int updateWordSetWords (WordSet wordSet, final WordSetDelta delta,
+			UserDataObjectUpdater userDataObjectUpdater)
+		throws RemoteException, WordHoardError, PersistenceException
+	{
+		if (loginAccount == null || delta == null || !delta.isValid())
+			throw new WordHoardError(
+				WordHoardSettings.getString(
+					"Youarenotpermittedtomodifythisobject"));
+		Session session = userDataSessionFactory.openSession();
+		Transaction t = null;
+		try {
+			final WordSet ws =
+				(WordSet)session.get(WordSet.class, wordSet.getId());
+			if (ws == null || ws instanceof PhraseSet ||
+				!loginAccount.getUsername().equals(ws.getOwner()))
+					throw new WordHoardError(
+						WordHoardSettings.getString(
+							"Youarenotpermittedtomodifythisobject"));
+			t = session.beginTransaction();
+			Integer result = session.doReturningWork(
+				new ReturningWork<Integer>() {
+					@Override
+					public Integer execute (Connection conn)
+						throws SQLException
+					{
+						return Integer.valueOf(
+							delta.apply(conn, ws.getId(), JDBC_BATCH_SIZE));
+					}
+				});
+			if (userDataObjectUpdater != null)
+				userDataObjectUpdater.update(ws);
+			ws.setModificationTime(new Date());
+			t.commit();
+			PrintfFormat fmt = new PrintfFormat(
+				WordHoardSettings.getString("Modifieduserobject"));
+			String logMessage = fmt.sprintf(
+				new Object[]{"WordSet", ws.getTitle(), ws.getId()});
+			Logger.log(this, Logger.INFO, logMessage);
+			return result.intValue();
+		} catch (HibernateException e) {
+			try {
+				if (t != null) t.rollback();
+			} catch (Exception ignored) {}
+			throw new PersistenceException( e );
+		} finally {
+			session.close();
+		}
+	}
+
+	/**	Searches for words on the server.
+	 *
+	 *	@param	criteria	Search criteria.
+	 *
+	 *	@param	pageSize	Maximum number of results per page.
+	 *
+	 *	@return				The first page of results.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	server-side searches are not available,
+	 *							or the criteria are invalid.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public ResultPage searchWords (RemoteSearchCriteria criteria,
+		int pageSize)
+			throws RemoteException, WordHoardError, PersistenceException
+	{
+		return QueryService.search(id, criteria, pageSize);
+	}
+
+	/**	Gets the next page of a server-side search.
+	 *
+	 *	@param	cursor		Cursor from the previous page.
+	 *
+	 *	@return				The next page of results.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	server-side searches are not available,
+	 *							or the cursor is unknown or expired.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public ResultPage nextPage (String cursor)
+		throws RemoteException, WordHoardError, PersistenceException
+	{
+		return QueryService.nextPage(id, cursor);
+	}
+
+	/**	Closes a server-side search cursor.
+	 *
+	 *	@param	cursor		Cursor.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 */
+
+	public void closeCursor (String cursor)
+		throws RemoteException
+	{
+		QueryService.close(id, cursor);
+	}
+
+	/**	Counts the words which match search criteria on the server.
+	 *
+	 *	@param	criteria	Search criteria.
+	 *
+	 *	@return				Number of matching words.
+	 *
+	 *	@throws	RemoteException	error in remote connection.
+	 *
+	 *	@throws	WordHoardError	server-side searches are not available,
+	 *							or the criteria are invalid.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	public int countWords (RemoteSearchCriteria criteria)
+		throws RemoteException, WordHoardError, PersistenceException
+	{
+		return QueryService.count(criteria);
+	}
 }
 
 /*
@@ -47,7 +47,7 @@ public class CachedCollections {
 
 	private static Work[] works;
 
-	/**	Map from corpora to lexicons (collections of LemmaCorpusCounts). */
+	/**	Map from corpora to compact lexicons. */
 
 	private static HashMap lexicons = new HashMap();
 
@@ -208,25 +208,27 @@ public class CachedCollections {
 	}
 
 	/**	Gets the lexicon for a corpus.
+	 *
+	 *	<p>The cached lexicon is checked against the version stamp of the
+	 *	counts in the database, and reloaded if the counts have been
+	 *	rebuilt since it was loaded.
 	 *
 	 *	@param	corpus		Corpus.
 	 *
-	 *	@return				The lexicon: an array of all the lemma/corpus
-	 *						counts objects for the corpus, in no particular
-	 *						order.
+	 *	@return				The compact lexicon for the corpus.
 	 *
 	 *	@throws	PersistenceException	error in persistence layer.
 	 */
 
-	public static LemmaCorpusCounts[] getLexicon (Corpus corpus)
+	public static synchronized CompactLexicon getLexicon (Corpus corpus)
 		throws PersistenceException
 	{
-		LemmaCorpusCounts[] result = (LemmaCorpusCounts[])lexicons.get(corpus);
-		if (result == null) {
-			Collection lexiconCollection =
-				WordHoard.getPm().getLexicon(corpus);
-			result = (LemmaCorpusCounts[])lexiconCollection.toArray(
-				new LemmaCorpusCounts[lexiconCollection.size()]);
+		CompactLexicon result = (CompactLexicon)lexicons.get(corpus);
+		PersistenceManager pm = WordHoard.getPm();
+		if (result == null ||
+			!result.getVersion().equals(pm.getLexiconVersion(corpus)))
+		{
+			result = pm.getCompactLexicon(corpus);
 			lexicons.put(corpus, result);
 		}
 		return result;
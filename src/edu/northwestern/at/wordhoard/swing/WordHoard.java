@@ -15,6 +15,7 @@ import edu.northwestern.at.utils.db.hibernate.*;
 import edu.northwestern.at.utils.swing.*;
 import edu.northwestern.at.utils.swing.LookAndFeel;
 import edu.northwestern.at.wordhoard.model.*;
+import edu.northwestern.at.wordhoard.model.search.*;
 import edu.northwestern.at.wordhoard.server.*;
 import edu.northwestern.at.wordhoard.swing.calculator.*;
 import edu.northwestern.at.wordhoard.swing.tcon.*;
@@ -137,6 +138,71 @@ public class WordHoard {
 		}
 	}
 
+	/**	Builds the in-memory word index.
+	 *
+	 *	<p>Runs on a separate thread with its own persistence manager.
+	 *	Searches go to the database until the index is installed.
+	 */
+
+	private static void initializeWordIndex () {
+		new Thread (
+			new Runnable() {
+				public void run() {
+					try {
+						PersistenceManager indexPm = new PersistenceManager();
+						WordIndex.setIndex(WordIndex.build(indexPm));
+						indexPm.close();
+					} catch (Exception e) {
+						// searches continue to use the database.
+					}
+				}
+			}
+		).start();
+	}
+
+	/**	Builds and installs the completion index.
+	 *
+	 *	<p>Runs on a separate thread with its own persistence manager.
+	 *	Until the index is installed, completions go to the database.
+	 */
+
+	private static void initializeCompletionIndex () {
+		new Thread (
+			new Runnable() {
+				public void run() {
+					try {
+						PersistenceManager indexPm = new PersistenceManager();
+						CompletionIndex.setIndex(
+							CompletionIndex.build(indexPm));
+						indexPm.close();
+					} catch (Exception e) {
+						// completions continue to use the database.
+					}
+				}
+			}
+		).start();
+	}
+
+	/**	Warms the second-level cache.
+	 *
+	 *	<p>Runs on a separate thread with its own persistence manager.
+	 *	Objects not yet cached are fetched from the database as usual.
+	 */
+
+	private static void initializeCache () {
+		new Thread (
+			new Runnable() {
+				public void run() {
+					try {
+						PersistenceManager.warmCache();
+					} catch (Exception e) {
+						// objects continue to be fetched as needed.
+					}
+				}
+			}
+		).start();
+	}
+
 	/**	Closes the splash screen. */
 
 	public static void closeSplashScreen () {
@@ -320,11 +386,14 @@ public class WordHoard {
 			SiteDialog.getDatabasePassword(),
 			null,
 			PersistentClasses.persistentClasses,
-			false
+			true
 		);
 		pm	= new PersistenceManager();
 		initializeConnectionObserver();
 		CachedCollections.getCorpora();
+		initializeCache();
+		initializeCompletionIndex();
+		if (WordHoardSettings.getUseWordIndex()) initializeWordIndex();
 		initializeServerSession();
 		WordHoardSettings.loadPreferences();
 		FileDialogs.setOpenDirectory((new File(".")).getAbsolutePath());
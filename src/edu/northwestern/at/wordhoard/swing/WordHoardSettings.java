@@ -143,6 +143,16 @@ public class WordHoardSettings
 	protected static String resourceName	=
 		"edu.northwestern.at.wordhoard.resources.wh";
 		
+	/**	True to build an in-memory word index at startup. */
+
+	protected static boolean useWordIndex	= false;
+
+	/**	Maximum number of hits shown in a concordance window, or 0
+	 *	for no limit.
+	 */
+
+	protected static int maxConcordanceHits	= 0;
+
 	/**	True to use screen menu bar on Mac OS. */
 	
 	protected static boolean useScreenMenuBar;
@@ -179,6 +189,24 @@ public class WordHoardSettings
 			WordHoardSettings.getString( "programBanner" , programBanner );
 
 
+								//	Get word index option.
+		useWordIndex	=
+			WordHoardSettings.getString(
+				"useWordIndex" , "false" ).equalsIgnoreCase( "true" );
+
+								//	Get maximum number of concordance hits.
+		try
+		{
+			maxConcordanceHits	=
+				Math.max( 0 , Integer.parseInt(
+					WordHoardSettings.getString(
+						"maxConcordanceHits" , "0" ).trim() ) );
+		}
+		catch ( NumberFormatException e )
+		{
+			maxConcordanceHits	= 0;
+		}
+
 								//	Get program prompt.
 		programPrompt	=
 			WordHoardSettings.getString( "programPrompt" , programPrompt );
@@ -724,6 +752,27 @@ public class WordHoardSettings
 		return buildProgramRunning;
 	}
 	
+	/**	Get "use word index" flag.
+	 *
+	 *	@return		true to build an in-memory word index at startup.
+	 */
+
+	public static boolean getUseWordIndex()
+	{
+		return useWordIndex;
+	}
+
+	/**	Get maximum number of concordance hits.
+	 *
+	 *	@return		Maximum number of hits shown in a concordance window,
+	 *				or 0 for no limit.
+	 */
+
+	public static int getMaxConcordanceHits()
+	{
+		return maxConcordanceHits;
+	}
+
 	/**	Returns true to use the screen menu bar on Mac OS X.
 	 *
 	 *	@return		True to use the screen menu bar on Mac OS X.
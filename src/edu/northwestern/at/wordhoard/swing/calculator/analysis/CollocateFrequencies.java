@@ -32,27 +32,24 @@ public class CollocateFrequencies
 		super( dialogType );
 	}
 
-	/**	Get collocation counts.
+	/**	Get collocation counts as a CountMap.
 	 *
 	 *	@param	wordCounter		The texts in which to find collocates.
 	 *	@param	wordToAnalyze		The words for which to find collocates.
 	 *	@param	progressReporter	The progress reporter dialog.
 	 *	@param	progressReporterText	Progress dialog text.
 	 *
-	 *	@return						Two element array of TreeMap
-	 *								[0]	TreeMap with collocates as keys and
-	 *									frequencies as values, cutoff honored.
-	 *								[1] TreeMap with collocates as keys and
-	 *									work frequencies as values.
-	 *								[2]	TreeMap with collocates as keys and
-	 *									frequencies as values, ignoring cutoff.
+	 *	@return						CountMap with collocates as keys,
+	 *								frequencies as counts, and the works
+	 *								in which each collocate appears.
+	 *								The cutoff is not applied.
 	 *
 	 *	<p>
 	 *	If the progress dialog is cancelled, the return value is null.
 	 *	</p>
 	 */
 
-	protected TreeMap[] getCollocateCounts
+	protected CountMap getCollocateCountMap
 	(
 		WordCounter wordCounter ,
 		Spelling wordToAnalyze ,
@@ -124,8 +121,7 @@ public class CollocateFrequencies
 
 								//	Get collocation counts.
 
-		TreeMap collocationCountMap	= new TreeMap();
-		TreeMap workCountsMap		= new TreeMap();
+		CountMap collocationCountMap	= new CountMap();
 
 		startTime	= System.currentTimeMillis();
 
@@ -222,59 +218,17 @@ public class CollocateFrequencies
 							spKey.getString() ).equals(
 						caseInsensitiveWordToAnalyze ) ) continue;
 
-								//	If the destination map does not contain
-								//	this word, add it with the count from
-								//	the source map.
-
-					if ( !collocationCountMap.containsKey( spKey ) )
-					{
-						collocationCountMap.put( spKey , Integer.valueOf( 1 ) );
-					}
-					else
-					{
-								//	If the destination map contains the word,
-								//	pick up the current count of the word
-								//	in the destination map.
-
-						Integer count	=
-							(Integer)collocationCountMap.get( spKey );
-
-								//	Add the source count to the destination
-								//	count in the destination map.
-
-						collocationCountMap.put
-						(
-							spKey ,
-							Integer.valueOf( count.intValue() + 1 )
-						);
-					}
-								//	Add this word occurrence's work
-								//	to list of works for this collocate.
-
-					if ( !workCountsMap.containsKey( spKey ) )
-					{
-						TreeMap workMap	= new TreeMap();
-
-						workMap.put(
-							spanOccs[ j ].getWork().getId() , "1" );
-
-						workCountsMap.put( spKey , workMap );
-					}
-					else
-					{
-						TreeMap workMap	=
-							(TreeMap)workCountsMap.get( spKey );
+								//	Add one to the count for this
+								//	collocate, and add this word
+								//	occurrence's work to the works
+								//	for this collocate.
 
-						Long workKey	=
-							spanOccs[ j ].getWork().getId();
-
-						if ( !workMap.containsKey( workKey ) )
-						{
-							workMap.put( workKey , "1" );
-
-							workCountsMap.put( spKey , workMap );
-						}
-					}
+					collocationCountMap.add
+					(
+						spKey ,
+						1 ,
+						spanOccs[ j ].getWork().getId()
+					);
 								//	Add the current word occurrence to the
 								//	list of word occurrences for this word.
 
@@ -326,27 +280,54 @@ public class CollocateFrequencies
 
 		endTime	= System.currentTimeMillis() - startTime;
 
-		TreeMap outputMap	= new TreeMap();
+		return collocationCountMap;
+	}
 
-		Iterator iterator	= collocationCountMap.keySet().iterator();
+	/**	Get collocation counts.
+	 *
+	 *	@param	wordCounter		The texts in which to find collocates.
+	 *	@param	wordToAnalyze		The words for which to find collocates.
+	 *	@param	progressReporter	The progress reporter dialog.
+	 *	@param	progressReporterText	Progress dialog text.
+	 *
+	 *	@return						Two element array of TreeMap
+	 *								[0]	TreeMap with collocates as keys and
+	 *									frequencies as values, cutoff honored.
+	 *								[1] TreeMap with collocates as keys and
+	 *									work counts as values.
+	 *								[2]	TreeMap with collocates as keys and
+	 *									frequencies as values, ignoring cutoff.
+	 *
+	 *	<p>
+	 *	If the progress dialog is cancelled, the return value is null.
+	 *	</p>
+	 */
 
-		while ( iterator.hasNext() )
-		{
-			Object key 		= iterator.next();
-			Integer count	= (Integer)collocationCountMap.get( key );
+	protected TreeMap[] getCollocateCounts
+	(
+		WordCounter wordCounter ,
+		Spelling wordToAnalyze ,
+		ProgressReporter progressReporter ,
+		String progressReporterText
+	)
+	{
+		CountMap countMap	=
+			getCollocateCountMap
+			(
+				wordCounter ,
+				wordToAnalyze ,
+				progressReporter ,
+				progressReporterText
+			);
 
-			if ( count.intValue() >= cutoff )
-			{
-				outputMap.put( key , count );
-			}
-		}
+		if ( countMap == null ) return null;
 
 		return new
 			TreeMap[]
 			{
-				outputMap ,
-				workCountsMap ,
-				collocationCountMap
+				countMap.filter( cutoff ).toCountMap() ,
+				countMap.toWorkCountMap() ,
+				countMap.toCountMap()
 			};
 	}
 
@@ -392,8 +373,8 @@ public class CollocateFrequencies
 
 								//	Get map of collocate frequencies.
 
-		TreeMap[] collocateMaps	=
-			getCollocateCounts
+		CountMap collocateCounts	=
+			getCollocateCountMap
 			(
 				analysisText ,
 				wordToAnalyze ,
@@ -404,17 +385,16 @@ public class CollocateFrequencies
 					"Finding word occurrences"
 				)
 			);
-								//	If operation cancelled, the collocateMaps
-								//	tree is null.  Quit if so.
+								//	If operation cancelled, the collocate
+								//	counts are null.  Quit if so.
 
-		if ( collocateMaps	== null )
+		if ( collocateCounts	== null )
 		{
 			closeProgressReporter();
 			return;
 		}
 
-		TreeMap outputMap		= collocateMaps[ 0 ];
-		TreeMap workCountsMap	= collocateMaps[ 1 ];
+		CountMap outputCounts	= collocateCounts.filter( cutoff );
 
 								//	Get column titles for output display.
 
@@ -440,14 +420,14 @@ public class CollocateFrequencies
 								//	in the selected corpus/text in which
 								//	this collocate occurs.
 
-		Set keyset			= outputMap.keySet();
+		int[] entries		= outputCounts.getSortedEntries();
 
 		int maxLabelWidth	= 0;
 		String maxLabel		= "";
 
-		for	( Iterator iterator	= keyset.iterator(); iterator.hasNext(); )
+		for ( int i = 0 ; i < entries.length ; i++ )
 		{
-			Spelling collocate	= (Spelling)iterator.next();
+			Spelling collocate	= outputCounts.getEntrySpelling( entries[ i ] );
 
 			int collocateLength	= collocate.getString().length();
 
@@ -457,21 +437,10 @@ public class CollocateFrequencies
 				maxLabel		= collocate.getString();
 			}
 
-			Integer collocateCount	=
-				(Integer)outputMap.get( collocate );
-
 			double[] freqAnal	= new double[ 2 ];
 
-			freqAnal[ 0 ]		= collocateCount.intValue();
-			freqAnal[ 1 ]		= 0.0D;
-
-			if ( workCountsMap.containsKey( collocate ) )
-			{
-				TreeMap workMap	=
-					(TreeMap)workCountsMap.get( collocate );
-
-				freqAnal[ 1 ]	= workMap.size();
-			}
+			freqAnal[ 0 ]		= outputCounts.getEntryCount( entries[ i ] );
+			freqAnal[ 1 ]		= outputCounts.getEntryWorkCount( entries[ i ] );
 
 			model.add
 			(
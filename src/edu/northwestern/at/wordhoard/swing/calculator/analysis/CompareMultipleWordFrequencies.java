@@ -90,12 +90,12 @@ public class CompareMultipleWordFrequencies
 								//	Get word forms, counts, and work counts
 								//	for analysis text and reference text.
 
-		Map[] countMaps			=
-			analysisText.getWordsAndCounts( referenceText , wordForm );
+		CountMap[] countMaps		=
+			analysisText.getWordCountMaps( referenceText , wordForm );
 
-		Map analysisWordCounts	= countMaps[ 0 ];
-		Map referenceWordCounts	= countMaps[ 1 ];
-		Map workCounts			= countMaps[ 2 ];
+		CountMap analysisWordCounts		= countMaps[ 0 ];
+		CountMap referenceWordCounts	= countMaps[ 1 ];
+		CountMap workCounts				= countMaps[ 2 ];
 
 		long endTime			= System.currentTimeMillis() - startTime;
 
@@ -189,7 +189,7 @@ public class CompareMultipleWordFrequencies
 								//	Loop over each word form and
 								//	compute frequency profile statistics.
 
-		Set keyset			= analysisWordCounts.keySet();
+		int[] entries		= analysisWordCounts.getSortedEntries();
 
 		int wordsDone		= 0;
 
@@ -199,29 +199,24 @@ public class CompareMultipleWordFrequencies
 		String maxLabel2	= "";
 		int maxLabelWidth2	= 0;
 
-		for	(	Iterator iterator	= keyset.iterator();
-				iterator.hasNext();
-			)
+		for ( int i = 0 ; i < entries.length ; i++ )
 		{
 								//	Get next word form.
 
-			wordToAnalyze   		= (Spelling)iterator.next();
+			wordToAnalyze   		=
+				analysisWordCounts.getEntrySpelling( entries[ i ] );
+
 			String sWordToAnalyze	= wordToAnalyze.getString();
 
 								//	Get count of word form in analysis text.
 
-			Integer wordCount		=
-				(Integer)analysisWordCounts.get( wordToAnalyze );
-
-			if ( wordCount	== null ) wordCount	= Integer.valueOf( 0 );
+			int wordCount			=
+				analysisWordCounts.getEntryCount( entries[ i ] );
 
 								//	Get number of works in reference text
 								//	collection in which this word form appears.
 
-			Integer workCount		=
-				(Integer)workCounts.get( wordToAnalyze );
-
-			if ( workCount	== null ) workCount	= Integer.valueOf( 0 );
+			int workCount			= workCounts.getWorkCount( wordToAnalyze );
 
 								//	Only compute statistics for word form
 								//	if it appears at least the specified
@@ -229,8 +224,8 @@ public class CompareMultipleWordFrequencies
 								//	text, and also in the specified minimum
 								//	number of works in the reference text.
 
-			if	(	( wordCount.intValue() >= minimumCount ) &&
-					( workCount.intValue() >= minimumWorkCount ) )
+			if	(	( wordCount >= minimumCount ) &&
+					( workCount >= minimumWorkCount ) )
 			{
 				int wordLength	= sWordToAnalyze.length();
 
@@ -265,20 +260,14 @@ public class CompareMultipleWordFrequencies
 					}
 								//	Get word form count in reference text.
 
-					int refCount	= 0;
-
-					if ( referenceWordCounts.containsKey( wordToAnalyze ) )
-					{
-						refCount	=
-							((Integer)referenceWordCounts.get(
-								wordToAnalyze )).intValue();
-					}
+					int refCount	=
+						referenceWordCounts.getCount( wordToAnalyze );
 
 					doFreq
 					(
 						wordToAnalyze ,
 						wordForm ,
-						wordCount.intValue() ,
+						wordCount ,
 						analysisTotalCount ,
 						refCount ,
 						refTotalCount ,
@@ -323,9 +312,9 @@ public class CompareMultipleWordFrequencies
 					model ,
 					maxLabel ,
 					maxLabel2 ,
-					analysisWordCounts.keySet().size() ,
+					analysisWordCounts.size() ,
 					analysisTotalCount ,
-					referenceWordCounts.keySet().size() ,
+					referenceWordCounts.size() ,
 					refTotalCount
 				);
 	}
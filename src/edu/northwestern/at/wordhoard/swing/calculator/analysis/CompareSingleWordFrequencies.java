@@ -60,25 +60,20 @@ public class CompareSingleWordFrequencies
 		this.progressReporter	= progressReporter;
 
 								//	Get frequency of word to analyze
-								//	in analysis text.
+								//	and total words in analysis text.
 
-		int analysisCount	=
-			analysisText.getWordFormCount( wordToAnalyze , wordForm );
+		int[] analysisCounts	= getCounts( analysisText );
 
-								//	Get frequency of word to analyze
-								//	in reference text.
-
-		int refCount		=
-			referenceText.getWordFormCount( wordToAnalyze , wordForm );
+		int analysisCount		= analysisCounts[ 0 ];
+		int analysisTotalCount	= analysisCounts[ 1 ];
 
-								//	Get total words in analysis and
-								//	reference.
+								//	Get frequency of word to analyze
+								//	and total words in reference text.
 
-		int analysisTotalCount	=
-			analysisText.getTotalWordFormCount( wordForm );
+		int[] refCounts			= getCounts( referenceText );
 
-		int refTotalCount		=
-			referenceText.getTotalWordFormCount( wordForm );
+		int refCount			= refCounts[ 0 ];
+		int refTotalCount		= refCounts[ 1 ];
 
 								//	Get distinct words in analysis and
 								//	reference.
@@ -157,6 +152,44 @@ public class CompareSingleWordFrequencies
 			);
 	}
 
+	/**	Get the count of the word to analyze and the total word count.
+	 *
+	 *	@param	wordCounter		The word counter for the analysis
+	 *							or reference text.
+	 *
+	 *	@return					Two element array.
+	 *							[0]	= count of the word to analyze.
+	 *							[1]	= total number of words.
+	 *
+	 *	<p>
+	 *	The counts are shared with other analyses of the same word,
+	 *	such as tracking the word over time.  Phrase sets keep
+	 *	separate totals, so their counts are retrieved directly.
+	 *	</p>
+	 */
+
+	protected int[] getCounts( WordCounter wordCounter )
+	{
+		if ( wordCounter.isPhraseSet() )
+		{
+			return new int[]
+			{
+				wordCounter.getWordFormCount( wordToAnalyze , wordForm ) ,
+				wordCounter.getTotalWordFormCount( wordForm )
+			};
+		}
+
+		WordFormWorkCounts counts	=
+			wordCounter.getWordFormWorkCounts
+			(
+				wordToAnalyze ,
+				wordForm ,
+				false
+			);
+
+		return new int[]{ counts.getWordCount() , counts.getTotalCount() };
+	}
+
 	/**	Perform frequency comparison of analysis and reference works for a word.
 	 *
 	 *	@param	wordToAnalyze		The word to analyze.
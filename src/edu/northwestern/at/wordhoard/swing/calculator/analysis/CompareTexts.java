@@ -7,6 +7,7 @@ import javax.swing.*;
 
 import edu.northwestern.at.utils.*;
 import edu.northwestern.at.utils.swing.*;
+import edu.northwestern.at.utils.corpuslinguistics.*;
 import edu.northwestern.at.wordhoard.model.*;
 import edu.northwestern.at.wordhoard.model.wrappers.*;
 import edu.northwestern.at.wordhoard.swing.*;
@@ -209,10 +210,10 @@ public class CompareTexts
 		}
 								//	Load word count maps.
 
-		Map[] analysisMaps		= new Map[ analysisParts.length ];
+		CountMap[] analysisMaps	= new CountMap[ analysisParts.length ];
 		String[] analysisLabels	= new String[ analysisParts.length ];
 
-		Map[] referenceMaps			= new Map[ referenceParts.length ];
+		CountMap[] referenceMaps	= new CountMap[ referenceParts.length ];
 		String[] referenceLabels	= new String[ referenceParts.length ];
 
 		int k	= 0;
@@ -220,7 +221,7 @@ public class CompareTexts
 		for ( int i = 0 ; i < analysisParts.length ; i++ )
 		{
 			WordCounter wc		= analysisParts[ i ];
-			analysisMaps[ i ]	= wc.getWordsAndCounts( wordForm )[ 0 ];
+			analysisMaps[ i ]	= wc.getWordCountMap( wordForm );
 //			analysisLabels[ i ]	= wc.getTag();
 			analysisLabels[ i ]	=
 				getWordCounterLabel( wc , analysisTextBreakdownBy );
@@ -240,8 +241,7 @@ public class CompareTexts
 			{
 				WordCounter wc			= referenceParts[ i ];
 
-				referenceMaps[ i ]		=
-					wc.getWordsAndCounts( wordForm )[ 0 ];
+				referenceMaps[ i ]		= wc.getWordCountMap( wordForm );
 
 //				referenceLabels[ i ]	= wc.getTag();
 				referenceLabels[ i ]	=
@@ -256,64 +256,7 @@ public class CompareTexts
 				}
 			}
 		}
-								//	Number of comparisons to perform.
-
-		int comparisonsToDo		=
-			analysisParts.length * referenceParts.length;
-
-		reportingInterval		= comparisonsToDo / 100;
-
-		if ( reportingInterval < 10 ) reportingInterval = 10;
-
-								//	Update progress bar limits with
-								//	number of comparisons.
-
-		if ( displayProgress )
-		{
-								//	If progress dialog cancelled,
-								//	return null value.
-
-			if ( progressReporter.isCancelled() )
-			{
-				closeProgressReporter();
-				return;
-			}
-			else
-			{
-				if ( comparisonsToDo < 2000 )
-				{
-					progressReporter.updateProgress
-					(
-						WordHoardSettings.getString
-						(
-							"Computingsimilaritiesbetweenanalysisandreferencetext" ,
-							"Computing similarities between analysis and reference texts"
-						)
-					);
-				}
-				else
-				{
-					progressReporter.updateProgress
-					(
-						WordHoardSettings.getString
-						(
-							"Computingsimilaritiesbetweenanalysisandreferencetextmaytakeawhile" ,
-							"Computing similarities between analysis and reference texts"
-						)
-					);
-				}
-
-				progressReporter.updateProgress( 0 );
-				progressReporter.setMaximumBarValue( comparisonsToDo );
-
-				progressReporter.setIndeterminate( false );
-			}
-		}
-								//	No comparisons done yet.
-
-		int comparedCount		= 0;
-
-								//	Tracks comparisons done to avoid
+								//	Tracks comparisons chosen to avoid
 								//	duplicate output.
 
 		HashMap comparisonsDone	= new HashMap();
@@ -346,8 +289,11 @@ public class CompareTexts
 				)
 			);
 								//	Loop over each work in analysis text and
-								//	compute similarity statistics against
-								//	each work in reference text.
+								//	each work in reference text, and pick
+								//	the pairs of texts to compare.
+
+		ArrayList pairs			= new ArrayList();
+		ArrayList pairLabels	= new ArrayList();
 
 		for ( int i = 0 ; i < analysisMaps.length ; i++ )
 		{
@@ -358,8 +304,6 @@ public class CompareTexts
 				analysisTag	= analysisTag + "(a)";
 			}
 
-			Map analysisMap			= analysisMaps[ i ];
-
 			for ( int j = 0 ; j < referenceMaps.length ; j++ )
 			{
 				String referenceTag	= referenceLabels[ j ];
@@ -369,8 +313,6 @@ public class CompareTexts
 					referenceTag	= referenceTag + "(r)";
 				}
 
-				Map referenceMap	= referenceMaps[ j ];
-
 				String label			=
 					labelFormat.sprintf
 					(
@@ -398,7 +340,9 @@ public class CompareTexts
 					maxLabelWidth	= labelLength;
 					maxLabel		= label;
 				}
-								//	Compute similarity measures.
+								//	Skip comparisons already chosen and,
+								//	unless a word set is involved,
+								//	comparisons of a text with itself.
 
 				boolean doit	= ( comparisonsDone.get( label ) == null );
 
@@ -411,44 +355,148 @@ public class CompareTexts
 
 				if ( doit )
 				{
-	                double[] similarities	=
-    	            	computeDocumentSimilarities(
-    	            		analysisMap , referenceMap );
+					pairs.add( new int[]{ i , j } );
+					pairLabels.add( label );
 
-								//	If the similarities consists solely of
-								//	NAN and 0 (at least one NAN present),
-								//	do not store them.  Most likely this
-								//	comes from a work part with no
-								//	word occurrences, e.g., a cast list.
-						        //	Otherwise, add similarities
-						        //	to report table.
-
-					if ( similaritiesAreOK( similarities ) )
-					{
-						model.add
-						(
-							new FrequencyAnalysisDataRow(
-								label , similarities )
-						);
-					}
-								//	Remember this comparison done.
+								//	Remember this comparison chosen.
 
 					comparisonsDone.put( label , "1" );
 					comparisonsDone.put( reversedLabel , "1" );
 				}
-								//	Update count of comparisons done.
+			}
+		}
+								//	Number of comparisons to perform.
 
-				comparedCount++;
+		int comparisonsToDo		= pairs.size();
 
-								//	Update progress dialog.
+								//	Update progress bar limits with
+								//	number of comparisons.
 
-				if ( displayProgress &&
-					( ( comparedCount % reportingInterval ) == 0 ) )
-				{
-					progressReporter.updateProgress( comparedCount );
+		if ( displayProgress )
+		{
+								//	If progress dialog cancelled,
+								//	return null value.
 
-					if ( progressReporter.isCancelled() ) break;
+			if ( progressReporter.isCancelled() )
+			{
+				closeProgressReporter();
+				return;
+			}
+			else
+			{
+				if ( comparisonsToDo < 2000 )
+				{
+					progressReporter.updateProgress
+					(
+						WordHoardSettings.getString
+						(
+							"Computingsimilaritiesbetweenanalysisandreferencetext" ,
+							"Computing similarities between analysis and reference texts"
+						)
+					);
+				}
+				else
+				{
+					progressReporter.updateProgress
+					(
+						WordHoardSettings.getString
+						(
+							"Computingsimilaritiesbetweenanalysisandreferencetextmaytakeawhile" ,
+							"Computing similarities between analysis and reference texts"
+						)
+					);
 				}
+
+				progressReporter.updateProgress( 0 );
+				progressReporter.setMaximumBarValue( comparisonsToDo );
+
+				progressReporter.setIndeterminate( false );
+			}
+		}
+								//	Compute the similarity measures for
+								//	the chosen pairs of texts in parallel.
+								//	The computing threads update the
+								//	progress dialog.
+
+		DocumentSimilarity.ProgressListener listener	= null;
+
+		if ( displayProgress )
+		{
+			listener	=
+				new DocumentSimilarity.ProgressListener()
+				{
+					public boolean progress( int pairsDone )
+					{
+						synchronized ( progressReporter )
+						{
+							progressReporter.updateProgress( pairsDone );
+
+							return progressReporter.isCancelled();
+						}
+					}
+				};
+		}
+
+								//	Get comparable term vectors for
+								//	all the texts.
+
+		CountMap[] allMaps	=
+			new CountMap[ analysisMaps.length + referenceMaps.length ];
+
+		System.arraycopy(
+			analysisMaps , 0 , allMaps , 0 , analysisMaps.length );
+
+		System.arraycopy(
+			referenceMaps , 0 , allMaps , analysisMaps.length ,
+			referenceMaps.length );
+
+		TermVector[] allVectors			= toTermVectors( allMaps );
+		TermVector[] analysisVectors	= new TermVector[ analysisMaps.length ];
+		TermVector[] referenceVectors	= new TermVector[ referenceMaps.length ];
+
+		System.arraycopy(
+			allVectors , 0 , analysisVectors , 0 , analysisMaps.length );
+
+		System.arraycopy(
+			allVectors , analysisMaps.length , referenceVectors , 0 ,
+			referenceMaps.length );
+
+		double[][] similarityList	=
+			DocumentSimilarity.computeSimilarities
+			(
+				analysisVectors ,
+				referenceVectors ,
+				(int[][])pairs.toArray( new int[ comparisonsToDo ][] ) ,
+				Runtime.getRuntime().availableProcessors() ,
+				listener
+			);
+								//	Add the similarities to the report
+								//	table.
+
+		for ( int i = 0 ; i < comparisonsToDo ; i++ )
+		{
+			double[] similarities	= similarityList[ i ];
+
+								//	Stop if the computation was
+								//	cancelled.
+
+			if ( similarities == null ) break;
+
+								//	If the similarities consists solely of
+								//	NAN and 0 (at least one NAN present),
+								//	do not store them.  Most likely this
+								//	comes from a work part with no
+								//	word occurrences, e.g., a cast list.
+						        //	Otherwise, add similarities
+						        //	to report table.
+
+			if ( similaritiesAreOK( similarities ) )
+			{
+				model.add
+				(
+					new FrequencyAnalysisDataRow(
+						(String)pairLabels.get( i ) , similarities )
+				);
 			}
 		}
 								//	Close progress dialog, if any.
@@ -539,16 +587,29 @@ public class CompareTexts
 		return !(( nanCount > 0 ) && ( nonZeroCount == 0 ));
 	}
 
+	/**	Get term vectors for count maps.
+	 *
+	 *	@param	countMaps	The count maps.
+	 *
+	 *	@return				The term vector for each count map.
+	 */
+
+	public static TermVector[] toTermVectors( CountMap[] countMaps )
+	{
+		return CountMap.toTermVectors( countMaps );
+	}
+
 	/**	Compute document similarity measures given two count maps.
 	 *
 	 *	@param	countMap1	First count map.
 	 *	@param	countMap2	Second count map.
 	 *
-	 *	@return				Array with four doubles.
+	 *	@return				Array with five doubles.
 	 *						[0]	= cosine similarity
-	 *						[1]	= Dice similarity
-	 *						[2]	= Jaccard similarity
-	 *						[3]	= Overlap similarity.
+	 *						[1]	= binary cosine similarity
+	 *						[2]	= binary Dice coefficient
+	 *						[3]	= binary Jaccard coefficient
+	 *						[4]	= binary overlap coefficient.
 	 */
 
 	public static double[] computeDocumentSimilarities
@@ -557,91 +618,39 @@ public class CompareTexts
 		Map countMap2
 	)
 	{
-		double[] results			= new double[ 5 ];
-
-		double[] map1Counts			=
-			CountMapUtils.getSummaryCountsFromCountMap( countMap1 );
-
-		double[] map2Counts			=
-			CountMapUtils.getSummaryCountsFromCountMap( countMap2 );
-
-		Map weightedMap1			=
-			CountMapUtils.scaleCountMap(
-				countMap1 , 1.0D / map1Counts[ 0 ] );
-
-		Map weightedMap2			=
-			CountMapUtils.scaleCountMap(
-				countMap2 ,  1.0D / map2Counts[ 0 ] );
-
-		map1Counts					=
-			CountMapUtils.getSummaryCountsFromCountMap( weightedMap1 );
-
-		map2Counts					=
-			CountMapUtils.getSummaryCountsFromCountMap( weightedMap2 );
-
-		double sumOfCrossProducts	=
-			CountMapUtils.getSumOfCrossProducts(
-				weightedMap1 , weightedMap2 );
-
-		results[ 0 ]	=
-			sumOfCrossProducts /
-				Math.sqrt
-				(
-					(double)map1Counts[ 1 ] *
-					(double)map2Counts[ 1 ]
-				);
-
-		weightedMap1			=
-			CountMapUtils.booleanizeCountMap( countMap1 );
-
-		weightedMap2			=
-			CountMapUtils.booleanizeCountMap( countMap2 );
-
-		map1Counts					=
-			CountMapUtils.getSummaryCountsFromCountMap( weightedMap1 );
-
-		map2Counts					=
-			CountMapUtils.getSummaryCountsFromCountMap( weightedMap2 );
-
-		sumOfCrossProducts	=
-			CountMapUtils.getSumOfCrossProducts(
-				weightedMap1 , weightedMap2 );
-
-		results[ 1 ]	=
-			sumOfCrossProducts /
-				Math.sqrt
-				(
-					(double)map1Counts[ 1 ] *
-					(double)map2Counts[ 1 ]
-				);
-
-
-		results[ 2 ]	=
-			( 2.0D * sumOfCrossProducts ) /
-				(
-					(double)map1Counts[ 1 ] +
-					(double)map2Counts[ 1 ]
-				);
-
-		results[ 3 ]	=
-			sumOfCrossProducts /
+		return
+			computeDocumentSimilarities
 			(
-				(double)map1Counts[ 1 ] +
-				(double)map2Counts[ 1 ] -
-				(double)sumOfCrossProducts
+				CountMap.fromCountMap( countMap1 ) ,
+				CountMap.fromCountMap( countMap2 )
 			);
+	}
 
-		results[ 4 ]	=
-			sumOfCrossProducts /
-				(
-					Math.min
-					(
-						(double)map1Counts[ 1 ] ,
-						(double)map2Counts[ 1 ]
-					)
-				);
+	/**	Compute document similarity measures given two compact count maps.
+	 *
+	 *	@param	countMap1	First count map.
+	 *	@param	countMap2	Second count map.
+	 *
+	 *	@return				Array with five doubles, as for the
+	 *						Map version.
+	 *
+	 *	<p>
+	 *	All five measures are computed in one pass over the two
+	 *	count maps' term vectors.  See {@link DocumentSimilarity}.
+	 *	</p>
+	 */
 
-		return results;
+	public static double[] computeDocumentSimilarities
+	(
+		CountMap countMap1 ,
+		CountMap countMap2
+	)
+	{
+		TermVector[] vectors	=
+			CountMap.toTermVectors( new CountMap[]{ countMap1 , countMap2 } );
+
+		return
+			DocumentSimilarity.computeSimilarities( vectors[ 0 ] , vectors[ 1 ] );
 	}
 
 	/**	Displays results of text comparison in a sorted table.
@@ -97,8 +97,8 @@ public class FindCollocates
 
 		long startTime		= System.currentTimeMillis();
 
-		TreeMap[] counts	=
-			getCollocateCounts
+		CountMap counts		=
+			getCollocateCountMap
 			(
 				analysisText ,
 				wordToAnalyze ,
@@ -117,12 +117,11 @@ public class FindCollocates
 			closeProgressReporter();
 			return;
 		}
-								//	The analysis counts have been filtered
-								//	by the specified cutoff value from
-								//	the collocation dialog.  The raw counts
-								//	are unfiltered.
+								//	Filter the analysis counts by the
+								//	specified cutoff value from
+								//	the collocation dialog.
 
-		TreeMap analysisCounts			= counts[ 0 ];
+		CountMap analysisCounts			= counts.filter( cutoff );
 
 		long endTime					=
 			System.currentTimeMillis() - startTime;
@@ -215,7 +214,7 @@ public class FindCollocates
 		String maxLabel		= "";
 		int collocatesDone	= 0;
 
-		Set keyset			= analysisCounts.keySet();
+		Spelling[] analysisSpellings	= analysisCounts.getSortedSpellings();
 
 								//	Reset progress dialog.
 
@@ -249,9 +248,6 @@ public class FindCollocates
 
 		startTime	= System.currentTimeMillis();
 
-		Spelling[] analysisSpellings	=
-			(Spelling[])keyset.toArray( new Spelling[]{} );
-
 		Map allAnalysisCounts	=
 			analysisText.getWordFormCount( analysisSpellings , wordForm );
 
@@ -259,7 +255,7 @@ public class FindCollocates
 
 		if ( displayProgress )
 		{
-			progressReporter.setMaximumBarValue( keyset.size() - 1 );
+			progressReporter.setMaximumBarValue( analysisSpellings.length - 1 );
 			progressReporter.setIndeterminate( false );
 
 			if ( progressReporter.isCancelled() )
@@ -270,21 +266,18 @@ public class FindCollocates
         }
 								//	Compute collocation statistics.
 
-		for	( Iterator iterator	= keyset.iterator(); iterator.hasNext(); )
+		for ( int i = 0 ; i < analysisSpellings.length ; i++ )
 		{
 								//	Get next collocate.
 
-			Spelling spCollocate	= (Spelling)iterator.next();
+			Spelling spCollocate	= analysisSpellings[ i ];
 			String collocate		= spCollocate.getString();
 
 								//	Get count of word form in
 								//	collocate content portion of
 								//	analysis text.
 
-			Integer wordCount	=
-				(Integer)analysisCounts.get( spCollocate );
-
-			if ( wordCount	== null ) wordCount	= Integer.valueOf( 0 );
+			int wordCount		= analysisCounts.getCount( spCollocate );
 
 			int collocateLength	= collocate.length();
 
@@ -302,7 +295,7 @@ public class FindCollocates
 			doFreq
 			(
 				collocate ,
-				wordCount.intValue() ,
+				wordCount ,
 				allCount.intValue() ,
 				analysisSpanCount ,
 				refTotalCount ,
@@ -185,13 +185,18 @@ public class FindMultiwordUnits
 			closeProgressReporter();
 			return;
 		}
-								//	Allocate multiword unit extractors.
-
-		NGramExtractor[] extractors	=
-			new NGramExtractor[ maximumMultiwordUnitLength + 1 ];
+								//	Allocate multiword unit counter.
+								//	Need mwus of length
+								//	maximumMultiwordUnitLength + 1 to
+								//	filter using localmaxs.  Also
+								//	need all mwus down to single words
+								//	to get pseudo-bigram association
+								//	measures.  Each work is counted
+								//	by a pool thread while the next
+								//	work is retrieved.
 
-		java.util.HashSet mwusList	= new HashSet( 30000 );
-		Map wordCountMap			= new TreeMap();
+		NGramCounter counter	=
+			new NGramCounter( maximumMultiwordUnitLength + 1 );
 
 								//	Loop over works.
 
@@ -274,6 +279,7 @@ public class FindMultiwordUnits
 
 			if ( isCancelled( progressReporter ) )
 			{
+				counter.cancel();
 				closeProgressReporter();
 				return;
 			}
@@ -292,40 +298,17 @@ public class FindMultiwordUnits
 
 			if ( isCancelled( progressReporter ) )
 			{
+				counter.cancel();
 				closeProgressReporter();
 				return;
 			}
-								//	Count the word forms.
-
-			long startTime	= System.currentTimeMillis();
+								//	Count the words and multiword units.
 
-			WordCountExtractor wordCountExtractor	=
-				new WordCountExtractor( wordStrings );
-
-			long endTime	= System.currentTimeMillis() - startTime;
-
-			if ( isCancelled( progressReporter ) )
-			{
-				closeProgressReporter();
-				return;
-			}
-								//	Create the raw set of multiword unit
-								//	strings and their counts.
-			mwusList.addAll
-			(
-				createRawMWUs( wordCountExtractor , extractors )
-			);
-								//	Add word counts for this work to
-								//	the total.
-
-			CountMapUtils.addCountMap
-			(
-				wordCountMap ,
-				wordCountExtractor.getWordCounts()
-			);
+			counter.addText( wordStrings );
 
 			if ( isCancelled( progressReporter ) )
 			{
+				counter.cancel();
 				closeProgressReporter();
 				return;
 			}
@@ -337,25 +320,20 @@ public class FindMultiwordUnits
 
             workWords	= null;
             wordStrings	= null;
-
-            System.gc();
 		}
+								//	Wait for the counts and merge them.
+
+		NGramTable table	= counter.finish();
+
 								//	Get total number of words across all
 								//	selected works.
 
-		int totalWordCount	=
-			CountMapUtils.getTotalWordCount( wordCountMap );
+		int totalWordCount	= (int)table.getTotal( 1 );
 
 								//	Create count data entries for
-								//	each raw multiword unit string.
+								//	each raw multiword unit.
 
-		Object[] o	= storeMWUData
-		(
-			mwusList ,
-			wordCountMap ,
-			totalWordCount ,
-			extractors
-		);
+		Object[] o	= storeMWUData( table , totalWordCount );
 
 		if ( isCancelled( progressReporter ) )
 		{
@@ -364,15 +342,12 @@ public class FindMultiwordUnits
 		}
 
 		java.util.List	mwuCountData	= (java.util.List)o[ 0 ];
-		HashMap glueMap					= (HashMap)o[ 1 ];
+		double[][] glue					= (double[][])o[ 1 ];
 
 								//	Filter the raw list of multiword units.
 
 		String[] maxLabels	=
-			filterMultiwordUnits
-			(
-				mwuCountData , glueMap , wordCountMap , extractors , model
-			);
+			filterMultiwordUnits( mwuCountData , glue , table , model );
 
 		maxLabels[ 0 ]	= maxLabels[ 0 ] + "wwwww";
 		maxLabels[ 1 ]	= maxLabels[ 1 ] + "wwwww";
@@ -614,91 +589,38 @@ public class FindMultiwordUnits
 		return wordStrings;
 	}
 
-	/**	Create raw (unfiltered) multiword unit strings.
-	 *
-	 *	@param	wordExtractor	The WordCountExtractor object.
-	 *
-	 * 	@param	extractors	The NGramExtractors to receive the raw
-	 *						multiword unit strings.
-	 *
-	 *	@return				List of all raw multiword units to analyze.
-	 */
-
-	protected java.util.Collection createRawMWUs
-	(
-		WordCountExtractor wordExtractor ,
-		NGramExtractor[] extractors
-	)
-	{
-		String words[]				= wordExtractor.getWords();
-
-		int nWords					= words.length;
-
-		HashSet mwusList			= new HashSet( nWords );
-
-								//	Need mwus for words of length
-								//	maximumMultiwordUnitLength + 1 to
-								//	filter using localmaxs.  Also
-								//	need all mwus down to bigrams to get
-								//	pseudo-bigram association measures.
-
-		int maxMWULength			= maximumMultiwordUnitLength + 1;
-
-		for ( int i = maxMWULength - 1 ; i > 0 ; i-- )
-		{
-			long startTime	= System.currentTimeMillis();
-
-			NGramExtractor extractor	=
-				new NGramExtractor( words , i + 1 , i + 1 );
-
-			if ( extractors[ i ] == null )
-			{
-				extractors[ i ]	= extractor;
-			}
-			else
-			{
-				extractors[ i ].mergeNGramExtractor( extractor );
-            }
-
-			mwusList.addAll( Arrays.asList( extractor.getNGrams() ) );
-
-			long endTime	= System.currentTimeMillis() - startTime;
-
-			if ( isCancelled( progressReporter ) ) break;
-		}
-
-		return mwusList;
-	}
-
 	/**	Store multiword unit data.
 	 *
-	 *	@param	mwusList		Collection of all raw multiword units.
+	 *	@param	table			The ngram table holding the counts for
+	 *							all words and raw multiword units.
 	 *
-	 *	@param	wordCountMap	Map containing words and keys and
-	 *							counts as value for all words in the
-	 *							multiword units.
-	 *
-	 *	@param	totalWordCount	Total word count in word count map.
-	 *
-	 *	@param	extractors		The NGramExtractors holding the counts for
-	 *							the raw multiword unit strings.
+	 *	@param	totalWordCount	Total word count.
 	 *
 	 *	@return					Two item array.
 	 *							[0]	=	list of all multiword unit count
 	 *									data items.
-	 *							[1]	=	hash map mapping mwu to selected
-	 *									association measure for use by
-	 *									localmaxs.
+	 *							[1]	=	double[][] array holding the
+	 *									selected association measure
+	 *									for each mwu, indexed by mwu
+	 *									length and ngram number, for
+	 *									use by localmaxs.
 	 */
 
 	protected Object[] storeMWUData
 	(
-		java.util.Collection mwusList ,
-		Map wordCountMap ,
-		int totalWordCount ,
-		NGramExtractor[] extractors
+		NGramTable table ,
+		int totalWordCount
 	)
 	{
+								//	Count the raw multiword units.
+
+		int maxMWULength	= maximumMultiwordUnitLength + 1;
+		int mwusCount		= 0;
+
+		for ( int length = 2 ; length <= maxMWULength ; length++ )
+		{
+			mwusCount	+= table.size( length );
+		}
 								//	Modify progress display.
 
 		if ( displayProgress && ( progressReporter != null ) )
@@ -730,7 +652,7 @@ public class FindMultiwordUnits
 					{
 						Formatters.formatIntegerWithCommas
 						(
-							mwusList.size()
+							mwusCount
 						)
 					}
 				)
@@ -738,20 +660,21 @@ public class FindMultiwordUnits
 
 			progressReporter.updateProgress( 0 );
 
-			progressReporter.setMaximumBarValue( mwusList.size() );
+			progressReporter.setMaximumBarValue( mwusCount );
 
 			progressReporter.setIndeterminate( false );
 		}
 								//	Holds multiword unit count and
 								//	association measure data.
 
-		ArrayList mwuCountData	= new ArrayList();
+		ArrayList mwuCountData	= new ArrayList( mwusCount );
 
-								//	Maps each multiword unit to a
-								//	specified "glue" (association) measure
-								//	for use in the localmaxs algorithm.
+								//	Holds the specified "glue"
+								//	(association) measure for each
+								//	multiword unit for use in the
+								//	localmaxs algorithm.
 
-		HashMap glueMap	= new HashMap();
+		double[][] glue	= new double[ maxMWULength + 1 ][];
 
 		long startTime	= System.currentTimeMillis();
 
@@ -762,91 +685,93 @@ public class FindMultiwordUnits
 
 								//	Update progress every 1% or so.
 
-    	int updateInterval	= mwusList.size() / 100;
+    	int updateInterval	= Math.max( mwusCount / 100 , 1 );
 
 								//	Loop over all raw multiword units.
 
-		for	(	Iterator iterator	= mwusList.iterator() ;
-			 	iterator.hasNext() ;
-			)
+		mwuLoop:
+		for ( int length = 2 ; length <= maxMWULength ; length++ )
 		{
+			glue[ length ]	= new double[ table.size( length ) ];
+
+			for ( int number = 0 ; number < table.size( length ) ; number++ )
+			{
 								//	Create a count data entry for this
 								//	multiword unit.  Also computes all
 								//	the association measures for this
 								//	multiword unit.
 
-			String mwuText	= (String)iterator.next();
-
-			MultiwordUnitData countData	=
-				new MultiwordUnitData
-				(
-					mwuText ,
-					wordCountMap ,
-					totalWordCount ,
-					extractors
-				);
+				MultiwordUnitData countData	=
+					new MultiwordUnitData
+					(
+						table ,
+						length ,
+						number ,
+						totalWordCount
+					);
 								//	Add to the list of mwu count data items.
 
-			mwuCountData.add( countData );
-
-								//	Store the selected "glue" measure in a
-								//	hash map for fast access by the
-								//	localmaxs algorithm.
-
-			double glueMeasure;
+				mwuCountData.add( countData );
 
-			switch ( associationMeasure )
-			{
-				case AnalysisDialog.DICE		:
-					glueMeasure	= countData.getDice();
-					break;
-
-				case AnalysisDialog.PHISQUARED	:
-					glueMeasure	= countData.getPhiSquared();
-					break;
-
-				case AnalysisDialog.SI			:
-					glueMeasure	= countData.getSI();
-					break;
+								//	Store the selected "glue" measure by
+								//	length and number for fast access by
+								//	the localmaxs algorithm.
 
-				case AnalysisDialog.SCP			:
-					glueMeasure	= countData.getSCP();
-					break;
+				double glueMeasure;
 
-				case AnalysisDialog.LOGLIKE		:
-				default							:
-					glueMeasure	= countData.getLogLikelihood();
-					break;
-			}
+				switch ( associationMeasure )
+				{
+					case AnalysisDialog.DICE		:
+						glueMeasure	= countData.getDice();
+						break;
+
+					case AnalysisDialog.PHISQUARED	:
+						glueMeasure	= countData.getPhiSquared();
+						break;
+
+					case AnalysisDialog.SI			:
+						glueMeasure	= countData.getSI();
+						break;
+
+					case AnalysisDialog.SCP			:
+						glueMeasure	= countData.getSCP();
+						break;
+
+					case AnalysisDialog.LOGLIKE		:
+					default							:
+						glueMeasure	= countData.getLogLikelihood();
+						break;
+				}
 
-			glueMap.put( mwuText , Double.valueOf( glueMeasure ) );
+				glue[ length ][ number ]	= glueMeasure;
 
 								//	Increment count of mwus processed.
-			mwusDone++;
+				mwusDone++;
 								//	Update progress display.
 
-			if ( displayProgress && ( progressReporter != null ) )
-			{
-				if ( ( mwusDone % updateInterval ) == 0 )
+				if ( displayProgress && ( progressReporter != null ) )
 				{
-					progressReporter.updateProgress( mwusDone );
-				}
+					if ( ( mwusDone % updateInterval ) == 0 )
+					{
+						progressReporter.updateProgress( mwusDone );
+					}
 
-				if ( isCancelled( progressReporter ) ) break;
+					if ( isCancelled( progressReporter ) ) break mwuLoop;
+				}
 			}
 		}
 
 		long endTime	= System.currentTimeMillis() - startTime;
 
-		return new Object[]{ mwuCountData , glueMap };
+		return new Object[]{ mwuCountData , glue };
 	}
 
 	/**	Filter the raw multiword units.
 	 *
 	 *	@param	mwuCountData	The list of multiword unit count data.
-	 *	@param	glueMap			Hash map of mwus to glue association measures.
-	 *	@param	wordCountMap	Word count map.
-	 *	@param	extractors		Extractors holding mwu count data.
+	 *	@param	glue			Glue association measures by mwu
+	 *							length and ngram number.
+	 *	@param	table			Ngram table holding mwu count data.
 	 *	@param	model			Table model in which to store filtered mwus.
 	 *
 	 *	@return					Longest mwu string in table.
@@ -855,9 +780,8 @@ public class FindMultiwordUnits
 	protected String[] filterMultiwordUnits
 	(
 		java.util.List mwuCountData ,
-		HashMap glueMap ,
-		Map wordCountMap ,
-		NGramExtractor[] extractors ,
+		double[][] glue ,
+		NGramTable table ,
 		SortedTableModel model
 	)
 	{
@@ -888,12 +812,17 @@ public class FindMultiwordUnits
 
 								//	Update progress every 1% or so.
 
-		mwusToReportOn	=
-			mwuCountData.size() -
-				extractors[
-					maximumMultiwordUnitLength - 1 ].getNumberOfNGrams();
+		mwusToReportOn	= 0;
 
-    	int updateInterval	= mwusToReportOn / 100;
+		for	(	int length = minimumMultiwordUnitLength ;
+				length <= maximumMultiwordUnitLength ;
+				length++
+			)
+		{
+			mwusToReportOn	+= table.size( length );
+		}
+
+    	int updateInterval	= Math.max( mwusToReportOn / 100 , 1 );
 
 								//	Update progress display.
 
@@ -985,10 +914,6 @@ public class FindMultiwordUnits
 
 				if ( isCancelled( progressReporter ) ) break;
 			}
-								//	Get multiword unit text.
-
-			String mwuText		= countData.getMWUText();
-
 								//	Get # of times mwu appears.
 
 			int colCount		= countData.getMWUTextCount();
@@ -1001,12 +926,9 @@ public class FindMultiwordUnits
 				onceOnly++;
 				continue;
             }
-								//	Get the words, word counts,
-								//	and association measures for
-								//	this mwu.
+								//	Get the association measures
+								//	for this mwu.
 
-			String[] colWords		= countData.getWords();
-			int[] colWordsCounts	= countData.getWordCounts();
 			double dice				= countData.getDice();
 			double logLikelihood	= countData.getLogLikelihood();
 			double phiSquared		= countData.getPhiSquared();
@@ -1023,7 +945,7 @@ public class FindMultiwordUnits
 
 			if ( filterUsingLocalMaxs )
 			{
-				ok	= isMWU( countData , glueMap );
+				ok	= isMWU( countData , glue );
 				if ( ok ) acceptedByLocalMaxs++;
             }
 								//	Filter bigrams and trigrams using
@@ -1036,7 +958,7 @@ public class FindMultiwordUnits
 
 			if ( ok	&& useWordClassFilters )
 			{
-				ok	= passesWordClassFilters( colWords );
+				ok	= passesWordClassFilters( countData.getWords() );
 
 				if ( !ok ) rejectedByWordClassFilters++;
 			}
@@ -1045,6 +967,10 @@ public class FindMultiwordUnits
 			{
 								//	increment count of mwus accepted.
 				accepted++;
+								//	Get multiword unit text.
+
+				String mwuText		= countData.getMWUText();
+
 								//	Get text for display.
 
 				String fixedMWUText	= fixMWUText( mwuText );
@@ -1076,7 +1002,7 @@ public class FindMultiwordUnits
 						wordClasses ,
 						new double[]
 						{
-							(double)colWords.length ,
+							(double)countData.getMWUTextLength() ,
 							(double)colCount ,
 							dice ,
 							logLikelihood ,
@@ -1126,7 +1052,7 @@ public class FindMultiwordUnits
 	/**	Determine if multiword unit is a phrase using localmaxs.
 	 *
 	 *	@param	countData	The multiword unit data.
-	 *  @param	glueMap		The glue map for all multiword units.
+	 *  @param	glue		The glue values for all multiword units.
 	 *
 	 *	@return				true if multiword unit appears to be a phrase.
 	 */
@@ -1134,30 +1060,33 @@ public class FindMultiwordUnits
 	protected boolean isMWU
 	(
 		MultiwordUnitData countData ,
-		Map glueMap
+		double[][] glue
 	)
 	{
 		boolean result		= true;
 
-		String mwuText		= countData.getMWUText();
-		double glueValue	= getGlue( mwuText , glueMap );
+		int length			= countData.getMWUTextLength();
+		double glueValue	=
+			getGlue( glue , length , countData.getMWUNumber() );
 
-		if ( countData.getMWUTextLength() > 2 )
+		if ( length > 2 )
 		{
 			result	=
 				( glueValue >=
-					getGlue( countData.leftAntecedent() , glueMap ) ) &&
+					getGlue(
+						glue , length - 1 , countData.leftAntecedent() ) ) &&
 				( glueValue >=
-					getGlue( countData.rightAntecedent() , glueMap ) );
+					getGlue(
+						glue , length - 1 , countData.rightAntecedent() ) );
 		}
 								//	Check right successors.
 		if ( result )
 		{
-			String[] successors	= countData.rightSuccessors();
+			int[] successors	= countData.rightSuccessors();
 
 			for ( int i = 0 ; i < successors.length ; i++ )
 			{
-				if ( glueValue <= getGlue( successors[ i ] , glueMap ) )
+				if ( glueValue <= getGlue( glue , length + 1 , successors[ i ] ) )
 				{
 					result	= false;
 					break;
@@ -1167,11 +1096,11 @@ public class FindMultiwordUnits
 								//	Check left successors.
 		if ( result )
 		{
-			String[] successors	= countData.leftSuccessors();
+			int[] successors	= countData.leftSuccessors();
 
 			for ( int i = 0 ; i < successors.length ; i++ )
 			{
-				if ( glueValue <= getGlue( successors[ i ] , glueMap ) )
+				if ( glueValue <= getGlue( glue , length + 1 , successors[ i ] ) )
 				{
 					result	= false;
 					break;
@@ -1184,23 +1113,22 @@ public class FindMultiwordUnits
 
 	/**	Get "glue" value for a multiword unit.
 	 *
-	 *	@param	mwuText		The multiword unit text.
-	 *	@param	glueMap		The map from multiword units to glue values.
+	 *	@param	glue		The glue values by mwu length and ngram number.
+	 *	@param	length		The multiword unit length.
+	 *	@param	number		The multiword unit ngram number.
 	 *
 	 *	@return				The glue value for the given multiword unit.
 	 *						Returns 0 if mwu not found.
 	 */
 
-	protected double getGlue( String mwuText , Map glueMap )
+	protected double getGlue( double[][] glue , int length , int number )
 	{
 		double result	= 0.0D;
 
-		try
-		{
-			result	= ((Double)glueMap.get( mwuText )).doubleValue();
-		}
-		catch ( Exception e )
+		if	(	( length < glue.length ) && ( glue[ length ] != null ) &&
+				( number >= 0 ) && ( number < glue[ length ].length ) )
 		{
+			result	= glue[ length ][ number ];
 		}
 
 		return result;
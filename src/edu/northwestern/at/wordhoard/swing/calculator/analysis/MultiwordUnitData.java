@@ -13,13 +13,22 @@ import edu.northwestern.at.utils.corpuslinguistics.*;
  *	Holds data on counts and association measure values for one
  *	multiword unit.
  *	</p>
+ *
+ *	<p>
+ *	The multiword unit is identified by its length and its ngram
+ *	number in an {@link NGramTable}.  Counts of its parts are looked
+ *	up by token id.  The text of the multiword unit is only made
+ *	when it is requested, typically for display.
+ *	</p>
  */
 
 public class MultiwordUnitData
 {
 	protected String mwu;
+	protected int mwuNumber;
 	protected int mwuCount;
 	protected int mwuLength;
+	protected int[] tokens;
 	protected String[] words;
 	protected int[] wordCounts;
 
@@ -31,51 +40,56 @@ public class MultiwordUnitData
 
 	protected double sigLogLikelihood;
 
-	protected NGramExtractor[] extractors;
-
-	protected String leftSuccessorPattern;
-	protected String rightSuccessorPattern;
+	protected NGramTable table;
 
 	protected int totalWordCount;
-	protected Map wordCountMap;
 
 	public MultiwordUnitData
 	(
-		String mwu ,
-		Map wordCountMap ,
-		int totalWordCount ,
-		NGramExtractor[] extractors
+		NGramTable table ,
+		int mwuLength ,
+		int mwuNumber ,
+		int totalWordCount
 	)
 	{
-		this.mwu					= mwu;
-		this.wordCountMap			= wordCountMap;
+		this.table					= table;
+		this.mwuLength				= mwuLength;
+		this.mwuNumber				= mwuNumber;
 		this.totalWordCount			= totalWordCount;
-		this.extractors				= extractors;
-
-		leftSuccessorPattern		= "\t" + mwu;
-		rightSuccessorPattern		= mwu + "\t";
-
-		words						= NGramExtractor.splitNGramIntoWords( mwu );
-
-		this.mwuLength				= words.length;
 
-		NGramExtractor extractor	= extractors[ words.length - 1 ];
+		tokens						= table.getTokens( mwuLength , mwuNumber );
 
-		this.mwuCount				= extractor.getNGramCount( mwu );
+		this.mwuCount				= table.getCount( mwuLength , mwuNumber );
 
 		calculateAssociationMeasures();
 	}
 
 	/**	Get the multiword unit text.
 	 *
-	 *	@return		The multiword unit text.
+	 *	@return		The multiword unit text, with the words separated
+	 *				by tab characters.
 	 */
 
 	public String getMWUText()
 	{
+		if ( mwu == null )
+		{
+			mwu	= table.getString( mwuLength , mwuNumber );
+		}
+
 		return mwu;
 	}
 
+	/**	Get the ngram number of this multiword unit.
+	 *
+	 *	@return		The ngram number in the ngram table.
+	 */
+
+	public int getMWUNumber()
+	{
+		return mwuNumber;
+	}
+
 	/**	Get the count for this multiword unit text.
 	 *
 	 *	@return		Count of appearances of this multiword unit.
@@ -103,6 +117,11 @@ public class MultiwordUnitData
 
 	public String[] getWords()
 	{
+		if ( words == null )
+		{
+			words	= table.getWords( mwuLength , mwuNumber );
+		}
+
 		return words;
 	}
 
@@ -113,132 +132,61 @@ public class MultiwordUnitData
 
 	public int[] getWordCounts()
 	{
-		return wordCounts;
-	}
-
-	/**	Get the left antecedent of the current multiword unit.
-	 *
-	 *	@return		The left antecedent as a string.
-	 */
-
-	public String leftAntecedent()
-	{
-		StringBuffer sb			= new StringBuffer( words.length * 10 );
-
-		for ( int i = 0 ; i < ( words.length - 1 ) ; i++ )
+		if ( wordCounts == null )
 		{
-			if ( i > 0 ) sb	= sb.append( "\t" );
-    		sb.append( words[ i ] );
+			wordCounts	= new int[ mwuLength ];
+
+			for ( int i = 0 ; i < mwuLength ; i++ )
+			{
+				wordCounts[ i ]	= (int)freq( i , i );
+			}
 		}
 
-		return sb.toString();
+		return wordCounts;
 	}
 
-	/**	Get the right antecedent of the current multiword unit.
+	/**	Get the left antecedent of the current multiword unit.
 	 *
-	 *	@return		The right antecedent as a string.
+	 *	@return		Ngram number of the left antecedent, which is
+	 *				one word shorter than this multiword unit.
 	 */
 
-	public String rightAntecedent()
+	public int leftAntecedent()
 	{
-		StringBuffer sb			= new StringBuffer( words.length * 10 );
-
-		for ( int i = 1 ; i < words.length ; i++ )
-		{
-			if ( i > 1 ) sb	= sb.append( "\t" );
-    		sb.append( words[ i ] );
-		}
-
-		return sb.toString();
+		return table.getPrefix( mwuLength , mwuNumber );
 	}
 
-	/**	Get the successors of the current multiword unit.
+	/**	Get the right antecedent of the current multiword unit.
 	 *
-	 *	@return		The successors as an array of strings.
+	 *	@return		Ngram number of the right antecedent, which is
+	 *				one word shorter than this multiword unit.
 	 */
 
-	public String[] successors()
+	public int rightAntecedent()
 	{
-		NGramExtractor extractor	= extractors[ words.length ];
-
-		ArrayList successorList		= new ArrayList();
-
-		String[] ngramsp1			= extractor.getNGrams();
-
-    	for ( int i = 0 ; i < ngramsp1.length ; i++ )
-		{
-			if ( ngramsp1[ i ].startsWith( rightSuccessorPattern ) )
-			{
-				successorList.add( ngramsp1[ i ] );
-			}
-			else if ( ngramsp1[ i ].endsWith( leftSuccessorPattern ) )
-			{
-				successorList.add( ngramsp1[ i ] );
-			}
-		}
-
-		return (String[])successorList.toArray( new String[]{} );
+		return table.getSuffix( mwuLength , mwuNumber );
 	}
 
 	/**	Get the left successors of the current multiword unit.
 	 *
-	 *	@return		The left successors as an array of strings.
+	 *	@return		Ngram numbers of the left successors, which are
+	 *				one word longer than this multiword unit.
 	 */
 
-	public String[] leftSuccessors()
+	public int[] leftSuccessors()
 	{
-		NGramExtractor extractor	= extractors[ words.length ];
-
-		ArrayList successorList		= new ArrayList();
-
-		SortedMap successorMap		= extractor.getNGramMap();
-
-		Iterator iterator			= successorMap.keySet().iterator();
-
-		while ( iterator.hasNext() )
-		{
-			String potentialSuccessor	= (String)iterator.next();
-
-			if ( potentialSuccessor.endsWith( leftSuccessorPattern ) )
-			{
-				successorList.add( potentialSuccessor );
-			}
-		}
-
-		return (String[])successorList.toArray( new String[]{} );
+		return table.getLeftExtensions( mwuLength , mwuNumber );
 	}
 
 	/**	Get the right successors of the current multiword unit.
 	 *
-	 *	@return		The right successors as an array of strings.
+	 *	@return		Ngram numbers of the right successors, which are
+	 *				one word longer than this multiword unit.
 	 */
 
-	public String[] rightSuccessors()
+	public int[] rightSuccessors()
 	{
-		NGramExtractor extractor	= extractors[ words.length ];
-
-		ArrayList successorList		= new ArrayList();
-
-		SortedMap successorMap		=
-			extractor.getNGramMap().tailMap( rightSuccessorPattern );
-
-		Iterator iterator	= successorMap.keySet().iterator();
-
-		while ( iterator.hasNext() )
-		{
-			String potentialSuccessor	= (String)iterator.next();
-
-			if ( potentialSuccessor.startsWith( rightSuccessorPattern ) )
-			{
-				successorList.add( potentialSuccessor );
-			}
-			else
-			{
-				break;
-			}
-		}
-
-		return (String[])successorList.toArray( new String[]{} );
+		return table.getRightExtensions( mwuLength , mwuNumber );
 	}
 
 	/**	Calculate fair probability for the left hand side of a pseudo-bigram.
@@ -252,30 +200,14 @@ public class MultiwordUnitData
 								//	Compute count for left-hand portion of
 								//	pseudo-bigram.
 
-		double avx					= getWordCount( words[ 0 ] );
+		double avx					= freq( 0 , 0 );
 
-		StringBuffer sb;;
-
-		for ( int i = 1 ; i <= words.length - 2 ; i++ )
+		for ( int i = 1 ; i <= mwuLength - 2 ; i++ )
 		{
-			sb	= new StringBuffer( words.length * 10 );
-
-			int k	= -1;
-
-			for ( int j = 0 ; j <= i ; j++ )
-			{
-			    if ( j > 0 ) sb	= sb.append( "\t" );
-
-				sb	= sb.append( words[ j ] );
-				k++;
-			}
-
-			NGramExtractor extractormi	= extractors[ k ];
-
-			avx	+= extractormi.getNGramCount( sb.toString() );
+			avx	+= freq( 0 , i );
 		}
 
-		return avx / ( words.length - 1 );
+		return avx / ( mwuLength - 1 );
 	}
 
 	/**	Calculate fair probability for the right hand side of a pseudo-bigram.
@@ -289,29 +221,14 @@ public class MultiwordUnitData
 								//	Compute count for right-hand portion of
 								//	pseudo-bigram.
 
-		double avy					=
-			getWordCount( words[ words.length - 1 ] );
+		double avy					= freq( mwuLength - 1 , mwuLength - 1 );
 
-		int k						= words.length - 2;
-
-		StringBuffer sb;
-
-		for ( int i = 1 ; i < words.length - 1 ; i++ )
+		for ( int i = 1 ; i < mwuLength - 1 ; i++ )
 		{
-			sb	= new StringBuffer( words.length * 10 );
-
-			for ( int j = i ; j < words.length ; j++ )
-			{
-			    if ( sb.length() > 0 ) sb	= sb.append( "\t" );
-				sb	= sb.append( words[ j ] );
-			}
-
-			NGramExtractor extractormi	= extractors[ k-- ];
-
-			avy	+= extractormi.getNGramCount( sb.toString() );
+			avy	+= freq( i , mwuLength - 1 );
 		}
 
-		return avy / ( words.length - 1 );
+		return avy / ( mwuLength - 1 );
 	}
 
 	/**	Get the fair dispersion point normalization.
@@ -321,12 +238,12 @@ public class MultiwordUnitData
 
 	protected double getAvp()
 	{
-		int n		= words.length;
+		int n		= mwuLength;
 		double avp	= 0.0D;
 
 		for ( int i = 0 ; i < ( n - 1 ) ; i++ )
 		{
-			avp	+= prob( words , 0 , i ) * prob( words , i + 1 , n - 1 );
+			avp	+= prob( 0 , i ) * prob( i + 1 , n - 1 );
 		}
 
 		return avp / ( n - 1 );
@@ -339,13 +256,12 @@ public class MultiwordUnitData
 
 	protected double getAvp2()
 	{
-		int n		= words.length;
+		int n		= mwuLength;
 		double avp2	= 0.0D;
 
 		for ( int i = 0 ; i < ( n - 1 ) ; i++ )
 		{
-			avp2	+=
-				freq( words , 0 , i ) * freq( words , i + 1 , n - 1 );
+			avp2	+= freq( 0 , i ) * freq( i + 1 , n - 1 );
 		}
 
 		return avp2 / ( n - 1 );
@@ -382,9 +298,9 @@ public class MultiwordUnitData
 								//	Dice.
 
 		this.dice			=
-			( 2.0D * freq( words , 0 , words.length - 1 ) ) / ( avx + avy );
+			( 2.0D * freq( 0 , mwuLength - 1 ) ) / ( avx + avy );
 
-		double probWords	= prob( words , 0 , words.length - 1 );
+		double probWords	= prob( 0 , mwuLength - 1 );
 
 		double scpValue		= ( probWords * probWords ) / avp;
 
@@ -413,9 +329,8 @@ public class MultiwordUnitData
 		}
 	}
 
-	/**	Calculate the probability for a portion of a set of words.
+	/**	Calculate the probability for a portion of the words.
 	 *
-	 *	@param	words	The words.
 	 *	@param	i1		Starting index.
 	 *	@param	i2		Ending index.
 	 *
@@ -431,72 +346,29 @@ public class MultiwordUnitData
 	 *
 	 */
 
-	public double prob( String[] words , int i1 , int i2 )
+	public double prob( int i1 , int i2 )
 	{
-		StringBuffer sb	= new StringBuffer( words.length * 10 );
-
-		int k = 0;
-
-		for ( int i = i1 ; i <= i2 ; i++ )
-		{
-			if ( sb.length() > 0 ) sb.append( "\t" );
-			sb.append( words[ i ] );
-			k++;
-		}
+		int k	= i2 - i1 + 1;
 
-		double result;
+		double total	=
+			( k == 1 ) ? (double)totalWordCount : (double)table.getTotal( k );
 
-		if ( k == 1 )
-		{
-			result	=
-				(double)getWordCount( sb.toString() ) /
-				(double)totalWordCount;
-		}
-		else
-		{
-			result	=
-				(double)extractors[ k - 1 ].getNGramCount( sb.toString() ) /
-				(double)extractors[ k - 1 ].getNumberOfNGrams();
-		}
-
-		return result;
+		return freq( i1 , i2 ) / total;
 	}
 
-	/**	Calculate the frequency for a portion of a set of words.
+	/**	Calculate the frequency for a portion of the words.
 	 *
-	 *	@param	words	The words.
 	 *	@param	i1		Starting index.
 	 *	@param	i2		Ending index.
 	 *
 	 *	@return			Frequency from ngram frequencies.
 	 */
 
-	public double freq( String[] words , int i1 , int i2 )
+	public double freq( int i1 , int i2 )
 	{
-		StringBuffer sb	= new StringBuffer( words.length * 10 );
-
-		int k = 0;
+		int k	= i2 - i1 + 1;
 
-		for ( int i = i1 ; i <= i2 ; i++ )
-		{
-			if ( sb.length() > 0 ) sb.append( "\t" );
-			sb.append( words[ i ] );
-			k++;
-		}
-
-		double result;
-
-		if ( k == 1 )
-		{
-			result	= getWordCount( sb.toString() );
-		}
-		else
-		{
-			result	=
-				(double)extractors[ k - 1 ].getNGramCount( sb.toString() );
-		}
-
-		return result;
+		return table.getCount( k , table.find( tokens , i1 , k ) );
 	}
 
 	/**	Return the Dice coefficient.
@@ -559,7 +431,7 @@ public class MultiwordUnitData
 		return sigLogLikelihood;
 	}
 
-	/**	Get count for a specific word from the count map.
+	/**	Get count for a specific word.
 	 *
 	 *	@param	word		The word text.
 	 *
@@ -569,14 +441,7 @@ public class MultiwordUnitData
 
 	public int getWordCount( String word )
 	{
-		int result	= 0;
-
-		if ( wordCountMap.containsKey( word ) )
-		{
-			result	= ((Integer)wordCountMap.get( word )).intValue();
-		}
-
-		return result;
+		return table.getCount( 1 , table.find( new String[]{ word } ) );
 	}
 
 	/**	Return mwu as a displayable string.
@@ -586,7 +451,7 @@ public class MultiwordUnitData
 
 	public String toString()
 	{
-		return mwu.replaceAll( "\t" , " " );
+		return getMWUText().replaceAll( "\t" , " " );
 	}
 }
 
@@ -6,6 +6,8 @@ import java.io.*;
 import java.util.*;
 
 import edu.northwestern.at.utils.*;
+import edu.northwestern.at.wordhoard.model.*;
+import edu.northwestern.at.wordhoard.model.search.*;
 
 /**	A WordHoard Corpus Query Language query. */
 
@@ -491,6 +493,109 @@ public class CQLQuery
 		return getHQL( null , WORDRESULTS );
 	}
 
+	/**	Determine if query can be evaluated against a word index.
+	 *
+	 *	@return		true if every term in every phrase can use a
+	 *				word index.
+	 */
+
+	public boolean isIndexable()
+	{
+		for ( int i = 0 ; i < queryPhrases.size() ; i++ )
+		{
+			CQLPhrase phrase	= (CQLPhrase)queryPhrases.get( i );
+
+			Iterator iterator	= phrase.getQueryWords().iterator();
+
+			while ( iterator.hasNext() )
+			{
+				if ( !((CQLWord)iterator.next()).isIndexable() ) return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**	Evaluate query against a word index.
+	 *
+	 *	@param	index		The word index.
+	 *	@param	workParts	Work parts to search, or null to search all.
+	 *
+	 *	@return				Rows in the index of all the words in all
+	 *						the phrases matched by the query, in
+	 *						increasing order.
+	 *
+	 *	<p>
+	 *	This is the word index equivalent of the FULLWORDRESULTS
+	 *	HQL queries.  Each query word is evaluated to a set of rows
+	 *	and each phrase is found by offset intersection of those sets,
+	 *	instead of by a chain of "word.next" joins.
+	 *	</p>
+	 */
+
+	public int[] getIndexRows( WordIndex index , WorkPart[] workParts )
+	{
+		boolean[] workPartMask	= null;
+
+		if ( workParts != null )
+		{
+			workPartMask	= new boolean[ index.getNumWorkParts() ];
+
+			for ( int i = 0 ; i < workParts.length ; i++ )
+			{
+				int id	= index.getWorkPartId( workParts[ i ] );
+
+				if ( id >= 0 )
+				{
+					workPartMask[ id ]	= true;
+				}
+			}
+		}
+
+		BitSet allRows	= new BitSet( index.getNumRows() );
+
+		for ( int i = 0 ; i < queryPhrases.size() ; i++ )
+		{
+			CQLPhrase phrase	= (CQLPhrase)queryPhrases.get( i );
+
+			CQLWord[] words		=
+				(CQLWord[])phrase.getQueryWords().toArray(
+					new CQLWord[]{} );
+
+			if ( words.length == 0 ) continue;
+
+			BitSet[] wordRows	= new BitSet[ words.length ];
+
+			for ( int j = 0 ; j < words.length ; j++ )
+			{
+				wordRows[ j ]	=
+					words[ j ].findIndexRows( index , workPartMask );
+			}
+
+			BitSet starts	= index.findPhrase( wordRows );
+
+			for	(	int row = starts.nextSetBit( 0 ) ;
+					row >= 0 ;
+					row = starts.nextSetBit( row + 1 ) )
+			{
+				allRows.set( row , row + words.length );
+			}
+		}
+
+		int[] result	= new int[ allRows.cardinality() ];
+
+		int k			= 0;
+
+		for	(	int row = allRows.nextSetBit( 0 ) ;
+				row >= 0 ;
+				row = allRows.nextSetBit( row + 1 ) )
+		{
+			result[ k++ ]	= row;
+		}
+
+		return result;
+	}
+
 	/**	Displayable version of query.
 	 */
 
@@ -4,9 +4,11 @@ package edu.northwestern.at.wordhoard.swing.calculator.cql;
 
 import java.io.*;
 import java.util.*;
+import java.util.regex.*;
 
 import edu.northwestern.at.utils.*;
 import edu.northwestern.at.wordhoard.model.*;
+import edu.northwestern.at.wordhoard.model.search.*;
 import edu.northwestern.at.wordhoard.model.wrappers.*;
 
 /**	A WordHoard Corpus Query Language term.
@@ -109,6 +111,14 @@ public class CQLTerm
 
 	protected static final HashMap namesToElements;
 
+	/**	Word index for which {@link #indexMask} was computed. */
+
+	protected WordIndex maskIndex	= null;
+
+	/**	Word index dictionary entries matched by this term. */
+
+	protected boolean[] indexMask	= null;
+
 	/**	True if element value can contain operator.
 	 */
 
@@ -899,6 +909,168 @@ System.err.println( "filteredCol has " + filteredCol.size() + " entries." );
 			( termType == WORKPARTTAG );
 	}
 
+	/**	Determine if query term can be evaluated against a word index.
+	 *
+	 *	@return		true if the term is empty or is a spelling, lemma,
+	 *				part of speech, work tag or corpus tag term.
+	 */
+
+	public boolean isIndexable()
+	{
+		if ( ( termText == null ) || ( termText.length() == 0 ) ) return true;
+
+		switch ( termType )
+		{
+			case SPELLING	:
+			case LEMMA		:
+			case POS		:
+			case WORKTAG	:
+			case CORPUSTAG	:
+				return true;
+
+			default			:
+				return false;
+		}
+	}
+
+	/**	Determine if a word part in a word index matches this term.
+	 *
+	 *	@param	index	The word index.
+	 *	@param	row		The row of the word in the index.
+	 *	@param	part	The position of the word part in the index.
+	 *
+	 *	@return			true if the word part matches.
+	 *
+	 *	<p>
+	 *	The term is compared once against each entry of the index
+	 *	dictionary for its term type.  Matching a word is then a
+	 *	single array lookup.
+	 *	</p>
+	 */
+
+	public boolean matchesIndex( WordIndex index , int row , int part )
+	{
+		if ( ( termText == null ) || ( termText.length() == 0 ) ) return true;
+
+		if ( maskIndex != index )
+		{
+			indexMask	= getIndexMask( index );
+			maskIndex	= index;
+		}
+
+		int id;
+
+		switch ( termType )
+		{
+			case SPELLING	:
+				id	= index.getSpelling( row );
+				break;
+
+			case LEMMA		:
+				id	= index.getPartLemma( part );
+				break;
+
+			case POS		:
+				id	= index.getPartPos( part );
+				break;
+
+			case WORKTAG	:
+				id	= index.getWork( row );
+				break;
+
+			case CORPUSTAG	:
+			default			:
+				id	= index.getCorpus( row );
+				break;
+		}
+								//	A missing value never matches,
+								//	as with an HQL implicit join.
+
+		return ( id >= 0 ) && indexMask[ id ];
+	}
+
+	/**	Match this term against a word index dictionary.
+	 *
+	 *	@param	index	The word index.
+	 *
+	 *	@return			Array of flags parallel to the dictionary for
+	 *					this term type, true for each matching entry.
+	 */
+
+	protected boolean[] getIndexMask( WordIndex index )
+	{
+		String[] values;
+
+		switch ( termType )
+		{
+			case SPELLING	:
+				values	= index.getSpellingsInsensitive();
+				break;
+
+			case LEMMA		:
+				values	= index.getLemmaTags();
+				break;
+
+			case POS		:
+				values	= index.getPosTags();
+				break;
+
+			case WORKTAG	:
+				values	= index.getWorkTags();
+				break;
+
+			case CORPUSTAG	:
+			default			:
+				values	= index.getCorpusTags();
+				break;
+		}
+
+		boolean[] result	= new boolean[ values.length ];
+
+		Matcher matcher		= null;
+
+		if ( isRegExp )
+		{
+			matcher	=
+				Pattern.compile(
+					termText ,
+					Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
+				).matcher( "" );
+		}
+
+		for ( int i = 0 ; i < values.length ; i++ )
+		{
+			String value	= values[ i ];
+			boolean matches	= false;
+
+			if ( value != null )
+			{
+				if ( matcher == null )
+				{
+					matches	= value.equalsIgnoreCase( termText );
+				}
+								//	Parts of speech are matched against
+								//	the whole tag, as with the
+								//	RegExpCollectionFilter in toHQL.
+								//	Other regular expressions behave
+								//	like MySQL regexp_like.
+
+				else if ( termType == POS )
+				{
+					matches	= matcher.reset( value ).matches();
+				}
+				else
+				{
+					matches	= matcher.reset( value ).find();
+				}
+			}
+
+			result[ i ]	= ( matches == matchTerm );
+		}
+
+		return result;
+	}
+
 	/**	Check if this query term is equal to another.
 	 *
 	 *	@return		True if the query terms are equal, false otherwise.
@@ -5,6 +5,8 @@ package edu.northwestern.at.wordhoard.swing.calculator.cql;
 import java.io.*;
 import java.util.*;
 
+import edu.northwestern.at.wordhoard.model.search.*;
+
 /**	A WordHoard Corpus Query Language term set. */
 
 public class CQLTermSet
@@ -184,6 +186,67 @@ public class CQLTermSet
 		return sb.toString();
     }
 
+	/**	Determine if all constituent query terms can be evaluated
+	 *	against a word index.
+	 *
+	 *	@return		true if all the terms can use a word index.
+	 */
+
+	public boolean isIndexable()
+	{
+		Iterator iterator	= queryTerms.iterator();
+
+		while ( iterator.hasNext() )
+		{
+			if ( !((CQLTerm)iterator.next()).isIndexable() ) return false;
+		}
+
+		return true;
+	}
+
+	/**	Determine if the term set has any non-empty query terms.
+	 *
+	 *	@return		true if at least one term has term text.
+	 */
+
+	public boolean hasTermText()
+	{
+		Iterator iterator	= queryTerms.iterator();
+
+		while ( iterator.hasNext() )
+		{
+			String text	= ((CQLTerm)iterator.next()).termText;
+
+			if ( ( text != null ) && ( text.length() > 0 ) ) return true;
+		}
+
+		return false;
+	}
+
+	/**	Determine if a word part in a word index matches all terms.
+	 *
+	 *	@param	index	The word index.
+	 *	@param	row		The row of the word in the index.
+	 *	@param	part	The position of the word part in the index.
+	 *
+	 *	@return			true if every term matches the word part.
+	 */
+
+	public boolean matchesIndex( WordIndex index , int row , int part )
+	{
+		Iterator iterator	= queryTerms.iterator();
+
+		while ( iterator.hasNext() )
+		{
+			if ( !((CQLTerm)iterator.next()).matchesIndex( index , row , part ) )
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	/**	Determine if any constituent query term refers to a speaker.
 	 *
 	 *	@return		true if a constituent term refers to a speaker.
@@ -5,6 +5,8 @@ package edu.northwestern.at.wordhoard.swing.calculator.cql;
 import java.io.*;
 import java.util.*;
 
+import edu.northwestern.at.wordhoard.model.search.*;
+
 /**	A WordHoard Corpus Query Language word position. */
 
 public class CQLWord
@@ -189,6 +191,97 @@ public class CQLWord
 		return sb.toString();
 	}
 
+	/**	Determine if all constituent term sets can be evaluated
+	 *	against a word index.
+	 *
+	 *	@return		true if all the term sets can use a word index.
+	 */
+
+	public boolean isIndexable()
+	{
+		Iterator iterator	= queryTermSets.iterator();
+
+		while ( iterator.hasNext() )
+		{
+			if ( !((CQLTermSet)iterator.next()).isIndexable() ) return false;
+		}
+
+		return true;
+	}
+
+	/**	Find the rows in a word index which match this word.
+	 *
+	 *	@param	index			The word index.
+	 *	@param	workPartMask	Flags indexed by work part id in the
+	 *							index, or null to search all work parts.
+	 *
+	 *	@return					The set of matching rows.
+	 *
+	 *	<p>
+	 *	As with the HQL query, a word matches when one of its word
+	 *	parts matches any of the non-empty term sets.  A word with
+	 *	no word parts never matches.
+	 *	</p>
+	 */
+
+	public BitSet findIndexRows( WordIndex index , boolean[] workPartMask )
+	{
+		CQLTermSet[] termSets	= getTermSetsWithText();
+
+		BitSet result			= new BitSet( index.getNumRows() );
+
+		for ( int row = 0 ; row < index.getNumRows() ; row++ )
+		{
+			if ( workPartMask != null )
+			{
+				int workPart	= index.getWorkPart( row );
+
+				if ( ( workPart < 0 ) || !workPartMask[ workPart ] ) continue;
+			}
+
+			int end	= index.getPartEnd( row );
+
+			for ( int part = index.getPartStart( row ) ; part < end ; part++ )
+			{
+				boolean matches	= ( termSets.length == 0 );
+
+				for ( int i = 0 ; !matches && ( i < termSets.length ) ; i++ )
+				{
+					matches	= termSets[ i ].matchesIndex( index , row , part );
+				}
+
+				if ( matches )
+				{
+					result.set( row );
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**	Get the term sets which have non-empty query terms.
+	 *
+	 *	@return		The term sets which contribute to the HQL query.
+	 */
+
+	protected CQLTermSet[] getTermSetsWithText()
+	{
+		List result	= new ArrayList();
+
+		Iterator iterator	= queryTermSets.iterator();
+
+		while ( iterator.hasNext() )
+		{
+			CQLTermSet termSet	= (CQLTermSet)iterator.next();
+
+			if ( termSet.hasTermText() ) result.add( termSet );
+		}
+
+		return (CQLTermSet[])result.toArray( new CQLTermSet[ result.size() ] );
+	}
+
 	/**	Determine if any constituent query term refers to a speaker.
 	 *
 	 *	@return		true if a constituent term refers to a speaker.
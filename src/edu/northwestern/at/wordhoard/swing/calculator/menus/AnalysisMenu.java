@@ -8,6 +8,7 @@ import java.awt.event.*;
 import javax.swing.*;
 
 import edu.northwestern.at.utils.*;
+import edu.northwestern.at.utils.metrics.*;
 import edu.northwestern.at.utils.swing.*;
 import edu.northwestern.at.wordhoard.swing.*;
 import edu.northwestern.at.wordhoard.swing.calculator.*;
@@ -266,13 +267,32 @@ public class AnalysisMenu extends BaseMenu
 
 								//	Enable the busy cursor.
             setBusyCursor();
-								//	Run the analysis.
+								//	Run the analysis, timing it if
+								//	metrics are enabled.
 
-			analysis.runAnalysis
-			(
-				parentWindow ,
-				outputResults.getProgressReporter()
-			);
+			Metrics.Probe probe	= Metrics.start();
+			boolean succeeded	= false;
+
+			try
+			{
+				analysis.runAnalysis
+				(
+					parentWindow ,
+					outputResults.getProgressReporter()
+				);
+
+				succeeded	= true;
+			}
+			finally
+			{
+				Metrics.stop
+				(
+					probe ,
+					Metrics.ANALYSIS ,
+					analysis.getClass().getName() ,
+					succeeded ? 0 : -1
+				);
+			}
 								//	Retrieve the analysis results.
 
 			final ResultsPanel resultsPanel	= analysis.getResults();
@@ -5,6 +5,7 @@ package edu.northwestern.at.wordhoard.swing.calculator.modelutils;
 import java.util.*;
 
 import edu.northwestern.at.wordhoard.model.*;
+import edu.northwestern.at.wordhoard.model.search.*;
 import edu.northwestern.at.wordhoard.model.userdata.*;
 import edu.northwestern.at.wordhoard.swing.calculator.cql.*;
 
@@ -360,6 +361,14 @@ public class CQLQueryUtils
 	{
 		CQLQuery cql		= new CQLQuery( queryString );
 
+								//	Use the in-memory word index
+								//	if one is installed and it can
+								//	evaluate the query.
+
+		Word[] indexedWords	= getWordsViaIndex( cql , workParts );
+
+		if ( indexedWords != null ) return indexedWords;
+
 		String[] hqlStrings;
 
 		if ( workParts == null )
@@ -441,6 +450,50 @@ public class CQLQueryUtils
 		return result;
 	}
 
+	/**	Get words via CQL query using the in-memory word index.
+	 *
+	 *	@param	cql				The CQL word query.
+	 *	@param	workParts		Array of work parts for searching.
+	 *
+	 *	@return					The corresponding words in increasing
+	 *							order by tag, or null if no word index
+	 *							is installed or the query cannot be
+	 *							evaluated against it.
+	 */
+
+	protected static Word[] getWordsViaIndex
+	(
+		CQLQuery cql ,
+		WorkPart[] workParts
+	)
+	{
+		WordIndex index	= WordIndex.getIndex();
+
+		if ( ( index == null ) || !cql.isIndexable() ) return null;
+
+		TreeSet wordsSet	= new TreeSet();
+
+		try
+		{
+			int[] rows	= cql.getIndexRows( index , workParts );
+
+			Word[] words	=
+				index.getWords(
+					rows , PersistenceManager.getPM().getSession() );
+
+			for ( int i = 0 ; i < words.length ; i++ )
+			{
+				if ( words[ i ] != null ) wordsSet.add( words[ i ] );
+			}
+		}
+		catch ( Exception e )
+		{
+			return null;
+		}
+
+		return (Word[])wordsSet.toArray( new Word[ wordsSet.size() ] );
+	}
+
 	/**	Get words via CQL query.
 	 *
 	 *	@param	queryString		The CQL word query string.
@@ -72,28 +72,9 @@ public class CollocateUtils
 				if ( thePM == null ) thePM	= PMUtils.getPM();
 
 				result	=
-					thePM.query
+					new ArrayList
 					(
-						"select colocate from Word colocate, " +
-						"Word word where " +
-						"word in (:words) and " +
-//						PersistenceManager.generateInPhrase(
-//							"word" , words ) + " and " +
-						"colocate.colocationOrdinal between " +
-						"word.colocationOrdinal - :leftSpan and " +
-						"word.colocationOrdinal + :rightSpan" ,
-						new String[]
-						{
-							"words" ,
-							"leftSpan" ,
-							"rightSpan"
-						},
-						new Object[]
-						{
-							words ,
-							Integer.valueOf( leftSpan ) ,
-							Integer.valueOf( rightSpan )
-						}
+						thePM.getColocates( words , leftSpan , rightSpan )
 					);
 			}
 			catch ( Exception e )
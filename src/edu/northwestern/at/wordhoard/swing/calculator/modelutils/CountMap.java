@@ -0,0 +1,1186 @@
+package edu.northwestern.at.wordhoard.swing.calculator.modelutils;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import edu.northwestern.at.utils.corpuslinguistics.TermVector;
+import edu.northwestern.at.wordhoard.model.wrappers.*;
+
+/**	Compact word count map.
+ *
+ *	<p>
+ *	A CountMap holds integer counts keyed by {@link Spelling} together
+ *	with, optionally, the set of works in which each spelling appears.
+ *	It replaces the TreeMaps of boxed Integer counts and HashSets of
+ *	boxed work IDs which the calculator analyses used to build for
+ *	each word.
+ *	</p>
+ *
+ *	<p>
+ *	Spellings are interned once to small integer IDs which are shared
+ *	by the count maps created since the intern tables were last
+ *	cleared, and entries are stored in parallel primitive
+ *	arrays indexed by an entry number.  The works for an entry are
+ *	stored as a bit set over interned work numbers.  Entries are kept
+ *	in insertion order.  The sorted order used by TreeMap based count
+ *	maps is computed only when requested and is cached until a new
+ *	entry is added.
+ *	</p>
+ *
+ *	<p>
+ *	The toCountMap, toWorkCountMap and toWorkIDMap methods create the
+ *	TreeMap based count maps expected by older code.
+ *	</p>
+ *
+ *	<p>
+ *	The intern tables grow with every new spelling and work, so
+ *	{@link #clearInternTables} starts new ones.  Each count map keeps
+ *	the tables it was created with, so existing maps remain valid.
+ *	Operations on two maps with different tables translate between
+ *	them by spelling.
+ *	</p>
+ *
+ *	<p>
+ *	Count maps are not thread safe.  The spelling and work interning
+ *	tables are.
+ *	</p>
+ */
+
+public class CountMap
+{
+	/**	Current intern tables, used by new count maps. */
+
+	protected static volatile InternTables currentTables	=
+		new InternTables();
+
+	/**	Intern tables used by this count map. */
+
+	protected InternTables tables;
+
+	/**	Hash table of entry numbers + 1, indexed by spelling ID hash.
+	 *	0 marks an empty slot.
+	 */
+
+	protected int[] table;
+
+	/**	Spelling ID for each entry. */
+
+	protected int[] spellingIDs;
+
+	/**	Count for each entry. */
+
+	protected int[] counts;
+
+	/**	Work bit set for each entry, or null if no works for entry. */
+
+	protected long[][] works;
+
+	/**	Number of entries. */
+
+	protected int size;
+
+	/**	Entry numbers in spelling order, or null if not yet computed. */
+
+	protected int[] sortedEntries;
+
+	/**	Create an empty count map.
+	 */
+
+	public CountMap()
+	{
+		this( 16 );
+	}
+
+	/**	Create an empty count map.
+	 *
+	 *	@param	capacity	Expected number of entries.
+	 */
+
+	public CountMap( int capacity )
+	{
+		this( capacity , currentTables );
+	}
+
+	/**	Create an empty count map using given intern tables.
+	 *
+	 *	@param	capacity	Expected number of entries.
+	 *	@param	tables		Intern tables.
+	 */
+
+	protected CountMap( int capacity , InternTables tables )
+	{
+		this.tables	= tables;
+
+		if ( capacity < 16 ) capacity = 16;
+
+		int tableSize	= 32;
+
+		while ( tableSize < ( capacity * 2 ) ) tableSize <<= 1;
+
+		table		= new int[ tableSize ];
+		spellingIDs	= new int[ capacity ];
+		counts		= new int[ capacity ];
+		works		= new long[ capacity ][];
+	}
+
+	/**	Create a count map from a TreeMap style count map.
+	 *
+	 *	@param	map		Map with Spelling keys and Number values.
+	 *
+	 *	@return			The count map.
+	 */
+
+	public static CountMap fromCountMap( Map map )
+	{
+		CountMap result	= new CountMap( map.size() );
+
+		for	(	Iterator iterator = map.entrySet().iterator() ;
+				iterator.hasNext() ; )
+		{
+			Map.Entry entry	= (Map.Entry)iterator.next();
+
+			result.add
+			(
+				(Spelling)entry.getKey() ,
+				((Number)entry.getValue()).intValue()
+			);
+		}
+
+		return result;
+	}
+
+	/**	Start new intern tables.
+	 *
+	 *	<p>
+	 *	Count maps created later use the new tables.  The old tables
+	 *	are freed once no count map uses them.
+	 *	</p>
+	 */
+
+	public static void clearInternTables()
+	{
+		currentTables	= new InternTables();
+	}
+
+	/**	Get spelling IDs of another count map's entries in this
+	 *	map's intern tables.
+	 *
+	 *	@param	other	The other count map.
+	 *	@param	add		true to intern spellings missing from this
+	 *					map's tables.  If false, missing spellings
+	 *					get ID -1.
+	 *
+	 *	@return			Spelling IDs indexed by the other map's entry
+	 *					numbers.  The returned array must not be
+	 *					modified.
+	 */
+
+	protected int[] getSpellingIDs( CountMap other , boolean add )
+	{
+		if ( other.tables == tables ) return other.spellingIDs;
+
+		int[] result	= new int[ other.size ];
+
+		for ( int i = 0 ; i < other.size ; i++ )
+		{
+			Spelling spelling	= other.getEntrySpelling( i );
+
+			result[ i ]	=
+				add ?
+					tables.internSpelling( spelling ) :
+					tables.getSpellingID( spelling );
+		}
+
+		return result;
+	}
+
+	/**	Get another count map's work bits in this map's intern tables.
+	 *
+	 *	@param	other	The other count map.
+	 *	@param	entry	The other map's entry number.
+	 *
+	 *	@return			The work bits, or null if none.  The returned
+	 *					array must not be modified.
+	 */
+
+	protected long[] getWorkBits( CountMap other , int entry )
+	{
+		long[] bits	= other.works[ entry ];
+
+		if ( ( bits == null ) || ( other.tables == tables ) ) return bits;
+
+		long[] result	= null;
+
+		for ( int i = 0 ; i < bits.length ; i++ )
+		{
+			long word	= bits[ i ];
+
+			while ( word != 0 )
+			{
+				int bit			= Long.numberOfTrailingZeros( word );
+				int workNumber	=
+					tables.internWorkID(
+						other.tables.getWorkID( ( i << 6 ) + bit ) );
+
+				int resultWord	= workNumber >>> 6;
+
+				if ( result == null )
+				{
+					result	= new long[ resultWord + 1 ];
+				}
+				else if ( resultWord >= result.length )
+				{
+					result	= Arrays.copyOf( result , resultWord + 1 );
+				}
+
+				result[ resultWord ]	|= ( 1L << ( workNumber & 63 ) );
+
+				word	&= word - 1;
+			}
+		}
+
+		return result;
+	}
+
+	/**	Find the entry for a spelling ID.
+	 *
+	 *	@param	spellingID	The spelling ID.
+	 *
+	 *	@return				The entry number, or -1 if none.
+	 */
+
+	protected int findEntry( int spellingID )
+	{
+		if ( spellingID < 0 ) return -1;
+
+		int mask	= table.length - 1;
+		int slot	= hash( spellingID ) & mask;
+
+		while ( true )
+		{
+			int entry	= table[ slot ];
+
+			if ( entry == 0 ) return -1;
+
+			if ( spellingIDs[ entry - 1 ] == spellingID ) return entry - 1;
+
+			slot	= ( slot + 1 ) & mask;
+		}
+	}
+
+	/**	Get the entry for a spelling ID, adding it if necessary.
+	 *
+	 *	@param	spellingID	The spelling ID.
+	 *
+	 *	@return				The entry number.
+	 */
+
+	protected int getOrAddEntry( int spellingID )
+	{
+		int mask	= table.length - 1;
+		int slot	= hash( spellingID ) & mask;
+
+		while ( true )
+		{
+			int entry	= table[ slot ];
+
+			if ( entry == 0 ) break;
+
+			if ( spellingIDs[ entry - 1 ] == spellingID ) return entry - 1;
+
+			slot	= ( slot + 1 ) & mask;
+		}
+								//	Not found.  Add a new entry,
+								//	growing the arrays if needed.
+
+		if ( size == spellingIDs.length )
+		{
+			int newLength	= spellingIDs.length * 2;
+
+			spellingIDs		= Arrays.copyOf( spellingIDs , newLength );
+			counts			= Arrays.copyOf( counts , newLength );
+			works			= Arrays.copyOf( works , newLength );
+		}
+
+		int result				= size++;
+
+		spellingIDs[ result ]	= spellingID;
+		sortedEntries			= null;
+
+		if ( ( size * 2 ) > table.length )
+		{
+			rehash( table.length * 2 );
+		}
+		else
+		{
+			table[ slot ]	= result + 1;
+		}
+
+		return result;
+	}
+
+	/**	Rebuild the hash table.
+	 *
+	 *	@param	tableSize	New hash table size.  Must be a power of 2.
+	 */
+
+	protected void rehash( int tableSize )
+	{
+		table		= new int[ tableSize ];
+
+		int mask	= tableSize - 1;
+
+		for ( int i = 0 ; i < size ; i++ )
+		{
+			int slot	= hash( spellingIDs[ i ] ) & mask;
+
+			while ( table[ slot ] != 0 ) slot = ( slot + 1 ) & mask;
+
+			table[ slot ]	= i + 1;
+		}
+	}
+
+	/**	Hash a spelling ID.
+	 *
+	 *	@param	spellingID	The spelling ID.
+	 *
+	 *	@return				The hash value.
+	 */
+
+	protected static int hash( int spellingID )
+	{
+		int h	= spellingID * 0x9E3779B9;
+
+		return h ^ ( h >>> 16 );
+	}
+
+	/**	Get number of entries.
+	 *
+	 *	@return		Number of distinct spellings in the map.
+	 */
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**	Check if map is empty.
+	 *
+	 *	@return		true if map has no entries.
+	 */
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**	Check if map contains a spelling.
+	 *
+	 *	@param	spelling	The spelling.
+	 *
+	 *	@return				true if the map has an entry for the spelling.
+	 */
+
+	public boolean containsKey( Spelling spelling )
+	{
+		return findEntry( tables.getSpellingID( spelling ) ) >= 0;
+	}
+
+	/**	Get count for a spelling.
+	 *
+	 *	@param	spelling	The spelling.
+	 *
+	 *	@return				The count, or 0 if the spelling is not in
+	 *						the map.
+	 */
+
+	public int getCount( Spelling spelling )
+	{
+		int entry	= findEntry( tables.getSpellingID( spelling ) );
+
+		return ( entry < 0 ) ? 0 : counts[ entry ];
+	}
+
+	/**	Get number of works in which a spelling appears.
+	 *
+	 *	@param	spelling	The spelling.
+	 *
+	 *	@return				The work count, or 0 if the spelling is not
+	 *						in the map.
+	 */
+
+	public int getWorkCount( Spelling spelling )
+	{
+		int entry	= findEntry( tables.getSpellingID( spelling ) );
+
+		return ( entry < 0 ) ? 0 : getEntryWorkCount( entry );
+	}
+
+	/**	Add to the count for a spelling.
+	 *
+	 *	@param	spelling	The spelling.
+	 *	@param	count		The count to add.
+	 */
+
+	public void add( Spelling spelling , int count )
+	{
+		int entry	= getOrAddEntry( tables.internSpelling( spelling ) );
+
+		counts[ entry ]	+= count;
+	}
+
+	/**	Add to the count for a spelling and record its work.
+	 *
+	 *	@param	spelling	The spelling.
+	 *	@param	count		The count to add.
+	 *	@param	workID		The ID of the work in which the spelling
+	 *						appears.
+	 */
+
+	public void add( Spelling spelling , int count , Long workID )
+	{
+		int entry	= getOrAddEntry( tables.internSpelling( spelling ) );
+
+		counts[ entry ]	+= count;
+
+		if ( workID != null ) setWorkBit( entry , tables.internWorkID( workID ) );
+	}
+
+	/**	Record a work for a spelling without changing its count.
+	 *
+	 *	@param	spelling	The spelling.
+	 *	@param	workID		The ID of the work in which the spelling
+	 *						appears.
+	 */
+
+	public void addWork( Spelling spelling , Long workID )
+	{
+		add( spelling , 0 , workID );
+	}
+
+	/**	Add counts and works from another count map.
+	 *
+	 *	@param	other	The other count map.
+	 */
+
+	public void addAll( CountMap other )
+	{
+		int[] otherIDs	= getSpellingIDs( other , true );
+
+		for ( int i = 0 ; i < other.size ; i++ )
+		{
+			int entry	= getOrAddEntry( otherIDs[ i ] );
+
+			counts[ entry ]	+= other.counts[ i ];
+
+			orWorkBits( entry , getWorkBits( other , i ) );
+		}
+	}
+
+	/**	Add works from another count map, leaving counts unchanged.
+	 *
+	 *	@param	other	The other count map.
+	 */
+
+	public void addWorks( CountMap other )
+	{
+		int[] otherIDs	= getSpellingIDs( other , true );
+
+		for ( int i = 0 ; i < other.size ; i++ )
+		{
+			int entry	= getOrAddEntry( otherIDs[ i ] );
+
+			orWorkBits( entry , getWorkBits( other , i ) );
+		}
+	}
+
+	/**	Set a work bit for an entry.
+	 *
+	 *	@param	entry		The entry number.
+	 *	@param	workNumber	The interned work number.
+	 */
+
+	protected void setWorkBit( int entry , int workNumber )
+	{
+		long[] bits	= works[ entry ];
+		int word	= workNumber >>> 6;
+
+		if ( bits == null )
+		{
+			bits	= new long[ word + 1 ];
+			works[ entry ]	= bits;
+		}
+		else if ( word >= bits.length )
+		{
+			bits	= Arrays.copyOf( bits , word + 1 );
+			works[ entry ]	= bits;
+		}
+
+		bits[ word ]	|= ( 1L << ( workNumber & 63 ) );
+	}
+
+	/**	Merge work bits into an entry.
+	 *
+	 *	@param	entry		The entry number.
+	 *	@param	otherBits	The work bits to merge, or null.
+	 */
+
+	protected void orWorkBits( int entry , long[] otherBits )
+	{
+		if ( otherBits == null ) return;
+
+		long[] bits	= works[ entry ];
+
+		if ( bits == null )
+		{
+			works[ entry ]	= (long[])otherBits.clone();
+			return;
+		}
+
+		if ( otherBits.length > bits.length )
+		{
+			bits	= Arrays.copyOf( bits , otherBits.length );
+			works[ entry ]	= bits;
+		}
+
+		for ( int i = 0 ; i < otherBits.length ; i++ )
+		{
+			bits[ i ]	|= otherBits[ i ];
+		}
+	}
+
+	/**	Get spelling for an entry.
+	 *
+	 *	@param	entry	The entry number, from 0 to size() - 1.
+	 *
+	 *	@return			The spelling.
+	 */
+
+	public Spelling getEntrySpelling( int entry )
+	{
+		return tables.getSpelling( spellingIDs[ entry ] );
+	}
+
+	/**	Get count for an entry.
+	 *
+	 *	@param	entry	The entry number, from 0 to size() - 1.
+	 *
+	 *	@return			The count.
+	 */
+
+	public int getEntryCount( int entry )
+	{
+		return counts[ entry ];
+	}
+
+	/**	Get number of works for an entry.
+	 *
+	 *	@param	entry	The entry number, from 0 to size() - 1.
+	 *
+	 *	@return			The number of works.
+	 */
+
+	public int getEntryWorkCount( int entry )
+	{
+		long[] bits	= works[ entry ];
+
+		if ( bits == null ) return 0;
+
+		int result	= 0;
+
+		for ( int i = 0 ; i < bits.length ; i++ )
+		{
+			result	+= Long.bitCount( bits[ i ] );
+		}
+
+		return result;
+	}
+
+	/**	Get work IDs for an entry.
+	 *
+	 *	@param	entry	The entry number, from 0 to size() - 1.
+	 *
+	 *	@return			Set of work IDs.
+	 */
+
+	public Set getEntryWorkIDs( int entry )
+	{
+		HashSet result	= new HashSet();
+		long[] bits		= works[ entry ];
+
+		if ( bits == null ) return result;
+
+		for ( int i = 0 ; i < bits.length ; i++ )
+		{
+			long word	= bits[ i ];
+
+			while ( word != 0 )
+			{
+				int bit	= Long.numberOfTrailingZeros( word );
+
+				result.add( tables.getWorkID( ( i << 6 ) + bit ) );
+
+				word	&= word - 1;
+			}
+		}
+
+		return result;
+	}
+
+	/**	Get total of all counts.
+	 *
+	 *	@return		Sum of counts.
+	 */
+
+	public long getTotalCount()
+	{
+		long result	= 0;
+
+		for ( int i = 0 ; i < size ; i++ )
+		{
+			result	+= counts[ i ];
+		}
+
+		return result;
+	}
+
+	/**	Get summary counts.
+	 *
+	 *	@return			Three entry double array.
+	 *						result[ 0 ]	= sum of counts
+	 *						result[ 1 ]	= sum of squared counts
+	 *						result[ 2 ]	= unique count (size of map)
+	 */
+
+	public double[] getSummaryCounts()
+	{
+		double sum			= 0.0D;
+		double sumSquares	= 0.0D;
+
+		for ( int i = 0 ; i < size ; i++ )
+		{
+			double count	= counts[ i ];
+
+			sum			+= count;
+			sumSquares	+= count * count;
+		}
+
+		return new double[]{ sum , sumSquares , (double)size };
+	}
+
+	/**	Get sum of cross products of counts in two count maps.
+	 *
+	 *	@param	countMap1	First count map.
+	 *	@param	countMap2	Second count map.
+	 *
+	 *	@return				Sum over shared spellings of the product
+	 *						of their counts.
+	 */
+
+	public static double getSumOfCrossProducts
+	(
+		CountMap countMap1 ,
+		CountMap countMap2
+	)
+	{
+								//	Iterate over shorter map for
+								//	efficiency.
+
+		if ( countMap1.size > countMap2.size )
+		{
+			CountMap temp	= countMap1;
+			countMap1		= countMap2;
+			countMap2		= temp;
+		}
+
+		int[] ids1		= countMap2.getSpellingIDs( countMap1 , false );
+		double result	= 0.0D;
+
+		for ( int i = 0 ; i < countMap1.size ; i++ )
+		{
+			int entry	= countMap2.findEntry( ids1[ i ] );
+
+			if ( entry >= 0 )
+			{
+				result	+=
+					(double)countMap1.counts[ i ] *
+					(double)countMap2.counts[ entry ];
+			}
+		}
+
+		return result;
+	}
+
+	/**	Get count of spellings which two count maps share.
+	 *
+	 *	@param	countMap1	First count map.
+	 *	@param	countMap2	Second count map.
+	 *
+	 *	@return				Count of spellings appearing in both maps.
+	 */
+
+	public static int getCountOfWordsInCommon
+	(
+		CountMap countMap1 ,
+		CountMap countMap2
+	)
+	{
+		if ( countMap1.size > countMap2.size )
+		{
+			CountMap temp	= countMap1;
+			countMap1		= countMap2;
+			countMap2		= temp;
+		}
+
+		int[] ids1	= countMap2.getSpellingIDs( countMap1 , false );
+		int result	= 0;
+
+		for ( int i = 0 ; i < countMap1.size ; i++ )
+		{
+			if ( countMap2.findEntry( ids1[ i ] ) >= 0 )
+			{
+				result++;
+			}
+		}
+
+		return result;
+	}
+
+	/**	Get entry numbers in spelling order.
+	 *
+	 *	@return		Entry numbers sorted by spelling, in the same
+	 *				order as the keys of a TreeMap count map.
+	 *				The returned array must not be modified.
+	 */
+
+	public int[] getSortedEntries()
+	{
+		if ( sortedEntries == null )
+		{
+			int[] entries	= new int[ size ];
+
+			for ( int i = 0 ; i < size ; i++ ) entries[ i ] = i;
+
+			int[] work		= (int[])entries.clone();
+
+			Spelling[] byID	= tables.spellingsByID;
+
+			mergeSort( work , entries , 0 , size , byID );
+
+			sortedEntries	= entries;
+		}
+
+		return sortedEntries;
+	}
+
+	/**	Sort entry numbers by spelling.
+	 *
+	 *	@param	src		Source entry numbers.
+	 *	@param	dest	Destination entry numbers.
+	 *	@param	low		First index to sort.
+	 *	@param	high	Last index to sort + 1.
+	 *	@param	byID	Interned spellings.
+	 */
+
+	protected void mergeSort
+	(
+		int[] src ,
+		int[] dest ,
+		int low ,
+		int high ,
+		Spelling[] byID
+	)
+	{
+		int length	= high - low;
+
+		if ( length < 7 )
+		{
+			for ( int i = low ; i < high ; i++ )
+			{
+				for	(	int j = i ;
+						( j > low ) &&
+							( compareEntries( dest[ j - 1 ] , dest[ j ] , byID ) > 0 ) ;
+						j-- )
+				{
+					int temp		= dest[ j ];
+					dest[ j ]		= dest[ j - 1 ];
+					dest[ j - 1 ]	= temp;
+				}
+			}
+
+			return;
+		}
+
+		int mid	= ( low + high ) >>> 1;
+
+		mergeSort( dest , src , low , mid , byID );
+		mergeSort( dest , src , mid , high , byID );
+
+		if ( compareEntries( src[ mid - 1 ] , src[ mid ] , byID ) <= 0 )
+		{
+			System.arraycopy( src , low , dest , low , length );
+			return;
+		}
+
+		for ( int i = low , p = low , q = mid ; i < high ; i++ )
+		{
+			if	(	( q >= high ) ||
+					( ( p < mid ) &&
+						( compareEntries( src[ p ] , src[ q ] , byID ) <= 0 ) ) )
+			{
+				dest[ i ]	= src[ p++ ];
+			}
+			else
+			{
+				dest[ i ]	= src[ q++ ];
+			}
+		}
+	}
+
+	/**	Compare two entries by spelling.
+	 *
+	 *	@param	entry1	First entry number.
+	 *	@param	entry2	Second entry number.
+	 *	@param	byID	Interned spellings.
+	 *
+	 *	@return			Spelling comparison result.
+	 */
+
+	protected int compareEntries( int entry1 , int entry2 , Spelling[] byID )
+	{
+		return
+			byID[ spellingIDs[ entry1 ] ].compareTo(
+				byID[ spellingIDs[ entry2 ] ] );
+	}
+
+	/**	Get spellings in sorted order.
+	 *
+	 *	@return		Array of spellings sorted as for a TreeMap.
+	 */
+
+	public Spelling[] getSortedSpellings()
+	{
+		int[] entries		= getSortedEntries();
+		Spelling[] result	= new Spelling[ entries.length ];
+
+		for ( int i = 0 ; i < entries.length ; i++ )
+		{
+			result[ i ]	= getEntrySpelling( entries[ i ] );
+		}
+
+		return result;
+	}
+
+	/**	Create a count map holding only entries with a minimum count.
+	 *
+	 *	@param	minimumCount	Minimum count for entries to keep.
+	 *
+	 *	@return					New count map.
+	 */
+
+	public CountMap filter( int minimumCount )
+	{
+		CountMap result	= new CountMap( size , tables );
+
+		for ( int i = 0 ; i < size ; i++ )
+		{
+			if ( counts[ i ] >= minimumCount )
+			{
+				int entry	= result.getOrAddEntry( spellingIDs[ i ] );
+
+				result.counts[ entry ]	= counts[ i ];
+				result.orWorkBits( entry , works[ i ] );
+			}
+		}
+
+		return result;
+	}
+
+	/**	Create a term vector of the counts.
+	 *
+	 *	@return		Term vector with the interned spelling IDs as
+	 *				terms and the counts as weights.
+	 *
+	 *	<p>
+	 *	The term vectors of count maps which share intern tables may
+	 *	be compared with each other.  Use {@link #toTermVectors} to
+	 *	get comparable term vectors for any count maps.
+	 *	</p>
+	 */
+
+	public TermVector toTermVector()
+	{
+		return toTermVector( spellingIDs );
+	}
+
+	/**	Create a term vector of the counts with given terms.
+	 *
+	 *	@param	terms	Term for each entry.
+	 *
+	 *	@return			Term vector with the terms and the counts as
+	 *					weights.
+	 */
+
+	protected TermVector toTermVector( int[] terms )
+	{
+		double[] weights	= new double[ size ];
+
+		for ( int i = 0 ; i < size ; i++ )
+		{
+			weights[ i ]	= counts[ i ];
+		}
+
+		return new TermVector( terms , weights , size );
+	}
+
+	/**	Create comparable term vectors for count maps.
+	 *
+	 *	@param	countMaps	The count maps.
+	 *
+	 *	@return				The term vector for each count map.  The
+	 *						terms are spelling IDs in the intern tables
+	 *						of the first count map, so all the term
+	 *						vectors may be compared with each other.
+	 */
+
+	public static TermVector[] toTermVectors( CountMap[] countMaps )
+	{
+		TermVector[] result	= new TermVector[ countMaps.length ];
+
+		for ( int i = 0 ; i < countMaps.length ; i++ )
+		{
+			result[ i ]	=
+				countMaps[ i ].toTermVector
+				(
+					countMaps[ 0 ].getSpellingIDs( countMaps[ i ] , true )
+				);
+		}
+
+		return result;
+	}
+
+	/**	Create a TreeMap count map.
+	 *
+	 *	@return		TreeMap with Spelling keys and Integer counts.
+	 */
+
+	public TreeMap toCountMap()
+	{
+		TreeMap result	= new TreeMap();
+
+		for ( int i = 0 ; i < size ; i++ )
+		{
+			result.put( getEntrySpelling( i ) , Integer.valueOf( counts[ i ] ) );
+		}
+
+		return result;
+	}
+
+	/**	Create a TreeMap work count map.
+	 *
+	 *	@return		TreeMap with Spelling keys and Integer work counts.
+	 */
+
+	public TreeMap toWorkCountMap()
+	{
+		TreeMap result	= new TreeMap();
+
+		for ( int i = 0 ; i < size ; i++ )
+		{
+			result.put
+			(
+				getEntrySpelling( i ) ,
+				Integer.valueOf( getEntryWorkCount( i ) )
+			);
+		}
+
+		return result;
+	}
+
+	/**	Create a TreeMap work ID map.
+	 *
+	 *	@return		TreeMap with Spelling keys and HashSets of
+	 *				Long work IDs as values.
+	 */
+
+	public TreeMap toWorkIDMap()
+	{
+		TreeMap result	= new TreeMap();
+
+		for ( int i = 0 ; i < size ; i++ )
+		{
+			result.put( getEntrySpelling( i ) , getEntryWorkIDs( i ) );
+		}
+
+		return result;
+	}
+
+	/**	Spelling and work intern tables. */
+
+	protected static class InternTables
+	{
+		/**	Maps interned spellings to spelling IDs. */
+
+		protected ConcurrentHashMap spellingIDMap	= new ConcurrentHashMap();
+
+		/**	Interned spellings indexed by spelling ID. */
+
+		protected volatile Spelling[] spellingsByID	= new Spelling[ 1024 ];
+
+		/**	Maps work IDs to interned work numbers. */
+
+		protected ConcurrentHashMap workNumberMap	= new ConcurrentHashMap();
+
+		/**	Work IDs indexed by work number. */
+
+		protected volatile Long[] workIDsByNumber	= new Long[ 256 ];
+
+		/**	Get interned ID for a spelling, creating it if necessary.
+		 *
+		 *	@param	spelling	The spelling.
+		 *
+		 *	@return				The spelling ID.
+		 */
+
+		protected int internSpelling( Spelling spelling )
+		{
+			Integer id	= (Integer)spellingIDMap.get( spelling );
+
+			if ( id != null ) return id.intValue();
+
+			synchronized( spellingIDMap )
+			{
+				id	= (Integer)spellingIDMap.get( spelling );
+
+				if ( id != null ) return id.intValue();
+
+				int newID			= spellingIDMap.size();
+				Spelling[] byID		= spellingsByID;
+
+				if ( newID >= byID.length )
+				{
+					byID	= Arrays.copyOf( byID , byID.length * 2 );
+				}
+								//	Copy the key so later changes to
+								//	the caller's spelling cannot
+								//	corrupt the table.
+
+				Spelling key	=
+					new Spelling( spelling.getString() , spelling.getCharset() );
+
+				byID[ newID ]	= key;
+				spellingsByID	= byID;
+
+				spellingIDMap.put( key , Integer.valueOf( newID ) );
+
+				return newID;
+			}
+		}
+
+		/**	Get interned ID for a spelling.
+		 *
+		 *	@param	spelling	The spelling.
+		 *
+		 *	@return				The spelling ID, or -1 if the spelling
+		 *						has not been interned.
+		 */
+
+		protected int getSpellingID( Spelling spelling )
+		{
+			if ( spelling == null ) return -1;
+
+			Integer id	= (Integer)spellingIDMap.get( spelling );
+
+			return ( id == null ) ? -1 : id.intValue();
+		}
+
+		/**	Get interned spelling for an ID.
+		 *
+		 *	@param	id		The spelling ID.
+		 *
+		 *	@return			The spelling.
+		 */
+
+		protected Spelling getSpelling( int id )
+		{
+			return spellingsByID[ id ];
+		}
+
+		/**	Get interned number for a work ID, creating it if necessary.
+		 *
+		 *	@param	workID		The work ID.
+		 *
+		 *	@return				The work number.
+		 */
+
+		protected int internWorkID( Long workID )
+		{
+			Integer number	= (Integer)workNumberMap.get( workID );
+
+			if ( number != null ) return number.intValue();
+
+			synchronized( workNumberMap )
+			{
+				number	= (Integer)workNumberMap.get( workID );
+
+				if ( number != null ) return number.intValue();
+
+				int newNumber		= workNumberMap.size();
+				Long[] byNumber		= workIDsByNumber;
+
+				if ( newNumber >= byNumber.length )
+				{
+					byNumber	= Arrays.copyOf( byNumber , byNumber.length * 2 );
+				}
+
+				byNumber[ newNumber ]	= workID;
+				workIDsByNumber			= byNumber;
+
+				workNumberMap.put( workID , Integer.valueOf( newNumber ) );
+
+				return newNumber;
+			}
+		}
+
+		/**	Get work ID for an interned work number.
+		 *
+		 *	@param	workNumber	The work number.
+		 *
+		 *	@return				The work ID.
+		 */
+
+		protected Long getWorkID( int workNumber )
+		{
+			return workIDsByNumber[ workNumber ];
+		}
+	}
+
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
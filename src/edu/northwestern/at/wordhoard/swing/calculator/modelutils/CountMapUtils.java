@@ -18,6 +18,12 @@ import edu.northwestern.at.wordhoard.model.wrappers.*;
  *	a count map may have word spellings as keys and scaled word frequencies
  *	(taking on values between 0.0 and 1.0) as Number values.
  *	</p>
+ *
+ *	<p>
+ *	Integer word counts are better held in a {@link CountMap}, which
+ *	avoids boxing each count.  Overloads of the most heavily used
+ *	methods accept CountMap arguments.
+ *	</p>
  */
 
 public class CountMapUtils
@@ -141,6 +147,50 @@ public class CountMapUtils
 		return result;
 	}
 
+	/**	Get summary counts from a compact count map.
+	 *
+	 *	@param	countMap	The count map.
+	 *
+	 *	@return			Three entry double array.
+	 *						result[ 0 ]	= sum of counts
+	 *						result[ 1 ]	= sum of squared counts
+	 *						result[ 2 ]	= unique count (size of map)
+	 */
+
+	public static double[] getSummaryCountsFromCountMap( CountMap countMap )
+	{
+		return countMap.getSummaryCounts();
+	}
+
+	/**	Get total count of words in a compact count map.
+	 *
+	 *	@param	countMap	The count map.
+	 *
+	 *	@return				Sum of counts as an integer.
+	 */
+
+	public static int getTotalWordCount( CountMap countMap )
+	{
+		return (int)countMap.getTotalCount();
+	}
+
+	/**	Get sum of cross products for counts in two compact count maps.
+	 *
+	 *	@param	countMap1	First count map.
+	 *	@param	countMap2	Second count map.
+	 *
+	 *	@return				sum of cross products as a double.
+	 */
+
+	public static double getSumOfCrossProducts
+	(
+		CountMap countMap1 ,
+		CountMap countMap2
+	)
+	{
+		return CountMap.getSumOfCrossProducts( countMap1 , countMap2 );
+	}
+
 	/**	Convert map values to integer 1 or 0.
 	 *
 	 *	@param	map		Count map to booleanize.
@@ -302,6 +352,28 @@ public class CountMapUtils
 		return combinedWorks;
 	}
 
+	/**	Combine the works from multiple compact count maps.
+	 *
+	 *	@param	countMaps	The count maps, with works recorded.
+	 *
+	 *	@return				Count map with the union of the works for each
+	 *						word.  The counts are zero.  Use
+	 *						{@link CountMap#getWorkCount} to get the
+	 *						number of unique works for a word.
+	 */
+
+	public static CountMap worksToWorkCounts( CountMap[] countMaps )
+	{
+		CountMap result	= new CountMap();
+
+		for ( int i = 0 ; i < countMaps.length ; i++ )
+		{
+			result.addWorks( countMaps[ i ] );
+		}
+
+		return result;
+	}
+
 	/**	Split string at tab character.
 	 *
 	 *	@param	s	The string to split into a key and a count.
@@ -778,6 +850,23 @@ public class CountMapUtils
 		return result;
 	}
 
+	/**	Get count of words which two compact count maps share.
+	 *
+	 *	@param	countMap1	First count map.
+	 *	@param	countMap2	Second count map.
+	 *
+	 *	@return				Count of words appearing in both maps.
+	 */
+
+	public static int getCountOfWordsInCommon
+	(
+		CountMap countMap1 ,
+		CountMap countMap2
+	)
+	{
+		return CountMap.getCountOfWordsInCommon( countMap1 , countMap2 );
+	}
+
 	/**	Get count for a specific word form from a count map.
 	 *
 	 *	@param	countMap	The word count map.
@@ -884,6 +884,11 @@ public class PhraseSetUtils
 			pm.commit();
 
 			result	= true;
+
+								//	Cached counts may include the
+								//	old phrases.
+
+			if ( phrases != null ) WordCounter.discardCachedCounts();
 		}
 		catch ( PersistenceException e )
 		{
@@ -1602,41 +1607,25 @@ public class PhraseSetUtils
 		return phraseCounts;
 	}
 
-	/**	Get word form counts in a set of phrase sets.
+	/**	Get compact word form counts in a set of phrase sets.
 	 *
 	 *	@param	phraseSets		The phrase sets.
 	 *	@param	wordForm		The word form to count.
-	 *	@param	getWorkCounts	if true, work counts are returned in the second
-	 *							result map (see below).  If false, hashsets of
-	 *							work IDs are returned in the second result map.
 	 *
-	 *	@return					Array of two maps.  The first map contains
-	 *							each word of then specified word form
-	 *							in the phrase sets as a key and
-	 *							the count of the appearance of the word
-	 *							in the phrase sets as a value.  The second map
-	 *							also has the word as the key.  If "getWorkCounts"
-	 *							is true, the values for each word are the counts
-	 *							of the works in which the word appears.  If
-	 *							"getWorkCounts" is false, the value is a hash set
-	 *							of the word IDs for each work in which the word
-	 *							appears.
+	 *	@return					Count map with each word of the specified
+	 *							word form in the phrase sets as a key, the
+	 *							count of the appearance of the word in the
+	 *							phrase sets as the count, and the works in
+	 *							which the word appears.
 	 */
 
-	public static Map[] getWordCounts
+	public static CountMap getWordCountMap
 	(
 		PhraseSet[] phraseSets ,
-		int wordForm ,
-		boolean getWorkCounts
+		int wordForm
 	)
 	{
-		TreeMap wordCounts	= new TreeMap();
-		TreeMap workCounts	= new TreeMap();
-
-		if ( phraseSets.length == 0 )
-		{
-			return new TreeMap[]{ wordCounts , workCounts };
-		}
+		if ( phraseSets.length == 0 ) return new CountMap();
 
 		String queryString	=
 			"select new edu.northwestern.at.wordhoard.swing.calculator.modelutils.CountResult" +
@@ -1664,8 +1653,15 @@ public class PhraseSetUtils
 			(
 				queryString , paramNames , paramValues , true
 			);
-								//	If we got results, put them in the
-								//	tree map.
+
+		CountMap result	=
+			new CountMap
+			(
+				( phraseSetWordCounts == null ) ?
+					0 : phraseSetWordCounts.size()
+			);
+								//	If we got results, add them to the
+								//	count map.
 
 		if ( phraseSetWordCounts != null )
 		{
@@ -1675,47 +1671,54 @@ public class PhraseSetUtils
 			{
 				CountResult countResult	= (CountResult)iterator.next();
 
-				Spelling wordText	= countResult.word.toInsensitive();
-				int newCount		= countResult.count;
-				Long workID			= countResult.work;
-
-								//	Increment word count.
-
-				if ( wordCounts.containsKey( wordText ) )
-				{
-					Integer count	= (Integer)wordCounts.get( wordText );
-
-					wordCounts.put
-					(
-						wordText ,
-						Integer.valueOf( newCount + count.intValue() )
-					);
-				}
-				else
-				{
-					wordCounts.put( wordText , Integer.valueOf( newCount ) );
-				}
-								//	Increment work list for this word.
-
-				if ( workCounts.containsKey( wordText ) )
-				{
-					HashSet workIDs	= (HashSet)workCounts.get( wordText );
-					workIDs.add( workID );
-				}
-				else
-				{
-					HashSet workIDs	= new HashSet();
-					workIDs.add( workID );
-					workCounts.put( wordText , workIDs );
-				}
+				result.add
+				(
+					countResult.word.toInsensitive() ,
+					countResult.count ,
+					countResult.work
+				);
 			}
 		}
-								//	Convert work lists to work counts for
-								//	each word. if requested.
 
-		if ( getWorkCounts ) CountMapUtils.worksToWorkCounts( workCounts );
+		return result;
+	}
 
-		return new TreeMap[]{ wordCounts , workCounts };
+	/**	Get word form counts in a set of phrase sets.
+	 *
+	 *	@param	phraseSets		The phrase sets.
+	 *	@param	wordForm		The word form to count.
+	 *	@param	getWorkCounts	if true, work counts are returned in the second
+	 *							result map (see below).  If false, hashsets of
+	 *							work IDs are returned in the second result map.
+	 *
+	 *	@return					Array of two maps.  The first map contains
+	 *							each word of then specified word form
+	 *							in the phrase sets as a key and
+	 *							the count of the appearance of the word
+	 *							in the phrase sets as a value.  The second map
+	 *							also has the word as the key.  If "getWorkCounts"
+	 *							is true, the values for each word are the counts
+	 *							of the works in which the word appears.  If
+	 *							"getWorkCounts" is false, the value is a hash set
+	 *							of the word IDs for each work in which the word
+	 *							appears.
+	 */
+
+	public static Map[] getWordCounts
+	(
+		PhraseSet[] phraseSets ,
+		int wordForm ,
+		boolean getWorkCounts
+	)
+	{
+		CountMap countMap	= getWordCountMap( phraseSets , wordForm );
+
+		return new TreeMap[]
+		{
+			countMap.toCountMap() ,
+			getWorkCounts ?
+				countMap.toWorkCountMap() : countMap.toWorkIDMap()
+		};
 	}
 
 	public static Map[] getWordCounts( PhraseSet[] phraseSets , int wordForm )
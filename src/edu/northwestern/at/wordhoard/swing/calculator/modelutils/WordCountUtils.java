@@ -311,6 +311,148 @@ public class WordCountUtils
 		);
 	}
 
+	/**	Get word count in each of a set of work parts.
+	 *
+	 *	@param	workParts		The work parts.
+	 *	@param	word			The word.
+	 *	@param	wordForm		The word form.
+	 *
+	 *	@return					Map with work part IDs as keys and counts
+	 *							of the word in each work part as values.
+	 *							Work parts in which the word does not
+	 *							appear are omitted.
+	 *
+	 *	<p>
+	 *	All the counts are retrieved with a single grouped query.
+	 *	</p>
+	 */
+
+	public static Map getWordFormCountsByWorkPart
+	(
+		WorkPart[] workParts ,
+		Spelling word ,
+		int wordForm
+	)
+	{
+		HashMap result	= new HashMap();
+
+		if ( ( workParts == null ) || ( workParts.length == 0 ) )
+		{
+			return result;
+		}
+								//	See getWordFormCount( WorkPart[] ,
+								//	Spelling[] , int ) for why we
+								//	match the word string only.
+
+		java.util.List wordCounts	=
+			PersistenceManager.doQuery
+			(
+				"select wc.workPart.id, sum(wc.wordCount) " +
+					"from WordCount wc where " +
+					"wc.word.string = :word and " +
+					"wc.wordForm = :wordForm and " +
+					"wc.workPart in (:workParts) " +
+					"group by wc.workPart.id" ,
+				new String[]
+				{
+					"word" ,
+					"wordForm" ,
+					"workParts"
+				} ,
+				new Object[]
+				{
+					CharsetUtils.translateToInsensitive( word.getString() ) ,
+					Integer.valueOf( wordForm ) ,
+					Arrays.asList( workParts )
+				} ,
+				true
+			);
+
+		addGroupedCounts( wordCounts , result );
+
+		return result;
+	}
+
+	/**	Get total word form count in each of a set of work parts.
+	 *
+	 *	@param	workParts	The work parts.
+	 *	@param	wordForm	The word form.
+	 *
+	 *	@return				Map with work part IDs as keys and the
+	 *						count of the word form in each work part
+	 *						as values.
+	 *
+	 *	<p>
+	 *	All the counts are retrieved with a single grouped query.
+	 *	</p>
+	 */
+
+	public static Map getWordFormCountsByWorkPart
+	(
+		WorkPart[] workParts ,
+		int wordForm
+	)
+	{
+		HashMap result	= new HashMap();
+
+		if ( ( workParts == null ) || ( workParts.length == 0 ) )
+		{
+			return result;
+		}
+
+		java.util.List totalCounts	=
+			PersistenceManager.doQuery
+			(
+				"select twfc.workPart.id, sum(twfc.wordFormCount) " +
+					"from TotalWordFormCount twfc where " +
+					"twfc.workPart in (:workParts) and " +
+					"twfc.wordForm = :wordForm " +
+					"group by twfc.workPart.id" ,
+				new String[]
+				{
+					"workParts" ,
+					"wordForm"
+				} ,
+				new Object[]
+				{
+					Arrays.asList( workParts ) ,
+					Integer.valueOf( wordForm )
+				} ,
+				true
+			);
+
+		addGroupedCounts( totalCounts , result );
+
+		return result;
+	}
+
+	/**	Add grouped query results to a count map.
+	 *
+	 *	@param	rows	Query result rows, each holding a key
+	 *					and a count.  May be null.
+	 *	@param	counts	Map to receive each key and its count as
+	 *					an Integer.
+	 */
+
+	public static void addGroupedCounts( java.util.List rows , Map counts )
+	{
+		if ( rows == null ) return;
+
+		for ( Iterator iterator = rows.iterator() ; iterator.hasNext() ; )
+		{
+			Object[] row	= (Object[])iterator.next();
+
+			if ( row[ 1 ] != null )
+			{
+				counts.put
+				(
+					row[ 0 ] ,
+					Integer.valueOf( ((Number)row[ 1 ]).intValue() )
+				);
+			}
+		}
+	}
+
 	/**	Get word counts in a single work part.
 	 *
 	 *	@param	workPart	The work part.
@@ -361,41 +503,25 @@ public class WordCountUtils
 		return wordCounts;
 	}
 
-	/**	Get word form counts in a set of work parts.
+	/**	Get compact word form counts in a set of work parts.
 	 *
 	 *	@param	workParts		The work parts.
 	 *	@param	wordForm		The word form to count.
-	 *	@param	getWorkCounts	if true, work counts are returned in the second
-	 *							result map (see below).  If false, hashsets of
-	 *							work IDs are returned in the second result map.
 	 *
-	 *	@return					Array of two maps.  The first map contains
-	 *							each word of the specified word form
-	 *							in the work parts as a key and
-	 *							the count of the appearance of the word
-	 *							in the work parts as a value.  The second map
-	 *							also has the word as the key.  If "getWorkCounts"
-	 *							is true, the values for each word are the counts
-	 *							of the works in which the word appears.  If
-	 *							"getWorkCounts" is false, the value is a hash set
-	 *							of the word IDs for each work in which the word
-	 *							appears.
+	 *	@return					Count map with each word of the specified
+	 *							word form in the work parts as a key, the
+	 *							count of the appearance of the word in the
+	 *							work parts as the count, and the works in
+	 *							which the word appears.
 	 */
 
-	public static Map[] getWordCounts
+	public static CountMap getWordCountMap
 	(
 		WorkPart[] workParts ,
-		int wordForm ,
-		boolean getWorkCounts
+		int wordForm
 	)
 	{
-		TreeMap wordCounts	= new TreeMap();
-		TreeMap workCounts	= new TreeMap();
-
-		if ( workParts.length == 0 )
-		{
-			return new TreeMap[]{ wordCounts , workCounts };
-		}
+		if ( workParts.length == 0 ) return new CountMap();
 
 		String queryString	=
 			"select new edu.northwestern.at.wordhoard.swing.calculator.modelutils.CountResult" +
@@ -423,8 +549,15 @@ public class WordCountUtils
 			(
 				queryString , paramNames , paramValues , true
 			);
-								//	If we got results, put them in the
-								//	tree map.
+
+		CountMap result	=
+			new CountMap
+			(
+				( workPartWordCounts == null ) ?
+					0 : workPartWordCounts.size()
+			);
+								//	If we got results, add them to the
+								//	count map.
 
 		if ( workPartWordCounts != null )
 		{
@@ -434,62 +567,54 @@ public class WordCountUtils
 			{
 				CountResult wordCount	= (CountResult)iterator.next();
 
-				Spelling wordText	= wordCount.word.toInsensitive();
-				int newCount		= wordCount.count;
-				Long workID			= wordCount.work;
-
-								//	Increment word count.
-
-				if ( wordCounts.containsKey( wordText ) )
-				{
-					Integer count	= (Integer)wordCounts.get( wordText );
-
-					wordCounts.put
-					(
-						wordText ,
-						Integer.valueOf( newCount + count.intValue() )
-					);
-				}
-				else
-				{
-					wordCounts.put( wordText , Integer.valueOf( newCount ) );
-				}
-								//	Add work to hash set of works for
-								//	this word.
-
-				if ( workCounts.containsKey( wordText ) )
-				{
-					HashSet workHashSet	=
-						(HashSet)workCounts.get( wordText );
-
-					workHashSet.add( workID );
-				}
-				else
-				{
-					HashSet workHashSet	= new HashSet();
-					workHashSet.add( workID );
-
-					workCounts.put( wordText , workHashSet );
-				}
+				result.add
+				(
+					wordCount.word.toInsensitive() ,
+					wordCount.count ,
+					wordCount.work
+				);
 			}
-								//	Convert work hash sets to counts.
-
-			if ( getWorkCounts )
-			{
-				iterator	= workCounts.keySet().iterator();
+		}
 
-				while ( iterator.hasNext() )
-				{
-					Object wordText		= iterator.next();
+		return result;
+	}
 
-					HashSet workHashSet	= (HashSet)workCounts.get( wordText );
+	/**	Get word form counts in a set of work parts.
+	 *
+	 *	@param	workParts		The work parts.
+	 *	@param	wordForm		The word form to count.
+	 *	@param	getWorkCounts	if true, work counts are returned in the second
+	 *							result map (see below).  If false, hashsets of
+	 *							work IDs are returned in the second result map.
+	 *
+	 *	@return					Array of two maps.  The first map contains
+	 *							each word of the specified word form
+	 *							in the work parts as a key and
+	 *							the count of the appearance of the word
+	 *							in the work parts as a value.  The second map
+	 *							also has the word as the key.  If "getWorkCounts"
+	 *							is true, the values for each word are the counts
+	 *							of the works in which the word appears.  If
+	 *							"getWorkCounts" is false, the value is a hash set
+	 *							of the word IDs for each work in which the word
+	 *							appears.
+	 */
 
-					workCounts.put( wordText , Integer.valueOf( workHashSet.size() ) );
-				}
-			}
-		}
+	public static Map[] getWordCounts
+	(
+		WorkPart[] workParts ,
+		int wordForm ,
+		boolean getWorkCounts
+	)
+	{
+		CountMap countMap	= getWordCountMap( workParts , wordForm );
 
-		return new TreeMap[]{ wordCounts , workCounts };
+		return new TreeMap[]
+		{
+			countMap.toCountMap() ,
+			getWorkCounts ?
+				countMap.toWorkCountMap() : countMap.toWorkIDMap()
+		};
 	}
 
 	/**	Get word form counts in a set of work parts.
@@ -512,13 +637,13 @@ public class WordCountUtils
 		return getWordCounts( workParts , wordForm , true );
 	}
 
-	/**	Get word form counts in two arrays of work parts.
+	/**	Get compact word form counts in two arrays of work parts.
 	 *
 	 *	@param	workParts1		The first array of work parts.
 	 *	@param	workParts2		The second array of work parts.
 	 *	@param	wordForm		The word form to count.
 	 *
-	 *	@return					Array of three maps.
+	 *	@return					Array of three count maps.
 	 *							<p>
 	 *							The first map contains each word of the
 	 *							specified word form in the first set of
@@ -534,14 +659,15 @@ public class WordCountUtils
 	 *							of work parts as a value.
 	 *							</p>
 	 *							<p>
-	 *							The third map also has the word as the key but
-	 *							provides the number of works (NOT work parts)
-	 *							in which the word appears as a value in either
-	 *							of the two sets of work parts.
+	 *							The third map has zero counts but records
+	 *							the works (NOT work parts) in which each
+	 *							word appears in either of the two sets of
+	 *							work parts.  Use {@link CountMap#getWorkCount}
+	 *							to get the number of works.
 	 *							</p>
 	 */
 
-	public static Map[] getWordCounts
+	public static CountMap[] getWordCountMaps
 	(
 		WorkPart[] workParts1 ,
 		WorkPart[] workParts2 ,
@@ -619,9 +745,9 @@ public class WordCountUtils
 				Arrays.asList( workParts )
 			};
 
-		HashMap wordCounts1	= new HashMap( 20000 );
-		HashMap wordCounts2	= new HashMap( 20000 );
-		HashMap workCounts	= new HashMap( 20000 );
+		CountMap wordCounts1	= new CountMap( 20000 );
+		CountMap wordCounts2	= new CountMap( 20000 );
+		CountMap workCounts		= new CountMap( 20000 );
 
 								//	Get the word counts for the
 								//	selected work parts.
@@ -631,8 +757,8 @@ public class WordCountUtils
 			(
 				queryString , paramNames , paramValues , false
 			);
-								//	If we got results, put them in the
-								//	result tree map.
+								//	If we got results, add them to the
+								//	count maps.
 
 		if ( workWordCounts != null )
 		{
@@ -654,74 +780,70 @@ public class WordCountUtils
 
 				if ( partsList1.containsKey( workPartID ) )
 				{
-					if ( wordCounts1.containsKey( wordText ) )
-					{
-						Integer count	= (Integer)wordCounts1.get( wordText );
-
-						wordCounts1.put
-						(
-							wordText ,
-							Integer.valueOf( newCount + count.intValue() )
-						);
-					}
-					else
-					{
-						wordCounts1.put( wordText , Integer.valueOf( newCount ) );
-					}
+					wordCounts1.add( wordText , newCount );
 				}
 								//	Increment word count if this work
 								//	is in the second work set.
 
 				if ( partsList2.containsKey( workPartID ) )
 				{
-					if ( wordCounts2.containsKey( wordText ) )
-					{
-						Integer count	= (Integer)wordCounts2.get( wordText );
-
-						wordCounts2.put
-						(
-							wordText ,
-							Integer.valueOf( newCount + count.intValue() )
-						);
-					}
-					else
-					{
-						wordCounts2.put( wordText , Integer.valueOf( newCount ) );
-					}
+					wordCounts2.add( wordText , newCount );
 				}
-								//	Add work to hash set of works for
+								//	Add work to set of works for
 								//	this word.
 
-				if ( workCounts.containsKey( wordText ) )
-				{
-					HashSet workHashSet	=
-						(HashSet)workCounts.get( wordText );
-
-					workHashSet.add( workID );
-				}
-				else
-				{
-					HashSet workHashSet	= new HashSet();
-					workHashSet.add( workID );
-
-					workCounts.put( wordText , workHashSet );
-				}
+				workCounts.addWork( wordText , workID );
 			}
-								//	Convert work hash sets to counts.
-
-			iterator	= workCounts.keySet().iterator();
+		}
 
-			while ( iterator.hasNext() )
-			{
-				Object wordText		= iterator.next();
+		return new CountMap[]{ wordCounts1 , wordCounts2 , workCounts };
+	}
 
-				HashSet workHashSet	= (HashSet)workCounts.get( wordText );
+	/**	Get word form counts in two arrays of work parts.
+	 *
+	 *	@param	workParts1		The first array of work parts.
+	 *	@param	workParts2		The second array of work parts.
+	 *	@param	wordForm		The word form to count.
+	 *
+	 *	@return					Array of three maps.
+	 *							<p>
+	 *							The first map contains each word of the
+	 *							specified word form in the first set of
+	 *							work parts as a key and the count of the
+	 *							appearance of the word in the first set
+	 *							of work parts as a value.
+	 *							</p>
+	 *							<p>
+	 *							The second map contains each word of the
+	 *							specified word form in the second set of
+	 *							work parts as a key and the count of the
+	 *							appearance of the word in the second set
+	 *							of work parts as a value.
+	 *							</p>
+	 *							<p>
+	 *							The third map also has the word as the key but
+	 *							provides the number of works (NOT work parts)
+	 *							in which the word appears as a value in either
+	 *							of the two sets of work parts.
+	 *							</p>
+	 */
 
-				workCounts.put( wordText , Integer.valueOf( workHashSet.size() ) );
-			}
-		}
+	public static Map[] getWordCounts
+	(
+		WorkPart[] workParts1 ,
+		WorkPart[] workParts2 ,
+		int wordForm
+	)
+	{
+		CountMap[] countMaps	=
+			getWordCountMaps( workParts1 , workParts2 , wordForm );
 
-		return new Map[]{ wordCounts1 , wordCounts2 , workCounts };
+		return new Map[]
+		{
+			countMaps[ 0 ].toCountMap() ,
+			countMaps[ 1 ].toCountMap() ,
+			countMaps[ 2 ].toWorkCountMap()
+		};
 	}
 
 	/**	Don't allow instantiation but do allow overrides.
@@ -59,6 +59,29 @@ public class WordCounter
 
 	protected int objectType	= CORPUS;
 
+	/**	Maximum number of cached word form work counts.
+	 */
+
+	protected static final int MAXCACHEDWORKCOUNTS	= 50;
+
+	/**	Cached word form work counts.
+	 *
+	 *	<p>
+	 *	Keys are lists of the word counter, word, word form and
+	 *	phrase flag.  Values are WordFormWorkCounts objects.
+	 *	The least recently used entry is dropped when the cache is full.
+	 *	</p>
+	 */
+
+	protected static Map workCountsCache	=
+		new LinkedHashMap( 16 , 0.75f , true )
+		{
+			protected boolean removeEldestEntry( Map.Entry eldest )
+			{
+				return size() > MAXCACHEDWORKCOUNTS;
+			}
+		};
+
 	/**	Create a word form counter for a CanCountWords object.
 	 *
 	 *	@param	canCountWords		The object implementing CanCountWords.
@@ -364,6 +387,36 @@ public class WordCounter
 		}
 	}
 
+	/**	Get compact word counts of a specific word form type.
+	 *
+	 *	@param		wordForm	The word form as specified in {@link WordForms}.
+	 *
+	 *	@return					Count map containing each word of the
+	 *							specified word form as a key, the count of
+	 *							the appearance of the word as the count,
+	 *							and the works (NOT work parts) in which
+	 *							the word appears.
+	 */
+
+	public CountMap getWordCountMap( int wordForm )
+	{
+		if ( isWordSet() )
+		{
+	        return WordSetUtils.getWordCountMap(
+	        	new WordSet[]{ (WordSet)object } , wordForm );
+		}
+		else if ( isPhraseSet() )
+		{
+	        return PhraseSetUtils.getWordCountMap(
+	        	new PhraseSet[]{ (PhraseSet)object } , wordForm );
+		}
+		else
+		{
+	        return WordCountUtils.getWordCountMap(
+	        	getWorkParts() , wordForm );
+		}
+	}
+
 	/**	Get words and their counts of a specific word form type.
 	 *
 	 *	@param		wordForm		The word form as specified in {@link WordForms}.
@@ -513,35 +566,75 @@ public class WordCounter
 		WordCounter otherCounter ,
 		int wordForm
 	)
+	{
+		CountMap[] countMaps	= getWordCountMaps( otherCounter , wordForm );
+
+		return new Map[]
+		{
+			countMaps[ 0 ].toCountMap() ,
+			countMaps[ 1 ].toCountMap() ,
+			countMaps[ 2 ].toWorkCountMap()
+		};
+    }
+
+	/**	Get compact word counts for two WordCounter objects.
+	 *
+	 *	@param  otherCounter	The other word counter.
+	 *	@param	wordForm		The word form as specified in {@link WordForms}.
+	 *
+	 *	@return					Array of three count maps.
+	 *							<p>
+	 *							The first map contains the counts of each
+	 *							word of the specified word form in this
+	 *							counter's texts.
+	 *							</p>
+	 *							<p>
+	 *							The second map contains the counts of each
+	 *							word of the specified word form in the
+	 *							other counter's texts.
+	 *							</p>
+	 *							<p>
+	 *							The third map records the works (NOT work
+	 *							parts) in which each word appears in either
+	 *							of the two counters' texts.  Use
+	 *							{@link CountMap#getWorkCount} to get the
+	 *							number of works.
+	 *							</p>
+	 */
+
+	public CountMap[] getWordCountMaps
+	(
+		WordCounter otherCounter ,
+		int wordForm
+	)
 	{
 		if	(	isWordSet() || otherCounter.isWordSet() ||
 			    isPhraseSet() || otherCounter.isPhraseSet() )
 		{
-			Map[] thisCounts	=
-				getWordsAndCounts( wordForm , false );
+			CountMap thisCounts		= getWordCountMap( wordForm );
 
-			Map[] otherCounts	=
-				otherCounter.getWordsAndCounts( wordForm , false );
+			CountMap otherCounts	=
+				otherCounter.getWordCountMap( wordForm );
 
-			Map workCountsMap	=
+			CountMap workCountsMap	=
 				CountMapUtils.worksToWorkCounts
 				(
-					new Map[]
+					new CountMap[]
 					{
-						thisCounts[ 1 ] ,
-						otherCounts[ 1 ]
+						thisCounts ,
+						otherCounts
 					}
 				);
 
-			return new Map[]
+			return new CountMap[]
 			{
-				thisCounts[ 0 ] , otherCounts[ 0 ] , workCountsMap
+				thisCounts , otherCounts , workCountsMap
 			};
 		}
 		else
 		{
 			return
-				WordCountUtils.getWordCounts
+				WordCountUtils.getWordCountMaps
 				(
 					this.getWorkParts() ,
 					otherCounter.getWorkParts() ,
@@ -639,6 +732,11 @@ public class WordCounter
 	 *
 	 *							The third has the work count in the year
 	 * 							as a value.
+	 *
+	 *	<p>
+	 *	The counts come from {@link #getWordFormWorkCounts}, so they
+	 *	are fetched with grouped queries and cached.
+	 *	</p>
 	 */
 
 	public Map[] getWordFormCountByYear
@@ -648,239 +746,233 @@ public class WordCounter
 		boolean usePhrases
 	)
 	{
-								//	Get work parts in this word counter.
+		return
+			getWordFormWorkCounts
+			(
+				word ,
+				wordForm ,
+				usePhrases
+			).getCountsByYear();
+	}
 
-		WorkPart[] workParts	= getWorkParts();
+	/**	Get word form counts and total counts in each work part.
+	 *
+	 *  @param	word			The word form whose count is desired.
+	 *	@param	wordForm		The type of word form as specified
+	 *							in {@link WordForms}.
+	 *	@param	usePhrases		Analyze phrase counts instead of word counts
+	 *							if the current object allows this.
+	 *
+	 *	@return					The word form work counts.
+	 *
+	 *	<p>
+	 *	For word sets and phrase sets there is one entry for each work.
+	 *	Otherwise there is one entry for each distinct work part.
+	 *	The word counts and the total counts are each fetched with
+	 *	a single grouped query.  The result is cached for the word
+	 *	counter, word, and word form, so analyses of the same word
+	 *	share the counts.
+	 *	</p>
+	 */
 
-								//	Track # of works in each year.
+	public WordFormWorkCounts getWordFormWorkCounts
+	(
+		Spelling word ,
+		int wordForm ,
+		boolean usePhrases
+	)
+	{
+		usePhrases	= usePhrases && isPhraseSet();
+
+		java.util.List key	=
+			Arrays.asList
+			(
+				new Object[]
+				{
+					this ,
+					word ,
+					Integer.valueOf( wordForm ) ,
+					Boolean.valueOf( usePhrases )
+				}
+			);
 
-		Map yearWorksMap		= new TreeMap();
+		WordFormWorkCounts result;
 
-								//	Compute combined counts for selected
-								//	word in all work parts in each year.
+		synchronized( workCountsCache )
+		{
+			result	= (WordFormWorkCounts)workCountsCache.get( key );
+		}
 
-		Map yearWordMap			= new TreeMap();
+		if ( result == null )
+		{
+			result	= createWordFormWorkCounts( word , wordForm , usePhrases );
 
-								//	Compute combined counts for all
-								//	words in all work parts in each year.
+			synchronized( workCountsCache )
+			{
+				workCountsCache.put( key , result );
+			}
+		}
 
-		Map yearTotalWordMap	= new TreeMap();
+		return result;
+	}
 
-								//	Holds works done when a word set is
-								//	being analyzed.
+	/**	Create word form counts and total counts in each work part.
+	 *
+	 *  @param	word			The word form whose count is desired.
+	 *	@param	wordForm		The type of word form as specified
+	 *							in {@link WordForms}.
+	 *	@param	usePhrases		Analyze phrase counts instead of word counts.
+	 *							Only valid for phrase sets.
+	 *
+	 *	@return					The word form work counts.
+	 */
 
-		HashSet worksDone		= new HashSet();
+	protected WordFormWorkCounts createWordFormWorkCounts
+	(
+		Spelling word ,
+		int wordForm ,
+		boolean usePhrases
+	)
+	{
+		WorkPart[] workParts	= getWorkParts();
 
-								//	Compute total word count for each
-								//	year.
+		if ( workParts == null ) workParts	= new WorkPart[ 0 ];
 
-		int missingPubDates	= 0;
+		int[] wordCounts;
+		int[] totalCounts;
 
-		for ( int i = 0 ; i < workParts.length ; i++ )
+		if ( isWordSet() || isPhraseSet() )
 		{
-								//	Get next work part.
+								//	Word set counts are kept by work,
+								//	so find the distinct works.
 
-			WorkPart workPart	= workParts[ i ];
+			ArrayList worksList	= new ArrayList();
+			HashSet workIds		= new HashSet();
+
+			for ( int i = 0 ; i < workParts.length ; i++ )
+			{
+				Work work	= workParts[ i ].getWork();
 
-								//	Get work for work part.
+				if ( workIds.add( work.getId() ) ) worksList.add( work );
+			}
 
-			Work work			= workPart.getWork();
+			workParts	= (WorkPart[])worksList.toArray( new Work[]{} );
 
-								//	Get publication year for this work.
-								//	If none, add to count of works
-								//	without publication dates.
+			WordSet wordSet	= (WordSet)object;
 
-			if ( work.getPubDate() == null )
-			{
-				missingPubDates++;
-				continue;
-			}
+			Map totalCountsMap	=
+				WordSetUtils.getWordFormCountsByWork( wordSet , wordForm );
 
-			Integer year		= work.getPubDate().getStartYear();
+			Map wordCountsMap	=
+				usePhrases ?
+					null :
+					WordSetUtils.getWordFormCountsByWork(
+						wordSet , word , wordForm );
 
-			int wordCount		= 0;
-			int totalWordCount	= 0;
-            boolean updateCount	= true;
+			double meanPhraseLength	=
+				usePhrases ?
+					((PhraseSet)object).getMeanPhraseLength() : 0.0D;
 
-			if ( isPhraseSet() && usePhrases )
+			wordCounts	= new int[ workParts.length ];
+			totalCounts	= new int[ workParts.length ];
+
+			for ( int i = 0 ; i < workParts.length ; i++ )
 			{
-				if ( !worksDone.contains( work.getId() ) )
-				{
-					PhraseSet phraseSet	= (PhraseSet)object;
+				String workTag	= workParts[ i ].getTag();
 
+				if ( usePhrases )
+				{
 								//	Get the count for the specified
-								//	phrase in this work part.
+								//	phrase in this work.
 
-					wordCount	=
+					wordCounts[ i ]	=
 						PhraseSetUtils.getWordFormPhraseCount
 						(
-							phraseSet ,
+							(PhraseSet)object ,
 							word ,
 							wordForm ,
-							work
+							(Work)workParts[ i ]
 						);
-
 								//	Get total number of phrases for
-								//	this work part in this year.
-								//	This is the total number of words + 1
-								//	minus the phrase length.
+								//	this work.  This is the total
+								//	number of words + 1 minus the
+								//	phrase length.
 
-					totalWordCount		=
-						(int)(WordSetUtils.getWordFormCount
-						(
-							phraseSet ,
-							wordForm ,
-							work
-						) -
-						phraseSet.getMeanPhraseLength() + 1 );
-
-								//	Add work to list of works done.
-
-					worksDone.add( work.getId() );
+					totalCounts[ i ]	=
+						(int)( getCount( totalCountsMap , workTag ) -
+							meanPhraseLength + 1 );
 				}
 				else
 				{
-					updateCount	= false;
+					wordCounts[ i ]		= getCount( wordCountsMap , workTag );
+					totalCounts[ i ]	= getCount( totalCountsMap , workTag );
 				}
 			}
-			else if ( isWordSet() || isPhraseSet() )
-			{
-				if ( !worksDone.contains( work.getId() ) )
-				{
-								//	Get the word count for the specified
-								//	word in this work part.
+		}
+		else
+		{
+								//	Drop work parts contained in other
+								//	work parts so words are not
+								//	counted twice.
 
-					wordCount	=
-						WordSetUtils.getWordFormCount
-						(
-							(WordSet)object ,
-							word ,
-							wordForm ,
-							work
-						);
+			workParts	= WorkUtils.getUniqueWorkParts( workParts );
 
-								//	Get total number of words for
-								//	this work part in this year.
+			Map wordCountsMap	=
+				WordCountUtils.getWordFormCountsByWorkPart(
+					workParts , word , wordForm );
 
-					totalWordCount		=
-						WordSetUtils.getWordFormCount
-						(
-							(WordSet)object ,
-							wordForm ,
-							work
-						);
-								//	Add work to list of works done.
+			Map totalCountsMap	=
+				WordCountUtils.getWordFormCountsByWorkPart(
+					workParts , wordForm );
 
-					worksDone.add( work.getId() );
-				}
-				else
-				{
-					updateCount	= false;
-				}
-			}
-			else
-			{
-								//	Get the word count for the specified
-								//	word in this work part.
-				wordCount	=
-					WordCountUtils.getWordFormCount
-					(
-						workPart ,
-						word ,
-						wordForm
-					);
-								//	Get total number of words for
-								//	this work part in this year.
-
-				totalWordCount		=
-					WordCountUtils.getWordFormCount
-					(
-						workPart ,
-						wordForm
-					);
-			}
-								//	If there is no word count for this
-								//	year yet, just add the one from this
-								//	work.
+			wordCounts	= new int[ workParts.length ];
+			totalCounts	= new int[ workParts.length ];
 
-			if ( updateCount )
+			for ( int i = 0 ; i < workParts.length ; i++ )
 			{
-				if ( !yearWordMap.containsKey( year ) )
-				{
-					yearWordMap.put( year , Integer.valueOf( wordCount ) );
-
-					yearTotalWordMap.put(
-						year , Integer.valueOf( totalWordCount ) );
-
-								//	Add this work to the set of works
-								//	for this year.
+				Long workPartId		= workParts[ i ].getId();
 
-					HashSet workHashSet	= new HashSet();
-
-					workHashSet.add( work.getId() );
+				wordCounts[ i ]		= getCount( wordCountsMap , workPartId );
+				totalCounts[ i ]	= getCount( totalCountsMap , workPartId );
+			}
+		}
 
-					yearWorksMap.put( year , workHashSet );
-				}
-				else
-				{
-								//	If the word map contains the year,
-								//	add the count from this work to
-								//	the existing count.
-
-					Integer currentCount	=
-						(Integer)yearWordMap.get( year );
-
-					yearWordMap.put
-            		(
-            			year ,
-            			Integer.valueOf( currentCount.intValue() + wordCount )
-            		);
-
-					Integer currentTotalCount	=
-						(Integer)yearTotalWordMap.get( year );
-
-					yearTotalWordMap.put
-	            	(
-    	        		year ,
-        	    		Integer.valueOf(
-        	    			currentTotalCount.intValue() + totalWordCount )
-            		);
-								//	Add work to hash set of works for this
-								//	year.  We will use this to get the
-								//	number of works in this year later on.
-
-					if ( yearWorksMap.containsKey( year ) )
-					{
-						HashSet workHashSet	=
-							(HashSet)yearWorksMap.get( year );
+		return new WordFormWorkCounts( workParts , wordCounts , totalCounts );
+	}
 
-						workHashSet.add( work.getId() );
-					}
-					else
-					{
-						HashSet workHashSet	= new HashSet();
+	/**	Get a count from a map.
+	 *
+	 *	@param	counts	Map with Integer counts as values.
+	 *	@param	key		The key.
+	 *
+	 *	@return			The count for the key, or 0 if none.
+	 */
 
-						workHashSet.add( work.getId() );
+	protected static int getCount( Map counts , Object key )
+	{
+		Integer count	= (Integer)counts.get( key );
 
-						yearWorksMap.put( year , workHashSet );
-					}
-				}
-			}
-		}
-								//	Convert work hash sets to work counts.
+		return ( count == null ) ? 0 : count.intValue();
+	}
 
-		Iterator iterator	= yearWorksMap.keySet().iterator();
+	/**	Discard all cached word form work counts.
+	 *
+	 *	<p>
+	 *	Call this when the words in a word set or phrase set change.
+	 *	Also starts new {@link CountMap} intern tables.
+	 *	</p>
+	 */
 
-		while ( iterator.hasNext() )
+	public static void discardCachedCounts()
+	{
+		synchronized( workCountsCache )
 		{
-			Integer year		= (Integer)iterator.next();
-
-			HashSet workHashSet	= (HashSet)yearWorksMap.get( year );
-
-			yearWorksMap.put( year , Integer.valueOf( workHashSet.size() ) );
+			workCountsCache.clear();
 		}
+								//	Start new spelling and work intern
+								//	tables so the old ones can be freed.
 
-		return new Map[]{ yearWordMap , yearTotalWordMap , yearWorksMap };
+		CountMap.clearInternTables();
 	}
 
 	/**	Get all available works, work sets, and corpora as WordCounter objects.
@@ -0,0 +1,247 @@
+package edu.northwestern.at.wordhoard.swing.calculator.modelutils;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+
+import edu.northwestern.at.wordhoard.model.*;
+
+/**	Counts of one word form in each work part of a word counter.
+ *
+ *	<p>
+ *	Holds the count of a word form and the total count of all word
+ *	forms of the same type for each work part (or, for word and phrase
+ *	sets, each work) of a {@link WordCounter}.  The counts are fetched
+ *	by {@link WordCounter#getWordFormWorkCounts} with one grouped query
+ *	per count type instead of one query per work part.
+ *	</p>
+ *
+ *	<p>
+ *	A WordFormWorkCounts object is not modified after it is created,
+ *	so it may be cached and shared.
+ *	</p>
+ */
+
+public class WordFormWorkCounts
+{
+	/**	The work parts. */
+
+	protected WorkPart[] workParts;
+
+	/**	The word form count in each work part. */
+
+	protected int[] wordCounts;
+
+	/**	The total word form count in each work part. */
+
+	protected int[] totalCounts;
+
+	/**	The word form count in all work parts. */
+
+	protected int wordCount;
+
+	/**	The total word form count in all work parts. */
+
+	protected int totalCount;
+
+	/**	Create word form work counts.
+	 *
+	 *	@param	workParts		The work parts.
+	 *	@param	wordCounts		The word form count in each work part.
+	 *	@param	totalCounts		The total word form count in each
+	 *							work part.
+	 */
+
+	public WordFormWorkCounts
+	(
+		WorkPart[] workParts ,
+		int[] wordCounts ,
+		int[] totalCounts
+	)
+	{
+		this.workParts		= workParts;
+		this.wordCounts		= wordCounts;
+		this.totalCounts	= totalCounts;
+
+		for ( int i = 0 ; i < workParts.length ; i++ )
+		{
+			wordCount	+= wordCounts[ i ];
+			totalCount	+= totalCounts[ i ];
+		}
+	}
+
+	/**	Get the number of work parts.
+	 *
+	 *	@return		The number of work parts.
+	 */
+
+	public int getWorkPartCount()
+	{
+		return workParts.length;
+	}
+
+	/**	Get a work part.
+	 *
+	 *	@param	i	The work part index.
+	 *
+	 *	@return		The work part.
+	 */
+
+	public WorkPart getWorkPart( int i )
+	{
+		return workParts[ i ];
+	}
+
+	/**	Get the word form count in a work part.
+	 *
+	 *	@param	i	The work part index.
+	 *
+	 *	@return		The word form count.
+	 */
+
+	public int getWordCount( int i )
+	{
+		return wordCounts[ i ];
+	}
+
+	/**	Get the total word form count in a work part.
+	 *
+	 *	@param	i	The work part index.
+	 *
+	 *	@return		The total word form count.
+	 */
+
+	public int getTotalCount( int i )
+	{
+		return totalCounts[ i ];
+	}
+
+	/**	Get the word form count in all work parts.
+	 *
+	 *	@return		The word form count.
+	 */
+
+	public int getWordCount()
+	{
+		return wordCount;
+	}
+
+	/**	Get the total word form count in all work parts.
+	 *
+	 *	@return		The total word form count.
+	 */
+
+	public int getTotalCount()
+	{
+		return totalCount;
+	}
+
+	/**	Get the counts by publication year.
+	 *
+	 *	@return		Three maps, each with the year as a key.
+	 *
+	 *				The first has the word count in the year
+	 *				as a value.
+	 *
+	 *				The second has the total word count in
+	 *				the year as a value.
+	 *
+	 *				The third has the work count in the year
+	 * 				as a value.
+	 *
+	 *	<p>
+	 *	Work parts whose works have no publication date are skipped.
+	 *	New maps are returned on each call.
+	 *	</p>
+	 */
+
+	public Map[] getCountsByYear()
+	{
+		TreeMap yearWordMap			= new TreeMap();
+		TreeMap yearTotalWordMap	= new TreeMap();
+		TreeMap yearWorksMap		= new TreeMap();
+
+		for ( int i = 0 ; i < workParts.length ; i++ )
+		{
+			Work work	= workParts[ i ].getWork();
+
+			if ( work.getPubDate() == null ) continue;
+
+			Integer year	= work.getPubDate().getStartYear();
+
+			add( yearWordMap , year , wordCounts[ i ] );
+			add( yearTotalWordMap , year , totalCounts[ i ] );
+
+								//	Collect the works in each year.
+								//	We convert these to counts below.
+
+			HashSet works	= (HashSet)yearWorksMap.get( year );
+
+			if ( works == null )
+			{
+				works	= new HashSet();
+				yearWorksMap.put( year , works );
+			}
+
+			works.add( work.getId() );
+		}
+
+		for	(	Iterator iterator = yearWorksMap.entrySet().iterator() ;
+				iterator.hasNext() ;
+			)
+		{
+			Map.Entry entry	= (Map.Entry)iterator.next();
+
+			entry.setValue(
+				Integer.valueOf( ((HashSet)entry.getValue()).size() ) );
+		}
+
+		return new Map[]{ yearWordMap , yearTotalWordMap , yearWorksMap };
+	}
+
+	/**	Add a count to a year in a map.
+	 *
+	 *	@param	map		Map with years as keys and Integer counts
+	 *					as values.
+	 *	@param	year	The year.
+	 *	@param	count	The count to add.
+	 */
+
+	protected static void add( Map map , Integer year , int count )
+	{
+		Integer current	= (Integer)map.get( year );
+
+		map.put
+		(
+			year ,
+			Integer.valueOf(
+				( current == null ) ? count : current.intValue() + count )
+		);
+	}
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
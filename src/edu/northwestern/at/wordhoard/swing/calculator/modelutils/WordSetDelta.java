@@ -0,0 +1,535 @@
+package edu.northwestern.at.wordhoard.swing.calculator.modelutils;
+
+/*	Please see the license information at the end of this file. */
+
+import java.io.Serializable;
+import java.sql.*;
+import java.util.*;
+
+import edu.northwestern.at.utils.db.jdbc.*;
+import edu.northwestern.at.wordhoard.model.wrappers.*;
+
+/**	Changes to the words in a word set.
+ *
+ *	<p>
+ *	A word set delta holds the word, work, and work part tags added to
+ *	and removed from a word set, together with the changes to its word
+ *	counts and total word form counts.  Applying the delta adjusts only
+ *	the count rows which change, instead of deleting and recreating all
+ *	the counts for the word set.  The result is the same as counting the
+ *	new words of the word set from scratch.
+ *	</p>
+ */
+
+public class WordSetDelta implements Serializable
+{
+	/**	Word set word count table. */
+
+	protected static final String WORD_COUNT_TABLE	=
+		"wordhoard.wordsetwordcount";
+
+	/**	Word set total word form count table. */
+
+	protected static final String TOTAL_COUNT_TABLE	=
+		"wordhoard.wordsettotalwordformcount";
+
+	/**	Word set word count delta columns. */
+
+	protected static final String[] WORD_COUNT_COLUMNS	=
+		new String[]
+		{
+			"workPartTag" ,
+			"wordForm" ,
+			"word_string" ,
+			"word_charset" ,
+			"wordCount"
+		};
+
+	/**	Word set total word form count delta columns. */
+
+	protected static final String[] TOTAL_COUNT_COLUMNS	=
+		new String[]
+		{
+			"workPartTag" ,
+			"wordForm" ,
+			"wordFormCount"
+		};
+
+	/**	Word count deltas. */
+
+	protected RowBatch wordCountDeltas	=
+		new RowBatch
+		(
+			WORD_COUNT_TABLE ,
+			WORD_COUNT_COLUMNS ,
+			new int[]
+			{
+				RowBatch.STRING ,
+				RowBatch.INT ,
+				RowBatch.STRING ,
+				RowBatch.BYTE ,
+				RowBatch.INT
+			}
+		);
+
+	/**	Total word form count deltas. */
+
+	protected RowBatch totalCountDeltas	=
+		new RowBatch
+		(
+			TOTAL_COUNT_TABLE ,
+			TOTAL_COUNT_COLUMNS ,
+			new int[]
+			{
+				RowBatch.STRING ,
+				RowBatch.INT ,
+				RowBatch.INT
+			}
+		);
+
+	/**	Word tags added. */
+
+	protected Set addedWordTags			= new HashSet();
+
+	/**	Word tags removed. */
+
+	protected Set removedWordTags		= new HashSet();
+
+	/**	Work tags added. */
+
+	protected Set addedWorkTags			= new HashSet();
+
+	/**	Work tags removed. */
+
+	protected Set removedWorkTags		= new HashSet();
+
+	/**	Work part tags added. */
+
+	protected Set addedWorkPartTags		= new HashSet();
+
+	/**	Work part tags removed. */
+
+	protected Set removedWorkPartTags	= new HashSet();
+
+	/**	Create an empty word set delta.
+	 */
+
+	public WordSetDelta()
+	{
+	}
+
+	/**	Add a change to a word count.
+	 *
+	 *	@param	workPartTag		Tag of the work in which the word appears.
+	 *	@param	wordForm		The word form.
+	 *	@param	word			The word form value.
+	 *	@param	delta			Change to the count.
+	 */
+
+	public void addWordCount
+	(
+		String workPartTag ,
+		int wordForm ,
+		Spelling word ,
+		int delta
+	)
+	{
+		if ( delta == 0 ) return;
+
+		wordCountDeltas.addRow
+		(
+			new Object[]
+			{
+				workPartTag ,
+				Integer.valueOf( wordForm ) ,
+				word.getString() ,
+				Byte.valueOf( word.getCharset() ) ,
+				Integer.valueOf( delta )
+			}
+		);
+	}
+
+	/**	Add a change to a total word form count.
+	 *
+	 *	@param	workPartTag		Tag of the work.
+	 *	@param	wordForm		The word form.
+	 *	@param	delta			Change to the count.
+	 */
+
+	public void addTotalCount
+	(
+		String workPartTag ,
+		int wordForm ,
+		int delta
+	)
+	{
+		if ( delta == 0 ) return;
+
+		totalCountDeltas.addRow
+		(
+			new Object[]
+			{
+				workPartTag ,
+				Integer.valueOf( wordForm ) ,
+				Integer.valueOf( delta )
+			}
+		);
+	}
+
+	/**	Get the word tags added.
+	 *
+	 *	@return		Modifiable set of word tags added.
+	 */
+
+	public Set getAddedWordTags()
+	{
+		return addedWordTags;
+	}
+
+	/**	Get the word tags removed.
+	 *
+	 *	@return		Modifiable set of word tags removed.
+	 */
+
+	public Set getRemovedWordTags()
+	{
+		return removedWordTags;
+	}
+
+	/**	Get the work tags added.
+	 *
+	 *	@return		Modifiable set of work tags added.
+	 */
+
+	public Set getAddedWorkTags()
+	{
+		return addedWorkTags;
+	}
+
+	/**	Get the work tags removed.
+	 *
+	 *	@return		Modifiable set of work tags removed.
+	 */
+
+	public Set getRemovedWorkTags()
+	{
+		return removedWorkTags;
+	}
+
+	/**	Get the work part tags added.
+	 *
+	 *	@return		Modifiable set of work part tags added.
+	 */
+
+	public Set getAddedWorkPartTags()
+	{
+		return addedWorkPartTags;
+	}
+
+	/**	Get the work part tags removed.
+	 *
+	 *	@return		Modifiable set of work part tags removed.
+	 */
+
+	public Set getRemovedWorkPartTags()
+	{
+		return removedWorkPartTags;
+	}
+
+	/**	Get the number of count rows to adjust.
+	 *
+	 *	@return		Number of word count and total count deltas.
+	 */
+
+	public int getCountDeltasCount()
+	{
+		return wordCountDeltas.size() + totalCountDeltas.size();
+	}
+
+	/**	Check if the delta changes nothing.
+	 *
+	 *	@return		True if no tags or counts change.
+	 */
+
+	public boolean isEmpty()
+	{
+		return
+			addedWordTags.isEmpty() && removedWordTags.isEmpty() &&
+			addedWorkTags.isEmpty() && removedWorkTags.isEmpty() &&
+			addedWorkPartTags.isEmpty() && removedWorkPartTags.isEmpty() &&
+			( getCountDeltasCount() == 0 );
+	}
+
+	/**	Check that the delta only touches the word set tables.
+	 *
+	 *	@return		True if the count deltas name the word set count
+	 *				tables and columns.
+	 *
+	 *	<p>
+	 *	A delta received from a client should be checked before it is
+	 *	applied.
+	 *	</p>
+	 */
+
+	public boolean isValid()
+	{
+		return
+			( wordCountDeltas != null ) &&
+			( totalCountDeltas != null ) &&
+			WORD_COUNT_TABLE.equals( wordCountDeltas.getTableName() ) &&
+			TOTAL_COUNT_TABLE.equals( totalCountDeltas.getTableName() ) &&
+			Arrays.equals
+			(
+				WORD_COUNT_COLUMNS ,
+				wordCountDeltas.getColumnNames()
+			) &&
+			Arrays.equals
+			(
+				TOTAL_COUNT_COLUMNS ,
+				totalCountDeltas.getColumnNames()
+			);
+	}
+
+	/**	Apply the delta to a word set.
+	 *
+	 *	@param	connection	Database connection.
+	 *	@param	wordSetId	ID of the word set.
+	 *	@param	batchSize	Maximum number of rows per JDBC batch.
+	 *
+	 *	@return				Number of rows changed.
+	 *
+	 *	@throws	SQLException	error updating the rows.
+	 *
+	 *	<p>
+	 *	The caller is responsible for transactions.  The word set's tag
+	 *	collections are changed directly in the database, so a loaded
+	 *	WordSet object does not see the changes until it is reloaded.
+	 *	</p>
+	 */
+
+	public int apply
+	(
+		Connection connection ,
+		Long wordSetId ,
+		int batchSize
+	)
+		throws SQLException
+	{
+		long id		= wordSetId.longValue();
+		int result	= 0;
+
+		result	+=
+			deleteTags
+			(
+				connection , "wordhoard.wordset_wordtags" , "wordTag" ,
+				id , removedWordTags , batchSize
+			);
+
+		result	+=
+			deleteTags
+			(
+				connection , "wordhoard.wordset_worktags" , "tag" ,
+				id , removedWorkTags , batchSize
+			);
+
+		result	+=
+			deleteTags
+			(
+				connection , "wordhoard.wordset_workparttags" , "tag" ,
+				id , removedWorkPartTags , batchSize
+			);
+
+		result	+=
+			insertTags
+			(
+				connection , "wordhoard.wordset_wordtags" , "wordTag" ,
+				id , addedWordTags , batchSize
+			);
+
+		result	+=
+			insertTags
+			(
+				connection , "wordhoard.wordset_worktags" , "tag" ,
+				id , addedWorkTags , batchSize
+			);
+
+		result	+=
+			insertTags
+			(
+				connection , "wordhoard.wordset_workparttags" , "tag" ,
+				id , addedWorkPartTags , batchSize
+			);
+
+		result	+=
+			wordCountDeltas.addCounts
+			(
+				connection , "id" , "wordSet" , id , batchSize
+			);
+
+		result	+=
+			totalCountDeltas.addCounts
+			(
+				connection , "id" , "wordSet" , id , batchSize
+			);
+
+		return result;
+	}
+
+	/**	Delete tags from a word set tag table.
+	 *
+	 *	@param	connection	Database connection.
+	 *	@param	tableName	Tag table name.
+	 *	@param	tagColumn	Tag column name.
+	 *	@param	wordSetId	Word set ID.
+	 *	@param	tags		Tags to delete.
+	 *	@param	batchSize	Maximum number of rows per JDBC batch.
+	 *
+	 *	@return				Number of rows deleted.
+	 *
+	 *	@throws	SQLException	error deleting the rows.
+	 */
+
+	protected static int deleteTags
+	(
+		Connection connection ,
+		String tableName ,
+		String tagColumn ,
+		long wordSetId ,
+		Set tags ,
+		int batchSize
+	)
+		throws SQLException
+	{
+		if ( tags.isEmpty() ) return 0;
+
+		int result					= 0;
+		int pending					= 0;
+
+		PreparedStatement statement	=
+			connection.prepareStatement
+			(
+				"delete from " + tableName + " where wordSet = ? and " +
+				tagColumn + " = ?"
+			);
+
+		try
+		{
+			for (	Iterator iterator = tags.iterator() ;
+					iterator.hasNext() ; )
+			{
+				statement.setLong( 1 , wordSetId );
+				statement.setString( 2 , (String)iterator.next() );
+				statement.addBatch();
+
+				if ( ++pending == batchSize )
+				{
+					result	+= sum( statement.executeBatch() );
+					pending	= 0;
+				}
+			}
+
+			if ( pending > 0 )
+			{
+				result	+= sum( statement.executeBatch() );
+			}
+		}
+		finally
+		{
+			statement.close();
+		}
+
+		return result;
+	}
+
+	/**	Insert tags into a word set tag table.
+	 *
+	 *	@param	connection	Database connection.
+	 *	@param	tableName	Tag table name.
+	 *	@param	tagColumn	Tag column name.
+	 *	@param	wordSetId	Word set ID.
+	 *	@param	tags		Tags to insert.
+	 *	@param	batchSize	Maximum number of rows per JDBC batch.
+	 *
+	 *	@return				Number of rows inserted.
+	 *
+	 *	@throws	SQLException	error inserting the rows.
+	 */
+
+	protected static int insertTags
+	(
+		Connection connection ,
+		String tableName ,
+		String tagColumn ,
+		long wordSetId ,
+		Set tags ,
+		int batchSize
+	)
+		throws SQLException
+	{
+		RowBatch batch	=
+			new RowBatch
+			(
+				tableName ,
+				new String[]{ "wordSet" , tagColumn } ,
+				new int[]{ RowBatch.LONG , RowBatch.STRING }
+			);
+
+		Long id	= Long.valueOf( wordSetId );
+
+		for ( Iterator iterator = tags.iterator() ; iterator.hasNext() ; )
+		{
+			batch.addRow( new Object[]{ id , iterator.next() } );
+		}
+
+		return batch.insert( connection , batchSize );
+	}
+
+	/**	Sum the update counts of a JDBC batch.
+	 *
+	 *	@param	counts		Update counts returned by executeBatch.
+	 *
+	 *	@return				Number of rows changed.  Statements which
+	 *						succeeded with an unknown count are counted
+	 *						as one row each.
+	 */
+
+	protected static int sum( int[] counts )
+	{
+		int result	= 0;
+
+		for ( int i = 0 ; i < counts.length ; i++ )
+		{
+			result	+=
+				( counts[ i ] == Statement.SUCCESS_NO_INFO ) ? 1 : counts[ i ];
+		}
+
+		return result;
+	}
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
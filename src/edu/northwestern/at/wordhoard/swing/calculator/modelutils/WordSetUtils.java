@@ -11,7 +11,7 @@ import org.w3c.dom.*;
 
 import edu.northwestern.at.utils.*;
 import edu.northwestern.at.utils.db.*;
-import edu.northwestern.at.utils.db.mysql.*;
+import edu.northwestern.at.utils.db.jdbc.*;
 import edu.northwestern.at.utils.swing.*;
 import edu.northwestern.at.utils.xml.*;
 
@@ -51,6 +51,10 @@ public class WordSetUtils implements Serializable
 
 	private static boolean debug	= false;
 
+	/**	Maximum number of rows sent to the server in one call. */
+
+	protected static final int MAX_ROWS_PER_CALL	= 20000;
+
 	/**	Copy UserDataObject array to WordSet array.
 	 *
 	 *	@param	udos	Array of user data objects, all actually
@@ -82,12 +86,18 @@ public class WordSetUtils implements Serializable
 
 	/**	Perform batch of inserts.
 	 *
-	 *	@param	inserts		String array of database insert requests.
+	 *	@param	batches		Row batches to insert.
 	 *
 	 *	@return				Number of objects inserted.
+	 *
+	 *	<p>
+	 *	Large batches are split into chunks of at most
+	 *	{@link #MAX_ROWS_PER_CALL} rows, each sent in a separate call,
+	 *	so no single call has to hold all the rows at once.
+	 *	</p>
 	 */
 
-	protected static int performBatchInserts( String[] inserts )
+	protected static int performBatchInserts( RowBatch[] batches )
 	{
 		int result				= 0;
 		PersistenceManager pm	= null;
@@ -97,17 +107,31 @@ public class WordSetUtils implements Serializable
 			if ( WordHoardSettings.getBuildProgramRunning() )
 			{
 				pm	= PMUtils.getPM();
+			}
 
-				if ( pm != null )
+			for ( int i = 0 ; i < batches.length ; i++ )
+			{
+				RowBatch[] chunks	= batches[ i ].split( MAX_ROWS_PER_CALL );
+
+				for ( int j = 0 ; j < chunks.length ; j++ )
 				{
-					result	= pm.performBatchInserts( inserts );
+					RowBatch[] chunk	= new RowBatch[]{ chunks[ j ] };
+
+					if ( WordHoardSettings.getBuildProgramRunning() )
+					{
+						if ( pm != null )
+						{
+							result	+= pm.performBatchInserts( chunk );
+						}
+					}
+					else
+					{
+						result	+=
+							WordHoard.getSession().performBatchInserts(
+								chunk );
+					}
 				}
 			}
-			else
-			{
-				result	=
-					WordHoard.getSession().performBatchInserts( inserts );
-			}
 		}
 		catch ( Exception e )
 		{
@@ -153,11 +177,10 @@ public class WordSetUtils implements Serializable
 
 		persistingPhrases		= wordSet instanceof PhraseSet;
 
-								//	MySQL insert statement generator
-								//	for word set word counts.
+								//	Row batch for word set word counts.
 
-		MySQLInsertGenerator countGenerator	=
-			new MySQLInsertGenerator
+		RowBatch countBatch	=
+			new RowBatch
 			(
 				persistingPhrases ?
 					"wordhoard.phrasesetphrasecount" : "wordhoard.wordsetwordcount" ,
@@ -170,21 +193,21 @@ public class WordSetUtils implements Serializable
 					"workPartTag" ,
 					"wordCount"
 				} ,
-				new boolean[]
+				new int[]
 				{
-					false ,
-					true ,
-					true ,
-					true ,
-					false ,
-					true
+					RowBatch.STRING ,
+					RowBatch.BYTE ,
+					RowBatch.INT ,
+					RowBatch.LONG ,
+					RowBatch.STRING ,
+					RowBatch.INT
 				}
 			);
-								//	MySQL insert statement generator
-								//	for word set total word counts.
+								//	Row batch for word set total
+								//	word counts.
 
-		MySQLInsertGenerator totalCountGenerator	=
-			new MySQLInsertGenerator
+		RowBatch totalCountBatch	=
+			new RowBatch
 			(
 				persistingPhrases ?
 					"wordhoard.phrasesettotalwordformcount" : "wordhoard.wordsettotalwordformcount" ,
@@ -195,12 +218,12 @@ public class WordSetUtils implements Serializable
 					"workPartTag" ,
 					"wordFormCount"
 				} ,
-				new boolean[]
+				new int[]
 				{
-					true ,
-					true ,
-					false ,
-					true
+					RowBatch.INT ,
+					RowBatch.LONG ,
+					RowBatch.STRING ,
+					RowBatch.INT
 				}
 			);
 
@@ -235,7 +258,7 @@ public class WordSetUtils implements Serializable
 				Spelling word		= (Spelling)iterator.next();
 				Integer wordCount	= (Integer)wordMap.get( word );
 
-				countGenerator.addRow
+				countBatch.addRow
 				(
 					new Object[]
 					{
@@ -249,10 +272,6 @@ public class WordSetUtils implements Serializable
 				);
 			}
         }
-								//	Get MySQL insert for word counts.
-
-		String insertCountsSQL	= countGenerator.getInsert();
-
 								//	Iterate over the works in
 								//	the total word count map.
 
@@ -268,7 +287,7 @@ public class WordSetUtils implements Serializable
 								//	Create word set total word form count
 								//	object.
 
-			totalCountGenerator.addRow
+			totalCountBatch.addRow
 			(
 				new Object[]
 				{
@@ -279,10 +298,6 @@ public class WordSetUtils implements Serializable
 				}
 			);
         }
-								//	Get MySQL insert for total word counts.
-
-		String insertTotalCountsSQL	= totalCountGenerator.getInsert();
-
 		boolean cancelled	= false;
 		int insertCount		= 0;
 		int currentProgress	= 0;
@@ -312,9 +327,9 @@ public class WordSetUtils implements Serializable
 				insertCount	=
 					performBatchInserts
 					(
-						new String[]
+						new RowBatch[]
 						{
-							insertCountsSQL
+							countBatch
 						}
 					);
 								//	Update the progress display.
@@ -346,9 +361,9 @@ public class WordSetUtils implements Serializable
 				insertCount	=
 					performBatchInserts
 					(
-						new String[]
+						new RowBatch[]
 						{
-							insertTotalCountsSQL ,
+							totalCountBatch
 						}
 					);
 								//	Update the progress display.
@@ -1328,11 +1343,10 @@ public class WordSetUtils implements Serializable
 
 		Long wordSetID			= wordSet.getId();
 
-								//	MySQL insert statement generator
-								//	for word set word tags.
+								//	Row batch for word set word tags.
 
-		MySQLInsertGenerator wordTagsGenerator	=
-			new MySQLInsertGenerator
+		RowBatch wordTagsBatch	=
+			new RowBatch
 			(
 				"wordhoard.wordset_wordtags" ,
 				new String[]
@@ -1340,17 +1354,16 @@ public class WordSetUtils implements Serializable
 					"wordSet" ,
 					"wordTag"
 				} ,
-				new boolean[]
+				new int[]
 				{
-					true ,
-					false
+					RowBatch.LONG ,
+					RowBatch.STRING
 				}
 			);
-								//	MySQL insert statement generator
-								//	for word set work tags.
+								//	Row batch for word set work tags.
 
-		MySQLInsertGenerator workTagsGenerator	=
-			new MySQLInsertGenerator
+		RowBatch workTagsBatch	=
+			new RowBatch
 			(
 				"wordhoard.wordset_worktags" ,
 				new String[]
@@ -1358,17 +1371,16 @@ public class WordSetUtils implements Serializable
 					"wordSet" ,
 					"tag"
 				} ,
-				new boolean[]
+				new int[]
 				{
-					true ,
-					false
+					RowBatch.LONG ,
+					RowBatch.STRING
 				}
 			);
-								//	MySQL insert statement generator
-								//	for word set work part tags.
+								//	Row batch for word set work part tags.
 
-		MySQLInsertGenerator workPartTagsGenerator	=
-			new MySQLInsertGenerator
+		RowBatch workPartTagsBatch	=
+			new RowBatch
 			(
 				"wordhoard.wordset_workparttags" ,
 				new String[]
@@ -1376,38 +1388,35 @@ public class WordSetUtils implements Serializable
 					"wordSet" ,
 					"tag"
 				} ,
-				new boolean[]
+				new int[]
 				{
-					true ,
-					false
+					RowBatch.LONG ,
+					RowBatch.STRING
 				}
 			);
-								//	Create MySQL insert statements for
-								//	word tags, work tags, and work part tags.
+								//	Add rows for word tags.
 
 		for	( int i = 0 ; i < wordTags.length ; i++ )
 		{
-			wordTagsGenerator.addRow
+			wordTagsBatch.addRow
 			(
 				new Object[]{ wordSetID , wordTags[ i ] }
 			);
 		}
-								//	Create MySQL insert statements for
-								//	work tags.
+								//	Add rows for work tags.
 
 		for	( int i = 0 ; i < workTags.length ; i++ )
 		{
-			workTagsGenerator.addRow
+			workTagsBatch.addRow
 			(
 				new Object[]{ wordSetID , workTags[ i ] }
 			);
 		}
-								//	Create MySQL insert statements for
-								//	work part tags.
+								//	Add rows for work part tags.
 
 		for	( int i = 0 ; i < workPartTags.length ; i++ )
 		{
-			workPartTagsGenerator.addRow
+			workPartTagsBatch.addRow
 			(
 				new Object[]{ wordSetID , workPartTags[ i ] }
 			);
@@ -1433,11 +1442,11 @@ public class WordSetUtils implements Serializable
 
 		try
 		{
-			String[] inserts = new String[]
+			RowBatch[] inserts = new RowBatch[]
 			{
-				wordTagsGenerator.getInsert() ,
-				workPartTagsGenerator.getInsert() ,
-				workTagsGenerator.getInsert()
+				wordTagsBatch ,
+				workPartTagsBatch ,
+				workTagsBatch
 			};
 
 			currentProgress	+= performBatchInserts( inserts );
@@ -1925,8 +1934,8 @@ public class WordSetUtils implements Serializable
 	 *						is not the word set owner .
 	 *
 	 *	<p>
-	 *	We do not provide for updating the words in the word set.
-	 *	You should create a new word set if the words are changed.
+	 *	The words in the word set are not changed.  Use
+	 *	{@link #updateWordSetWords updateWordSetWords} to change them.
 	 *	</p>
 	 */
 
@@ -1956,66 +1965,171 @@ public class WordSetUtils implements Serializable
 			UserDataObjectUtils.updateUserDataObject
 			(
 				wordSet ,
-				new UserDataObjectUpdater()
-				{
-					public void update
-					(
-						UserDataObject userDataObject
-					)
-					{
-						WordSet wordSet	= (WordSet)userDataObject;
-
-						wordSet.setTitle( title );
-						wordSet.setDescription( description );
-						wordSet.setWebPageURL( webPageURL );
-						wordSet.setIsPublic( isPublic );
-						wordSet.setModificationTime( new Date() );
-					}
-				}
+				createWordSetUpdater
+				(
+					title , description , webPageURL , isPublic
+				)
 			);
 	}
 
-	/**	Get array of all work parts for a word set.
+	/**	Update a word set and the words in it.
 	 *
-	 *	@param		wordSet		The word set.
+	 *	@param	wordSet				The word set to update.
+	 *	@param	title				Title for the word set.
+	 *	@param	description			Description for the word set.
+	 *	@param	webPageURL			Web page URL for the word set.
+	 *	@param	isPublic			True if word set is public.
+	 *	@param	words				Collection of Word objects which the
+	 *								word set should contain.
+	 *	@param	progressReporter	Progress reporter.  May be null.
 	 *
-	 *	@return					Array of WorkPart for all worK parts
-	 *							represented in word set.
+	 *	@return						true if update succeed, false otherwise.
+	 *
+	 *	@throws						DuplicateWordSetException if new
+	 *								(title,owner) combination already
+	 *								exists.
+	 *
+	 *	<p>
+	 *	The new settings are applied in the same transaction as the
+	 *	changes to the words, so a failed update leaves the word set
+	 *	as it was.
+	 *	</p>
 	 */
 
-	public static WorkPart[] getWorkParts( WordSet wordSet )
+	public static boolean updateWordSet
+	(
+		WordSet wordSet ,
+		String title ,
+		String description ,
+		String webPageURL ,
+		boolean isPublic ,
+		Collection words ,
+		ProgressReporter progressReporter
+	)
+		throws DuplicateWordSetException
 	{
-		if ( wordSet == null ) return null;
-
-								//	Make sure word set is completely loaded.
-
-		if ( !PersistenceManager.doContains( wordSet ) )
-		{
-			wordSet	=
-				(WordSet)PersistenceManager.doLoad
+		if	(	UserDataObjectUtils.isDuplicate
 				(
 					WordSet.class ,
+					title ,
+					wordSet.getOwner() ,
 					wordSet.getId()
-				);
-
-			if ( wordSet == null ) return null;
+				)
+			)
+		{
+			throw new DuplicateWordSetException();
 		}
 
-		return WorkUtils.getWorkPartsByTag( wordSet.getWorkPartTags() );
+		return updateWordSetWords
+		(
+			wordSet ,
+			words ,
+			createWordSetUpdater
+			(
+				title , description , webPageURL , isPublic
+			) ,
+			progressReporter
+		);
 	}
 
-	/**	Get array of all works for a word set.
+	/**	Create an updater which sets the settings of a word set.
 	 *
-	 *	@param		wordSet		The word set.
+	 *	@param	title		Title for the word set.
+	 *	@param	description	Description for the word set.
+	 *	@param	webPageURL	Web page URL for the word set.
+	 *	@param	isPublic	True if word set is public.
 	 *
-	 *	@return					Array of Work for all works
-	 *							represented in word set.
+	 *	@return				The updater.
 	 */
 
-	public static Work[] getWorks( WordSet wordSet )
+	protected static UserDataObjectUpdater createWordSetUpdater
+	(
+		final String title ,
+		final String description ,
+		final String webPageURL ,
+		final boolean isPublic
+	)
 	{
-		if ( wordSet == null ) return null;
+		return
+			new UserDataObjectUpdater()
+			{
+				public void update
+				(
+					UserDataObject userDataObject
+				)
+				{
+					WordSet wordSet	= (WordSet)userDataObject;
+
+					wordSet.setTitle( title );
+					wordSet.setDescription( description );
+					wordSet.setWebPageURL( webPageURL );
+					wordSet.setIsPublic( isPublic );
+					wordSet.setModificationTime( new Date() );
+				}
+			};
+	}
+
+	/**	Update the words in a word set.
+	 *
+	 *	@param	wordSet				The word set to update.
+	 *	@param	words				Collection of Word objects which the
+	 *								word set should contain.
+	 *	@param	progressReporter	Progress reporter.  May be null.
+	 *
+	 *	@return						true if the word set was updated.
+	 *
+	 *	<p>
+	 *	Only the differences between the old and new words are applied.
+	 *	The counts of the added and removed words are computed, and just
+	 *	the count rows they affect are adjusted, in a single transaction.
+	 *	The word set ends up with the same counts it would have if it were
+	 *	created from scratch with the new words.
+	 *	</p>
+	 *
+	 *	<p>
+	 *	Phrase sets are not supported.  The method returns false for a
+	 *	phrase set.
+	 *	</p>
+	 */
+
+	public static boolean updateWordSetWords
+	(
+		WordSet wordSet ,
+		Collection words ,
+		ProgressReporter progressReporter
+	)
+	{
+		return updateWordSetWords
+		(
+			wordSet , words , null , progressReporter
+		);
+	}
+
+	/**	Update the words and settings in a word set.
+	 *
+	 *	@param	wordSet				The word set to update.
+	 *	@param	words				Collection of Word objects which the
+	 *								word set should contain.
+	 *	@param	settingsUpdater		Updater for the word set settings,
+	 *								applied in the same transaction as
+	 *								the word changes.  May be null.
+	 *	@param	progressReporter	Progress reporter.  May be null.
+	 *
+	 *	@return						true if the word set was updated.
+	 */
 
+	protected static boolean updateWordSetWords
+	(
+		WordSet wordSet ,
+		Collection words ,
+		UserDataObjectUpdater settingsUpdater ,
+		ProgressReporter progressReporter
+	)
+	{
+		if ( ( wordSet == null ) || ( wordSet instanceof PhraseSet ) )
+		{
+			return false;
+		}
 								//	Make sure word set is completely loaded.
 
 		if ( !PersistenceManager.doContains( wordSet ) )
@@ -2027,91 +2141,629 @@ public class WordSetUtils implements Serializable
 					wordSet.getId()
 				);
 
-			if ( wordSet == null ) return null;
+			if ( wordSet == null ) return false;
 		}
+								//	Find words to add and word tags
+								//	to remove.
 
-		return WorkUtils.getWorksByTag( wordSet.getWorkTags() );
+		Set oldWordTags		= new HashSet( wordSet.getWordTags() );
+		Set newWordTags		= new HashSet();
+		ArrayList addedWords	= new ArrayList();
+
+		for ( Iterator iterator = words.iterator() ; iterator.hasNext() ; )
+		{
+			Word word	= (Word)iterator.next();
+
+			if	(	newWordTags.add( word.getTag() ) &&
+					!oldWordTags.contains( word.getTag() )
+				)
+			{
+				addedWords.add( word );
+			}
+		}
+
+		Set removedWordTags	= new HashSet( oldWordTags );
+		removedWordTags.removeAll( newWordTags );
+
+								//	Load the words to remove, which
+								//	we need to count.
+
+		Word[] removedWords	= new Word[ 0 ];
+
+		if ( removedWordTags.size() > 0 )
+		{
+			removedWords	= WordUtils.getWordsByTags( removedWordTags );
+		}
+
+		return updateWordSetWords
+		(
+			wordSet ,
+			addedWords ,
+			Arrays.asList( removedWords ) ,
+			settingsUpdater ,
+			progressReporter
+		);
 	}
 
-	/**	Get total word form count for one work represented in a word set.
+	/**	Add and remove words in a word set.
 	 *
-	 *	@param	wordSet		The word set.
-	 *	@param	wordForm	The word form.
-	 *	@param	work		The work.
+	 *	@param	wordSet				The word set to update.
+	 *	@param	addedWords			Collection of Word objects to add.
+	 *								The words must not already be in
+	 *								the word set.
+	 *	@param	removedWords		Collection of Word objects to remove.
+	 *								The words must be in the word set.
+	 *	@param	settingsUpdater		Updater for the word set settings.
+	 *								May be null.
+	 *	@param	progressReporter	Progress reporter.  May be null.
 	 *
-	 *	@return				Count of the word form in the word set.
+	 *	@return						true if the word set was updated.
 	 */
 
-	public static int getWordFormCount
+	protected static boolean updateWordSetWords
 	(
 		WordSet wordSet ,
-		int wordForm ,
-		Work work
+		Collection addedWords ,
+		Collection removedWords ,
+		UserDataObjectUpdater settingsUpdater ,
+		ProgressReporter progressReporter
 	)
 	{
-		int result	= 0;
-
-		java.util.List wordSetWordFormCounts	=
-			PersistenceManager.doQuery
+		if ( progressReporter != null )
+		{
+			progressReporter.updateProgress
 			(
-				"from WordSetTotalWordFormCount twfc where " +
-					"twfc.wordSet = :wordSet and " +
-					"twfc.wordForm = :wordForm and " +
-					"twfc.workPartTag = :workPartTag" ,
-				new String[]
-				{
-					"wordSet" ,
-					"wordForm" ,
-					"workPartTag"
-				} ,
-				new Object[]
-				{
-					wordSet ,
-					Integer.valueOf( wordForm ) ,
-					work.getTag()
-				} ,
-				true
+				WordHoardSettings.getString
+				(
+					"Calculatingwordcounts" ,
+					"Calculating word counts ..."
+				)
 			);
-								//	Pick up count.
+		}
+								//	Compute the changes.
 
-		if ( wordSetWordFormCounts != null )
+		WordSetDelta delta	=
+			createWordSetDelta( wordSet , addedWords , removedWords );
+
+		if ( delta.isEmpty() && ( settingsUpdater == null ) ) return true;
+
+		if ( debug )
 		{
-			Iterator iterator	= wordSetWordFormCounts.iterator();
+			System.out.println(
+				"updateWordSetWords: adding " + addedWords.size() +
+				" words, removing " + removedWords.size() +
+				" words, adjusting " + delta.getCountDeltasCount() +
+				" counts." );
+		}
+								//	Apply the changes.
+		boolean result	= false;
 
-			while ( iterator.hasNext() )
+		try
+		{
+			if ( WordHoardSettings.getBuildProgramRunning() )
 			{
-				WordSetTotalWordFormCount wwfc	=
-					(WordSetTotalWordFormCount)iterator.next();
+				PersistenceManager pm	= PMUtils.getPM();
 
-				result	+= wwfc.getWordFormCount();
+				if ( pm != null )
+				{
+					result	=
+						applyWordSetDelta
+						(
+							pm , wordSet , delta , settingsUpdater
+						);
+				}
+			}
+			else
+			{
+				WordHoard.getSession().updateWordSetWords
+				(
+					wordSet , delta , settingsUpdater
+				);
+				result	= true;
 			}
 		}
+		catch ( Exception e )
+		{
+			Err.err( e );
+		}
+
+		if ( result )
+		{
+			PersistenceManager.doEvict( wordSet );
+
+								//	Cached counts and count query
+								//	results may include the old words.
+
+			WordCounter.discardCachedCounts();
+			PersistenceManager.evictQueryCache();
+		}
 
 		return result;
 	}
 
-	/**	Get total word form count in a word set.
+	/**	Compute the changes to a word set for added and removed words.
 	 *
-	 *	@param	wordSet		The word set.
-	 *	@param	wordForm	The word form.
+	 *	@param	wordSet			The word set.
+	 *	@param	addedWords		Collection of Word objects to add.
+	 *	@param	removedWords	Collection of Word objects to remove.
 	 *
-	 *	@return				Count of the word form in the word set.
+	 *	@return					The word set delta.
 	 */
 
-	public static int getWordFormCount
+	protected static WordSetDelta createWordSetDelta
 	(
 		WordSet wordSet ,
-		int wordForm
+		Collection addedWords ,
+		Collection removedWords
 	)
 	{
-		int result	= 0;
+		WordSetDelta delta	= new WordSetDelta();
 
-		java.util.List wordSetWordFormCounts	=
-			PersistenceManager.doQuery
+								//	Count the added and removed words.
+
+		CountableWordDataCounter addedCounter	=
+			new CountableWordDataCounter();
+
+		addedCounter.countWordParts( addedWords , true , null );
+
+		CountableWordDataCounter removedCounter	=
+			new CountableWordDataCounter();
+
+		removedCounter.countWordParts( removedWords , true , null );
+
+								//	Count differences become count deltas.
+
+		Map[] addedWordCountMaps	= addedCounter.getWordCountMaps();
+		Map[] removedWordCountMaps	= removedCounter.getWordCountMaps();
+		Map[] addedTotalCountMaps	= addedCounter.getTotalWordCountMaps();
+		Map[] removedTotalCountMaps	= removedCounter.getTotalWordCountMaps();
+
+		for ( int i = 0 ; i < addedWordCountMaps.length ; i++ )
+		{
+			addWordCountDeltas
 			(
-				"from WordSetTotalWordFormCount twfc where " +
-					"twfc.wordSet = :wordSet and " +
-					"twfc.wordForm = :wordForm" ,
+				delta ,
+				i ,
+				addedWordCountMaps[ i ] ,
+				removedWordCountMaps[ i ]
+			);
+
+			addTotalCountDeltas
+			(
+				delta ,
+				i ,
+				addedTotalCountMaps[ i ] ,
+				removedTotalCountMaps[ i ]
+			);
+		}
+								//	Word tags.
+
+		Set addedWorkTags		= new HashSet();
+		Set addedWorkPartTags	= new HashSet();
+
+		for ( Iterator iterator = addedWords.iterator() ; iterator.hasNext() ; )
+		{
+			Word word	= (Word)iterator.next();
+
+			delta.getAddedWordTags().add( word.getTag() );
+			addedWorkTags.add( word.getWork().getTag() );
+			addedWorkPartTags.add( word.getWorkPart().getTag() );
+		}
+
+		Set removedWorkTags		= new HashSet();
+		Set removedWorkPartTags	= new HashSet();
+
+		for	(	Iterator iterator = removedWords.iterator() ;
+				iterator.hasNext() ; )
+		{
+			Word word	= (Word)iterator.next();
+
+			delta.getRemovedWordTags().add( word.getTag() );
+			removedWorkTags.add( word.getWork().getTag() );
+			removedWorkPartTags.add( word.getWorkPart().getTag() );
+		}
+								//	Work parts and works which gain
+								//	their first words.
+
+		delta.getAddedWorkPartTags().addAll( addedWorkPartTags );
+		delta.getAddedWorkPartTags().removeAll( wordSet.getWorkPartTags() );
+
+		delta.getAddedWorkTags().addAll( addedWorkTags );
+		delta.getAddedWorkTags().removeAll( wordSet.getWorkTags() );
+
+								//	Work parts which may have lost
+								//	their last words.  A work part
+								//	is kept if any word in it stays
+								//	in the word set.
+
+		removedWorkPartTags.removeAll( addedWorkPartTags );
+
+		if ( removedWorkPartTags.size() > 0 )
+		{
+			Set keptWordTags	= new HashSet( wordSet.getWordTags() );
+			keptWordTags.removeAll( delta.getRemovedWordTags() );
+
+			java.util.List rows	=
+				PersistenceManager.doQuery
+				(
+					"select wo.tag, wo.workPart.tag from Word wo " +
+					"where wo.workPart.tag in (:workPartTags)" ,
+					new String[]{ "workPartTags" } ,
+					new Object[]{ removedWorkPartTags }
+				);
+
+			if ( rows != null )
+			{
+				Set keptWorkPartTags	= new HashSet();
+
+				for ( int i = 0 ; i < rows.size() ; i++ )
+				{
+					Object[] row	= (Object[])rows.get( i );
+
+					if ( keptWordTags.contains( row[ 0 ] ) )
+					{
+						keptWorkPartTags.add( row[ 1 ] );
+					}
+				}
+
+				removedWorkPartTags.removeAll( keptWorkPartTags );
+			}
+
+			delta.getRemovedWorkPartTags().addAll( removedWorkPartTags );
+		}
+								//	Works which may have lost their
+								//	last words.  A work is kept if
+								//	any of its work parts is kept.
+
+		removedWorkTags.removeAll( addedWorkTags );
+
+		if ( removedWorkTags.size() > 0 )
+		{
+			Set keptWorkPartTags	= new HashSet( wordSet.getWorkPartTags() );
+			keptWorkPartTags.removeAll( delta.getRemovedWorkPartTags() );
+
+			if ( keptWorkPartTags.size() > 0 )
+			{
+				java.util.List keptWorkTags	=
+					PersistenceManager.doQuery
+					(
+						"select distinct wp.work.tag from WorkPart wp " +
+						"where wp.tag in (:workPartTags) and " +
+						"wp.work.tag in (:workTags)" ,
+						new String[]{ "workPartTags" , "workTags" } ,
+						new Object[]{ keptWorkPartTags , removedWorkTags }
+					);
+
+				if ( keptWorkTags != null )
+				{
+					removedWorkTags.removeAll( keptWorkTags );
+				}
+			}
+
+			delta.getRemovedWorkTags().addAll( removedWorkTags );
+		}
+
+		return delta;
+	}
+
+	/**	Add word count deltas for one word form.
+	 *
+	 *	@param	delta			The word set delta.
+	 *	@param	wordForm		The word form.
+	 *	@param	addedCounts		Word count map for the added words.
+	 *	@param	removedCounts	Word count map for the removed words.
+	 *
+	 *	<p>
+	 *	The count maps map work IDs to maps from word form values to
+	 *	counts.
+	 *	</p>
+	 */
+
+	protected static void addWordCountDeltas
+	(
+		WordSetDelta delta ,
+		int wordForm ,
+		Map addedCounts ,
+		Map removedCounts
+	)
+	{
+		Set workIDs	= new HashSet( addedCounts.keySet() );
+		workIDs.addAll( removedCounts.keySet() );
+
+		for ( Iterator iterator = workIDs.iterator() ; iterator.hasNext() ; )
+		{
+			Long workID			= (Long)iterator.next();
+
+			String workPartTag	= WorkUtils.getWorkPartTagById( workID );
+
+			Map addedMap		= (Map)addedCounts.get( workID );
+			Map removedMap		= (Map)removedCounts.get( workID );
+
+			Set words			= new HashSet();
+
+			if ( addedMap != null ) words.addAll( addedMap.keySet() );
+			if ( removedMap != null ) words.addAll( removedMap.keySet() );
+
+			for	(	Iterator wordIterator = words.iterator() ;
+					wordIterator.hasNext() ; )
+			{
+				Spelling word	= (Spelling)wordIterator.next();
+
+				delta.addWordCount
+				(
+					workPartTag ,
+					wordForm ,
+					word ,
+					getCount( addedMap , word ) - getCount( removedMap , word )
+				);
+			}
+		}
+	}
+
+	/**	Add total count deltas for one word form.
+	 *
+	 *	@param	delta			The word set delta.
+	 *	@param	wordForm		The word form.
+	 *	@param	addedCounts		Total count map for the added words.
+	 *	@param	removedCounts	Total count map for the removed words.
+	 *
+	 *	<p>
+	 *	The count maps map work IDs to counts.
+	 *	</p>
+	 */
+
+	protected static void addTotalCountDeltas
+	(
+		WordSetDelta delta ,
+		int wordForm ,
+		Map addedCounts ,
+		Map removedCounts
+	)
+	{
+		Set workIDs	= new HashSet( addedCounts.keySet() );
+		workIDs.addAll( removedCounts.keySet() );
+
+		for ( Iterator iterator = workIDs.iterator() ; iterator.hasNext() ; )
+		{
+			Long workID	= (Long)iterator.next();
+
+			delta.addTotalCount
+			(
+				WorkUtils.getWorkPartTagById( workID ) ,
+				wordForm ,
+				getCount( addedCounts , workID ) -
+					getCount( removedCounts , workID )
+			);
+		}
+	}
+
+	/**	Get a count from a count map.
+	 *
+	 *	@param	map		Map with Integer counts.  May be null.
+	 *	@param	key		The key.
+	 *
+	 *	@return			The count, or 0 if none.
+	 */
+
+	protected static int getCount( Map map , Object key )
+	{
+		if ( map == null ) return 0;
+
+		Integer count	= (Integer)map.get( key );
+
+		return ( count == null ) ? 0 : count.intValue();
+	}
+
+	/**	Apply a word set delta in the build program.
+	 *
+	 *	@param	pm			Persistence manager.
+	 *	@param	wordSet		The word set.
+	 *	@param	delta		The word set delta.
+	 *	@param	settingsUpdater	Updater for the word set settings,
+	 *						applied in the same transaction.  May be null.
+	 *
+	 *	@return				true if the delta was applied.
+	 */
+
+	protected static boolean applyWordSetDelta
+	(
+		PersistenceManager pm ,
+		final WordSet wordSet ,
+		final WordSetDelta delta ,
+		UserDataObjectUpdater settingsUpdater
+	)
+	{
+		boolean result	= false;
+
+		try
+		{
+			pm.begin();
+
+			pm.getSession().doReturningWork
+			(
+				new org.hibernate.jdbc.ReturningWork<Integer>()
+				{
+					public Integer execute
+					(
+						java.sql.Connection connection
+					)
+						throws java.sql.SQLException
+					{
+						return Integer.valueOf
+						(
+							delta.apply
+							(
+								connection ,
+								wordSet.getId() ,
+								PersistenceManager.getBatchSize()
+							)
+						);
+					}
+				}
+			);
+
+			if ( settingsUpdater != null )
+			{
+				settingsUpdater.update( wordSet );
+			}
+
+			pm.commit();
+
+			result	= true;
+		}
+		catch ( Exception e )
+		{
+			try
+			{
+				pm.rollback();
+			}
+			catch ( Exception e2 )
+			{
+			}
+
+			Err.err( e );
+		}
+
+		return result;
+	}
+
+	/**	Get array of all work parts for a word set.
+	 *
+	 *	@param		wordSet		The word set.
+	 *
+	 *	@return					Array of WorkPart for all worK parts
+	 *							represented in word set.
+	 */
+
+	public static WorkPart[] getWorkParts( WordSet wordSet )
+	{
+		if ( wordSet == null ) return null;
+
+								//	Make sure word set is completely loaded.
+
+		if ( !PersistenceManager.doContains( wordSet ) )
+		{
+			wordSet	=
+				(WordSet)PersistenceManager.doLoad
+				(
+					WordSet.class ,
+					wordSet.getId()
+				);
+
+			if ( wordSet == null ) return null;
+		}
+
+		return WorkUtils.getWorkPartsByTag( wordSet.getWorkPartTags() );
+	}
+
+	/**	Get array of all works for a word set.
+	 *
+	 *	@param		wordSet		The word set.
+	 *
+	 *	@return					Array of Work for all works
+	 *							represented in word set.
+	 */
+
+	public static Work[] getWorks( WordSet wordSet )
+	{
+		if ( wordSet == null ) return null;
+
+								//	Make sure word set is completely loaded.
+
+		if ( !PersistenceManager.doContains( wordSet ) )
+		{
+			wordSet	=
+				(WordSet)PersistenceManager.doLoad
+				(
+					WordSet.class ,
+					wordSet.getId()
+				);
+
+			if ( wordSet == null ) return null;
+		}
+
+		return WorkUtils.getWorksByTag( wordSet.getWorkTags() );
+	}
+
+	/**	Get total word form count for one work represented in a word set.
+	 *
+	 *	@param	wordSet		The word set.
+	 *	@param	wordForm	The word form.
+	 *	@param	work		The work.
+	 *
+	 *	@return				Count of the word form in the word set.
+	 */
+
+	public static int getWordFormCount
+	(
+		WordSet wordSet ,
+		int wordForm ,
+		Work work
+	)
+	{
+		int result	= 0;
+
+		java.util.List wordSetWordFormCounts	=
+			PersistenceManager.doQuery
+			(
+				"from WordSetTotalWordFormCount twfc where " +
+					"twfc.wordSet = :wordSet and " +
+					"twfc.wordForm = :wordForm and " +
+					"twfc.workPartTag = :workPartTag" ,
+				new String[]
+				{
+					"wordSet" ,
+					"wordForm" ,
+					"workPartTag"
+				} ,
+				new Object[]
+				{
+					wordSet ,
+					Integer.valueOf( wordForm ) ,
+					work.getTag()
+				} ,
+				true
+			);
+								//	Pick up count.
+
+		if ( wordSetWordFormCounts != null )
+		{
+			Iterator iterator	= wordSetWordFormCounts.iterator();
+
+			while ( iterator.hasNext() )
+			{
+				WordSetTotalWordFormCount wwfc	=
+					(WordSetTotalWordFormCount)iterator.next();
+
+				result	+= wwfc.getWordFormCount();
+			}
+		}
+
+		return result;
+	}
+
+	/**	Get total word form count in a word set.
+	 *
+	 *	@param	wordSet		The word set.
+	 *	@param	wordForm	The word form.
+	 *
+	 *	@return				Count of the word form in the word set.
+	 */
+
+	public static int getWordFormCount
+	(
+		WordSet wordSet ,
+		int wordForm
+	)
+	{
+		int result	= 0;
+
+		java.util.List wordSetWordFormCounts	=
+			PersistenceManager.doQuery
+			(
+				"from WordSetTotalWordFormCount twfc where " +
+					"twfc.wordSet = :wordSet and " +
+					"twfc.wordForm = :wordForm" ,
 				new String[]
 				{
 					"wordSet" ,
@@ -2318,6 +2970,106 @@ public class WordSetUtils implements Serializable
 		return result;
 	}
 
+	/**	Get word count in each work represented in a word set.
+	 *
+	 *	@param	wordSet		The word set.
+	 *	@param	word		The word.
+	 *	@param	wordForm	The word form.
+	 *
+	 *	@return				Map with work tags as keys and counts of the
+	 *						word in each work as values.  Works in which
+	 *						the word does not appear are omitted.
+	 *
+	 *	<p>
+	 *	All the counts are retrieved with a single grouped query.
+	 *	</p>
+	 */
+
+	public static Map getWordFormCountsByWork
+	(
+		WordSet wordSet ,
+		Spelling word ,
+		int wordForm
+	)
+	{
+		HashMap result	= new HashMap();
+
+		java.util.List wordCounts	=
+			PersistenceManager.doQuery
+			(
+				"select wc.workPartTag, sum(wc.wordCount) " +
+					"from WordSetWordCount wc where " +
+					"wc.wordSet = :wordSet and " +
+					"wc.wordForm = :wordForm and " +
+					"wc.word = :word " +
+					"group by wc.workPartTag" ,
+				new String[]
+				{
+					"wordSet" ,
+					"wordForm" ,
+					"word"
+				} ,
+				new Object[]
+				{
+					wordSet ,
+					Integer.valueOf( wordForm ) ,
+					word
+				} ,
+				true
+			);
+
+		WordCountUtils.addGroupedCounts( wordCounts , result );
+
+		return result;
+	}
+
+	/**	Get total word form count in each work represented in a word set.
+	 *
+	 *	@param	wordSet		The word set.
+	 *	@param	wordForm	The word form.
+	 *
+	 *	@return				Map with work tags as keys and the count of
+	 *						the word form in each work as values.
+	 *
+	 *	<p>
+	 *	All the counts are retrieved with a single grouped query.
+	 *	</p>
+	 */
+
+	public static Map getWordFormCountsByWork
+	(
+		WordSet wordSet ,
+		int wordForm
+	)
+	{
+		HashMap result	= new HashMap();
+
+		java.util.List totalCounts	=
+			PersistenceManager.doQuery
+			(
+				"select twfc.workPartTag, sum(twfc.wordFormCount) " +
+					"from WordSetTotalWordFormCount twfc where " +
+					"twfc.wordSet = :wordSet and " +
+					"twfc.wordForm = :wordForm " +
+					"group by twfc.workPartTag" ,
+				new String[]
+				{
+					"wordSet" ,
+					"wordForm"
+				} ,
+				new Object[]
+				{
+					wordSet ,
+					Integer.valueOf( wordForm )
+				} ,
+				true
+			);
+
+		WordCountUtils.addGroupedCounts( totalCounts , result );
+
+		return result;
+	}
+
 	/**	Get word count for multiple words in a set of word sets.
 	 *
 	 *	@param	wordSets		The word sets.
@@ -2487,41 +3239,25 @@ public class WordSetUtils implements Serializable
 		return wordCounts;
 	}
 
-	/**	Get word form counts in a set of word sets.
+	/**	Get compact word form counts in a set of word sets.
 	 *
 	 *	@param	wordSets		The word sets.
 	 *	@param	wordForm		The word form to count.
-	 *	@param	getWorkCounts	if true, work counts are returned in the second
-	 *							result map (see below).  If false, hashsets of
-	 *							work IDs are returned in the second result map.
 	 *
-	 *	@return					Array of two maps.  The first map contains
-	 *							each word of then specified word form
-	 *							in the word sets as a key and
-	 *							the count of the appearance of the word
-	 *							in the word sets as a value.  The second map
-	 *							also has the word as the key.  If "getWorkCounts"
-	 *							is true, the values for each word are the counts
-	 *							of the works in which the word appears.  If
-	 *							"getWorkCounts" is false, the value is a hash set
-	 *							of the word IDs for each work in which the word
-	 *							appears.
+	 *	@return					Count map with each word of the specified
+	 *							word form in the word sets as a key, the
+	 *							count of the appearance of the word in the
+	 *							word sets as the count, and the works in
+	 *							which the word appears.
 	 */
 
-	public static Map[] getWordCounts
+	public static CountMap getWordCountMap
 	(
 		WordSet[] wordSets ,
-		int wordForm ,
-		boolean getWorkCounts
+		int wordForm
 	)
 	{
-		TreeMap wordCounts	= new TreeMap();
-		TreeMap workCounts	= new TreeMap();
-
-		if ( wordSets.length == 0 )
-		{
-			return new TreeMap[]{ wordCounts , workCounts };
-		}
+		if ( wordSets.length == 0 ) return new CountMap();
 
 		String queryString	=
 			"select new edu.northwestern.at.wordhoard.swing.calculator.modelutils.CountResult" +
@@ -2549,8 +3285,14 @@ public class WordSetUtils implements Serializable
 			(
 				queryString , paramNames , paramValues , true
 			);
-								//	If we got results, put them in the
-								//	tree map.
+
+		CountMap result	=
+			new CountMap
+			(
+				( wordSetWordCounts == null ) ? 0 : wordSetWordCounts.size()
+			);
+								//	If we got results, add them to the
+								//	count map.
 
 		if ( wordSetWordCounts != null )
 		{
@@ -2560,48 +3302,54 @@ public class WordSetUtils implements Serializable
 			{
 				CountResult countResult	= (CountResult)iterator.next();
 
-				Spelling wordText	= countResult.word.toInsensitive();
-				int newCount		= countResult.count;
-				String workTag		= countResult.workTag;
-				Long workID			= WorkUtils.getWorkIDByTag( workTag );
-
-								//	Increment word count.
-
-				if ( wordCounts.containsKey( wordText ) )
-				{
-					Integer count	= (Integer)wordCounts.get( wordText );
-
-					wordCounts.put
-					(
-						wordText ,
-						Integer.valueOf( newCount + count.intValue() )
-					);
-				}
-				else
-				{
-					wordCounts.put( wordText , Integer.valueOf( newCount ) );
-				}
-								//	Increment work list for this word.
-
-				if ( workCounts.containsKey( wordText ) )
-				{
-					HashSet workIDs	= (HashSet)workCounts.get( wordText );
-					workIDs.add( workID );
-				}
-				else
-				{
-					HashSet workIDs	= new HashSet();
-					workIDs.add( workID );
-					workCounts.put( wordText , workIDs );
-				}
+				result.add
+				(
+					countResult.word.toInsensitive() ,
+					countResult.count ,
+					WorkUtils.getWorkIDByTag( countResult.workTag )
+				);
 			}
 		}
-								//	Convert work lists to work counts for
-								//	each word. if requested.
 
-		if ( getWorkCounts ) CountMapUtils.worksToWorkCounts( workCounts );
+		return result;
+	}
 
-		return new TreeMap[]{ wordCounts , workCounts };
+	/**	Get word form counts in a set of word sets.
+	 *
+	 *	@param	wordSets		The word sets.
+	 *	@param	wordForm		The word form to count.
+	 *	@param	getWorkCounts	if true, work counts are returned in the second
+	 *							result map (see below).  If false, hashsets of
+	 *							work IDs are returned in the second result map.
+	 *
+	 *	@return					Array of two maps.  The first map contains
+	 *							each word of then specified word form
+	 *							in the word sets as a key and
+	 *							the count of the appearance of the word
+	 *							in the word sets as a value.  The second map
+	 *							also has the word as the key.  If "getWorkCounts"
+	 *							is true, the values for each word are the counts
+	 *							of the works in which the word appears.  If
+	 *							"getWorkCounts" is false, the value is a hash set
+	 *							of the word IDs for each work in which the word
+	 *							appears.
+	 */
+
+	public static Map[] getWordCounts
+	(
+		WordSet[] wordSets ,
+		int wordForm ,
+		boolean getWorkCounts
+	)
+	{
+		CountMap countMap	= getWordCountMap( wordSets , wordForm );
+
+		return new TreeMap[]
+		{
+			countMap.toCountMap() ,
+			getWorkCounts ?
+				countMap.toWorkCountMap() : countMap.toWorkIDMap()
+		};
 	}
 
 	/**	Get word form counts in a set of word sets.
@@ -2968,6 +3716,12 @@ public class WordSetUtils implements Serializable
 	 *	method from a separate thread to ensure the GUI updates
 	 *	while the word set is being saved.
 	 *	</p>
+	 *
+	 *	<p>
+	 *	If an existing word set is selected in the dialog, its settings
+	 *	and the changes to its words are applied together in one
+	 *	transaction.
+	 *	</p>
 	 */
 
 	public static WordSet saveWordSet
@@ -3027,7 +3781,27 @@ public class WordSetUtils implements Serializable
 				)
 			);
     	}
-								//	Delete existing word set if one
+								//	Update existing word set if one
+								//	was selected in the dialog.
+
+		if ( ( wordSet != null ) && !( wordSet instanceof PhraseSet ) )
+		{
+			wordSet	= loadWordSet( wordSet );
+
+			if	(	( wordSet != null ) &&
+					updateWordSet
+					(
+						wordSet , title , description , webPageURL ,
+						isPublic , wordList , progressReporter
+					)
+				)
+			{
+				result	= loadWordSet( wordSet );
+			}
+
+			return result;
+		}
+								//	Delete existing phrase set if one
 								//	was selected in the dialog.
 
 		if ( wordSet != null )
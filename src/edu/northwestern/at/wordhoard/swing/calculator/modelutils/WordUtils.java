@@ -8,6 +8,7 @@ import edu.northwestern.at.utils.*;
 import edu.northwestern.at.utils.db.*;
 import edu.northwestern.at.wordhoard.model.*;
 import edu.northwestern.at.wordhoard.model.morphology.*;
+import edu.northwestern.at.wordhoard.model.search.*;
 import edu.northwestern.at.wordhoard.model.speakers.*;
 import edu.northwestern.at.wordhoard.model.userdata.*;
 import edu.northwestern.at.wordhoard.model.wrappers.*;
@@ -1152,6 +1153,13 @@ public class WordUtils
 		String initialString
 	)
 	{
+		CompletionIndex completionIndex	= CompletionIndex.getIndex();
+
+		if ( completionIndex != null )
+		{
+			return completionIndex.findSpellings( initialString , 0 );
+		}
+
 		Spelling[] result	= null;
 
 		String lowercaseInitialString	=
@@ -34,6 +34,10 @@ class ConcordancePanel extends JPanel {
 
 	private static final int FONT_SIZE = 10;
 
+	/**	Number of search results fetched per page. */
+
+	static final int PAGE_SIZE = 1000;
+
 	/**	Persistence manager. */
 
 	private PersistenceManager pm;
@@ -113,6 +117,16 @@ class ConcordancePanel extends JPanel {
 
 	private WordSet wordSet	= null;
 
+	/**	True if all the search results have been added. */
+
+	private boolean allHitsAdded;
+
+	/**	True if there were more search results than the maximum number
+	 *	of concordance hits setting and the rest were not fetched.
+	 */
+
+	private boolean hitsTruncated;
+
 	/**	Creates a new concordance panel.
 	 *
 	 *	@param	pm					Persistence Manager.
@@ -265,33 +279,94 @@ class ConcordancePanel extends JPanel {
 		}
 	}
 
-	/**	Sets the hits.
+	/**	Adds a page of hits.
+	 *
+	 *	<p>The first page is displayed at once. If the hits are not grouped,
+	 *	later pages are appended to the tree as they arrive. If they are
+	 *	grouped, the tree is rebuilt when the last page has been added.
+	 *
+	 *	<p>The hits are found by a search thread using its own persistence
+	 *	manager and passed here by id. The words are loaded in this panel's
+	 *	persistence manager.
 	 *
-	 *	@param	results		The list of search results.
+	 *	@param	wordIds		Ids of the words in the page.
 	 *
-	 *	@param	words		List of search result words.
+	 *	@param	partIndices	Word part indices of the hits in the page.
 	 *
 	 *	@param	startTime	System milliseconds start time of search.
 	 *
+	 *	@param	done		True if this is the last page.
+	 *
+	 *	@param	truncated	True if there are more search results than the
+	 *						maximum number of concordance hits setting and
+	 *						the rest were not fetched.
+	 *
 	 *	@throws	PersistenceException	error in persistence layer.
 	 */
 
-	void setHits (java.util.List results, java.util.List words,
-		long startTime)
+	void addHits (long[] wordIds, int[] partIndices,
+		long startTime, boolean done, boolean truncated)
 			throws PersistenceException
 	{
-		maxTreeHeight = tree.getHeight();
-		this.results = results;
-		this.words = words;
+		boolean first = results == null;
+		if (first) {
+			maxTreeHeight = tree.getHeight();
+			results = new ArrayList();
+			words = new ArrayList();
+		}
+		java.util.List pageWords = pm.getConcordanceWords(wordIds);
+		java.util.List page = new ArrayList(wordIds.length);
+		for (int i = 0; i < wordIds.length; i++) {
+			Word word = (Word)pageWords.get(i);
+			if (word == null) continue;
+			page.add(new SearchResult(word, partIndices[i]));
+			words.add(word);
+		}
+		results.addAll(page);
+		precedingWordFormObjectsPreloaded = false;
+		followingWordFormObjectsPreloaded = false;
+		allHitsAdded = done;
+		hitsTruncated = truncated;
 		int numHits = results.size();
 		String numHitsStr = Formatters.formatIntegerWithCommas(numHits);
-		long endTime = System.currentTimeMillis();
-		float time = (endTime - startTime) / 1000.0f;
-		String timeStr = Formatters.formatFloat(time, 1);
-		numHitsLabel.setText(
-			numHitsStr + (numHits == 1 ? " word found" : " words found") +
-			" in " + timeStr + " seconds");
-		buildTree();
+		if (done) {
+			long endTime = System.currentTimeMillis();
+			float time = (endTime - startTime) / 1000.0f;
+			String timeStr = Formatters.formatFloat(time, 1);
+			numHitsLabel.setText(
+				(truncated ? "Results truncated: first " : "") +
+				numHitsStr + (numHits == 1 ? " word found" : " words found") +
+				" in " + timeStr + " seconds");
+		} else {
+			numHitsLabel.setText(
+				numHitsStr + (numHits == 1 ? " word found" : " words found") +
+				" so far");
+		}
+		if (first || (done && isGrouped())) {
+			buildTree();
+		} else if (!isGrouped()) {
+			DefaultTreeModel model = (DefaultTreeModel)tree.getModel();
+			DefaultMutableTreeNode root =
+				(DefaultMutableTreeNode)model.getRoot();
+			int firstIndex = root.getChildCount();
+			addResults(root, page);
+			int[] indices = new int[root.getChildCount() - firstIndex];
+			for (int i = 0; i < indices.length; i++)
+				indices[i] = firstIndex + i;
+			model.nodesWereInserted(root, indices);
+			if (firstIndex * cellHeight <= maxTreeHeight)
+				setDividerLocation(root.getChildCount());
+		}
+	}
+
+	/**	Returns true if the hits are grouped.
+	 *
+	 *	@return		True if the first level grouping option groups hits.
+	 */
+
+	private boolean isGrouped () {
+		GroupingOptions groupingOptions = groupingOptionsArray[0];
+		return groupingOptions != null && groupingOptions.getGroupBy() != null;
 	}
 
 	/**	Builds or rebuilds the tree of hits.
@@ -308,6 +383,15 @@ class ConcordancePanel extends JPanel {
 		tree.setModel(model);
 		expand();
 		if (results.size() > 0) tree.setSelectionRow(0);
+		setDividerLocation(numRows);
+	}
+
+	/**	Sets the split pane divider location to fit the tree.
+	 *
+	 *	@param	numRows		Number of rows in the tree.
+	 */
+
+	private void setDividerLocation (int numRows) {
 		splitPane.setDividerLocation(0.45);
 		int fullHeight = numRows * cellHeight;
 		if (fullHeight <= maxTreeHeight) {
@@ -550,7 +634,10 @@ class ConcordancePanel extends JPanel {
 			);
 								//	Create the word set.  We already
 								//	have the list of words resulting
-								//	from the search.
+								//	from the search, unless it is
+								//	incomplete or was truncated, in
+								//	which case we search again for
+								//	all of them.
 
 			wordSet	=
 				WordSetUtils.saveWordSet
@@ -561,7 +648,22 @@ class ConcordancePanel extends JPanel {
 						public java.util.List getWords
 						( ProgressReporter pr ) throws Exception
 						{
-							return words;
+							if ( allHitsAdded && !hitsTruncated ) return words;
+
+							java.util.List allWords	= new ArrayList();
+
+							java.util.List allResults	=
+								PersistenceManager.getPM().searchWords( sq );
+
+							for ( int i = 0 ; i < allResults.size() ; i++ )
+							{
+								allWords.add
+								(
+									((SearchResult)allResults.get( i )).getWord()
+								);
+							}
+
+							return allWords;
 						}
 					} ,
 					progressReporter
@@ -72,33 +72,65 @@ public class ConcordanceWindow extends AbstractWorkPanelWindow {
 		final Thread searchThread = new Thread (
 			new Runnable() {
 				public void run () {
+					PersistenceManager searchPm = null;
+					SearchResultStream stream = null;
 					try {
 						final long startTime = System.currentTimeMillis();
-						final java.util.List searchResults = pm.searchWords(sq);
-						final ArrayList words = new ArrayList();
-						for (Iterator it = searchResults.iterator();
-							it.hasNext(); )
-						{
-							SearchResult searchResult = (SearchResult)it.next();
-							words.add(searchResult.getWord());
-						}
-						if (Thread.interrupted()) return;
-						pm.preloadConcordanceInfo(words);
-						if (Thread.interrupted()) return;
-						SwingUtilities.invokeLater(
-							new Runnable() {
-								public void run () {
-									try {
-										panel.setHits(searchResults,
-											words, startTime);
-									} catch (Exception e) {
-										Err.err(e);
+						int maxHits = WordHoardSettings.getMaxConcordanceHits();
+						searchPm = new PersistenceManager();
+						stream = searchPm.searchWordsStream(sq,
+							ConcordancePanel.PAGE_SIZE);
+						int numHits = 0;
+						boolean done = false;
+						while (!done) {
+							java.util.List page = stream.nextPage();
+							boolean truncated = false;
+							int pageSize = page.size();
+							if (maxHits > 0 && numHits + pageSize >= maxHits) {
+								pageSize = maxHits - numHits;
+								truncated = pageSize < page.size() ||
+									stream.hasNext();
+							}
+							final long[] wordIds = new long[pageSize];
+							final int[] partIndices = new int[pageSize];
+							for (int i = 0; i < pageSize; i++) {
+								SearchResult searchResult =
+									(SearchResult)page.get(i);
+								wordIds[i] =
+									searchResult.getWord().getId().longValue();
+								partIndices[i] = searchResult.getPartIndex();
+							}
+							numHits += pageSize;
+							searchPm.clear();
+							if (Thread.interrupted()) return;
+							done = truncated || !stream.hasNext();
+							final boolean lastPage = done;
+							final boolean hitsTruncated = truncated;
+							SwingUtilities.invokeLater(
+								new Runnable() {
+									public void run () {
+										try {
+											if (pm == null) return;
+											panel.addHits(wordIds, partIndices,
+												startTime, lastPage,
+												hitsTruncated);
+										} catch (Exception e) {
+											Err.err(e);
+										}
 									}
 								}
-							}
-						);
+							);
+						}
 					} catch (PersistenceException e) {
 						Err.err(e);
+					} finally {
+						if (stream != null) stream.close();
+						if (searchPm != null) {
+							try {
+								searchPm.close();
+							} catch (Exception e) {
+							}
+						}
 					}
 				}
 			}
@@ -117,11 +149,17 @@ public class ConcordanceWindow extends AbstractWorkPanelWindow {
 									searchThread.join();
 								} catch (Exception e) {
 								}
-								try {
-									pm.close();
-									pm = null;
-								} catch (Exception e) {
-								}
+								SwingUtilities.invokeLater(
+									new Runnable() {
+										public void run () {
+											try {
+												pm.close();
+												pm = null;
+											} catch (Exception e) {
+											}
+										}
+									}
+								);
 							}
 						}
 					).start();
@@ -7,6 +7,7 @@ import java.awt.*;
 import java.awt.event.*;
 
 import edu.northwestern.at.wordhoard.swing.*;
+import edu.northwestern.at.wordhoard.model.counts.*;
 import edu.northwestern.at.wordhoard.model.wrappers.*;
 import edu.northwestern.at.utils.swing.*;
 import edu.northwestern.at.utils.db.*;
@@ -18,12 +19,16 @@ class LexiconOptionsPanel extends JPanel {
 
 	/**	Order by options. */
 
-	static final int ORDER_BY_LEMMA = 0;
-	static final int ORDER_BY_FREQUENCY_LEMMA = 1;
-	static final int ORDER_BY_CLASS_LEMMA = 2;
-	static final int ORDER_BY_CLASS_FREQUENCY_LEMMA = 3;
-	static final int ORDER_BY_NUMWORKS_LEMMA = 4;
-	static final int ORDER_BY_CLASS_NUMWORKS_LEMMA = 5;
+	static final int ORDER_BY_LEMMA = CompactLexicon.ORDER_BY_LEMMA;
+	static final int ORDER_BY_FREQUENCY_LEMMA =
+		CompactLexicon.ORDER_BY_FREQUENCY_LEMMA;
+	static final int ORDER_BY_CLASS_LEMMA = CompactLexicon.ORDER_BY_CLASS_LEMMA;
+	static final int ORDER_BY_CLASS_FREQUENCY_LEMMA =
+		CompactLexicon.ORDER_BY_CLASS_FREQUENCY_LEMMA;
+	static final int ORDER_BY_NUMWORKS_LEMMA =
+		CompactLexicon.ORDER_BY_NUMWORKS_LEMMA;
+	static final int ORDER_BY_CLASS_NUMWORKS_LEMMA =
+		CompactLexicon.ORDER_BY_CLASS_NUMWORKS_LEMMA;
 
 	/**	Parent lexicon panel. */
 
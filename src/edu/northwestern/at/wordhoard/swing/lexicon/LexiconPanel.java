@@ -76,20 +76,13 @@ class LexiconPanel extends JPanel {
 
 	private int romanFontAscent;
 
-	/**	Lexicon item class. */
+	/**	Lexicon. */
 
-	protected static class LexiconItem {
-		LemmaCorpusCounts counts;
-		CollationKey collationKey;
-	}
-
-	/**	Lexicon items. */
+	CompactLexicon lexicon;
 
-	LexiconItem[] lexiconItems;
+	/**	Table data - sorted subset of the lexicon entry indices. */
 
-	/**	Table data - sorted subset of all the lexicon items. */
-
-	LexiconItem[] data = new LexiconItem[0];
+	int[] data = new int[0];
 
 	/**	Status label. */
 
@@ -109,18 +102,18 @@ class LexiconPanel extends JPanel {
 		}
 
 		public Object getValueAt (int row, int col) {
-			LemmaCorpusCounts info = data[row].counts;
+			int entry = data[row];
 			switch (col) {
 				case 0:
-					return info.getTag().getString();
+					return lexicon.getTag(entry);
 				case 1:
-					return info.getWordClass().getMajorWordClass();
+					return lexicon.getMajorClass(entry);
 				case 2:
 					return Formatters.formatIntegerWithCommas(
-						info.getColFreq());
+						lexicon.getColFreq(entry));
 				case 3:
 					return Formatters.formatIntegerWithCommas(
-						info.getDocFreq());
+						lexicon.getDocFreq(entry));
 			}
 			return null;
 		}
@@ -146,8 +139,7 @@ class LexiconPanel extends JPanel {
 		{
 			super.getTableCellRendererComponent(table, value,
 				isSelected, false, row, col);
-			LemmaCorpusCounts info = data[row].counts;
-			byte tagCharset = info.getTag().getCharset();
+			byte tagCharset = lexicon.getTagCharset(data[row]);
 			FontInfo tagFontInfo = fontManager.getFontInfo(
 				tagCharset, FONT_SIZE);
 			int tagFontAscent = tagFontInfo.getAscent();
@@ -332,16 +324,8 @@ class LexiconPanel extends JPanel {
 	 *	@param	lexicon		The lexicon.
 	 */
 
-	void setLexicon (LemmaCorpusCounts[] lexicon) {
-		lexiconItems = new LexiconItem[lexicon.length];
-		for (int i = 0; i < lexicon.length; i++) {
-			LemmaCorpusCounts counts = lexicon[i];
-			LexiconItem item = new LexiconItem();
-			item.counts = counts;
-			item.collationKey =
-				collator.getCollationKey(counts.getTag().getString());
-			lexiconItems[i] = item;
-		}
+	void setLexicon (CompactLexicon lexicon) {
+		this.lexicon = lexicon;
 		setData();
 	}
 
@@ -354,66 +338,13 @@ class LexiconPanel extends JPanel {
 		return table;
 	}
 
-	/**	Comparator class for order by options. */
-
-	private static class OrderingComparator implements Comparator {
-
-		public int compare (Object o1, Object o2) {
-			LexiconItem item1 = (LexiconItem)o1;
-			LexiconItem item2 = (LexiconItem)o2;
-			if (orderBy == LexiconOptionsPanel.ORDER_BY_CLASS_LEMMA ||
-				orderBy == LexiconOptionsPanel.ORDER_BY_CLASS_FREQUENCY_LEMMA ||
-				orderBy == LexiconOptionsPanel.ORDER_BY_CLASS_NUMWORKS_LEMMA)
-			{
-				String class1 = item1.counts.getMajorClass();
-				String class2 = item2.counts.getMajorClass();
-				int k = class1.compareTo(class2);
-				if (k != 0) return k;
-			}
-			if (orderBy == LexiconOptionsPanel.ORDER_BY_FREQUENCY_LEMMA ||
-				orderBy == LexiconOptionsPanel.ORDER_BY_CLASS_FREQUENCY_LEMMA)
-			{
-				int freq1 = item1.counts.getColFreq();
-				int freq2 = item2.counts.getColFreq();
-				if (freq1 != freq2) return freq2-freq1;
-			}
-			if (orderBy == LexiconOptionsPanel.ORDER_BY_NUMWORKS_LEMMA ||
-				orderBy == LexiconOptionsPanel.ORDER_BY_CLASS_NUMWORKS_LEMMA)
-			{
-				int freq1 = item1.counts.getDocFreq();
-				int freq2 = item2.counts.getDocFreq();
-				if (freq1 != freq2) return freq2-freq1;
-			}
-			return item1.collationKey.compareTo(item2.collationKey);
-		}
-
-	}
-
-	/**	Comparator for order by options. */
-
-	private static OrderingComparator orderingComparator =
-		new OrderingComparator();
-
 	/**	Sets the data. */
 
 	private void setData () {
-		if (lexiconItems == null) return;
+		if (lexicon == null) return;
 		boolean allmajorClasses = majorClass.equals("All");
-		if (allmajorClasses) {
-			data = new LexiconItem[lexiconItems.length];
-			for (int i = 0; i < lexiconItems.length; i++)
-				data[i] = lexiconItems[i];
-		} else {
-			ArrayList dataList = new ArrayList();
-			for (int i = 0; i < lexiconItems.length; i++) {
-				LexiconItem item = lexiconItems[i];
-				if (majorClass.equals(item.counts.getMajorClass()))
-					dataList.add(item);
-			}
-			data = (LexiconItem[])dataList.toArray(
-				new LexiconItem[dataList.size()]);
-		}
-		Arrays.sort(data, orderingComparator);
+		data = lexicon.getOrdering(orderBy,
+			allmajorClasses ? null : majorClass);
 		String statusMsg = Formatters.formatIntegerWithCommas(data.length);
 		if (allmajorClasses) {
 			statusMsg = statusMsg + " lemmas";
@@ -456,7 +387,7 @@ class LexiconPanel extends JPanel {
 		}
 		int lemmaPrefixLen = lemmaPrefix.length();
 		for (int i = startRow; i < data.length; i++) {
-			String lemmaTag = data[i].counts.getTag().getString();
+			String lemmaTag = lexicon.getTag(data[i]);
 			if (lemmaTag.length() < lemmaPrefixLen) continue;
 			String lemmaTagSubstring =
 				lemmaTag.substring(0, lemmaPrefixLen);
@@ -485,9 +416,22 @@ class LexiconPanel extends JPanel {
 	{
 		int row = table.getSelectedRow();
 		if (row < 0) return;
-		LexiconItem item = data[row];
-		Lemma lemma = item.counts.getLemma();
-		new LemmaInfoWindow(lemma, corpus, parentWindow);
+		new LemmaInfoWindow(getLemma(row), corpus, parentWindow);
+	}
+
+	/**	Gets the lemma for a table row.
+	 *
+	 *	@param	row		Row index.
+	 *
+	 *	@return			The lemma.
+	 *
+	 *	@throws	PersistenceException	error in persistence layer.
+	 */
+
+	private Lemma getLemma (int row)
+		throws PersistenceException
+	{
+		return (Lemma)pm.load(Lemma.class, lexicon.getLemmaId(data[row]));
 	}
 
 	/**	Handles a mouse clicked event.
@@ -503,9 +447,7 @@ class LexiconPanel extends JPanel {
 		if (event.getClickCount() <= 1) return;
 		int row = table.getSelectedRow();
 		if (row < 0) return;
-		LexiconItem item = data[row];
-		Lemma lemma = item.counts.getLemma();
-		new LemmaInfoWindow(lemma, corpus, parentWindow);
+		new LemmaInfoWindow(getLemma(row), corpus, parentWindow);
 	}
 
 	/**	Handles a change in options event.
@@ -530,8 +472,12 @@ class LexiconPanel extends JPanel {
 	SearchDefaults getSearchDefaults () {
 		int row = table.getSelectedRow();
 		if (row < 0) return corpus;
-		LexiconItem item = data[row];
-		return item.counts.getLemma();
+		try {
+			return getLemma(row);
+		} catch (PersistenceException e) {
+			Err.err(e);
+			return corpus;
+		}
 	}
 
 	public class TableDragMouseHandler implements MouseListener, MouseMotionListener {
@@ -623,9 +569,7 @@ public class LexiconTransferHandler extends TransferHandler  {
 				int[] rows = ((JTable)c).getSelectedRows();
 				if (rows.length < 0) return null;
 				for(int i=0;i<rows.length;i++) {
-					LexiconItem item = data[rows[i]];
-					Lemma lemma = item.counts.getLemma();
-					gos.add(lemma);
+					gos.add(getLemma(rows[i]));
 				}
 				return new SearchCriteriaTransferable(gos);
 			} catch (Exception e) {Err.err(e);}
@@ -103,7 +103,7 @@ public class LexiconWindow extends AbstractWindow {
 					try {
 						CachedCollections.getMajorWordClasses();
 						if (Thread.interrupted()) return;
-						final LemmaCorpusCounts[] lexicon =
+						final CompactLexicon lexicon =
 							CachedCollections.getLexicon(corpus);
 						if (Thread.interrupted()) return;
 						SwingUtilities.invokeLater(
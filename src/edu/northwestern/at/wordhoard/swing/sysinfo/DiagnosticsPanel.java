@@ -0,0 +1,209 @@
+package edu.northwestern.at.wordhoard.swing.sysinfo;
+
+/*	Please see the license information at the end of this file. */
+
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+import javax.swing.table.*;
+
+import edu.northwestern.at.utils.metrics.*;
+import edu.northwestern.at.utils.swing.*;
+import edu.northwestern.at.wordhoard.swing.*;
+
+/**	The diagnostics panel.
+ *
+ *	<p>Displays the query, search, and analysis timings recorded by
+ *	{@link edu.northwestern.at.utils.metrics.Metrics Metrics}, slowest
+ *	in total first, with a check box to turn recording on and off.
+ */
+
+public class DiagnosticsPanel extends DialogPanel
+{
+	/**	Column names. */
+
+	protected static final String[] columnNames	=
+	{
+		"Category" ,
+		"Calls" ,
+		"Errors" ,
+		"Rows" ,
+		"Cache hits" ,
+		"Total ms" ,
+		"Mean ms" ,
+		"p95 ms" ,
+		"Max ms" ,
+		"Operation"
+	};
+
+	/**	The table model. */
+
+	protected DefaultTableModel tableModel;
+
+	/**	The table. */
+
+	protected XTable table;
+
+	/**	The enable metrics check box. */
+
+	protected JCheckBox enabledCheckBox;
+
+	/**	Creates a new diagnostics panel.
+	 */
+
+	public DiagnosticsPanel()
+	{
+		super();
+
+		enabledCheckBox	=
+			new JCheckBox
+			(
+				WordHoardSettings.getString
+				(
+					"Recordtimings" ,
+					"Record query, search, and analysis timings"
+				) ,
+				Metrics.isEnabled()
+			);
+
+		enabledCheckBox.addActionListener
+		(
+			new ActionListener()
+			{
+				public void actionPerformed( ActionEvent event )
+				{
+					Metrics.setEnabled( enabledCheckBox.isSelected() );
+				}
+			}
+		);
+
+		add( enabledCheckBox );
+
+		tableModel	=
+			new DefaultTableModel( columnNames , 0 )
+			{
+				public boolean isCellEditable( int row , int column )
+				{
+					return false;
+				}
+			};
+
+		table	= new XTable( tableModel );
+
+		table.setAutoResizeMode( JTable.AUTO_RESIZE_LAST_COLUMN );
+
+		table.getColumnModel().getColumn( columnNames.length - 1 )
+			.setPreferredWidth( 400 );
+
+		XScrollPane scrollPane	=
+			new XScrollPane
+			(
+				table ,
+				JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED ,
+				JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED
+			);
+
+		scrollPane.setAlignmentX( Component.CENTER_ALIGNMENT );
+		scrollPane.setPreferredSize( new Dimension( 650 , 400 ) );
+
+		add( scrollPane );
+
+		addButton
+		(
+			WordHoardSettings.getString( "ResetTimings" , "Reset Timings" ) ,
+			new ActionListener()
+			{
+				public void actionPerformed( ActionEvent event )
+				{
+					Metrics.reset();
+					refresh();
+				}
+			}
+		);
+
+		refresh();
+	}
+
+	/**	Refreshes the panel from the current metrics.
+	 */
+
+	public void refresh()
+	{
+		enabledCheckBox.setSelected( Metrics.isEnabled() );
+
+		tableModel.setRowCount( 0 );
+
+		OperationStatistics[] stats	= Metrics.getStatistics();
+
+		for ( int i = 0 ; i < stats.length ; i++ )
+		{
+			OperationStatistics s	= stats[ i ];
+
+			tableModel.addRow
+			(
+				new Object[]
+				{
+					s.getCategory() ,
+					Long.valueOf( s.getCalls() ) ,
+					Long.valueOf( s.getErrors() ) ,
+					Long.valueOf( s.getRows() ) ,
+					Long.valueOf( s.getCacheHits() ) ,
+					formatMillis( s.getTotalMillis() ) ,
+					formatMillis( s.getMeanMillis() ) ,
+					formatMillis( s.getP95Millis() ) ,
+					formatMillis( s.getMaxMillis() ) ,
+					s.getKey()
+				}
+			);
+		}
+	}
+
+	/**	Formats a time in milliseconds.
+	 *
+	 *	@param	millis	Time in milliseconds.
+	 *
+	 *	@return			Time rounded to one decimal place.
+	 */
+
+	protected static String formatMillis( double millis )
+	{
+		return String.valueOf( Math.round( millis * 10 ) / 10.0 );
+	}
+
+	/**	Returns the table of timings.
+	 *
+	 *	@return		The table of timings.
+	 */
+
+	public XTable getTable()
+	{
+		return table;
+	}
+}
+
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
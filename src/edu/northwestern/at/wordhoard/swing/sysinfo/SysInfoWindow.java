@@ -4,6 +4,7 @@ package edu.northwestern.at.wordhoard.swing.sysinfo;
 
 import java.awt.*;
 import java.awt.event.*;
+import javax.swing.*;
 
 import edu.northwestern.at.utils.db.*;
 import edu.northwestern.at.utils.swing.*;
@@ -24,6 +25,10 @@ public class SysInfoWindow extends AbstractWindow
 
 	protected SystemInformationPanel sysInfoPanel;
 
+	/**	The diagnostics panel. */
+
+	protected DiagnosticsPanel diagnosticsPanel;
+
 	/**	Opens or brings to the front the system information window.
 	 *
 	 *	@param	parentWindow	The parent window, or null if none.
@@ -81,11 +86,33 @@ public class SysInfoWindow extends AbstractWindow
 					);
 				}
 			};
-								//	Display panel in window.
+								//	Create diagnostics panel.
+
+		diagnosticsPanel		= new DiagnosticsPanel();
+
+								//	Display panels in window.
+
+		JTabbedPane tabbedPane	= new JTabbedPane();
+
+		tabbedPane.addTab
+		(
+			WordHoardSettings.getString
+			(
+				"SystemInformation" ,
+				"System Information"
+			) ,
+			sysInfoPanel
+		);
+
+		tabbedPane.addTab
+		(
+			WordHoardSettings.getString( "Diagnostics" , "Diagnostics" ) ,
+			diagnosticsPanel
+		);
 
 		DialogPanel dialogPanel	= new DialogPanel();
 
-		dialogPanel.add( sysInfoPanel );
+		dialogPanel.add( tabbedPane );
 
 		dialogPanel.addButton
 		(
@@ -107,6 +134,7 @@ public class SysInfoWindow extends AbstractWindow
 				public void actionPerformed( ActionEvent event )
 				{
 					sysInfoPanel.refresh();
+					diagnosticsPanel.refresh();
 				}
 			}
 		);
@@ -379,59 +379,88 @@ public class BuildAnnotations {
 		}
 	}
 
-	/**	The main program.
+	/**	Builds annotations.
 	 *
 	 *	@param	args		Command line arguments.
+	 *
+	 *	@throws	Exception	general error.
 	 */
 	
-	public static void main  (final String args[]) {
+	public static void build (final String args[])
+		throws Exception
+	{
+		build(args, null);
+	}
+
+	/**	Builds annotations from selected files.
+	 *
+	 *	@param	args		Command line arguments.
+	 *
+	 *	@param	files		List of files to build, or null to build the
+	 *						input file or directory.
+	 *
+	 *	@throws	Exception	general error.
+	 */
 	
-		try {
+	public static void build (final String args[], List files)
+		throws Exception
+	{
+		//	Initialize.
+	
+		long startTime = System.currentTimeMillis();
+		parseArgs(args);
 		
-			//	Initialize.
+		File file = new File(inPath);
+		boolean isDir = file.isDirectory();
+		if (files != null) {
+			System.out.println("Building annotations from " +
+				files.size() + (files.size() == 1 ? " file" : " files"));
+		} else if (isDir) {
+			System.out.println("Building annotations from directory " + 
+				inPath);
+		} else {
+			System.out.println("Building annotations from file " + 
+				inPath);
+		}
 		
-			long startTime = System.currentTimeMillis();
-			parseArgs(args);
+		BuildUtils.initHibernate(dbname, username, password);
 			
-			File file = new File(inPath);
-			boolean isDir = file.isDirectory();
-			if (isDir) {
-				System.out.println("Building annotations from directory " + 
-					inPath);
-			} else {
-				System.out.println("Building annotations from file " + 
-					inPath);
-			}
+		//	Build files, file or directory.
 			
-			BuildUtils.initHibernate(dbname, username, password);
-				
-			//	Build file or directory.
-				
-			if (isDir) {
-				buildDir(file);
-			} else {
-				buildFile(file);
-			}
-			
-			//	Report final stats.
-			
-			long endTime = System.currentTimeMillis();
-			System.out.println();
-			System.out.println(
-				Formatters.formatIntegerWithCommas(totalAnnotations) + 
-				" total" +
-				(totalAnnotations == 1 ? " annotation" : " annotations") +
-				" created in " +
-				BuildUtils.formatElapsedTime(startTime, endTime));
-			BuildUtils.reportNumErrors();
-			
-		} catch (Exception e) {
+		if (files != null) {
+			for (Iterator it = files.iterator(); it.hasNext(); )
+				buildFile((File)it.next());
+		} else if (isDir) {
+			buildDir(file);
+		} else {
+			buildFile(file);
+		}
+		
+		//	Report final stats.
 		
+		long endTime = System.currentTimeMillis();
+		System.out.println();
+		System.out.println(
+			Formatters.formatIntegerWithCommas(totalAnnotations) + 
+			" total" +
+			(totalAnnotations == 1 ? " annotation" : " annotations") +
+			" created in " +
+			BuildUtils.formatElapsedTime(startTime, endTime));
+		BuildUtils.reportNumErrors();
+	}
+
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+	
+	public static void main (final String args[]) {
+		try {
+			build(args);
+		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
-			
 		}
-		
 	}
 
 	/**	Hides the default no-arg constructor.
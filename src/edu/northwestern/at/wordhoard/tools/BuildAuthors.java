@@ -117,83 +117,93 @@ public class BuildAuthors {
 		authorTableExporterImporter.println();
 	}
 
-	/**	The main program.
+	/**	Builds the authors.
 	 *
 	 *	@param	args		Command line arguments.
+	 *
+	 *	@throws	Exception	general error.
 	 */
 	
-	public static void main (final String args[]) {
+	public static void build (final String args[])
+		throws Exception
+	{
+		long startTime = System.currentTimeMillis();
 	
-		try {
+		int numArgs = args.length;
+		if (numArgs != 4) {
+			System.out.println("Usage: BuildAuthors in dbname username password");
+			System.exit(1);
+		}
+		String in = args[0];
+		String dbname = args[1];
+		String username = args[2];
+		String password = args[3];
 		
-			long startTime = System.currentTimeMillis();
+		System.out.println("Building authors from file " + in);
 		
-			int numArgs = args.length;
-			if (numArgs != 4) {
-				System.out.println("Usage: BuildAuthors in dbname username password");
-				System.exit(1);
-			}
-			String in = args[0];
-			String dbname = args[1];
-			String username = args[2];
-			String password = args[3];
-			
-			System.out.println("Building authors from file " + in);
-			
-			Connection c = BuildUtils.getConnection(dbname, username, password);
-				
-			Statement s = c.createStatement();
-			int n = s.executeUpdate("delete from author");
-			if (n > 0) System.out.println(n +
-				(n == 1 ? " author" : " authors") + " deleted");
-			s.close();
+		Connection c = BuildUtils.getConnection(dbname, username, password);
 			
-			String tempDirPath = BuildUtils.createTempDir() + "/";
-			
-			authorTableExporterImporter =
-				new TableExporterImporter("author",
-					"name_string, name_charset, " +
-					"birthYear, deathYear, " +
-					"earliestWorkYear, latestWorkYear",
-					tempDirPath + "author.txt",
-					false);
-			
-			Document document = DOMUtils.parse(in);
-			
-			Element el = DOMUtils.getDescendant(document, "WordHoardAuthors");
-			if (el == null) {
-				BuildUtils.emsg("Missing required WordHoardAuthors element");
-				return;
-			}
-			
-			NodeList children = el.getChildNodes();
-			int numChildren = children.getLength();
-			for (int i = 0; i < numChildren; i++) {
-				Node child = children.item(i);
-				if (!(child instanceof Element)) continue;
-				String childName = child.getNodeName();
-				Element childEl = (Element)child;
-				if (childName.equals("author")) {
-					buildAuthor(childEl);
-				} else {
-					BuildUtils.emsg("Illegal element: " + childName);
-				}
+		Statement s = c.createStatement();
+		int n = s.executeUpdate("delete from author");
+		if (n > 0) System.out.println(n +
+			(n == 1 ? " author" : " authors") + " deleted");
+		s.close();
+		
+		String tempDirPath = BuildUtils.createTempDir() + "/";
+		
+		authorTableExporterImporter =
+			new TableExporterImporter("author",
+				"name_string, name_charset, " +
+				"birthYear, deathYear, " +
+				"earliestWorkYear, latestWorkYear",
+				tempDirPath + "author.txt",
+				false);
+		
+		Document document = DOMUtils.parse(in);
+		
+		Element el = DOMUtils.getDescendant(document, "WordHoardAuthors");
+		if (el == null) {
+			BuildUtils.emsg("Missing required WordHoardAuthors element");
+			return;
+		}
+		
+		NodeList children = el.getChildNodes();
+		int numChildren = children.getLength();
+		for (int i = 0; i < numChildren; i++) {
+			Node child = children.item(i);
+			if (!(child instanceof Element)) continue;
+			String childName = child.getNodeName();
+			Element childEl = (Element)child;
+			if (childName.equals("author")) {
+				buildAuthor(childEl);
+			} else {
+				BuildUtils.emsg("Illegal element: " + childName);
 			}
-			
-			authorTableExporterImporter.close();
-			int ct = authorTableExporterImporter.importData(c);
-			
-			c.close();
-			
-			BuildUtils.deleteTempDir();
-			
-			long endTime = System.currentTimeMillis();
-			System.out.println(Formatters.formatIntegerWithCommas(ct) +
-				(ct == 1 ? " author" : " authors") +
-				" created in " + 
-				BuildUtils.formatElapsedTime(startTime, endTime));
-			BuildUtils.reportNumErrors();
-				
+		}
+		
+		authorTableExporterImporter.close();
+		int ct = authorTableExporterImporter.importData(c);
+		
+		c.close();
+		
+		BuildUtils.deleteTempDir();
+		
+		long endTime = System.currentTimeMillis();
+		System.out.println(Formatters.formatIntegerWithCommas(ct) +
+			(ct == 1 ? " author" : " authors") +
+			" created in " + 
+			BuildUtils.formatElapsedTime(startTime, endTime));
+		BuildUtils.reportNumErrors();
+	}
+
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+	
+	public static void main (final String args[]) {
+		try {
+			build(args);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
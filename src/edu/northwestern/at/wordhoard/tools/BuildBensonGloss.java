@@ -325,104 +325,114 @@ public class BuildBensonGloss {
 		}
 	}
 
-	/**	The main program.
+	/**	Builds the Benson glosses.
 	 *
 	 *	@param	args		Command line arguments.
+	 *
+	 *	@throws	Exception	general error.
 	 */
 	
-	public static void main (final String args[]) {
+	public static void build (final String args[])
+		throws Exception
+	{
+		long startTime = System.currentTimeMillis();
 	
-		try {
+		int numArgs = args.length;
+		if (numArgs != 4) {
+			System.out.println("Usage: BuildBensonGloss in dbname username password");
+			System.exit(1);
+		}
+		String in = args[0];
+		String dbname = args[1];
+		String username = args[2];
+		String password = args[3];
 		
-			long startTime = System.currentTimeMillis();
+		System.out.println("Building Benson glosses from file " + 
+			in);
 		
-			int numArgs = args.length;
-			if (numArgs != 4) {
-				System.out.println("Usage: BuildBensonGloss in dbname username password");
-				System.exit(1);
-			}
-			String in = args[0];
-			String dbname = args[1];
-			String username = args[2];
-			String password = args[3];
-			
-			System.out.println("Building Benson glosses from file " + 
-				in);
-			
-			Connection c = BuildUtils.getConnection(dbname, username, password);
-				
-			Statement s = c.createStatement();
-			int n = s.executeUpdate("delete from bensonpos");
-			if (n > 0) System.out.println(
-				Formatters.formatIntegerWithCommas(n) + 
-				" BensonPos " +
-				(n == 1 ? "object" : "objects") +
-				" deleted");
-			n = s.executeUpdate("delete from bensonlemma");
-			if (n > 0) System.out.println(
-				Formatters.formatIntegerWithCommas(n) + 
-				" BensonLemma " +
-				(n == 1 ? "object" : "objects") +
-				" deleted");
-			n = s.executeUpdate("delete from bensonlempos");
-			if (n > 0) System.out.println(
-				Formatters.formatIntegerWithCommas(n) + 
-				" BensonLemPos " +
-				(n == 1 ? "object" : "objects") +
-				" deleted");
-			s.close();
-				
-			String tempDirPath = BuildUtils.createTempDir() + "/";
-			posTableExporterImporter =
-				new TableExporterImporter("bensonpos", 
-					null, 
-					tempDirPath + "bensonPos.txt", 
-					false);
-			lemmaTableExporterImporter =
-				new TableExporterImporter("bensonlemma", 
-					null, 
-					tempDirPath + "bensonLemma.txt", 
-					false);
-			lemPosTableExporterImporter =
-				new TableExporterImporter("bensonlempos", 
-					null, 
-					tempDirPath + "bensonLemPos.txt", 
-					false);
-			
-			document = DOMUtils.parse(in);
-			
-			buildPos();
-			buildLemma();
-			buildLemPos();
-			
-			posTableExporterImporter.close();
-			int posCt = posTableExporterImporter.importData(c);
-			lemmaTableExporterImporter.close();
-			int lemmaCt = lemmaTableExporterImporter.importData(c);
-			lemPosTableExporterImporter.close();
-			int lemPosCt = lemPosTableExporterImporter.importData(c);
-			
-			c.close();
+		Connection c = BuildUtils.getConnection(dbname, username, password);
 			
-			BuildUtils.deleteTempDir();
+		Statement s = c.createStatement();
+		int n = s.executeUpdate("delete from bensonpos");
+		if (n > 0) System.out.println(
+			Formatters.formatIntegerWithCommas(n) + 
+			" BensonPos " +
+			(n == 1 ? "object" : "objects") +
+			" deleted");
+		n = s.executeUpdate("delete from bensonlemma");
+		if (n > 0) System.out.println(
+			Formatters.formatIntegerWithCommas(n) + 
+			" BensonLemma " +
+			(n == 1 ? "object" : "objects") +
+			" deleted");
+		n = s.executeUpdate("delete from bensonlempos");
+		if (n > 0) System.out.println(
+			Formatters.formatIntegerWithCommas(n) + 
+			" BensonLemPos " +
+			(n == 1 ? "object" : "objects") +
+			" deleted");
+		s.close();
 			
-			long endTime = System.currentTimeMillis();
-			System.out.println(Formatters.formatIntegerWithCommas(posCt) +
-				" BensonPos" +
-				(posCt == 1 ? " object" : " objects") +
-				" created");
-			System.out.println(Formatters.formatIntegerWithCommas(lemmaCt) +
-				" BensonLemma" +
-				(lemmaCt == 1 ? " object" : " objects") +
-				" created");
-			System.out.println(Formatters.formatIntegerWithCommas(lemPosCt) +
-				" BensonLemPos" +
-				(lemPosCt == 1 ? " object" : " objects") +
-				" created");
-			System.out.println("Time: " + 
-				BuildUtils.formatElapsedTime(startTime, endTime));
-			BuildUtils.reportNumErrors();
+		String tempDirPath = BuildUtils.createTempDir() + "/";
+		posTableExporterImporter =
+			new TableExporterImporter("bensonpos", 
+				null, 
+				tempDirPath + "bensonPos.txt", 
+				false);
+		lemmaTableExporterImporter =
+			new TableExporterImporter("bensonlemma", 
+				null, 
+				tempDirPath + "bensonLemma.txt", 
+				false);
+		lemPosTableExporterImporter =
+			new TableExporterImporter("bensonlempos", 
+				null, 
+				tempDirPath + "bensonLemPos.txt", 
+				false);
+		
+		document = DOMUtils.parse(in);
+		
+		buildPos();
+		buildLemma();
+		buildLemPos();
+		
+		posTableExporterImporter.close();
+		int posCt = posTableExporterImporter.importData(c);
+		lemmaTableExporterImporter.close();
+		int lemmaCt = lemmaTableExporterImporter.importData(c);
+		lemPosTableExporterImporter.close();
+		int lemPosCt = lemPosTableExporterImporter.importData(c);
+		
+		c.close();
+		
+		BuildUtils.deleteTempDir();
+		
+		long endTime = System.currentTimeMillis();
+		System.out.println(Formatters.formatIntegerWithCommas(posCt) +
+			" BensonPos" +
+			(posCt == 1 ? " object" : " objects") +
+			" created");
+		System.out.println(Formatters.formatIntegerWithCommas(lemmaCt) +
+			" BensonLemma" +
+			(lemmaCt == 1 ? " object" : " objects") +
+			" created");
+		System.out.println(Formatters.formatIntegerWithCommas(lemPosCt) +
+			" BensonLemPos" +
+			(lemPosCt == 1 ? " object" : " objects") +
+			" created");
+		System.out.println("Time: " + 
+			BuildUtils.formatElapsedTime(startTime, endTime));
+		BuildUtils.reportNumErrors();
+	}
 
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+	
+	public static void main (final String args[]) {
+		try {
+			build(args);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
@@ -411,140 +411,150 @@ public class BuildCorpora {
 		return true;
 	}
 
-	/**	The main program.
+	/**	Builds the corpora.
 	 *
 	 *	@param	args		Command line arguments.
+	 *
+	 *	@throws	Exception	general error.
 	 */
 	
-	public static void main (final String args[]) {
+	public static void build (final String args[])
+		throws Exception
+	{
+		long startTime = System.currentTimeMillis();
 	
-		try {
+		int numArgs = args.length;
+		if (numArgs != 4) {
+			System.out.println("Usage: BuildCorpora in dbname username password");
+			System.exit(1);
+		}
+		String in = args[0];
+		String dbname = args[1];
+		String username = args[2];
+		String password = args[3];
 		
-			long startTime = System.currentTimeMillis();
+		System.out.println("Building corpora from file " + in);
 		
-			int numArgs = args.length;
-			if (numArgs != 4) {
-				System.out.println("Usage: BuildCorpora in dbname username password");
-				System.exit(1);
-			}
-			String in = args[0];
-			String dbname = args[1];
-			String username = args[2];
-			String password = args[3];
-			
-			System.out.println("Building corpora from file " + in);
-			
-			Connection c = BuildUtils.getConnection(dbname, username, password);
+		Connection c = BuildUtils.getConnection(dbname, username, password);
 
-			Statement s = c.createStatement();
-			int n = s.executeUpdate("delete from corpus");
-			s.executeUpdate("delete from corpus_tconviews");
-			s.executeUpdate("delete from tconview");
-			s.executeUpdate("delete from tconview_worktags");
-			s.executeUpdate("delete from tconview_categories");
-			s.executeUpdate("delete from tconcategory");
-			s.executeUpdate("delete from tconcategory_worktags");
-			if (n > 0) System.out.println(n +
-				(n == 1 ? " corpus" : " corpora") + " deleted");
-			s.close();
+		Statement s = c.createStatement();
+		int n = s.executeUpdate("delete from corpus");
+		s.executeUpdate("delete from corpus_tconviews");
+		s.executeUpdate("delete from tconview");
+		s.executeUpdate("delete from tconview_worktags");
+		s.executeUpdate("delete from tconview_categories");
+		s.executeUpdate("delete from tconcategory");
+		s.executeUpdate("delete from tconcategory_worktags");
+		if (n > 0) System.out.println(n +
+			(n == 1 ? " corpus" : " corpora") + " deleted");
+		s.close();
+		
+		String tempDirPath = BuildUtils.createTempDir() + "/";
 			
-			String tempDirPath = BuildUtils.createTempDir() + "/";
+		corpusTableExporterImporter =
+			new TableExporterImporter("corpus",
+				"id, tag, title, charset, postype, taggingData_flags, " +
+				"numWorkParts, numLines, numWords, " +
+				"maxWordPathLength, translations, tranDescription, " +
+				"ordinal",
+				tempDirPath + "corpus.txt",
+				false);
 				
-			corpusTableExporterImporter =
-				new TableExporterImporter("corpus",
-					"id, tag, title, charset, postype, taggingData_flags, " +
-					"numWorkParts, numLines, numWords, " +
-					"maxWordPathLength, translations, tranDescription, " +
-					"ordinal",
-					tempDirPath + "corpus.txt",
-					false);
-					
-			corpusTconViewsTableExporterImporter =
-				new TableExporterImporter("corpus_tconviews",
-					"corpus, tconview, corpus_index",
-					tempDirPath + "corpusTconViews.txt",
-					false);
-					
-			tconViewTableExporterImporter =
-				new TableExporterImporter("tconview",
-					"id, viewType, radioButtonLabel",
-					tempDirPath + "tconView.txt",
-					false);
-					
-			tconViewWorkTagsTableExporterImporter =
-				new TableExporterImporter("tconview_worktags",
-					"tconview, worktag, tconview_index",
-					tempDirPath + "tconViewWorkTags.txt",
-					false);
-					
-			tconViewCategoriesTableExporterImporter =
-				new TableExporterImporter("tconview_categories",
-					"tconview, category, tconview_index",
-					tempDirPath + "tconViewCategories.txt",
-					false);
-					
-			tconCategoryTableExporterImporter =
-				new TableExporterImporter("tconcategory",
-					"id, title",
-					tempDirPath + "tconCategory.txt",
-					false);
-					
-			tconCategoryWorkTagsTableExporterImporter =
-				new TableExporterImporter("tconcategory_worktags",
-					"tconcategory, worktag, tconcategory_index",
-					tempDirPath + "tconCategoryWorkTags.txt",
-					false);
-			
-			Document document = DOMUtils.parse(in);
-			
-			Element el = DOMUtils.getDescendant(document, "WordHoardCorpora");
-			if (el == null) {
-				BuildUtils.emsg("Missing required WordHoardCorpora element");
-				return;
-			}
-			
-			NodeList children = el.getChildNodes();
-			int numChildren = children.getLength();
-			int ordinal = 0;
-			for (int i = 0; i < numChildren; i++) {
-				Node child = children.item(i);
-				if (!(child instanceof Element)) continue;
-				String childName = child.getNodeName();
-				Element childEl = (Element)child;
-				if (childName.equals("corpus")) {
-					buildCorpus(childEl, ordinal++);
-				} else {
-					BuildUtils.emsg("Illegal element: " + childName);
-				}
-			}
-			
-			corpusTableExporterImporter.close();
-			int ct = corpusTableExporterImporter.importData(c);
-			
-			corpusTconViewsTableExporterImporter.close();
-			corpusTconViewsTableExporterImporter.importData(c);
-			tconViewTableExporterImporter.close();
-			tconViewTableExporterImporter.importData(c);
-			tconViewWorkTagsTableExporterImporter.close();
-			tconViewWorkTagsTableExporterImporter.importData(c);
-			tconViewCategoriesTableExporterImporter.close();
-			tconViewCategoriesTableExporterImporter.importData(c);
-			tconCategoryTableExporterImporter.close();
-			tconCategoryTableExporterImporter.importData(c);
-			tconCategoryWorkTagsTableExporterImporter.close();
-			tconCategoryWorkTagsTableExporterImporter.importData(c);
-			
-			c.close();
-			
-			BuildUtils.deleteTempDir();
-			
-			long endTime = System.currentTimeMillis();
-			System.out.println(Formatters.formatIntegerWithCommas(ct) +
-				(ct == 1 ? " corpus" : " corpora") +
-				" created in " +
-				BuildUtils.formatElapsedTime(startTime, endTime));
-			BuildUtils.reportNumErrors();
+		corpusTconViewsTableExporterImporter =
+			new TableExporterImporter("corpus_tconviews",
+				"corpus, tconview, corpus_index",
+				tempDirPath + "corpusTconViews.txt",
+				false);
+				
+		tconViewTableExporterImporter =
+			new TableExporterImporter("tconview",
+				"id, viewType, radioButtonLabel",
+				tempDirPath + "tconView.txt",
+				false);
+				
+		tconViewWorkTagsTableExporterImporter =
+			new TableExporterImporter("tconview_worktags",
+				"tconview, worktag, tconview_index",
+				tempDirPath + "tconViewWorkTags.txt",
+				false);
 				
+		tconViewCategoriesTableExporterImporter =
+			new TableExporterImporter("tconview_categories",
+				"tconview, category, tconview_index",
+				tempDirPath + "tconViewCategories.txt",
+				false);
+				
+		tconCategoryTableExporterImporter =
+			new TableExporterImporter("tconcategory",
+				"id, title",
+				tempDirPath + "tconCategory.txt",
+				false);
+				
+		tconCategoryWorkTagsTableExporterImporter =
+			new TableExporterImporter("tconcategory_worktags",
+				"tconcategory, worktag, tconcategory_index",
+				tempDirPath + "tconCategoryWorkTags.txt",
+				false);
+		
+		Document document = DOMUtils.parse(in);
+		
+		Element el = DOMUtils.getDescendant(document, "WordHoardCorpora");
+		if (el == null) {
+			BuildUtils.emsg("Missing required WordHoardCorpora element");
+			return;
+		}
+		
+		NodeList children = el.getChildNodes();
+		int numChildren = children.getLength();
+		int ordinal = 0;
+		for (int i = 0; i < numChildren; i++) {
+			Node child = children.item(i);
+			if (!(child instanceof Element)) continue;
+			String childName = child.getNodeName();
+			Element childEl = (Element)child;
+			if (childName.equals("corpus")) {
+				buildCorpus(childEl, ordinal++);
+			} else {
+				BuildUtils.emsg("Illegal element: " + childName);
+			}
+		}
+		
+		corpusTableExporterImporter.close();
+		int ct = corpusTableExporterImporter.importData(c);
+		
+		corpusTconViewsTableExporterImporter.close();
+		corpusTconViewsTableExporterImporter.importData(c);
+		tconViewTableExporterImporter.close();
+		tconViewTableExporterImporter.importData(c);
+		tconViewWorkTagsTableExporterImporter.close();
+		tconViewWorkTagsTableExporterImporter.importData(c);
+		tconViewCategoriesTableExporterImporter.close();
+		tconViewCategoriesTableExporterImporter.importData(c);
+		tconCategoryTableExporterImporter.close();
+		tconCategoryTableExporterImporter.importData(c);
+		tconCategoryWorkTagsTableExporterImporter.close();
+		tconCategoryWorkTagsTableExporterImporter.importData(c);
+		
+		c.close();
+		
+		BuildUtils.deleteTempDir();
+		
+		long endTime = System.currentTimeMillis();
+		System.out.println(Formatters.formatIntegerWithCommas(ct) +
+			(ct == 1 ? " corpus" : " corpora") +
+			" created in " +
+			BuildUtils.formatElapsedTime(startTime, endTime));
+		BuildUtils.reportNumErrors();
+	}
+
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+	
+	public static void main (final String args[]) {
+		try {
+			build(args);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
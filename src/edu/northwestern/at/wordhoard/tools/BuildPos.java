@@ -290,94 +290,104 @@ public class BuildPos {
 		posTableExporterImporter.println();
 	}
 
-	/**	The main program.
+	/**	Builds the parts of speech.
 	 *
 	 *	@param	args		Command line arguments.
+	 *
+	 *	@throws	Exception	general error.
 	 */
 	
-	public static void main (final String args[]) {
+	public static void build (final String args[])
+		throws Exception
+	{
+		long startTime = System.currentTimeMillis();
 	
-		try {
+		int numArgs = args.length;
+		if (numArgs != 4) {
+			System.out.println("Usage: BuildPos in dbname username password");
+			System.exit(1);
+		}
+		String in = args[0];
+		String dbname = args[1];
+		String username = args[2];
+		String password = args[3];
 		
-			long startTime = System.currentTimeMillis();
+		System.out.println("Building parts of speech from file " + 
+			in);
 		
-			int numArgs = args.length;
-			if (numArgs != 4) {
-				System.out.println("Usage: BuildPos in dbname username password");
-				System.exit(1);
-			}
-			String in = args[0];
-			String dbname = args[1];
-			String username = args[2];
-			String password = args[3];
-			
-			System.out.println("Building parts of speech from file " + 
-				in);
+		Connection c = BuildUtils.getConnection(dbname, username, password);
 			
-			Connection c = BuildUtils.getConnection(dbname, username, password);
-				
-			Statement s = c.createStatement();
-			int n = s.executeUpdate("delete from pos");
-			if (n > 0) System.out.println(n +
-				(n == 1 ? " part" : " parts") +
-				" of speech deleted");
-			s.close();
-				
-			String tempDirPath = BuildUtils.createTempDir() + "/";
-				
-			posTableExporterImporter =
-				new TableExporterImporter("pos", 
-					"tag, description, wordClass, syntax, tense, mood, voice, " +
-					"xcase, gender, person, number, degree, negative, language",
-					tempDirPath + "pos.txt",
-					false);
+		Statement s = c.createStatement();
+		int n = s.executeUpdate("delete from pos");
+		if (n > 0) System.out.println(n +
+			(n == 1 ? " part" : " parts") +
+			" of speech deleted");
+		s.close();
 			
-			wordClassMap = BuildUtils.getWordClassMap(c);
-			if (wordClassMap.size() == 0) {
-				BuildUtils.emsg("No word classes found");
-				return;
-			}
-			
-			Document document = DOMUtils.parse(in);
+		String tempDirPath = BuildUtils.createTempDir() + "/";
 			
-			Element el = DOMUtils.getDescendant(document, 
-				"WordHoardPos");
-			if (el == null) {
-				BuildUtils.emsg("Missing required WordHoardPos element");
-				return;
-			}
-			
-			NodeList children = el.getChildNodes();
-			int numChildren = children.getLength();
-			for (int i = 0; i < numChildren; i++) {
-				Node child = children.item(i);
-				if (!(child instanceof Element)) continue;
-				String childName = child.getNodeName();
-				Element childEl = (Element)child;
-				if (childName.equals("pos")) {
-					buildPos(childEl);
-				} else {
-					BuildUtils.emsg("Illegal element: " + childName);
-				}
+		posTableExporterImporter =
+			new TableExporterImporter("pos", 
+				"tag, description, wordClass, syntax, tense, mood, voice, " +
+				"xcase, gender, person, number, degree, negative, language",
+				tempDirPath + "pos.txt",
+				false);
+		
+		wordClassMap = BuildUtils.getWordClassMap(c);
+		if (wordClassMap.size() == 0) {
+			BuildUtils.emsg("No word classes found");
+			return;
+		}
+		
+		Document document = DOMUtils.parse(in);
+		
+		Element el = DOMUtils.getDescendant(document, 
+			"WordHoardPos");
+		if (el == null) {
+			BuildUtils.emsg("Missing required WordHoardPos element");
+			return;
+		}
+		
+		NodeList children = el.getChildNodes();
+		int numChildren = children.getLength();
+		for (int i = 0; i < numChildren; i++) {
+			Node child = children.item(i);
+			if (!(child instanceof Element)) continue;
+			String childName = child.getNodeName();
+			Element childEl = (Element)child;
+			if (childName.equals("pos")) {
+				buildPos(childEl);
+			} else {
+				BuildUtils.emsg("Illegal element: " + childName);
 			}
-			
-			posTableExporterImporter.close();
-			int ct = posTableExporterImporter.importData(c);
-			
-			c.close();
+		}
+		
+		posTableExporterImporter.close();
+		int ct = posTableExporterImporter.importData(c);
+		
+		c.close();
 
-			BuildUtils.deleteTempDir();
-			
-			checkIds(DOMUtils.getChildren(el, "pos", "language", "greek"));
-			
-			long endTime = System.currentTimeMillis();
-			System.out.println(Formatters.formatIntegerWithCommas(ct) + 
-				(ct == 1 ? " part" : " parts") +
-				" of speech" +
-				" created in " +
-				BuildUtils.formatElapsedTime(startTime, endTime));
-			BuildUtils.reportNumErrors();
-				
+		BuildUtils.deleteTempDir();
+		
+		checkIds(DOMUtils.getChildren(el, "pos", "language", "greek"));
+		
+		long endTime = System.currentTimeMillis();
+		System.out.println(Formatters.formatIntegerWithCommas(ct) + 
+			(ct == 1 ? " part" : " parts") +
+			" of speech" +
+			" created in " +
+			BuildUtils.formatElapsedTime(startTime, endTime));
+		BuildUtils.reportNumErrors();
+	}
+
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+	
+	public static void main (final String args[]) {
+		try {
+			build(args);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
@@ -293,57 +293,86 @@ public class BuildTranslations {
 		}
 	}
 
-	/**	The main program.
+	/**	Builds translations.
+	 *
+	 *	@param	args		Command line arguments.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+	
+	public static void build (final String args[])
+		throws Exception
+	{
+		build(args, null);
+	}
+
+	/**	Builds translations from selected files.
 	 *
 	 *	@param	args		Command line arguments.
+	 *
+	 *	@param	files		List of files to build, or null to build the
+	 *						input file or directory.
+	 *
+	 *	@throws	Exception	general error.
 	 */
 	
-	public static void main  (final String args[]) {
+	public static void build (final String args[], List files)
+		throws Exception
+	{
+		//	Initialize.
 	
-		try {
+		long startTime = System.currentTimeMillis();
+		parseArgs(args);
 		
-			//	Initialize.
+		File file = new File(inPath);
+		boolean isDir = file.isDirectory();
+		if (files != null) {
+			System.out.println("Building translations from " +
+				files.size() + (files.size() == 1 ? " file" : " files"));
+		} else if (isDir) {
+			System.out.println("Building translations from directory " + 
+				inPath);
+		} else {
+			System.out.println("Building translation from file " + 
+				inPath);
+		}
 		
-			long startTime = System.currentTimeMillis();
-			parseArgs(args);
-			
-			File file = new File(inPath);
-			boolean isDir = file.isDirectory();
-			if (isDir) {
-				System.out.println("Building translations from directory " + 
-					inPath);
-			} else {
-				System.out.println("Building translation from file " + 
-					inPath);
-			}
+		BuildUtils.initHibernate(dbname, username, password);
 			
-			BuildUtils.initHibernate(dbname, username, password);
-				
-			//	Build file or directory.
-				
-			if (isDir) {
-				buildDir(file);
-			} else {
-				buildFile(file);
-			}
-			
-			//	Report final stats.
+		//	Build files, file or directory.
 			
-			long endTime = System.currentTimeMillis();
-			System.out.println();
-			System.out.println(Formatters.formatIntegerWithCommas(numFiles) + 
-				(numFiles == 1 ? " translation" : " translations") +
-				" created in " +
-				BuildUtils.formatElapsedTime(startTime, endTime));
-			BuildUtils.reportNumErrors();
-			
-		} catch (Exception e) {
+		if (files != null) {
+			for (Iterator it = files.iterator(); it.hasNext(); )
+				buildFile((File)it.next());
+		} else if (isDir) {
+			buildDir(file);
+		} else {
+			buildFile(file);
+		}
 		
+		//	Report final stats.
+		
+		long endTime = System.currentTimeMillis();
+		System.out.println();
+		System.out.println(Formatters.formatIntegerWithCommas(numFiles) + 
+			(numFiles == 1 ? " translation" : " translations") +
+			" created in " +
+			BuildUtils.formatElapsedTime(startTime, endTime));
+		BuildUtils.reportNumErrors();
+	}
+
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+	
+	public static void main (final String args[]) {
+		try {
+			build(args);
+		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
-			
 		}
-		
 	}
 
 	/**	Hides the default no-arg constructor.
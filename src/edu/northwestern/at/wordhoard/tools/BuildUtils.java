@@ -5,6 +5,10 @@ package edu.northwestern.at.wordhoard.tools;
 import java.util.*;
 import java.io.*;
 import java.sql.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -12,15 +16,37 @@ import org.w3c.dom.NodeList;
 
 import edu.northwestern.at.wordhoard.model.*;
 import edu.northwestern.at.wordhoard.model.wrappers.*;
+import edu.northwestern.at.utils.*;
+import edu.northwestern.at.utils.db.jdbc.*;
+import edu.northwestern.at.utils.db.mysql.*;
 
 /**	Build utilities.
  */
  
 public class BuildUtils {
 
-	/**	Path to temp dir. */
+	/**	Default path to temp dir. */
 	
 	private static String TEMP_DIR_PATH = "temp";
+	
+	/**	Path to temp dir for the current thread and the threads it starts. */
+	
+	private static InheritableThreadLocal tempDirPath =
+		new InheritableThreadLocal() {
+			protected Object initialValue () {
+				return TEMP_DIR_PATH;
+			}
+		};
+	
+	/**	Shared connection pool, or null to open a new connection for each
+	 *	request.
+	 */
+	
+	private static SimpleConnectionPool connectionPool;
+	
+	/**	Database URL Hibernate was initialized with, or null if none. */
+	
+	private static String hibernateUrl;
 
 	/**	Number of error messages issued. */
 	
@@ -31,7 +57,7 @@ public class BuildUtils {
 	 *	@param	msg		Error message.
 	 */
 	 
-	public static void emsg (String msg) {
+	public static synchronized void emsg (String msg) {
 		System.out.println("##### " + msg);
 		numErrors++;
 	}
@@ -45,9 +71,39 @@ public class BuildUtils {
 		return numErrors;
 	}
 	
+	/**	Gets the JDBC URL for a database.
+	 *
+	 *	@param	dbname		Database name. May be in form "dbname" for a database on
+	 *						localhost or in form "host/dbname" or "host:port/dbname" for a 
+	 *						database on a remote host.
+	 *
+	 *	@return		JDBC URL, with "load data local infile" enabled.
+	 */
+	 
+	private static String getUrl (String dbname) {
+		String hostAndName;
+		if (isRemote(dbname)) {
+			hostAndName = dbname;
+		} else {
+			hostAndName = "localhost/" + dbname;
+		}
+		return "jdbc:mysql://" + hostAndName +
+			"?characterEncoding=UTF-8&useCompression=true&useSSL=true&verifyServerCertificate=false" +
+			"&allowLoadLocalInfile=true";
+	}
+	
 	/**	Gets a connection to the static object model database.
 	 *
-	 *	@param	dbname		Database name.
+	 *	<p>"load data local infile" is enabled on the connection, for
+	 *	importing tables into a database on a remote host.
+	 *
+	 *	<p>If a shared connection pool has been set, the connection is
+	 *	checked out of the pool, and closing it returns it to the pool.
+	 *	The pool must be for the same database.
+	 *
+	 *	@param	dbname		Database name. May be in form "dbname" for a database on
+	 *						localhost or in form "host/dbname" or "host:port/dbname" for a 
+	 *						database on a remote host.
 	 *
 	 *	@param	username	MySQL username.
 	 *
@@ -61,14 +117,200 @@ public class BuildUtils {
 	public static Connection getConnection (String dbname, String username, String password) 
 		throws Exception
 	{
+		SimpleConnectionPool pool = connectionPool;
+		if (pool != null) return getPooledConnection(pool);
 		Class.forName("com.mysql.cj.jdbc.Driver");
-		ClassLoader loader = BuildUtils.class.getClassLoader();
-		String url = "jdbc:mysql://localhost/" + dbname +
-			"?characterEncoding=UTF-8&useCompression=true&useSSL=true&verifyServerCertificate=false";
-		return DriverManager.getConnection(url, username, password);
+		return DriverManager.getConnection(getUrl(dbname), username, password);
+	}
+	
+	/**	Creates a connection pool for the static object model database.
+	 *
+	 *	<p>Pooled connections autocommit, like the connections returned by
+	 *	{@link #getConnection getConnection} without a pool. A request for
+	 *	a connection when all of them are checked out waits for one to be
+	 *	returned.
+	 *
+	 *	@param	dbname		Database name, in form "dbname", "host/dbname" or
+	 *						"host:port/dbname".
+	 *
+	 *	@param	username	MySQL username.
+	 *
+	 *	@param	password	MySQL password.
+	 *
+	 *	@param	maxPoolSize	Maximum number of connections checked out at once.
+	 *
+	 *	@return		The connection pool.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+	 
+	public static SimpleConnectionPool createConnectionPool (String dbname,
+		String username, String password, int maxPoolSize)
+			throws Exception
+	{
+		Properties properties = new Properties();
+		properties.setProperty("driverClassName", "com.mysql.cj.jdbc.Driver");
+		properties.setProperty("url", getUrl(dbname));
+		properties.setProperty("username", username);
+		properties.setProperty("password", password);
+		properties.setProperty("maxPoolSize", Integer.toString(maxPoolSize));
+		properties.setProperty("autocommit", "true");
+		properties.setProperty("checkoutTimeout", "3600000");
+		return new SimpleConnectionPool(properties);
+	}
+	
+	/**	Sets the shared connection pool.
+	 *
+	 *	@param	pool	Connection pool used by {@link #getConnection
+	 *					getConnection} from now on, or null to open a new
+	 *					connection for each request.
+	 */
+	 
+	public static void setConnectionPool (SimpleConnectionPool pool) {
+		connectionPool = pool;
+	}
+	
+	/**	Checks out a connection from a pool.
+	 *
+	 *	@param	pool	The connection pool.
+	 *
+	 *	@return		A connection which is returned to the pool when it is
+	 *				closed. Autocommit is turned back on and uncommitted
+	 *				work rolled back when it is returned. If that fails
+	 *				the connection is closed, and the pool's test drops
+	 *				it at the next checkout.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+	 
+	private static Connection getPooledConnection (final SimpleConnectionPool pool)
+		throws Exception
+	{
+		final Connection connection = pool.getConnection();
+		InvocationHandler handler = new InvocationHandler() {
+			private boolean closed;
+			public Object invoke (Object proxy, Method method, Object[] args)
+				throws Throwable
+			{
+				String name = method.getName();
+				synchronized (this) {
+					if (name.equals("close")) {
+						if (closed) return null;
+						closed = true;
+						try {
+							if (!connection.getAutoCommit()) {
+								connection.rollback();
+								connection.setAutoCommit(true);
+							}
+							pool.releaseConnection(connection);
+						} catch (SQLException e) {
+							try {
+								connection.close();
+							} finally {
+								pool.releaseConnection(connection);
+							}
+						}
+						return null;
+					} else if (name.equals("isClosed")) {
+						return Boolean.valueOf(closed);
+					} else if (closed) {
+						throw new SQLException("Connection is closed");
+					}
+				}
+				try {
+					return method.invoke(connection, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		};
+		return (Connection)Proxy.newProxyInstance(
+			Connection.class.getClassLoader(),
+			new Class[] {Connection.class},
+			handler);
+	}
+	
+	/**	Returns true if a database is on a remote host.
+	 *
+	 *	<p>Tables in a remote database must be imported with "load data local
+	 *	infile", since the server cannot read our data files.
+	 *
+	 *	@param	dbname		Database name, in form "dbname", "host/dbname" or
+	 *						"host:port/dbname".
+	 *
+	 *	@return		True if the database is on a remote host.
+	 */
+	 
+	public static boolean isRemote (String dbname) {
+		return dbname.indexOf("/") >= 0;
+	}
+	
+	/**	Imports tables into the static object model database.
+	 *
+	 *	<p>Tables are loaded in parallel, one table per connection at a time.
+	 *	The number of rows imported into each table and the time it took
+	 *	are printed in the order the tables are given.
+	 *
+	 *	@param	dbname				Database name, in form "dbname",
+	 *								"host/dbname" or "host:port/dbname".
+	 *
+	 *	@param	username			MySQL username.
+	 *
+	 *	@param	password			MySQL password.
+	 *
+	 *	@param	numConnections		Number of database connections to use.
+	 *
+	 *	@param	names				Table names to print.
+	 *
+	 *	@param	exporterImporters	For each table, the table
+	 *								exporter/importers for its data files.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+	 
+	public static void importTables (String dbname, String username,
+		String password, int numConnections, String[] names,
+		TableExporterImporter[][] exporterImporters)
+			throws Exception
+	{
+		numConnections = Math.max(1, Math.min(numConnections, names.length));
+		Connection[] connections = new Connection[numConnections];
+		try {
+			for (int i = 0; i < numConnections; i++)
+				connections[i] = getConnection(dbname, username, password);
+			TableImporter importer =
+				new TableImporter(connections, isRemote(dbname));
+			for (int i = 0; i < names.length; i++) {
+				for (int j = 0; j < exporterImporters[i].length; j++)
+					importer.add(exporterImporters[i][j]);
+			}
+			long startTime = System.currentTimeMillis();
+			importer.importTables();
+			long endTime = System.currentTimeMillis();
+			for (int i = 0; i < names.length; i++) {
+				String tableName = exporterImporters[i][0].getTableName();
+				int ct = importer.getCount(tableName);
+				long time = importer.getElapsedTime(tableName);
+				System.out.println(
+					Formatters.formatIntegerWithCommas(ct) +
+					(ct == 1 ? " object" : " objects") +
+					" imported into " + names[i] + " table in " +
+					formatElapsedTime(0, time));
+			}
+			if (numConnections > 1)
+				System.out.println("All tables imported in " +
+					formatElapsedTime(startTime, endTime));
+		} finally {
+			for (int i = 0; i < numConnections; i++) {
+				if (connections[i] != null) connections[i].close();
+			}
+		}
 	}
 	
 	/**	Initializes Hibernate.
+	 *
+	 *	<p>Hibernate is only initialized once for a database, so build
+	 *	steps running in the same JVM share its session factory.
 	 *
 	 *	@param	dbname		Database name. May be in form "dbname" for a database on
 	 *						localhost or in form "host/dbname" or "host:port/dbname" for a 
@@ -81,7 +323,7 @@ public class BuildUtils {
 	 *	@throws	Exception	general error.
 	 */
 	 
-	public static void initHibernate (String dbname, String username, String password) 
+	public static synchronized void initHibernate (String dbname, String username, String password) 
 		throws Exception
 	{
 		String hostAndName;
@@ -92,6 +334,7 @@ public class BuildUtils {
 		}
 		String url = "jdbc:mysql://" + hostAndName +
 			"?characterEncoding=UTF-8&useCompression=true&useSSL=true&verifyServerCertificate=false";
+		if (url.equals(hibernateUrl)) return;
 		PersistenceManager.init(
 			url,
 			username,
@@ -100,6 +343,7 @@ public class BuildUtils {
 			PersistentClasses.persistentClasses,
 			false
 		);
+		hibernateUrl = url;
 	}
 	
 	/**	Gets tagging data flags.
@@ -230,6 +474,20 @@ public class BuildUtils {
 		dir.delete();
 	}
 	
+	/**	Sets the temp dir path for the current thread.
+	 *
+	 *	<p>Threads started by the current thread afterwards inherit the
+	 *	path. Build steps which run at the same time in one JVM must use
+	 *	different temp dirs, since each step deletes its temp dir when
+	 *	it is done.
+	 *
+	 *	@param	path	Path to temp dir.
+	 */
+	 
+	public static void setTempDirPath (String path) {
+		tempDirPath.set(path);
+	}
+	
 	/**	Creates the temp dir.
 	 *
 	 *	@return		Path to temp dir.
@@ -240,8 +498,8 @@ public class BuildUtils {
 	public static String createTempDir () 
 		throws Exception
 	{
-		File tempDir = new File(TEMP_DIR_PATH);
-		if (!tempDir.exists()) tempDir.mkdir();
+		File tempDir = new File((String)tempDirPath.get());
+		if (!tempDir.exists()) tempDir.mkdirs();
 		return tempDir.getPath();
 	}
 	
@@ -253,7 +511,7 @@ public class BuildUtils {
 	public static void deleteTempDir ()
 		throws Exception
 	{
-		File tempDir = new File(TEMP_DIR_PATH);
+		File tempDir = new File((String)tempDirPath.get());
 		delete(tempDir);
 	}
 
@@ -82,83 +82,93 @@ public class BuildWordClasses {
 		wordClassTableExporterImporter.println();
 	}
 
-	/**	The main program.
+	/**	Builds the word classes.
 	 *
 	 *	@param	args		Command line arguments.
+	 *
+	 *	@throws	Exception	general error.
 	 */
 	
-	public static void main (final String args[]) {
+	public static void build (final String args[])
+		throws Exception
+	{
+		long startTime = System.currentTimeMillis();
 	
-		try {
+		int numArgs = args.length;
+		if (numArgs != 4) {
+			System.out.println("Usage: BuildWordClasses in dbname username password");
+			System.exit(1);
+		}
+		String in = args[0];
+		String dbname = args[1];
+		String username = args[2];
+		String password = args[3];
 		
-			long startTime = System.currentTimeMillis();
+		System.out.println("Building word classes from file " + in);
 		
-			int numArgs = args.length;
-			if (numArgs != 4) {
-				System.out.println("Usage: BuildWordClasses in dbname username password");
-				System.exit(1);
-			}
-			String in = args[0];
-			String dbname = args[1];
-			String username = args[2];
-			String password = args[3];
-			
-			System.out.println("Building word classes from file " + in);
-			
-			Connection c = BuildUtils.getConnection(dbname, username, password);
+		Connection c = BuildUtils.getConnection(dbname, username, password);
 
-			Statement s = c.createStatement();
-			int n = s.executeUpdate("delete from wordclass");
-			if (n > 0) System.out.println(n +
-				(n == 1 ? " word class" : " word classes") + " deleted");
-			s.close();
-			
-			String tempDirPath = BuildUtils.createTempDir() + "/";
-				
-			wordClassTableExporterImporter =
-				new TableExporterImporter("wordclass",
-					"tag, description, majorWordClass_majorWordClass",
-					tempDirPath + "wordClass.txt",
-					false);
-			
-			Document document = DOMUtils.parse(in);
-			
-			Element el = DOMUtils.getDescendant(document, 
-				"WordHoardWordClasses");
-			if (el == null) {
-				BuildUtils.emsg(
-					"Missing required WordHoardWordClasses element");
-				return;
-			}
+		Statement s = c.createStatement();
+		int n = s.executeUpdate("delete from wordclass");
+		if (n > 0) System.out.println(n +
+			(n == 1 ? " word class" : " word classes") + " deleted");
+		s.close();
+		
+		String tempDirPath = BuildUtils.createTempDir() + "/";
 			
-			NodeList children = el.getChildNodes();
-			int numChildren = children.getLength();
-			for (int i = 0; i < numChildren; i++) {
-				Node child = children.item(i);
-				if (!(child instanceof Element)) continue;
-				String childName = child.getNodeName();
-				Element childEl = (Element)child;
-				if (childName.equals("wordClass")) {
-					buildWordClass(childEl);
-				} else {
-					BuildUtils.emsg("Illegal element: " + childName);
-				}
+		wordClassTableExporterImporter =
+			new TableExporterImporter("wordclass",
+				"tag, description, majorWordClass_majorWordClass",
+				tempDirPath + "wordClass.txt",
+				false);
+		
+		Document document = DOMUtils.parse(in);
+		
+		Element el = DOMUtils.getDescendant(document, 
+			"WordHoardWordClasses");
+		if (el == null) {
+			BuildUtils.emsg(
+				"Missing required WordHoardWordClasses element");
+			return;
+		}
+		
+		NodeList children = el.getChildNodes();
+		int numChildren = children.getLength();
+		for (int i = 0; i < numChildren; i++) {
+			Node child = children.item(i);
+			if (!(child instanceof Element)) continue;
+			String childName = child.getNodeName();
+			Element childEl = (Element)child;
+			if (childName.equals("wordClass")) {
+				buildWordClass(childEl);
+			} else {
+				BuildUtils.emsg("Illegal element: " + childName);
 			}
-			
-			wordClassTableExporterImporter.close();
-			int ct = wordClassTableExporterImporter.importData(c);
-			
-			c.close();
-			
-			BuildUtils.deleteTempDir();
-			
-			long endTime = System.currentTimeMillis();
-			System.out.println(Formatters.formatIntegerWithCommas(ct) +
-				(ct == 1 ? " word class" : " word classes") +
-				" created in " +
-				BuildUtils.formatElapsedTime(startTime, endTime));
-			BuildUtils.reportNumErrors();
-				
+		}
+		
+		wordClassTableExporterImporter.close();
+		int ct = wordClassTableExporterImporter.importData(c);
+		
+		c.close();
+		
+		BuildUtils.deleteTempDir();
+		
+		long endTime = System.currentTimeMillis();
+		System.out.println(Formatters.formatIntegerWithCommas(ct) +
+			(ct == 1 ? " word class" : " word classes") +
+			" created in " +
+			BuildUtils.formatElapsedTime(startTime, endTime));
+		BuildUtils.reportNumErrors();
+	}
+
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+	
+	public static void main (final String args[]) {
+		try {
+			build(args);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
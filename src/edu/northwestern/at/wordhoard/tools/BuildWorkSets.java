@@ -567,48 +567,55 @@ public class BuildWorkSets {
 		}
 	}
 
-	/**	The main program.
+	/**	Builds the system work sets.
 	 *
 	 *	@param	args		Command line arguments.
+	 *
+	 *	@throws	Exception	general error.
 	 */
 	
-	public static void main  (final String args[]) {
+	public static void build (final String args[])
+		throws Exception
+	{
+		//	Initialize.
 	
-		try {
+		long startTime = System.currentTimeMillis();
+		parseArgs(args);
+		System.out.println("Building work sets from file " + inPath);
+		BuildUtils.initHibernate(dbname, username, password);
+		pm = new PersistenceManager();
+		document = DOMUtils.parse(inPath);
 		
-			//	Initialize.
+		//	Delete old system work sets.
 		
-			long startTime = System.currentTimeMillis();
-			parseArgs(args);
-			System.out.println("Building work sets from file " + inPath);
-			BuildUtils.initHibernate(dbname, username, password);
-			pm = new PersistenceManager();
-			document = DOMUtils.parse(inPath);
-			
-			//	Delete old system work sets.
-			
-			deleteOldSystemWorkSets();
-			
-			//	Build new system work sets.
-			
-			buildNewSystemWorkSets();
-			
-			//	Report final stats.
-			
-			long endTime = System.currentTimeMillis();
-			System.out.println(Formatters.formatIntegerWithCommas(numWorkSets) + 
-				(numWorkSets == 1 ? " work set" : " work sets") +
-				" created in " +
-				BuildUtils.formatElapsedTime(startTime, endTime));
-			BuildUtils.reportNumErrors();
-			
-		} catch (Exception e) {
+		deleteOldSystemWorkSets();
+		
+		//	Build new system work sets.
+		
+		buildNewSystemWorkSets();
 		
+		//	Report final stats.
+		
+		long endTime = System.currentTimeMillis();
+		System.out.println(Formatters.formatIntegerWithCommas(numWorkSets) + 
+			(numWorkSets == 1 ? " work set" : " work sets") +
+			" created in " +
+			BuildUtils.formatElapsedTime(startTime, endTime));
+		BuildUtils.reportNumErrors();
+	}
+
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+	
+	public static void main (final String args[]) {
+		try {
+			build(args);
+		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
-			
 		}
-		
 	}
 
 	/**	Hides the default no-arg constructor.
@@ -3,9 +3,13 @@ package edu.northwestern.at.wordhoard.tools;
 /*	Please see the license information at the end of this file. */
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
+import java.nio.channels.*;
 import java.sql.*;
 
+import javax.xml.stream.*;
+
 import org.w3c.dom.*;
 
 import edu.northwestern.at.wordhoard.model.*;
@@ -22,7 +26,8 @@ import edu.northwestern.at.utils.db.mysql.*;
  *
  *	<p>Usage:
  *
- *	<p><code>BuildWorks in db username password [spellings] [debug]</code>
+ *	<p><code>BuildWorks in db username password [spellings] [debug]
+ *	[numThreads]</code>
  *
  *	<p>in = Path to a work definition XML input file, or a path to a directory
  *	of such files. If a directory path is specified, all files in the file
@@ -45,6 +50,17 @@ import edu.northwestern.at.utils.db.mysql.*;
  *	saved in the database, to make the program run much faster. This option
  *	is useful when working on text formatting issues. If a directory is being
  *	processed, this option is ignored.
+ *
+ *	<p>numThreads = Number of build threads (optional). The default is 1.
+ *	0 means use one thread per available processor.
+ *
+ *	<p>Each file is streamed with a StAX parser, and only its headers,
+ *	its front matter and one top-level division of its body are held in
+ *	memory at a time. When more than one thread is used, several works are
+ *	built at once. All the files are first scanned in order to reserve
+ *	ranges of ids for each work and to create the lemmas, and works are
+ *	saved in file order, so the tables built are the same however many
+ *	threads are used.
  */
 
 public class BuildWorks {
@@ -78,6 +94,10 @@ public class BuildWorks {
 
 	private static boolean debug = false;
 
+	/**	Number of build threads. */
+
+	private static int numThreads = 1;
+
 	/**	MySQL table exporter/importer for lemma objects. */
 
 	private static TableExporterImporter lemmaTableExporterImporter;
@@ -86,34 +106,6 @@ public class BuildWorks {
 
 	private static TableExporterImporter lemPosTableExporterImporter;
 
-	/**	MySQL table exporter/importer for word objects. */
-
-	private static TableExporterImporter wordTableExporterImporter;
-
-	/**	MySQL table exporter/importer for word part objects. */
-
-	private static TableExporterImporter wordPartTableExporterImporter;
-
-	/**	MySQL table exporter/importer for line objects. */
-
-	private static TableExporterImporter lineTableExporterImporter;
-
-	/**	MySQL table exporter/importer for speech objects. */
-
-	private static TableExporterImporter speechTableExporterImporter;
-
-	/**	MySQL table exporter/importer for speech_speakers objects. */
-
-	private static TableExporterImporter speechSpeakersTableExporterImporter;
-
-	/**	DOM tree for parsed XML document. */
-
-	private static Document document;
-
-	/**	Persistence manager for static object model. */
-
-	private static PersistenceManager pm;
-
 	/**	Next available id for lemma objects. */
 
 	private static long lemmaId;
@@ -122,25 +114,25 @@ public class BuildWorks {
 
 	private static long lemPosId;
 
-	/**	Next available id for word objects. */
+	/**	Next unreserved id for word objects. */
 
-	private static long wordId;
+	private static long nextWordId;
 
-	/**	Next available id for word part objects. */
+	/**	Next unreserved id for word part objects. */
 
-	private static long wordPartId;
+	private static long nextWordPartId;
 
-	/**	Next available id for work part objects. */
+	/**	Next unreserved id for work part objects. */
 
-	private static long workPartId;
+	private static long nextWorkPartId;
 
-	/**	Next available id for line objects. */
+	/**	Next unreserved id for line objects. */
 
-	private static long lineId;
+	private static long nextLineId;
 
-	/**	Next available id for speech objects. */
+	/**	Next unreserved id for speech objects. */
 
-	private static long speechId;
+	private static long nextSpeechId;
 
 	/**	Map from word class tags to WordClass objects. */
 
@@ -176,65 +168,187 @@ public class BuildWorks {
 
 	private static HashMap lemPosMap = new HashMap();
 
+	/**	Map from corpus tags to maximum word path lengths of the works
+	 *	built in the corpus.
+	 */
+
+	private static TreeMap maxWordPathLengths = new TreeMap();
+
+	/**	Number of works built. */
+
+	private static int numWorks;
+
+	/**	Index of the work whose turn it is to commit. */
+
+	private static int commitTurn;
+
+	/**	Lock for commit turns. */
+
+	private static Object commitLock = new Object();
+
+	/**	Output stream which holds the output of build threads. */
+
+	private static WorkOutputStream workOutputStream;
+
+	/**	Names of the data files written by each work. */
+
+	private static final String[] WORK_DATA_FILE_NAMES = new String[] {
+		"word.txt", "wordPart.txt", "line.txt", "speech.txt",
+		"speechSpeakers.txt"};
+
+	/**	Index of this work in the build. */
+
+	private int index;
+
+	/**	XML file for this work. */
+
+	private File file;
+
+	/**	DOM tree for the parsed parts of the XML document. */
+
+	private Document document;
+
+	/**	Persistence manager for static object model. */
+
+	private PersistenceManager pm;
+
+	/**	MySQL table exporter/importer for word objects. */
+
+	private TableExporterImporter wordTableExporterImporter;
+
+	/**	MySQL table exporter/importer for word part objects. */
+
+	private TableExporterImporter wordPartTableExporterImporter;
+
+	/**	MySQL table exporter/importer for line objects. */
+
+	private TableExporterImporter lineTableExporterImporter;
+
+	/**	MySQL table exporter/importer for speech objects. */
+
+	private TableExporterImporter speechTableExporterImporter;
+
+	/**	MySQL table exporter/importer for speech_speakers objects. */
+
+	private TableExporterImporter speechSpeakersTableExporterImporter;
+
+	/**	Next available id for word objects. */
+
+	private long wordId;
+
+	/**	Next available id for word part objects. */
+
+	private long wordPartId;
+
+	/**	Next available id for work part objects. */
+
+	private long workPartId;
+
+	/**	Next available id for line objects. */
+
+	private long lineId;
+
+	/**	Next available id for speech objects. */
+
+	private long speechId;
+
+	/**	End of the range of ids reserved for word objects. */
+
+	private long wordIdLimit;
+
+	/**	End of the range of ids reserved for word part objects. */
+
+	private long wordPartIdLimit;
+
+	/**	End of the range of ids reserved for work part objects. */
+
+	private long workPartIdLimit;
+
+	/**	End of the range of ids reserved for line objects. */
+
+	private long lineIdLimit;
+
+	/**	End of the range of ids reserved for speech objects. */
+
+	private long speechIdLimit;
+
 	/**	Corpus tag. E.g., "sha". */
 
-	private static String corpusTag;
+	private String corpusTag;
 
 	/**	Work tag. E.g., "ham". */
 
-	private static String workTag;
+	private String workTag;
 
 	/**	Full work tag. E.g., "sha-ham". */
 
-	private static String fullWorkTag;
+	private String fullWorkTag;
 
 	/**	The corpus. */
 
-	private static Corpus corpus;
+	private Corpus corpus;
 
 	/**	Character set. */
 
-	private static byte charset;
+	private byte charset;
 
 	/**	Part of speech type. */
 
-	private static byte posType;
+	private byte posType;
 
 	/**	The work. */
 
-	private static Work work;
+	private Work work;
 
 	/**	Number of parts created. */
 
-	private static int numParts;
+	private int numParts;
 
 	/**	Maximum word path length in corpus. */
 
-	private static int maxWordPathLength;
+	private int maxWordPathLength;
 
 	/**	Current word ordinal in work. */
 
-	private static int wordOrdinalInWork;
+	private int wordOrdinalInWork;
 
 	/**	Current work part ordinal in work. */
 
-	private static int partOrdinalInWork;
+	private int partOrdinalInWork;
 
 	/**	Map from speaker tags to speaker objects. */
 
-	private static HashMap speakerMap;
+	private HashMap speakerMap;
+
+	/**	List of speaker objects. */
+
+	private ArrayList speakerList;
 
 	/**	Set of speaker tags for which we have no gender/mortality data. */
 
-	private static HashSet missingSpeakerData;
+	private HashSet missingSpeakerData;
 
 	/**	Set of speaker tags used in speeches. */
 
-	private static HashSet usedSpeakerTags;
+	private HashSet usedSpeakerTags;
 
-	/**	Number of works built. */
+	/**	Work parts to be saved, in creation order. */
 
-	private static int numWorks;
+	private ArrayList partsToSave = new ArrayList();
+
+	/**	Exported speeches, whose speakers are exported once the speakers
+	 *	have been saved.
+	 */
+
+	private ArrayList exportedSpeeches = new ArrayList();
+
+	/**	Initial parsing context. */
+
+	private Context rootContext;
+
+	/**	Build start time. */
+
+	private long startTime;
 
 	/**	Path to temporary directory. */
 
@@ -264,8 +378,14 @@ public class BuildWorks {
 
 	private static void parseArgs (String[] args) {
 		int n = args.length;
+		if (n > 4 && args[n-1].matches("\\d+")) {
+			numThreads = Integer.parseInt(args[n-1]);
+			if (numThreads == 0)
+				numThreads = Runtime.getRuntime().availableProcessors();
+			n--;
+		}
 		if (n < 4 || n > 6) {
-			System.out.println("Usage: BuildWorks in db username password [spellings] [debug]");
+			System.out.println("Usage: BuildWorks in db username password [spellings] [debug] [numThreads]");
 			System.exit(1);
 		}
 		inPath = args[0];
@@ -282,7 +402,7 @@ public class BuildWorks {
 		} else if (n == 6) {
 			spellingPath = args[4];
 			if (!args[5].equals("debug")) {
-				System.out.println("Usage: BuildWorks in db username password [spellings] [debug]");
+				System.out.println("Usage: BuildWorks in db username password [spellings] [debug] [numThreads]");
 				System.exit(1);
 			}
 			debug = true;
@@ -296,7 +416,7 @@ public class BuildWorks {
 	 *	@throws Exception
 	 */
 
-	private static void getCorpus (String corpusAttr)
+	private void getCorpus (String corpusAttr)
 		throws Exception
 	{
 		StringTokenizer tok = new StringTokenizer(corpusAttr, "|");
@@ -318,7 +438,7 @@ public class BuildWorks {
 	 *	@throws	Exception
 	 */
 
-	private static void getAuthors ()
+	private void getAuthors ()
 		throws Exception
 	{
 		Element titleStmtEl = DOMUtils.getDescendant(document,
@@ -334,7 +454,6 @@ public class BuildWorks {
 				BuildUtils.emsg("Author " + name + " does not exist");
 				continue;
 			}
-			author.addWork(work);
 			work.addAuthor(author);
 			numAuthors++;
 		}
@@ -350,21 +469,23 @@ public class BuildWorks {
 	 *	not actually deleted from the database. They are only unlinked
 	 *	so that they become "dead" objects.
 	 *
+	 *	@param	oldWork		Old copy of the work.
+	 *
 	 *	@throws Exception
 	 */
 
-	private static void deleteOldWork ()
+	private void deleteOldWork (Work oldWork)
 		throws Exception
 	{
 		// Unlink the work from its corpus and authors.
 
 		pm.begin();
-		corpus.removeWork(work);
-		Collection authors = new ArrayList(work.getAuthors());
+		corpus.removeWork(oldWork);
+		Collection authors = new ArrayList(oldWork.getAuthors());
 		for (Iterator it = authors.iterator(); it.hasNext(); ) {
 			Author author = (Author)it.next();
-			work.removeAuthor(author);
-			author.removeWork(work);
+			oldWork.removeAuthor(author);
+			author.removeWork(oldWork);
 		}
 		pm.commit();
 		if (debug) return;
@@ -377,7 +498,7 @@ public class BuildWorks {
 		PreparedStatement p2 = c.prepareStatement(
 			"update wordpart set tag=null, word=null, workPart=null " +
 			"where workpart=?");
-		p1.setLong(1, work.getId().longValue());
+		p1.setLong(1, oldWork.getId().longValue());
 		ResultSet r1 = p1.executeQuery();
 		while (r1.next()) {
 			long partId = r1.getLong(1);
@@ -389,11 +510,13 @@ public class BuildWorks {
 	}
 
 	/**	Creates the work.
+	 *
+	 *	<p>The work is saved later by {@link #commit commit}.
 	 *
 	 *	@throws	Exeption
 	 */
 
-	private static void createWork ()
+	private void createWork ()
 		throws Exception
 	{
 		Element titleStmtEl = DOMUtils.getDescendant(document,
@@ -459,9 +582,6 @@ public class BuildWorks {
 		long taggingDataFlags =
 			BuildUtils.getTaggingDataFlags(taggingDataEl);
 
-		work = corpus.getWorkByTag(fullWorkTag);
-		if (work != null) deleteOldWork();
-
 		work = new Work();
 		work.setId(Long.valueOf(workPartId++));
 		work.setTag(fullWorkTag);
@@ -475,11 +595,7 @@ public class BuildWorks {
 
 		numParts++;
 
-		pm.begin();
-		pm.save(work);
-		corpus.addWork(work);
 		getAuthors();
-		pm.commit();
 	}
 
 	/**	Creates the title page.
@@ -489,7 +605,7 @@ public class BuildWorks {
 	 *	@throws	Exception
 	 */
 
-	private static void createTitlePage (Context context)
+	private void createTitlePage (Context context)
 		throws Exception
 	{
 		context = (Context)context.clone();
@@ -578,19 +694,18 @@ public class BuildWorks {
 
 		numParts++;
 
-		pm.begin();
 		work.addChild(titlePart);
-		pm.save(textWrapper);
-		pm.save(titlePart);
-		pm.commit();
+		partsToSave.add(titlePart);
 	}
 
 	/**	Creates the speaker objects.
+	 *
+	 *	<p>The speakers are saved later by {@link #commit commit}.
 	 *
 	 *	@throws	Exception
 	 */
 
-	private static void createSpeakers ()
+	private void createSpeakers ()
 		throws Exception
 	{
 		Element frontEl = DOMUtils.getDescendant(document,
@@ -691,9 +806,7 @@ public class BuildWorks {
 
 		}
 
-		pm.begin();
-		pm.save(speakerList);
-		pm.commit();
+		this.speakerList = speakerList;
 	}
 
 	/**	Processes a cast item.
@@ -705,7 +818,7 @@ public class BuildWorks {
 	 *	@throws	Exception
 	 */
 
-	private static void processCastItem (Context context, Element el)
+	private void processCastItem (Context context, Element el)
 			throws Exception
 	{
 		context = (Context)context.clone();
@@ -747,7 +860,7 @@ public class BuildWorks {
 	 *	@throws	Exception
 	 */
 
-	private static void processCastGroup (Context context, Element el)
+	private void processCastGroup (Context context, Element el)
 		throws Exception
 	{
 		context = (Context)context.clone();
@@ -780,7 +893,7 @@ public class BuildWorks {
 	 *	@throws	Exception
 	 */
 
-	private static void processCastList (Context context, Element el)
+	private void processCastList (Context context, Element el)
 		throws Exception
 	{
 		context = (Context)context.clone();
@@ -815,7 +928,7 @@ public class BuildWorks {
 	 *	@throws	Exception
 	 */
 
-	private static Line createLine (Context context, Element el)
+	private Line createLine (Context context, Element el)
 		throws Exception
 	{
 		String tag = el.getAttribute("id");
@@ -1009,6 +1122,32 @@ public class BuildWorks {
 		return lemPos;
 	 }
 
+	/**	Finds a lempos.
+	 *
+	 *	<p>The lempos objects for the words of a work are created by the
+	 *	scan of the work's file before the work is built, which also issues
+	 *	any error messages for them. This method just looks them up.
+	 *
+	 *	@param	lemmaTag		Lemma tag.
+	 *
+	 *	@param	posTag			Pos tag.
+	 *
+	 *	@return					LemPos object for lemma/pos combination,
+	 *							or null if none.
+	 */
+
+	private LemPos findLemPos (String lemmaTag, String posTag) {
+		Lemma lemma = (Lemma)lemmaMap.get(lemmaTag.toLowerCase());
+		if (lemma == null) return null;
+		Pos pos = (Pos)posMap.get(posTag);
+		if (pos == null) return null;
+		if (posType == Pos.ENGLISH &&
+			!lemma.getWordClass().equals(pos.getWordClass())) return null;
+		LemPosIdPair pair = new LemPosIdPair(lemma.getId().longValue(),
+			pos.getId().longValue());
+		return (LemPos)lemPosMap.get(pair);
+	}
+
 	/**	Processes morphology word attributes.
 	 *
 	 *	@param	context		Parsing context.
@@ -1020,7 +1159,7 @@ public class BuildWorks {
 	 *	@throws Exception
 	 */
 
-	private static void processMorphology (Context context, Element el,
+	private void processMorphology (Context context, Element el,
 		Word word)
 			throws Exception
 	{
@@ -1067,8 +1206,7 @@ public class BuildWorks {
 		for (int partIndex = 0; partIndex < numParts; partIndex++) {
 			String lemmaTag = lemmaTok.nextToken();
 			String posTag = posTok.nextToken();
-			LemPos lemPos = createLemPos(lemmaTag, posTag, null,
-				charset, posType, wordTag);
+			LemPos lemPos = findLemPos(lemmaTag, posTag);
 			if (lemPos == null) continue;
 			WordPart wordPart = new WordPart();
 			wordPart.setId(Long.valueOf(wordPartId++));
@@ -1091,7 +1229,7 @@ public class BuildWorks {
 	 *	@throws Exception
 	 */
 
-	private static void processWord (Context context, Element el)
+	private void processWord (Context context, Element el)
 		throws Exception
 	{
 		Prosodic oldProsodic = context.getProsodic();
@@ -1224,7 +1362,7 @@ public class BuildWorks {
 	 *	@throws Exception
 	 */
 
-	private static void processHi (Context context, Element el)
+	private void processHi (Context context, Element el)
 		throws Exception
 	{
 		//context = (Context)context.clone();
@@ -1279,7 +1417,7 @@ public class BuildWorks {
 	 *	@throws Exception
 	 */
 
-	private static void processTitle (Context context, Element el)
+	private void processTitle (Context context, Element el)
 		throws Exception
 	{
 		el.setAttribute("rend", "italic");
@@ -1295,7 +1433,7 @@ public class BuildWorks {
 	 *	@throws Exception
 	 */
 
-	private static void processTaggedLine (Context context, Element el)
+	private void processTaggedLine (Context context, Element el)
 			throws Exception
 	{
 		context = (Context)context.clone();
@@ -1365,7 +1503,7 @@ public class BuildWorks {
 	 *	@throws Exception
 	 */
 
-	private static void processParagraph (Context context, Element el)
+	private void processParagraph (Context context, Element el)
 			throws Exception
 	{
 		context = (Context)context.clone();
@@ -1426,7 +1564,7 @@ public class BuildWorks {
 	 *	throws Exception
 	 */
 
-	private static void processHead (Context context, Element el)
+	private void processHead (Context context, Element el)
 		throws Exception
 	{
 		context = (Context)context.clone();
@@ -1470,7 +1608,7 @@ public class BuildWorks {
 	 *	throws Exception
 	 */
 
-	private static void processLineGroup (Context context, Element el)
+	private void processLineGroup (Context context, Element el)
 		throws Exception
 	{
 		context = (Context)context.clone();
@@ -1561,7 +1699,7 @@ public class BuildWorks {
 	 *	throws Exception
 	 */
 
-	private static void processSpeech (Context context, Element el)
+	private void processSpeech (Context context, Element el)
 		throws Exception
 	{
 		context = (Context)context.clone();
@@ -1651,7 +1789,7 @@ public class BuildWorks {
 	 *	throws Exception
 	 */
 
-	private static void processDiv (Context context, Element el)
+	private void processDiv (Context context, Element el)
 		throws Exception
 	{
 		if (el.getAttribute("type").equals("castList") &&
@@ -1791,11 +1929,8 @@ public class BuildWorks {
 			speechList.clear();
 		}
 
-		pm.begin();
 		parentPart.addChild(part);
-		if (textWrapper != null) pm.save(textWrapper);
-		pm.save(part);
-		pm.commit();
+		partsToSave.add(part);
 
 		Word prev = null;
 		for (Iterator it = wordList.iterator(); it.hasNext(); ) {
@@ -1820,15 +1955,7 @@ public class BuildWorks {
 			for (Iterator it = speechList.iterator(); it.hasNext(); ) {
 				Speech speech = (Speech)it.next();
 				speech.export(speechTableExporterImporter);
-				Long speechId = speech.getId();
-				Set speakers = speech.getSpeakers();
-				for (Iterator it2 = speakers.iterator(); it2.hasNext(); ) {
-					Speaker speaker = (Speaker)it2.next();
-					Long speakerId = speaker.getId();
-					speechSpeakersTableExporterImporter.print(speechId);
-					speechSpeakersTableExporterImporter.print(speakerId);
-					speechSpeakersTableExporterImporter.println();
-				}
+				exportedSpeeches.add(speech);
 			}
 		}
 
@@ -1845,7 +1972,7 @@ public class BuildWorks {
 	/**	Reports missing speaker data.
 	 */
 
-	private static void reportMissingSpeakerData () {
+	private void reportMissingSpeakerData () {
 		missingSpeakerData.retainAll(usedSpeakerTags);
 		for (Iterator it = missingSpeakerData.iterator(); it.hasNext(); )
 			BuildUtils.emsg("Missing gender/mortality data for speaker: " +
@@ -1873,13 +2000,14 @@ public class BuildWorks {
 			numLines += child.getNumLines();
 			numWords += child.getNumWords();
 		}
-		pm.begin();
 		part.setNumLines(numLines);
 		part.setNumWords(numWords);
-		pm.commit();
 	}
 
 	/**	Sets the corpus counters.
+	 *
+	 *	<p>The counters are set once for each corpus in which works were
+	 *	built, after all the works have been committed.
 	 *
 	 *	@throws	Exception	general error.
 	 */
@@ -1887,22 +2015,31 @@ public class BuildWorks {
 	public static void setCorpusCounters ()
 		throws Exception
 	{
-		int numWorkParts = 0;
-		int numLines = 0;
-		int numWords = 0;
-		Collection works = corpus.getWorks();
-		for (Iterator it = works.iterator(); it.hasNext(); ) {
-			Work work = (Work)it.next();
-			numWorkParts += work.getNumWorkPartsTree();
-			numLines += work.getNumLines();
-			numWords += work.getNumWords();
+		PersistenceManager pm = new PersistenceManager();
+		for (Iterator it = maxWordPathLengths.entrySet().iterator();
+			it.hasNext(); )
+		{
+			Map.Entry entry = (Map.Entry)it.next();
+			Corpus corpus = pm.getCorpusByTag((String)entry.getKey());
+			int maxWordPathLength = ((Integer)entry.getValue()).intValue();
+			int numWorkParts = 0;
+			int numLines = 0;
+			int numWords = 0;
+			Collection works = corpus.getWorks();
+			for (Iterator it2 = works.iterator(); it2.hasNext(); ) {
+				Work work = (Work)it2.next();
+				numWorkParts += work.getNumWorkPartsTree();
+				numLines += work.getNumLines();
+				numWords += work.getNumWords();
+			}
+			pm.begin();
+			corpus.setNumWorkParts(numWorkParts);
+			corpus.setNumLines(numLines);
+			corpus.setNumWords(numWords);
+			corpus.setMaxWordPathLength(maxWordPathLength);
+			pm.commit();
 		}
-		pm.begin();
-		corpus.setNumWorkParts(numWorkParts);
-		corpus.setNumLines(numLines);
-		corpus.setNumWords(numWords);
-		corpus.setMaxWordPathLength(maxWordPathLength);
-		pm.commit();
+		pm.close();
 	}
 
 	/**	Checks the XML document for required top-level elements.
@@ -1912,7 +2049,7 @@ public class BuildWorks {
 	 *	@throws	Exception
 	 */
 
-	private static boolean checkRequiredTopLevelElements ()
+	private boolean checkRequiredTopLevelElements ()
 		throws Exception
 	{
 		Element rootEl = DOMUtils.getChild(document,
@@ -1944,37 +2081,316 @@ public class BuildWorks {
 		return true;
 	}
 
-	/**	Builds a work.
+	/**	Finds a corpus.
 	 *
-	 *	@param	file		XML file for work.
+	 *	@param	pm			Persistence manager.
+	 *
+	 *	@param	corpusAttr	Corpus attribute on wordHoardHeader element.
+	 *
+	 *	@return				The first corpus named in the attribute which
+	 *						exists, or null if none.
+	 *
+	 *	@throws Exception
+	 */
+
+	private static Corpus findCorpus (PersistenceManager pm,
+		String corpusAttr)
+			throws Exception
+	{
+		StringTokenizer tok = new StringTokenizer(corpusAttr, "|");
+		while (tok.hasMoreTokens()) {
+			Corpus corpus = pm.getCorpusByTag(tok.nextToken());
+			if (corpus != null) return corpus;
+		}
+		return null;
+	}
+
+	/**	Scans the XML file for the work.
+	 *
+	 *	<p>Each file is streamed once, in file order, before any work is
+	 *	built. The scan reserves ranges of ids for the work parts, words,
+	 *	word parts, lines and speeches the work can create, so the ids of a
+	 *	work do not depend on when it is built. The ranges are upper bounds:
+	 *	elements which turn out to be in error leave gaps.
+	 *
+	 *	<p>The scan also creates the lemma and lempos objects for the
+	 *	work, since these are shared by all the works and must be created
+	 *	in the same order on every build.
+	 *
+	 *	@param	scanPm		Persistence manager for looking up corpora.
 	 *
 	 *	@throws	Exception
 	 */
 
-	private static void buildWork (File file)
+	private void scan (PersistenceManager scanPm)
 		throws Exception
 	{
+		long numWorkParts = 2;
+		long numWords = 0;
+		long numWordParts = 0;
+		long numLines = 0;
+		long numSpeeches = 0;
+		Corpus scanCorpus = null;
+		ArrayList path = new ArrayList();
+		ArrayList lemmaTagging = new ArrayList();
+		int taggedLineDepth = 0;
+		XMLStreamReader reader = StAXUtils.createReader(file);
+		try {
+			int event;
+			while ((event = StAXUtils.nextElement(reader)) !=
+				XMLStreamConstants.END_DOCUMENT)
+			{
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					String name = (String)path.remove(path.size() - 1);
+					if (name.equals("div")) {
+						lemmaTagging.remove(lemmaTagging.size() - 1);
+					} else if (name.equals("wordHoardTaggedLine")) {
+						taggedLineDepth--;
+					}
+					continue;
+				}
+				String name = StAXUtils.getName(reader);
+				int depth = path.size();
+				path.add(name);
+				if (name.equals("div")) {
+					numWorkParts++;
+					lemmaTagging.add(Boolean.FALSE);
+				} else if (name.equals("w")) {
+					numWords++;
+					String lemmaAttrStr =
+						StAXUtils.getAttribute(reader, "lemma");
+					numWordParts +=
+						new StringTokenizer(lemmaAttrStr, "|").countTokens();
+					boolean lemmaTaggedPart = lemmaTagging.size() > 0 &&
+						lemmaTagging.get(lemmaTagging.size() - 1) ==
+							Boolean.TRUE;
+					if (scanCorpus != null && lemmaTaggedPart &&
+						taggedLineDepth > 0)
+							scanMorphology(reader, lemmaAttrStr, scanCorpus);
+				} else if (name.equals("sp")) {
+					numSpeeches++;
+				} else if (name.equals("p") || name.equals("head") ||
+					name.equals("wordHoardTaggedLine"))
+				{
+					if (StAXUtils.getAttribute(reader, "id").length() > 0)
+						numLines++;
+					if (name.equals("wordHoardTaggedLine")) taggedLineDepth++;
+				} else if (name.equals("wordHoardHeader") && depth == 1) {
+					scanCorpus = findCorpus(scanPm,
+						StAXUtils.getAttribute(reader, "corpus"));
+				} else if (name.equals("lemma") && depth >= 3 &&
+					path.get(depth - 1).equals("taggingData") &&
+					path.get(depth - 2).equals("wordHoardHeader") &&
+					path.get(depth - 3).equals("div"))
+				{
+					lemmaTagging.set(lemmaTagging.size() - 1, Boolean.TRUE);
+				}
+			}
+		} finally {
+			StAXUtils.close(reader);
+		}
+		workPartId = nextWorkPartId;
+		nextWorkPartId += numWorkParts;
+		workPartIdLimit = nextWorkPartId;
+		wordId = nextWordId;
+		nextWordId += numWords;
+		wordIdLimit = nextWordId;
+		wordPartId = nextWordPartId;
+		nextWordPartId += numWordParts;
+		wordPartIdLimit = nextWordPartId;
+		lineId = nextLineId;
+		nextLineId += numLines;
+		lineIdLimit = nextLineId;
+		speechId = nextSpeechId;
+		nextSpeechId += numSpeeches;
+		speechIdLimit = nextSpeechId;
+	}
 
-		long startTime = System.currentTimeMillis();
-
-		//	Read the XML file into a DOM tree.
+	/**	Creates the lempos objects for a word found by the scan.
+	 *
+	 *	<p>The checks made by {@link #processMorphology processMorphology}
+	 *	are repeated here, but without error messages, which are issued when
+	 *	the work is built.
+	 *
+	 *	@param	reader			Stream reader, positioned at "w" element.
+	 *
+	 *	@param	lemmaAttrStr	Lemma attribute.
+	 *
+	 *	@param	corpus			The corpus.
+	 *
+	 *	@throws Exception
+	 */
 
-		document = DOMUtils.parse(file);
+	private static void scanMorphology (XMLStreamReader reader,
+		String lemmaAttrStr, Corpus corpus)
+			throws Exception
+	{
+		String wordTag = StAXUtils.getAttribute(reader, "id");
+		if (wordTag.equals("untagged")) return;
+		StringTokenizer lemmaTok = new StringTokenizer(lemmaAttrStr, "|");
+		int numParts = lemmaTok.countTokens();
+		if (numParts == 0) return;
+		String posAttrStr = StAXUtils.getAttribute(reader, "pos");
+		StringTokenizer posTok = new StringTokenizer(posAttrStr, "|");
+		if (posTok.countTokens() != numParts) return;
+		String bensonGlossAttrStr =
+			StAXUtils.getAttribute(reader, "bensonGloss");
+		if (bensonGlossAttrStr.length() > 0) {
+			try {
+				Long.valueOf(bensonGlossAttrStr);
+			} catch (NumberFormatException e) {
+				return;
+			}
+		}
+		for (int partIndex = 0; partIndex < numParts; partIndex++) {
+			String lemmaTag = lemmaTok.nextToken();
+			String posTag = posTok.nextToken();
+			createLemPos(lemmaTag, posTag, null,
+				corpus.getCharset(), corpus.getPosType(), wordTag);
+		}
+	}
 
-		//	Check for required top-level elements.
+	/**	Builds the work.
+	 *
+	 *	<p>The XML file is streamed. The headers and the front matter are
+	 *	read into a DOM tree in full. Each top-level division of the body
+	 *	is then read into the DOM tree, processed, and removed again, so
+	 *	only one body division is held in memory at a time.
+	 *
+	 *	<p>The words, word parts, lines and speeches are written to the
+	 *	work's own data files as they are built. The other objects are saved
+	 *	later by {@link #commit commit}.
+	 *
+	 *	@return		True if the work was built.
+	 *
+	 *	@throws	Exception
+	 */
 
-		if (!checkRequiredTopLevelElements()) return;
+	private boolean build ()
+		throws Exception
+	{
+		startTime = System.currentTimeMillis();
 
-		// Initialize for parsing the DOM tree and populating the
+		// Initialize for parsing the XML file and populating the
 		// object model.
 
 		pm = new PersistenceManager();
+		document = DOMUtils.newDocument();
 		numParts = 0;
 		wordOrdinalInWork = 0;
 		partOrdinalInWork = 0;
 		missingSpeakerData = new HashSet();
 		usedSpeakerTags = new HashSet();
+		createWorkExporterImporters();
+
+		//	Stream the XML file.
 
+		XMLStreamReader reader = StAXUtils.createReader(file);
+		try {
+			if (StAXUtils.nextElement(reader) !=
+				XMLStreamConstants.START_ELEMENT)
+			{
+				checkRequiredTopLevelElements();
+				return false;
+			}
+			Element rootEl = StAXUtils.createElement(document, reader);
+			document.appendChild(rootEl);
+			boolean haveText = false;
+			while (StAXUtils.nextElement(reader) ==
+				XMLStreamConstants.START_ELEMENT)
+			{
+				if (!haveText && StAXUtils.getName(reader).equals("text")) {
+					haveText = true;
+					Element textEl = StAXUtils.createElement(document, reader);
+					rootEl.appendChild(textEl);
+					if (!buildText(reader, textEl)) return false;
+				} else {
+					rootEl.appendChild(StAXUtils.readElement(document, reader));
+				}
+			}
+			if (!haveText) {
+				checkRequiredTopLevelElements();
+				return false;
+			}
+			return true;
+		} finally {
+			StAXUtils.close(reader);
+		}
+	}
+
+	/**	Builds the work from the text element.
+	 *
+	 *	@param	reader		Stream reader, positioned at the start of the
+	 *						text element.
+	 *
+	 *	@param	textEl		Text element, without children.
+	 *
+	 *	@return				True if the work was built.
+	 *
+	 *	@throws	Exception
+	 */
+
+	private boolean buildText (XMLStreamReader reader, Element textEl)
+		throws Exception
+	{
+		//	Check for required top-level elements.
+
+		if (!checkRequiredTopLevelElements()) return false;
+
+		//	Read the front matter, which must be complete before the
+		//	speakers can be created, then stream the body divisions.
+
+		boolean started = false;
+		while (StAXUtils.nextElement(reader) ==
+			XMLStreamConstants.START_ELEMENT)
+		{
+			String name = StAXUtils.getName(reader);
+			if (!started && name.equals("front")) {
+				textEl.appendChild(StAXUtils.readElement(document, reader));
+			} else if (name.equals("body") &&
+				DOMUtils.getChild(textEl, "body") == null)
+			{
+				if (!started) {
+					if (!startWork()) return false;
+					started = true;
+				}
+				Element bodyEl = StAXUtils.createElement(document, reader);
+				textEl.appendChild(bodyEl);
+				while (StAXUtils.nextElement(reader) ==
+					XMLStreamConstants.START_ELEMENT)
+				{
+					if (StAXUtils.getName(reader).equals("div")) {
+						Element divEl =
+							StAXUtils.readElement(document, reader);
+						bodyEl.appendChild(divEl);
+						processDiv(rootContext, divEl);
+						bodyEl.removeChild(divEl);
+					} else {
+						StAXUtils.skipElement(reader);
+					}
+				}
+			} else {
+				StAXUtils.skipElement(reader);
+			}
+		}
+		if (!started && !startWork()) return false;
+		finishWork();
+		return true;
+	}
+
+	/**	Starts building the work.
+	 *
+	 *	<p>Creates the work, the speakers, the title page, and the work
+	 *	parts for the front matter.
+	 *
+	 *	@return		True if the work was started.
+	 *
+	 *	@throws	Exception
+	 */
+
+	private boolean startWork ()
+		throws Exception
+	{
 		//	Get the corpus and work tags.
 
 		Element wordHoardHeaderEl = DOMUtils.getDescendant(document,
@@ -1983,15 +2399,15 @@ public class BuildWorks {
 		if (corpusAttr.length() == 0) {
 			BuildUtils.emsg("Missing required corpus attribute in " +
 				"WordHoardText/wordHoardHeader element");
-			return;
+			return false;
 		}
 		getCorpus(corpusAttr);
-		if (corpus == null) return;
+		if (corpus == null) return false;
 		workTag = wordHoardHeaderEl.getAttribute("work");
 		if (workTag.length() == 0) {
 			BuildUtils.emsg("Missing required work attribute in " +
 				"WordHoardText/wordHoardHeader element");
-			return;
+			return false;
 		}
 		fullWorkTag = corpusTag + "-" + workTag;
 		System.out.println();
@@ -2001,6 +2417,7 @@ public class BuildWorks {
 		//	Create the work.
 
 		createWork();
+		if (work == null) return false;
 		System.out.println("   " + work.getFullTitle());
 
 		//	Create the speaker objects.
@@ -2013,12 +2430,13 @@ public class BuildWorks {
 		context.setCharset(charset);
 		context.setWorkPart(work);
 		context.setProsodic(wordHoardHeaderEl);
+		rootContext = context;
 
 		//	Create the title page.
 
 		createTitlePage(context);
 
-		//	Create the work parts.
+		//	Create the work parts for the front matter.
 
 		Element frontEl = DOMUtils.getDescendant(document,
 			"WordHoardText/text/front");
@@ -2030,16 +2448,17 @@ public class BuildWorks {
 			}
 		}
 
-		Element bodyEl = DOMUtils.getDescendant(document,
-			"WordHoardText/text/body");
-		if (bodyEl != null) {
-			ArrayList children = DOMUtils.getChildren(bodyEl, "div");
-			for (Iterator it = children.iterator(); it.hasNext(); ) {
-				Element divEl = (Element)it.next();
-				processDiv(context, divEl);
-			}
-		}
+		return true;
+	}
 
+	/**	Finishes building the work.
+	 *
+	 *	@throws	Exception
+	 */
+
+	private void finishWork ()
+		throws Exception
+	{
 		//	Report missing speaker data.
 
 		reportMissingSpeakerData();
@@ -2048,7 +2467,6 @@ public class BuildWorks {
 
 		System.out.println("   Setting counts");
 		setPartCounters(work, 0, 0);
-		setCorpusCounters();
 
 		//	Print stats.
 
@@ -2059,62 +2477,335 @@ public class BuildWorks {
 			Formatters.formatIntegerWithCommas(work.getNumLines()) + " lines");
 		System.out.println("   " +
 			Formatters.formatIntegerWithCommas(work.getNumWords()) + " words");
+	}
+
+	/**	Commits the work.
+	 *
+	 *	<p>Deletes any old copy of the work, saves the work, its speakers
+	 *	and its work parts, and appends the work's data files to the data
+	 *	files for the build. Works are committed one at a time in file
+	 *	order, so the ids assigned by the database to speakers and texts,
+	 *	and the order of the rows in the data files, do not depend on the
+	 *	number of build threads.
+	 *
+	 *	@throws	Exception
+	 */
+
+	private void commit ()
+		throws Exception
+	{
+		if (workPartId > workPartIdLimit || wordId > wordIdLimit ||
+			wordPartId > wordPartIdLimit || lineId > lineIdLimit ||
+			speechId > speechIdLimit)
+				throw new IllegalStateException(
+					"Reserved id range exceeded for work " + fullWorkTag);
+
+		//	Delete the old copy of the work.
+
+		Work oldWork = corpus.getWorkByTag(fullWorkTag);
+		if (oldWork != null) deleteOldWork(oldWork);
+
+		//	Save the work.
+
+		pm.begin();
+		pm.save(work);
+		corpus.addWork(work);
+		for (Iterator it = work.getAuthors().iterator(); it.hasNext(); ) {
+			Author author = (Author)it.next();
+			author.addWork(work);
+		}
+		if (speakerList != null) pm.save(speakerList);
+		for (Iterator it = partsToSave.iterator(); it.hasNext(); ) {
+			WorkPart part = (WorkPart)it.next();
+			TextWrapper textWrapper = part.getPrimaryText();
+			if (textWrapper != null) pm.save(textWrapper);
+			pm.save(part);
+		}
+		pm.commit();
+
+		//	Export the speech speakers, now that the speakers have ids.
+
+		for (Iterator it = exportedSpeeches.iterator(); it.hasNext(); ) {
+			Speech speech = (Speech)it.next();
+			Long speechId = speech.getId();
+			Set speakers = speech.getSpeakers();
+			for (Iterator it2 = speakers.iterator(); it2.hasNext(); ) {
+				Speaker speaker = (Speaker)it2.next();
+				Long speakerId = speaker.getId();
+				speechSpeakersTableExporterImporter.print(speechId);
+				speechSpeakersTableExporterImporter.print(speakerId);
+				speechSpeakersTableExporterImporter.println();
+			}
+		}
+		closeWorkExporterImporters(true);
+
+		//	Finish up.
+
+		Integer corpusMax = (Integer)maxWordPathLengths.get(corpusTag);
+		if (corpusMax == null || corpusMax.intValue() < maxWordPathLength)
+			maxWordPathLengths.put(corpusTag,
+				Integer.valueOf(maxWordPathLength));
+		numWorks++;
 		long endTime = System.currentTimeMillis();
 		System.out.println("   " + fullWorkTag +
 			" hoarded in " +
 			BuildUtils.formatElapsedTime(startTime, endTime));
+	}
 
-		//	Finish up.
-
-		numWorks++;
-		pm.close();
+	/**	Builds and commits the work.
+	 *
+	 *	<p>When several threads are building works, a work which has been
+	 *	built waits for its turn to commit, and its output is held until
+	 *	then, so the output of each work appears in one piece and in file
+	 *	order.
+	 *
+	 *	@throws	Exception
+	 */
 
+	private void buildAndCommit ()
+		throws Exception
+	{
+		if (workOutputStream != null) workOutputStream.startBuffering();
+		boolean built = false;
+		Exception buildException = null;
+		try {
+			built = build();
+		} catch (Exception e) {
+			buildException = e;
+		}
+		synchronized (commitLock) {
+			while (commitTurn != index) commitLock.wait();
+		}
+		boolean committed = false;
+		try {
+			if (workOutputStream != null) workOutputStream.stopBuffering();
+			if (buildException != null) throw buildException;
+			if (built) {
+				commit();
+				committed = true;
+			}
+		} finally {
+			if (!committed) closeWorkExporterImporters(false);
+			if (pm != null) pm.close();
+			pm = null;
+			document = null;
+			synchronized (commitLock) {
+				commitTurn++;
+				commitLock.notifyAll();
+			}
+		}
 	}
 
-	/**	Builds a directory of works.
+	/**	Collects the work files in a directory.
+	 *
+	 *	<p>Files are collected in name order, so that the works of a
+	 *	directory are always built in the same order.
 	 *
 	 *	@param	dir		Directory.
 	 *
+	 *	@param	files	List to which the XML files in the file system
+	 *					tree rooted at the directory are added.
+	 *
 	 *	@throws Exception
 	 */
 
-	private static void buildDir (File dir)
+	private static void buildDir (File dir, ArrayList files)
 		throws Exception
 	{
 		File[] contents = dir.listFiles();
+		Arrays.sort(contents);
 		for (int i = 0; i < contents.length; i++) {
 			File file = contents[i];
 			if (file.isDirectory()) {
-				buildDir(file);
+				buildDir(file, files);
 			} else if (file.getName().endsWith(".xml")) {
-				buildWork(file);
+				files.add(file);
+			}
+		}
+	}
+
+	/**	Builds works.
+	 *
+	 *	<p>All the files are first scanned in order, to reserve ids and
+	 *	create lemmas. The works are then built, in a pool of threads if
+	 *	more than one build thread was requested, and committed in file
+	 *	order. The database is the same however many threads are used.
+	 *
+	 *	@param	files		List of XML files.
+	 *
+	 *	@return				List of work builders, in file order.
+	 *
+	 *	@throws Exception
+	 */
+
+	private static ArrayList buildWorks (ArrayList files)
+		throws Exception
+	{
+		ArrayList builders = new ArrayList();
+		PersistenceManager scanPm = new PersistenceManager();
+		for (int i = 0; i < files.size(); i++) {
+			BuildWorks builder = new BuildWorks((File)files.get(i), i);
+			builder.scan(scanPm);
+			builders.add(builder);
+		}
+		scanPm.close();
+
+		commitTurn = 0;
+		int n = Math.min(numThreads, builders.size());
+		if (n <= 1) {
+			for (Iterator it = builders.iterator(); it.hasNext(); ) {
+				BuildWorks builder = (BuildWorks)it.next();
+				builder.buildAndCommit();
 			}
+			return builders;
 		}
+
+		System.out.println();
+		System.out.println("Building " +
+			Formatters.formatIntegerWithCommas(builders.size()) +
+			" works using " + n + " threads");
+		PrintStream out = System.out;
+		workOutputStream = new WorkOutputStream(out);
+		System.setOut(new PrintStream(workOutputStream, true));
+		ExecutorService pool = Executors.newFixedThreadPool(n);
+		try {
+			ArrayList futures = new ArrayList();
+			for (Iterator it = builders.iterator(); it.hasNext(); ) {
+				final BuildWorks builder = (BuildWorks)it.next();
+				futures.add(pool.submit(
+					new Callable() {
+						public Object call () throws Exception {
+							builder.buildAndCommit();
+							return null;
+						}
+					}
+				));
+			}
+			for (Iterator it = futures.iterator(); it.hasNext(); ) {
+				Future future = (Future)it.next();
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof Exception) throw (Exception)cause;
+					throw e;
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+			System.setOut(out);
+			workOutputStream = null;
+		}
+		return builders;
 	}
 
-	/**	Creates the MySQL table exporter/importers.
+	/**	Creates the MySQL table exporter/importers for the work.
+	 *
+	 *	<p>Each work writes its own data files, which are appended to the
+	 *	data files for the build when the work is committed.
 	 *
 	 *	@throws	Exception
 	 */
 
-	private static void createExporterImporters ()
+	private void createWorkExporterImporters ()
 		throws Exception
 	{
-		lemmaTableExporterImporter =
-			new TableExporterImporter("lemma", null, tempDirPath + "lemma.txt", false);
-		lemPosTableExporterImporter =
-			new TableExporterImporter("lempos", null, tempDirPath + "lemPos.txt", false);
 		wordTableExporterImporter =
-			new TableExporterImporter("word", null, tempDirPath + "word.txt", false);
+			new TableExporterImporter("word", null,
+				getWorkDataPath("word.txt"), false);
 		wordPartTableExporterImporter =
-			new TableExporterImporter("wordpart", null, tempDirPath + "wordPart.txt", false);
+			new TableExporterImporter("wordpart", null,
+				getWorkDataPath("wordPart.txt"), false);
 		lineTableExporterImporter =
-			new TableExporterImporter("line", null, tempDirPath + "line.txt", false);
+			new TableExporterImporter("line", null,
+				getWorkDataPath("line.txt"), false);
 		speechTableExporterImporter =
-			new TableExporterImporter("speech", null, tempDirPath + "speech.txt", false);
+			new TableExporterImporter("speech", null,
+				getWorkDataPath("speech.txt"), false);
 		speechSpeakersTableExporterImporter =
 			new TableExporterImporter("speech_speakers", null,
-				tempDirPath + "speechSpeakers.txt", false);
+				getWorkDataPath("speechSpeakers.txt"), false);
+	}
+
+	/**	Gets the path to one of the work's data files.
+	 *
+	 *	@param	name		Name of the data file for the build.
+	 *
+	 *	@return				Path to the work's data file.
+	 */
+
+	private String getWorkDataPath (String name) {
+		return tempDirPath + name + "." + index;
+	}
+
+	/**	Closes the MySQL table exporter/importers for the work.
+	 *
+	 *	@param	keep		True to append the work's data files to the
+	 *						data files for the build, false to discard them.
+	 *
+	 *	@throws	Exception
+	 */
+
+	private void closeWorkExporterImporters (boolean keep)
+		throws Exception
+	{
+		if (wordTableExporterImporter == null) return;
+		wordTableExporterImporter.close();
+		wordPartTableExporterImporter.close();
+		lineTableExporterImporter.close();
+		speechTableExporterImporter.close();
+		speechSpeakersTableExporterImporter.close();
+		wordTableExporterImporter = null;
+		for (int i = 0; i < WORK_DATA_FILE_NAMES.length; i++) {
+			String name = WORK_DATA_FILE_NAMES[i];
+			File workFile = new File(getWorkDataPath(name));
+			if (keep) appendFile(workFile, new File(tempDirPath + name));
+			workFile.delete();
+		}
+	}
+
+	/**	Appends one file to another.
+	 *
+	 *	@param	from		File to append.
+	 *
+	 *	@param	to			File to which it is appended.
+	 *
+	 *	@throws	IOException
+	 */
+
+	private static void appendFile (File from, File to)
+		throws IOException
+	{
+		FileInputStream in = new FileInputStream(from);
+		FileOutputStream out = new FileOutputStream(to, true);
+		try {
+			FileChannel inChannel = in.getChannel();
+			FileChannel outChannel = out.getChannel();
+			long size = inChannel.size();
+			long pos = 0;
+			while (pos < size)
+				pos += inChannel.transferTo(pos, size - pos, outChannel);
+		} finally {
+			in.close();
+			out.close();
+		}
+	}
+
+	/**	Creates the MySQL table exporter/importers for lemmas and lempos.
+	 *
+	 *	<p>The exporter/importers for the other tables are created by each
+	 *	work.
+	 *
+	 *	@throws	Exception
+	 */
+
+	private static void createExporterImporters ()
+		throws Exception
+	{
+		lemmaTableExporterImporter =
+			new TableExporterImporter("lemma", null, tempDirPath + "lemma.txt", false);
+		lemPosTableExporterImporter =
+			new TableExporterImporter("lempos", null, tempDirPath + "lemPos.txt", false);
 	}
 
 	/**	Gets the next available id for a table.
@@ -2148,13 +2839,13 @@ public class BuildWorks {
 		PersistenceManager pm = new PersistenceManager();
 		Connection c = pm.getConnection();
 
-		wordId = getNextId(c, "word");
-		wordPartId = getNextId(c, "wordpart");
+		nextWordId = getNextId(c, "word");
+		nextWordPartId = getNextId(c, "wordpart");
 		lemmaId = getNextId(c, "lemma");
 		lemPosId = getNextId(c, "lempos");
-		workPartId = getNextId(c, "workpart");
-		lineId = getNextId(c, "line");
-		speechId = getNextId(c, "speech");
+		nextWorkPartId = getNextId(c, "workpart");
+		nextLineId = getNextId(c, "line");
+		nextSpeechId = getNextId(c, "speech");
 
 		Collection wordClasses = pm.getAllWordClasses();
 		for (Iterator it = wordClasses.iterator(); it.hasNext(); ) {
@@ -2326,52 +3017,133 @@ public class BuildWorks {
 		}
 	}
 
-	/**	Imports objects into a MySQL table.
+	/**	Imports objects into the MySQL database.
 	 *
-	 *	@param	c					Database connection.
+	 *	<p>The tables are loaded in parallel, using one database connection
+	 *	per build thread.
 	 *
-	 *	@param	exporterImporter	MySQL table exporter/importer.
+	 *	@throws	Exception
+	 */
+
+	private static void importObjects ()
+		throws Exception
+	{
+		System.out.println();
+		System.out.println("Importing objects into MySQL tables");
+		String[] names = {"lemma", "lempos", "word", "wordpart", "line",
+			"speech", "speech_speakers"};
+		TableExporterImporter[][] exporterImporters = {
+			{lemmaTableExporterImporter},
+			{lemPosTableExporterImporter},
+			{new TableExporterImporter("word", null,
+				tempDirPath + "word.txt", true)},
+			{new TableExporterImporter("wordpart", null,
+				tempDirPath + "wordPart.txt", true)},
+			{new TableExporterImporter("line", null,
+				tempDirPath + "line.txt", true)},
+			{new TableExporterImporter("speech", null,
+				tempDirPath + "speech.txt", true)},
+			{new TableExporterImporter("speech_speakers", null,
+				tempDirPath + "speechSpeakers.txt", true)},
+		};
+		BuildUtils.importTables(dbname, username, password, numThreads,
+			names, exporterImporters);
+	}
+
+	/**	Builds works.
 	 *
-	 *	@param	name				Table name.
+	 *	@param	args		Command line arguments.
 	 *
-	 *	@throws Exception
+	 *	@throws	Exception	general error.
 	 */
 
-	private static void importTable (Connection c,
-		TableExporterImporter exporterImporter, String name)
-			throws Exception
+	public static void build (final String args[])
+		throws Exception
 	{
-		long startTime = System.currentTimeMillis();
-		exporterImporter.close();
-		int ct = exporterImporter.importData(c);
-		long endTime = System.currentTimeMillis();
-		System.out.println(
-			Formatters.formatIntegerWithCommas(ct) +
-			(ct == 1 ? " object" : " objects") +
-			" imported into " + name + " table in " +
-			BuildUtils.formatElapsedTime(startTime, endTime));
+		build(args, null);
 	}
 
-	/**	Imports objects into the MySQL database.
+	/**	Builds works from selected files.
 	 *
-	 *	@throws	Exception
+	 *	<p>Works which already exist are replaced.
+	 *
+	 *	@param	args		Command line arguments.
+	 *
+	 *	@param	workFiles	List of work files to build, or null to build
+	 *						the input file or directory.
+	 *
+	 *	@return				List of the full tags of the works built.
+	 *
+	 *	@throws	Exception	general error.
 	 */
 
-	private static void importObjects ()
+	public static List build (final String args[], List workFiles)
 		throws Exception
 	{
+		//	Initialize.
+
+		long startTime = System.currentTimeMillis();
+		parseArgs(args);
+
+		File file = new File(inPath);
+		boolean isDir = file.isDirectory();
+		if (workFiles != null) {
+			System.out.println("Building works from " +
+				workFiles.size() + (workFiles.size() == 1 ? " file" : " files"));
+		} else if (isDir) {
+			System.out.println("Building works from directory " + inPath);
+		} else {
+			System.out.println("Building work from file " + inPath);
+		}
+
+		tempDirPath = BuildUtils.createTempDir() + "/";
+		BuildUtils.initHibernate(dbname, username, password);
+		createExporterImporters();
+		readDatabaseObjects();
+		readStandardSpellings();
+
+		//	Build file or directory.
+
+		ArrayList files = new ArrayList();
+		if (workFiles != null) {
+			files.addAll(workFiles);
+		} else if (isDir) {
+			buildDir(file, files);
+		} else {
+			files.add(file);
+		}
+		ArrayList builders = buildWorks(files);
+		setCorpusCounters();
+
+		//	Import objects into the MySQL database.
+
+		if (!debug) importObjects();
+		BuildUtils.deleteTempDir();
+
+		//	Report final stats.
+
+		long endTime = System.currentTimeMillis();
 		System.out.println();
-		System.out.println("Importing objects into MySQL tables");
-		pm = new PersistenceManager();
-		Connection c = pm.getConnection();
-		importTable(c, lemmaTableExporterImporter, "lemma");
-		importTable(c, lemPosTableExporterImporter, "lempos");
-		importTable(c, wordTableExporterImporter, "word");
-		importTable(c, wordPartTableExporterImporter, "wordpart");
-		importTable(c, lineTableExporterImporter, "line");
-		importTable(c, speechTableExporterImporter, "speech");
-		importTable(c, speechSpeakersTableExporterImporter, "speech_speakers");
-		pm.close();
+		System.out.println(Formatters.formatIntegerWithCommas(numWorks) +
+			(numWorks == 1 ? " work" : " works") +
+			" created in " +
+			BuildUtils.formatElapsedTime(startTime, endTime));
+		BuildUtils.reportNumErrors();
+
+		//	Run client if debug mode and single file built.
+
+		if (debug && !isDir && workFiles == null) {
+			BuildWorks builder = (BuildWorks)builders.get(0);
+			WordHoard.main(new String[]{builder.corpusTag,
+				builder.fullWorkTag});
+		}
+
+		ArrayList workTags = new ArrayList();
+		for (Iterator it = builders.iterator(); it.hasNext(); ) {
+			BuildWorks builder = (BuildWorks)it.next();
+			if (builder.fullWorkTag != null) workTags.add(builder.fullWorkTag);
+		}
+		return workTags;
 	}
 
 	/**	The main program.
@@ -2379,71 +3151,101 @@ public class BuildWorks {
 	 *	@param	args		Command line arguments.
 	 */
 
-	public static void main  (final String args[]) {
-
+	public static void main (final String args[]) {
 		try {
+			build(args);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
 
-			//	Initialize.
+	/**	Creates a new work builder.
+	 *
+	 *	@param	file		XML file for work.
+	 *
+	 *	@param	index		Index of the work in file order.
+	 */
 
-			long startTime = System.currentTimeMillis();
-			parseArgs(args);
+	private BuildWorks (File file, int index) {
+		this.file = file;
+		this.index = index;
+	}
 
-			File file = new File(inPath);
-			boolean isDir = file.isDirectory();
-			if (isDir) {
-				System.out.println("Building works from directory " + inPath);
-			} else {
-				System.out.println("Building work from file " + inPath);
-			}
+	/**	An output stream which holds the output of each build thread until
+	 *	it is the thread's turn to commit.
+	 */
 
-			tempDirPath = BuildUtils.createTempDir() + "/";
-			BuildUtils.initHibernate(dbname, username, password);
-			createExporterImporters();
-			readDatabaseObjects();
-			readStandardSpellings();
+	private static class WorkOutputStream extends OutputStream {
 
-			//	Build file or directory.
+		/**	The real output stream. */
 
-			if (isDir) {
-				buildDir(file);
-			} else {
-				buildWork(file);
-			}
+		private PrintStream out;
 
-			//	Import objects into the MySQL database.
+		/**	Output buffer for the current thread, or null if none. */
 
-			if (!debug) importObjects();
-			BuildUtils.deleteTempDir();
+		private ThreadLocal buffer = new ThreadLocal();
 
-			//	Report final stats.
+		/**	Creates a new work output stream.
+		 *
+		 *	@param	out		The real output stream.
+		 */
 
-			long endTime = System.currentTimeMillis();
-			System.out.println();
-			System.out.println(Formatters.formatIntegerWithCommas(numWorks) +
-				(numWorks == 1 ? " work" : " works") +
-				" created in " +
-				BuildUtils.formatElapsedTime(startTime, endTime));
-			BuildUtils.reportNumErrors();
+		private WorkOutputStream (PrintStream out) {
+			this.out = out;
+		}
 
-			//	Run client if debug mode and single file built.
+		/**	Starts holding the output of the current thread.
+		 */
 
-			if (debug && !isDir)
-				WordHoard.main(new String[]{corpusTag, fullWorkTag});
+		private void startBuffering () {
+			buffer.set(new ByteArrayOutputStream());
+		}
 
-		} catch (Exception e) {
+		/**	Writes the held output of the current thread and stops holding
+		 *	its output.
+		 *
+		 *	@throws	IOException
+		 */
 
-			e.printStackTrace();
-			System.exit(1);
+		private void stopBuffering ()
+			throws IOException
+		{
+			ByteArrayOutputStream buf = (ByteArrayOutputStream)buffer.get();
+			buffer.set(null);
+			if (buf != null) buf.writeTo(out);
+			out.flush();
+		}
 
+		/**	Gets the stream for the current thread.
+		 *
+		 *	@return		The current thread's buffer, or the real output
+		 *				stream if none.
+		 */
+
+		private OutputStream getStream () {
+			OutputStream buf = (OutputStream)buffer.get();
+			return buf == null ? out : buf;
 		}
 
-	}
+		public void write (int b)
+			throws IOException
+		{
+			getStream().write(b);
+		}
 
-	/**	Hides the default no-arg constructor.
-	 */
+		public void write (byte[] b, int off, int len)
+			throws IOException
+		{
+			getStream().write(b, off, len);
+		}
+
+		public void flush ()
+			throws IOException
+		{
+			out.flush();
+		}
 
-	private BuildWorks () {
-		throw new UnsupportedOperationException();
 	}
 
 }
@@ -3,6 +3,7 @@ package edu.northwestern.at.wordhoard.tools;
 /*	Please see the license information at the end of this file. */
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 import java.sql.*;
 
@@ -11,6 +12,7 @@ import edu.northwestern.at.wordhoard.model.counts.*;
 import edu.northwestern.at.wordhoard.model.wrappers.*;
 import edu.northwestern.at.wordhoard.model.text.*;
 import edu.northwestern.at.utils.*;
+import edu.northwestern.at.utils.intcollections.*;
 import edu.northwestern.at.utils.db.mysql.*;
 
 /**	Calculates counts.
@@ -24,7 +26,12 @@ import edu.northwestern.at.utils.db.mysql.*;
  *	<p>Usage:
  *
  *	<p><code>CalculateCounts dbname username passwrod 
- *	wordDataPath wordPartDataPath speechDataPath</code>
+ *	wordDataPath wordPartDataPath speechDataPath [numThreads]</code>
+ *
+ *	<p>or
+ *
+ *	<p><code>CalculateCounts dbname username password -update
+ *	[numThreads]</code>
  *
  *	<p>dbname = Database name.
  *
@@ -72,9 +79,31 @@ import edu.northwestern.at.utils.db.mysql.*;
  *		<li>Mortality attribute.
  *		</ol>
  *
+ *	<p>numThreads = Number of counting threads (optional). The default is 1.
+ *	0 means use one thread per available processor.
+ *
  *	<p>The three input data files must be sorted in increasing lexical or
  *	numeric order.
  *
+ *	<p>Works are counted independently of each other. When more than one
+ *	thread is used, the input files are still read sequentially, but each
+ *	work is handed to a fork/join pool as soon as it has been read. Each 
+ *	thread prints to its own set of data files, and the lemma counts for 
+ *	the works in a corpus are merged to produce the corpus counts. The 
+ *	resulting tables hold the same rows as those produced by a single
+ *	thread, but the rows are loaded one file at a time, so their ids and
+ *	physical order depend on how the works were spread across the
+ *	threads. Don't rely on the ids of the count tables.
+ *
+ *	<p>The -update option updates the counts after works have been
+ *	rebuilt, added or removed, without the data files. The old copy of a
+ *	rebuilt work is unlinked from its corpus, but keeps its counts. Only
+ *	the works which have no counts yet are counted, reading their data
+ *	from the database, and the counts of the old works are deleted. The
+ *	old work counts are subtracted from the corpus counts and the new
+ *	ones added, and the lemma ranks are only recomputed in the major word
+ *	classes which contain a changed lemma.
+ *
  *	<p>The file "hibernate.properties" specifies the parameters for our
  *	object model MySQL database.
  */
@@ -117,6 +146,7 @@ public class CalculateCounts {
 		public byte prosodic;
 		public String metricalShape;
 		public Long speechId;
+		public WordPartData[] parts;
 	}
 	
 	/**	Word part data class. */
@@ -268,19 +298,22 @@ public class CalculateCounts {
 	/**	Work counter class. */
 	
 	private static class WorkCounter {
+		private long lemmaId;
 		private long wordClassId;
 		private String lemmaTagString;
 		private int lemmaTagCharset;
 		private String majorClass;
 		private int termFreq;
 		private int rank1;
-		private int rank2; 
+		private int rank2;
 		private int numMajorClass;
 	}
 	
 	/**	Corpus counter class. */
 	
 	private static class CorpusCounter {
+		private long id;
+		private long lemmaId;
 		private long wordClassId;
 		private String lemmaTagString;
 		private int lemmaTagCharset;
@@ -324,6 +357,863 @@ public class CalculateCounts {
 		private int freqFirstWordPart;
 	}
 	
+	/**	Work batch class.
+	 *
+	 *	<p>A work batch holds all of the word, word part, and speech data
+	 *	for a single work. Works are counted independently of each other,
+	 *	so a batch is the unit of work handed to a counting thread.
+	 */
+	
+	private static class WorkBatch {
+		public Long corpusId;
+		public Long workId;
+		public ArrayList words = new ArrayList();
+		public HashMap speechDataMap = new HashMap();
+	}
+	
+	/**	Exporter/importer set class.
+	 *
+	 *	<p>Each counting thread prints to its own set of data files, so
+	 *	no locking is needed when printing counts. All of the files for
+	 *	a table are imported into the table at the end, one after the
+	 *	other. The rows are the same as with a single thread, but their
+	 *	generated ids are not.
+	 */
+	
+	private static class ExporterImporters {
+		private TableExporterImporter lemmaWorkCounts;
+		private TableExporterImporter lemmaCorpusCounts;
+		private TableExporterImporter lemmaPosSpellingCounts;
+		private TableExporterImporter wordCount;
+		private TableExporterImporter totalWordFormCount;
+		private ExporterImporters (int n)
+			throws Exception
+		{
+			lemmaWorkCounts =
+				new TableExporterImporter(
+					"lemmaworkcounts",
+					"work,lemma,termFreq,rank1,rank2,numMajorClass",
+					tempDirPath + "lemmaWorkCounts" + n + ".txt",
+					false);
+			lemmaCorpusCounts =
+				new TableExporterImporter(
+					"lemmacorpuscounts",
+					"corpus,lemma,tag_string,tag_charset,wordClass,majorClass," +
+					"colFreq,docFreq,rank1,rank2,numMajorClass",
+					tempDirPath + "lemmaCorpusCounts" + n + ".txt",
+					false);
+			lemmaPosSpellingCounts =
+				new TableExporterImporter(
+					"lemmaposspellingcounts ",
+					"kind,corpus,work,workPart," +
+					"lemma,pos,spelling_string,spelling_charset,freq,freqFirstWordPart",
+					tempDirPath + "wordFormCounts" + n + ".txt",
+					false);
+			wordCount =
+				new TableExporterImporter(
+					"wordcount",
+					"word_string,word_charset,wordForm,workPart,work,wordCount",
+					tempDirPath + "wordCount" + n + ".txt",
+					false);
+			totalWordFormCount =
+				new TableExporterImporter(
+					"totalwordformcount",
+					"wordForm,workPart,work,wordFormCount",
+					tempDirPath + "totalWordFormCount" + n + ".txt",
+					false);
+		}
+	}
+	
+	/**	Work counts class.
+	 *
+	 *	<p>Counts a single work batch and prints the work and work part
+	 *	counts. The lemma and lemma/pos/spelling counts for the work are
+	 *	retained so that they can be merged into the corpus counts.
+	 */
+	
+	private static class WorkCounts {
+		
+		/**	The work batch. */
+		
+		private WorkBatch batch;
+		
+		/**	Exporter/importers for the current thread. */
+		
+		private ExporterImporters out;
+		
+		/**	Current work part id. */
+		
+		private Long workPartId;
+		
+		/**	Current word data. */
+		
+		private WordData wordData;
+		
+		/**	String buffer for building word classes string for current word. */
+		
+		private StringBuffer wordClassesBuffer;
+		
+		/**	True if first part of current word. */
+		
+		private boolean firstWordPart;
+		
+		/**	Map from lemma ids to term frequencies for the work. */
+		
+		private LongIntHashMap lemmaWorkCountsMap = new LongIntHashMap();
+		
+		/** Map from lemma/pos/spelling keys to frequency counters for the work. */
+		
+		private HashMap workLemmaPosSpellingCountsMap = new HashMap();
+		
+		/**	Map from lemma/pos/spelling keys to frequency counts for current
+		 *	work part.
+		 */
+		
+		private HashMap workPartLemmaPosSpellingCountsMap;
+		
+		/**	Word form counter array for the work.
+		 *
+		 *	<p>A word form counter array is used to accumulate frequency counts
+		 *	by work part for various kinds of word forms (spelling, lemma, word
+		 *	class, etc.). These arrays are used to generate the WordCount and
+		 *	TotalWordFormCount objects.
+		 *
+		 *	<p>A word form counter array is indexed by word form kind. Each
+		 *	element is a hashmap mapping work part ids to hashmaps mapping
+		 *	spellings to frequency counts.
+		 */
+		
+		private HashMap[] wordFormCounterArray;
+		
+		/**	Creates a new work counts object.
+		 *
+		 *	@param	batch		Work batch.
+		 */
+		
+		private WorkCounts (WorkBatch batch) {
+			this.batch = batch;
+		}
+		
+		/**	Counts the work.
+		 *
+		 *	@throws	Exception
+		 */
+		
+		private void count ()
+			throws Exception
+		{
+			out = getExporterImporters();
+			startCountingWork();
+			for (Iterator it = batch.words.iterator(); it.hasNext(); ) {
+				wordData = (WordData)it.next();
+				if (!wordData.workPartId.equals(workPartId)) {
+					if (workPartId != null) endCountingWorkPart();
+					workPartId = wordData.workPartId;
+					startCountingWorkPart();
+				}
+				startCountingWord();
+				for (int i = 0; i < wordData.parts.length; i++)
+					countWordPart(wordData.parts[i]);
+				endCountingWord();
+			}
+			if (workPartId != null) endCountingWorkPart();
+			endCountingWork();
+			wordData = null;
+			wordFormCounterArray = null;
+		}
+		
+		/**	Updates word form counts.
+		 *
+		 *	@param	kind		Word form kind.
+		 *
+		 *	@param	str			String.
+		 *
+		 *	@param	charset		Character set.
+		 *
+		 *	@throws	Exception
+		 */
+		
+		private void updateWordFormCounts (int kind, String str,
+			byte charset)
+				throws Exception
+		{
+			HashMap map = wordFormCounterArray[kind];
+			Long partId = workPartId;
+			Spelling spelling = new Spelling(str, charset);
+			while (partId != null) {
+				HashMap subMap = (HashMap)map.get(partId);
+				FrequencyCounter fc = (FrequencyCounter)subMap.get(spelling);
+				if (fc == null) {
+					fc = new FrequencyCounter();
+					subMap.put(spelling, fc);
+				}
+				fc.freq++;
+				partId = (Long)workPartParentMap.get(partId);
+			}
+		}
+		
+		/**	Computes lemma ranks in the work.
+		 *
+		 *	@return		Array of lemma work counters.
+		 *
+		 *	@throws Exception
+		 */
+		
+		private WorkCounter[] computeLemmaWorkRanks ()
+			throws Exception
+		{
+			long[] lemmaIds = lemmaWorkCountsMap.keys();
+			WorkCounter[] a = new WorkCounter[lemmaIds.length];
+			for (int i = 0; i < lemmaIds.length; i++) {
+				long lemmaId = lemmaIds[i];
+				LemmaInfo lemmaInfo =
+					(LemmaInfo)lemmaInfoMap.get(Long.valueOf(lemmaId));
+				WordClassInfo wordClassInfo =
+					(WordClassInfo)wordClassInfoMap.get(
+						Long.valueOf(lemmaInfo.wordClassId));
+				WorkCounter workCounter = new WorkCounter();
+				workCounter.lemmaId = lemmaId;
+				workCounter.wordClassId = lemmaInfo.wordClassId;
+				workCounter.lemmaTagString = lemmaInfo.tagString;
+				workCounter.lemmaTagCharset = lemmaInfo.tagCharset;
+				workCounter.majorClass = wordClassInfo.majorClass;
+				workCounter.termFreq = lemmaWorkCountsMap.get(lemmaId);
+				a[i] = workCounter;
+			}
+			Arrays.sort(a,
+				new Comparator() {
+					public int compare (Object o1, Object o2) {
+						WorkCounter wc1 = (WorkCounter)o1;
+						WorkCounter wc2 = (WorkCounter)o2;
+						int k = wc1.majorClass.compareTo(wc2.majorClass);
+						if (k != 0) return k;
+						return wc2.termFreq - wc1.termFreq;
+					}
+				}
+			);
+			int majorClassStartIndex = 0;
+			int majorClassEndIndex = 0;
+			while (majorClassStartIndex < a.length) {
+				majorClassEndIndex = majorClassStartIndex + 1;
+				String majorClass = a[majorClassStartIndex].majorClass;
+				while (majorClassEndIndex < a.length) {
+					if (!a[majorClassEndIndex].majorClass.equals(majorClass)) break;
+					majorClassEndIndex++;
+				}
+				int numMajorClass = majorClassEndIndex - majorClassStartIndex;
+				int runStartIndex = majorClassStartIndex;
+				int runEndIndex = majorClassStartIndex;
+				while (runStartIndex < majorClassEndIndex) {
+					runEndIndex = runStartIndex + 1;
+					int termFreq = a[runStartIndex].termFreq;
+					while (runEndIndex < majorClassEndIndex) {
+						if (a[runEndIndex].termFreq != termFreq) break;
+						runEndIndex++;
+					}
+					int rank1 = runStartIndex - majorClassStartIndex + 1;
+					int rank2 = runEndIndex - majorClassStartIndex;
+					for(int i = runStartIndex; i < runEndIndex; i++) {
+						a[i].rank1 = rank1;
+						a[i].rank2 = rank2;
+						a[i].numMajorClass = numMajorClass;
+					}
+					runStartIndex = runEndIndex;
+				}
+				majorClassStartIndex = majorClassEndIndex;
+			}
+			return a;
+		}
+		
+		/**	Prints lemma work counts.
+		 *
+		 *	@param	a		Array of lemma work counters.
+		 *
+		 *	@throws Exception
+		 */
+		
+		private void printLemmaWorkCounts (WorkCounter[] a)
+			throws Exception
+		{
+			TableExporterImporter ei = out.lemmaWorkCounts;
+			for (int i = 0; i < a.length; i++) {
+				WorkCounter wc = a[i];
+				ei.print(batch.workId);
+				ei.print(wc.lemmaId);
+				ei.print(wc.termFreq);
+				ei.print(wc.rank1);
+				ei.print(wc.rank2);
+				ei.print(wc.numMajorClass);
+				ei.println();
+			}
+		}
+		
+		/**	Prints word form counter array counts.
+		 *
+		 *	@throws Exception
+		 */
+		
+		private void printWordFormCounterArray ()
+			throws Exception
+		{
+			TableExporterImporter wordCount = out.wordCount;
+			TableExporterImporter totalWordFormCount = out.totalWordFormCount;
+			for (int kind = 0; kind < WordForms.NUMBEROFWORDFORMS; kind++) {
+				Map map = wordFormCounterArray[kind];
+				for (Iterator it1 = map.keySet().iterator(); it1.hasNext(); ) {
+					Long workPartId = (Long)it1.next();
+					Map subMap = (Map)map.get(workPartId);
+					int total = 0;
+					for (Iterator it2 = subMap.keySet().iterator();
+						it2.hasNext(); )
+					{
+						Spelling formSpelling = (Spelling)it2.next();
+						FrequencyCounter fc =
+							(FrequencyCounter)subMap.get(formSpelling);
+						int freq = fc.freq;
+						wordCount.print(formSpelling.getString());
+						wordCount.print(formSpelling.getCharset());
+						wordCount.print(kind);
+						wordCount.print(workPartId);
+						wordCount.print(batch.workId);
+						wordCount.print(freq);
+						wordCount.println();
+						total += freq;
+					}
+					totalWordFormCount.print(kind);
+					totalWordFormCount.print(workPartId);
+					totalWordFormCount.print(batch.workId);
+					totalWordFormCount.print(total);
+					totalWordFormCount.println();
+				}
+			}
+		}
+		
+		/**	Prints work lemma/pos/spelling counts.
+		 *
+		 *	@throws Exception
+		 */
+		
+		private void printWorkLemmaPosSpellingCounts ()
+			throws Exception
+		{
+			printLemmaPosSpellingCounts(out.lemmaPosSpellingCounts,
+				workLemmaPosSpellingCountsMap,
+				LemmaPosSpellingCounts.WORK_COUNT,
+				batch.corpusId, batch.workId, null);
+		}
+		
+		/**	Prints work part lemma/pos/spelling counts.
+		 *
+		 *	@throws Exception
+		 */
+		
+		private void printWorkPartLemmaPosSpellingCounts ()
+			throws Exception
+		{
+			printLemmaPosSpellingCounts(out.lemmaPosSpellingCounts,
+				workPartLemmaPosSpellingCountsMap,
+				LemmaPosSpellingCounts.WORK_PART_COUNT,
+				batch.corpusId, batch.workId, workPartId);
+		}
+		
+		/**	Counts a word part.
+		 *
+		 *	@param	wordPartData	Word part data.
+		 *
+		 *	@throws Exception
+		 */
+		
+		private void countWordPart (WordPartData wordPartData)
+			throws Exception
+		{
+			Long lemPosKey = wordPartData.lemPosId;
+			LemPosInfo lemPosInfo = (LemPosInfo)lemPosInfoMap.get(lemPosKey);
+			long lemmaId = lemPosInfo.lemmaId;
+			Long lemmaKey = Long.valueOf(lemmaId);
+			long posId = lemPosInfo.posId;
+			LemmaInfo lemmaInfo = (LemmaInfo)lemmaInfoMap.get(lemmaKey);
+			long wordClassId = lemmaInfo.wordClassId;
+			WordClassInfo wordClassInfo = (WordClassInfo)wordClassInfoMap.get(
+				Long.valueOf(wordClassId));
+			
+			//	Increment the lemma/work counter.
+			
+			lemmaWorkCountsMap.increment(lemmaId, 1);
+			
+			//	Increment the work lemma/pos/spelling counters. The corpus
+			//	counters are the sums of the work counters, and are
+			//	accumulated when the work is merged into its corpus.
+			
+			LemmaPosSpelling lps = new LemmaPosSpelling(lemmaId, posId,
+				wordData.spelling, wordData.charset);
+			FrequencyCounter fc = (FrequencyCounter)workLemmaPosSpellingCountsMap.get(lps);
+			if (fc == null) {
+				fc = new FrequencyCounter();
+				workLemmaPosSpellingCountsMap.put(lps, fc);
+			}
+			fc.freq++;
+			if (firstWordPart) fc.freqFirstWordPart++;
+			
+			//	Increment the work part lemma/pos/spelling counters.
+			
+			fc = (FrequencyCounter)workPartLemmaPosSpellingCountsMap.get(lps);
+			if (fc == null) {
+				fc = new FrequencyCounter();
+				workPartLemmaPosSpellingCountsMap.put(lps, fc);
+			}
+			fc.freq++;
+			if (firstWordPart) fc.freqFirstWordPart++;
+			
+			//	Append the word class for the current word part.
+			
+			if (!firstWordPart) wordClassesBuffer.append("-");
+			wordClassesBuffer.append(wordClassInfo.tag);
+			if (lemmaInfo.homonym > 0) wordClassesBuffer.append(" " +
+				lemmaInfo.homonym);
+			firstWordPart = false;
+			
+			//	Update the LEMMA and WORDCLASS counts.
+			
+			updateWordFormCounts(WordForms.LEMMA, lemmaInfo.tagString,
+				lemmaInfo.tagCharset);
+			
+			updateWordFormCounts(WordForms.WORDCLASS, wordClassInfo.tag,
+				TextParams.ROMAN);
+		}
+		
+		/**	Starts counting a new word.
+		 *
+		 *	@throws	Exception
+		 */
+		
+		private void startCountingWord ()
+			throws Exception
+		{
+			//	Create a new empty buffer for accumulating word classes.
+			
+			wordClassesBuffer = new StringBuffer();
+			firstWordPart = true;
+		}
+		
+		/**	Ends counting a word.
+		 *
+		 *	@throws	Exception
+		 */
+		
+		private void endCountingWord ()
+			throws Exception
+		{
+			//	Update the SPELLING counts.
+			
+			String str = wordData.spellingInsensitive + " (" +
+				wordClassesBuffer.toString() + ")";
+			updateWordFormCounts(WordForms.SPELLING, str, wordData.charset);
+			
+			//	Update the ISVERSE counts.
+			
+			switch (wordData.prosodic) {
+				case Prosodic.PROSE:
+					str = "N";
+					break;
+				case Prosodic.VERSE:
+					str = "Y";
+					break;
+				case Prosodic.UNKNOWN:
+					str = "U";
+					break;
+			}
+			updateWordFormCounts(WordForms.ISVERSE, str, TextParams.ROMAN);
+			
+			//	Update the METRICALSHAPE counts.
+			
+			str = wordData.metricalShape;
+			if (str == null) str="";
+			updateWordFormCounts(WordForms.METRICALSHAPE, str, TextParams.ROMAN);
+			
+			//	Update the SPEAKERGENDER and SPEAKERMORTALITY counts.
+			
+			Long speechId = wordData.speechId;
+			
+			if (speechId == null) {
+				
+				updateWordFormCounts(WordForms.SPEAKERGENDER, "U",
+					TextParams.ROMAN);
+				updateWordFormCounts(WordForms.SPEAKERMORTALITY, "U",
+					TextParams.ROMAN);
+			
+			} else {
+				
+				SpeechData speechData =
+					(SpeechData)batch.speechDataMap.get(speechId);
+				
+				switch (speechData.gender) {
+					case Gender.MALE:
+						str = "M";
+						break;
+					case Gender.FEMALE:
+						str = "F";
+						break;
+					case Gender.UNCERTAIN_MIXED_OR_UNKNOWN:
+						str = "U";
+						break;
+				}
+				updateWordFormCounts(WordForms.SPEAKERGENDER, str,
+					TextParams.ROMAN);
+				
+				switch (speechData.mortality) {
+					case Mortality.MORTAL:
+						str = "M";
+						break;
+					case Mortality.IMMORTAL_OR_SUPERNATURAL:
+						str = "I";
+						break;
+					case Mortality.UNKNOWN_OR_OTHER:
+						str = "U";
+						break;
+				}
+				updateWordFormCounts(WordForms.SPEAKERMORTALITY, str,
+					TextParams.ROMAN);
+			
+			}
+		
+		}
+		
+		/**	Starts counting a new work part.
+		 *
+		 *	@throws	Exception
+		 */
+		
+		private void startCountingWorkPart ()
+			throws Exception
+		{
+			//	Create a new lemma/pos/spelling counter map for the work part.
+			
+			workPartLemmaPosSpellingCountsMap = new HashMap();
+		}
+		
+		/**	Ends counting a work part.
+		 *
+		 *	@throws	Exception
+		 */
+		
+		private void endCountingWorkPart ()
+			throws Exception
+		{
+			
+			//	Print the lemma/pos/spelling counts for the work part.
+			
+			printWorkPartLemmaPosSpellingCounts();
+			workPartLemmaPosSpellingCountsMap = null;
+		}
+		
+		/**	Starts counting the work.
+		 *
+		 *	@throws	Exception
+		 */
+		
+		private void startCountingWork ()
+			throws Exception
+		{
+			//	Create a new word form counter array for the work.
+			
+			wordFormCounterArray = new HashMap[WordForms.NUMBEROFWORDFORMS];
+			HashSet descendants = (HashSet)workDescendantsMap.get(batch.workId);
+			for (int i = 0; i < WordForms.NUMBEROFWORDFORMS; i++) {
+				HashMap map = new HashMap();
+				wordFormCounterArray[i] = map;
+				for (Iterator it = descendants.iterator(); it.hasNext(); ) {
+					Long workPartId = (Long)it.next();
+					map.put(workPartId, new HashMap());
+				}
+			}
+		}
+		
+		/**	Ends counting the work.
+		 *
+		 *	@throws	Exception
+		 */
+		
+		private void endCountingWork ()
+			throws Exception
+		{
+			//	Compute the lemma ranks for the work and print the lemma
+			//	counts for the work.
+			
+			printLemmaWorkCounts(computeLemmaWorkRanks());
+			
+			//	Print the word form counts for all the parts of the work.
+			
+			printWordFormCounterArray();
+			
+			//	Print the lemma/pos/spelling counts for the work.
+			
+			printWorkLemmaPosSpellingCounts();
+		}
+	
+	}
+	
+	/**	Corpus counts class.
+	 *
+	 *	<p>Accumulates the counts of all the works in a corpus. Works may be
+	 *	added from several counting threads at once.
+	 */
+	
+	private static class CorpusCounts {
+		
+		/**	Corpus id. */
+		
+		private Long corpusId;
+		
+		/**	Map from lemma ids to collection frequencies. */
+		
+		private LongIntHashMap lemmaColFreqMap = new LongIntHashMap();
+		
+		/**	Map from lemma ids to document frequencies. */
+		
+		private LongIntHashMap lemmaDocFreqMap = new LongIntHashMap();
+		
+		/**	Map from lemma/pos/spelling keys to frequency counters. */
+		
+		private HashMap corpusLemmaPosSpellingCountsMap = new HashMap();
+		
+		/**	Creates a new corpus counts object.
+		 *
+		 *	@param	corpusId	Corpus id.
+		 */
+		
+		private CorpusCounts (Long corpusId) {
+			this.corpusId = corpusId;
+		}
+		
+		/**	Adds the counts for a work.
+		 *
+		 *	@param	workCounts		Work counts.
+		 */
+		
+		private void add (WorkCounts workCounts) {
+			add(workCounts, 1);
+		}
+		
+		/**	Subtracts the counts for a work.
+		 *
+		 *	<p>Used when updating counts, to take out the old counts of a
+		 *	work which was rebuilt or removed. The counts may then be
+		 *	negative.
+		 *
+		 *	@param	workCounts		Work counts.
+		 */
+		
+		private void subtract (WorkCounts workCounts) {
+			add(workCounts, -1);
+		}
+		
+		/**	Adds or subtracts the counts for a work.
+		 *
+		 *	@param	workCounts		Work counts.
+		 *
+		 *	@param	sign			1 to add the counts, -1 to subtract them.
+		 */
+		
+		private synchronized void add (WorkCounts workCounts, int sign) {
+			LongIntHashMap lemmaWorkCountsMap = workCounts.lemmaWorkCountsMap;
+			long[] lemmaIds = lemmaWorkCountsMap.keys();
+			for (int i = 0; i < lemmaIds.length; i++) {
+				long lemmaId = lemmaIds[i];
+				lemmaColFreqMap.increment(lemmaId,
+					sign * lemmaWorkCountsMap.get(lemmaId));
+				lemmaDocFreqMap.increment(lemmaId, sign);
+			}
+			Map map = workCounts.workLemmaPosSpellingCountsMap;
+			for (Iterator it = map.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry entry = (Map.Entry)it.next();
+				LemmaPosSpelling lps = (LemmaPosSpelling)entry.getKey();
+				FrequencyCounter workFc = (FrequencyCounter)entry.getValue();
+				FrequencyCounter fc =
+					(FrequencyCounter)corpusLemmaPosSpellingCountsMap.get(lps);
+				if (fc == null) {
+					fc = new FrequencyCounter();
+					corpusLemmaPosSpellingCountsMap.put(lps, fc);
+				}
+				fc.freq += sign * workFc.freq;
+				fc.freqFirstWordPart += sign * workFc.freqFirstWordPart;
+			}
+		}
+		
+		/**	Computes lemma ranks in the corpus.
+		 *
+		 *	@return		Array of lemma corpus counters.
+		 *
+		 *	@throws Exception
+		 */
+		
+		private CorpusCounter[] computeLemmaCorpusRanks ()
+			throws Exception
+		{
+			long[] lemmaIds = lemmaColFreqMap.keys();
+			CorpusCounter[] a = new CorpusCounter[lemmaIds.length];
+			for (int i = 0; i < lemmaIds.length; i++) {
+				long lemmaId = lemmaIds[i];
+				LemmaInfo lemmaInfo =
+					(LemmaInfo)lemmaInfoMap.get(Long.valueOf(lemmaId));
+				WordClassInfo wordClassInfo =
+					(WordClassInfo)wordClassInfoMap.get(
+						Long.valueOf(lemmaInfo.wordClassId));
+				CorpusCounter corpusCounter = new CorpusCounter();
+				corpusCounter.lemmaId = lemmaId;
+				corpusCounter.wordClassId = lemmaInfo.wordClassId;
+				corpusCounter.lemmaTagString = lemmaInfo.tagString;
+				corpusCounter.lemmaTagCharset = lemmaInfo.tagCharset;
+				corpusCounter.majorClass = wordClassInfo.majorClass;
+				corpusCounter.colFreq = lemmaColFreqMap.get(lemmaId);
+				corpusCounter.docFreq = lemmaDocFreqMap.get(lemmaId);
+				a[i] = corpusCounter;
+			}
+			Arrays.sort(a,
+				new Comparator() {
+					public int compare (Object o1, Object o2) {
+						CorpusCounter cc1 = (CorpusCounter)o1;
+						CorpusCounter cc2 = (CorpusCounter)o2;
+						int k = cc1.majorClass.compareTo(cc2.majorClass);
+						if (k != 0) return k;
+						return cc2.colFreq - cc1.colFreq;
+					}
+				}
+			);
+			int majorClassStartIndex = 0;
+			int majorClassEndIndex = 0;
+			while (majorClassStartIndex < a.length) {
+				majorClassEndIndex = majorClassStartIndex + 1;
+				String majorClass = a[majorClassStartIndex].majorClass;
+				while (majorClassEndIndex < a.length) {
+					if (!a[majorClassEndIndex].majorClass.equals(majorClass)) break;
+					majorClassEndIndex++;
+				}
+				int numMajorClass = majorClassEndIndex - majorClassStartIndex;
+				int runStartIndex = majorClassStartIndex;
+				int runEndIndex = majorClassStartIndex;
+				while (runStartIndex < majorClassEndIndex) {
+					runEndIndex = runStartIndex + 1;
+					int colFreq = a[runStartIndex].colFreq;
+					while (runEndIndex < majorClassEndIndex) {
+						if (a[runEndIndex].colFreq != colFreq) break;
+						runEndIndex++;
+					}
+					int rank1 = runStartIndex - majorClassStartIndex + 1;
+					int rank2 = runEndIndex - majorClassStartIndex;
+					for(int i = runStartIndex; i < runEndIndex; i++) {
+						a[i].rank1 = rank1;
+						a[i].rank2 = rank2;
+						a[i].numMajorClass = numMajorClass;
+					}
+					runStartIndex = runEndIndex;
+				}
+				majorClassStartIndex = majorClassEndIndex;
+			}
+			return a;
+		}
+		
+		/**	Prints lemma corpus counts.
+		 *
+		 *	@param	out		Exporter/importers.
+		 *
+		 *	@param	a		Array of lemma corpus counters.
+		 *
+		 *	@throws Exception
+		 */
+		
+		private void printLemmaCorpusCounts (ExporterImporters out,
+			CorpusCounter[] a)
+				throws Exception
+		{
+			TableExporterImporter ei = out.lemmaCorpusCounts;
+			for (int i = 0; i < a.length; i++) {
+				CorpusCounter cc = a[i];
+				ei.print(corpusId);
+				ei.print(cc.lemmaId);
+				ei.print(cc.lemmaTagString);
+				ei.print(cc.lemmaTagCharset);
+				ei.print(cc.wordClassId);
+				ei.print(cc.majorClass);
+				ei.print(cc.colFreq);
+				ei.print(cc.docFreq);
+				ei.print(cc.rank1);
+				ei.print(cc.rank2);
+				ei.print(cc.numMajorClass);
+				ei.println();
+			}
+		}
+		
+		/**	Ends counting the corpus.
+		 *
+		 *	<p>Must not be called until all the works in the corpus have
+		 *	been added.
+		 *
+		 *	@throws	Exception
+		 */
+		
+		private synchronized void endCountingCorpus ()
+			throws Exception
+		{
+			ExporterImporters out = getExporterImporters();
+			
+			//	Compute the lemma ranks for the corpus and print the lemma
+			//	counts for the corpus.
+			
+			printLemmaCorpusCounts(out, computeLemmaCorpusRanks());
+			
+			//	Print the lemma/pos/spelling counts for the corpus.
+			
+			printLemmaPosSpellingCounts(out.lemmaPosSpellingCounts,
+				corpusLemmaPosSpellingCountsMap,
+				LemmaPosSpellingCounts.CORPUS_COUNT,
+				corpusId, null, null);
+		}
+	
+	}
+	
+	/**	Task to count a work. */
+	
+	private static class CountWorkTask extends RecursiveAction {
+		private WorkBatch batch;
+		private CorpusCounts corpusCounts;
+		private CountWorkTask (WorkBatch batch, CorpusCounts corpusCounts) {
+			this.batch = batch;
+			this.corpusCounts = corpusCounts;
+		}
+		protected void compute () {
+			try {
+				WorkCounts workCounts = new WorkCounts(batch);
+				batch = null;
+				workCounts.count();
+				corpusCounts.add(workCounts);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			} finally {
+				if (pendingWorks != null) pendingWorks.release();
+			}
+		}
+	}
+	
+	/**	Task to end counting a corpus. */
+	
+	private static class EndCorpusTask extends RecursiveAction {
+		private CorpusCounts corpusCounts;
+		private EndCorpusTask (CorpusCounts corpusCounts) {
+			this.corpusCounts = corpusCounts;
+		}
+		protected void compute () {
+			try {
+				corpusCounts.endCountingCorpus();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+	
 	/**	JDBC connection to model database. */
 	
 	private static Connection c;
@@ -346,7 +1236,7 @@ public class CalculateCounts {
 	
 	/**	Maps work ids to sets of descendant work part ids. */
 	
-	private static HashMap workDescendantsMap; 
+	private static HashMap workDescendantsMap;
 	
 	/**	Word data reader. */
 	
@@ -360,106 +1250,30 @@ public class CalculateCounts {
 	
 	private static SpeechDataReader speechDataReader;
 	
-	/**	Current corpus id. */
+	/**	List of all exporter/importer sets, one per counting thread. */
 	
-	private static Long corpusId;
+	private static ArrayList exporterImportersList = new ArrayList();
 	
-	/**	Current work id. */
+	/**	Exporter/importer set for the current thread. */
 	
-	private static Long workId;
+	private static ThreadLocal threadExporterImporters = new ThreadLocal();
 	
-	/**	Current work part id. */
+	/**	Limits the number of work batches read but not yet counted,
+	 *	or null if counting in a single thread.
+	 */
 	
-	private static Long workPartId;
+	private static Semaphore pendingWorks;
 	
-	/**	Current word id. */
+	/**	Path to temporary directory. */
 	
-	private static Long wordId;
-	
-	/**	Current word data. */
-	
-	private static WordData wordData;
-	
-	/**	Current word part data. */
-	
-	private static WordPartData wordPartData;
-	
-	/**	String buffer for building word classes string for current word. */
-	
-	private static StringBuffer wordClassesBuffer;
-	
-	/**	True if first part of current word. */
-	
-	private static boolean firstWordPart;
-	
-	/**	Map from speech ids to speech data for current work part. */
-	
-	private static HashMap speechDataMap;
-	
-	/**	Map from lemma ids to corpus counts for current corpus. */
-	
-	private static HashMap lemmaCorpusCountsMap;
-	
-	/**	Map from lemma ids to work counts for current work. */
-	
-	private static HashMap lemmaWorkCountsMap;
-	
-	/**	Map from lemma/pos/spelling keys to frequency counters for current corpus. */
-		
-	private static HashMap corpusLemmaPosSpellingCountsMap;
-	
-	/** Map from lemma/pos/spelling keys to frequency counters for current work. */
-	
-	private static HashMap workLemmaPosSpellingCountsMap;
-	
-	/**	Map from lemma/pos/spelling keys to frequency counts for current work part. */
-	
-	private static HashMap workPartLemmaPosSpellingCountsMap;
-	
-	/**	Word form counter array for current work.
-	 *
-	 *	<p>A word form counter array is used to accumulate frequency counts
-	 *	by work part for various kinds of word forms (spelling, lemma, word 
-	 *	class, etc.). These arrays are used to generate the WordCount and
-	 *	TotalWordFormCount objects.
-	 *
-	 *	<p>A word form counter array is indexed by word form kind. Each
-	 *	element is a hashmap mapping work part ids to hashmaps mapping spellings
-	 *	to frequency counts.
-	 */
-	 
-	private static HashMap[] wordFormCounterArray;
-
-	/**	LemmaWorkCounts exporter/importer. */
-	
-	private static TableExporterImporter lemmaWorkCountsExporterImporter;
-	
-	/**	LemmaCorpusCounts exporter/importer. */
-	
-	private static TableExporterImporter lemmaCorpusCountsExporterImporter;
-	
-	/**	LemmaPosSpellingCounts exporter/importer. */
-	
-	private static TableExporterImporter lemmaPosSpellingCountsExporterImporter;
-	
-	/**	WordCount exporter/importer. */
-	
-	private static TableExporterImporter wordCountExporterImporter;
-	
-	/**	TotalWordFormCount exporter/importer. */
-	
-	private static TableExporterImporter totalWordFormCountExporterImporter;
-	
-	/**	Path to temporary directory. */
-	
-	private static String tempDirPath;
+	private static String tempDirPath;
 	
 	/**	Reads database info.
 	 *
 	 *	@throws Exception
 	 */
-	 
-	private static void readDatabaseInfo () 
+	
+	private static void readDatabaseInfo ()
 		throws Exception
 	{
 		Statement s = c.createStatement();
@@ -529,886 +1343,982 @@ public class CalculateCounts {
 		r.close();
 		
 		s.close();
-
-	}
 	
-	/**	Initializes the exporter/importers.
-	 *
-	 *	@throws	Exception
-	 */
-	 
-	private static void initExporterImporters ()
-		throws Exception
-	{
-		lemmaWorkCountsExporterImporter =
-			new TableExporterImporter(
-				"lemmaworkcounts",
-				"work,lemma,termFreq,rank1,rank2,numMajorClass",
-				tempDirPath + "lemmaWorkCounts.txt", 
-				false);
-		lemmaCorpusCountsExporterImporter =
-			new TableExporterImporter(
-				"lemmacorpuscounts",
-				"corpus,lemma,tag_string,tag_charset,wordClass,majorClass," +
-				"colFreq,docFreq,rank1,rank2,numMajorClass",
-				tempDirPath + "lemmaCorpusCounts.txt", 
-				false);
-		lemmaPosSpellingCountsExporterImporter =
-			new TableExporterImporter(
-				"lemmaposspellingcounts ",
-				"kind,corpus,work,workPart," +
-				"lemma,pos,spelling_string,spelling_charset,freq,freqFirstWordPart",
-				tempDirPath + "wordFormCounts.txt", 
-				false);
-		wordCountExporterImporter =
-			new TableExporterImporter(
-				"wordcount",
-				"word_string,word_charset,wordForm,workPart,work,wordCount",
-				tempDirPath + "wordCount.txt", 
-				false);
-		totalWordFormCountExporterImporter =
-			new TableExporterImporter(
-				"totalwordformcount",
-				"wordForm,workPart,work,wordFormCount",
-				tempDirPath + "totalWordFormCount.txt", 
-				false);
 	}
 	
-	/**	Updates word form counts.
-	 *
-	 *	@param	kind		Word form kind.
+	/**	Gets the exporter/importers for the current thread.
 	 *
-	 *	@param	str			String.
+	 *	<p>A new set of exporter/importers is created the first time a
+	 *	thread prints counts.
 	 *
-	 *	@param	charset		Character set.
+	 *	@return		Exporter/importers for the current thread.
 	 *
 	 *	@throws	Exception
 	 */
-	 
-	private static void updateWordFormCounts (int kind, String str,
-		byte charset)
-			throws Exception
+	
+	private static ExporterImporters getExporterImporters ()
+		throws Exception
 	{
-		HashMap map = wordFormCounterArray[kind];
-		Long partId = workPartId;
-		Spelling spelling = new Spelling(str, charset);
-		while (partId != null) {
-			HashMap subMap = (HashMap)map.get(partId);
-			FrequencyCounter fc = (FrequencyCounter)subMap.get(spelling);
-			if (fc == null) {
-				fc = new FrequencyCounter();
-				subMap.put(spelling, fc);
+		ExporterImporters result =
+			(ExporterImporters)threadExporterImporters.get();
+		if (result == null) {
+			synchronized (exporterImportersList) {
+				result = new ExporterImporters(exporterImportersList.size());
+				exporterImportersList.add(result);
 			}
-			fc.freq++;
-			partId = (Long)workPartParentMap.get(partId);
+			threadExporterImporters.set(result);
 		}
+		return result;
 	}
 	
-	/**	Accumulates lemma corpus counts.
+	/**	Prints lemma/pos/spelling counts.
 	 *
-	 *	<p>After a work has been counted, we add the counts for the work
-	 *	to the counts for the current corpus.
+	 *	@param	ei			Exporter/importer.
 	 *
-	 *	@throws	Exception
+	 *	@param	map			Map from lemma/pos/spelling keys to frequency
+	 *						counters.
+	 *
+	 *	@param	kind		Kind of count.
+	 *
+	 *	@param	corpusId	Corpus id.
+	 *
+	 *	@param	workId		Work id, or null if corpus count.
+	 *
+	 *	@param	workPartId	Work part id, or null if corpus or work count.
+	 *
+	 *	@throws Exception
 	 */
 	
-	private static void accumulateLemmaCorpusCounts ()
-		throws Exception
+	private static void printLemmaPosSpellingCounts (TableExporterImporter ei,
+		Map map, int kind, Long corpusId, Long workId, Long workPartId)
+			throws Exception
 	{
-		for (Iterator it = lemmaWorkCountsMap.keySet().iterator(); 
-			it.hasNext(); ) 
-		{
-			Long lemmaId = (Long)it.next();
-			WorkCounter workCounter = 
-				(WorkCounter)lemmaWorkCountsMap.get(lemmaId);
-			CorpusCounter corpusCounter = 
-				(CorpusCounter)lemmaCorpusCountsMap.get(lemmaId);
-			if (corpusCounter == null) {
-				corpusCounter = new CorpusCounter();
-				corpusCounter.wordClassId = workCounter.wordClassId;
-				corpusCounter.lemmaTagString = workCounter.lemmaTagString;
-				corpusCounter.lemmaTagCharset = workCounter.lemmaTagCharset;
-				corpusCounter.majorClass = workCounter.majorClass;
-				lemmaCorpusCountsMap.put(lemmaId, corpusCounter);
-			}
-			corpusCounter.colFreq += workCounter.termFreq;
-			corpusCounter.docFreq++;
+		for (Iterator it = map.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry entry = (Map.Entry)it.next();
+			LemmaPosSpelling lps = (LemmaPosSpelling)entry.getKey();
+			FrequencyCounter fc = (FrequencyCounter)entry.getValue();
+			ei.print(kind);
+			ei.print(corpusId);
+			ei.print(workId);
+			ei.print(workPartId);
+			ei.print(lps.lemmaId);
+			ei.print(lps.posId);
+			ei.print(lps.string);
+			ei.print(lps.charset);
+			ei.print(fc.freq);
+			ei.print(fc.freqFirstWordPart);
+			ei.println();
 		}
 	}
 	
-	/**	Computes lemma ranks in a work.
+	/**	Reads the data for a single work.
+	 *
+	 *	@return		The work batch, or null if no more works.
 	 *
 	 *	@throws Exception
 	 */
 	
-	private static void computeLemmaWorkRanks ()
+	private static WorkBatch readWorkBatch ()
 		throws Exception
 	{
-		Collection values = lemmaWorkCountsMap.values();
-		WorkCounter[] a = (WorkCounter[])values.toArray(
-			new WorkCounter[values.size()]);
-		Arrays.sort(a,
-			new Comparator() {
-				public int compare (Object o1, Object o2) {
-					WorkCounter wc1 = (WorkCounter)o1;
-					WorkCounter wc2 = (WorkCounter)o2;
-					int k = wc1.majorClass.compareTo(wc2.majorClass);
-					if (k != 0) return k;
-					return wc2.termFreq - wc1.termFreq;
+		WordData wordData = wordDataReader.get();
+		if (wordData == null) return null;
+		WorkBatch batch = new WorkBatch();
+		batch.corpusId = wordData.corpusId;
+		batch.workId = wordData.workId;
+		ArrayList parts = new ArrayList();
+		while (wordData != null && batch.corpusId.equals(wordData.corpusId) &&
+			batch.workId.equals(wordData.workId))
+		{
+			parts.clear();
+			while (true) {
+				WordPartData wordPartData = wordPartDataReader.get();
+				if (wordPartData == null) break;
+				if (!wordData.wordId.equals(wordPartData.wordId)) {
+					wordPartDataReader.put(wordPartData);
+					break;
 				}
+				parts.add(wordPartData);
 			}
-		);
-		int majorClassStartIndex = 0;
-		int majorClassEndIndex = 0;
-		while (majorClassStartIndex < a.length) {
-			majorClassEndIndex = majorClassStartIndex + 1;
-			String majorClass = a[majorClassStartIndex].majorClass;
-			while (majorClassEndIndex < a.length) {
-				if (!a[majorClassEndIndex].majorClass.equals(majorClass)) break;
-				majorClassEndIndex++;
-			}
-			int numMajorClass = majorClassEndIndex - majorClassStartIndex;
-			int runStartIndex = majorClassStartIndex;
-			int runEndIndex = majorClassStartIndex;
-			while (runStartIndex < majorClassEndIndex) {
-				runEndIndex = runStartIndex + 1;
-				int termFreq = a[runStartIndex].termFreq;
-				while (runEndIndex < majorClassEndIndex) {
-					if (a[runEndIndex].termFreq != termFreq) break;
-					runEndIndex++;
-				}
-				int rank1 = runStartIndex - majorClassStartIndex + 1;
-				int rank2 = runEndIndex - majorClassStartIndex;
-				for(int i = runStartIndex; i < runEndIndex; i++) {
-					a[i].rank1 = rank1;
-					a[i].rank2 = rank2;
-					a[i].numMajorClass = numMajorClass;
-				}
-				runStartIndex = runEndIndex;
+			wordData.parts = (WordPartData[])parts.toArray(
+				new WordPartData[parts.size()]);
+			batch.words.add(wordData);
+			wordData = wordDataReader.get();
+		}
+		wordDataReader.put(wordData);
+		while (true) {
+			SpeechData speechData = speechDataReader.get();
+			if (speechData == null) break;
+			if (!batch.workId.equals(speechData.workId)) {
+				speechDataReader.put(speechData);
+				break;
 			}
-			majorClassStartIndex = majorClassEndIndex;
+			batch.speechDataMap.put(speechData.speechId, speechData);
 		}
+		return batch;
 	}
 	
-	/**	Computes lemma ranks in a corpus.
+	/**	Counts all the works.
 	 *
-	 *	@throws Exception
+	 *	<p>Works are read one at a time. Each work is counted independently,
+	 *	either in the current thread or, if more than one thread is
+	 *	requested, as a task in a fork/join pool. When all the works in a
+	 *	corpus have been counted their counts are merged and the corpus
+	 *	counts are printed.
+	 *
+	 *	@param	numThreads		Number of counting threads.
+	 *
+	 *	@throws	Exception
 	 */
 	
-	private static void computeLemmaCorpusRanks () 
+	private static void countWorks (int numThreads)
 		throws Exception
 	{
-		Collection values = lemmaCorpusCountsMap.values();
-		CorpusCounter[] a = (CorpusCounter[])values.toArray(
-			new CorpusCounter[values.size()]);
-		Arrays.sort(a,
-			new Comparator() {
-				public int compare (Object o1, Object o2) {
-					CorpusCounter cc1 = (CorpusCounter)o1;
-					CorpusCounter cc2 = (CorpusCounter)o2;
-					int k = cc1.majorClass.compareTo(cc2.majorClass);
-					if (k != 0) return k;
-					return cc2.colFreq - cc1.colFreq;
-				}
-			}
-		);
-		int majorClassStartIndex = 0;
-		int majorClassEndIndex = 0;
-		while (majorClassStartIndex < a.length) {
-			majorClassEndIndex = majorClassStartIndex + 1;
-			String majorClass = a[majorClassStartIndex].majorClass;
-			while (majorClassEndIndex < a.length) {
-				if (!a[majorClassEndIndex].majorClass.equals(majorClass)) break;
-				majorClassEndIndex++;
-			}
-			int numMajorClass = majorClassEndIndex - majorClassStartIndex;
-			int runStartIndex = majorClassStartIndex;
-			int runEndIndex = majorClassStartIndex;
-			while (runStartIndex < majorClassEndIndex) {
-				runEndIndex = runStartIndex + 1;
-				int colFreq = a[runStartIndex].colFreq;
-				while (runEndIndex < majorClassEndIndex) {
-					if (a[runEndIndex].colFreq != colFreq) break;
-					runEndIndex++;
-				}
-				int rank1 = runStartIndex - majorClassStartIndex + 1;
-				int rank2 = runEndIndex - majorClassStartIndex;
-				for(int i = runStartIndex; i < runEndIndex; i++) {
-					a[i].rank1 = rank1;
-					a[i].rank2 = rank2;
-					a[i].numMajorClass = numMajorClass;
-				}
-				runStartIndex = runEndIndex;
+		ForkJoinPool pool = null;
+		if (numThreads > 1) {
+			pool = new ForkJoinPool(numThreads);
+			pendingWorks = new Semaphore(numThreads * 4);
+		}
+		ArrayList workTasks = new ArrayList();
+		ArrayList corpusTasks = new ArrayList();
+		CorpusCounts corpusCounts = null;
+		while (true) {
+			WorkBatch batch = readWorkBatch();
+			if (corpusCounts != null && (batch == null ||
+				!corpusCounts.corpusId.equals(batch.corpusId)))
+			{
+				joinTasks(workTasks);
+				runTask(pool, new EndCorpusTask(corpusCounts), corpusTasks);
+				corpusCounts = null;
 			}
-			majorClassStartIndex = majorClassEndIndex;
+			if (batch == null) break;
+			if (corpusCounts == null)
+				corpusCounts = new CorpusCounts(batch.corpusId);
+			if (pendingWorks != null) pendingWorks.acquire();
+			runTask(pool, new CountWorkTask(batch, corpusCounts), workTasks);
 		}
+		joinTasks(corpusTasks);
+		if (pool != null) pool.shutdown();
 	}
 	
-	/**	Prints lemma work counts.
+	/**	Runs a task.
 	 *
-	 *	@throws Exception
+	 *	@param	pool		Fork/join pool, or null to run the task in the
+	 *						current thread.
+	 *
+	 *	@param	task		The task.
+	 *
+	 *	@param	tasks		List of running tasks, to which the task is
+	 *						added if it is run in the pool.
 	 */
-	 
-	private static void printLemmaWorkCounts ()
-		throws Exception
+	
+	private static void runTask (ForkJoinPool pool, ForkJoinTask task,
+		List tasks)
 	{
-		for (Iterator it = lemmaWorkCountsMap.keySet().iterator(); 
-			it.hasNext(); ) 
-		{
-			Long lemmaKey = (Long)it.next();
-			WorkCounter wc = 
-				(WorkCounter)lemmaWorkCountsMap.get(lemmaKey);
-			lemmaWorkCountsExporterImporter.print(workId);
-			lemmaWorkCountsExporterImporter.print(lemmaKey);
-			lemmaWorkCountsExporterImporter.print(wc.termFreq);
-			lemmaWorkCountsExporterImporter.print(wc.rank1);
-			lemmaWorkCountsExporterImporter.print(wc.rank2);
-			lemmaWorkCountsExporterImporter.print(wc.numMajorClass);
-			lemmaWorkCountsExporterImporter.println();
+		if (pool == null) {
+			task.invoke();
+		} else {
+			tasks.add(pool.submit(task));
 		}
 	}
 	
-	/**	Prints word form counter array counts.
+	/**	Waits for tasks to finish.
 	 *
-	 *	@throws Exception
+	 *	@param	tasks		List of tasks. Cleared on return.
 	 */
-	 
-	private static void printWordFormCounterArray ()
-		throws Exception
-	{
-		for (int kind = 0; kind < WordForms.NUMBEROFWORDFORMS; kind++) {
-			Map map = wordFormCounterArray[kind];
-			for (Iterator it1 = map.keySet().iterator(); it1.hasNext(); ) {
-				Long workPartId = (Long)it1.next();
-				Map subMap = (Map)map.get(workPartId);
-				int total = 0;
-				for (Iterator it2 = subMap.keySet().iterator(); 
-					it2.hasNext(); )
-				{
-					Spelling formSpelling = (Spelling)it2.next();
-					FrequencyCounter fc = 
-						(FrequencyCounter)subMap.get(formSpelling);
-					int freq = fc.freq;
-					wordCountExporterImporter.print(formSpelling.getString());
-					wordCountExporterImporter.print(formSpelling.getCharset());
-					wordCountExporterImporter.print(kind);
-					wordCountExporterImporter.print(workPartId);
-					wordCountExporterImporter.print(workId);
-					wordCountExporterImporter.print(freq);
-					wordCountExporterImporter.println();
-					total += freq;
-				}
-				totalWordFormCountExporterImporter.print(kind);
-				totalWordFormCountExporterImporter.print(workPartId);
-				totalWordFormCountExporterImporter.print(workId);
-				totalWordFormCountExporterImporter.print(total);
-				totalWordFormCountExporterImporter.println();
-			}
-		}
+	
+	private static void joinTasks (List tasks) {
+		for (Iterator it = tasks.iterator(); it.hasNext(); )
+			((ForkJoinTask)it.next()).join();
+		tasks.clear();
 	}
 	
-	/**	Prints corpus lemma/pos/spelling counts.
+	/**	Deletes old counts.
 	 *
-	 *	@throws Exception
+	 *	@throws		Exception
 	 */
-	 
-	private static void printCorpusLemmaPosSpellingCounts ()
+	
+	private static void deleteOldCounts ()
 		throws Exception
 	{
-		for (Iterator it = corpusLemmaPosSpellingCountsMap.keySet().iterator(); 
-			it.hasNext(); ) 
-		{
-			LemmaPosSpelling lps = (LemmaPosSpelling)it.next();
-			FrequencyCounter fc = 
-				(FrequencyCounter)corpusLemmaPosSpellingCountsMap.get(lps);
-			lemmaPosSpellingCountsExporterImporter.print(LemmaPosSpellingCounts.CORPUS_COUNT);
-			lemmaPosSpellingCountsExporterImporter.print(corpusId);
-			lemmaPosSpellingCountsExporterImporter.printNull();
-			lemmaPosSpellingCountsExporterImporter.printNull();
-			lemmaPosSpellingCountsExporterImporter.print(lps.lemmaId);
-			lemmaPosSpellingCountsExporterImporter.print(lps.posId);
-			lemmaPosSpellingCountsExporterImporter.print(lps.string);
-			lemmaPosSpellingCountsExporterImporter.print(lps.charset);
-			lemmaPosSpellingCountsExporterImporter.print(fc.freq);
-			lemmaPosSpellingCountsExporterImporter.print(fc.freqFirstWordPart);
-			lemmaPosSpellingCountsExporterImporter.println();
-		}
+		Statement s = c.createStatement();
+		s.executeUpdate("delete from lemmaworkcounts");
+		s.executeUpdate("delete from lemmacorpuscounts");
+		s.executeUpdate("delete from lemmaposspellingcounts");
+		s.executeUpdate("delete from wordcount");
+		s.executeUpdate("delete from totalwordformcount");
+		s.close();
 	}
 	
-	/**	Prints work lemma/pos/spelling counts.
+	/**	Imports the count tables.
 	 *
-	 *	@throws Exception
+	 *	<p>The tables are loaded in parallel, using one database connection
+	 *	per counting thread.
+	 *
+	 *	@param	dbname			Database name.
+	 *
+	 *	@param	username		MySQL username.
+	 *
+	 *	@param	password		MySQL password.
+	 *
+	 *	@param	numThreads		Number of counting threads.
+	 *
+	 *	@param	corpusCounts	True to import the lemma corpus counts.
+	 *							False when updating counts, which changes
+	 *							the lemma corpus counts in place.
+	 *
+	 *	@throws	Exception
 	 */
-	 
-	private static void printWorkLemmaPosSpellingCounts ()
-		throws Exception
+	
+	private static void importTables (String dbname, String username,
+		String password, int numThreads, boolean corpusCounts)
+			throws Exception
 	{
-		for (Iterator it = workLemmaPosSpellingCountsMap.keySet().iterator(); 
-			it.hasNext(); ) 
-		{
-			LemmaPosSpelling lps = (LemmaPosSpelling)it.next();
-			FrequencyCounter fc = 
-				(FrequencyCounter)workLemmaPosSpellingCountsMap.get(lps);
-			lemmaPosSpellingCountsExporterImporter.print(LemmaPosSpellingCounts.WORK_COUNT);
-			lemmaPosSpellingCountsExporterImporter.print(corpusId);
-			lemmaPosSpellingCountsExporterImporter.print(workId);
-			lemmaPosSpellingCountsExporterImporter.printNull();
-			lemmaPosSpellingCountsExporterImporter.print(lps.lemmaId);
-			lemmaPosSpellingCountsExporterImporter.print(lps.posId);
-			lemmaPosSpellingCountsExporterImporter.print(lps.string);
-			lemmaPosSpellingCountsExporterImporter.print(lps.charset);
-			lemmaPosSpellingCountsExporterImporter.print(fc.freq);
-			lemmaPosSpellingCountsExporterImporter.print(fc.freqFirstWordPart);
-			lemmaPosSpellingCountsExporterImporter.println();
+		System.out.println("Importing objects into MySQL tables");
+		
+		int n = exporterImportersList.size();
+		TableExporterImporter[] lemmaCorpusCounts = new TableExporterImporter[n];
+		TableExporterImporter[] lemmaWorkCounts = new TableExporterImporter[n];
+		TableExporterImporter[] lemmaPosSpellingCounts = new TableExporterImporter[n];
+		TableExporterImporter[] wordCount = new TableExporterImporter[n];
+		TableExporterImporter[] totalWordFormCount = new TableExporterImporter[n];
+		for (int i = 0; i < n; i++) {
+			ExporterImporters ei = (ExporterImporters)exporterImportersList.get(i);
+			lemmaCorpusCounts[i] = ei.lemmaCorpusCounts;
+			lemmaWorkCounts[i] = ei.lemmaWorkCounts;
+			lemmaPosSpellingCounts[i] = ei.lemmaPosSpellingCounts;
+			wordCount[i] = ei.wordCount;
+			totalWordFormCount[i] = ei.totalWordFormCount;
+		}
+		
+		String[] names = {"LemmaCorpusCounts", "LemmaWorkCounts",
+			"LemmaPosSpellingCounts", "WordCount", "TotalWordFormCount"};
+		TableExporterImporter[][] exporterImporters = {lemmaCorpusCounts,
+			lemmaWorkCounts, lemmaPosSpellingCounts, wordCount,
+			totalWordFormCount};
+		if (!corpusCounts) {
+			names = new String[] {"LemmaWorkCounts",
+				"LemmaPosSpellingCounts", "WordCount", "TotalWordFormCount"};
+			exporterImporters = new TableExporterImporter[][] {
+				lemmaWorkCounts, lemmaPosSpellingCounts, wordCount,
+				totalWordFormCount};
 		}
+		BuildUtils.importTables(dbname, username, password, numThreads,
+			names, exporterImporters);
 	}
 	
-	/**	Prints work part lemma/pos/spelling counts.
+	/**	Gets the old works which still have counts.
 	 *
-	 *	@throws Exception
+	 *	<p>When a work is rebuilt or removed, the old copy of the work is
+	 *	unlinked from its corpus, but its counts are left in the count
+	 *	tables.
+	 *
+	 *	@return		List of old work ids.
+	 *
+	 *	@throws	Exception
 	 */
-	 
-	private static void printWorkPartLemmaPosSpellingCounts ()
+	
+	private static ArrayList getOldWorks ()
 		throws Exception
 	{
-		for (Iterator it = workPartLemmaPosSpellingCountsMap.keySet().iterator(); 
-			it.hasNext(); ) 
-		{
-			LemmaPosSpelling lps = (LemmaPosSpelling)it.next();
-			FrequencyCounter fc = 
-				(FrequencyCounter)workPartLemmaPosSpellingCountsMap.get(lps);
-			lemmaPosSpellingCountsExporterImporter.print(LemmaPosSpellingCounts.WORK_PART_COUNT);
-			lemmaPosSpellingCountsExporterImporter.print(corpusId);
-			lemmaPosSpellingCountsExporterImporter.print(workId);
-			lemmaPosSpellingCountsExporterImporter.print(workPartId);
-			lemmaPosSpellingCountsExporterImporter.print(lps.lemmaId);
-			lemmaPosSpellingCountsExporterImporter.print(lps.posId);
-			lemmaPosSpellingCountsExporterImporter.print(lps.string);
-			lemmaPosSpellingCountsExporterImporter.print(lps.charset);
-			lemmaPosSpellingCountsExporterImporter.print(fc.freq);
-			lemmaPosSpellingCountsExporterImporter.print(fc.freqFirstWordPart);
-			lemmaPosSpellingCountsExporterImporter.println();
-		}
+		ArrayList result = new ArrayList();
+		Statement s = c.createStatement();
+		ResultSet r = s.executeQuery(
+			"select id from workpart where is_work=1 and corpus is null " +
+			"and exists (select * from totalwordformcount " +
+			"where totalwordformcount.work = workpart.id)");
+		while (r.next()) result.add(r.getObject(1));
+		r.close();
+		s.close();
+		return result;
 	}
 	
-	/**	Prints lemma corpus counts.
+	/**	Gets the works which have no counts yet.
 	 *
-	 *	@throws Exception
+	 *	@return		List of works. Each element is an array of two Longs,
+	 *				the corpus id and the work id.
+	 *
+	 *	@throws	Exception
 	 */
-	 
-	private static void printLemmaCorpusCounts ()
+	
+	private static ArrayList getNewWorks ()
 		throws Exception
 	{
-		for (Iterator it = lemmaCorpusCountsMap.keySet().iterator(); 
-			it.hasNext(); ) 
-		{
-			Long lemmaKey = (Long)it.next();
-			CorpusCounter cc = 
-				(CorpusCounter)lemmaCorpusCountsMap.get(lemmaKey);
-			lemmaCorpusCountsExporterImporter.print(corpusId);
-			lemmaCorpusCountsExporterImporter.print(lemmaKey);
-			lemmaCorpusCountsExporterImporter.print(cc.lemmaTagString);
-			lemmaCorpusCountsExporterImporter.print(cc.lemmaTagCharset);
-			lemmaCorpusCountsExporterImporter.print(cc.wordClassId);
-			lemmaCorpusCountsExporterImporter.print(cc.majorClass);
-			lemmaCorpusCountsExporterImporter.print(cc.colFreq);
-			lemmaCorpusCountsExporterImporter.print(cc.docFreq);
-			lemmaCorpusCountsExporterImporter.print(cc.rank1);
-			lemmaCorpusCountsExporterImporter.print(cc.rank2);
-			lemmaCorpusCountsExporterImporter.print(cc.numMajorClass);
-			lemmaCorpusCountsExporterImporter.println();
-		}
+		ArrayList result = new ArrayList();
+		Statement s = c.createStatement();
+		ResultSet r = s.executeQuery(
+			"select corpus, id from workpart where corpus is not null " +
+			"and not exists (select * from totalwordformcount " +
+			"where totalwordformcount.work = workpart.id) " +
+			"order by corpus, id");
+		while (r.next())
+			result.add(new Long[] {(Long)r.getObject(1), (Long)r.getObject(2)});
+		r.close();
+		s.close();
+		return result;
 	}
 	
-	/**	Counts a word part.
+	/**	Reads the data for a single work from the database.
+	 *
+	 *	<p>Used when updating counts, in place of the data files.
+	 *
+	 *	@param	corpusId	Corpus id.
+	 *
+	 *	@param	workId		Work id.
+	 *
+	 *	@return				The work batch.
 	 *
 	 *	@throws Exception
 	 */
-	 
-	private static void countWordPart ()
+	
+	private static WorkBatch readWorkBatch (Long corpusId, Long workId)
 		throws Exception
 	{
-		Long lemPosKey = wordPartData.lemPosId;
-		LemPosInfo lemPosInfo = (LemPosInfo)lemPosInfoMap.get(lemPosKey);
-		long lemmaId = lemPosInfo.lemmaId;
-		Long lemmaKey = Long.valueOf(lemmaId);
-		long posId = lemPosInfo.posId;
-		LemmaInfo lemmaInfo = (LemmaInfo)lemmaInfoMap.get(lemmaKey);
-		long wordClassId = lemmaInfo.wordClassId;
-		WordClassInfo wordClassInfo = (WordClassInfo)wordClassInfoMap.get(
-			Long.valueOf(wordClassId));
-		
-		//	Increment the lemma/work counter.
-		
-		WorkCounter workCounter = (WorkCounter)lemmaWorkCountsMap.get(lemmaKey);
-		if (workCounter == null) {
-			workCounter = new WorkCounter();
-			workCounter.wordClassId = lemmaInfo.wordClassId;
-			workCounter.lemmaTagString = lemmaInfo.tagString;
-			workCounter.lemmaTagCharset = lemmaInfo.tagCharset;
-			workCounter.majorClass = wordClassInfo.majorClass;
-			lemmaWorkCountsMap.put(lemmaKey, workCounter);
-		}
-		workCounter.termFreq++;
+		WorkBatch batch = new WorkBatch();
+		batch.corpusId = corpusId;
+		batch.workId = workId;
 		
-		//	Increment the corpus lemma/pos/spelling counters.
+		//	Read the words, in the same order as the word parts below.
 		
-		LemmaPosSpelling lps = new LemmaPosSpelling(lemmaId, posId, 
-			wordData.spelling, wordData.charset);
-		FrequencyCounter fc = (FrequencyCounter)corpusLemmaPosSpellingCountsMap.get(lps);
-		if (fc == null) {
-			fc = new FrequencyCounter();
-			corpusLemmaPosSpellingCountsMap.put(lps, fc);
+		PreparedStatement p = c.prepareStatement(
+			"select workPart, id, spelling_string, spellingInsensitive_string, " +
+			"spelling_charset, prosodic_prosodic, metricalShape_metricalShape, " +
+			"speech from word where work=? order by workPart, id");
+		p.setLong(1, workId.longValue());
+		ResultSet r = p.executeQuery();
+		while (r.next()) {
+			WordData wordData = new WordData();
+			wordData.corpusId = corpusId;
+			wordData.workId = workId;
+			wordData.workPartId = (Long)r.getObject(1);
+			wordData.wordId = (Long)r.getObject(2);
+			wordData.spelling = r.getString(3);
+			wordData.spellingInsensitive = r.getString(4);
+			wordData.charset = r.getByte(5);
+			wordData.prosodic = r.getByte(6);
+			wordData.metricalShape = r.getString(7);
+			wordData.speechId = (Long)r.getObject(8);
+			batch.words.add(wordData);
 		}
-		fc.freq++;
-		if (firstWordPart) fc.freqFirstWordPart++;
+		r.close();
+		p.close();
 		
-		//	Increment the work lemma/pos/spelling counters.
+		//	Read the word parts and attach them to their words.
 		
-		fc = (FrequencyCounter)workLemmaPosSpellingCountsMap.get(lps);
-		if (fc == null) {
-			fc = new FrequencyCounter();
-			workLemmaPosSpellingCountsMap.put(lps, fc);
+		p = c.prepareStatement(
+			"select word.workPart, wordpart.word, wordpart.partIndex, " +
+			"wordpart.lemPos from wordpart, word " +
+			"where wordpart.word = word.id and word.work=? " +
+			"order by word.workPart, word.id, wordpart.partIndex");
+		p.setLong(1, workId.longValue());
+		r = p.executeQuery();
+		Iterator words = batch.words.iterator();
+		WordData wordData = null;
+		ArrayList parts = new ArrayList();
+		while (r.next()) {
+			WordPartData wordPartData = new WordPartData();
+			wordPartData.corpusId = corpusId;
+			wordPartData.workId = workId;
+			wordPartData.workPartId = (Long)r.getObject(1);
+			wordPartData.wordId = (Long)r.getObject(2);
+			wordPartData.partIndex = r.getInt(3);
+			wordPartData.lemPosId = (Long)r.getObject(4);
+			while (wordData == null ||
+				!wordData.wordId.equals(wordPartData.wordId))
+			{
+				if (wordData != null) {
+					wordData.parts = (WordPartData[])parts.toArray(
+						new WordPartData[parts.size()]);
+					parts.clear();
+				}
+				wordData = (WordData)words.next();
+			}
+			parts.add(wordPartData);
 		}
-		fc.freq++;
-		if (firstWordPart) fc.freqFirstWordPart++;
+		r.close();
+		p.close();
+		if (wordData != null)
+			wordData.parts = (WordPartData[])parts.toArray(
+				new WordPartData[parts.size()]);
+		while (words.hasNext())
+			((WordData)words.next()).parts = new WordPartData[0];
 		
-		//	Increment the work part lemma/pos/spelling counters.
+		//	Read the speeches.
 		
-		fc = (FrequencyCounter)workPartLemmaPosSpellingCountsMap.get(lps);
-		if (fc == null) {
-			fc = new FrequencyCounter();
-			workPartLemmaPosSpellingCountsMap.put(lps, fc);
+		p = c.prepareStatement(
+			"select speech.workPart, speech.id, speech.gender_gender, " +
+			"speech.mortality_mortality from speech, workpart " +
+			"where speech.workPart = workpart.id and workpart.work=?");
+		p.setLong(1, workId.longValue());
+		r = p.executeQuery();
+		while (r.next()) {
+			SpeechData speechData = new SpeechData();
+			speechData.corpusId = corpusId;
+			speechData.workId = workId;
+			speechData.workPartId = (Long)r.getObject(1);
+			speechData.speechId = (Long)r.getObject(2);
+			speechData.gender = r.getByte(3);
+			speechData.mortality = r.getByte(4);
+			batch.speechDataMap.put(speechData.speechId, speechData);
 		}
-		fc.freq++;
-		if (firstWordPart) fc.freqFirstWordPart++;
-		
-		//	Append the word class for the current word part.
-		
-		if (!firstWordPart) wordClassesBuffer.append("-");
-		wordClassesBuffer.append(wordClassInfo.tag);
-		if (lemmaInfo.homonym > 0) wordClassesBuffer.append(" " + 
-			lemmaInfo.homonym);
-		firstWordPart = false;
-		
-		//	Update the LEMMA and WORDCLASS counts.
-		
-		updateWordFormCounts(WordForms.LEMMA, lemmaInfo.tagString, 
-			lemmaInfo.tagCharset);
+		r.close();
+		p.close();
 		
-		updateWordFormCounts(WordForms.WORDCLASS, wordClassInfo.tag, 
-			TextParams.ROMAN);
+		return batch;
 	}
 	
-	/**	Starts counting a new word.
+	/**	Reads the saved counts for an old work.
 	 *
-	 *	@throws	Exception
-	 */
-	
-	private static void startCountingWord () 
-		throws Exception
-	{
-		//	Create a new empty buffer for accumulating word classes.
-	
-		wordClassesBuffer = new StringBuffer();
-		firstWordPart = true;
-	}
-	
-	/**	Ends counting a word.
+	 *	<p>Only the lemma and lemma/pos/spelling counts for the work as a
+	 *	whole are read. These are the counts which were merged into the
+	 *	corpus counts.
 	 *
-	 *	@throws	Exception
+	 *	@param	workId		Work id.
+	 *
+	 *	@return				The work counts. The corpus id of the work
+	 *						batch is the corpus the counts were merged
+	 *						into, or null if the work had no words.
+	 *
+	 *	@throws Exception
 	 */
 	
-	private static void endCountingWord () 
+	private static WorkCounts readOldWorkCounts (Long workId)
 		throws Exception
 	{
-		//	Update the SPELLING counts.
-	
-		String str = wordData.spellingInsensitive + " (" +
-			wordClassesBuffer.toString() + ")";
-		updateWordFormCounts(WordForms.SPELLING, str, wordData.charset);
-		
-		//	Update the ISVERSE counts.
-		
-		switch (wordData.prosodic) {
-			case Prosodic.PROSE:
-				str = "N";
-				break;
-			case Prosodic.VERSE:
-				str = "Y";
-				break;
-			case Prosodic.UNKNOWN:
-				str = "U";
-				break;
-		}
-		updateWordFormCounts(WordForms.ISVERSE, str, TextParams.ROMAN);
-		
-		//	Update the METRICALSHAPE counts.
-		
-		str = wordData.metricalShape;
-		if (str == null) str="";
-		updateWordFormCounts(WordForms.METRICALSHAPE, str, TextParams.ROMAN);
-		
-		//	Update the SPEAKERGENDER and SPEAKERMORTALITY counts.
-		
-		Long speechId = wordData.speechId;
-		
-		if (speechId == null) {
-		
-			updateWordFormCounts(WordForms.SPEAKERGENDER, "U", 
-				TextParams.ROMAN);
-			updateWordFormCounts(WordForms.SPEAKERMORTALITY, "U",
-				TextParams.ROMAN);
-				
-		} else {
-		
-			SpeechData speechData = 
-				(SpeechData)speechDataMap.get(speechId);
-			
-			switch (speechData.gender) {
-				case Gender.MALE:
-					str = "M";
-					break;
-				case Gender.FEMALE:
-					str = "F";
-					break;
-				case Gender.UNCERTAIN_MIXED_OR_UNKNOWN:
-					str = "U";
-					break;
-			}
-			updateWordFormCounts(WordForms.SPEAKERGENDER, str, 
-				TextParams.ROMAN);
-			
-			switch (speechData.mortality) {
-				case Mortality.MORTAL:
-					str = "M";
-					break;
-				case Mortality.IMMORTAL_OR_SUPERNATURAL:
-					str = "I";
-					break;
-				case Mortality.UNKNOWN_OR_OTHER:
-					str = "U";
-					break;
-			}
-			updateWordFormCounts(WordForms.SPEAKERMORTALITY, str, 
-				TextParams.ROMAN);
-		
+		WorkBatch batch = new WorkBatch();
+		batch.workId = workId;
+		WorkCounts workCounts = new WorkCounts(batch);
+		PreparedStatement p = c.prepareStatement(
+			"select lemma, termFreq from lemmaworkcounts where work=?");
+		p.setLong(1, workId.longValue());
+		ResultSet r = p.executeQuery();
+		while (r.next())
+			workCounts.lemmaWorkCountsMap.put(r.getLong(1), r.getInt(2));
+		r.close();
+		p.close();
+		p = c.prepareStatement(
+			"select corpus, lemma, pos, spelling_string, spelling_charset, " +
+			"freq, freqFirstWordPart from lemmaposspellingcounts " +
+			"where kind=? and work=?");
+		p.setInt(1, LemmaPosSpellingCounts.WORK_COUNT);
+		p.setLong(2, workId.longValue());
+		r = p.executeQuery();
+		while (r.next()) {
+			batch.corpusId = (Long)r.getObject(1);
+			LemmaPosSpelling lps = new LemmaPosSpelling(r.getLong(2),
+				r.getLong(3), r.getString(4), r.getInt(5));
+			FrequencyCounter fc = new FrequencyCounter();
+			fc.freq = r.getInt(6);
+			fc.freqFirstWordPart = r.getInt(7);
+			workCounts.workLemmaPosSpellingCountsMap.put(lps, fc);
 		}
-			
+		r.close();
+		p.close();
+		return workCounts;
 	}
 	
-	/**	Starts counting a new work part.
+	/**	Gets the counts for a corpus, creating them if necessary.
 	 *
-	 *	@throws	Exception
+	 *	@param	corpusCountsMap		Map from corpus ids to corpus counts.
+	 *
+	 *	@param	corpusId			Corpus id.
+	 *
+	 *	@return						Corpus counts.
 	 */
 	
-	private static void startCountingWorkPart () 
-		throws Exception
+	private static CorpusCounts getCorpusCounts (Map corpusCountsMap,
+		Long corpusId)
 	{
-		//	Create a new lemma/pos/spelling counter map for the work part.
-		
-		workPartLemmaPosSpellingCountsMap = new HashMap();
-	
-		//	Read the speech data for the current work part.
-	
-		speechDataMap = new HashMap();
-		while (true) {
-			SpeechData speechData = speechDataReader.get();
-			if (speechData == null) return;
-			if (!workPartId.equals(speechData.workPartId)) {
-				speechDataReader.put(speechData);
-				return;
-			}
-			speechDataMap.put(speechData.speechId, speechData);
+		CorpusCounts result = (CorpusCounts)corpusCountsMap.get(corpusId);
+		if (result == null) {
+			result = new CorpusCounts(corpusId);
+			corpusCountsMap.put(corpusId, result);
 		}
+		return result;
 	}
 	
-	/**	Ends counting a work part.
+	/**	Counts new works.
 	 *
-	 *	@throws	Exception
-	 */
-	
-	private static void endCountingWorkPart () 
-		throws Exception
-	{
-		
-		//	Print the lemma/pos/spelling counts for the work part.
-		
-		printWorkPartLemmaPosSpellingCounts();
-	}
-	
-	/**	Starts counting a new work.
+	 *	<p>Like {@link #countWorks countWorks}, but the works are read
+	 *	from the database, and the corpus counts are not printed.
+	 *
+	 *	@param	numThreads		Number of counting threads.
+	 *
+	 *	@param	newWorks		List of new works, as returned by
+	 *							{@link #getNewWorks getNewWorks}.
+	 *
+	 *	@param	corpusCountsMap	Map from corpus ids to corpus counts, to
+	 *							which the counts of the new works are
+	 *							added.
 	 *
 	 *	@throws	Exception
 	 */
 	
-	private static void startCountingWork () 
-		throws Exception
+	private static void countNewWorks (int numThreads, List newWorks,
+		Map corpusCountsMap)
+			throws Exception
 	{
-		//	Create a new lemma counts map for the work.
-	
-		lemmaWorkCountsMap = new HashMap();
-		
-		//	Create a new word form counter array for the work.
-		
-		wordFormCounterArray = new HashMap[WordForms.NUMBEROFWORDFORMS];
-		HashSet descendants = (HashSet)workDescendantsMap.get(workId);
-		for (int i = 0; i < WordForms.NUMBEROFWORDFORMS; i++) {
-			HashMap map = new HashMap();
-			wordFormCounterArray[i] = map;
-			for (Iterator it = descendants.iterator(); it.hasNext(); ) {
-				Long workPartId = (Long)it.next();
-				map.put(workPartId, new HashMap());
-			}
+		ForkJoinPool pool = null;
+		if (numThreads > 1) {
+			pool = new ForkJoinPool(numThreads);
+			pendingWorks = new Semaphore(numThreads * 4);
 		}
-		
-		//	Create a new lemma/pos/spelling counter map for the work.
-		
-		workLemmaPosSpellingCountsMap = new HashMap();
+		ArrayList workTasks = new ArrayList();
+		for (Iterator it = newWorks.iterator(); it.hasNext(); ) {
+			Long[] ids = (Long[])it.next();
+			WorkBatch batch = readWorkBatch(ids[0], ids[1]);
+			CorpusCounts corpusCounts =
+				getCorpusCounts(corpusCountsMap, batch.corpusId);
+			if (pendingWorks != null) pendingWorks.acquire();
+			runTask(pool, new CountWorkTask(batch, corpusCounts), workTasks);
+		}
+		joinTasks(workTasks);
+		if (pool != null) pool.shutdown();
+		pendingWorks = null;
 	}
 	
-	/**	Ends counting a work.
+	/**	Updates the lemma corpus counts for a corpus.
+	 *
+	 *	<p>Ranks are only recomputed in the major word classes which
+	 *	contain a changed lemma, since ranks are computed within each
+	 *	major word class. Only the rows whose counts or ranks changed
+	 *	are written.
+	 *
+	 *	@param	changes		Changes to the corpus counts.
+	 *
+	 *	@return				Number of rows inserted, updated or deleted.
 	 *
 	 *	@throws	Exception
 	 */
 	
-	private static void endCountingWork () 
+	private static int updateLemmaCorpusCounts (CorpusCounts changes)
 		throws Exception
 	{
-		//	Add the lemma work counts to the lemma corpus counts.
-	
-		accumulateLemmaCorpusCounts();
+		//	Find the major word classes of the changed lemmas. When a work
+		//	is rebuilt, most of its lemmas have the same counts as before,
+		//	and the old and new counts cancel out.
 		
-		//	Compute the lemma ranks for the work.
-		
-		computeLemmaWorkRanks();
+		HashSet majorClasses = new HashSet();
+		long[] lemmaIds = changes.lemmaColFreqMap.keys();
+		for (int i = 0; i < lemmaIds.length; i++) {
+			long lemmaId = lemmaIds[i];
+			if (changes.lemmaColFreqMap.get(lemmaId) == 0 &&
+				changes.lemmaDocFreqMap.get(lemmaId) == 0) continue;
+			LemmaInfo lemmaInfo =
+				(LemmaInfo)lemmaInfoMap.get(Long.valueOf(lemmaId));
+			WordClassInfo wordClassInfo =
+				(WordClassInfo)wordClassInfoMap.get(
+					Long.valueOf(lemmaInfo.wordClassId));
+			majorClasses.add(wordClassInfo.majorClass);
+		}
 		
-		//	Print the lemma counts for the work.
+		//	Read the old counts in those classes and apply the changes.
 		
-		printLemmaWorkCounts();
+		HashMap oldCounters = new HashMap();
+		CorpusCounts counts = new CorpusCounts(changes.corpusId);
+		PreparedStatement p = c.prepareStatement(
+			"select id, lemma, majorClass, colFreq, docFreq, rank1, rank2, " +
+			"numMajorClass from lemmacorpuscounts where corpus=?");
+		p.setLong(1, changes.corpusId.longValue());
+		ResultSet r = p.executeQuery();
+		while (r.next()) {
+			if (!majorClasses.contains(r.getString(3))) continue;
+			CorpusCounter oldCounter = new CorpusCounter();
+			oldCounter.id = r.getLong(1);
+			oldCounter.lemmaId = r.getLong(2);
+			oldCounter.colFreq = r.getInt(4);
+			oldCounter.docFreq = r.getInt(5);
+			oldCounter.rank1 = r.getInt(6);
+			oldCounter.rank2 = r.getInt(7);
+			oldCounter.numMajorClass = r.getInt(8);
+			oldCounters.put(Long.valueOf(oldCounter.lemmaId), oldCounter);
+			counts.lemmaColFreqMap.put(oldCounter.lemmaId, oldCounter.colFreq);
+			counts.lemmaDocFreqMap.put(oldCounter.lemmaId, oldCounter.docFreq);
+		}
+		r.close();
+		p.close();
+		counts.lemmaColFreqMap.addAll(changes.lemmaColFreqMap);
+		counts.lemmaDocFreqMap.addAll(changes.lemmaDocFreqMap);
 		
-		//	Print the word form counts for all the parts of the work.
+		//	Drop the lemmas which no longer occur in the corpus and
+		//	recompute the ranks.
 		
-		printWordFormCounterArray();
+		CorpusCounts newCounts = new CorpusCounts(changes.corpusId);
+		lemmaIds = counts.lemmaColFreqMap.keys();
+		for (int i = 0; i < lemmaIds.length; i++) {
+			long lemmaId = lemmaIds[i];
+			int colFreq = counts.lemmaColFreqMap.get(lemmaId);
+			if (colFreq <= 0) continue;
+			newCounts.lemmaColFreqMap.put(lemmaId, colFreq);
+			newCounts.lemmaDocFreqMap.put(lemmaId,
+				counts.lemmaDocFreqMap.get(lemmaId));
+		}
+		CorpusCounter[] a = newCounts.computeLemmaCorpusRanks();
 		
-		//	Print the lemma/pos/spelling counts for the work.
+		//	Write the rows which changed.
 		
-		printWorkLemmaPosSpellingCounts();
+		PreparedStatement insert = c.prepareStatement(
+			"insert into lemmacorpuscounts (corpus, lemma, tag_string, " +
+			"tag_charset, wordClass, majorClass, colFreq, docFreq, rank1, " +
+			"rank2, numMajorClass) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		PreparedStatement update = c.prepareStatement(
+			"update lemmacorpuscounts set colFreq=?, docFreq=?, rank1=?, " +
+			"rank2=?, numMajorClass=? where id=?");
+		PreparedStatement delete = c.prepareStatement(
+			"delete from lemmacorpuscounts where id=?");
+		int numChanged = 0;
+		for (int i = 0; i < a.length; i++) {
+			CorpusCounter cc = a[i];
+			CorpusCounter oldCounter =
+				(CorpusCounter)oldCounters.remove(Long.valueOf(cc.lemmaId));
+			if (oldCounter == null) {
+				insert.setLong(1, changes.corpusId.longValue());
+				insert.setLong(2, cc.lemmaId);
+				insert.setString(3, cc.lemmaTagString);
+				insert.setInt(4, cc.lemmaTagCharset);
+				insert.setLong(5, cc.wordClassId);
+				insert.setString(6, cc.majorClass);
+				insert.setInt(7, cc.colFreq);
+				insert.setInt(8, cc.docFreq);
+				insert.setInt(9, cc.rank1);
+				insert.setInt(10, cc.rank2);
+				insert.setInt(11, cc.numMajorClass);
+				insert.addBatch();
+			} else if (oldCounter.colFreq != cc.colFreq ||
+				oldCounter.docFreq != cc.docFreq ||
+				oldCounter.rank1 != cc.rank1 ||
+				oldCounter.rank2 != cc.rank2 ||
+				oldCounter.numMajorClass != cc.numMajorClass)
+			{
+				update.setInt(1, cc.colFreq);
+				update.setInt(2, cc.docFreq);
+				update.setInt(3, cc.rank1);
+				update.setInt(4, cc.rank2);
+				update.setInt(5, cc.numMajorClass);
+				update.setLong(6, oldCounter.id);
+				update.addBatch();
+			} else {
+				continue;
+			}
+			numChanged++;
+		}
+		for (Iterator it = oldCounters.values().iterator(); it.hasNext(); ) {
+			CorpusCounter oldCounter = (CorpusCounter)it.next();
+			delete.setLong(1, oldCounter.id);
+			delete.addBatch();
+			numChanged++;
+		}
+		insert.executeBatch();
+		update.executeBatch();
+		delete.executeBatch();
+		insert.close();
+		update.close();
+		delete.close();
+		return numChanged;
 	}
 	
-	/**	Starts counting a new corpus.
+	/**	Updates the corpus lemma/pos/spelling counts for a corpus.
 	 *
-	 *	@throws	Exception
-	 */
-	
-	private static void startCountingCorpus () 
-		throws Exception
-	{
-		//	Create a new lemma counts map for the corpus.
-	
-		lemmaCorpusCountsMap = new HashMap();
-		
-		//	Create a new lemma/pos/spelling counts map for the corpus.
-		
-		corpusLemmaPosSpellingCountsMap = new HashMap();
-	}
-	
-	/**	Ends counting a corpus.
+	 *	@param	changes		Changes to the corpus counts.
+	 *
+	 *	@return				Number of rows inserted, updated or deleted.
 	 *
 	 *	@throws	Exception
 	 */
 	
-	private static void endCountingCorpus () 
-		throws Exception
+	private static int updateCorpusLemmaPosSpellingCounts (
+		CorpusCounts changes)
+			throws Exception
 	{
-		//	Compute the lemma ranks for the corpus. 
-	
-		computeLemmaCorpusRanks();
+		HashMap changesMap = new HashMap(changes.corpusLemmaPosSpellingCountsMap);
+		PreparedStatement update = c.prepareStatement(
+			"update lemmaposspellingcounts set freq=?, freqFirstWordPart=? " +
+			"where id=?");
+		PreparedStatement delete = c.prepareStatement(
+			"delete from lemmaposspellingcounts where id=?");
+		int numChanged = 0;
 		
-		//	Print the lemma counts for the corpus.
+		//	Apply the changes to the existing rows.
 		
-		printLemmaCorpusCounts();
+		PreparedStatement p = c.prepareStatement(
+			"select id, lemma, pos, spelling_string, spelling_charset, " +
+			"freq, freqFirstWordPart from lemmaposspellingcounts " +
+			"where kind=? and corpus=?");
+		p.setInt(1, LemmaPosSpellingCounts.CORPUS_COUNT);
+		p.setLong(2, changes.corpusId.longValue());
+		ResultSet r = p.executeQuery();
+		while (r.next()) {
+			LemmaPosSpelling lps = new LemmaPosSpelling(r.getLong(2),
+				r.getLong(3), r.getString(4), r.getInt(5));
+			FrequencyCounter change = (FrequencyCounter)changesMap.remove(lps);
+			if (change == null ||
+				(change.freq == 0 && change.freqFirstWordPart == 0))
+					continue;
+			int freq = r.getInt(6) + change.freq;
+			int freqFirstWordPart = r.getInt(7) + change.freqFirstWordPart;
+			if (freq <= 0) {
+				delete.setLong(1, r.getLong(1));
+				delete.addBatch();
+			} else {
+				update.setInt(1, freq);
+				update.setInt(2, freqFirstWordPart);
+				update.setLong(3, r.getLong(1));
+				update.addBatch();
+			}
+			numChanged++;
+		}
+		r.close();
+		p.close();
+		update.executeBatch();
+		delete.executeBatch();
+		update.close();
+		delete.close();
 		
-		//	Print the lemma/pos/spelling counts for the corpus.
+		//	Insert rows for the new lemma/pos/spelling combinations.
 		
-		printCorpusLemmaPosSpellingCounts();
+		PreparedStatement insert = c.prepareStatement(
+			"insert into lemmaposspellingcounts (kind, corpus, work, " +
+			"workPart, lemma, pos, spelling_string, spelling_charset, freq, " +
+			"freqFirstWordPart) values (?, ?, null, null, ?, ?, ?, ?, ?, ?)");
+		for (Iterator it = changesMap.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry entry = (Map.Entry)it.next();
+			LemmaPosSpelling lps = (LemmaPosSpelling)entry.getKey();
+			FrequencyCounter fc = (FrequencyCounter)entry.getValue();
+			if (fc.freq <= 0) continue;
+			insert.setInt(1, LemmaPosSpellingCounts.CORPUS_COUNT);
+			insert.setLong(2, changes.corpusId.longValue());
+			insert.setLong(3, lps.lemmaId);
+			insert.setLong(4, lps.posId);
+			insert.setString(5, lps.string);
+			insert.setInt(6, lps.charset);
+			insert.setInt(7, fc.freq);
+			insert.setInt(8, fc.freqFirstWordPart);
+			insert.addBatch();
+			numChanged++;
+		}
+		insert.executeBatch();
+		insert.close();
+		return numChanged;
 	}
 	
-	/**	Reads the data for a single word.
+	/**	Deletes the counts for old works.
 	 *
-	 *	@return		True if done (no more words in current work part).
+	 *	@param	oldWorks		List of old work ids.
 	 *
-	 *	@throws Exception
+	 *	@throws		Exception
 	 */
 	
-	private static boolean readWordData ()
+	private static void deleteOldWorkCounts (List oldWorks)
 		throws Exception
 	{
-		wordData = wordDataReader.get();
-		if (wordData == null) return true;
-		if (!workPartId.equals(wordData.workPartId)) {
-			wordDataReader.put(wordData);
-			return true;
-		}
-		wordId = wordData.wordId;
-		startCountingWord();
-		int numParts = 0;
-		while (true) {
-			wordPartData = wordPartDataReader.get();
-			if (wordPartData == null) break;
-			if (!wordId.equals(wordPartData.wordId)) break;
-			countWordPart();
-			numParts++;
-		}
-		wordPartDataReader.put(wordPartData);
-		endCountingWord();
-		return false;
+		String[] tables = {"lemmaworkcounts", "lemmaposspellingcounts",
+			"wordcount", "totalwordformcount"};
+		for (int i = 0; i < tables.length; i++) {
+			PreparedStatement p = c.prepareStatement(
+				"delete from " + tables[i] + " where work=?");
+			for (Iterator it = oldWorks.iterator(); it.hasNext(); ) {
+				p.setLong(1, ((Long)it.next()).longValue());
+				p.addBatch();
+			}
+			p.executeBatch();
+			p.close();
+		}
 	}
 	
-	/**	Reads the data for a single work part.
+	/**	Name of the table which marks an unfinished counts update.
 	 *
-	 *	@return		True if done (no more work parts in current work).
-	 *
-	 *	@throws Exception
+	 *	<p>The count tables are MyISAM tables, so an update which fails
+	 *	part way through cannot be rolled back. The table is created
+	 *	before an update changes anything and dropped when the update
+	 *	is done. While it exists, only a full count is allowed.
 	 */
 	
-	private static boolean readWorkPartData ()
-		throws Exception
-	{
-		WordData wordData = wordDataReader.get();
-		wordDataReader.put(wordData);
-		if (wordData == null) return true;
-		if (!workId.equals(wordData.workId)) return true;
-		workPartId = wordData.workPartId;
-		startCountingWorkPart();
-		boolean done = false;
-		while (!done) done = readWordData();
-		endCountingWorkPart();
-		return false;
-	}
+	private static final String UPDATE_PENDING_TABLE =
+		"countsupdatepending";
 	
-	/**	Reads the data for a single work.
+	/**	Returns true if an earlier counts update did not finish.
 	 *
-	 *	@return		True if done (no more works in current corpus).
+	 *	@return		True if the update pending table exists.
 	 *
-	 *	@throws Exception
+	 *	@throws		Exception
 	 */
 	
-	private static boolean readWorkData ()
+	private static boolean isUpdatePending ()
 		throws Exception
 	{
-		WordData wordData = wordDataReader.get();
-		wordDataReader.put(wordData);
-		if (wordData == null) return true;
-		if (!corpusId.equals(wordData.corpusId)) return true;
-		workId = wordData.workId;
-		startCountingWork();
-		boolean done = false;
-		while (!done) done = readWorkPartData();
-		endCountingWork();
-		return false;
+		Statement s = c.createStatement();
+		ResultSet r = s.executeQuery(
+			"show tables like '" + UPDATE_PENDING_TABLE + "'");
+		boolean result = r.next();
+		r.close();
+		s.close();
+		return result;
 	}
 	
-	/**	Reads the data for a single corpus.
-	 *
-	 *	@return		True if done (no more corpora to read).
+	/**	Sets or clears the unfinished update marker.
 	 *
-	 *	@throws Exception
-	 */
-	
-	private static boolean readCorpusData ()
-		throws Exception
-	{
-		WordData wordData = wordDataReader.get();
-		wordDataReader.put(wordData);
-		if (wordData == null) return true;
-		corpusId = wordData.corpusId;
-		startCountingCorpus();
-		boolean done = false;
-		while (!done) done = readWorkData();
-		endCountingCorpus();
-		return false;
-	}
-	
-	/**	Deletes old counts. 
+	 *	@param	pending		True to create the update pending table,
+	 *						false to drop it.
 	 *
 	 *	@throws		Exception
 	 */
 	
-	private static void deleteOldCounts ()
+	private static void setUpdatePending (boolean pending)
 		throws Exception
 	{
 		Statement s = c.createStatement();
-		s.executeUpdate("delete from lemmaworkcounts");
-		s.executeUpdate("delete from lemmacorpuscounts");
-		s.executeUpdate("delete from lemmaposspellingcounts");
-		s.executeUpdate("delete from wordcount");
-		s.executeUpdate("delete from totalwordformcount");
+		s.executeUpdate(pending ?
+			"create table if not exists " + UPDATE_PENDING_TABLE +
+				" (id int)" :
+			"drop table if exists " + UPDATE_PENDING_TABLE);
 		s.close();
 	}
 	
-	/**	Imports one count table.
+	/**	Updates the counts after works are rebuilt, added or removed.
 	 *
-	 *	@param	tableName			Table name.
+	 *	<p>Rather than recounting every work, this counts only the works
+	 *	which have no counts yet, and deletes the counts of the old copies
+	 *	of rebuilt works and of removed works. The old work counts are
+	 *	subtracted from the corpus counts and the new work counts are
+	 *	added to them. See
+	 *	{@link #updateLemmaCorpusCounts updateLemmaCorpusCounts}.
 	 *
-	 *	@param	exporterImporter	Table exporter/importer.
+	 *	<p>The old and new works are found by the presence of their
+	 *	work counts, so an update which fails after changing the corpus
+	 *	counts would count the new works twice on the next run. The update
+	 *	therefore marks itself pending before it changes anything, and
+	 *	refuses to run while an earlier update is still marked pending.
+	 *	A full count clears the mark.
 	 *
-	 *	@throws Exception
-	 */
-	 
-	private static void importOneTable (String tableName,
-		TableExporterImporter exporterImporter)
-			throws Exception
-	{
-		long startTime = System.currentTimeMillis();
-		exporterImporter.close();
-		int ct = exporterImporter.importData(c);
-		long endTime = System.currentTimeMillis();
-		System.out.println(
-			Formatters.formatIntegerWithCommas(ct) + 
-			(ct == 1 ? " object" : " objects") +
-			" imported into " + tableName + " table in " +
-			BuildUtils.formatElapsedTime(startTime, endTime));
-	}
-	
-	/**	Imports the count tables.
+	 *	@param	dbname			Database name.
+	 *
+	 *	@param	username		MySQL username.
+	 *
+	 *	@param	password		MySQL password.
+	 *
+	 *	@param	numThreads		Number of counting threads. 0 means use
+	 *							one thread per available processor.
 	 *
 	 *	@throws	Exception
 	 */
-	 
-	private static void importTables ()
-		throws Exception
+	
+	public static void update (String dbname, String username,
+		String password, int numThreads)
+			throws Exception
 	{
-		System.out.println("Importing objects into MySQL tables");
-
-		importOneTable("LemmaCorpusCounts", 
-			lemmaCorpusCountsExporterImporter);
-		importOneTable("LemmaWorkCounts", 
-			lemmaWorkCountsExporterImporter);
-		importOneTable("LemmaPosSpellingCounts", 
-			lemmaPosSpellingCountsExporterImporter);
-		importOneTable("WordCount", 
-			wordCountExporterImporter);
-		importOneTable("TotalWordFormCount", 
-			totalWordFormCountExporterImporter);
+		if (numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+		exporterImportersList = new ArrayList();
+		threadExporterImporters = new ThreadLocal();
+		
+		c = BuildUtils.getConnection(dbname, username, password);
+		try {
+			
+			if (isUpdatePending()) {
+				BuildUtils.emsg("An earlier counts update did not finish. " +
+					"Run a full count instead.");
+				return;
+			}
+			ArrayList oldWorks = getOldWorks();
+			ArrayList newWorks = getNewWorks();
+			if (oldWorks.isEmpty() && newWorks.isEmpty()) {
+				System.out.println("Counts are up to date");
+				return;
+			}
+			System.out.println("Updating counts for " +
+				newWorks.size() +
+				(newWorks.size() == 1 ? " new work and " : " new works and ") +
+				oldWorks.size() +
+				(oldWorks.size() == 1 ? " old work" : " old works") +
+				(numThreads > 1 ? " using " + numThreads + " threads" : ""));
+			
+			readDatabaseInfo();
+			tempDirPath = BuildUtils.createTempDir() + "/";
+			
+			//	Subtract the old work counts and add the new ones.
+			
+			TreeMap corpusCountsMap = new TreeMap();
+			for (Iterator it = oldWorks.iterator(); it.hasNext(); ) {
+				WorkCounts workCounts = readOldWorkCounts((Long)it.next());
+				Long corpusId = workCounts.batch.corpusId;
+				if (corpusId != null)
+					getCorpusCounts(corpusCountsMap, corpusId).subtract(
+						workCounts);
+			}
+			countNewWorks(numThreads, newWorks, corpusCountsMap);
+			
+			//	Update the corpus counts and delete the old work counts.
+			
+			setUpdatePending(true);
+			c.setAutoCommit(false);
+			int numLemmaCounts = 0;
+			int numLemmaPosSpellingCounts = 0;
+			for (Iterator it = corpusCountsMap.values().iterator();
+				it.hasNext(); )
+			{
+				CorpusCounts changes = (CorpusCounts)it.next();
+				numLemmaCounts += updateLemmaCorpusCounts(changes);
+				numLemmaPosSpellingCounts +=
+					updateCorpusLemmaPosSpellingCounts(changes);
+			}
+			deleteOldWorkCounts(oldWorks);
+			c.commit();
+			c.setAutoCommit(true);
+			System.out.println(
+				Formatters.formatIntegerWithCommas(numLemmaCounts) +
+				" LemmaCorpusCounts and " +
+				Formatters.formatIntegerWithCommas(numLemmaPosSpellingCounts) +
+				" corpus LemmaPosSpellingCounts objects changed");
+			
+			//	Import the new work counts.
+			
+			if (!exporterImportersList.isEmpty())
+				importTables(dbname, username, password, numThreads, false);
+			setUpdatePending(false);
+			BuildUtils.deleteTempDir();
+		
+		} finally {
+			c.close();
+		}
 	}
-
+	
 	/**	The main program.
 	 *
 	 *	@param	args		Command line arguments.
 	 */
 	
 	public static void main (final String args[]) {
-	
+		
 		try {
 			
-			if (args.length != 6) {
+			if (args.length >= 4 && args[3].equals("-update")) {
+				if (args.length > 5) {
+					System.out.println("Usage: CalculateCounts dbname " +
+						"username password -update [numThreads]");
+					System.exit(1);
+				}
+				int numThreads = 1;
+				if (args.length == 5) numThreads = Integer.parseInt(args[4]);
+				update(args[0], args[1], args[2], numThreads);
+				BuildUtils.reportNumErrors();
+				return;
+			}
+			
+			if (args.length != 6 && args.length != 7) {
 				System.out.println("Usage: CalculateCounts dbname username password " +
-					"wordDataPath wordPartDataPath speechDataPath");
+					"wordDataPath wordPartDataPath speechDataPath [numThreads]");
+				System.out.println("       CalculateCounts dbname username password " +
+					"-update [numThreads]");
 				System.exit(1);
 			}
 			
-			System.out.println("Merging files and counting objects");
+			int numThreads = 1;
+			if (args.length == 7) numThreads = Integer.parseInt(args[6]);
+			if (numThreads <= 0)
+				numThreads = Runtime.getRuntime().availableProcessors();
+			
+			System.out.println("Merging files and counting objects" +
+				(numThreads > 1 ? " using " + numThreads + " threads" : ""));
 			
 			c = BuildUtils.getConnection(args[0], args[1], args[2]);
 			
@@ -1419,35 +2329,34 @@ public class CalculateCounts {
 			speechDataReader = new SpeechDataReader(args[5]);
 			
 			tempDirPath = BuildUtils.createTempDir() + "/";
-			initExporterImporters();
 			
-			boolean done = false;
-			while (!done) done = readCorpusData();
+			countWorks(numThreads);
 			
 			wordDataReader.close();
 			wordPartDataReader.close();
 			speechDataReader.close();
 			
 			deleteOldCounts();
-			importTables();
+			importTables(args[0], args[1], args[2], numThreads, true);
+			setUpdatePending(false);
 			BuildUtils.deleteTempDir();
 			
 			c.close();
 			
 			BuildUtils.reportNumErrors();
-				
-		} catch (Exception e) {
 		
+		} catch (Exception e) {
+			
 			e.printStackTrace();
 			System.exit(1);
-			
-		}
 		
+		}
+	
 	}
-
+	
 	/**	Hides the default no-arg constructor.
 	 */
-	 
+	
 	private CalculateCounts () {
 		throw new UnsupportedOperationException();
 	}
@@ -0,0 +1,276 @@
+package edu.northwestern.at.wordhoard.tools;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+import java.io.*;
+import java.security.*;
+
+/**	Fingerprints of build input files.
+ *
+ *	<p>A fingerprint is the length, last modified time and SHA-1 digest of
+ *	a file. Comparing the fingerprints of the input files with the ones
+ *	saved by the previous build tells which files were added, changed or
+ *	removed since then.
+ *
+ *	<p>A file is only read to compute its digest if its length or last
+ *	modified time differ from its previous fingerprint.
+ *
+ *	<p>Fingerprints are saved in a UTF-8 text file, one file per line,
+ *	with the digest, length, last modified time and path separated by
+ *	tabs.
+ */
+
+public class FileFingerprints {
+
+	/**	A file fingerprint. */
+
+	private static class Fingerprint {
+		private long length;
+		private long lastModified;
+		private String digest;
+	}
+
+	/**	Map from file paths to fingerprints, in path order. */
+
+	private TreeMap fingerprints = new TreeMap();
+
+	/**	Creates an empty set of fingerprints.
+	 */
+
+	public FileFingerprints () {
+	}
+
+	/**	Reads saved fingerprints.
+	 *
+	 *	@param	file		Fingerprint file.
+	 *
+	 *	@return				The fingerprints, or null if the file does
+	 *						not exist.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	public static FileFingerprints read (File file)
+		throws Exception
+	{
+		if (!file.exists()) return null;
+		FileFingerprints result = new FileFingerprints();
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+			new FileInputStream(file), "utf-8"));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split("\t", 4);
+				if (fields.length != 4)
+					throw new IOException("Bad fingerprint line in " +
+						file.getPath() + ": " + line);
+				Fingerprint fingerprint = new Fingerprint();
+				fingerprint.digest = fields[0];
+				fingerprint.length = Long.parseLong(fields[1]);
+				fingerprint.lastModified = Long.parseLong(fields[2]);
+				result.fingerprints.put(fields[3], fingerprint);
+			}
+		} finally {
+			in.close();
+		}
+		return result;
+	}
+
+	/**	Saves the fingerprints.
+	 *
+	 *	<p>The fingerprints are written to a temporary file which then
+	 *	replaces the fingerprint file, so an interrupted save leaves the
+	 *	old file as it was.
+	 *
+	 *	@param	file		Fingerprint file.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	public void write (File file)
+		throws Exception
+	{
+		File tempFile = new File(file.getPath() + ".new");
+		PrintWriter out = new PrintWriter(new BufferedWriter(
+			new OutputStreamWriter(new FileOutputStream(tempFile), "utf-8")));
+		for (Iterator it = fingerprints.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry entry = (Map.Entry)it.next();
+			Fingerprint fingerprint = (Fingerprint)entry.getValue();
+			out.print(fingerprint.digest);
+			out.print('\t');
+			out.print(fingerprint.length);
+			out.print('\t');
+			out.print(fingerprint.lastModified);
+			out.print('\t');
+			out.println((String)entry.getKey());
+		}
+		out.close();
+		if (out.checkError())
+			throw new IOException("Error writing " + tempFile.getPath());
+		if (file.exists() && !file.delete())
+			throw new IOException("Unable to replace " + file.getPath());
+		if (!tempFile.renameTo(file))
+			throw new IOException("Unable to rename " + tempFile.getPath());
+	}
+
+	/**	Deletes a fingerprint file.
+	 *
+	 *	<p>Done before a full build, so that a build which fails leaves no
+	 *	fingerprints behind and the next build is also a full build.
+	 *
+	 *	@param	file		Fingerprint file.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	public static void delete (File file)
+		throws Exception
+	{
+		if (file.exists() && !file.delete())
+			throw new IOException("Unable to delete " + file.getPath());
+	}
+
+	/**	Adds the fingerprints of a file or directory tree.
+	 *
+	 *	<p>Does nothing if the file does not exist.
+	 *
+	 *	@param	file		File or directory.
+	 *
+	 *	@param	previous	Previous fingerprints, or null if none. The
+	 *						digest of a file whose previous fingerprint
+	 *						has the same length and last modified time is
+	 *						reused rather than computed.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	public void add (File file, FileFingerprints previous)
+		throws Exception
+	{
+		if (file.isDirectory()) {
+			File[] contents = file.listFiles();
+			Arrays.sort(contents);
+			for (int i = 0; i < contents.length; i++) {
+				File child = contents[i];
+				if (child.getName().startsWith(".")) continue;
+				add(child, previous);
+			}
+		} else if (file.isFile()) {
+			String path = file.getPath();
+			Fingerprint fingerprint = new Fingerprint();
+			fingerprint.length = file.length();
+			fingerprint.lastModified = file.lastModified();
+			Fingerprint old = previous == null ? null :
+				(Fingerprint)previous.fingerprints.get(path);
+			if (old != null && old.length == fingerprint.length &&
+				old.lastModified == fingerprint.lastModified)
+			{
+				fingerprint.digest = old.digest;
+			} else {
+				fingerprint.digest = computeDigest(file);
+			}
+			fingerprints.put(path, fingerprint);
+		}
+	}
+
+	/**	Computes the digest of a file.
+	 *
+	 *	@param	file		File.
+	 *
+	 *	@return				SHA-1 digest of the file contents, in hex.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	private static String computeDigest (File file)
+		throws Exception
+	{
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buf = new byte[65536];
+			int n;
+			while ((n = in.read(buf)) > 0) digest.update(buf, 0, n);
+		} finally {
+			in.close();
+		}
+		byte[] bytes = digest.digest();
+		StringBuffer result = new StringBuffer(2 * bytes.length);
+		for (int i = 0; i < bytes.length; i++) {
+			int b = bytes[i] & 0xff;
+			result.append(Character.forDigit(b >> 4, 16));
+			result.append(Character.forDigit(b & 0xf, 16));
+		}
+		return result.toString();
+	}
+
+	/**	Gets the files which were added or changed.
+	 *
+	 *	@param	previous	Previous fingerprints.
+	 *
+	 *	@return				List of paths, in path order, of the files
+	 *						which have no previous fingerprint or whose
+	 *						digest differs from it.
+	 */
+
+	public List getChangedPaths (FileFingerprints previous) {
+		ArrayList result = new ArrayList();
+		for (Iterator it = fingerprints.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry entry = (Map.Entry)it.next();
+			Fingerprint old =
+				(Fingerprint)previous.fingerprints.get(entry.getKey());
+			if (old == null ||
+				!old.digest.equals(((Fingerprint)entry.getValue()).digest))
+				result.add(entry.getKey());
+		}
+		return result;
+	}
+
+	/**	Gets the files which were removed.
+	 *
+	 *	@param	previous	Previous fingerprints.
+	 *
+	 *	@return				List of paths, in path order, of the files
+	 *						which have a previous fingerprint but no
+	 *						current one.
+	 */
+
+	public List getRemovedPaths (FileFingerprints previous) {
+		ArrayList result = new ArrayList();
+		for (Iterator it = previous.fingerprints.keySet().iterator();
+			it.hasNext(); )
+		{
+			String path = (String)it.next();
+			if (!fingerprints.containsKey(path)) result.add(path);
+		}
+		return result;
+	}
+
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+
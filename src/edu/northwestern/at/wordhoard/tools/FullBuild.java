@@ -0,0 +1,763 @@
+package edu.northwestern.at.wordhoard.tools;
+
+/*	Please see the license information at the end of this file. */
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.sql.*;
+
+import javax.xml.stream.*;
+
+import edu.northwestern.at.utils.db.jdbc.*;
+import edu.northwestern.at.utils.xml.*;
+
+/**	Builds the WordHoard database.
+ *
+ *	<p>Usage:
+ *
+ *	<p><code>FullBuild dir dbname username password [incremental]
+ *	[numThreads]</code>
+ *
+ *	<p>dir = Data directory.
+ *
+ *	<p>dbname = Database name.
+ *
+ *	<p>username = MySQL username.
+ *
+ *	<p>password = MySQL password.
+ *
+ *	<p>incremental = Incremental build option. If present, and the only
+ *	input files which were added or changed since the last build of the
+ *	database are work files, only those works are rebuilt, followed by the
+ *	annotations and translations of those works, the counts, the work sets
+ *	and the table statistics. Otherwise the whole database is rebuilt.
+ *
+ *	<p>numThreads = Number of build steps to run at once, which is also the
+ *	number of threads used to build works (optional). The default is one
+ *	thread per available processor.
+ *
+ *	<p>The build is divided into steps, each of which depends on other
+ *	steps:
+ *
+ *	<ul>
+ *	<li>schema: Creates the database, by running
+ *		scripts/create-client-database.csh.
+ *	<li>corpora, authors, wordClasses, bensonGlosses: Run
+ *		{@link BuildCorpora}, {@link BuildAuthors},
+ *		{@link BuildWordClasses} and {@link BuildBensonGloss}. Depend on
+ *		schema.
+ *	<li>pos: Runs {@link BuildPos}. Depends on wordClasses.
+ *	<li>works: Runs {@link BuildWorks}. Depends on corpora, authors and pos.
+ *	<li>annotations, translations, workSets: Run {@link BuildAnnotations},
+ *		{@link BuildTranslations} and {@link BuildWorkSets}. Depend on
+ *		works.
+ *	<li>counts: Calculates the counts, by running
+ *		scripts/calculate-counts.csh. In an incremental build, only the
+ *		counts of the rebuilt works are recomputed, and the corpus counts
+ *		are updated, by {@link CalculateCounts#update}. Depends on works.
+ *	<li>analyze: Analyzes the tables. Depends on all the other steps.
+ *	</ul>
+ *
+ *	<p>A step starts as soon as all the steps it depends on are done, so
+ *	independent steps run at the same time. Steps for optional input files
+ *	which do not exist are left out, as are the schema step in an
+ *	incremental build and the steps which do not depend on the rebuilt
+ *	works. If a step fails, no more steps are started, and the build fails
+ *	once the running steps are done.
+ *
+ *	<p>All the steps except schema and the counts step of a full build run
+ *	in this JVM. Their JDBC connections come from one shared connection
+ *	pool, and the ones which use Hibernate share one session factory. Each
+ *	step has its own temp dir. The schema and full build counts steps use
+ *	the mysql client, and need the same environment variables as
+ *	scripts/full-build.csh. The program must be run in the WordHoard
+ *	directory.
+ *
+ *	<p>The fingerprints of the input files are saved in the data directory
+ *	after a build which reports no errors. See {@link FileFingerprints}.
+ */
+
+public class FullBuild {
+
+	/**	Input files and directories, relative to the data directory. */
+
+	private static final String[] INPUTS = {"corpora.xml", "authors.xml",
+		"word-classes.xml", "pos.xml", "benson-glosses.xml", "spellings",
+		"works", "annotations", "translations", "work-sets.xml"};
+
+	/**	A build step. */
+
+	private static abstract class Step {
+		private String name;
+		private String[] dependencies;
+		private int numWaiting;
+		private ArrayList dependents = new ArrayList();
+		private Step (String name, String[] dependencies) {
+			this.name = name;
+			this.dependencies = dependencies;
+		}
+		public abstract void run ()
+			throws Exception;
+	}
+
+	/**	A build step which runs a build tool on an input file or directory. */
+
+	private static abstract class ToolStep extends Step {
+		private String input;
+		private ToolStep (String name, String[] dependencies, String input) {
+			super(name, dependencies);
+			this.input = input;
+		}
+		public void run ()
+			throws Exception
+		{
+			build(getToolArgs(input));
+		}
+		public abstract void build (String[] args)
+			throws Exception;
+	}
+
+	/**	Data directory. */
+
+	private static String dir;
+
+	/**	Database name. */
+
+	private static String dbname;
+
+	/**	MySQL username. */
+
+	private static String username;
+
+	/**	MySQL password. */
+
+	private static String password;
+
+	/**	True for an incremental build. */
+
+	private static boolean incremental;
+
+	/**	Number of threads. */
+
+	private static int numThreads;
+
+	/**	The build steps, in the order they were added. */
+
+	private static ArrayList steps = new ArrayList();
+
+	/**	Full tags of the works rebuilt by an incremental build. */
+
+	private static volatile List workTags;
+
+	/**	Parses command line arguments.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+
+	private static void parseArgs (String[] args) {
+		int n = args.length;
+		numThreads = Runtime.getRuntime().availableProcessors();
+		if (n > 4 && args[n-1].matches("\\d+")) {
+			int num = Integer.parseInt(args[n-1]);
+			if (num > 0) numThreads = num;
+			n--;
+		}
+		if (n == 5 && args[4].equals("incremental")) {
+			incremental = true;
+			n--;
+		}
+		if (n != 4) {
+			System.out.println("Usage: FullBuild dir dbname username password " +
+				"[incremental] [numThreads]");
+			System.exit(1);
+		}
+		dir = args[0];
+		dbname = args[1];
+		username = args[2];
+		password = args[3];
+	}
+
+	/**	Gets an input file or directory.
+	 *
+	 *	@param	name		Name relative to the data directory.
+	 *
+	 *	@return				The file.
+	 */
+
+	private static File getInput (String name) {
+		return new File(dir, name);
+	}
+
+	/**	Gets the command line arguments for a build tool.
+	 *
+	 *	@param	name		Name of the tool's input file or directory,
+	 *						relative to the data directory.
+	 *
+	 *	@return				The input path, database name, username and
+	 *						password.
+	 */
+
+	private static String[] getToolArgs (String name) {
+		return new String[] {getInput(name).getPath(), dbname, username,
+			password};
+	}
+
+	/**	Gets the command line arguments for BuildWorks.
+	 *
+	 *	@return				Arguments for building works with the standard
+	 *						spellings, if any, using numThreads threads.
+	 */
+
+	private static String[] getBuildWorksArgs () {
+		ArrayList result = new ArrayList(Arrays.asList(getToolArgs("works")));
+		File spellings = getInput("spellings");
+		if (spellings.exists()) result.add(spellings.getPath());
+		result.add(Integer.toString(numThreads));
+		return (String[])result.toArray(new String[result.size()]);
+	}
+
+	/**	Gets the fingerprint file.
+	 *
+	 *	@return				The fingerprint file for the database.
+	 */
+
+	private static File getFingerprintFile () {
+		return getInput("build-" + dbname.replaceAll("[^\\w-]", "_") +
+			".fingerprints");
+	}
+
+	/**	Runs a script.
+	 *
+	 *	<p>The script's output is copied to standard output.
+	 *
+	 *	@param	command		Script path and arguments.
+	 *
+	 *	@throws	Exception	general error, or the script failed.
+	 */
+
+	private static void runScript (String[] command)
+		throws Exception
+	{
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		Process process = builder.start();
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+			process.getInputStream()));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) System.out.println(line);
+		} finally {
+			in.close();
+		}
+		int status = process.waitFor();
+		if (status != 0) throw new Exception(command[0] +
+			" failed with exit status " + status);
+	}
+
+	/**	Analyzes all the tables.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	private static void analyzeTables ()
+		throws Exception
+	{
+		System.out.println("Analyzing tables");
+		Connection c = BuildUtils.getConnection(dbname, username, password);
+		try {
+			Statement s = c.createStatement();
+			ArrayList tables = new ArrayList();
+			ResultSet r = s.executeQuery("show tables");
+			while (r.next()) tables.add(r.getString(1));
+			r.close();
+			for (Iterator it = tables.iterator(); it.hasNext(); ) {
+				r = s.executeQuery("analyze table `" + it.next() + "`");
+				r.close();
+			}
+			s.close();
+		} finally {
+			c.close();
+		}
+	}
+
+	/**	Lists the XML files in a directory tree.
+	 *
+	 *	@param	dir		Directory.
+	 *
+	 *	@param	files	List to which the files whose names end in ".xml"
+	 *					are added, in the order the build tools process
+	 *					them.
+	 */
+
+	private static void listFiles (File dir, List files) {
+		File[] contents = dir.listFiles();
+		Arrays.sort(contents);
+		for (int i = 0; i < contents.length; i++) {
+			File file = contents[i];
+			if (file.isDirectory()) {
+				listFiles(file, files);
+			} else if (file.getName().endsWith(".xml")) {
+				files.add(file);
+			}
+		}
+	}
+
+	/**	Gets the work an annotation or translation file is for.
+	 *
+	 *	<p>Only the root element is read.
+	 *
+	 *	@param	file		Annotation or translation file.
+	 *
+	 *	@return				The full work tag from the corpus and work
+	 *						attributes of the root element.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	private static String getWorkTag (File file)
+		throws Exception
+	{
+		XMLStreamReader reader = StAXUtils.createReader(file);
+		try {
+			if (StAXUtils.nextElement(reader) !=
+				XMLStreamConstants.START_ELEMENT) return null;
+			return StAXUtils.getAttribute(reader, "corpus") + "-" +
+				StAXUtils.getAttribute(reader, "work");
+		} finally {
+			StAXUtils.close(reader);
+		}
+	}
+
+	/**	Gets the files in a directory tree for the rebuilt works.
+	 *
+	 *	@param	dir		Annotation or translation directory.
+	 *
+	 *	@return			List of the files for works in workTags.
+	 *
+	 *	@throws	Exception	general error.
+	 */
+
+	private static List getFilesForWorks (File dir)
+		throws Exception
+	{
+		ArrayList files = new ArrayList();
+		listFiles(dir, files);
+		HashSet tags = new HashSet(workTags);
+		for (Iterator it = files.iterator(); it.hasNext(); ) {
+			if (!tags.contains(getWorkTag((File)it.next()))) it.remove();
+		}
+		return files;
+	}
+
+	/**	Gets the work files to rebuild in an incremental build.
+	 *
+	 *	@param	changed		Paths of the input files added or changed since
+	 *						the last build.
+	 *
+	 *	@param	removed		Paths of the input files removed since the last
+	 *						build.
+	 *
+	 *	@return				List of the changed work files, or null if
+	 *						files other than work files changed or any
+	 *						files were removed.
+	 */
+
+	private static List getWorkFiles (List changed, List removed) {
+		if (!removed.isEmpty()) return null;
+		String prefix = getInput("works").getPath() + File.separator;
+		ArrayList result = new ArrayList();
+		for (Iterator it = changed.iterator(); it.hasNext(); ) {
+			String path = (String)it.next();
+			if (!path.startsWith(prefix)) return null;
+			if (path.endsWith(".xml")) result.add(new File(path));
+		}
+		return result;
+	}
+
+	/**	Adds a build step.
+	 *
+	 *	@param	step		The step.
+	 */
+
+	private static void addStep (Step step) {
+		steps.add(step);
+	}
+
+	/**	Adds a step which runs a build tool.
+	 *
+	 *	<p>The step is not added if its input does not exist.
+	 *
+	 *	@param	step		The step.
+	 */
+
+	private static void addToolStep (ToolStep step) {
+		if (getInput(step.input).exists()) addStep(step);
+	}
+
+	/**	Adds the analyze step, which depends on all the other steps.
+	 */
+
+	private static void addAnalyzeStep () {
+		String[] dependencies = new String[steps.size()];
+		for (int i = 0; i < dependencies.length; i++)
+			dependencies[i] = ((Step)steps.get(i)).name;
+		addStep(new Step("analyze", dependencies) {
+			public void run () throws Exception {
+				analyzeTables();
+			}
+		});
+	}
+
+	/**	Adds the counts step.
+	 *
+	 *	@param	update		True to update the counts of the rebuilt
+	 *						works, false to calculate all the counts.
+	 */
+
+	private static void addCountsStep (final boolean update) {
+		addStep(new Step("counts", new String[] {"works"}) {
+			public void run () throws Exception {
+				if (update) {
+					CalculateCounts.update(dbname, username, password,
+						numThreads);
+				} else {
+					runScript(new String[] {"scripts/calculate-counts.csh",
+						dbname});
+				}
+			}
+		});
+	}
+
+	/**	Adds the steps for a full build.
+	 */
+
+	private static void addFullBuildSteps () {
+		String[] schema = {"schema"};
+		String[] works = {"works"};
+		addStep(new Step("schema", new String[0]) {
+			public void run () throws Exception {
+				runScript(new String[] {"scripts/create-client-database.csh",
+					dbname});
+			}
+		});
+		addToolStep(new ToolStep("corpora", schema, "corpora.xml") {
+			public void build (String[] args) throws Exception {
+				BuildCorpora.build(args);
+			}
+		});
+		addToolStep(new ToolStep("authors", schema, "authors.xml") {
+			public void build (String[] args) throws Exception {
+				BuildAuthors.build(args);
+			}
+		});
+		addToolStep(new ToolStep("wordClasses", schema, "word-classes.xml") {
+			public void build (String[] args) throws Exception {
+				BuildWordClasses.build(args);
+			}
+		});
+		addToolStep(new ToolStep("pos", new String[] {"wordClasses"}, "pos.xml") {
+			public void build (String[] args) throws Exception {
+				BuildPos.build(args);
+			}
+		});
+		addToolStep(new ToolStep("bensonGlosses", schema, "benson-glosses.xml") {
+			public void build (String[] args) throws Exception {
+				BuildBensonGloss.build(args);
+			}
+		});
+		addStep(new Step("works", new String[] {"corpora", "authors", "pos"}) {
+			public void run () throws Exception {
+				BuildWorks.build(getBuildWorksArgs());
+			}
+		});
+		addToolStep(new ToolStep("annotations", works, "annotations") {
+			public void build (String[] args) throws Exception {
+				BuildAnnotations.build(args);
+			}
+		});
+		addToolStep(new ToolStep("translations", works, "translations") {
+			public void build (String[] args) throws Exception {
+				BuildTranslations.build(args);
+			}
+		});
+		addCountsStep(false);
+		addToolStep(new ToolStep("workSets", works, "work-sets.xml") {
+			public void build (String[] args) throws Exception {
+				BuildWorkSets.build(args);
+			}
+		});
+		addAnalyzeStep();
+	}
+
+	/**	Adds the steps for an incremental build.
+	 *
+	 *	@param	workFiles	List of the work files to rebuild.
+	 */
+
+	private static void addIncrementalSteps (final List workFiles) {
+		String[] works = {"works"};
+		addStep(new Step("works", new String[0]) {
+			public void run () throws Exception {
+				workTags = BuildWorks.build(getBuildWorksArgs(), workFiles);
+			}
+		});
+		if (getInput("annotations").exists()) {
+			addStep(new Step("annotations", works) {
+				public void run () throws Exception {
+					List files = getFilesForWorks(getInput("annotations"));
+					if (!files.isEmpty()) BuildAnnotations.build(
+						getToolArgs("annotations"), files);
+				}
+			});
+		}
+		if (getInput("translations").exists()) {
+			addStep(new Step("translations", works) {
+				public void run () throws Exception {
+					List files = getFilesForWorks(getInput("translations"));
+					if (!files.isEmpty()) BuildTranslations.build(
+						getToolArgs("translations"), files);
+				}
+			});
+		}
+		addCountsStep(true);
+		addToolStep(new ToolStep("workSets", works, "work-sets.xml") {
+			public void build (String[] args) throws Exception {
+				BuildWorkSets.build(args);
+			}
+		});
+		addAnalyzeStep();
+	}
+
+	/**	Submits a step to run.
+	 *
+	 *	@param	completionService	Completion service for the steps.
+	 *
+	 *	@param	step				The step.
+	 */
+
+	private static void submit (CompletionService completionService,
+		final Step step)
+	{
+		completionService.submit(
+			new Callable() {
+				public Object call () throws Exception {
+					BuildUtils.setTempDirPath("temp-" + step.name);
+					long startTime = System.currentTimeMillis();
+					System.out.println();
+					System.out.println("===== Starting " + step.name);
+					try {
+						step.run();
+					} catch (Exception e) {
+						System.out.println("===== Failed " + step.name);
+						throw e;
+					}
+					long endTime = System.currentTimeMillis();
+					System.out.println("===== Finished " + step.name + " in " +
+						BuildUtils.formatElapsedTime(startTime, endTime));
+					return step;
+				}
+			}
+		);
+	}
+
+	/**	Runs the build steps.
+	 *
+	 *	<p>Dependencies on steps which are not part of the build are
+	 *	ignored.
+	 *
+	 *	@throws	Exception	a step failed, or the steps depend on each
+	 *						other in a cycle.
+	 */
+
+	private static void runSteps ()
+		throws Exception
+	{
+		HashMap stepMap = new HashMap();
+		for (Iterator it = steps.iterator(); it.hasNext(); ) {
+			Step step = (Step)it.next();
+			stepMap.put(step.name, step);
+		}
+		for (Iterator it = steps.iterator(); it.hasNext(); ) {
+			Step step = (Step)it.next();
+			for (int i = 0; i < step.dependencies.length; i++) {
+				Step dependency = (Step)stepMap.get(step.dependencies[i]);
+				if (dependency == null) continue;
+				dependency.dependents.add(step);
+				step.numWaiting++;
+			}
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		CompletionService completionService =
+			new ExecutorCompletionService(pool);
+		int numRunning = 0;
+		int numDone = 0;
+		Exception failure = null;
+		try {
+			for (Iterator it = steps.iterator(); it.hasNext(); ) {
+				Step step = (Step)it.next();
+				if (step.numWaiting > 0) continue;
+				submit(completionService, step);
+				numRunning++;
+			}
+			while (numRunning > 0) {
+				Future future = completionService.take();
+				numRunning--;
+				Step step;
+				try {
+					step = (Step)future.get();
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						Throwable cause = e.getCause();
+						failure = cause instanceof Exception ?
+							(Exception)cause : e;
+					}
+					continue;
+				}
+				numDone++;
+				if (failure != null) continue;
+				for (Iterator it = step.dependents.iterator(); it.hasNext(); ) {
+					Step dependent = (Step)it.next();
+					if (--dependent.numWaiting > 0) continue;
+					submit(completionService, dependent);
+					numRunning++;
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		if (failure != null) throw failure;
+		if (numDone < steps.size())
+			throw new Exception("Build steps depend on each other in a cycle");
+	}
+
+	/**	The main program.
+	 *
+	 *	@param	args		Command line arguments.
+	 */
+
+	public static void main (final String args[]) {
+
+		try {
+
+			//	Initialize.
+
+			long startTime = System.currentTimeMillis();
+			parseArgs(args);
+
+			//	Fingerprint the input files.
+
+			File fingerprintFile = getFingerprintFile();
+			FileFingerprints previous = FileFingerprints.read(fingerprintFile);
+			FileFingerprints current = new FileFingerprints();
+			for (int i = 0; i < INPUTS.length; i++)
+				current.add(getInput(INPUTS[i]), previous);
+
+			//	Choose a full or incremental build.
+
+			List workFiles = null;
+			if (incremental && previous == null) {
+				System.out.println("No fingerprints from a previous build of " +
+					dbname + ", doing a full build");
+			} else if (incremental) {
+				List changed = current.getChangedPaths(previous);
+				List removed = current.getRemovedPaths(previous);
+				if (changed.isEmpty() && removed.isEmpty()) {
+					System.out.println("No input files changed since the " +
+						"last build of " + dbname);
+					return;
+				}
+				workFiles = getWorkFiles(changed, removed);
+				if (workFiles == null)
+					System.out.println("Input files other than works " +
+						"changed since the last build of " + dbname +
+						", doing a full build");
+			}
+			if (workFiles == null) {
+				System.out.println("Building database " + dbname +
+					" from directory " + dir + " using " + numThreads +
+					(numThreads == 1 ? " thread" : " threads"));
+				FileFingerprints.delete(fingerprintFile);
+				addFullBuildSteps();
+			} else {
+				System.out.println("Rebuilding " + workFiles.size() +
+					(workFiles.size() == 1 ? " work" : " works") +
+					" in database " + dbname + " using " + numThreads +
+					(numThreads == 1 ? " thread" : " threads"));
+				addIncrementalSteps(workFiles);
+			}
+
+			//	Run the steps with a shared connection pool.
+
+			SimpleConnectionPool connectionPool =
+				BuildUtils.createConnectionPool(dbname, username, password,
+					2 * numThreads);
+			BuildUtils.setConnectionPool(connectionPool);
+			try {
+				runSteps();
+			} finally {
+				BuildUtils.setConnectionPool(null);
+				connectionPool.close();
+			}
+
+			//	Save the fingerprints if no errors were reported.
+
+			if (BuildUtils.getNumErrorMessages() == 0) {
+				current.write(fingerprintFile);
+			} else {
+				FileFingerprints.delete(fingerprintFile);
+				System.out.println("Errors were reported, so the next " +
+					"incremental build will be a full build");
+			}
+
+			//	Report final stats.
+
+			long endTime = System.currentTimeMillis();
+			System.out.println();
+			System.out.println("Database " + dbname + " built in " +
+				BuildUtils.formatElapsedTime(startTime, endTime));
+			BuildUtils.reportNumErrors();
+
+		} catch (Exception e) {
+
+			e.printStackTrace();
+			System.exit(1);
+
+		}
+
+	}
+
+	/**	Hides the default no-arg constructor.
+	 */
+
+	private FullBuild () {
+		throw new UnsupportedOperationException();
+	}
+
+}
+
+/*
+ * <p>
+ * Copyright &copy; 2004-2011 Northwestern University.
+ * </p>
+ * <p>
+ * This program is free software; you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * </p>
+ * <p>
+ * This program is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more
+ * details.
+ * </p>
+ * <p>
+ * You should have received a copy of the GNU General Public
+ * License along with this program; if not, write to the Free
+ * Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA 02111-1307 USA.
+ * </p>
+ */
+